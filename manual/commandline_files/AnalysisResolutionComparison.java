@@ -0,0 +1,135 @@
+import java.io.File;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import jsymbolic2.featureutils.ExtractionPlan;
+import jsymbolic2.featureutils.FeatureExtractorAccess;
+import jsymbolic2.featureutils.MEIFeatureExtractor;
+import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.processing.MIDIIntermediateRepresentations;
+
+/**
+ * Reproduces the comparison of feature values extracted at a reduced analysis resolution (see
+ * MIDIIntermediateRepresentations.rescaleToAnalysisResolution) with those extracted at each file's original
+ * resolution. All MIDI features are extracted from each file at its original resolution and at 96 and 48
+ * PPQ. The time taken and the number of identical features are printed for each file, followed by, for each
+ * resolution, every feature whose values differ, the number of files in which they differ and the largest
+ * difference relative to the largest value of the feature.
+ *
+ * <p>The results of running this on the MIDI files distributed with jSymbolic are summarized in the command
+ * line section of the manual. To compile it, copy jSymbolic2.jar and its lib folder to the same directory as
+ * this file and type javac -classpath "./jSymbolic2.jar;" AnalysisResolutionComparison.java. It can then be
+ * run with the paths of the MIDI files to compare, e.g. java -classpath "./jSymbolic2.jar;"
+ * AnalysisResolutionComparison "../api_files/Bach J S - Cello Suite No 1 Prelude.mid"</p>
+ *
+ * @author Cory McKay
+ */
+public class AnalysisResolutionComparison {
+
+    private static final int[] analysis_resolutions = {96, 48};
+
+    public static void main(String[] args) throws Exception {
+        MIDIFeatureExtractor[] all_features = FeatureExtractorAccess.getAllImplementedFeatureExtractors();
+        boolean[] features_to_save = new boolean[all_features.length];
+        for (int feature = 0; feature < all_features.length; feature++)
+            features_to_save[feature] = !(all_features[feature] instanceof MEIFeatureExtractor);
+        ExtractionPlan plan = ExtractionPlan.create(all_features, features_to_save);
+        MIDIFeatureExtractor[] features = plan.getFeatureExtractorsInExtractionOrder(all_features);
+        int[][] dependencies = plan.getDependencyPositions();
+
+        // For each analysis resolution and feature, the number of files with different values, the number of
+        // files where only one of the two extractions succeeded, and the largest relative difference
+        int[][] files_differing = new int[analysis_resolutions.length][features.length];
+        int[][] files_not_extracted = new int[analysis_resolutions.length][features.length];
+        double[][] largest_difference = new double[analysis_resolutions.length][features.length];
+
+        for (String path : args) {
+            Sequence original = MidiSystem.getSequence(new File(path));
+            long start = System.nanoTime();
+            double[][] original_values = extractFeatures(original, features, dependencies);
+            System.out.printf("%s: %d PPQ, %d ticks, %.1f s, %d ms%n", new File(path).getName(), original.getResolution(),
+                    original.getTickLength(), original.getMicrosecondLength() / 1e6, (System.nanoTime() - start) / 1000000);
+
+            for (int res = 0; res < analysis_resolutions.length; res++) {
+                start = System.nanoTime();
+                Sequence rescaled = MIDIIntermediateRepresentations.rescaleToAnalysisResolution(original, analysis_resolutions[res]);
+                double[][] rescaled_values = extractFeatures(rescaled, features, dependencies);
+                long milliseconds = (System.nanoTime() - start) / 1000000;
+
+                int identical = 0;
+                for (int feature = 0; feature < features.length; feature++) {
+                    double[] expected = original_values[feature];
+                    double[] actual = rescaled_values[feature];
+                    if (expected == null || actual == null) {
+                        if (expected != actual)
+                            files_not_extracted[res][feature]++;
+                        else identical++;
+                        continue;
+                    }
+                    double difference = getRelativeDifference(expected, actual);
+                    if (difference > 0.0) {
+                        files_differing[res][feature]++;
+                        largest_difference[res][feature] = Math.max(largest_difference[res][feature], difference);
+                    } else identical++;
+                }
+                System.out.printf("  %d PPQ: %d ticks, %.1f s, %d ms, %d features identical%n", rescaled.getResolution(),
+                        rescaled.getTickLength(), rescaled.getMicrosecondLength() / 1e6, milliseconds, identical);
+            }
+        }
+
+        for (int res = 0; res < analysis_resolutions.length; res++) {
+            System.out.println("== " + analysis_resolutions[res] + " PPQ ==");
+            int identical = 0;
+            for (int feature = 0; feature < features.length; feature++) {
+                if (files_differing[res][feature] == 0 && files_not_extracted[res][feature] == 0) {
+                    identical++;
+                    continue;
+                }
+                System.out.printf("  %-70s files differing %d, max difference relative to largest value %.4f%s%n",
+                        features[feature].getFeatureDefinition().name, files_differing[res][feature], largest_difference[res][feature],
+                        files_not_extracted[res][feature] > 0 ? " (not extracted " + files_not_extracted[res][feature] + ")" : "");
+            }
+            System.out.println("  identical: " + identical + " of " + features.length);
+        }
+    }
+
+    /**
+     * Extract all the given features from the given sequence, in order. Features that cannot be extracted
+     * are given null values.
+     */
+    private static double[][] extractFeatures(Sequence sequence, MIDIFeatureExtractor[] features, int[][] dependencies)
+            throws Exception {
+        MIDIIntermediateRepresentations representations = new MIDIIntermediateRepresentations(sequence);
+        double[][] values = new double[features.length][];
+        for (int feature = 0; feature < features.length; feature++) {
+            double[][] dependency_values = null;
+            if (dependencies[feature] != null) {
+                dependency_values = new double[dependencies[feature].length][];
+                for (int dep = 0; dep < dependencies[feature].length; dep++)
+                    dependency_values[dep] = values[dependencies[feature][dep]];
+            }
+            try { values[feature] = features[feature].extractFeature(sequence, representations, dependency_values); }
+            catch (Exception e) { values[feature] = null; }
+        }
+        representations.releaseTickCharts();
+        return values;
+    }
+
+    /**
+     * The largest difference between corresponding values, relative to the largest magnitude in expected.
+     * Differences below one billionth of this magnitude are ignored. Returns 1 if the numbers of values differ.
+     */
+    private static double getRelativeDifference(double[] expected, double[] actual) {
+        if (expected.length != actual.length)
+            return 1.0;
+        double scale = 1e-12;
+        for (double value : expected)
+            scale = Math.max(scale, Math.abs(value));
+        double difference = 0.0;
+        for (int i = 0; i < expected.length; i++) {
+            double this_difference = Math.abs(expected[i] - actual[i]);
+            if (this_difference > 1e-9 * scale)
+                difference = Math.max(difference, this_difference / scale);
+        }
+        return difference;
+    }
+}
@@ -0,0 +1,426 @@
+package jsymbolic2.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import jsymbolic2.processing.BinaryFeatureValuesWriter;
+
+/**
+ * Provides fast read access to the binary feature values files saved by
+ * jsymbolic2.processing.BinaryFeatureValuesWriter (see that class for a description of the file format).
+ * The header and row information are read when an object of this class is instantiated, but feature values
+ * are not: each column of the feature value matrix is instead memory-mapped directly from the file when it
+ * is requested, so that loading even very large files is nearly instantaneous, and only the columns that are
+ * actually used are ever read from disk.
+ *
+ * <p>The matrix can also be exported to a NumPy .npy file (see exportToNpy), so that it can be loaded by
+ * Python-based machine learning tools with numpy.load.</p>
+ *
+ * <p>Objects of this class should be closed when no longer needed.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class BinaryFeatureValuesFile
+	implements Closeable
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The path of the file being read.
+	 */
+	private final String file_path;
+
+	/**
+	 * Used to read the file.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The number of rows (instances) in the matrix.
+	 */
+	private final int number_of_rows;
+
+	/**
+	 * The names of the features, in column order.
+	 */
+	private final String[] feature_names;
+
+	/**
+	 * The number of dimensions (and therefore columns) of each feature.
+	 */
+	private final int[] feature_dimensions;
+
+	/**
+	 * The name of each column. Feature names have spaces replaced by underscores, and multi-dimensional
+	 * features have the dimension index appended, as in ARFF and CSV files saved by jSymbolic.
+	 */
+	private final String[] column_names;
+
+	/**
+	 * The offset of the matrix from the start of the file.
+	 */
+	private final long matrix_offset;
+
+	/**
+	 * The identifier of each row.
+	 */
+	private final String[] row_identifiers;
+
+	/**
+	 * The start time of each row's analysis window, in seconds. Null if rows do not correspond to windows.
+	 */
+	private final double[] window_start_times;
+
+	/**
+	 * The stop time of each row's analysis window, in seconds. Null if rows do not correspond to windows.
+	 */
+	private final double[] window_stop_times;
+
+	/**
+	 * The class label of each row. Null if class labels were not saved.
+	 */
+	private final String[] class_labels;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Open the given binary feature values file and read its header and row information.
+	 *
+	 * @param file_path		The path of the binary feature values file to read.
+	 * @throws Exception	Throws an informative exception if the file cannot be read or is not a valid
+	 *						binary feature values file.
+	 */
+	public BinaryFeatureValuesFile(String file_path)
+		throws Exception
+	{
+		this.file_path = file_path;
+		if (!new File(file_path).isFile())
+			throw new Exception(file_path + " does not refer to an existing file.");
+		channel = new RandomAccessFile(file_path, "r").getChannel();
+
+		try
+		{
+			// Read the fixed-size part of the header
+			ByteBuffer fixed_header = readBytes(0, BinaryFeatureValuesWriter.fixed_header_size);
+			byte[] magic = new byte[BinaryFeatureValuesWriter.magic_bytes.length];
+			fixed_header.get(magic);
+			if (!Arrays.equals(magic, BinaryFeatureValuesWriter.magic_bytes))
+				throw new Exception(file_path + " is not a jSymbolic binary feature values file.");
+			int version = fixed_header.getInt();
+			if (version != BinaryFeatureValuesWriter.format_version)
+				throw new Exception(file_path + " uses unsupported binary feature values format version " + version + ".");
+			int flags = fixed_header.getInt();
+			int number_of_columns = fixed_header.getInt();
+			long rows = fixed_header.getLong();
+			if (rows > Integer.MAX_VALUE)
+				throw new Exception(file_path + " has too many rows to be read.");
+			number_of_rows = (int) rows;
+			matrix_offset = fixed_header.getLong();
+			long row_information_offset = fixed_header.getLong();
+			int number_of_features = fixed_header.getInt();
+
+			// Read the feature table
+			ByteBuffer feature_table = readBytes(BinaryFeatureValuesWriter.fixed_header_size, (int) (matrix_offset - BinaryFeatureValuesWriter.fixed_header_size));
+			feature_names = new String[number_of_features];
+			feature_dimensions = new int[number_of_features];
+			column_names = new String[number_of_columns];
+			int column = 0;
+			for (int feat = 0; feat < number_of_features; feat++)
+			{
+				feature_names[feat] = getString(feature_table);
+				feature_dimensions[feat] = feature_table.getInt();
+				String base_name = feature_names[feat].replace(' ', '_');
+				for (int dim = 0; dim < feature_dimensions[feat]; dim++)
+					column_names[column++] = (feature_dimensions[feat] == 1) ? base_name : base_name + "_" + dim;
+			}
+			if (column != number_of_columns)
+				throw new Exception(file_path + " has a feature table that does not match its number of columns.");
+
+			// Read the row information
+			boolean rows_are_windows = (flags & BinaryFeatureValuesWriter.rows_are_windows_flag) != 0;
+			boolean has_class_labels = (flags & BinaryFeatureValuesWriter.class_labels_flag) != 0;
+			ByteBuffer row_information = readBytes(row_information_offset, (int) (channel.size() - row_information_offset));
+			row_identifiers = new String[number_of_rows];
+			window_start_times = rows_are_windows ? new double[number_of_rows] : null;
+			window_stop_times = rows_are_windows ? new double[number_of_rows] : null;
+			class_labels = has_class_labels ? new String[number_of_rows] : null;
+			for (int row = 0; row < number_of_rows; row++)
+			{
+				row_identifiers[row] = getString(row_information);
+				if (rows_are_windows)
+				{
+					window_start_times[row] = row_information.getDouble();
+					window_stop_times[row] = row_information.getDouble();
+				}
+				if (has_class_labels)
+					class_labels[row] = getString(row_information);
+			}
+		}
+		catch (Exception e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	The number of rows (instances) in the file.
+	 */
+	public int getNumberOfRows()
+	{
+		return number_of_rows;
+	}
+
+
+	/**
+	 * @return	The number of columns (feature dimensions) in the file.
+	 */
+	public int getNumberOfColumns()
+	{
+		return column_names.length;
+	}
+
+
+	/**
+	 * @return	The names of the features held in the file, in column order.
+	 */
+	public String[] getFeatureNames()
+	{
+		return feature_names.clone();
+	}
+
+
+	/**
+	 * @return	The number of dimensions (and therefore columns) of each feature, ordered to match
+	 *			getFeatureNames().
+	 */
+	public int[] getFeatureDimensions()
+	{
+		return feature_dimensions.clone();
+	}
+
+
+	/**
+	 * @return	The name of each column, as it would appear in a Weka ARFF or CSV file saved by jSymbolic.
+	 */
+	public String[] getColumnNames()
+	{
+		return column_names.clone();
+	}
+
+
+	/**
+	 * @return	The identifier of each row (normally the path of the music file it was extracted from).
+	 */
+	public String[] getRowIdentifiers()
+	{
+		return row_identifiers.clone();
+	}
+
+
+	/**
+	 * @return	Whether each row corresponds to an analysis window (true) or to a music file as a whole
+	 *			(false).
+	 */
+	public boolean getRowsAreWindows()
+	{
+		return window_start_times != null;
+	}
+
+
+	/**
+	 * @return	The start time in seconds of the analysis window of each row. Null if rows do not correspond
+	 *			to analysis windows.
+	 */
+	public double[] getWindowStartTimes()
+	{
+		return (window_start_times == null) ? null : window_start_times.clone();
+	}
+
+
+	/**
+	 * @return	The stop time in seconds of the analysis window of each row. Null if rows do not correspond to
+	 *			analysis windows.
+	 */
+	public double[] getWindowStopTimes()
+	{
+		return (window_stop_times == null) ? null : window_stop_times.clone();
+	}
+
+
+	/**
+	 * @return	The class label of each row. Null if class labels were not saved.
+	 */
+	public String[] getClassLabels()
+	{
+		return (class_labels == null) ? null : class_labels.clone();
+	}
+
+
+	/**
+	 * Return a read-only view of the given column, memory-mapped directly from the file. Missing values are
+	 * NaN.
+	 *
+	 * @param column		The index of the column to return.
+	 * @return				The column's values, one per row.
+	 * @throws Exception	Throws an exception if the column index is invalid or the file cannot be mapped.
+	 */
+	public DoubleBuffer getColumn(int column)
+		throws Exception
+	{
+		if (column < 0 || column >= column_names.length)
+			throw new Exception("Column " + column + " does not exist in " + file_path + ".");
+		long offset = matrix_offset + (long) column * number_of_rows * 8L;
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, number_of_rows * 8L).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+	}
+
+
+	/**
+	 * Return the values of the given column, copied into an array.
+	 *
+	 * @param column		The index of the column to return.
+	 * @return				The column's values, one per row. Missing values are NaN.
+	 * @throws Exception	Throws an exception if the column index is invalid or the file cannot be read.
+	 */
+	public double[] getColumnValues(int column)
+		throws Exception
+	{
+		double[] values = new double[number_of_rows];
+		getColumn(column).get(values);
+		return values;
+	}
+
+
+	/**
+	 * Return the values of the given row. Since the matrix is stored by column, this is considerably slower
+	 * than reading a column, and reading whole columns is preferable when processing many rows.
+	 *
+	 * @param row			The index of the row to return.
+	 * @return				The row's values, one per column. Missing values are NaN.
+	 * @throws Exception	Throws an exception if the row index is invalid or the file cannot be read.
+	 */
+	public double[] getRow(int row)
+		throws Exception
+	{
+		if (row < 0 || row >= number_of_rows)
+			throw new Exception("Row " + row + " does not exist in " + file_path + ".");
+		double[] values = new double[column_names.length];
+		for (int col = 0; col < values.length; col++)
+		{
+			long offset = matrix_offset + ((long) col * number_of_rows + row) * 8L;
+			values[col] = readBytes(offset, 8).getDouble();
+		}
+		return values;
+	}
+
+
+	/**
+	 * Save the feature value matrix as a NumPy .npy file (format version 1.0), holding a float64 array with
+	 * one row per instance and one column per feature dimension. The array is saved in Fortran (column-major)
+	 * order, so the matrix is copied directly without transposition. Row identifiers and column names are not
+	 * saved in the .npy file.
+	 *
+	 * @param npy_save_path	The path to save the .npy file to.
+	 * @throws Exception	Throws an exception if the file cannot be written.
+	 */
+	public void exportToNpy(String npy_save_path)
+		throws Exception
+	{
+		// Prepare the header, padded with spaces so that the data begins at a multiple of 64 bytes
+		StringBuilder dictionary = new StringBuilder();
+		dictionary.append("{'descr': '<f8', 'fortran_order': True, 'shape': (")
+		          .append(number_of_rows).append(", ").append(column_names.length).append("), }");
+		int preamble_size = 6 + 2 + 2;
+		int total_header_size = ((preamble_size + dictionary.length() + 1 + 63) / 64) * 64;
+		while (preamble_size + dictionary.length() + 1 < total_header_size)
+			dictionary.append(' ');
+		dictionary.append('\n');
+		byte[] dictionary_bytes = dictionary.toString().getBytes(StandardCharsets.US_ASCII);
+
+		ByteBuffer header = ByteBuffer.allocate(preamble_size + dictionary_bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		header.put((byte) 0x93).put("NUMPY".getBytes(StandardCharsets.US_ASCII));
+		header.put((byte) 1).put((byte) 0);
+		header.putShort((short) dictionary_bytes.length);
+		header.put(dictionary_bytes);
+		header.flip();
+
+		// Write the header, followed by the matrix
+		try (FileChannel out = new RandomAccessFile(npy_save_path, "rw").getChannel())
+		{
+			out.truncate(0);
+			while (header.hasRemaining())
+				out.write(header);
+			long size = (long) number_of_rows * column_names.length * 8L;
+			long position = 0;
+			while (position < size)
+				position += channel.transferTo(matrix_offset + position, size - position, out);
+		}
+	}
+
+
+	/**
+	 * Release the file.
+	 *
+	 * @throws IOException	Throws an exception if the file cannot be closed.
+	 */
+	@Override
+	public void close()
+		throws IOException
+	{
+		channel.close();
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Read the given range of bytes from the file.
+	 *
+	 * @param position		The position of the first byte to read.
+	 * @param length		The number of bytes to read.
+	 * @return				A little-endian buffer holding the bytes, positioned at its start.
+	 * @throws Exception	Throws an exception if the bytes cannot be read.
+	 */
+	private ByteBuffer readBytes(long position, int length)
+		throws Exception
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0)
+				throw new Exception(file_path + " ends unexpectedly.");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/**
+	 * Read a string stored as an int32 byte length followed by UTF-8 bytes.
+	 *
+	 * @param buffer	The buffer to read from, positioned at the string's length.
+	 * @return			The string.
+	 */
+	private static String getString(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
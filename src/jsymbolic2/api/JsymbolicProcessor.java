@@ -2,6 +2,7 @@ package jsymbolic2.api;
 
 import java.io.File;
 import java.io.PrintStream;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
@@ -346,6 +347,64 @@ public class JsymbolicProcessor
 	}
 	
 	
+	/**
+	 * Extracts and saves features from the specified path_of_file_or_folder_to_parse in the same way as the
+	 * extractAndSaveFeaturesFromFileOrDirectory method without a listener parameter, but also passes each
+	 * file's feature values, window boundaries and any error that prevented its processing to the given
+	 * listener as soon as that file has been processed. Callers can use this to process results while the
+	 * rest of the batch is still being extracted, without having to buffer the whole batch or re-parse the
+	 * saved files.
+	 *
+	 * @param path_of_file_or_folder_to_parse	The path of a file to extract features from, or of a directory
+	 *											holding files to extract features from.
+	 * @param listener							The object to notify as each file is processed.
+	 * @return									A list of errors that may have occurred during processing.
+	 *											Will be empty if no errors occurred. Note that this often 
+	 *											simply duplicates what is written to error_print_stream.
+	 */	
+	public List<String> extractAndSaveFeaturesFromFileOrDirectory( String path_of_file_or_folder_to_parse,
+	                                                                FeatureExtractionListener listener )
+	{
+		return extractAndSaveFeaturesFromFileOrDirectory( Arrays.asList(new File(path_of_file_or_folder_to_parse)),
+		                                                  listener );
+	}
+	
+	
+	/**
+	 * Extracts and saves features from the specified paths_of_files_or_folders_to_parse in the same way as
+	 * the extractAndSaveFeaturesFromFileOrDirectory method without a listener parameter, but also passes each
+	 * file's feature values, window boundaries and any error that prevented its processing to the given
+	 * listener as soon as that file has been processed.
+	 *
+	 * @param paths_of_files_or_folders_to_parse	A list of files and folders from which features should be 
+	 *												extracted.
+	 * @param listener								The object to notify as each file is processed.
+	 * @return										A list of errors that may have occurred during processing.
+	 *												Will be empty if no errors occurred. Note that this often 
+	 *												simply duplicates what is written to error_print_stream.
+	 */	
+	public List<String> extractAndSaveFeaturesFromFileOrDirectory( List<File> paths_of_files_or_folders_to_parse,
+	                                                                FeatureExtractionListener listener )
+	{
+		return FeatureExtractionJobProcessor.extractAndSaveSpecificFeatures( paths_of_files_or_folders_to_parse,
+		                                                                     feature_values_save_path,
+		                                                                     FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(feature_values_save_path),
+		                                                                     features_to_extract,
+		                                                                     save_features_for_each_window,
+		                                                                     save_features_for_overall_pieces,
+		                                                                     analysis_window_size,
+		                                                                     analysis_window_overlap,
+		                                                                     true,
+		                                                                     save_arff_file,
+		                                                                     save_csv_file,
+		                                                                     null,
+		                                                                     status_print_stream,
+		                                                                     error_print_stream,
+		                                                                     false,
+		                                                                     listener );
+	}
+	
+	
 	/**
 	 * Extracts and saves features from the input files (MIDI or MEI) specified in the provided configuration
 	 * settings file. Carries out these operations using the settings with which this JsymbolicProcessor
@@ -543,7 +602,7 @@ public class JsymbolicProcessor
 		if (midi_or_mei_file_list != null)
 		{					
 			// The report to display
-			StringBuilder report = new StringBuilder();
+			StringWriter report = new StringWriter();
 			
 			// Report on each file
 			for (int i = 0; i < midi_or_mei_file_list.length; i++)
@@ -552,12 +611,8 @@ public class JsymbolicProcessor
 				MIDIReporter midi_debugger = new MIDIReporter(midi_or_mei_file_list[i]);
 
 				// Generate the report
-				report.append("\n============ MIDI MESSAGES REPORT FOR FILE " + (i+1) + " / " + midi_or_mei_file_list.length + " ============\n");
-				report.append(midi_debugger.prepareHeaderReport());
-				report.append(midi_debugger.prepareMetaMessageReport(true, true, true, true, true, true));
-				report.append(midi_debugger.prepareProgramChangeAndUnpitchedInstrumentsReport());
-				report.append(midi_debugger.prepareControllerMessageReport());
-				report.append(midi_debugger.prepareNoteReport(false, true));
+				report.write("\n============ MIDI MESSAGES REPORT FOR FILE " + (i+1) + " / " + midi_or_mei_file_list.length + " ============\n");
+				midi_debugger.writeMidiMessagesReport(report);
 			}
 			
 			// Return the report
@@ -1,6 +1,10 @@
 package jsymbolic2.commandline;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -9,11 +13,16 @@ import java.util.List;
 import jsymbolic2.configurationfile.txtimplementation.ValidatorConfigFileTxtImpl;
 import jsymbolic2.configurationfile.EnumSectionDividers;
 import jsymbolic2.configurationfile.ConfigFileCompleteData;
+import jsymbolic2.featureutils.FeatureExtractorAccess;
+import jsymbolic2.processing.ExtractionPhaseMonitor;
 import jsymbolic2.processing.FeatureExtractionJobProcessor;
+import jsymbolic2.processing.FeatureExtractionServer;
 import jsymbolic2.processing.MIDIReporter;
 import jsymbolic2.processing.MusicFilter;
+import jsymbolic2.processing.StreamingAceXmlConverter;
 import jsymbolic2.processing.SymbolicMusicFileUtilities;
 import jsymbolic2.processing.UserFeedbackGenerator;
+import jsymbolic2.processing.WatchedFolderExtractor;
 
 /**
  * An enumerator for parsing command line arguments and directing execution appropriately. A given enum of the
@@ -57,6 +66,17 @@ public enum CommandLineSwitchEnum
 	 */
 	CSV(SwitchCommandEnum.COMMAND_LINE, "-csv"),
 	
+	/**
+	 * A command line switch for not saving extracted feature values in ACE XML files (only in the Weka ARFF
+	 * and/or CSV files that are also specified).
+	 */
+	NO_ACE_XML(SwitchCommandEnum.COMMAND_LINE, "-noacexml"),
+
+	/**
+	 * A command line switch for periodically writing machine-readable progress reports during extraction.
+	 */
+	PROGRESS(SwitchCommandEnum.COMMAND_LINE, "-progress"),
+
 	/**
 	 * A command line switch for running the GUI using data parsed from a specified configuration file.
 	 */
@@ -91,6 +111,24 @@ public enum CommandLineSwitchEnum
 	 */
 	MIDI_DUMP(SwitchCommandEnum.MIDI_DUMP, "-mididump"),
 	
+	/**
+	 * A command line switch for converting existing ACE XML feature values files to Weka ARFF, CSV and/or
+	 * binary files without loading them fully into memory.
+	 */
+	CONVERT_ACE_XML(SwitchCommandEnum.CONVERT_ACE_XML, "-convertacexml"),
+	
+	/**
+	 * A command line switch for running a local feature extraction server that keeps jSymbolic loaded
+	 * between requests.
+	 */
+	SERVE(SwitchCommandEnum.SERVE, "-serve"),
+	
+	/**
+	 * A command line switch for watching folders and keeping saved feature values up to date as MIDI and MEI
+	 * files are added to them, modified or deleted.
+	 */
+	WATCH(SwitchCommandEnum.WATCH, "-watch"),
+	
 	/**
 	 * A command line switch for printing out valid command line usage instructions.
 	 */
@@ -104,6 +142,13 @@ public enum CommandLineSwitchEnum
 	 * The path where the default configuration file is stored.
 	 */
 	public static final String default_config_file_path = "./jSymbolicDefaultConfigs.txt";
+
+	/**
+	 * The name of the system property that, if set to true (e.g. with -Djsymbolic.reportstartuptime=true),
+	 * causes the time taken to start up and run to be reported to standard error for modes of operation that
+	 * do not extract features.
+	 */
+	public static final String report_startup_time_property = "jsymbolic.reportstartuptime";
 	
 
 	/* FIELDS ***********************************************************************************************/
@@ -167,8 +212,47 @@ public enum CommandLineSwitchEnum
 			else this_switch_to_run = NOSWITCH;
 		}
 		
+		// Monitor the phases of extraction, if requested
+		ExtractionPhaseMonitor.installFromSystemProperty(System.err);
+
 		// Run processing via the SwitchCommandEnum internal enum
+		long start_time = System.nanoTime();
 		this_switch_to_run.switch_actions.runProcessing(args);
+
+		// Report how long it took to start up and run, if requested, for modes that do not extract features
+		if (Boolean.getBoolean(report_startup_time_property) && !this_switch_to_run.extractsFeatures())
+		{
+			long processing_milliseconds = (System.nanoTime() - start_time) / 1000000;
+			long total_milliseconds = ManagementFactory.getRuntimeMXBean().getUptime();
+			UserFeedbackGenerator.printStartupTimeMessage( System.err,
+			                                               this_switch_to_run.switch_string,
+			                                               total_milliseconds - processing_milliseconds,
+			                                               processing_milliseconds );
+		}
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * @return	Whether the processing associated with this switch extracts features (or may do so, in the
+	 *			case of the GUI).
+	 */
+	private boolean extractsFeatures()
+	{
+		switch (this)
+		{
+			case VALIDATE_CONFIGURATION_ALL:
+			case VALIDATE_CONFIGURATION_FEATURE_OPTION:
+			case CONSISTENCY_CHECK:
+			case MIDI_DUMP:
+			case CONVERT_ACE_XML:
+			case HELP:
+				return false;
+			default:
+				return true;
+		}
 	}
 
 
@@ -492,14 +576,19 @@ public enum CommandLineSwitchEnum
 					                                                                                   System.err,
 					                                                                                   new ArrayList<>() );					
 					
-					// Prepare and output the reports
+					// Prepare and output the reports, writing the report on each file as soon as it is ready
 					if (midi_or_mei_file_list != null)
 					{					
-						String report = MIDIReporter.prepareConsistencyReports( midi_or_mei_file_list,
-						                                                        true,
-						                                                        true,
-						                                                        true );
-						UserFeedbackGenerator.simplePrint(System.out, report);
+						Writer report = new BufferedWriter(new OutputStreamWriter(System.out));
+						try
+						{
+							MIDIReporter.writeConsistencyReports( midi_or_mei_file_list,
+							                                      true,
+							                                      true,
+							                                      true,
+							                                      report );
+						}
+						finally { report.flush(); }
 					}
 				}			
 				// If the MIDI file is not valid
@@ -534,25 +623,29 @@ public enum CommandLineSwitchEnum
 					                                                                                   System.err,
 					                                                                                   new ArrayList<>() );					
 					
-					// Prepare and output the reports
+					// Prepare and output the reports, writing each report as it is prepared rather than holding
+					// it in memory
 					if (midi_or_mei_file_list != null)
 					{					
-						// Report on each file
-						for (int i = 0; i < midi_or_mei_file_list.length; i++)
+						Writer report = new BufferedWriter(new OutputStreamWriter(System.out));
+						try
 						{
-							// Note progress
-							UserFeedbackGenerator.simplePrint(System.out, "\n============ MIDI MESSAGES REPORT FOR FILE " + (i+1) + " / " + midi_or_mei_file_list.length + " ============\n");
-
-							// Parse and check the MIDI file
-							MIDIReporter midi_debugger = new MIDIReporter(midi_or_mei_file_list[i]);
-
-							// Output the reports
-							UserFeedbackGenerator.simplePrint(System.out, midi_debugger.prepareHeaderReport());
-							UserFeedbackGenerator.simplePrint(System.out, midi_debugger.prepareMetaMessageReport(true, true, true, true, true, true));
-							UserFeedbackGenerator.simplePrint(System.out, midi_debugger.prepareProgramChangeAndUnpitchedInstrumentsReport());
-							UserFeedbackGenerator.simplePrint(System.out, midi_debugger.prepareControllerMessageReport());
-							UserFeedbackGenerator.simplePrintln(System.out, midi_debugger.prepareNoteReport(false, true));
+							// Report on each file
+							for (int i = 0; i < midi_or_mei_file_list.length; i++)
+							{
+								// Note progress
+								report.write("\n============ MIDI MESSAGES REPORT FOR FILE " + (i+1) + " / " + midi_or_mei_file_list.length + " ============\n");
+
+								// Parse and check the MIDI file
+								MIDIReporter midi_debugger = new MIDIReporter(midi_or_mei_file_list[i]);
+
+								// Output the reports
+								midi_debugger.writeMidiMessagesReport(report);
+								report.write(System.lineSeparator());
+								report.flush();
+							}
 						}
+						finally { report.flush(); }
 					}
 				}			
 				// If the MIDI file is not valid
@@ -560,6 +653,209 @@ public enum CommandLineSwitchEnum
 			}
 		},
 		
+		CONVERT_ACE_XML
+		{
+			/**
+			 * Convert the ACE XML feature values files referred to in args (files, or directories that are
+			 * searched recursively for .xml files other than feature definitions and class labels files) to
+			 * Weka ARFF, CSV and/or binary feature values files saved alongside them. The files are streamed
+			 * rather than loaded into memory, and several files are converted concurrently. The -arff, -csv,
+			 * -binary and -classlabels options may precede the paths; if none of -arff, -csv or -binary is
+			 * specified, then ARFF and CSV files are saved.
+			 * 
+			 * @param args	Arguments with which jSymbolic was run at the command line.
+			 */
+			@Override
+			public void runProcessing(String[] args)
+			{
+				// Parse the options
+				boolean save_arff = false;
+				boolean save_csv = false;
+				boolean save_binary = false;
+				boolean save_class_labels = false;
+				int first_path_index = 1;
+				for ( ; first_path_index < args.length; first_path_index++)
+				{
+					String option = args[first_path_index];
+					if (option.equals("-arff")) save_arff = true;
+					else if (option.equals("-csv")) save_csv = true;
+					else if (option.equals("-binary")) save_binary = true;
+					else if (option.equals("-classlabels")) save_class_labels = true;
+					else break;
+				}
+				if (first_path_index == args.length)
+					UserFeedbackGenerator.indicateIncorrectCommandLineArgumentsAndEndExecution(System.err, args);
+				if (!save_arff && !save_csv && !save_binary)
+				{
+					save_arff = true;
+					save_csv = true;
+				}
+
+				// Find the files to convert
+				List<String> error_log = new ArrayList<>();
+				List<String> files_to_convert = new ArrayList<>();
+				for (int i = first_path_index; i < args.length; i++)
+				{
+					File[] files = SymbolicMusicFileUtilities.getRecursiveListOfFiles( args[i],
+					                                                                   StreamingAceXmlConverter::isFeatureValuesFileName,
+					                                                                   System.err,
+					                                                                   error_log );
+					if (files != null)
+						for (File file : files)
+							files_to_convert.add(file.getPath());
+				}
+
+				// Convert the files
+				try
+				{
+					int number_converted = StreamingAceXmlConverter.convertFiles( files_to_convert,
+					                                                              save_arff,
+					                                                              save_csv,
+					                                                              save_binary,
+					                                                              save_class_labels,
+					                                                              0,
+					                                                              System.out,
+					                                                              System.err,
+					                                                              error_log );
+					UserFeedbackGenerator.simplePrintln(System.out, "\nConverted " + number_converted + " of " + files_to_convert.size() + " ACE XML feature values files.\n");
+					UserFeedbackGenerator.printErrorSummary(System.err, error_log, false);
+				}
+				catch (Exception e) { UserFeedbackGenerator.printExceptionErrorMessage(System.err, e); }
+			}
+		},
+		
+		SERVE
+		{
+			/**
+			 * Start a FeatureExtractionServer on the local port specified in args, optionally followed by the
+			 * maximum number of requests to process at a time and the maximum number of requests that can wait
+			 * to be processed. The server runs until jSymbolic is terminated.
+			 * 
+			 * @param args	Arguments with which jSymbolic was run at the command line.
+			 */
+			@Override
+			public void runProcessing(String[] args)
+			{
+				if (args.length < 2 || args.length > 4)
+					UserFeedbackGenerator.indicateIncorrectCommandLineArgumentsAndEndExecution(System.err, args);
+				int port = 0;
+				int max_concurrent_requests = 0;
+				int max_queued_requests = -1;
+				try
+				{
+					port = Integer.parseInt(args[1]);
+					if (args.length > 2)
+						max_concurrent_requests = Integer.parseInt(args[2]);
+					if (args.length > 3)
+						max_queued_requests = Integer.parseInt(args[3]);
+				}
+				catch (NumberFormatException e)
+				{
+					UserFeedbackGenerator.indicateIncorrectCommandLineArgumentsAndEndExecution(System.err, args);
+				}
+
+				FeatureExtractionServer server = new FeatureExtractionServer( port,
+				                                                              max_concurrent_requests,
+				                                                              max_queued_requests,
+				                                                              System.out,
+				                                                              System.err );
+				try
+				{
+					server.start();
+					Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(5)));
+				}
+				catch (Exception e) { UserFeedbackGenerator.printExceptionErrorMessage(System.err, e); }
+			}
+		},
+		
+		WATCH
+		{
+			/**
+			 * Watch the folders referred to in args, extracting features from MIDI and MEI files as they are
+			 * added or modified, and keeping the ACE XML feature values file whose path is the last argument
+			 * (and, if the -arff, -csv or -binary options precede the folders, the matching ARFF, CSV and/or
+			 * binary files) up to date. The -noacexml option omits the ACE XML files, and -poll followed by a
+			 * number of seconds rescans the folders at that interval rather than relying on the file system to
+			 * report changes. The features to extract are loaded from the default configuration file if there
+			 * is a valid one, and are the default features otherwise. Runs until jSymbolic is terminated.
+			 * 
+			 * @param args	Arguments with which jSymbolic was run at the command line.
+			 */
+			@Override
+			public void runProcessing(String[] args)
+			{
+				// Parse the options
+				boolean save_ace_xml = true;
+				boolean save_arff = false;
+				boolean save_csv = false;
+				boolean save_binary = false;
+				long poll_interval_milliseconds = 0;
+				int first_path_index = 1;
+				try
+				{
+					for ( ; first_path_index < args.length; first_path_index++)
+					{
+						String option = args[first_path_index];
+						if (option.equalsIgnoreCase("-arff")) save_arff = true;
+						else if (option.equalsIgnoreCase("-csv")) save_csv = true;
+						else if (option.equalsIgnoreCase("-binary")) save_binary = true;
+						else if (option.equalsIgnoreCase("-noacexml")) save_ace_xml = false;
+						else if (option.equalsIgnoreCase("-poll") && first_path_index + 1 < args.length)
+							poll_interval_milliseconds = Math.max(1, Math.round(Double.parseDouble(args[++first_path_index]) * 1000.0));
+						else break;
+					}
+				}
+				catch (NumberFormatException e)
+				{
+					UserFeedbackGenerator.indicateIncorrectCommandLineArgumentsAndEndExecution(System.err, args);
+				}
+				if (args.length - first_path_index < 2)
+					UserFeedbackGenerator.indicateIncorrectCommandLineArgumentsAndEndExecution(System.err, args);
+				List<File> folders = new ArrayList<>();
+				for (int i = first_path_index; i < args.length - 1; i++)
+					folders.add(new File(args[i]));
+				String feature_values_save_path = args[args.length - 1];
+
+				// Find the features to extract
+				boolean[] features_to_extract = null;
+				if (Files.exists(Paths.get(default_config_file_path)))
+				{
+					try
+					{
+						List<EnumSectionDividers> config_file_headers_to_check = Arrays.asList(EnumSectionDividers.FEATURE_HEADER, EnumSectionDividers.OPTIONS_HEADER);
+						UserFeedbackGenerator.printParsingConfigFileMessage(System.out, default_config_file_path);
+						features_to_extract = new ValidatorConfigFileTxtImpl().parseConfigFile(default_config_file_path, config_file_headers_to_check, System.err).getFeaturesToSaveBoolean();
+					}
+					catch (Exception e) { features_to_extract = null; }
+				}
+				if (features_to_extract == null)
+					features_to_extract = FeatureExtractorAccess.getDefaultFeaturesToSave();
+
+				// Watch the folders
+				try
+				{
+					WatchedFolderExtractor watcher = new WatchedFolderExtractor( folders,
+					                                                             feature_values_save_path,
+					                                                             FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(feature_values_save_path),
+					                                                             features_to_extract,
+					                                                             false,
+					                                                             true,
+					                                                             0.0,
+					                                                             0.0,
+					                                                             save_ace_xml,
+					                                                             save_arff,
+					                                                             save_csv,
+					                                                             save_binary,
+					                                                             2000,
+					                                                             poll_interval_milliseconds,
+					                                                             System.out,
+					                                                             System.err );
+					watcher.run();
+				}
+				catch (Exception e) { UserFeedbackGenerator.printExceptionErrorMessage(System.err, e); }
+			}
+		},
+		
 		HELP
 		{
 			/**
@@ -1,11 +1,17 @@
 package jsymbolic2.commandline;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import jsymbolic2.featureutils.FeatureExtractorAccess;
+import jsymbolic2.featureutils.TickChart;
+import jsymbolic2.processing.ExtractionPhaseMonitor;
+import jsymbolic2.processing.ExtractionProgressReporter;
 import jsymbolic2.processing.FeatureExtractionJobProcessor;
+import jsymbolic2.processing.MIDIFeatureProcessor;
 import jsymbolic2.processing.UserFeedbackGenerator;
 
 /**
@@ -40,87 +46,70 @@ public final class CommandLineUtilities
 		// To hold feature extraction settings
 		boolean convert_to_arff = false;
 		boolean convert_to_csv = false;
+		boolean save_binary = false;
+		boolean save_ace_xml = true;
 		PrintStream status_print_stream = System.out;
 		PrintStream error_print_stream = System.err;
 
 		// Define search patterns for parsing command line arguments
 		final String window_size_pattern = "\\d*.?\\d*";
 		final String window_offset_pattern = "0?.\\d*";
+
+		// The number of milliseconds between progress reports
+		final long progress_report_interval = 1000;
 		
 		// Define flags
 		final String arff_flag = "-arff";
 		final String csv_flag = "-csv";
+		final String binary_flag = "-binary";
+		final String no_ace_xml_flag = "-noacexml";
+		final String progress_flag = "-progress";
 		final String window_flag = "-window";
-		
-		// Find out if CSV and/or ARFF files should be generated. Create reduced_args to hold the command line
-		// arguments with CSV or ARFF flags, if any, removed.
-		String[] reduced_args = new String[args.length];
-		for (int i = 0; i < reduced_args.length; i++)
-			reduced_args[i] = args[i];
-		if (args.length > 2)
-		{
-			if ( args[0].equalsIgnoreCase(csv_flag) ||
-			     args[0].equalsIgnoreCase(arff_flag) ||
-			     args[1].equalsIgnoreCase(csv_flag) ||
-			     args[1].equalsIgnoreCase(arff_flag)) 
-			{
-				if (args[0].equalsIgnoreCase(csv_flag) || args[1].equalsIgnoreCase(csv_flag))
-					convert_to_csv = true;
-				if (args[0].equalsIgnoreCase(arff_flag) || args[1].equalsIgnoreCase(arff_flag))
-					convert_to_arff = true;
 
-				List<String> reduced_args_list = new ArrayList<>();
-				for (String arg : args)
-					if (!arg.equalsIgnoreCase(csv_flag) && !arg.equalsIgnoreCase(arff_flag))
-						reduced_args_list.add(arg);
-				reduced_args = reduced_args_list.toArray(new String[0]);
-			}
+		// Find out if CSV, ARFF and/or binary files should be generated, if ACE XML files should be omitted
+		// and if progress reports should be written. Create reduced_args to hold the command line arguments
+		// with these leading flags, if any, removed.
+		String progress_path = null;
+		int number_output_flags = 0;
+		while (number_output_flags < args.length)
+		{
+			String arg = args[number_output_flags];
+			if (arg.equalsIgnoreCase(csv_flag))
+				convert_to_csv = true;
+			else if (arg.equalsIgnoreCase(arff_flag))
+				convert_to_arff = true;
+			else if (arg.equalsIgnoreCase(binary_flag))
+				save_binary = true;
+			else if (arg.equalsIgnoreCase(no_ace_xml_flag))
+				save_ace_xml = false;
+			else if (arg.equalsIgnoreCase(progress_flag) && progress_path == null && number_output_flags + 1 < args.length)
+				progress_path = args[++number_output_flags];
+			else break;
+			number_output_flags++;
 		}
+		String[] reduced_args = Arrays.copyOfRange(args, number_output_flags, args.length);
+
+		// Default features are extracted if no features were specified
+		if (features_to_extract == null)
+			features_to_extract = FeatureExtractorAccess.getDefaultFeaturesToSave();
+
+		// Parse the remaining arguments
+		String input_file_path;
+		String ace_xml_feature_values_file_path;
+		boolean save_features_for_each_window;
+		boolean save_overall_recording_features;
+		double window_size;
+		double window_overlap;
 
 		// If there are a proper number of command line arguments for the no windowing case
 		if (reduced_args.length == 2)
 		{
-			String input_file_path = reduced_args[0];
-			String ace_xml_feature_values_file_path = reduced_args[1];
-			boolean save_features_for_each_window = false;
-			boolean save_overall_recording_features = true;
-			double window_size = 0.0;
-			double window_overlap = 0.0;
-			
-			// Extract default features
-			if (features_to_extract == null)
-			{
-				FeatureExtractionJobProcessor.extractAndSaveDefaultFeatures( input_file_path,
-																			 ace_xml_feature_values_file_path,
-																			 FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(ace_xml_feature_values_file_path),
-																			 save_features_for_each_window,
-																			 save_overall_recording_features,
-																			 window_size,
-																			 window_overlap,
-																			 convert_to_arff,
-																			 convert_to_csv,
-																			 status_print_stream,
-																			 error_print_stream,
-																			 false );
-			}
-
-			// Extract features specified in config file
-			else
-			{
-				FeatureExtractionJobProcessor.extractAndSaveSpecificFeatures( Arrays.asList(new File(input_file_path)),
-																			  ace_xml_feature_values_file_path,
-																			  FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(ace_xml_feature_values_file_path),
-																			  features_to_extract,
-																			  save_features_for_each_window,
-																			  save_overall_recording_features,
-																			  window_size,
-																			  window_overlap,
-																			  convert_to_arff,
-																			  convert_to_csv,
-																			  status_print_stream,
-																			  error_print_stream,
-																			  false );			
-			}
+			input_file_path = reduced_args[0];
+			ace_xml_feature_values_file_path = reduced_args[1];
+			save_features_for_each_window = false;
+			save_overall_recording_features = true;
+			window_size = 0.0;
+			window_overlap = 0.0;
 		}
 		
 		// If there are a proper number of command line arguments for the windowing case
@@ -128,51 +117,68 @@ public final class CommandLineUtilities
 			      reduced_args[3].matches(window_size_pattern) &&
 			      reduced_args[4].matches(window_offset_pattern) )
 		{
-			String input_file_path = reduced_args[1];
-			String ace_xml_feature_values_file_path = reduced_args[2];
-			boolean save_features_for_each_window = true;
-			boolean save_overall_recording_features = false;
-			double window_size = Double.parseDouble(reduced_args[3]);
-			double window_overlap = Double.parseDouble(reduced_args[4]);
-
-			// Extract default features
-			if (features_to_extract == null)
-			{
-				FeatureExtractionJobProcessor.extractAndSaveDefaultFeatures( input_file_path,
-																			 ace_xml_feature_values_file_path,
-																			 FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(ace_xml_feature_values_file_path),
-																			 save_features_for_each_window,
-																			 save_overall_recording_features,
-																			 window_size,
-																			 window_overlap,
-																			 convert_to_arff,
-																			 convert_to_csv,
-																			 status_print_stream,
-																			 error_print_stream,
-																			 false );
-			}
+			input_file_path = reduced_args[1];
+			ace_xml_feature_values_file_path = reduced_args[2];
+			save_features_for_each_window = true;
+			save_overall_recording_features = false;
+			window_size = Double.parseDouble(reduced_args[3]);
+			window_overlap = Double.parseDouble(reduced_args[4]);
+		} 
+			
+		// Indicate invalid command line arguments
+		else
+		{
+			UserFeedbackGenerator.indicateIncorrectCommandLineArgumentsAndEndExecution(System.err, args);
+			return;
+		}
 
-			// Extract features specified in config file
+		// Prepare to write progress reports, if requested
+		PrintStream progress_print_stream = null;
+		ExtractionProgressReporter progress_reporter = null;
+		if (progress_path != null)
+		{
+			if (progress_path.equals("-"))
+				progress_print_stream = System.err;
 			else
 			{
-				FeatureExtractionJobProcessor.extractAndSaveSpecificFeatures( Arrays.asList(new File(input_file_path)),
-																			  ace_xml_feature_values_file_path,
-																			  FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(ace_xml_feature_values_file_path),
-																			  features_to_extract,
-																			  save_features_for_each_window,
-																			  save_overall_recording_features,
-																			  window_size,
-																			  window_overlap,
-																			  convert_to_arff,
-																			  convert_to_csv,
-																			  status_print_stream,
-																			  error_print_stream,
-																			  false );			
+				try { progress_print_stream = new PrintStream(new FileOutputStream(progress_path), true, "UTF-8"); }
+				catch (Exception e)
+				{
+					UserFeedbackGenerator.printErrorMessage(error_print_stream, "Could not open " + progress_path + " to write progress reports to: " + e.getMessage());
+					return;
+				}
 			}
-		} 
-			
-		// Indicate invalid command line arguments
-		else UserFeedbackGenerator.indicateIncorrectCommandLineArgumentsAndEndExecution(System.err, args);
+			progress_reporter = new ExtractionProgressReporter(progress_print_stream, progress_report_interval);
+			progress_reporter.start();
+		}
+
+		// Extract and save features
+		try
+		{
+			FeatureExtractionJobProcessor.extractAndSaveSpecificFeatures( Arrays.asList(new File(input_file_path)),
+			                                                              ace_xml_feature_values_file_path,
+			                                                              FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(ace_xml_feature_values_file_path),
+			                                                              features_to_extract,
+			                                                              save_features_for_each_window,
+			                                                              save_overall_recording_features,
+			                                                              window_size,
+			                                                              window_overlap,
+			                                                              save_ace_xml,
+			                                                              convert_to_arff,
+			                                                              convert_to_csv,
+			                                                              save_binary ? FeatureExtractionJobProcessor.getMatchingBinarySavePath(ace_xml_feature_values_file_path) : null,
+			                                                              status_print_stream,
+			                                                              error_print_stream,
+			                                                              false,
+			                                                              progress_reporter );
+		}
+		finally
+		{
+			if (progress_reporter != null)
+				progress_reporter.stop();
+			if (progress_print_stream != null && progress_print_stream != System.err)
+				progress_print_stream.close();
+		}
 	}
 
 
@@ -187,9 +193,9 @@ public final class CommandLineUtilities
 		return "\nProper usage of jSymbolic via the command line requires one of the following command line argument configurations (see the manual for more details):\n\n"
 				+ "1) No arguments (automaticallys run the GUI under default settings)\n"
 				+ "2) <SymbolicMusicFileOrDirectoryInputPath> <AceXmlFeatureValuesOutputPath>\n"
-				+ "\t-arff and/or -csv can be optionally be added before the above arguments.\n"
+				+ "\t-arff, -csv and/or -binary can be optionally be added before the above arguments. -noacexml can also be added to save only the ARFF, CSV and/or binary files, and -progress <ProgressOutputPath> to write progress reports.\n"
 				+ "3) -window <SymbolicMusicFileInputPath> <AceXmlFeatureValuesOutputPath> <WindowLength> <WindowOverlapFraction>\n"
-				+ "\t-arff and/or -csv can be optionally be added before the above arguments.\n"
+				+ "\t-arff, -csv and/or -binary can be optionally be added before the above arguments. -noacexml can also be added to save only the ARFF, CSV and/or binary files, and -progress <ProgressOutputPath> to write progress reports.\n"
 				+ "4) -configrun <ConfigurationFilePath>\n"
 				+ "5) -configrun <ConfigurationFilePath> <SymbolicMusicFileInputPath> <AceXmlFeatureValuesOutputPath>\n"
 				+ "6) -configgui <ConfigurationFilePath>\n"
@@ -197,14 +203,30 @@ public final class CommandLineUtilities
 				+ "8) -validateconfigfeatureoption <ConfigurationFilePath>\n"
 				+ "9) -consistencycheck <MidiFileOrMeiFileOrDirectoryPath>\n"
 				+ "10) -mididump <MidiFileOrMeiFileOrDirectoryPath>\n"
-				+ "11) -help\n\n"
+				+ "11) -convertacexml <AceXmlFeatureValuesFileOrDirectoryPath> ...\n"
+				+ "\t-arff, -csv, -binary and/or -classlabels can optionally be added before the paths. If none of -arff, -csv or -binary is specified, then ARFF and CSV files are saved.\n"
+				+ "12) -serve <Port> [<MaxConcurrentRequests> [<MaxQueuedRequests>]]\n"
+				+ "13) -watch <SymbolicMusicFolderPath> ... <AceXmlFeatureValuesOutputPath>\n"
+				+ "\t-arff, -csv and/or -binary can optionally be added before the paths. -noacexml can also be added to save only the ARFF, CSV and/or binary files, and -poll <PollSeconds> to check the folders for changes every PollSeconds seconds rather than being notified of them by the file system.\n"
+				+ "14) -help\n\n"
 				+ "Command line variable descriptions:\n"
 				+ "* SymbolicMusicFileOrDirectoryInputPath: The file path of the MIDI or MEI file from which features are to be extracted. May alternatively be a directory holding one or more such files (sub-folders are searched recursively, and files must have qualifying MIDI or MEI extensions to be included).\n"
-				+ "* AceXmlFeatureValuesOutputPath: The path of the ACE XML file to which extracted feature values will be saved.\n"
+				+ "* AceXmlFeatureValuesOutputPath: The path of the ACE XML file to which extracted feature values will be saved. Any ARFF, CSV or binary (.fvbin) files are saved to the same path, with the extension changed. If -noacexml is specified then this ACE XML file (and the matching feature definitions file) is not saved.\n"
+				+ "* ProgressOutputPath: The path of a file to which a progress report is written every second during extraction, as one JSON object per line, holding the numbers of files completed, failed and in progress, throughput, latency percentiles, heap use and the estimated time remaining. A final report has \"final\": true. Specify - to write the reports to standard error.\n"
 				+ "* WindowLength: The duration in seconds of windows to be used during windowed feature extraction.\n"
 				+ "* WindowOverlapFraction: A value between 0 and 1 specifying the fractional overlap between consecutive windows.\n"
 				+ "* ConfigurationFilePath: The path of a configuration file to load jSymbolic settings from.\n"
-				+ "* MidiOrMeiOrDirectoryPath: The path of a MIDI or MEI file to parse and report on. May alternatively be a directory holding one or more such files (sub-folders are searched recursively, and files must have qualifying MIDI or MEI extensions to be included). MEI files are converted to MIDI as part of this process.\n\n"
-				+ "NOTE: All specified file paths must either be absolute or relative to the directory holding jSymbolic2.jar.\n\n";
+				+ "* MidiOrMeiOrDirectoryPath: The path of a MIDI or MEI file to parse and report on. May alternatively be a directory holding one or more such files (sub-folders are searched recursively, and files must have qualifying MIDI or MEI extensions to be included). MEI files are converted to MIDI as part of this process.\n"
+				+ "* AceXmlFeatureValuesFileOrDirectoryPath: The path of an ACE XML feature values file to convert to ARFF and/or CSV. May alternatively be a directory, which is searched recursively for .xml files (files ending in _FeatDefs.xml or _ClassLabels.xml are skipped). Converted files (ARFF, CSV or .fvbin) are saved alongside the originals, with the extension changed, and a matching _FeatDefs.xml file is used to order the columns if one exists.\n"
+				+ "* Port: The local port on which the feature extraction server listens for requests (0 chooses a free port). The server only accepts connections from this computer. Features are extracted by POSTing to /extract?path=<MidiOrMeiFilePath>, or by POSTing a MIDI or MEI file as the request body to /extract, optionally with features=<CommaSeparatedFeatureNames>, window=<WindowLength>, overlap=<WindowOverlapFraction> and format=json or format=binary. GET /features lists all features, and GET /status reports on requests.\n"
+				+ "* MaxConcurrentRequests: The maximum number of files that the server extracts features from at a time. Defaults to the number of available processors.\n"
+				+ "* MaxQueuedRequests: The maximum number of further requests that the server holds waiting. Further requests are refused with HTTP status 503 until the server catches up. Defaults to four times MaxConcurrentRequests.\n"
+				+ "* SymbolicMusicFolderPath: A folder (including its sub-folders) to watch for new, modified and deleted MIDI and MEI files. Features are extracted from the files already in it, and then from each file that is added or modified once it has not changed for two seconds, and the saved files are updated each time. Runs until stopped with Ctrl-C.\n"
+				+ "* PollSeconds: The number of seconds between checks of watched folders for changes. Polling is also used automatically if the file system cannot report changes.\n\n"
+				+ "NOTE: All specified file paths must either be absolute or relative to the directory holding jSymbolic2.jar.\n\n"
+				+ "NOTE: Running java with -D" + CommandLineSwitchEnum.report_startup_time_property + "=true reports how long jSymbolic took to start up and run to standard error when using -validateconfigallheaders, -validateconfigfeatureoption, -consistencycheck, -mididump, -convertacexml or -help.\n\n"
+				+ "NOTE: Running java with -D" + ExtractionPhaseMonitor.phase_monitor_property + "=jfr records the time spent parsing each file, in each intermediate representation pass, extracting each feature and writing output as JDK Flight Recorder events (Java 11 or later), for viewing in a recording made with -XX:StartFlightRecording. Setting it to summary instead prints a table of the total time spent in each of these phases to standard error when jSymbolic exits.\n\n"
+				+ "NOTE: Running java with -D" + MIDIFeatureProcessor.analysis_resolution_property + "=48 (or another number of ticks per quarter note, such as 96) analyzes MIDI files encoded at a higher resolution (e.g. 960 or 1920 PPQ) at this resolution instead, which makes feature extraction from them much faster and less memory-intensive. Notated rhythms are kept exactly, but expressive timing finer than this resolution is lost, which slightly changes timing-based features, and can considerably change features based on simultaneous attacks or brief note overlaps in performed MIDI files.\n\n"
+				+ "NOTE: Running java with -D" + TickChart.off_heap_threshold_property + "=256 (or another number of megabytes) stores the tick-by-tick pitch charts of any MIDI file that would need more than this much memory for them in memory-mapped temporary files rather than in the Java heap, so that very long or very high-resolution MIDI files can be processed without running out of memory. By default, this is done for charts that would take more than a quarter of the maximum heap size.\n\n";
 	}
 }
\ No newline at end of file
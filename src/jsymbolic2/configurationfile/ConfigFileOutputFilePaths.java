@@ -7,7 +7,7 @@ package jsymbolic2.configurationfile;
  */
 public class ConfigFileOutputFilePaths
 {
-	/* FIELD ************************************************************************************************/
+	/* FIELDS ***********************************************************************************************/
 
 	
 	/**
@@ -15,6 +15,12 @@ public class ConfigFileOutputFilePaths
 	 */
 	private final String feature_values_save_path;
 
+	/**
+	 * The path to save feature values to in the form of a binary feature values file. Null if no binary file
+	 * is to be saved.
+	 */
+	private final String binary_feature_values_save_path;
+
 	
 	/* CONSTRUCTOR ******************************************************************************************/
 
@@ -26,8 +32,25 @@ public class ConfigFileOutputFilePaths
 	 *									values file.
 	 */
 	public ConfigFileOutputFilePaths(String feature_values_save_path)
+	{
+		this(feature_values_save_path, null);
+	}
+
+
+	/**
+	 * Instantiate an object holding the specified feature_values_save_path and
+	 * binary_feature_values_save_path.
+	 * 
+	 * @param feature_values_save_path			The path to save feature values to in the form of an ACE XML
+	 *											feature values file.
+	 * @param binary_feature_values_save_path	The path to save feature values to in the form of a binary
+	 *											feature values file. May be null if no binary file is to be
+	 *											saved.
+	 */
+	public ConfigFileOutputFilePaths(String feature_values_save_path, String binary_feature_values_save_path)
 	{
 		this.feature_values_save_path = feature_values_save_path;
+		this.binary_feature_values_save_path = binary_feature_values_save_path;
 	}
 
 	
@@ -44,6 +67,18 @@ public class ConfigFileOutputFilePaths
 		return feature_values_save_path;
 	}
 
+
+	/**
+	 * Get the stored path to save feature values to in the form of a binary feature values file.
+	 * 
+	 * @return The stored path to save feature values to in the form of a binary feature values file. Null if
+	 *		   no binary file is to be saved.
+	 */
+	public String getBinaryFeatureValuesSavePath()
+	{
+		return binary_feature_values_save_path;
+	}
+
 	
 	/**
 	 * Test if this object is equal to the specified object_to_test.
@@ -60,7 +95,9 @@ public class ConfigFileOutputFilePaths
 			return false;
 
 		ConfigFileOutputFilePaths that = (ConfigFileOutputFilePaths) object_to_test;
-		return feature_values_save_path != null ? feature_values_save_path.equals(that.feature_values_save_path) : that.feature_values_save_path == null;
+		if (feature_values_save_path != null ? !feature_values_save_path.equals(that.feature_values_save_path) : that.feature_values_save_path != null)
+			return false;
+		return binary_feature_values_save_path != null ? binary_feature_values_save_path.equals(that.binary_feature_values_save_path) : that.binary_feature_values_save_path == null;
 	}
 
 	
@@ -73,6 +110,6 @@ public class ConfigFileOutputFilePaths
 	public int hashCode()
 	{
 		int result = feature_values_save_path != null ? feature_values_save_path.hashCode() : 0;
-		return 31 * result;
+		return 31 * result + (binary_feature_values_save_path != null ? binary_feature_values_save_path.hashCode() : 0);
 	}
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package jsymbolic2.configurationfile;
 
 /**
- * An enumeration of types of output file paths associated with a jSymbolic configuration file.
+ * An enumeration of types of output file paths associated with a jSymbolic configuration file. The
+ * feature_values_save_path is required, and binary_feature_values_save_path is optional (if it is present,
+ * feature values are also saved as a binary feature values file at the given path).
  *
  * @author Tristano Tenaglia and McKay
  */
-public enum EnumOutputFileTypes {feature_values_save_path;}
+public enum EnumOutputFileTypes {feature_values_save_path, binary_feature_values_save_path;}
@@ -259,9 +259,10 @@ public class ValidatorConfigFileTxtImpl
 
 	/**
 	 * Checks for invalid output files in the given configuration file. This needs to be of the precise format
-	 * &lt;output_files&gt; header with 2 fields below it. These 2 fields need to be in the format 
-	 * feature_values_save_path=test_value.xml and the specified files need to exist and be accessible in the
-	 * local system. Anything else will result in a thrown exception.
+	 * &lt;output_files&gt; header with 1 or 2 fields below it. These fields need to be in the format 
+	 * feature_values_save_path=test_value.xml and, optionally, binary_feature_values_save_path=test_value.fvbin,
+	 * and the specified files need to exist and be accessible in the local system. Anything else will result
+	 * in a thrown exception.
 	 *
 	 * @param rawConfigFile The raw line by line configuration file that needs to be validated.
 	 * @return A List of the valid files. Index 1 would contain feature value save path and index 2 would
@@ -273,20 +274,26 @@ public class ValidatorConfigFileTxtImpl
 	{
 		String outputHeader = EnumSectionDividers.OUTPUT_FILES_HEADER.toString();
 		String valueSavePath = EnumOutputFileTypes.feature_values_save_path.name();
+		String binarySavePath = EnumOutputFileTypes.binary_feature_values_save_path.name();
 
 		int currentHeaderIndex = rawConfigFile.indexOf(outputHeader);
 		int nextHeaderIndex = nextHeaderIndex(rawConfigFile, outputHeader);
 
 		List<String> outputFileList = rawConfigFile.subList(currentHeaderIndex + 1, nextHeaderIndex);
-		if (outputFileList.size() != EnumOutputFileTypes.values().length)
+		if (outputFileList.isEmpty() || outputFileList.size() > EnumOutputFileTypes.values().length)
 		{
 			throw new Exception("Missing output files. Need to include line of the form feature_value_save_path=example.xml under the header" + outputHeader);
 		}
 
 		String featureValuesSavePath = "";
+		String binaryValuesSavePath = null;
 		for (String output : outputFileList)
-			if (output.contains(valueSavePath))
+		{
+			if (output.startsWith(binarySavePath))
+				binaryValuesSavePath = output;
+			else if (output.contains(valueSavePath))
 				featureValuesSavePath = output;
+		}
 
 		String[] valuesArray = featureValuesSavePath.split("=");
 		if (valuesArray.length != 2)
@@ -314,7 +321,26 @@ public class ValidatorConfigFileTxtImpl
 
 		//Check and correct that the extension is in fact xml
 		valuesValue = StringMethods.correctExtension(valuesValue, "xml");
-		ConfigFileOutputFilePaths outputFile = new ConfigFileOutputFilePaths(valuesValue);
+
+		//Check the optional binary feature values save path in the same way
+		String binaryValue = null;
+		if (binaryValuesSavePath != null)
+		{
+			String[] binaryArray = binaryValuesSavePath.split("=");
+			if (binaryArray.length != 2 || !binaryArray[0].equals(binarySavePath))
+			{
+				throw new Exception("Configuration file for jSymbolic " + config_file.getName()
+						+ " has an invalid binary feature value format. Need to have "
+						+ "binary_feature_values_save_path=example.fvbin");
+			}
+			binaryValue = binaryArray[1];
+			if (!FileMethods.pathExists(binaryValue))
+			{
+				throw new Exception("Binary feature value save path " + binaryValue + " is not a valid path in configuration file "
+						+ config_file.getName());
+			}
+		}
+		ConfigFileOutputFilePaths outputFile = new ConfigFileOutputFilePaths(valuesValue, binaryValue);
 		return outputFile;
 	}
 
@@ -108,6 +108,10 @@ public class WriterConfigFileTxtImpl extends WriterConfigFile {
                 EnumOutputFileTypes.feature_values_save_path.name() + EnumFieldValueDelimiter.EQUAL + featureValue;
         rawConfigFile.add(formattedValue);
 
+        String binaryValue = outputFiles.getBinaryFeatureValuesSavePath();
+        if (binaryValue != null)
+            rawConfigFile.add(EnumOutputFileTypes.binary_feature_values_save_path.name() + EnumFieldValueDelimiter.EQUAL + binaryValue);
+
         return rawConfigFile;
     }
 }
@@ -1,8 +1,8 @@
 package jsymbolic2.features.melodicintervals;
 
-import java.util.LinkedList;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
@@ -65,19 +65,16 @@ public class AverageLengthOfMelodicArcsFeature
 			int total_number_intervening_intervals = 0;
 			int number_arcs = 0;
 			
-			for (int track = 0; track < sequence_info.melodic_intervals_by_track_and_channel.size(); track++)
+			for (int track = 0; track < sequence_info.melodic_interval_sequences_by_track_and_channel.length; track++)
 			{
-				LinkedList<Integer>[] melodic_intervals_by_channel = sequence_info.melodic_intervals_by_track_and_channel.get(track);
+				IntArrayList[] melodic_intervals_by_channel = sequence_info.melodic_interval_sequences_by_track_and_channel[track];
 			
 				for (int chan = 0; chan < melodic_intervals_by_channel.length; chan++)
 				{
 					if (chan != (10 - 1))
 					{
 						// Convert list of melodic intervals in this channel to an array
-						Object[] list_contents = melodic_intervals_by_channel[chan].toArray();
-						int[] intervals = new int[list_contents.length];
-						for (int i = 0; i < intervals.length; i++)
-							intervals[i] = ((Integer) list_contents[i]).intValue();
+						int[] intervals = melodic_intervals_by_channel[chan].toArray();
 
 						// Find the number of arcs
 						int direction = 0;
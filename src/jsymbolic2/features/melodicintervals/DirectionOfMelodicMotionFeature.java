@@ -1,8 +1,8 @@
 package jsymbolic2.features.melodicintervals;
 
-import java.util.LinkedList;;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
@@ -63,19 +63,16 @@ public class DirectionOfMelodicMotionFeature
 		{
 			int ups = 0;
 			int downs = 0;
-			for (int track = 0; track < sequence_info.melodic_intervals_by_track_and_channel.size(); track++)
+			for (int track = 0; track < sequence_info.melodic_interval_sequences_by_track_and_channel.length; track++)
 			{
-				LinkedList<Integer>[] melodic_intervals_by_channel = sequence_info.melodic_intervals_by_track_and_channel.get(track);
+				IntArrayList[] melodic_intervals_by_channel = sequence_info.melodic_interval_sequences_by_track_and_channel[track];
 				
 				for (int chan = 0; chan < melodic_intervals_by_channel.length; chan++)
 				{
 					if (chan != (10 - 1)) // Note Channel 10 unpitched instruments
 					{
 						// Convert to array
-						Object[] list_contents = melodic_intervals_by_channel[chan].toArray();
-						int[] intervals = new int[list_contents.length];
-						for (int i = 0; i < intervals.length; i++)
-							intervals[i] = ((Integer) list_contents[i]).intValue();
+						int[] intervals = melodic_intervals_by_channel[chan].toArray();
 
 						// Find amount of upper and downward motion
 						for (int i = 0; i < intervals.length; i++)
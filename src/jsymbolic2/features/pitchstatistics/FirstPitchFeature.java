@@ -62,8 +62,8 @@ public class FirstPitchFeature
 		if (sequence_info != null)
 		{
 			int lowest_first_pitch = 0;
-			if (sequence_info.pitches_present_by_tick_excluding_rests.length > 0)
-				lowest_first_pitch = sequence_info.pitches_present_by_tick_excluding_rests[0][0];
+			if (sequence_info.pitches_present_by_tick_excluding_rests.getNumberOfTicks() > 0)
+				lowest_first_pitch = sequence_info.pitches_present_by_tick_excluding_rests.get(0, 0);
 			value = (double) lowest_first_pitch;
 		} 
 		else value = -1.0;
@@ -63,7 +63,7 @@ public class GlissandoPrevalenceFeature
 			if (sequence_info.total_number_pitched_note_ons == 0)
 				value = 0.0;
 			else
-				value = (double) sequence_info.pitch_bends_list.size() /
+				value = (double) sequence_info.pitch_bends_by_note.length /
 				        (double) sequence_info.total_number_pitched_note_ons;
 		}
 		else value = -1.0;
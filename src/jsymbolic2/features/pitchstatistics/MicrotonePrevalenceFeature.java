@@ -1,10 +1,10 @@
 package jsymbolic2.features.pitchstatistics;
 
 import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 import javax.sound.midi.Sequence;
-import java.util.LinkedList;
 
 /**
  * A feature calculator that finds the number of pitched notes that are each associated with exactly one MIDI
@@ -62,22 +62,20 @@ public class MicrotonePrevalenceFeature
 		double value;
 		if (sequence_info != null)
 		{
-			// A list of lists of pitch bends associated with pitched (i.e. not Channel 10) notes. Each entry
-			// of the root list corresponds to a note that has at least one pitch bend message associated with
-			// it. Each such entry contains a list of all pitchbend messages (second MIDI data byte stored as 
-			// an Integer) associated with the note, in the order that they occurred.
-			LinkedList pitch_bends_list = sequence_info.pitch_bends_list;
+			// The pitch bends associated with pitched (i.e. not Channel 10) notes. Each entry corresponds to a
+			// note that has at least one pitch bend message associated with it. Each such entry contains a
+			// list of all pitchbend values (second MIDI data byte) associated with the note, in the order
+			// that they occurred.
+			IntArrayList[] pitch_bends_by_note = sequence_info.pitch_bends_by_note;
 			
 			if ( sequence_info.total_number_pitched_note_ons == 0 || // if there are no pitched notes
-			     pitch_bends_list.isEmpty() ) // if there are no pitchbend messages
+			     pitch_bends_by_note.length == 0 ) // if there are no pitchbend messages
 				value = 0.0;
 			else
 			{
 				double number_single_pitchbend_notes = 0;
-				for (Object pitch_bend_note : pitch_bends_list)
+				for (IntArrayList bends_associated_with_this_note : pitch_bends_by_note)
 				{
-					LinkedList bends_associated_with_this_note = (LinkedList) pitch_bend_note;
-					
 					// Only count if a single pitch bend is associated with this Note On
 					if (bends_associated_with_this_note.size() == 1)
 						number_single_pitchbend_notes++;
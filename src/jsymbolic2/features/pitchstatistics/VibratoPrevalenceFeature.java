@@ -1,6 +1,5 @@
 package jsymbolic2.features.pitchstatistics;
 
-import java.util.LinkedList;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
@@ -62,23 +61,14 @@ public class VibratoPrevalenceFeature
 		double value;
 		if (sequence_info != null)
 		{
-			if (sequence_info.pitch_bends_list.isEmpty()) // If there are no pitch bends
+			if (sequence_info.pitch_bends_by_note.length == 0) // If there are no pitch bends
 				value = 0.0;
 			else
 			{
 				// Generate array of pitch bends
-				Object[] notes_objects = sequence_info.pitch_bends_list.toArray();
-				LinkedList[] notes = new LinkedList[notes_objects.length];
-				for (int i = 0; i < notes.length; i++)
-					notes[i] = (LinkedList) notes_objects[i];
-				int[][] pitch_bends = new int[notes.length][];
-				for (int i = 0; i < notes.length; i++)
-				{
-					Object[] this_note_pitch_bends_objects = notes[i].toArray();
-					pitch_bends[i] = new int[this_note_pitch_bends_objects.length];
-					for (int j = 0; j < pitch_bends[i].length; j++)
-						pitch_bends[i][j] = ((Integer) this_note_pitch_bends_objects[j]).intValue();
-				}
+				int[][] pitch_bends = new int[sequence_info.pitch_bends_by_note.length][];
+				for (int i = 0; i < pitch_bends.length; i++)
+					pitch_bends[i] = sequence_info.pitch_bends_by_note[i].toArray();
 
 				// Find the number of changes of direction of bend bend for each note
 				int notes_with_vibrato = 0;;
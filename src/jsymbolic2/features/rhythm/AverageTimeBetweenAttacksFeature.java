@@ -3,6 +3,7 @@ package jsymbolic2.features.rhythm;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.featureutils.TickSet;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
 /**
@@ -63,25 +64,20 @@ public class AverageTimeBetweenAttacksFeature
 			double total_of_intervals = 0;
 			int number_of_intervals = 0;
 
-			double time_so_far = 0.0;
+			// Go through the ticks on which an attack occured on any channel
+			TickSet attack_ticks = sequence_info.note_attack_ticks[16];
 			int tick_of_last_attack = -1;
-			for (int tick = 0; tick < sequence_info.note_attack_tick_map.length; tick++)
+			for (int tick = attack_ticks.nextTick(0); tick != -1; tick = attack_ticks.nextTick(tick + 1))
 			{
-				// Check if an attack occured on this tick
-				boolean attack = sequence_info.note_attack_tick_map[tick][16];
-				if (!attack)
-					time_so_far += sequence_info.duration_of_ticks_in_seconds[tick];
-				else
+				if (tick_of_last_attack != -1)
 				{
-					if (tick_of_last_attack != -1)
-					{
-						total_of_intervals += time_so_far;
-						number_of_intervals++;
-					}
-
-					time_so_far = 0.0;
-					tick_of_last_attack = tick;
+					double time_so_far = 0.0;
+					for (int i = tick_of_last_attack + 1; i < tick; i++)
+						time_so_far += sequence_info.duration_of_ticks_in_seconds[i];
+					total_of_intervals += time_so_far;
+					number_of_intervals++;
 				}
+				tick_of_last_attack = tick;
 			}
 
 			if (number_of_intervals == 0)
@@ -3,6 +3,7 @@ package jsymbolic2.features.rhythm;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.featureutils.TickSet;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
 /**
@@ -73,37 +74,27 @@ public class AverageTimeBetweenAttacksForEachVoiceFeature
 				// If notes are contained in channel
 				else
 				{
+					// The ticks on which an attack occured on this channel
+					TickSet attack_ticks = sequence_info.note_attack_ticks[chan];
+
 					// Find number of intervals
-					int number_of_intervals = -1;
-					for (int tick = 0; tick < sequence_info.note_attack_tick_map.length; tick++)
-						if (sequence_info.note_attack_tick_map[tick][chan])
-							number_of_intervals++;
+					int number_of_intervals = attack_ticks.getNumberOfTicks() - 1;
 
 					// Fill in the array of intervals
 					intervals[chan] = new double[number_of_intervals];
 					number_of_intervals = 0;
-					double time_so_far = 0.0;
 					int tick_of_last_attack = -1;
-					for (int tick = 0; tick < sequence_info.note_attack_tick_map.length; tick++)
+					for (int tick = attack_ticks.nextTick(0); tick != -1; tick = attack_ticks.nextTick(tick + 1))
 					{
-						// Check if an attack occured on this tick
-						boolean attack = false;
-						if (sequence_info.note_attack_tick_map[tick][chan])
-							attack = true;
-
-						if (!attack)
-							time_so_far += sequence_info.duration_of_ticks_in_seconds[tick];
-						else
+						if (tick_of_last_attack != -1)
 						{
-							if (tick_of_last_attack != -1)
-							{
-								intervals[chan][number_of_intervals] = time_so_far;
-								number_of_intervals++;
-							}
-
-							time_so_far = 0.0;
-							tick_of_last_attack = tick;
+							double time_so_far = 0.0;
+							for (int i = tick_of_last_attack + 1; i < tick; i++)
+								time_so_far += sequence_info.duration_of_ticks_in_seconds[i];
+							intervals[chan][number_of_intervals] = time_so_far;
+							number_of_intervals++;
 						}
+						tick_of_last_attack = tick;
 					}
 				}
 			}
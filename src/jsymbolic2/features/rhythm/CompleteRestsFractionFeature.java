@@ -4,6 +4,7 @@ import java.util.stream.DoubleStream;
 import javax.sound.midi.Sequence;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.featureutils.TickChart;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
 /**
@@ -62,17 +63,18 @@ public class CompleteRestsFractionFeature
 		if (sequence_info != null)
 		{	
 			// Get information from sequence_info
-			short[][] pitch_strength_by_tick_chart = sequence_info.pitch_strength_by_tick_chart;
+			TickChart pitch_strength_by_tick_chart = sequence_info.pitch_strength_by_tick_chart;
 			double[] seconds_per_tick = sequence_info.duration_of_ticks_in_seconds;
 			
 			// The number of ticks to examine (the minus 1 is because Java doesn't count the last tick
-			int ticks_to_test = pitch_strength_by_tick_chart.length - 1;
+			int ticks_to_test = pitch_strength_by_tick_chart.getNumberOfTicks() - 1;
 			
 			// Find the durations of complete rests, tick by tick
 			double[] seconds_of_rest_per_tick = new double[ticks_to_test];
+			short[] pitch_velocities = null;
 			for (int tick = 0; tick < ticks_to_test; tick++)
 			{
-				short[] pitch_velocities = pitch_strength_by_tick_chart[tick];
+				pitch_velocities = pitch_strength_by_tick_chart.getRow(tick, pitch_velocities);
 				if (mckay.utilities.staticlibraries.ArrayMethods.doesArrayContainOnlyThisValue(pitch_velocities, 0))
 					seconds_of_rest_per_tick[tick] = seconds_per_tick[tick];
 			}
@@ -1,8 +1,8 @@
 package jsymbolic2.features.rhythm;
 
-import java.util.LinkedList;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
@@ -64,14 +64,15 @@ public class MedianRhythmicValueRunLengthFeature
 		if (sequence_info != null)
 		{
 			// Access the runs
-			LinkedList<Integer>[] runs_of_same_rhythmic_value = sequence_info.runs_of_same_rhythmic_value;
-			LinkedList<Integer> collapsed_runs_of_same_rhythmic_value = new LinkedList<>();
-			for (int i = 0; i < runs_of_same_rhythmic_value.length; i++)
-				for (int j = 0; j < runs_of_same_rhythmic_value[i].size(); j++)
-					collapsed_runs_of_same_rhythmic_value.add(runs_of_same_rhythmic_value[i].get(j));
-			double[] array_of_all_runs_of_same_rhythmic_value = new double[collapsed_runs_of_same_rhythmic_value.size()];
-			for (int i = 0; i < array_of_all_runs_of_same_rhythmic_value.length; i++)
-				array_of_all_runs_of_same_rhythmic_value[i] = (double) collapsed_runs_of_same_rhythmic_value.get(i);
+			IntArrayList[] run_lengths_by_rhythmic_value = sequence_info.run_lengths_by_rhythmic_value;
+			int number_of_runs = 0;
+			for (int i = 0; i < run_lengths_by_rhythmic_value.length; i++)
+				number_of_runs += run_lengths_by_rhythmic_value[i].size();
+			double[] array_of_all_runs_of_same_rhythmic_value = new double[number_of_runs];
+			int run = 0;
+			for (int i = 0; i < run_lengths_by_rhythmic_value.length; i++)
+				for (int j = 0; j < run_lengths_by_rhythmic_value[i].size(); j++)
+					array_of_all_runs_of_same_rhythmic_value[run++] = run_lengths_by_rhythmic_value[i].get(j);
 			
 			// Calculate the final value
 			value = mckay.utilities.staticlibraries.MathAndStatsMethods.getMedianValue(array_of_all_runs_of_same_rhythmic_value);
@@ -83,6 +83,7 @@ public class NoteDensityPerQuarterNoteVariabilityFeature
 				Sequence this_window = windows[window];
 				MIDIIntermediateRepresentations window_info = new MIDIIntermediateRepresentations(this_window);
 				note_density_of_each_window[window] = new NoteDensityPerQuarterNoteFeature().extractFeature(this_window, window_info, null)[0];
+				window_info.releaseTickCharts();
 			}
 
 			// Compute the standard deviation of the note densities
@@ -82,6 +82,7 @@ public class NoteDensityVariabilityFeature
 				Sequence this_window = windows[window];
 				MIDIIntermediateRepresentations window_info = new MIDIIntermediateRepresentations(this_window);
 				note_density_of_each_window[window] = new NoteDensityFeature().extractFeature(this_window, window_info, null)[0];
+				window_info.releaseTickCharts();
 			}
 
 			// Compute the standard deviation of the note densities
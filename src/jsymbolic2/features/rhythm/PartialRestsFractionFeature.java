@@ -4,6 +4,7 @@ import java.util.stream.DoubleStream;
 import javax.sound.midi.Sequence;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.featureutils.TickSet;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
 /**
@@ -67,9 +68,8 @@ public class PartialRestsFractionFeature
 			for (int i = 0; i < notes_per_channel.length; i++)
 				notes_per_channel[i] = sequence_info.channel_statistics[i][0];
 			
-			// Tick by tick (first index) indication of whether a note is sounding on each channel (second
-			// index).
-			boolean[][] note_sounding_on_a_channel_tick_map = sequence_info.note_sounding_on_a_channel_tick_map;
+			// The ticks on which a note is sounding on each channel (the index)
+			TickSet[] note_sounding_on_a_channel_ticks = sequence_info.note_sounding_on_a_channel_ticks;
 			
 			// The duration of each tick
 			double[] seconds_per_tick = sequence_info.duration_of_ticks_in_seconds;
@@ -83,7 +83,18 @@ public class PartialRestsFractionFeature
 			}
 
 			// The number of ticks to examine (the minus 1 is because Java doesn't count the last tick
-			int ticks_to_test = note_sounding_on_a_channel_tick_map.length - 1;
+			int ticks_to_test = note_sounding_on_a_channel_ticks[0].getNumberOfTicksSpanned() - 1;
+
+			// The number of non-empty channels with a note sounding on each tick
+			int number_of_non_empty_channels = 0;
+			for (int chan = 0; chan < non_empty_channels.length; chan++)
+				if (non_empty_channels[chan])
+					number_of_non_empty_channels++;
+			TickSet[] non_empty_channel_ticks = new TickSet[number_of_non_empty_channels];
+			for (int chan = 0, i = 0; chan < non_empty_channels.length; chan++)
+				if (non_empty_channels[chan])
+					non_empty_channel_ticks[i++] = note_sounding_on_a_channel_ticks[chan];
+			int[] non_empty_channels_sounding = TickSet.findNumberOfSetsContainingEachTick(non_empty_channel_ticks);
 			
 			// Find the durations of partial rests, tick by tick
 			double[] seconds_of_rest_per_tick = new double[ticks_to_test];
@@ -91,13 +102,8 @@ public class PartialRestsFractionFeature
 				seconds_of_rest_per_tick[i] = 0.0;
 			for (int tick = 0; tick < ticks_to_test; tick++)
 			{
-				boolean at_least_one_chan_not_sounding = false;
-				for (int chan = 0; chan < non_empty_channels.length; chan++)
-					if (non_empty_channels[chan] && !note_sounding_on_a_channel_tick_map[tick][chan])
-					{
-						at_least_one_chan_not_sounding = true;
-						break;
-					}
+				boolean at_least_one_chan_not_sounding = number_of_non_empty_channels != 0 &&
+				                                         non_empty_channels_sounding[tick] < number_of_non_empty_channels;
 				if (at_least_one_chan_not_sounding)
 					seconds_of_rest_per_tick[tick] = seconds_per_tick[tick];
 			}
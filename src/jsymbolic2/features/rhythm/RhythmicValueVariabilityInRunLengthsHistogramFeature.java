@@ -1,8 +1,8 @@
 package jsymbolic2.features.rhythm;
 
-import java.util.LinkedList;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
@@ -71,17 +71,15 @@ public class RhythmicValueVariabilityInRunLengthsHistogramFeature
 		if (sequence_info != null)
 		{
 			// Initialize result
-			result = new double[sequence_info.runs_of_same_rhythmic_value.length];
+			result = new double[sequence_info.run_lengths_by_rhythmic_value.length];
 			
 			// Access the runs
-			LinkedList<Integer>[] runs_of_same_rhythmic_value = sequence_info.runs_of_same_rhythmic_value;
+			IntArrayList[] run_lengths_by_rhythmic_value = sequence_info.run_lengths_by_rhythmic_value;
 			
 			// Calculate the values of the histogram bin by bin
-			for (int i = 0; i < runs_of_same_rhythmic_value.length; i++)
+			for (int i = 0; i < run_lengths_by_rhythmic_value.length; i++)
 			{
-				double[] run_lengths_for_this_rhythmic_value = new double[runs_of_same_rhythmic_value[i].size()];
-				for (int j = 0; j < run_lengths_for_this_rhythmic_value.length; j++)
-					run_lengths_for_this_rhythmic_value[j] = (double) runs_of_same_rhythmic_value[i].get(j);
+				double[] run_lengths_for_this_rhythmic_value = run_lengths_by_rhythmic_value[i].toDoubleArray();
 				
 				result[i] = mckay.utilities.staticlibraries.MathAndStatsMethods.getStandardDeviation(run_lengths_for_this_rhythmic_value);
 			}
@@ -3,6 +3,7 @@ package jsymbolic2.features.rhythm;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.featureutils.TickSet;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
 /**
@@ -60,24 +61,11 @@ public class VariabilityOfTimeBetweenAttacksFeature
 		double value;
 		if (sequence_info != null)
 		{
-			// Find number of intervals
-			int number_of_intervals = -1;
-			for (int tick = 0; tick < sequence_info.note_attack_tick_map.length; tick++)
-			{
-				// Check if an attack occured on this tick
-				boolean attack = false;
-				for (int chan = 0; chan < 16; chan++)
-				{
-					if (sequence_info.note_attack_tick_map[tick][chan])
-					{
-						attack = true;
-						chan = 17; // exit the loop
-					}
-				}
+			// The ticks on which an attack occured on any channel
+			TickSet attack_ticks = sequence_info.note_attack_ticks[16];
 
-				if (attack)
-					number_of_intervals++;
-			}
+			// Find number of intervals
+			int number_of_intervals = attack_ticks.getNumberOfTicks() - 1;
 
 			// Added check for NegativeArraySizeException
 			double[] intervals;
@@ -87,34 +75,18 @@ public class VariabilityOfTimeBetweenAttacksFeature
 				intervals = new double[number_of_intervals]; // Fill in the array of intervals
 			
 			number_of_intervals = 0;
-			double time_so_far = 0.0;
 			int tick_of_last_attack = -1;
-			for (int tick = 0; tick < sequence_info.note_attack_tick_map.length; tick++)
+			for (int tick = attack_ticks.nextTick(0); tick != -1; tick = attack_ticks.nextTick(tick + 1))
 			{
-				// Check if an attack occured on this tick
-				boolean attack = false;
-				for (int chan = 0; chan < 16; chan++)
-				{
-					if (sequence_info.note_attack_tick_map[tick][chan])
-					{
-						attack = true;
-						chan = 17; // Exit the loop
-					}
-				}
-
-				if (!attack)
-					time_so_far += sequence_info.duration_of_ticks_in_seconds[tick];
-				else
+				if (tick_of_last_attack != -1)
 				{
-					if (tick_of_last_attack != -1)
-					{
-						intervals[number_of_intervals] = time_so_far;
-						number_of_intervals++;
-					}
-
-					time_so_far = 0.0;
-					tick_of_last_attack = tick;
+					double time_so_far = 0.0;
+					for (int i = tick_of_last_attack + 1; i < tick; i++)
+						time_so_far += sequence_info.duration_of_ticks_in_seconds[i];
+					intervals[number_of_intervals] = time_so_far;
+					number_of_intervals++;
 				}
+				tick_of_last_attack = tick;
 			}
 
 			if (intervals == null || intervals.length == 0)
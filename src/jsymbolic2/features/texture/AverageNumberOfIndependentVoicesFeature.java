@@ -3,6 +3,7 @@ package jsymbolic2.features.texture;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.featureutils.TickSet;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
 /**
@@ -60,25 +61,14 @@ public class AverageNumberOfIndependentVoicesFeature
 		double value;
 		if (sequence_info != null)
 		{
-			// Instantiate of the variable holding the number of voices sounding at each tick
-			int[] number_sounding = new int[sequence_info.note_sounding_on_a_channel_tick_map.length];
-			for (int i = 0; i < number_sounding.length; i++)
-				number_sounding[i] = 0;
-
 			// Find the number of voices sounding at each tick
-			int rest_count = 0;
-			for (int tick = 0; tick < sequence_info.note_sounding_on_a_channel_tick_map.length; tick++)
-			{
-				for (int chan = 0; chan < sequence_info.note_sounding_on_a_channel_tick_map[tick].length; chan++)
-				{
-					if (sequence_info.note_sounding_on_a_channel_tick_map[tick][chan])
-						number_sounding[tick]++;
-				}
+			int[] number_sounding = TickSet.findNumberOfSetsContainingEachTick(sequence_info.note_sounding_on_a_channel_ticks);
 
-				// Keep track of number of ticks with no notes sounding
+			// Keep track of number of ticks with no notes sounding
+			int rest_count = 0;
+			for (int tick = 0; tick < number_sounding.length; tick++)
 				if (number_sounding[tick] == 0)
 					rest_count++;
-			}
 
 			// Only count the ticks where at least one note was sounding
 			double[] final_number_sounding = new double[number_sounding.length - rest_count];
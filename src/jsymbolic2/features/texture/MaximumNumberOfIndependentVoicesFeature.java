@@ -3,6 +3,7 @@ package jsymbolic2.features.texture;
 import javax.sound.midi.*;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
+import jsymbolic2.featureutils.TickSet;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
 /**
@@ -60,19 +61,11 @@ public class MaximumNumberOfIndependentVoicesFeature
 		double value;
 		if (sequence_info != null)
 		{
+			int[] number_sounding = TickSet.findNumberOfSetsContainingEachTick(sequence_info.note_sounding_on_a_channel_ticks);
 			int max_so_far = 0;
-			for (int tick = 0; tick < sequence_info.note_sounding_on_a_channel_tick_map.length; tick++)
-			{
-				int count = 0;
-				for (int chan = 0; chan < sequence_info.note_sounding_on_a_channel_tick_map[tick].length; chan++)
-				{
-					if (sequence_info.note_sounding_on_a_channel_tick_map[tick][chan])
-						count++;
-				}
-
-				if (count > max_so_far)
-					max_so_far = count;
-			}
+			for (int tick = 0; tick < number_sounding.length; tick++)
+				if (number_sounding[tick] > max_so_far)
+					max_so_far = number_sounding[tick];
 			value = (double) max_so_far;
 		}
 		else value = -1.0;
@@ -1,8 +1,8 @@
 package jsymbolic2.features.texture;
 
 import javax.sound.midi.Sequence;
-import java.util.List;
 import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
@@ -64,7 +64,7 @@ public class RelativeRangeIsolationOfLoudestVoiceFeature
 		{
 			// Get information from sequence_info 
 			int[][] channel_statistics = sequence_info.channel_statistics;
-			List<List<Integer>> list_of_note_on_pitches_by_channel = sequence_info.list_of_note_on_pitches_by_channel;
+			IntArrayList[] note_on_pitches_by_channel = sequence_info.note_on_pitches_by_channel;
 
 			// Find the loudest non-Channel 10 channel
 			int index_of_loudest_channel = 0;
@@ -105,11 +105,14 @@ public class RelativeRangeIsolationOfLoudestVoiceFeature
 			
 			// Find number of notes in the loudest channel outside the range of any other channels
 			double notes_in_loudest_channel_outside_range = 0.0;
-			List<Integer> pitches_of_notes_in_loudest_channel = list_of_note_on_pitches_by_channel.get(index_of_loudest_channel);
-			for (Integer this_pitch : pitches_of_notes_in_loudest_channel)
+			IntArrayList pitches_of_notes_in_loudest_channel = note_on_pitches_by_channel[index_of_loudest_channel];
+			for (int note = 0; note < pitches_of_notes_in_loudest_channel.size(); note++)
+			{
+				int this_pitch = pitches_of_notes_in_loudest_channel.get(note);
 				if ( this_pitch > hightest_pitch_in_non_loudest_voice ||
 				     this_pitch < lowest_pitch_in_non_loudest_voice)
 					notes_in_loudest_channel_outside_range++;
+			}
 
 			// Finalize results
 			if (another_pitched_voice_exists)
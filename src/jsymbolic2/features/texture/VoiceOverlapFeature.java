@@ -1,8 +1,8 @@
 package jsymbolic2.features.texture;
 
-import java.util.List;
 import javax.sound.midi.Sequence;
 import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
 
@@ -63,15 +63,17 @@ public class VoiceOverlapFeature
 		{
 			// Access pre-calculated information in sequence_info
 			int[][] channel_stats = sequence_info.channel_statistics;
-			List<List<Integer>> channel_pitch = sequence_info.list_of_note_on_pitches_by_channel;
+			IntArrayList[] channel_pitch = sequence_info.note_on_pitches_by_channel;
 
 			// Find notes that are within the range of any other channel
 			int notes_inside_range = 0;
-			for (int channel = 0; channel < channel_pitch.size(); channel++)
+			for (int channel = 0; channel < channel_pitch.length; channel++)
 			{
-				List<Integer> channel_notes = channel_pitch.get(channel);
-				for (Integer current_pitch : channel_notes)
+				IntArrayList channel_notes = channel_pitch[channel];
+				for (int note = 0; note < channel_notes.size(); note++)
 				{
+					int current_pitch = channel_notes.get(note);
+
 					// Compare pitch of current_pitch to the range of every other channel
 					for (int other_channel = 0; other_channel < channel_stats.length; other_channel++)
 					{
@@ -1,8 +1,6 @@
 package jsymbolic2.features.verticalintervals;
 
 import javax.sound.midi.Sequence;
-import java.util.ArrayList;
-import java.util.Arrays;
 import ace.datatypes.FeatureDefinition;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.processing.MIDIIntermediateRepresentations;
@@ -65,43 +63,15 @@ public class ChordDurationFeature
 		double value;
 		if (sequence_info != null)
 		{
-			// A data structure indicating all pitch classes sounding at each MIDI tick. However, all ticks 
-			// during which no notes are playing are excluded from this data structure. The first dimension
-			// indicates the MIDI tick (after removal of rest ticks) and the second dimension indicates the 
-			// note index (there will be one entry for each pitch class sounding during the given MIDI tick).
-			// Each entry indicates the pitch class (0 to 11, where 0 is C) of one of the sounding notes.
-			short[][] pitch_classes_present_by_tick_excluding_rests = sequence_info.pitch_classes_present_by_tick_excluding_rests;
-
-			// The duration in ticks of each chord
-			ArrayList<Integer> chord_durations_in_ticks = new ArrayList<>();
-			
-			// Iterate through ticks, looking for chords
-			int duration_this_chord_in_ticks = 0;
-			for (int tick = 0; tick < pitch_classes_present_by_tick_excluding_rests.length; tick++)
-			{
-				if (tick == 0)
-					duration_this_chord_in_ticks = 1;
-				else
-				{
-					short[] pitch_classes_previous_tick = pitch_classes_present_by_tick_excluding_rests[tick - 1];
-					short[] pitch_classes_this_tick = pitch_classes_present_by_tick_excluding_rests[tick];
-					
-					if (Arrays.equals(pitch_classes_previous_tick, pitch_classes_this_tick))
-						duration_this_chord_in_ticks++;
-					else
-					{
-						chord_durations_in_ticks.add(duration_this_chord_in_ticks);
-						duration_this_chord_in_ticks = 0;
-					}
-				}
-			}
-			chord_durations_in_ticks.add(duration_this_chord_in_ticks);
+			// The duration in ticks of each chord, where a chord lasts for as long as the same pitch classes
+			// sound (ignoring ticks during which no notes are playing)
+			int[] chord_durations_in_ticks = sequence_info.vertical_interval_statistics.getChordDurationsInTicks();
 
 			// Find the average duration of a chord in ticks
 			double average_ticks_per_chord = 0.0;
-			int total_number_chords = chord_durations_in_ticks.size();
+			int total_number_chords = chord_durations_in_ticks.length;
 			for (int i = 0; i < total_number_chords; i++)
-				average_ticks_per_chord += chord_durations_in_ticks.get(i);
+				average_ticks_per_chord += chord_durations_in_ticks[i];
 			average_ticks_per_chord = average_ticks_per_chord / (double) total_number_chords;
 
 			// Convert from ticks to seconds to quarter notes
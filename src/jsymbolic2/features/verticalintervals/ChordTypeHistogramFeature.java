@@ -82,33 +82,8 @@ public class ChordTypeHistogramFeature
 
 		if (sequence_info != null)
 		{
-			// The histogram to return
-			result = new double[number_of_chord_types];
-
-			// The total number of pitch classes
-			int number_pitch_classes = 12;
-			
-			// The combined MIDI velocity of all (non-Channel 10) notes sounding on a MIDI tick by tick basis
-			short[][] pitch_strength_by_tick_chart = sequence_info.pitch_strength_by_tick_chart;
-
-			// Count the chord types tick by tick
-			for (int tick = 0; tick < pitch_strength_by_tick_chart.length; tick++)
-			{
-				// Find the combined MIDI velocity of all (non-Channel 10) pitch classes sounding at this tick
-				int[] pitch_class_strengths_this_tick = new int[number_pitch_classes];
-				for (int pitch = 0; pitch < pitch_strength_by_tick_chart[tick].length - 1; pitch++)
-				{
-					int pitch_class = pitch % number_pitch_classes;
-					pitch_class_strengths_this_tick[pitch_class] += pitch_strength_by_tick_chart[tick][pitch];
-				}
-
-				// Find the type of chord
-				ChordTypeEnum chord_type = ChordTypeEnum.getChordType(pitch_class_strengths_this_tick);
-				
-				// Update the histogram to reflect the chord on this tick
-				if (chord_type != null)
-					result[chord_type.getChordTypeCode()] += 1;
-			}
+			// The number of MIDI ticks on which each type of chord sounds
+			result = sequence_info.vertical_interval_statistics.getChordTypeHistogram();
 
 			// Normalize the histogram
 			result = MathAndStatsMethods.normalize(result);
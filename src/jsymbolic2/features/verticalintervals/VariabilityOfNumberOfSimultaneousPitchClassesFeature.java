@@ -60,16 +60,9 @@ public class VariabilityOfNumberOfSimultaneousPitchClassesFeature
 		
 		if (sequence_info != null)
 		{
-			// All MIDI pitches (NOT including Channel 10 unpitched notes sounding at each MIDI tick, with
-			// ticks with no sounding notes excluded.
-			short[][] pitch_classes_present_by_tick_excluding_rests = sequence_info.pitch_classes_present_by_tick_excluding_rests;
-			
-			// Will hold the number of pitches sounding each tick
-			short[] number_pitch_classes_by_tick = new short[pitch_classes_present_by_tick_excluding_rests.length];
-
-			// Fill in number_pitches_by_tick tick by tick 
-			for (int tick = 0; tick < pitch_classes_present_by_tick_excluding_rests.length; tick++)
-				number_pitch_classes_by_tick[tick] = (short) pitch_classes_present_by_tick_excluding_rests[tick].length;
+			// The number of different pitch classes (NOT including Channel 10 unpitched notes) sounding at each
+			// MIDI tick, with ticks with no sounding notes excluded
+			short[] number_pitch_classes_by_tick = sequence_info.vertical_interval_statistics.getNumberOfPitchClassesByTick();
 			
 			// Find the standard deviation of the number of pitches sounding simultaneously
 			if (number_pitch_classes_by_tick == null || number_pitch_classes_by_tick.length == 0)
@@ -62,16 +62,9 @@ public class VariabilityOfNumberOfSimultaneousPitchesFeature
 		
 		if (sequence_info != null)
 		{
-			// All MIDI pitches (NOT including Channel 10 unpitched notes sounding at each MIDI tick, with
-			// ticks with no sounding notes excluded.
-			short[][] pitches_present_by_tick_excluding_rests = sequence_info.pitches_present_by_tick_excluding_rests;
-			
-			// Will hold the number of pitches sounding each tick
-			short[] number_pitches_by_tick = new short[pitches_present_by_tick_excluding_rests.length];
-
-			// Fill in number_pitches_by_tick tick by tick 
-			for (int tick = 0; tick < pitches_present_by_tick_excluding_rests.length; tick++)
-				number_pitches_by_tick[tick] = (short) pitches_present_by_tick_excluding_rests[tick].length;
+			// The number of different MIDI pitches (NOT including Channel 10 unpitched notes) sounding at each
+			// MIDI tick, with ticks with no sounding notes excluded
+			short[] number_pitches_by_tick = sequence_info.vertical_interval_statistics.getNumberOfPitchesByTick();
 			
 			// Find the standard deviation of the number of pitches sounding simultaneously
 			if (number_pitches_by_tick == null || number_pitches_by_tick.length == 0)
@@ -69,34 +69,9 @@ public class VerticalIntervalHistogramFeature
 		
 		if (sequence_info != null)
 		{
-			// // Initialize the vertical_interval_histogram and get the value for unisons
-			vertical_interval_histogram = new double[128];
-			vertical_interval_histogram[0] = sequence_info.total_vertical_unison_velocity;
-
-			// Get the pitch_strength_by_tick_chart
-			short[][] pitch_strength_by_tick_chart = sequence_info.pitch_strength_by_tick_chart;
-
-			// Fill in vertical_interval_histogram for all intervals other than unisons, up to 127 semitones
-			for (int tick = 0; tick < pitch_strength_by_tick_chart.length; tick++)
-			{
-				for (int pitch = 0; pitch < pitch_strength_by_tick_chart[tick].length - 1; pitch++)
-				{
-					int pitch_velocity = pitch_strength_by_tick_chart[tick][pitch];
-					if (pitch_velocity != 0)
-					{
-						for (int other_pitch = pitch + 1; other_pitch < pitch_strength_by_tick_chart[tick].length; other_pitch++)
-						{
-							int other_pitch_velocity = pitch_strength_by_tick_chart[tick][other_pitch];
-							if (other_pitch_velocity != 0)
-							{
-								int interval = other_pitch - pitch;
-								int combined_interval_velocity = pitch_velocity + other_pitch_velocity;
-								vertical_interval_histogram[interval] += combined_interval_velocity;
-							}
-						}
-					}
-				}
-			}
+			// The combined velocities of all pairs of pitches separated by each interval, up to 127
+			// semitones, and of all notes involved in vertical unisons
+			vertical_interval_histogram = sequence_info.vertical_interval_statistics.getVerticalIntervalHistogram();
 
 			// Normalize the histogram
 			vertical_interval_histogram = MathAndStatsMethods.normalize(vertical_interval_histogram);
@@ -62,41 +62,16 @@ public class VerticalMajorThirdPrevalenceFeature
 		double value;
 		if (sequence_info != null)
 		{
-			// All MIDI pitches (NOT including Channel 10 unpitched notes sounding at each MIDI tick, with
-			// ticks with no sounding notes excluded.
-			short[][] pitches_present_by_tick_excluding_rests = sequence_info.pitches_present_by_tick_excluding_rests;
-
-			double ticks_with_major_third = 0.0;
-			
-			for (int tick = 0; tick < pitches_present_by_tick_excluding_rests.length; tick++)
-			{
-				// The MIDI pitch numbers of all pitches found this tick
-				short[] pitches_this_tick = pitches_present_by_tick_excluding_rests[tick];
-				
-				// Update ticks_with_major_third to find the number of ticks that contain a wrapped minor
-				// third
-				if (pitches_this_tick.length > 1)
-				{
-					for (int i = 0; i < pitches_this_tick.length; i++)
-					{
-						for (int j = 0; j < i; j++)
-						{
-							if ( (pitches_this_tick[i] - pitches_this_tick[j]) % 12 == 4 )
-							{
-								ticks_with_major_third++;
-								i = pitches_this_tick.length;
-								j = i;
-							}
-						}
-					}
-				}
-			}
+			// The number of ticks that contain a wrapped major third, and the number of ticks with at least one
+			// sounding note (NOT including Channel 10 unpitched notes)
+			double ticks_with_major_third = sequence_info.vertical_interval_statistics.getNumberOfTicksWithWrappedVerticalInterval(4);
+			int number_of_sounding_ticks = sequence_info.vertical_interval_statistics.getNumberOfSoundingTicks();
 
 			// Calculate the fraction
-			if (pitches_present_by_tick_excluding_rests.length == 0)
+			if (number_of_sounding_ticks == 0)
 				value = 0.0;
 			else 
-				value = ticks_with_major_third / (double) pitches_present_by_tick_excluding_rests.length; 
+				value = ticks_with_major_third / (double) number_of_sounding_ticks; 
 		}
 		else value = -1.0;
 
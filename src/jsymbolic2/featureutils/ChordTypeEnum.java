@@ -22,6 +22,10 @@ import java.util.List;
  * <li><b>COMPLEX_CHORD (10)</b>: Any set of notes consisting of more than four different pitch classes.
  * </ul>
  * 
+ * <p>The chord type of each of the 4096 possible sets of pitch classes is found once, when this class is
+ * loaded, and stored in a table indexed by a pitch class mask (see getPitchClassMask). getChordType and
+ * getChordTypeOfPitchClassMask simply look the chord type up in this table.</p>
+ * 
  * @author Tristano Tenaglia and Cory McKay
  */
 public enum ChordTypeEnum
@@ -57,6 +61,12 @@ public enum ChordTypeEnum
 	 */
 	private final int						chord_type_code;
 
+	/**
+	 * The chord type of each set of pitch classes, indexed by its pitch class mask (see getPitchClassMask).
+	 * Entries are null for sets of pitch classes that do not correspond to a recognized chord type.
+	 */
+	private static final ChordTypeEnum[] chord_type_by_pitch_class_mask = findChordTypeOfEachPitchClassMask();
+
 
 	/* CONSTRUCTOR ******************************************************************************************/
 
@@ -112,6 +122,62 @@ public enum ChordTypeEnum
 	 */
 	public static ChordTypeEnum getChordType(int[] pitch_class_strengths)
 			throws Exception
+	{
+		if (pitch_class_strengths == null || pitch_class_strengths.length != 12)
+			throw new Exception("The specified set of pitch classes is null or does not correspond to a known chord type.\n");
+		return chord_type_by_pitch_class_mask[getPitchClassMask(pitch_class_strengths)];
+	}
+
+
+	/**
+	 * Identify the type of chord represented by the given pitch class mask. This does not allocate any
+	 * memory, and so is suitable for calling once per MIDI tick.
+	 *
+	 * @param pitch_class_mask	A pitch class mask, as returned by getPitchClassMask. Must be between 0 and
+	 *							4095.
+	 * @return					An identifier indicating the type of chord that pitch_class_mask represents.
+	 *							Null is returned if pitch_class_mask does not correspond to a recognized chord
+	 *							type.
+	 */
+	public static ChordTypeEnum getChordTypeOfPitchClassMask(int pitch_class_mask)
+	{
+		return chord_type_by_pitch_class_mask[pitch_class_mask];
+	}
+
+
+	/**
+	 * Find the pitch class mask of the given pitch classes.
+	 *
+	 * @param pitch_class_strengths	An array of size 12 whose index corresponds to the 12 pitch classes, as
+	 *								described for getChordType.
+	 * @return						A mask whose bit i (where bit 0 is the least significant) is set if and
+	 *								only if pitch class i has a strength greater than zero.
+	 */
+	public static int getPitchClassMask(int[] pitch_class_strengths)
+	{
+		int pitch_class_mask = 0;
+		for (int pitch_class = 0; pitch_class < pitch_class_strengths.length; pitch_class++)
+			if (pitch_class_strengths[pitch_class] > 0)
+				pitch_class_mask |= 1 << pitch_class;
+		return pitch_class_mask;
+	}
+
+
+	/**
+	 * Identify the type of chord represented by the given pitch classes by checking them against the
+	 * interval templates of each chord type in turn. This gives the same results as getChordType, and is the
+	 * means by which the table used by getChordType is built, but is much slower.
+	 * 
+	 * @param pitch_class_strengths	An array of size 12 whose index corresponds to the 12 pitch classes, as
+	 *								described for getChordType.
+	 * @return						An identifier indicating the type of chord that pitch_class_strengths
+	 *								represents. Null is returned if  pitch_class_strengths does not correspond
+	 *								to a recognized chord type.
+	 * @throws Exception			An informative exception is thrown if pitch_classes_present is null or is
+	 *								not size 12. 
+	 */
+	public static ChordTypeEnum getChordTypeByTemplateMatching(int[] pitch_class_strengths)
+			throws Exception
 	{
 		if (pitch_class_strengths == null || pitch_class_strengths.length != 12)
 			throw new Exception("The specified set of pitch classes is null or does not correspond to a known chord type.\n");
@@ -122,6 +188,31 @@ public enum ChordTypeEnum
 	}
 
 
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Find the chord type of each of the 4096 possible sets of pitch classes, using the interval templates
+	 * of each chord type.
+	 *
+	 * @return	The chord type of each set of pitch classes, indexed by its pitch class mask. Entries are null
+	 *			for sets of pitch classes that do not correspond to a recognized chord type.
+	 */
+	private static ChordTypeEnum[] findChordTypeOfEachPitchClassMask()
+	{
+		ChordTypeEnum[] chord_types = new ChordTypeEnum[1 << 12];
+		for (int pitch_class_mask = 0; pitch_class_mask < chord_types.length; pitch_class_mask++)
+		{
+			int[] pitch_class_strengths = new int[12];
+			for (int pitch_class = 0; pitch_class < pitch_class_strengths.length; pitch_class++)
+				pitch_class_strengths[pitch_class] = (pitch_class_mask >> pitch_class) & 1;
+			try { chord_types[pitch_class_mask] = getChordTypeByTemplateMatching(pitch_class_strengths); }
+			catch (Exception e) {} // Cannot occur, as pitch_class_strengths has size 12
+		}
+		return chord_types;
+	}
+
+
 	/* INTERNAL ENUM ****************************************************************************************/
 
 	
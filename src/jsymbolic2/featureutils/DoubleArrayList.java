@@ -0,0 +1,203 @@
+package jsymbolic2.featureutils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A growable sequence of double values that are stored in a primitive array, rather than being boxed into
+ * Double objects as they would be in a LinkedList or ArrayList. Values can only be appended, never changed
+ * or removed, which allows slices of a list to be handed out as views that share its array without copying
+ * it.
+ *
+ * <p>A slice is itself a DoubleArrayList, but it may not be appended to. A slice stays valid after more
+ * values are appended to the list that it was taken from, since the values that it covers never change.</p>
+ *
+ * <p>The asList method provides a read-only List&lt;Double&gt; view for code that needs one. Each value is
+ * boxed only when it is retrieved through this view.</p>
+ *
+ * @author Cory McKay
+ */
+public class DoubleArrayList
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * An empty array shared by all lists created without an initial capacity.
+	 */
+	private static final double[] NO_VALUES = new double[0];
+
+	/**
+	 * The array holding the values of this list, starting at offset. It may have unused capacity at the end,
+	 * and may be shared with other lists that this list is a slice of, or that are slices of it.
+	 */
+	private double[] values;
+
+	/**
+	 * The index in values of the first value of this list.
+	 */
+	private final int offset;
+
+	/**
+	 * The number of values in this list.
+	 */
+	private int size;
+
+	/**
+	 * Whether this list is a slice of another list, and therefore may not be appended to.
+	 */
+	private final boolean is_slice;
+
+
+	/* CONSTRUCTORS *****************************************************************************************/
+
+
+	/**
+	 * Instantiate an empty list. No array is allocated until the first value is added.
+	 */
+	public DoubleArrayList()
+	{
+		this(NO_VALUES, 0, 0, false);
+	}
+
+
+	/**
+	 * Instantiate an empty list with room for the given number of values before it needs to grow.
+	 *
+	 * @param initial_capacity	The number of values that the list can hold before it needs to grow.
+	 */
+	public DoubleArrayList(int initial_capacity)
+	{
+		this(new double[initial_capacity], 0, 0, false);
+	}
+
+
+	/**
+	 * Instantiate a list holding the given values, starting at the given offset in them.
+	 *
+	 * @param values	The array holding the values.
+	 * @param offset	The index in values of the first value of the list.
+	 * @param size		The number of values in the list.
+	 * @param is_slice	Whether the list is a slice of another list.
+	 */
+	private DoubleArrayList(double[] values, int offset, int size, boolean is_slice)
+	{
+		this.values = values;
+		this.offset = offset;
+		this.size = size;
+		this.is_slice = is_slice;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Append the given value to the end of this list, growing its array if needed.
+	 *
+	 * @param value								The value to append.
+	 * @throws UnsupportedOperationException	If this list is a slice of another list.
+	 */
+	public void add(double value)
+	{
+		if (is_slice)
+			throw new UnsupportedOperationException("Values cannot be added to a slice of a list.");
+		if (size == values.length)
+			values = Arrays.copyOf(values, Math.max(8, size * 2));
+		values[size++] = value;
+	}
+
+
+	/**
+	 * @param index	The index of a value in this list.
+	 * @return		The value at the given index.
+	 * @throws IndexOutOfBoundsException	If index is negative, or not less than the size of this list.
+	 */
+	public double get(int index)
+	{
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " is outside a list of size " + size + ".");
+		return values[offset + index];
+	}
+
+
+	/**
+	 * @return	The number of values in this list.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * @return	Whether this list holds no values.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+
+	/**
+	 * Return a view of part of this list, which shares the array of this list rather than copying it.
+	 *
+	 * @param from	The index in this list of the first value of the slice.
+	 * @param to	The index in this list after the last value of the slice.
+	 * @return		A list holding the values of this list from index from (inclusive) to index to
+	 *				(exclusive). It may not be appended to.
+	 * @throws IndexOutOfBoundsException	If from and to do not specify a range within this list.
+	 */
+	public DoubleArrayList slice(int from, int to)
+	{
+		if (from < 0 || to > size || from > to)
+			throw new IndexOutOfBoundsException("Slice " + from + " to " + to + " is outside a list of size " + size + ".");
+		return new DoubleArrayList(values, offset + from, to - from, true);
+	}
+
+
+	/**
+	 * @return	A new array holding the values of this list, in order.
+	 */
+	public double[] toArray()
+	{
+		return Arrays.copyOfRange(values, offset, offset + size);
+	}
+
+
+	/**
+	 * @return	A read-only view of this list as a List of Doubles. It reflects values added to this list
+	 *			after it was created.
+	 */
+	public List<Double> asList()
+	{
+		return new DoubleListView();
+	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * A read-only List view of the enclosing DoubleArrayList.
+	 */
+	private class DoubleListView
+		extends AbstractList<Double>
+		implements RandomAccess
+	{
+		@Override
+		public Double get(int index)
+		{
+			return DoubleArrayList.this.get(index);
+		}
+
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,395 @@
+package jsymbolic2.featureutils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The order in which a given selection of features (and the features that they depend on) must be extracted,
+ * with all feature dependencies resolved to integer indices. A plan is built once from the feature extractors
+ * and the features chosen to be saved, after which it can be used to construct any number of
+ * MIDIFeatureProcessor objects without re-resolving dependencies by name. Plans are immutable, so they can be
+ * cached and shared between threads, and they are Serializable, so that they can be stored or sent to other
+ * processes. A plan records the names of the features it refers to, so that a plan that does not match the
+ * feature extractors that it is used with (e.g. one serialized by a different version of jSymbolic) is
+ * detected.
+ *
+ * <p>Features are ordered as in the list of all feature extractors, except that each feature is moved after
+ * all the features that it depends on. This is the same order that MIDIFeatureProcessor has always used.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class ExtractionPlan
+	implements Serializable
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	private static final long serialVersionUID = 1L;
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The total number of features (including those that are not extracted) in the list of feature
+	 * extractors that this plan was built from.
+	 */
+	private final int number_of_available_features;
+
+	/**
+	 * Which features are to be saved. Entries correspond to the list of feature extractors that this plan
+	 * was built from.
+	 */
+	private final boolean[] features_to_save_among_all;
+
+	/**
+	 * The index in the list of feature extractors that this plan was built from of each feature that is to
+	 * be extracted, in the order that they are to be extracted.
+	 */
+	private final int[] extraction_order;
+
+	/**
+	 * The name of each feature that is to be extracted. Entries correspond to extraction_order.
+	 */
+	private final String[] feature_names;
+
+	/**
+	 * The dependencies of each feature that is to be extracted. The first index corresponds to
+	 * extraction_order, and the second to the dependencies of that feature, in the order that the feature
+	 * lists them. Each entry is the position in extraction_order of the dependency. The first dimension is
+	 * null for features with no dependencies.
+	 */
+	private final int[][] dependency_positions;
+
+	/**
+	 * The largest number of windows of previous feature values that each feature that is to be extracted
+	 * needs before it can be extracted. Entries correspond to extraction_order.
+	 */
+	private final int[] maximum_offsets;
+
+	/**
+	 * Whether each feature that is to be extracted is also to be saved (as opposed to only being needed in
+	 * order to calculate a feature that is to be saved). Entries correspond to extraction_order.
+	 */
+	private final boolean[] features_to_save;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	private ExtractionPlan( int number_of_available_features,
+	                        boolean[] features_to_save_among_all,
+	                        int[] extraction_order,
+	                        String[] feature_names,
+	                        int[][] dependency_positions,
+	                        int[] maximum_offsets,
+	                        boolean[] features_to_save )
+	{
+		this.number_of_available_features = number_of_available_features;
+		this.features_to_save_among_all = features_to_save_among_all;
+		this.extraction_order = extraction_order;
+		this.feature_names = feature_names;
+		this.dependency_positions = dependency_positions;
+		this.maximum_offsets = maximum_offsets;
+		this.features_to_save = features_to_save;
+	}
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * Build the plan for extracting the specified features.
+	 *
+	 * @param all_feature_extractors		All features that can be extracted. Entries may be null for
+	 *										features that are neither to be saved nor needed to calculate
+	 *										features that are to be saved.
+	 * @param features_to_save_among_all	Which features are to be saved. Entries correspond to
+	 *										all_feature_extractors.
+	 * @return								The plan.
+	 * @throws Exception					An informative exception is thrown if no features are to be
+	 *										saved, if a feature that is needed was not provided, if a feature
+	 *										depends on a feature that does not exist or if features depend on
+	 *										each other cyclically.
+	 */
+	public static ExtractionPlan create( MIDIFeatureExtractor[] all_feature_extractors,
+	                                     boolean[] features_to_save_among_all )
+		throws Exception
+	{
+		int number_of_features = all_feature_extractors.length;
+		if (features_to_save_among_all.length != number_of_features)
+			throw new Exception("The number of features specified (" + features_to_save_among_all.length + ") does not match the number of feature extractors (" + number_of_features + ").");
+		boolean one_selected = false;
+		for (int feat = 0; feat < number_of_features; feat++)
+		{
+			if (features_to_save_among_all[feat])
+			{
+				one_selected = true;
+				if (all_feature_extractors[feat] == null)
+					throw new Exception("Feature " + (feat + 1) + " has been set to be saved, but no feature extractor was provided for it.");
+			}
+		}
+		if (!one_selected)
+			throw new Exception("No features have been set to be saved.");
+
+		// Resolve the dependencies of each provided feature to indices of all_feature_extractors
+		Map<String, Integer> indices_by_name = new HashMap<>();
+		for (int feat = 0; feat < number_of_features; feat++)
+			if (all_feature_extractors[feat] != null)
+				indices_by_name.put(all_feature_extractors[feat].getFeatureDefinition().name, feat);
+		int[][] dependency_indices = new int[number_of_features][];
+		for (int feat = 0; feat < number_of_features; feat++)
+		{
+			if (all_feature_extractors[feat] == null)
+				continue;
+			String[] dependencies = all_feature_extractors[feat].getDepenedencies();
+			if (dependencies == null)
+				continue;
+			dependency_indices[feat] = new int[dependencies.length];
+			for (int dep = 0; dep < dependencies.length; dep++)
+			{
+				Integer dependency_index = indices_by_name.get(dependencies[dep]);
+				if (dependency_index == null)
+					throw new Exception("The " + all_feature_extractors[feat].getFeatureDefinition().name + " feature needs the " + dependencies[dep] + " feature in order to be calculated, yet no feature with the latter name could be found.");
+				dependency_indices[feat][dep] = dependency_index;
+			}
+		}
+
+		// Find which features must be extracted: those to be saved, and everything they depend on
+		boolean[] needed = new boolean[number_of_features];
+		int[] stack = new int[number_of_features];
+		int stack_size = 0;
+		for (int feat = 0; feat < number_of_features; feat++)
+		{
+			if (features_to_save_among_all[feat])
+			{
+				needed[feat] = true;
+				stack[stack_size++] = feat;
+			}
+		}
+		while (stack_size > 0)
+		{
+			int feat = stack[--stack_size];
+			if (dependency_indices[feat] != null)
+				for (int dependency_index : dependency_indices[feat])
+					if (!needed[dependency_index])
+					{
+						needed[dependency_index] = true;
+						stack[stack_size++] = dependency_index;
+					}
+		}
+
+		// Count the distinct unresolved dependencies of each needed feature, and note which needed features
+		// depend on each feature
+		int[] remaining_dependencies = new int[number_of_features];
+		List<List<Integer>> dependents = new ArrayList<>(number_of_features);
+		for (int feat = 0; feat < number_of_features; feat++)
+			dependents.add(null);
+		int number_to_extract = 0;
+		for (int feat = 0; feat < number_of_features; feat++)
+		{
+			if (!needed[feat])
+				continue;
+			number_to_extract++;
+			if (dependency_indices[feat] != null)
+			{
+				for (int dependency_index : distinct(dependency_indices[feat]))
+				{
+					remaining_dependencies[feat]++;
+					if (dependents.get(dependency_index) == null)
+						dependents.set(dependency_index, new ArrayList<>());
+					dependents.get(dependency_index).add(feat);
+				}
+			}
+		}
+
+		// Order the features by repeatedly passing through them in their original order, adding each one
+		// whose dependencies have all already been added
+		int[] extraction_order = new int[number_to_extract];
+		int[] positions = new int[number_of_features];
+		boolean[] added = new boolean[number_of_features];
+		int number_added = 0;
+		boolean progress = true;
+		while (progress && number_added < number_to_extract)
+		{
+			progress = false;
+			for (int feat = 0; feat < number_of_features; feat++)
+			{
+				if (needed[feat] && !added[feat] && remaining_dependencies[feat] == 0)
+				{
+					added[feat] = true;
+					positions[feat] = number_added;
+					extraction_order[number_added++] = feat;
+					progress = true;
+					if (dependents.get(feat) != null)
+						for (int dependent : dependents.get(feat))
+							remaining_dependencies[dependent]--;
+				}
+			}
+		}
+		if (number_added < number_to_extract)
+		{
+			List<String> cyclic_features = new ArrayList<>();
+			for (int feat = 0; feat < number_of_features; feat++)
+				if (needed[feat] && !added[feat])
+					cyclic_features.add(all_feature_extractors[feat].getFeatureDefinition().name);
+			throw new Exception("The following features depend on each other cyclically, so they cannot be extracted: " + cyclic_features + ".");
+		}
+
+		// Find the names, dependency positions, maximum offsets and whether to save each feature to extract
+		String[] feature_names = new String[number_to_extract];
+		int[][] dependency_positions = new int[number_to_extract][];
+		int[] maximum_offsets = new int[number_to_extract];
+		boolean[] features_to_save = new boolean[number_to_extract];
+		for (int position = 0; position < number_to_extract; position++)
+		{
+			int feat = extraction_order[position];
+			MIDIFeatureExtractor extractor = all_feature_extractors[feat];
+			feature_names[position] = extractor.getFeatureDefinition().name;
+			if (dependency_indices[feat] != null)
+			{
+				dependency_positions[position] = new int[dependency_indices[feat].length];
+				for (int dep = 0; dep < dependency_indices[feat].length; dep++)
+					dependency_positions[position][dep] = positions[dependency_indices[feat][dep]];
+			}
+			int[] offsets = extractor.getDepenedencyOffsets();
+			if (offsets != null)
+				for (int offset : offsets)
+					maximum_offsets[position] = Math.max(maximum_offsets[position], Math.abs(offset));
+			features_to_save[position] = features_to_save_among_all[feat];
+		}
+
+		return new ExtractionPlan( number_of_features,
+		                           features_to_save_among_all.clone(),
+		                           extraction_order,
+		                           feature_names,
+		                           dependency_positions,
+		                           maximum_offsets,
+		                           features_to_save );
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Find the feature extractors to extract according to this plan, in extraction order, and verify that
+	 * they are the features that this plan was built for.
+	 *
+	 * @param all_feature_extractors	All features that can be extracted, in the same order as the feature
+	 *									extractors that this plan was built from. Entries may be null for
+	 *									features that this plan does not extract.
+	 * @return							The feature extractors to extract, in the order they are to be
+	 *									extracted.
+	 * @throws Exception				An informative exception is thrown if all_feature_extractors does not
+	 *									match this plan.
+	 */
+	public MIDIFeatureExtractor[] getFeatureExtractorsInExtractionOrder(MIDIFeatureExtractor[] all_feature_extractors)
+		throws Exception
+	{
+		if (all_feature_extractors.length != number_of_available_features)
+			throw new Exception("The extraction plan was built for " + number_of_available_features + " features, but " + all_feature_extractors.length + " feature extractors were provided.");
+		MIDIFeatureExtractor[] ordered_extractors = new MIDIFeatureExtractor[extraction_order.length];
+		for (int position = 0; position < extraction_order.length; position++)
+		{
+			MIDIFeatureExtractor extractor = all_feature_extractors[extraction_order[position]];
+			if (extractor == null || !extractor.getFeatureDefinition().name.equals(feature_names[position]))
+				throw new Exception("The extraction plan expects feature " + (extraction_order[position] + 1) + " to be " + feature_names[position] + ", but " + (extractor == null ? "no feature extractor" : extractor.getFeatureDefinition().name) + " was provided.");
+			ordered_extractors[position] = extractor;
+		}
+		return ordered_extractors;
+	}
+
+
+	/**
+	 * @return	The number of features that are extracted (including those that are only extracted because
+	 *			other features depend on them).
+	 */
+	public int getNumberOfFeaturesToExtract()
+	{
+		return extraction_order.length;
+	}
+
+
+	/**
+	 * @return	Which features are to be saved. Entries correspond to the list of feature extractors that
+	 *			this plan was built from.
+	 */
+	public boolean[] getFeaturesToSaveAmongAll()
+	{
+		return features_to_save_among_all.clone();
+	}
+
+
+	/**
+	 * @return	The index in the list of feature extractors that this plan was built from of each feature
+	 *			that is to be extracted, in the order that they are to be extracted.
+	 */
+	public int[] getExtractionOrder()
+	{
+		return extraction_order.clone();
+	}
+
+
+	/**
+	 * @return	The positions in the extraction order of the dependencies of each feature to be extracted,
+	 *			in the order that the feature lists them. The first index corresponds to the extraction
+	 *			order, and is null for features with no dependencies.
+	 */
+	public int[][] getDependencyPositions()
+	{
+		int[][] copy = new int[dependency_positions.length][];
+		for (int position = 0; position < copy.length; position++)
+			if (dependency_positions[position] != null)
+				copy[position] = dependency_positions[position].clone();
+		return copy;
+	}
+
+
+	/**
+	 * @return	The largest number of windows of previous feature values that each feature needs before it
+	 *			can be extracted. Entries correspond to the extraction order.
+	 */
+	public int[] getMaximumOffsets()
+	{
+		return maximum_offsets.clone();
+	}
+
+
+	/**
+	 * @return	Whether each feature that is to be extracted is also to be saved. Entries correspond to the
+	 *			extraction order.
+	 */
+	public boolean[] getFeaturesToSave()
+	{
+		return features_to_save.clone();
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * @param values	An array of values.
+	 * @return			The distinct values, in the order of their first occurrence.
+	 */
+	private static int[] distinct(int[] values)
+	{
+		int[] distinct_values = new int[values.length];
+		int count = 0;
+		for (int value : values)
+		{
+			boolean found = false;
+			for (int i = 0; i < count; i++)
+				if (distinct_values[i] == value)
+					found = true;
+			if (!found)
+				distinct_values[count++] = value;
+		}
+		return Arrays.copyOf(distinct_values, count);
+	}
+}
@@ -8,107 +8,590 @@ import jsymbolic2.features.pitchstatistics.*;
 import jsymbolic2.features.rhythm.*;
 import jsymbolic2.features.texture.*;
 import jsymbolic2.features.verticalintervals.*;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class collects all implemented MIDIFeatureExtractor classes (including MEIFeatureExtractor
  * extractors), orders them to match the specifications of the jSymbolic manual, and indicates which ones are
  * set to be extracted and saved by default and which ones can typically still be considered secure even if
- * improperly encoded symbolic files are being processed. This allows for consistent access to implemented 
- * features, regardless of whether the jSymbolic GUI, command line interface, API of configuration file is 
+ * improperly encoded symbolic files are being processed. This allows for consistent access to implemented
+ * features, regardless of whether the jSymbolic GUI, command line interface, API of configuration file is
  * being used.
  *
+ * <p>Feature metadata (names, codes, dependencies, etc.) is read from the FeatureIndex generated at build
+ * time the first time that it is needed, and each feature extractor is only instantiated once it is actually
+ * needed. This means that modes of operation that do not extract features do not pay the cost of loading
+ * every feature extractor class. If no FeatureIndex is available (e.g. if jSymbolic was compiled without the
+ * build step that generates it), then all feature extractors are instantiated at once and the index is
+ * generated from them.</p>
+ *
  * <p><b>IMPORTANT:</b>All newly implemented MIDIFeatureExtractor objects must be referenced in the
- * all_implemented_feature_extractors field of this class. Automatic error checking is performed on
- * all_implemented_feature_extractors at instantiation, and potential problems are printed to standard error.
+ * instantiateAllFeatureExtractors method of this class. Automatic error checking is performed on these
+ * extractors whenever the FeatureIndex is generated, and potential problems are printed to standard error.
  * </p>
  *
  * @author Cory McKay and Tristano Tenaglia
  */
 public final class FeatureExtractorAccess
 {
-	/* FIELDS ***********************************************************************************************/
+	/* PRIVATE STATIC FIELDS ********************************************************************************/
+
 
-	
 	/**
-	 * An array consisting of one instantiated MIDIFeatureExtractor object for each implemented feature
-	 * extractor (including MEIFeatureExtractor features). These are ordered in the same order in which they
-	 * are presented in the jSymbolic manual.
+	 * The maximum number of extraction plans held in extraction_plans. The cache is cleared when it is full.
 	 */
-	private static final MIDIFeatureExtractor[] all_implemented_feature_extractors;
+	private static final int maximum_cached_extraction_plans = 32;
 
 	/**
-	 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
-	 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in the
-	 * jSymbolic manual. Each entry is set to true if that feature is to be extracted and saved by default,
-	 * and to false if it is not.
+	 * Extraction plans built by getExtractionPlan, keyed by the features that they save (with an extra bit
+	 * set after the last feature, so that the number of features is part of the key).
 	 */
-	private static final boolean[] default_features_to_save;
-	
+	private static final Map<BitSet, ExtractionPlan> extraction_plans = new ConcurrentHashMap<>();
+
+
+	/* PRIVATE STATIC CLASSES *******************************************************************************/
+
+
 	/**
-	 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
-	 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in the
-	 * jSymbolic manual. Each entry is set to true if that feature is considered a secure feature, and to
-	 * false if it is not.
+	 * Holder for the feature metadata, which is initialized the first time that any of it is accessed.
 	 */
-	private static final boolean[] secure_features;
-	
+	private static final class Registry
+	{
+		/**
+		 * The index of the metadata of all implemented features, ordered in the same order in which they are
+		 * presented in the jSymbolic manual.
+		 */
+		private static final FeatureIndex index;
+
+		/**
+		 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+		 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in
+		 * the jSymbolic manual. Each entry holds the instantiated MIDIFeatureExtractor object for that
+		 * feature, or null if it has not been needed yet. Access is synchronized on this array.
+		 */
+		private static final MIDIFeatureExtractor[] feature_extractors;
+
+		/**
+		 * Whether every entry of feature_extractors has been instantiated.
+		 */
+		private static boolean all_instantiated;
+
+		/**
+		 * A map from the name of each feature to its index in the order in which features are presented in
+		 * the jSymbolic manual.
+		 */
+		private static final Map<String, Integer> feature_indices_by_name;
+
+		/**
+		 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+		 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in
+		 * the jSymbolic manual. Each entry is set to true if that feature is to be extracted and saved by
+		 * default, and to false if it is not.
+		 */
+		private static final boolean[] default_features_to_save;
+
+		/**
+		 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+		 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in
+		 * the jSymbolic manual. Each entry is set to true if that feature is considered a secure feature, and
+		 * to false if it is not.
+		 */
+		private static final boolean[] secure_features;
+
+		/**
+		 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+		 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in
+		 * the jSymbolic manual. Each entry is set to true if that feature has more than one dimension, and
+		 * to false if it does not.
+		 */
+		private static final boolean[] multi_dimensional_features;
+
+		/**
+		 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+		 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in
+		 * the jSymbolic manual. Each entry is set to true if that feature is an MEI-specific feature, and to
+		 * false if it is not.
+		 */
+		private static final boolean[] mei_specific_features;
+
+		/**
+		 * A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
+		 * (including MEIFeatureExtractor features). These are ordered in the same order in which they are
+		 * presented in the jSymbolic manual.
+		 */
+		private static final List<String> names_of_all_implemented_features;
+
+		/**
+		 * A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
+		 * (including MEIFeatureExtractor features) and that has also been chosen to be saved by default.
+		 * These are ordered in the same order in which they are presented in the jSymbolic manual.
+		 */
+		private static final List<String> names_of_default_features_to_save;
+
+		/**
+		 * A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
+		 * (including MEIFeatureExtractor features) and that are considered to be secure features. These
+		 * are ordered in the same order in which they are presented in the jSymbolic manual.
+		 */
+		private static final List<String> names_of_secure_features_to_save;
+
+		/**
+		 * A List consisting of the feature names of every feature implemented as an MEIeatureExtractor.
+		 * These are ordered in the same order in which they are presented in the jSymbolic manual.
+		 */
+		private static final List<String> names_of_mei_specific_features;
+
+		/**
+		 * Initialize the fields of this class from the FeatureIndex resource, or from all instantiated
+		 * feature extractors if it is unavailable. In the latter case, print warnings about any potential
+		 * problems detected to standard error, along with an indication of problem severity.
+		 */
+		static
+		{
+			FeatureIndex loaded_index = null;
+			try
+			{
+				loaded_index = FeatureIndex.load();
+			}
+			catch (IOException e)
+			{
+				System.err.println("WARNING: The feature index could not be loaded, so all features will be instantiated instead: " + e.getMessage());
+			}
+			if (loaded_index != null)
+			{
+				index = loaded_index;
+				feature_extractors = new MIDIFeatureExtractor[index.getNumberOfFeatures()];
+				all_instantiated = false;
+			}
+			else
+			{
+				feature_extractors = instantiateAllFeatureExtractors();
+				printWarningReportIfFeaturesAddedImproperly(feature_extractors);
+				index = FeatureIndex.fromFeatureExtractors(feature_extractors);
+				all_instantiated = true;
+			}
+
+			int number_of_features = index.getNumberOfFeatures();
+			feature_indices_by_name = new HashMap<>();
+			default_features_to_save = new boolean[number_of_features];
+			secure_features = new boolean[number_of_features];
+			multi_dimensional_features = new boolean[number_of_features];
+			mei_specific_features = new boolean[number_of_features];
+			List<String> all_names = new ArrayList<>();
+			List<String> default_names = new ArrayList<>();
+			List<String> secure_names = new ArrayList<>();
+			List<String> mei_names = new ArrayList<>();
+			for (int i = 0; i < number_of_features; i++)
+			{
+				String name = index.getName(i);
+				feature_indices_by_name.put(name, i);
+				default_features_to_save[i] = index.isDefault(i);
+				secure_features[i] = index.isSecure(i);
+				multi_dimensional_features[i] = index.getDimensions(i) > 1;
+				mei_specific_features[i] = index.isMeiSpecific(i);
+				all_names.add(name);
+				if (default_features_to_save[i])
+					default_names.add(name);
+				if (secure_features[i])
+					secure_names.add(name);
+				if (mei_specific_features[i])
+					mei_names.add(name);
+			}
+			names_of_all_implemented_features = all_names;
+			names_of_default_features_to_save = default_names;
+			names_of_secure_features_to_save = secure_names;
+			names_of_mei_specific_features = mei_names;
+
+			// Validation and testing
+			//printAllFeatures();
+			//printAllFeatureDependencies();
+			//System.out.println("DEFAULT FEATURES:/n" + getFeatureCatalogueOverviewReport(default_features_to_save));
+		}
+	}
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
 	/**
-	 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
-	 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in the
-	 * jSymbolic manual. Each entry is set to true if that feature has more than one dimension, and to
-	 * false if it does not.
+	 * @return	An array consisting of one instantiated MIDIFeatureExtractor object for each implemented
+	 *			feature extractor (including MEIFeatureExtractor features). These are ordered in the same
+	 *			order in which they are presented in the jSymbolic manual. Any feature extractors that have
+	 *			not yet been instantiated are instantiated by this call.
 	 */
-	private static final boolean[] multi_dimensional_features;
-	
+	public static MIDIFeatureExtractor[] getAllImplementedFeatureExtractors()
+	{
+		synchronized (Registry.feature_extractors)
+		{
+			if (!Registry.all_instantiated)
+			{
+				for (int i = 0; i < Registry.feature_extractors.length; i++)
+					getFeatureExtractor(i);
+				Registry.all_instantiated = true;
+			}
+			return Registry.feature_extractors;
+		}
+	}
+
 	/**
-	 * An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
-	 * MEIFeatureExtractor features). These are ordered in the same order in which they are presented in the
-	 * jSymbolic manual. Each entry is set to true if that feature is an MEI-specific feature, and to
-	 * false if it is not.
+	 * Return the feature extractors needed to extract the specified features, instantiating only those
+	 * extractors (i.e. the specified features and, recursively, the features they depend on).
+	 *
+	 * @param features_to_save	Which features are to be saved. This must correspond in size to the total
+	 *							number of features implemented, and must be ordered in the same order in
+	 *							which they are presented in the jSymbolic manual.
+	 * @return					An array of the same size and order as features_to_save. Entries hold the
+	 *							instantiated MIDIFeatureExtractor for each feature that is to be saved or that
+	 *							is needed to calculate a feature that is to be saved, and are null otherwise.
+	 * @throws Exception		Thrown if features_to_save is of the wrong size.
 	 */
-	private static final boolean[] mei_specific_features;
-	
+	public static MIDIFeatureExtractor[] getFeatureExtractorsForSelection(boolean[] features_to_save)
+		throws Exception
+	{
+		FeatureIndex index = Registry.index;
+		if (features_to_save.length != index.getNumberOfFeatures())
+			throw new Exception("The number of features specified (" + features_to_save.length + ") does not match the number of implemented features (" + index.getNumberOfFeatures() + ").");
+
+		boolean[] needed = new boolean[features_to_save.length];
+		LinkedList<Integer> to_visit = new LinkedList<>();
+		for (int i = 0; i < features_to_save.length; i++)
+			if (features_to_save[i])
+				to_visit.add(i);
+		while (!to_visit.isEmpty())
+		{
+			int feature = to_visit.removeFirst();
+			if (needed[feature])
+				continue;
+			needed[feature] = true;
+			String[] dependencies = index.getDependencies(feature);
+			if (dependencies != null)
+				for (String dependency : dependencies)
+				{
+					Integer dependency_index = Registry.feature_indices_by_name.get(dependency);
+					if (dependency_index != null)
+						to_visit.add(dependency_index);
+				}
+		}
+
+		MIDIFeatureExtractor[] extractors = new MIDIFeatureExtractor[needed.length];
+		synchronized (Registry.feature_extractors)
+		{
+			for (int i = 0; i < needed.length; i++)
+				if (needed[i])
+					extractors[i] = getFeatureExtractor(i);
+		}
+		return extractors;
+	}
+
 	/**
-	 * A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
-	 * (including MEIFeatureExtractor features). These are ordered in the same order in which they are
-	 * presented in the jSymbolic manual.
+	 * Return the plan for extracting the specified features with the feature extractors returned by
+	 * getFeatureExtractorsForSelection (or getAllImplementedFeatureExtractors). Plans are cached, so that
+	 * dependencies are only resolved once for any given selection of features.
+	 *
+	 * @param features_to_save	Which features are to be saved. This must correspond in size to the total
+	 *							number of features implemented, and must be ordered in the same order in
+	 *							which they are presented in the jSymbolic manual.
+	 * @return					The plan.
+	 * @throws Exception		Thrown if features_to_save is of the wrong size or does not select any
+	 *							features.
 	 */
-	private static final List<String> names_of_all_implemented_features;
+	public static ExtractionPlan getExtractionPlan(boolean[] features_to_save)
+		throws Exception
+	{
+		BitSet key = new BitSet(features_to_save.length);
+		for (int i = 0; i < features_to_save.length; i++)
+			key.set(i, features_to_save[i]);
+		key.set(features_to_save.length);
+		ExtractionPlan plan = extraction_plans.get(key);
+		if (plan == null)
+		{
+			plan = ExtractionPlan.create(getFeatureExtractorsForSelection(features_to_save), features_to_save);
+			if (extraction_plans.size() >= maximum_cached_extraction_plans)
+				extraction_plans.clear();
+			extraction_plans.put(key, plan);
+		}
+		return plan;
+	}
 
 	/**
-	 * A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
-	 * (including MEIFeatureExtractor features) and that has also been chosen to be saved by default. These
-	 * are ordered in the same order in which they are presented in the jSymbolic manual.
+	 * @return	The index of the metadata of all implemented features, ordered in the same order in which
+	 *			they are presented in the jSymbolic manual.
 	 */
-	private static final List<String> names_of_default_features_to_save;
+	public static FeatureIndex getFeatureIndex()
+	{
+		return Registry.index;
+	}
 
 	/**
-	 * A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
-	 * (including MEIFeatureExtractor features) and that are considered to be secure features. These
-	 * are ordered in the same order in which they are presented in the jSymbolic manual.
+	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
+	 *			in the jSymbolic manual. Each entry is set to true if that feature is to be extracted and
+	 *			saved by default, and to false if is not.
 	 */
-	private static final List<String> names_of_secure_features_to_save;
+	public static boolean[] getDefaultFeaturesToSave()
+	{
+		return Registry.default_features_to_save;
+	}
 
 	/**
-	 * A List consisting of the feature names of every feature implemented as an MEIeatureExtractor. These
-	 * are ordered in the same order in which they are presented in the jSymbolic manual.
+	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
+	 *			in the jSymbolic manual. Each entry is set to true if that feature is safe to be extracted and
+	 *			saved even when dealing with input symbolic music files that may be improperly or
+	 *			inconsistently encoded, and to false if it is not.
 	 */
-	private static final List<String> names_of_mei_specific_features;
+	public static boolean[] getSecureFeatures()
+	{
+		return Registry.secure_features;
+	}
 
-	
-	/* STATIC INITIALIZATION BLOCK **************************************************************************/
+	/**
+	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
+	 *			in the jSymbolic manual. Each entry is set to true if that feature is a multi-dimensional
+	 *			feature, and to false if it is not.
+	 */
+	public static boolean[] getMultiDimensionalFeatures()
+	{
+		return Registry.multi_dimensional_features;
+	}
 
+	/**
+	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including
+	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
+	 *			in the jSymbolic manual. Each entry is set to true if that feature is an MEI-specific feature,
+	 *			and to false if it is not.
+	 */
+	public static boolean[] getMeiSpecificFeatures()
+	{
+		return Registry.mei_specific_features;
+	}
+
+	/**
+	 * @return	A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
+	 *			(including MEIFeatureExtractor features). These are ordered in the same order in which they
+	 *			are presented in the jSymbolic manual.
+	 */
+	public static List<String> getNamesOfAllImplementedFeatures()
+	{
+		return Registry.names_of_all_implemented_features;
+	}
+
+	/**
+	 * @return	A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
+	 *			(including MEIFeatureExtractor features) and that has also been chosen to be saved by default.
+	 *			These are ordered in the same order in which they are presented in the jSymbolic manual.
+	 */
+	public static List<String> getNamesOfDefaultFeaturesToSave()
+	{
+		return Registry.names_of_default_features_to_save;
+	}
+
+	/**
+	 * @return	A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
+	 *			(including MEIFeatureExtractor features) and that has also been marked as safe to be extracted
+	 *			and saved, even when dealing with input symbolic music files that may be improperly or
+	 *			inconsistently encoded. These are ordered in the same order in which they are presented in the
+	 *			jSymbolic manual.
+	 */
+	public static List<String> getNamesOfSecureFeaturesToSave()
+	{
+		return Registry.names_of_secure_features_to_save;
+	}
+
+	/**
+	 * @return	A List consisting of the feature names of every feature implemented as an MEIFeatureExtractor.
+	 * 			These are ordered in the same order in which they are presented in the jSymbolic manual.
+	 */
+	public static List<String> getNamesOfMeiSpecificFeatures()
+	{
+		return Registry.names_of_mei_specific_features;
+	}
+			
+	/**
+	 * Given a list of which features should be extracted, return the names of those features that are set to
+	 * be extracted by this list.
+	 * 
+	 * @param features_to_extract	Which features should be extracted. This must correspond in size to the 
+	 *								total number of features implemented, and must be ordered in the same 
+	 *								order in which they are presented in the jSymbolic manual.
+	 * @return						The names of the features to extract.
+	 */
+	public static List<String> getNamesOfFeaturesToExtract(boolean[] features_to_extract)
+	{
+		List<String> names_of_all_features = FeatureExtractorAccess.getNamesOfAllImplementedFeatures();
+		List<String> feature_names_to_return = new ArrayList<>();
+		for (int f = 0; f < names_of_all_features.size(); f++)
+			if (features_to_extract[f])
+				feature_names_to_return.add(names_of_all_features.get(f));
+		return feature_names_to_return;
+	}
+		
+	/**
+	 * Take the specified list of feature names and return a boolean array indicating which amongst all the
+	 * features jSymbolic can extract have their names included in the specified list.
+	 *
+	 * @param chosen_feature_names	A list of names of features that should be marked as true in the returned
+	 *								array.
+	 * @return						An array sized to match the complete list of features that jSymbolic
+	 *								can extract, in the order that they are specified in the manual. A given
+	 *								entry is set to true if the name of the corresponding feature is contained
+	 *								in chosen_feature_names, and to false otherwise.
+	 * @throws Exception			An informative Exception is thrown if one of the feature names in
+	 *								chosen_feature_names does not correspond to the name of an implemented
+	 *								feature.
+	 */
+	public static boolean[] findSpecifiedFeatures(List<String> chosen_feature_names)
+			throws Exception
+	{
+		List<String> names_of_all_features = FeatureExtractorAccess.getNamesOfAllImplementedFeatures();
+		boolean[] chosen_features = new boolean[names_of_all_features.size()];
+		for (int i = 0; i < chosen_features.length; i++)
+			chosen_features[i] = false;
+		for (String this_feature_name : chosen_feature_names)
+		{
+			if (!names_of_all_features.contains(this_feature_name))
+				throw new Exception(this_feature_name + " is not the name of a feature implemented in this version of jSymbolic.");
+			int feature_index = names_of_all_features.lastIndexOf(this_feature_name);
+			chosen_features[feature_index] = true;
+		}
+		return chosen_features;
+	}
 	
 	/**
-	 * Initialize the fields of this class. Print warnings about any potential initialization problems
-	 * detected to standard error, along with an indication of problem severity.
+	 * Prepare a formatted report outlining statistics about the breakdown of all features, as well as of only
+	 * those features selected as defaults.
+     * 
+     * @param   features_to_include An array corresponding in size and order to the contents of the
+     *                              getAllImplementedFeatureExtractors method of this class. Values of true
+     *                              indicate that that feature should be included in this report, and false
+     *                              indicate that it should not. If this is null, then a report is generated
+     *                              for all implemented features.
+	 * @return                      The formatted report.
+	 */
+	public static String getFeatureCatalogueOverviewReport(boolean[] features_to_include)
+	{
+		FeatureIndex index = Registry.index;
+
+        // Set to report on all feautures if no specific features are specified.
+        if (features_to_include == null)
+        {
+            features_to_include = new boolean[index.getNumberOfFeatures()];
+            for (int i = 0; i < features_to_include.length; i++)
+                features_to_include[i] = true;
+        }
+
+		// Information relating to feature dimensions
+		int total_unique_features = 0;
+        int total_feature_dimensions = 0;
+		int total_one_dimensional_features = 0;
+		int total_multi_dimensional_features = 0;
+
+		// Information relating to sequential features
+		int total_sequential_features = 0;
+
+		// Information relating to feature types
+		String[] feature_type_labels = {"Overall Pitch Statistics", "Melodic Intervals", "Chords and Vertical Intervals", "Rhythm", "Instrumentation", "Musical Texture", "Dynamics", "MEI-Specific"};
+		int[] unique_features_by_type = new int[feature_type_labels.length];
+		int[] total_dimensions_by_type = new int[feature_type_labels.length];
+        for (int i = 0; i < feature_type_labels.length; i++)
+        {
+            unique_features_by_type[i] = 0;
+            total_dimensions_by_type[i] = 0;
+        }
+
+		// Collect feature stats by going through features one by one
+		for (int i = 0; i <  index.getNumberOfFeatures(); i++)
+		{
+            if (features_to_include[i])
+            {
+                int dimensions = index.getDimensions(i);
+
+                total_unique_features++;
+
+                total_feature_dimensions += dimensions;
+                if (dimensions == 1)
+                    total_one_dimensional_features++;
+                else total_multi_dimensional_features++;
+
+                if (index.isSequential(i))
+                    total_sequential_features++;
+
+                char code = index.getCode(i).charAt(0);
+                switch (code)
+                {
+                    case 'P':
+                        unique_features_by_type[0]++;
+                        total_dimensions_by_type[0] += dimensions;
+                        break;
+                    case 'M':
+                        unique_features_by_type[1]++;
+                        total_dimensions_by_type[1] += dimensions;
+                        break;
+                    case 'C':
+                        unique_features_by_type[2]++;
+                        total_dimensions_by_type[2] += dimensions;
+                        break;
+                    case 'R':
+                        unique_features_by_type[3]++;
+                        total_dimensions_by_type[3] += dimensions;
+                        break;
+                    case 'I':
+                        unique_features_by_type[4]++;
+                        total_dimensions_by_type[4] += dimensions;
+                        break;
+                    case 'T':
+                        unique_features_by_type[5]++;
+                        total_dimensions_by_type[5] += dimensions;
+                        break;
+                    case 'D':
+                        unique_features_by_type[6]++;
+                        total_dimensions_by_type[6] += dimensions;
+                        break;
+                    case 'S':
+                        unique_features_by_type[7]++;
+                        total_dimensions_by_type[7] += dimensions;
+                        break;
+                }
+            }
+		}
+
+		// Prepare the part of the report relating to all features
+		String report = total_unique_features + " unique features\n";
+		report += total_feature_dimensions + " combined feature dimensions\n";
+		report += total_one_dimensional_features + " unique one-dimensional features\n";
+		report += total_multi_dimensional_features + " unique multi-dimensional features\n";
+		report += total_sequential_features + " sequential features\n";
+		report += "Feature breakdown by type:\n";
+		for (int i = 0; i < feature_type_labels.length; i++)
+			report += "\t" + unique_features_by_type[i] + " unique " + feature_type_labels[i] + " features (" + total_dimensions_by_type[i] + " total dimensions)\n";
+
+		// Return the report
+		return report;
+	}
+
+
+	/* PACKAGE-PRIVATE STATIC METHODS ***********************************************************************/
+
+
+	/**
+	 * Instantiate one MIDIFeatureExtractor object for each implemented feature extractor (including
+	 * MEIFeatureExtractor features). This is the authoritative list of implemented features, from which the
+	 * FeatureIndex is generated.
+	 *
+	 * @return	The instantiated feature extractors, ordered in the same order in which they are presented in
+	 *			the jSymbolic manual.
 	 */
-	static
+	static MIDIFeatureExtractor[] instantiateAllFeatureExtractors()
 	{
-		all_implemented_feature_extractors = new MIDIFeatureExtractor[]
+		return new MIDIFeatureExtractor[]
 		{
 			// Add features based on pitch statistics
 			new BasicPitchHistogramFeature(),
@@ -290,439 +773,131 @@ public final class FeatureExtractorAccess
 			new MeanTempoFeature(),
 			new TempoVariabilityFeature(),
 			new DurationInSecondsFeature(),
-			new NoteDensityFeature(),
-			new NoteDensityVariabilityFeature(),
-			new AverageTimeBetweenAttacksFeature(),
-			new AverageTimeBetweenAttacksForEachVoiceFeature(),
-			new VariabilityOfTimeBetweenAttacksFeature(),
-			new AverageVariabilityOfTimeBetweenAttacksForEachVoiceFeature(),
-			new MinimumNoteDurationFeature(),
-			new MaximumNoteDurationFeature(),
-			new AverageNoteDurationFeature(),
-			new VariabilityOfNoteDurationsFeature(),
-			new AmountOfStaccatoFeature(),
-			new BeatHistogramFeature(),
-			new NumberOfStrongRhythmicPulsesFeature(),
-			new NumberOfModerateRhythmicPulsesFeature(),
-			new NumberOfRelativelyStrongRhythmicPulsesFeature(),
-			new StrongestRhythmicPulseFeature(),
-			new SecondStrongestRhythmicPulseFeature(),
-			new HarmonicityOfTwoStrongestRhythmicPulsesFeature(),
-			new StrengthOfStrongestRhythmicPulseFeature(),
-			new StrengthOfSecondStrongestRhythmicPulseFeature(),
-			new StrengthRatioOfTwoStrongestRhythmicPulsesFeature(),
-			new CombinedStrengthOfTwoStrongestRhythmicPulsesFeature(),
-			new RhythmicVariabilityFeature(),
-			new RhythmicLoosenessFeature(),
-			new PolyrhythmsFeature(),
-			
-			// Add features based on instrumentation
-			new PitchedInstrumentsPresentFeature(),
-			new UnpitchedInstrumentsPresentFeature(),
-			new NotePrevalenceOfPitchedInstrumentsFeature(),
-			new NotePrevalenceOfUnpitchedInstrumentsFeature(),
-			new TimePrevalenceOfPitchedInstrumentsFeature(),
-			new VariabilityOfNotePrevalenceOfPitchedInstrumentsFeature(),
-			new VariabilityOfNotePrevalenceOfUnpitchedInstrumentsFeature(),
-			new NumberOfPitchedInstrumentsFeature(),
-			new NumberOfUnpitchedInstrumentsFeature(),
-			new UnpitchedPercussionInstrumentPrevalenceFeature(),
-			new StringKeyboardPrevalenceFeature(),
-			new AcousticGuitarPrevalenceFeature(),
-			new ElectricGuitarPrevalenceFeature(),
-			new ViolinPrevalenceFeature(),
-			new SaxophonePrevalenceFeature(),
-			new BrassPrevalenceFeature(),
-			new WoodwindsPrevalenceFeature(),
-			new OrchestralStringsPrevalenceFeature(),
-			new StringEnsemblePrevalenceFeature(),
-			new ElectricInstrumentPrevalenceFeature(),
-			
-			// Add features based on musical texture
-			new MaximumNumberOfIndependentVoicesFeature(),
-			new AverageNumberOfIndependentVoicesFeature(),
-			new VariabilityOfNumberOfIndependentVoicesFeature(),
-			new VoiceEqualityNumberOfNotesFeature(),
-			new VoiceEqualityNoteDurationFeature(),
-			new VoiceEqualityDynamicsFeature(),
-			new VoiceEqualityMelodicLeapsFeature(),
-			new VoiceEqualityRangeFeature(),
-			new ImportanceOfLoudestVoiceFeature(),
-			new RelativeRangeOfLoudestVoiceFeature(),
-			new RelativeRangeIsolationOfLoudestVoiceFeature(),
-			new RelativeRangeOfHighestLineFeature(),
-			new RelativeNoteDensityOfHighestLineFeature(),
-			new RelativeNoteDurationsOfLowestLineFeature(),
-			new RelativeSizeOfMelodicIntervalsInLowestLineFeature(),
-			new VoiceOverlapFeature(),
-			new VoiceSeparationFeature(),
-			new VariabilityOfVoiceSeparationFeature(),
-			new ParallelMotionFeature(),
-			new SimilarMotionFeature(),
-			new ContraryMotionFeature(),
-			new ObliqueMotionFeature(),
-			new ParallelFifthsFeature(),
-			new ParallelOctavesFeature(),
-			
-			// Add features based on dynamics
-			new DynamicRangeFeature(),
-			new VariationOfDynamicsFeature(),
-			new VariationOfDynamicsInEachVoiceFeature(),
-			new AverageNoteToNoteChangeInDynamics(),
-			
-			// Add MEI-specific features
-			new NumberOfGraceNotesMeiFeature(),
-			new NumberOfSlursMeiFeature()
-		};
-
-		default_features_to_save = new boolean[all_implemented_feature_extractors.length];
-		for (int i = 0; i < default_features_to_save.length; i++)
-			default_features_to_save[i] = all_implemented_feature_extractors[i].getIsDefault();
-
-		secure_features = new boolean[all_implemented_feature_extractors.length];
-		for (int i = 0; i < secure_features.length; i++)
-			secure_features[i] = all_implemented_feature_extractors[i].getIsSecure();
-		
-		multi_dimensional_features = new boolean[all_implemented_feature_extractors.length];
-		for (int i = 0; i < multi_dimensional_features.length; i++)
-		{
-			if (all_implemented_feature_extractors[i].getFeatureDefinition().dimensions > 1)
-				multi_dimensional_features[i] = true;
-			else multi_dimensional_features[i] = false;
-		}
-		
-		mei_specific_features = new boolean[all_implemented_feature_extractors.length];
-		for (int i = 0; i < secure_features.length; i++)
-		{
-			if (all_implemented_feature_extractors[i] instanceof MEIFeatureExtractor)
-				mei_specific_features[i] = true;
-			else mei_specific_features[i] = false;
-		}
-		
-		names_of_all_implemented_features = new ArrayList<>();
-		List<MIDIFeatureExtractor> all_extractors = Arrays.asList(all_implemented_feature_extractors);
-		for (MIDIFeatureExtractor fe : all_extractors)
-			names_of_all_implemented_features.add(fe.getFeatureDefinition().name);
-
-		names_of_default_features_to_save = new ArrayList<>();
-		for (int i = 0; i < default_features_to_save.length; i++)
-			if (default_features_to_save[i])
-				names_of_default_features_to_save.add(names_of_all_implemented_features.get(i));
-		
-		names_of_secure_features_to_save = new ArrayList<>();
-		for (int i = 0; i < secure_features.length; i++)
-			if (secure_features[i])
-				names_of_default_features_to_save.add(names_of_all_implemented_features.get(i));
-		
-		names_of_mei_specific_features = new ArrayList<>();
-		for (MIDIFeatureExtractor feature : all_implemented_feature_extractors)
-		{
-			if (feature instanceof MEIFeatureExtractor)
-			{
-				String mei_feature_name = feature.getFeatureDefinition().name;
-				names_of_mei_specific_features.add(mei_feature_name);
-			}
-		}
-		
-		// Validation and testing
-		printWarningReportIfFeaturesAddedImproperly();
-		//printAllFeatures();
-		//printAllFeatureDependencies();
-		//System.out.println("DEFAULT FEATURES:/n" + getFeatureCatalogueOverviewReport(default_features_to_save));
-	}
-	
-
-	/* PUBLIC STATIC METHODS ********************************************************************************/
-	
-	
-	/**
-	 * @return	An array consisting of one instantiated MIDIFeatureExtractor object for each implemented
-	 *			feature extractor (including MEIFeatureExtractor features). These are ordered in the same 
-	 *			order in which they are presented in the jSymbolic manual.
-	 */
-	public static MIDIFeatureExtractor[] getAllImplementedFeatureExtractors()
-	{
-		return all_implemented_feature_extractors;
-	}
-
-	/**
-	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including 
-	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
-	 *			in the jSymbolic manual. Each entry is set to true if that feature is to be extracted and
-	 *			saved by default, and to false if is not.
-	 */
-	public static boolean[] getDefaultFeaturesToSave()
-	{
-		return default_features_to_save;
-	}
-
-	/**
-	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including 
-	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
-	 *			in the jSymbolic manual. Each entry is set to true if that feature is safe to be extracted and
-	 *			saved even when dealing with input symbolic music files that may be improperly or
-	 *			inconsistently encoded, and to false if it is not.
-	 */
-	public static boolean[] getSecureFeatures()
-	{
-		return secure_features;
-	}
-
-	/**
-	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including 
-	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
-	 *			in the jSymbolic manual. Each entry is set to true if that feature is a multi-dimensional 
-	 *			feature, and to false if it is not.
-	 */
-	public static boolean[] getMultiDimensionalFeatures()
-	{
-		return multi_dimensional_features;
-	}
-	
-	/**
-	 * @return	An array with one entry for every feature implemented as a MIDIFeatureExtractor (including 
-	 *			MEIFeatureExtractor features). These are ordered in the same order in which they are presented
-	 *			in the jSymbolic manual. Each entry is set to true if that feature is an MEI-specific feature,
-	 *			and to false if it is not.
-	 */
-	public static boolean[] getMeiSpecificFeatures()
-	{
-		return mei_specific_features;
-	}
-	
-	/**
-	 * @return	A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
-	 *			(including MEIFeatureExtractor features). These are ordered in the same order in which they 
-	 *			are presented in the jSymbolic manual.
-	 */
-	public static List<String> getNamesOfAllImplementedFeatures()
-	{
-		return names_of_all_implemented_features;
-	}
-
-	/**
-	 * @return	A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
-	 *			(including MEIFeatureExtractor features) and that has also been chosen to be saved by default.
-	 *			These are ordered in the same order in which they are presented in the jSymbolic manual.
-	 */
-	public static List<String> getNamesOfDefaultFeaturesToSave()
-	{
-		return names_of_default_features_to_save;
-	}
-
-	/**
-	 * @return	A List consisting of the feature names of every feature implemented as a MIDIFeatureExtractor
-	 *			(including MEIFeatureExtractor features) and that has also been marked as safe to be extracted
-	 *			and saved, even when dealing with input symbolic music files that may be improperly or 
-	 *			inconsistently encoded. These are ordered in the same order in which they are presented in the
-	 *			jSymbolic manual.
-	 */
-	public static List<String> getNamesOfSecureFeaturesToSave()
-	{
-		return names_of_secure_features_to_save;
-	}
-
-	/**
-	 * @return	A List consisting of the feature names of every feature implemented as an MEIFeatureExtractor.
-	 * 			These are ordered in the same order in which they are presented in the jSymbolic manual.
-	 */
-	public static List<String> getNamesOfMeiSpecificFeatures()
-	{
-		return names_of_mei_specific_features;
-	}
+			new NoteDensityFeature(),
+			new NoteDensityVariabilityFeature(),
+			new AverageTimeBetweenAttacksFeature(),
+			new AverageTimeBetweenAttacksForEachVoiceFeature(),
+			new VariabilityOfTimeBetweenAttacksFeature(),
+			new AverageVariabilityOfTimeBetweenAttacksForEachVoiceFeature(),
+			new MinimumNoteDurationFeature(),
+			new MaximumNoteDurationFeature(),
+			new AverageNoteDurationFeature(),
+			new VariabilityOfNoteDurationsFeature(),
+			new AmountOfStaccatoFeature(),
+			new BeatHistogramFeature(),
+			new NumberOfStrongRhythmicPulsesFeature(),
+			new NumberOfModerateRhythmicPulsesFeature(),
+			new NumberOfRelativelyStrongRhythmicPulsesFeature(),
+			new StrongestRhythmicPulseFeature(),
+			new SecondStrongestRhythmicPulseFeature(),
+			new HarmonicityOfTwoStrongestRhythmicPulsesFeature(),
+			new StrengthOfStrongestRhythmicPulseFeature(),
+			new StrengthOfSecondStrongestRhythmicPulseFeature(),
+			new StrengthRatioOfTwoStrongestRhythmicPulsesFeature(),
+			new CombinedStrengthOfTwoStrongestRhythmicPulsesFeature(),
+			new RhythmicVariabilityFeature(),
+			new RhythmicLoosenessFeature(),
+			new PolyrhythmsFeature(),
 			
-	/**
-	 * Given a list of which features should be extracted, return the names of those features that are set to
-	 * be extracted by this list.
-	 * 
-	 * @param features_to_extract	Which features should be extracted. This must correspond in size to the 
-	 *								total number of features implemented, and must be ordered in the same 
-	 *								order in which they are presented in the jSymbolic manual.
-	 * @return						The names of the features to extract.
-	 */
-	public static List<String> getNamesOfFeaturesToExtract(boolean[] features_to_extract)
-	{
-		List<String> names_of_all_features = FeatureExtractorAccess.getNamesOfAllImplementedFeatures();
-		List<String> feature_names_to_return = new ArrayList<>();
-		for (int f = 0; f < names_of_all_features.size(); f++)
-			if (features_to_extract[f])
-				feature_names_to_return.add(names_of_all_features.get(f));
-		return feature_names_to_return;
-	}
-		
-	/**
-	 * Take the specified list of feature names and return a boolean array indicating which amongst all the
-	 * features jSymbolic can extract have their names included in the specified list.
-	 *
-	 * @param chosen_feature_names	A list of names of features that should be marked as true in the returned
-	 *								array.
-	 * @return						An array sized to match the complete list of features that jSymbolic
-	 *								can extract, in the order that they are specified in the manual. A given
-	 *								entry is set to true if the name of the corresponding feature is contained
-	 *								in chosen_feature_names, and to false otherwise.
-	 * @throws Exception			An informative Exception is thrown if one of the feature names in
-	 *								chosen_feature_names does not correspond to the name of an implemented
-	 *								feature.
-	 */
-	public static boolean[] findSpecifiedFeatures(List<String> chosen_feature_names)
-			throws Exception
-	{
-		List<String> names_of_all_features = FeatureExtractorAccess.getNamesOfAllImplementedFeatures();
-		boolean[] chosen_features = new boolean[names_of_all_features.size()];
-		for (int i = 0; i < chosen_features.length; i++)
-			chosen_features[i] = false;
-		for (String this_feature_name : chosen_feature_names)
-		{
-			if (!names_of_all_features.contains(this_feature_name))
-				throw new Exception(this_feature_name + " is not the name of a feature implemented in this version of jSymbolic.");
-			int feature_index = names_of_all_features.lastIndexOf(this_feature_name);
-			chosen_features[feature_index] = true;
-		}
-		return chosen_features;
+			// Add features based on instrumentation
+			new PitchedInstrumentsPresentFeature(),
+			new UnpitchedInstrumentsPresentFeature(),
+			new NotePrevalenceOfPitchedInstrumentsFeature(),
+			new NotePrevalenceOfUnpitchedInstrumentsFeature(),
+			new TimePrevalenceOfPitchedInstrumentsFeature(),
+			new VariabilityOfNotePrevalenceOfPitchedInstrumentsFeature(),
+			new VariabilityOfNotePrevalenceOfUnpitchedInstrumentsFeature(),
+			new NumberOfPitchedInstrumentsFeature(),
+			new NumberOfUnpitchedInstrumentsFeature(),
+			new UnpitchedPercussionInstrumentPrevalenceFeature(),
+			new StringKeyboardPrevalenceFeature(),
+			new AcousticGuitarPrevalenceFeature(),
+			new ElectricGuitarPrevalenceFeature(),
+			new ViolinPrevalenceFeature(),
+			new SaxophonePrevalenceFeature(),
+			new BrassPrevalenceFeature(),
+			new WoodwindsPrevalenceFeature(),
+			new OrchestralStringsPrevalenceFeature(),
+			new StringEnsemblePrevalenceFeature(),
+			new ElectricInstrumentPrevalenceFeature(),
+			
+			// Add features based on musical texture
+			new MaximumNumberOfIndependentVoicesFeature(),
+			new AverageNumberOfIndependentVoicesFeature(),
+			new VariabilityOfNumberOfIndependentVoicesFeature(),
+			new VoiceEqualityNumberOfNotesFeature(),
+			new VoiceEqualityNoteDurationFeature(),
+			new VoiceEqualityDynamicsFeature(),
+			new VoiceEqualityMelodicLeapsFeature(),
+			new VoiceEqualityRangeFeature(),
+			new ImportanceOfLoudestVoiceFeature(),
+			new RelativeRangeOfLoudestVoiceFeature(),
+			new RelativeRangeIsolationOfLoudestVoiceFeature(),
+			new RelativeRangeOfHighestLineFeature(),
+			new RelativeNoteDensityOfHighestLineFeature(),
+			new RelativeNoteDurationsOfLowestLineFeature(),
+			new RelativeSizeOfMelodicIntervalsInLowestLineFeature(),
+			new VoiceOverlapFeature(),
+			new VoiceSeparationFeature(),
+			new VariabilityOfVoiceSeparationFeature(),
+			new ParallelMotionFeature(),
+			new SimilarMotionFeature(),
+			new ContraryMotionFeature(),
+			new ObliqueMotionFeature(),
+			new ParallelFifthsFeature(),
+			new ParallelOctavesFeature(),
+			
+			// Add features based on dynamics
+			new DynamicRangeFeature(),
+			new VariationOfDynamicsFeature(),
+			new VariationOfDynamicsInEachVoiceFeature(),
+			new AverageNoteToNoteChangeInDynamics(),
+			
+			// Add MEI-specific features
+			new NumberOfGraceNotesMeiFeature(),
+			new NumberOfSlursMeiFeature()
+		};
 	}
-	
-	/**
-	 * Prepare a formatted report outlining statistics about the breakdown of all features, as well as of only
-	 * those features selected as defaults.
-     * 
-     * @param   features_to_include An array corresponding in size and order to the contents of the
-     *                              all_implemented_feature_extractors field of this class. Values of true
-     *                              indicate that that feature should be included in this report, and false
-     *                              indicate that it should not. If this is null, then a report is generated
-     *                              for all implemented features.
-	 * @return                      The formatted report.
-	 */
-	public static String getFeatureCatalogueOverviewReport(boolean[] features_to_include)
-	{
-        // Set to report on all feautures if no specific features are specified.
-        if (features_to_include == null)
-        {
-            features_to_include = new boolean[all_implemented_feature_extractors.length];
-            for (int i = 0; i < features_to_include.length; i++)
-                features_to_include[i] = true;
-        }
-        
-		// Information relating to feature dimensions
-		int total_unique_features = 0;
-        int total_feature_dimensions = 0;
-		int total_one_dimensional_features = 0;
-		int total_multi_dimensional_features = 0;
-		
-		// Information relating to sequential features
-		int total_sequential_features = 0;
-		
-		// Information relating to feature types
-		String[] feature_type_labels = {"Overall Pitch Statistics", "Melodic Intervals", "Chords and Vertical Intervals", "Rhythm", "Instrumentation", "Musical Texture", "Dynamics", "MEI-Specific"};
-		int[] unique_features_by_type = new int[feature_type_labels.length];
-		int[] total_dimensions_by_type = new int[feature_type_labels.length];
-        for (int i = 0; i < feature_type_labels.length; i++)
-        {
-            unique_features_by_type[i] = 0;
-            total_dimensions_by_type[i] = 0;
-        }
-		
-		// Collect feature stats by going through features one by one
-		for (int i = 0; i <  all_implemented_feature_extractors.length; i++)
-		{
-            if (features_to_include[i])
-            {
-                MIDIFeatureExtractor feat = all_implemented_feature_extractors[i];
-
-                total_unique_features++;
-                
-                total_feature_dimensions += feat.getFeatureDefinition().dimensions;
-                if (feat.getFeatureDefinition().dimensions == 1)
-                    total_one_dimensional_features++;
-                else total_multi_dimensional_features++;
-
-                if (feat.getFeatureDefinition().is_sequential)
-                    total_sequential_features++;
-
-                char code = feat.getFeatureDefinition().code.charAt(0);
-                switch (code)
-                {
-                    case 'P':
-                        unique_features_by_type[0]++;
-                        total_dimensions_by_type[0] += feat.getFeatureDefinition().dimensions;
-                        break;
-                    case 'M':
-                        unique_features_by_type[1]++;
-                        total_dimensions_by_type[1] += feat.getFeatureDefinition().dimensions;
-                        break;
-                    case 'C':
-                        unique_features_by_type[2]++;
-                        total_dimensions_by_type[2] += feat.getFeatureDefinition().dimensions;
-                        break;
-                    case 'R':
-                        unique_features_by_type[3]++;
-                        total_dimensions_by_type[3] += feat.getFeatureDefinition().dimensions;
-                        break;
-                    case 'I':
-                        unique_features_by_type[4]++;
-                        total_dimensions_by_type[4] += feat.getFeatureDefinition().dimensions;
-                        break;
-                    case 'T':
-                        unique_features_by_type[5]++;
-                        total_dimensions_by_type[5] += feat.getFeatureDefinition().dimensions;
-                        break;
-                    case 'D':
-                        unique_features_by_type[6]++;
-                        total_dimensions_by_type[6] += feat.getFeatureDefinition().dimensions;
-                        break;
-                    case 'S':
-                        unique_features_by_type[7]++;
-                        total_dimensions_by_type[7] += feat.getFeatureDefinition().dimensions;
-                        break;
-                }
-            }
-		}
-		
-		// Prepare the part of the report relating to all features
-		String report = total_unique_features + " unique features\n";
-		report += total_feature_dimensions + " combined feature dimensions\n";
-		report += total_one_dimensional_features + " unique one-dimensional features\n";
-		report += total_multi_dimensional_features + " unique multi-dimensional features\n";
-		report += total_sequential_features + " sequential features\n";
-		report += "Feature breakdown by type:\n";
-		for (int i = 0; i < feature_type_labels.length; i++)
-			report += "\t" + unique_features_by_type[i] + " unique " + feature_type_labels[i] + " features (" + total_dimensions_by_type[i] + " total dimensions)\n";
 
-		// Return the report
-		return report;
-	}
-	
 
-	/* PRIVATE STATIC METHODS *******************************************************************************/
-	
-	
 	/**
-	 * Verify that the all_implemented_feature_extractors has been set up in a way that is self-consistent and
+	 * Verify that the given feature extractors have been set up in a way that is self-consistent and
 	 * compatible. Print warnings about any potential problems detected to standard error, along with an
 	 * indication of problem severity. This is a useful error checker to help make sure that new features
 	 * added to extend jSymbolic have been added properly. The following potential issues are checked:
-	 * 
-	 * 1) Verify that no features have been added to all_implemented_feature_extractors that are dependent on 
+	 *
+	 * 1) Verify that no features have been added to all_implemented_feature_extractors that are dependent on
 	 * features  that have not themselves been added to all_implemented_feature_extractors.
-	 * 2) Verify that no more than one feature with any given feature name has been added to 
+	 * 2) Verify that no more than one feature with any given feature name has been added to
 	 * all_implemented_feature_extractors.
-	 * 3) Verify that no more than one feature with any given feature code has been added to 
+	 * 3) Verify that no more than one feature with any given feature code has been added to
 	 * all_implemented_feature_extractors.
 	 * 4) Verify that no feature names have commas in them (since this can cause problems when saved CSV
 	 * or ARFF files are parsed).
 	 * 5) Verify that no feature names have underscores in them (since this can cause problems when saved CSV
 	 * or ARFF files are parsed).
-	 * 6) Verify that all features have been added contiguously to all_implemented_feature_extractors, based 
+	 * 6) Verify that all features have been added contiguously to all_implemented_feature_extractors, based
 	 * on their feature code groups and numbers, and that all feature codes are properly formatted.
 	 * 7) Verify that, by default all MEI-specific features have been set to not be extracted, and that all
 	 * other features have been set to be extracted.
+	 *
+	 * @param all_implemented_feature_extractors	All implemented feature extractors, as returned by
+	 *												instantiateAllFeatureExtractors.
 	 */
-	private static void printWarningReportIfFeaturesAddedImproperly()
+	static void printWarningReportIfFeaturesAddedImproperly(MIDIFeatureExtractor[] all_implemented_feature_extractors)
 	{
 		// A report of problems encountered
 		String problem_report = "";
-				
+
 		// The names of all features added, in the order they have been added
-		String[] names_of_all_features_added = names_of_all_implemented_features.toArray(new String[names_of_all_implemented_features.size()]);
+		String[] names_of_all_features_added = new String[all_implemented_feature_extractors.length];
+		for (int i = 0; i < names_of_all_features_added.length; i++)
+			names_of_all_features_added[i] = all_implemented_feature_extractors[i].getFeatureDefinition().name;
+
+		// Whether each feature is to be extracted and saved by default
+		boolean[] default_features_to_save = new boolean[all_implemented_feature_extractors.length];
+		for (int i = 0; i < default_features_to_save.length; i++)
+			default_features_to_save[i] = all_implemented_feature_extractors[i].getIsDefault();
 
 		// Verify that no features have been added to all_implemented_feature_extractors that are dependent on
 		// features that have not themselves been added to all_implemented_feature_extractors
@@ -843,35 +1018,72 @@ public final class FeatureExtractorAccess
 		if (!problem_report.isEmpty())
 			System.err.println("\n" + problem_report + "\n");
 	}
-	
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Return the instantiated feature extractor for the specified feature, instantiating it from the class
+	 * named in the FeatureIndex if this has not already been done. Callers must synchronize on
+	 * Registry.feature_extractors.
+	 *
+	 * @param feature	The index of the feature, in the order in which features are presented in the
+	 *					jSymbolic manual.
+	 * @return			The feature extractor.
+	 */
+	private static MIDIFeatureExtractor getFeatureExtractor(int feature)
+	{
+		MIDIFeatureExtractor extractor = Registry.feature_extractors[feature];
+		if (extractor == null)
+		{
+			String class_name = Registry.index.getClassName(feature);
+			try
+			{
+				extractor = Class.forName(class_name).asSubclass(MIDIFeatureExtractor.class).getDeclaredConstructor().newInstance();
+			}
+			catch (ReflectiveOperationException | ClassCastException e)
+			{
+				throw new IllegalStateException("Could not instantiate the feature extractor " + class_name + " listed in the feature index: " + e + ". jSymbolic may need to be rebuilt.");
+			}
+			if (!extractor.getFeatureDefinition().name.equals(Registry.index.getName(feature)))
+				throw new IllegalStateException("The feature index lists " + class_name + " as " + Registry.index.getName(feature) + ", but it extracts " + extractor.getFeatureDefinition().name + ". The feature index is out of date, and jSymbolic needs to be rebuilt.");
+			Registry.feature_extractors[feature] = extractor;
+		}
+		return extractor;
+	}
+
 	/**
 	 * Debugging method that prints the total number of implemented features, including the code and name of
 	 * each feature, in the correct listed order.
 	 */
 	private static void printAllFeatures()
 	{
-		System.out.println("ALL " + all_implemented_feature_extractors.length + " IMPLEMENTED FEATURES:");
-		for (int i = 0; i < all_implemented_feature_extractors.length; i++)
-			System.out.println( (i+1) + ":\t" + all_implemented_feature_extractors[i].getFeatureDefinition().code + "\t" +
-			                    all_implemented_feature_extractors[i].definition.name);
+		FeatureIndex index = Registry.index;
+		System.out.println("ALL " + index.getNumberOfFeatures() + " IMPLEMENTED FEATURES:");
+		for (int i = 0; i < index.getNumberOfFeatures(); i++)
+			System.out.println( (i+1) + ":\t" + index.getCode(i) + "\t" +
+			                    index.getName(i));
 	}
-	
+
 	/**
 	 * Debugging method that identifies all features whose calculation depends directly on the use of another
 	 * implemented feature, and lists what the dependencies are of each of these features.
-	 */	
+	 */
 	private static void printAllFeatureDependencies()
 	{
+		FeatureIndex index = Registry.index;
 		System.out.println("FEATURES WHOSE CALCULATION DEPENDS ON OTHER FEATURES:");
-		for (int i = 0; i < all_implemented_feature_extractors.length; i++)
+		for (int i = 0; i < index.getNumberOfFeatures(); i++)
 		{
-			if (all_implemented_feature_extractors[i].dependencies != null)
+			String[] dependencies = index.getDependencies(i);
+			if (dependencies != null)
 			{
-				System.out.println(all_implemented_feature_extractors[i].getFeatureDefinition().code + "\t" +
-			                        all_implemented_feature_extractors[i].definition.name);
-				for (int j = 0; j < all_implemented_feature_extractors[i].dependencies.length; j++)
-					System.out.println("\tDEPENDS ON: " + all_implemented_feature_extractors[i].dependencies[j]);
+				System.out.println(index.getCode(i) + "\t" +
+			                        index.getName(i));
+				for (int j = 0; j < dependencies.length; j++)
+					System.out.println("\tDEPENDS ON: " + dependencies[j]);
 			}
 		}
 	}
-}
\ No newline at end of file
+}
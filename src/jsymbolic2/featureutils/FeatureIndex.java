@@ -0,0 +1,392 @@
+package jsymbolic2.featureutils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact index of the metadata of every implemented feature (the name of its MIDIFeatureExtractor class,
+ * its name, code, dimensions, dependencies and whether it is sequential, a default feature, a secure feature
+ * and an MEI-specific feature), in the order in which the features are presented in the jSymbolic manual.
+ * This allows FeatureExtractorAccess to answer questions about the features (e.g. when validating a
+ * configuration file or presenting feature names) without loading and instantiating every feature extractor
+ * class, and to instantiate only the extractors that are actually needed.
+ *
+ * <p>The index is generated from the feature extractors themselves by running the main method of this class
+ * as part of the build, and is stored as the feature_index.txt resource next to this class. Each line after
+ * the header holds one feature, with the fields listed above separated by tabs (flags are 0 or 1, and
+ * dependencies are separated by | characters).</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class FeatureIndex
+{
+	/* PUBLIC STATIC FINAL FIELDS ***************************************************************************/
+
+
+	/**
+	 * The name of the resource (relative to this class) that the index is stored in.
+	 */
+	public static final String resource_name = "feature_index.txt";
+
+
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The first line of the index.
+	 */
+	private static final String header = "# jSymbolic feature index (class, name, code, dimensions, sequential, default, secure, MEI-specific, dependencies). Generated by jsymbolic2.featureutils.FeatureIndex; do not edit.";
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The fully qualified names of the MIDIFeatureExtractor classes of the features.
+	 */
+	private final String[] class_names;
+
+	/**
+	 * The names of the features.
+	 */
+	private final String[] names;
+
+	/**
+	 * The codes of the features.
+	 */
+	private final String[] codes;
+
+	/**
+	 * The number of dimensions of each feature.
+	 */
+	private final int[] dimensions;
+
+	/**
+	 * Whether each feature is sequential.
+	 */
+	private final boolean[] sequential;
+
+	/**
+	 * Whether each feature is extracted and saved by default.
+	 */
+	private final boolean[] defaults;
+
+	/**
+	 * Whether each feature is secure.
+	 */
+	private final boolean[] secure;
+
+	/**
+	 * Whether each feature is MEI-specific.
+	 */
+	private final boolean[] mei_specific;
+
+	/**
+	 * The names of the features that each feature depends on. Entries are null for features without
+	 * dependencies.
+	 */
+	private final String[][] dependencies;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Allocate an index for the given number of features.
+	 *
+	 * @param number_of_features	The number of features.
+	 */
+	private FeatureIndex(int number_of_features)
+	{
+		class_names = new String[number_of_features];
+		names = new String[number_of_features];
+		codes = new String[number_of_features];
+		dimensions = new int[number_of_features];
+		sequential = new boolean[number_of_features];
+		defaults = new boolean[number_of_features];
+		secure = new boolean[number_of_features];
+		mei_specific = new boolean[number_of_features];
+		dependencies = new String[number_of_features][];
+	}
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * Generate the index of the given feature extractors.
+	 *
+	 * @param feature_extractors	The feature extractors, in the order they are to be indexed.
+	 * @return						The index.
+	 */
+	public static FeatureIndex fromFeatureExtractors(MIDIFeatureExtractor[] feature_extractors)
+	{
+		FeatureIndex index = new FeatureIndex(feature_extractors.length);
+		for (int feat = 0; feat < feature_extractors.length; feat++)
+		{
+			MIDIFeatureExtractor extractor = feature_extractors[feat];
+			index.class_names[feat] = extractor.getClass().getName();
+			index.names[feat] = extractor.getFeatureDefinition().name;
+			index.codes[feat] = extractor.getFeatureDefinition().code;
+			index.dimensions[feat] = extractor.getFeatureDefinition().dimensions;
+			index.sequential[feat] = extractor.getFeatureDefinition().is_sequential;
+			index.defaults[feat] = extractor.getIsDefault();
+			index.secure[feat] = extractor.getIsSecure();
+			index.mei_specific[feat] = extractor instanceof MEIFeatureExtractor;
+			String[] feature_dependencies = extractor.getDepenedencies();
+			index.dependencies[feat] = (feature_dependencies == null || feature_dependencies.length == 0) ? null : feature_dependencies.clone();
+		}
+		return index;
+	}
+
+
+	/**
+	 * Load the index stored in the feature_index.txt resource.
+	 *
+	 * @return				The index, or null if the resource does not exist (e.g. if jSymbolic was compiled
+	 *						without running the build step that generates it).
+	 * @throws IOException	Thrown if the resource cannot be read or is not a valid index.
+	 */
+	public static FeatureIndex load()
+		throws IOException
+	{
+		InputStream stream = FeatureIndex.class.getResourceAsStream(resource_name);
+		if (stream == null)
+			return null;
+		try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8))
+		{
+			return read(reader);
+		}
+	}
+
+
+	/**
+	 * Parse an index in the format written by the write method.
+	 *
+	 * @param reader		The index.
+	 * @return				The parsed index.
+	 * @throws IOException	Thrown if the index cannot be read or is not valid.
+	 */
+	public static FeatureIndex read(Reader reader)
+		throws IOException
+	{
+		BufferedReader buffered_reader = new BufferedReader(reader);
+		List<String[]> entries = new ArrayList<>();
+		String line;
+		while ((line = buffered_reader.readLine()) != null)
+		{
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] fields = line.split("\t", -1);
+			if (fields.length != 9)
+				throw new IOException("Invalid feature index entry: " + line);
+			entries.add(fields);
+		}
+
+		FeatureIndex index = new FeatureIndex(entries.size());
+		try
+		{
+			for (int feat = 0; feat < entries.size(); feat++)
+			{
+				String[] fields = entries.get(feat);
+				index.class_names[feat] = fields[0];
+				index.names[feat] = fields[1];
+				index.codes[feat] = fields[2];
+				index.dimensions[feat] = Integer.parseInt(fields[3]);
+				index.sequential[feat] = parseFlag(fields[4]);
+				index.defaults[feat] = parseFlag(fields[5]);
+				index.secure[feat] = parseFlag(fields[6]);
+				index.mei_specific[feat] = parseFlag(fields[7]);
+				index.dependencies[feat] = fields[8].isEmpty() ? null : fields[8].split("\\|");
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("Invalid feature index: " + e.getMessage());
+		}
+		return index;
+	}
+
+
+	/**
+	 * Generate the index of all implemented features and save it. Any potential problems with the way that
+	 * features have been added to jSymbolic are printed to standard error.
+	 *
+	 * @param args	The path to save the index to.
+	 * @throws Exception	Thrown if the index cannot be saved.
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		if (args.length != 1)
+			throw new Exception("The path to save the feature index to must be specified.");
+		MIDIFeatureExtractor[] all_feature_extractors = FeatureExtractorAccess.instantiateAllFeatureExtractors();
+		FeatureExtractorAccess.printWarningReportIfFeaturesAddedImproperly(all_feature_extractors);
+		File index_file = new File(args[0]);
+		if (index_file.getParentFile() != null)
+			index_file.getParentFile().mkdirs();
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(index_file), StandardCharsets.UTF_8))
+		{
+			fromFeatureExtractors(all_feature_extractors).write(writer);
+		}
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Write this index in the format described in the class description.
+	 *
+	 * @param writer		The writer to write to. It is not closed.
+	 * @throws IOException	Thrown if the index cannot be written.
+	 */
+	public void write(Writer writer)
+		throws IOException
+	{
+		writer.write(header);
+		writer.write('\n');
+		for (int feat = 0; feat < names.length; feat++)
+		{
+			writer.write( class_names[feat] + '\t' +
+			              names[feat] + '\t' +
+			              codes[feat] + '\t' +
+			              dimensions[feat] + '\t' +
+			              formatFlag(sequential[feat]) + '\t' +
+			              formatFlag(defaults[feat]) + '\t' +
+			              formatFlag(secure[feat]) + '\t' +
+			              formatFlag(mei_specific[feat]) + '\t' +
+			              (dependencies[feat] == null ? "" : String.join("|", dependencies[feat])) + '\n' );
+		}
+	}
+
+
+	/**
+	 * @return	The number of features in this index.
+	 */
+	public int getNumberOfFeatures()
+	{
+		return names.length;
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			The fully qualified name of the feature's MIDIFeatureExtractor class.
+	 */
+	public String getClassName(int feature)
+	{
+		return class_names[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			The feature's name.
+	 */
+	public String getName(int feature)
+	{
+		return names[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			The feature's code.
+	 */
+	public String getCode(int feature)
+	{
+		return codes[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			The feature's number of dimensions.
+	 */
+	public int getDimensions(int feature)
+	{
+		return dimensions[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			Whether the feature is sequential.
+	 */
+	public boolean isSequential(int feature)
+	{
+		return sequential[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			Whether the feature is extracted and saved by default.
+	 */
+	public boolean isDefault(int feature)
+	{
+		return defaults[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			Whether the feature is secure.
+	 */
+	public boolean isSecure(int feature)
+	{
+		return secure[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			Whether the feature is MEI-specific.
+	 */
+	public boolean isMeiSpecific(int feature)
+	{
+		return mei_specific[feature];
+	}
+
+
+	/**
+	 * @param feature	The index of a feature.
+	 * @return			The names of the features that the feature depends on, or null if it has no
+	 *					dependencies.
+	 */
+	public String[] getDependencies(int feature)
+	{
+		return dependencies[feature];
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	private static String formatFlag(boolean flag)
+	{
+		return flag ? "1" : "0";
+	}
+
+
+	private static boolean parseFlag(String field)
+		throws IOException
+	{
+		if (field.equals("1"))
+			return true;
+		if (field.equals("0"))
+			return false;
+		throw new IOException("Invalid feature index flag: " + field);
+	}
+}
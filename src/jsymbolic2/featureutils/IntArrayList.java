@@ -0,0 +1,274 @@
+package jsymbolic2.featureutils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A growable sequence of int values that are stored in a primitive array, rather than being boxed into
+ * Integer objects as they would be in a LinkedList or ArrayList. Values can only be appended, never changed
+ * or removed, which allows slices of a list to be handed out as views that share its array without copying
+ * it.
+ *
+ * <p>A slice is itself an IntArrayList, but it may not be appended to. A slice stays valid after more values
+ * are appended to the list that it was taken from, since the values that it covers never change.</p>
+ *
+ * <p>The asList method provides a read-only List&lt;Integer&gt; view for code that needs one. Each value is
+ * boxed only when it is retrieved through this view.</p>
+ *
+ * @author Cory McKay
+ */
+public class IntArrayList
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * An empty array shared by all lists created without an initial capacity.
+	 */
+	private static final int[] NO_VALUES = new int[0];
+
+	/**
+	 * The array holding the values of this list, starting at offset. It may have unused capacity at the end,
+	 * and may be shared with other lists that this list is a slice of, or that are slices of it.
+	 */
+	private int[] values;
+
+	/**
+	 * The index in values of the first value of this list.
+	 */
+	private final int offset;
+
+	/**
+	 * The number of values in this list.
+	 */
+	private int size;
+
+	/**
+	 * Whether this list is a slice of another list, and therefore may not be appended to.
+	 */
+	private final boolean is_slice;
+
+
+	/* CONSTRUCTORS *****************************************************************************************/
+
+
+	/**
+	 * Instantiate an empty list. No array is allocated until the first value is added.
+	 */
+	public IntArrayList()
+	{
+		this(NO_VALUES, 0, 0, false);
+	}
+
+
+	/**
+	 * Instantiate an empty list with room for the given number of values before it needs to grow.
+	 *
+	 * @param initial_capacity	The number of values that the list can hold before it needs to grow.
+	 */
+	public IntArrayList(int initial_capacity)
+	{
+		this(new int[initial_capacity], 0, 0, false);
+	}
+
+
+	/**
+	 * Instantiate a list holding the values of the given array. The array is used directly rather than being
+	 * copied, so it must not be altered afterwards.
+	 *
+	 * @param values	The values of the list, in order.
+	 */
+	public IntArrayList(int[] values)
+	{
+		this(values, 0, values.length, false);
+	}
+
+
+	/**
+	 * Instantiate a list holding the given values, starting at the given offset in them.
+	 *
+	 * @param values	The array holding the values.
+	 * @param offset	The index in values of the first value of the list.
+	 * @param size		The number of values in the list.
+	 * @param is_slice	Whether the list is a slice of another list.
+	 */
+	private IntArrayList(int[] values, int offset, int size, boolean is_slice)
+	{
+		this.values = values;
+		this.offset = offset;
+		this.size = size;
+		this.is_slice = is_slice;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Append the given value to the end of this list, growing its array if needed.
+	 *
+	 * @param value								The value to append.
+	 * @throws UnsupportedOperationException	If this list is a slice of another list.
+	 */
+	public void add(int value)
+	{
+		if (is_slice)
+			throw new UnsupportedOperationException("Values cannot be added to a slice of a list.");
+		if (size == values.length)
+			values = Arrays.copyOf(values, Math.max(8, size * 2));
+		values[size++] = value;
+	}
+
+
+	/**
+	 * @param index	The index of a value in this list.
+	 * @return		The value at the given index.
+	 * @throws IndexOutOfBoundsException	If index is negative, or not less than the size of this list.
+	 */
+	public int get(int index)
+	{
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " is outside a list of size " + size + ".");
+		return values[offset + index];
+	}
+
+
+	/**
+	 * @return	The number of values in this list.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * @return	Whether this list holds no values.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+
+	/**
+	 * Return a view of part of this list, which shares the array of this list rather than copying it.
+	 *
+	 * @param from	The index in this list of the first value of the slice.
+	 * @param to	The index in this list after the last value of the slice.
+	 * @return		A list holding the values of this list from index from (inclusive) to index to
+	 *				(exclusive). It may not be appended to.
+	 * @throws IndexOutOfBoundsException	If from and to do not specify a range within this list.
+	 */
+	public IntArrayList slice(int from, int to)
+	{
+		if (from < 0 || to > size || from > to)
+			throw new IndexOutOfBoundsException("Slice " + from + " to " + to + " is outside a list of size " + size + ".");
+		return new IntArrayList(values, offset + from, to - from, true);
+	}
+
+
+	/**
+	 * @return	A new array holding the values of this list, in order.
+	 */
+	public int[] toArray()
+	{
+		return Arrays.copyOfRange(values, offset, offset + size);
+	}
+
+
+	/**
+	 * @return	A new array holding the values of this list, in order, converted to doubles.
+	 */
+	public double[] toDoubleArray()
+	{
+		double[] double_values = new double[size];
+		for (int i = 0; i < size; i++)
+			double_values[i] = values[offset + i];
+		return double_values;
+	}
+
+
+	/**
+	 * @return	A read-only view of this list as a List of Integers. It reflects values added to this list
+	 *			after it was created.
+	 */
+	public List<Integer> asList()
+	{
+		return new IntegerListView();
+	}
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * Return a read-only view of the given lists as a List of Lists of Integers. The view of each list is
+	 * only created when it is retrieved, so no objects are allocated per list until then.
+	 *
+	 * @param lists	The lists to provide a view of. This array is not copied.
+	 * @return		A read-only view with one entry per list, in the order of the given array.
+	 */
+	public static List<List<Integer>> asList(IntArrayList[] lists)
+	{
+		return new ListOfListsView(lists);
+	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * A read-only List view of the enclosing IntArrayList.
+	 */
+	private class IntegerListView
+		extends AbstractList<Integer>
+		implements RandomAccess
+	{
+		@Override
+		public Integer get(int index)
+		{
+			return IntArrayList.this.get(index);
+		}
+
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+
+
+	/**
+	 * A read-only List view of an array of IntArrayLists.
+	 */
+	private static class ListOfListsView
+		extends AbstractList<List<Integer>>
+		implements RandomAccess
+	{
+		private final IntArrayList[] lists;
+
+
+		private ListOfListsView(IntArrayList[] lists)
+		{
+			this.lists = lists;
+		}
+
+
+		@Override
+		public List<Integer> get(int index)
+		{
+			return lists[index].asList();
+		}
+
+
+		@Override
+		public int size()
+		{
+			return lists.length;
+		}
+	}
+}
\ No newline at end of file
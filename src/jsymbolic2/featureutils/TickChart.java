@@ -0,0 +1,624 @@
+package jsymbolic2.featureutils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A chart of short values indexed first by MIDI tick (the row) and then by something such as MIDI pitch (the
+ * column), such as the pitch_strength_by_tick_chart and pitches_present_by_tick_excluding_rests fields of
+ * MIDIIntermediateRepresentations. A chart is either rectangular, with every row the same length and all
+ * values initially 0, or ragged, with rows of different lengths that are appended one by one in order.
+ *
+ * <p>A chart is normally stored on the Java heap as an array of short arrays. If it would take more heap
+ * space than the off-heap threshold, it is instead stored in a memory-mapped temporary file, which the
+ * operating system pages in and out of memory as needed. This allows very long MIDI sequences (e.g. hours
+ * of performed music at 960 PPQ) to be processed without running out of heap space, and keeps large charts
+ * from lengthening garbage collection pauses. Charts are accessed in the same way however they are stored.
+ * The temporary file is deleted as soon as it is mapped where the operating system allows this, and
+ * otherwise (e.g. on Windows) when the chart is closed. Closing a chart stored off-heap unmaps its file,
+ * releasing its space immediately rather than once the chart is garbage collected, and the chart must not
+ * be used afterwards. Closing a chart stored on the heap does nothing.</p>
+ *
+ * <p>The off-heap threshold is initially set from the system property named by off_heap_threshold_property
+ * (in megabytes), or to a quarter of the maximum heap size if this is not set. It can be changed with
+ * setOffHeapThreshold.</p>
+ *
+ * @author Cory McKay
+ */
+public abstract class TickChart
+	implements Closeable
+{
+	/* PUBLIC STATIC FINAL FIELDS ***************************************************************************/
+
+
+	/**
+	 * The name of the system property that sets the initial off-heap threshold, in megabytes. Charts that
+	 * would take more heap space than this are stored in memory-mapped temporary files instead.
+	 */
+	public static final String off_heap_threshold_property = "jsymbolic.offheapchartmegabytes";
+
+
+	/* PRIVATE STATIC FIELDS ********************************************************************************/
+
+
+	/**
+	 * Charts estimated to take more than this many bytes of heap space are stored off-heap.
+	 */
+	private static volatile long off_heap_threshold = findInitialOffHeapThreshold();
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * Create a chart with the given number of rows (ticks), all of the given length and with all values
+	 * initially 0. It is stored off-heap if it would take more heap space than the off-heap threshold.
+	 *
+	 * @param number_of_ticks	The number of rows in the chart.
+	 * @param row_length		The number of values in each row (e.g. 128 for one per MIDI pitch).
+	 * @return					The new chart.
+	 * @throws UncheckedIOException	If the chart is to be stored off-heap and its temporary file could not
+	 *								be created or mapped.
+	 */
+	public static TickChart createRectangular(int number_of_ticks, int row_length)
+	{
+		long number_of_values = (long) number_of_ticks * row_length;
+		if (estimateHeapSize(number_of_ticks, number_of_values) > off_heap_threshold)
+			return new MappedTickChart(number_of_ticks, row_length, number_of_values);
+		return new HeapTickChart(new short[number_of_ticks][row_length], number_of_ticks);
+	}
+
+
+	/**
+	 * Create an empty chart with the given number of rows (ticks), which may each be of a different length.
+	 * Each row must then be added with appendRow, in order, before any values are read from the chart. It is
+	 * stored off-heap if it would take more heap space than the off-heap threshold.
+	 *
+	 * @param number_of_ticks	The number of rows that will be appended to the chart.
+	 * @param number_of_values	The total number of values in all rows that will be appended to the chart.
+	 * @return					The new chart.
+	 * @throws UncheckedIOException	If the chart is to be stored off-heap and its temporary file could not
+	 *								be created or mapped.
+	 */
+	public static TickChart createRagged(int number_of_ticks, long number_of_values)
+	{
+		if (estimateHeapSize(number_of_ticks, number_of_values) > off_heap_threshold)
+			return new MappedTickChart(number_of_ticks, -1, number_of_values);
+		return new HeapTickChart(new short[number_of_ticks][], 0);
+	}
+
+
+	/**
+	 * Create a chart stored on the heap that holds the given rows. The rows are used directly rather than
+	 * being copied.
+	 *
+	 * @param rows	The rows of the chart, one per tick.
+	 * @return		The new chart.
+	 */
+	public static TickChart wrap(short[][] rows)
+	{
+		return new HeapTickChart(rows, rows.length);
+	}
+
+
+	/**
+	 * @return	The number of bytes of heap space above which charts are stored off-heap.
+	 */
+	public static long getOffHeapThreshold()
+	{
+		return off_heap_threshold;
+	}
+
+
+	/**
+	 * Set the number of bytes of heap space above which charts are stored off-heap. This affects charts
+	 * created after it is called.
+	 *
+	 * @param bytes	The new threshold. 0 stores all non-empty charts off-heap, and Long.MAX_VALUE stores all
+	 *				charts on the heap.
+	 * @throws IllegalArgumentException	If bytes is negative.
+	 */
+	public static void setOffHeapThreshold(long bytes)
+	{
+		if (bytes < 0)
+			throw new IllegalArgumentException("The off-heap threshold is " + bytes + " bytes. This value must be 0 or above.");
+		off_heap_threshold = bytes;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	The number of rows (ticks) in this chart.
+	 */
+	public abstract int getNumberOfTicks();
+
+
+	/**
+	 * @param tick	The row to check.
+	 * @return		The number of values in the given row.
+	 */
+	public abstract int getRowLength(int tick);
+
+
+	/**
+	 * @param tick		The row of the value.
+	 * @param column	The index of the value within its row.
+	 * @return			The value.
+	 */
+	public abstract short get(int tick, int column);
+
+
+	/**
+	 * @param tick		The row of the value.
+	 * @param column	The index of the value within its row.
+	 * @param value		The new value.
+	 */
+	public abstract void set(int tick, int column, short value);
+
+
+	/**
+	 * Return the values of the given row. For charts stored on the heap this is the row itself rather than
+	 * a copy, so it must not be altered.
+	 *
+	 * @param tick	The row to return.
+	 * @return		The values of the row, in order.
+	 */
+	public short[] getRow(int tick)
+	{
+		return getRow(tick, null);
+	}
+
+
+	/**
+	 * Return the values of the given row, as getRow(int) does, but copy them into the given buffer rather
+	 * than into a new array if this chart is stored off-heap and the buffer is the length of the row. This
+	 * avoids allocating an array for every row when many rows are read one after another. The buffer is
+	 * never written to if this chart is stored on the heap, in which case the row itself is returned.
+	 *
+	 * @param tick		The row to return.
+	 * @param buffer	An array returned by an earlier call to this method on this chart, whose contents are
+	 *					no longer needed, or null.
+	 * @return			The values of the row, in order. This is buffer if it was reused.
+	 */
+	public abstract short[] getRow(int tick, short[] buffer);
+
+
+	/**
+	 * Add the given row after the rows already appended to this chart, which must have been created with
+	 * createRagged. The row is not copied if this chart is stored on the heap, so it must not be altered
+	 * afterwards.
+	 *
+	 * @param row	The values of the row, in order.
+	 * @throws IllegalStateException	If this chart is not ragged, or if all of its rows have already been
+	 *									appended, or if row would take it past the number of values it was
+	 *									created with.
+	 */
+	public abstract void appendRow(short[] row);
+
+
+	/**
+	 * @return	Whether this chart is stored in a memory-mapped file rather than on the heap.
+	 */
+	public abstract boolean isStoredOffHeap();
+
+
+	/**
+	 * Release the memory-mapped file holding this chart, if it is stored off-heap, and delete the file if
+	 * it could not be deleted when it was mapped. This chart must not be used after it is closed. Closing a
+	 * chart more than once, or closing a chart stored on the heap, has no effect.
+	 */
+	@Override
+	public void close()
+	{
+	}
+
+
+	/**
+	 * @return	A copy of the values of this chart, with the first index indicating the row (tick) and the
+	 *			second the index within the row.
+	 */
+	public short[][] toArray()
+	{
+		short[][] rows = new short[getNumberOfTicks()][];
+		for (int tick = 0; tick < rows.length; tick++)
+			rows[tick] = getRow(tick).clone();
+		return rows;
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * @param number_of_ticks	The number of rows in a chart.
+	 * @param number_of_values	The total number of values in all of its rows.
+	 * @return					The approximate number of bytes of heap space that the chart would take as
+	 *							an array of short arrays (the values themselves, plus a reference and an
+	 *							array header for each row).
+	 */
+	private static long estimateHeapSize(int number_of_ticks, long number_of_values)
+	{
+		return 2L * number_of_values + 24L * number_of_ticks;
+	}
+
+
+	/**
+	 * @return	The off-heap threshold in bytes specified by the system property named by
+	 *			off_heap_threshold_property, or a quarter of the maximum heap size if it is not set (or is
+	 *			negative).
+	 */
+	private static long findInitialOffHeapThreshold()
+	{
+		Long megabytes = Long.getLong(off_heap_threshold_property);
+		if (megabytes == null || megabytes < 0)
+			return Runtime.getRuntime().maxMemory() / 4;
+		return megabytes * 1024 * 1024;
+	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * A chart stored on the heap as an array of short arrays.
+	 */
+	private static class HeapTickChart
+		extends TickChart
+	{
+		/**
+		 * The rows of this chart. Rows that have not yet been appended are null.
+		 */
+		private final short[][] rows;
+
+		/**
+		 * The number of rows that have been filled in.
+		 */
+		private int number_of_rows_filled;
+
+		/**
+		 * Whether this chart was created with createRagged.
+		 */
+		private final boolean ragged;
+
+
+		/**
+		 * @param rows					The rows of the chart.
+		 * @param number_of_rows_filled	The number of rows that are already filled in (all of them, unless
+		 *								the chart is ragged and its rows are yet to be appended).
+		 */
+		private HeapTickChart(short[][] rows, int number_of_rows_filled)
+		{
+			this.rows = rows;
+			this.number_of_rows_filled = number_of_rows_filled;
+			ragged = number_of_rows_filled < rows.length;
+		}
+
+
+		@Override
+		public int getNumberOfTicks()
+		{
+			return rows.length;
+		}
+
+
+		@Override
+		public int getRowLength(int tick)
+		{
+			return rows[tick].length;
+		}
+
+
+		@Override
+		public short get(int tick, int column)
+		{
+			return rows[tick][column];
+		}
+
+
+		@Override
+		public void set(int tick, int column, short value)
+		{
+			rows[tick][column] = value;
+		}
+
+
+		@Override
+		public short[] getRow(int tick, short[] buffer)
+		{
+			return rows[tick];
+		}
+
+
+		@Override
+		public void appendRow(short[] row)
+		{
+			if (!ragged || number_of_rows_filled == rows.length)
+				throw new IllegalStateException("No more rows can be appended to this chart.");
+			rows[number_of_rows_filled++] = row;
+		}
+
+
+		@Override
+		public boolean isStoredOffHeap()
+		{
+			return false;
+		}
+	}
+
+
+	/**
+	 * A chart stored in a memory-mapped temporary file. The file is mapped in chunks of at most 1 GB, since
+	 * a single MappedByteBuffer cannot be larger than 2 GB. A ragged chart begins with the offset of each row
+	 * (as a number of values from the start of the first row), followed by one more offset marking the end
+	 * of the last row. The values follow, row after row.
+	 */
+	private static class MappedTickChart
+		extends TickChart
+	{
+		/**
+		 * The number of bits in the byte offset within a chunk. Chunk boundaries are multiples of 8 bytes, so
+		 * no offset or value ever straddles two chunks.
+		 */
+		private static final int CHUNK_BITS = 30;
+
+		/**
+		 * The mask that finds the byte offset within a chunk from a byte offset in the file.
+		 */
+		private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+		/**
+		 * The mapped chunks of the file, in order. Null once this chart is closed.
+		 */
+		private MappedByteBuffer[] chunks;
+
+		/**
+		 * The temporary file, if it could not be deleted when it was mapped and is to be deleted when this
+		 * chart is closed, or null otherwise.
+		 */
+		private File file_to_delete;
+
+		/**
+		 * The number of rows in this chart.
+		 */
+		private final int number_of_ticks;
+
+		/**
+		 * The length of every row, or -1 if this chart is ragged.
+		 */
+		private final int row_length;
+
+		/**
+		 * The total number of values that this chart can hold.
+		 */
+		private final long number_of_values;
+
+		/**
+		 * The byte offset in the file at which the values begin.
+		 */
+		private final long values_start;
+
+		/**
+		 * The number of rows that have been appended, if this chart is ragged.
+		 */
+		private int number_of_rows_appended;
+
+		/**
+		 * The number of values in the rows that have been appended, if this chart is ragged.
+		 */
+		private long number_of_values_appended;
+
+
+		/**
+		 * Create and map a temporary file large enough to hold the given chart, with all values 0.
+		 *
+		 * @param number_of_ticks	The number of rows in the chart.
+		 * @param row_length		The length of every row, or -1 if the chart is ragged.
+		 * @param number_of_values	The total number of values in all rows of the chart.
+		 * @throws UncheckedIOException	If the temporary file could not be created or mapped.
+		 */
+		private MappedTickChart(int number_of_ticks, int row_length, long number_of_values)
+		{
+			this.number_of_ticks = number_of_ticks;
+			this.row_length = row_length;
+			this.number_of_values = number_of_values;
+			values_start = row_length < 0 ? 8L * (number_of_ticks + 1) : 0L;
+			long file_size = values_start + 2L * number_of_values;
+			chunks = new MappedByteBuffer[(int) ((file_size + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+
+			File file = null;
+			try
+			{
+				file = File.createTempFile("jsymbolic_chart_", ".tmp");
+				try ( RandomAccessFile random_access_file = new RandomAccessFile(file, "rw");
+				      FileChannel channel = random_access_file.getChannel() )
+				{
+					// The mapping remains valid after the channel is closed. A newly extended file reads as 0s.
+					random_access_file.setLength(file_size);
+					for (int chunk = 0; chunk < chunks.length; chunk++)
+					{
+						long chunk_start = (long) chunk << CHUNK_BITS;
+						chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, chunk_start, Math.min(1L << CHUNK_BITS, file_size - chunk_start));
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException("Could not create a temporary file to hold a chart of " + number_of_ticks + " ticks.", e);
+			}
+			finally
+			{
+				// Windows does not allow a file to be deleted while it is mapped
+				if (file != null && !file.delete())
+				{
+					file_to_delete = file;
+					file.deleteOnExit();
+				}
+			}
+		}
+
+
+		@Override
+		public int getNumberOfTicks()
+		{
+			return number_of_ticks;
+		}
+
+
+		@Override
+		public int getRowLength(int tick)
+		{
+			if (row_length >= 0)
+				return row_length;
+			return (int) (findRowStart(tick + 1) - findRowStart(tick));
+		}
+
+
+		@Override
+		public short get(int tick, int column)
+		{
+			long byte_offset = findByteOffset(tick, column);
+			return chunks[(int) (byte_offset >>> CHUNK_BITS)].getShort((int) (byte_offset & CHUNK_MASK));
+		}
+
+
+		@Override
+		public void set(int tick, int column, short value)
+		{
+			long byte_offset = findByteOffset(tick, column);
+			chunks[(int) (byte_offset >>> CHUNK_BITS)].putShort((int) (byte_offset & CHUNK_MASK), value);
+		}
+
+
+		@Override
+		public short[] getRow(int tick, short[] buffer)
+		{
+			int length = getRowLength(tick);
+			short[] row = buffer != null && buffer.length == length ? buffer : new short[length];
+			if (length == 0)
+				return row;
+			long byte_offset = findByteOffset(tick, 0);
+			for (int column = 0; column < length; column++, byte_offset += 2)
+				row[column] = chunks[(int) (byte_offset >>> CHUNK_BITS)].getShort((int) (byte_offset & CHUNK_MASK));
+			return row;
+		}
+
+
+		@Override
+		public void appendRow(short[] row)
+		{
+			if ( row_length >= 0 ||
+			     number_of_rows_appended == number_of_ticks ||
+			     number_of_values_appended + row.length > number_of_values )
+				throw new IllegalStateException("No more rows can be appended to this chart.");
+			int tick = number_of_rows_appended++;
+			number_of_values_appended += row.length;
+			putLong(8L * (tick + 1), number_of_values_appended);
+			for (int column = 0; column < row.length; column++)
+				set(tick, column, row[column]);
+		}
+
+
+		@Override
+		public boolean isStoredOffHeap()
+		{
+			return true;
+		}
+
+
+		@Override
+		public void close()
+		{
+			if (chunks == null)
+				return;
+			for (MappedByteBuffer chunk : chunks)
+				unmap(chunk);
+			chunks = null;
+			if (file_to_delete != null)
+			{
+				file_to_delete.delete();
+				file_to_delete = null;
+			}
+		}
+
+
+		/**
+		 * @param tick		The row of a value.
+		 * @param column	The index of the value within its row.
+		 * @return			The byte offset of the value in the file.
+		 * @throws IndexOutOfBoundsException	If there is no such value.
+		 */
+		private long findByteOffset(int tick, int column)
+		{
+			if (tick < 0 || tick >= number_of_ticks || column < 0 || column >= getRowLength(tick))
+				throw new IndexOutOfBoundsException("There is no value at tick " + tick + ", index " + column + " of this chart.");
+			long row_start = row_length >= 0 ? (long) tick * row_length : findRowStart(tick);
+			return values_start + 2L * (row_start + column);
+		}
+
+
+		/**
+		 * @param tick	A row of this chart, which must be ragged, or the number of rows.
+		 * @return		The number of values before the start of the given row.
+		 */
+		private long findRowStart(int tick)
+		{
+			long byte_offset = 8L * tick;
+			return chunks[(int) (byte_offset >>> CHUNK_BITS)].getLong((int) (byte_offset & CHUNK_MASK));
+		}
+
+
+		/**
+		 * @param byte_offset	The byte offset in the file at which to write.
+		 * @param value			The value to write.
+		 */
+		private void putLong(long byte_offset, long value)
+		{
+			chunks[(int) (byte_offset >>> CHUNK_BITS)].putLong((int) (byte_offset & CHUNK_MASK), value);
+		}
+
+
+		/**
+		 * Unmap the given buffer immediately, rather than once it is garbage collected. There is no public
+		 * API for this, so the JDK's internal cleaner is invoked by reflection: through
+		 * sun.misc.Unsafe.invokeCleaner on Java 9 and later, or through the buffer's own cleaner on Java 8.
+		 * If neither is available the buffer is left to be unmapped when it is garbage collected.
+		 *
+		 * @param buffer	The buffer to unmap. It must not be accessed afterwards.
+		 */
+		private static void unmap(MappedByteBuffer buffer)
+		{
+			try
+			{
+				Class<?> unsafe_class = Class.forName("sun.misc.Unsafe");
+				Method invoke_cleaner;
+				try { invoke_cleaner = unsafe_class.getMethod("invokeCleaner", ByteBuffer.class); }
+				catch (NoSuchMethodException e)
+				{
+					Method cleaner_method = buffer.getClass().getMethod("cleaner");
+					cleaner_method.setAccessible(true);
+					Object cleaner = cleaner_method.invoke(buffer);
+					if (cleaner != null)
+						cleaner.getClass().getMethod("clean").invoke(cleaner);
+					return;
+				}
+				Field unsafe_field = unsafe_class.getDeclaredField("theUnsafe");
+				unsafe_field.setAccessible(true);
+				invoke_cleaner.invoke(unsafe_field.get(null), buffer);
+			}
+			catch (Exception e)
+			{
+				// The buffer is unmapped when it is garbage collected instead
+			}
+		}
+	}
+}
\ No newline at end of file
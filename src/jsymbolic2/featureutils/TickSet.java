@@ -0,0 +1,284 @@
+package jsymbolic2.featureutils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An immutable set of the MIDI ticks (from 0 to one less than the number of ticks spanned) on which
+ * something happens, such as the ticks on which a note is sounding on a given MIDI channel, or on which a
+ * note is attacked. It replaces a column of a boolean tick map, which would take one byte per tick.
+ *
+ * <p>The ticks are normally stored as a list of runs of consecutive ticks, which takes 8 bytes per run no
+ * matter how long the run is. If the ticks are so fragmented that this would take more memory than a bitset,
+ * then they are instead stored as a bitset, which takes one bit per tick up to the last tick in the set.
+ * Either way, the queries below take time proportional to the number of runs involved (or, for a bitset, to
+ * the number of 64-tick words involved), not to the number of ticks.</p>
+ *
+ * <p>The runs of ticks in a set can be iterated through in the same way as with a BitSet:</p>
+ *
+ * <pre>
+ * int start = ticks.nextTick(0);
+ * while (start != -1)
+ * {
+ *     int end = ticks.nextTickNotInSet(start);
+ *     // Ticks start to end - 1 are all in the set
+ *     start = ticks.nextTick(end);
+ * }
+ * </pre>
+ *
+ * @author Cory McKay
+ */
+public class TickSet
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The number of ticks that this set spans. All ticks in it are less than this.
+	 */
+	private final int number_of_ticks_spanned;
+
+	/**
+	 * The first tick of each run of consecutive ticks in this set, in increasing order. Null if the set is
+	 * stored as a bitset.
+	 */
+	private final int[] run_starts;
+
+	/**
+	 * The tick after the last tick of each run of consecutive ticks in this set, matching run_starts. Null if
+	 * the set is stored as a bitset.
+	 */
+	private final int[] run_ends;
+
+	/**
+	 * The ticks in this set, if it is stored as a bitset. Null if it is stored as a list of runs.
+	 */
+	private final BitSet bitset;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Instantiate a set holding the ticks whose bits are set in the given BitSet, using whichever of a list
+	 * of runs or a bitset takes less memory. The given BitSet is not kept or altered.
+	 *
+	 * @param ticks						The ticks to include in this set.
+	 * @param number_of_ticks_spanned	The number of ticks that this set spans (e.g. the length of the MIDI
+	 *									sequence in ticks plus one). No bits may be set at or past this.
+	 * @throws IllegalArgumentException	If a bit is set in ticks at or past number_of_ticks_spanned.
+	 */
+	public TickSet(BitSet ticks, int number_of_ticks_spanned)
+	{
+		if (ticks.length() > number_of_ticks_spanned)
+			throw new IllegalArgumentException("Tick " + (ticks.length() - 1) + " is outside a set spanning " + number_of_ticks_spanned + " ticks.");
+		this.number_of_ticks_spanned = number_of_ticks_spanned;
+
+		// Count the runs, and compare the memory they would take (two ints each) with that of a bitset
+		// (one long per 64 ticks up to the last set bit)
+		int number_of_runs = 0;
+		for (int start = ticks.nextSetBit(0); start != -1; start = ticks.nextSetBit(ticks.nextClearBit(start)))
+			number_of_runs++;
+		int number_of_words = (ticks.length() + 63) / 64;
+
+		if (number_of_runs <= number_of_words)
+		{
+			run_starts = new int[number_of_runs];
+			run_ends = new int[number_of_runs];
+			int run = 0;
+			for (int start = ticks.nextSetBit(0); start != -1; start = ticks.nextSetBit(run_ends[run - 1]))
+			{
+				run_starts[run] = start;
+				run_ends[run] = ticks.nextClearBit(start);
+				run++;
+			}
+			bitset = null;
+		}
+		else
+		{
+			run_starts = null;
+			run_ends = null;
+			bitset = BitSet.valueOf(ticks.toLongArray());
+		}
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	The number of ticks that this set spans. This corresponds to the length of the first dimension
+	 *			of the boolean tick map that this set replaces.
+	 */
+	public int getNumberOfTicksSpanned()
+	{
+		return number_of_ticks_spanned;
+	}
+
+
+	/**
+	 * @param tick	The tick to check.
+	 * @return		Whether the given tick is in this set.
+	 */
+	public boolean contains(int tick)
+	{
+		if (bitset != null)
+			return tick >= 0 && bitset.get(tick);
+		int run = findFirstRunEndingAfter(tick);
+		return run < run_starts.length && run_starts[run] <= tick;
+	}
+
+
+	/**
+	 * @param from	The tick to start looking from.
+	 * @return		The first tick in this set that is equal to or after from, or -1 if there is none.
+	 */
+	public int nextTick(int from)
+	{
+		if (bitset != null)
+			return bitset.nextSetBit(Math.max(from, 0));
+		int run = findFirstRunEndingAfter(from);
+		if (run == run_starts.length)
+			return -1;
+		return Math.max(from, run_starts[run]);
+	}
+
+
+	/**
+	 * @param from	The tick to start looking from.
+	 * @return		The first tick that is equal to or after from and is not in this set. This is never more
+	 *				than the number of ticks spanned, unless from is.
+	 */
+	public int nextTickNotInSet(int from)
+	{
+		if (bitset != null)
+			return bitset.nextClearBit(Math.max(from, 0));
+		int run = findFirstRunEndingAfter(from);
+		if (run == run_starts.length || run_starts[run] > from)
+			return from;
+		return run_ends[run];
+	}
+
+
+	/**
+	 * @return	The number of ticks in this set (e.g. the number of ticks on which a note is sounding).
+	 */
+	public int getNumberOfTicks()
+	{
+		if (bitset != null)
+			return bitset.cardinality();
+		int number_of_ticks = 0;
+		for (int run = 0; run < run_starts.length; run++)
+			number_of_ticks += run_ends[run] - run_starts[run];
+		return number_of_ticks;
+	}
+
+
+	/**
+	 * @param from	The first tick of the range to check.
+	 * @param to	The tick after the last tick of the range to check.
+	 * @return		The number of ticks in this set that are in the range from (inclusive) to to (exclusive)
+	 *				(e.g. the number of ticks in the range on which a note is attacked).
+	 */
+	public int getNumberOfTicksInRange(int from, int to)
+	{
+		from = Math.max(from, 0);
+		if (to <= from)
+			return 0;
+		int number_of_ticks = 0;
+		if (bitset != null)
+		{
+			int tick = bitset.nextSetBit(from);
+			while (tick != -1 && tick < to)
+			{
+				int end = Math.min(bitset.nextClearBit(tick), to);
+				number_of_ticks += end - tick;
+				tick = bitset.nextSetBit(end);
+			}
+			return number_of_ticks;
+		}
+		for (int run = findFirstRunEndingAfter(from); run < run_starts.length && run_starts[run] < to; run++)
+			number_of_ticks += Math.min(run_ends[run], to) - Math.max(run_starts[run], from);
+		return number_of_ticks;
+	}
+
+
+	/**
+	 * @param other	Another set of ticks.
+	 * @return		The number of ticks that are in both this set and other (e.g. the number of ticks on
+	 *				which notes are sounding on two given channels at once).
+	 */
+	public int getNumberOfTicksInCommon(TickSet other)
+	{
+		int number_of_ticks = 0;
+		int start = nextTick(0);
+		while (start != -1)
+		{
+			int end = nextTickNotInSet(start);
+			number_of_ticks += other.getNumberOfTicksInRange(start, end);
+			start = nextTick(end);
+		}
+		return number_of_ticks;
+	}
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * Find how many of the given sets contain each tick (e.g. how many channels have a note sounding on
+	 * each tick). This takes time proportional to the total number of runs in the sets plus the number of
+	 * ticks, rather than to the number of sets times the number of ticks.
+	 *
+	 * @param sets	The sets of ticks to count.
+	 * @return		The number of sets that contain each tick (the index). The array is as long as the largest
+	 *				number of ticks spanned by any of the sets.
+	 */
+	public static int[] findNumberOfSetsContainingEachTick(TickSet[] sets)
+	{
+		int number_of_ticks = 0;
+		for (TickSet set : sets)
+			number_of_ticks = Math.max(number_of_ticks, set.number_of_ticks_spanned);
+
+		// Note where each run starts and ends, and then total these changes tick by tick
+		int[] number_of_sets = new int[number_of_ticks + 1];
+		for (TickSet set : sets)
+		{
+			int start = set.nextTick(0);
+			while (start != -1)
+			{
+				int end = set.nextTickNotInSet(start);
+				number_of_sets[start]++;
+				number_of_sets[end]--;
+				start = set.nextTick(end);
+			}
+		}
+		for (int tick = 1; tick < number_of_sets.length; tick++)
+			number_of_sets[tick] += number_of_sets[tick - 1];
+		return Arrays.copyOf(number_of_sets, number_of_ticks);
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * @param tick	A tick.
+	 * @return		The index of the first run that ends after the given tick (i.e. the run that contains it,
+	 *				or else the first run that starts after it), or the number of runs if there is none. Must
+	 *				only be called if this set is stored as a list of runs.
+	 */
+	private int findFirstRunEndingAfter(int tick)
+	{
+		int low = 0;
+		int high = run_ends.length;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (run_ends[middle] <= tick)
+				low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+}
\ No newline at end of file
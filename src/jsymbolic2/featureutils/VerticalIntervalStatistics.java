@@ -0,0 +1,276 @@
+package jsymbolic2.featureutils;
+
+import java.util.Arrays;
+
+/**
+ * An object of this class holds the statistics on the pitches sounding simultaneously in a MIDI stream (NOT
+ * including Channel 10 unpitched notes) that the features in the jsymbolic2.features.verticalintervals
+ * package are calculated from: the vertical interval histogram, the chord type histogram, the number of
+ * pitches and pitch classes sounding on each tick, the number of ticks on which each wrapped vertical
+ * interval sounds and the durations of chords.
+ *
+ * <p>All of these are calculated together in a single pass through a pitch_strength_by_tick_chart (see
+ * MIDIIntermediateRepresentations). Consecutive ticks on which exactly the same pitches sound with exactly
+ * the same strengths are processed together, so the pairs of sounding pitches and the chord type are found
+ * once per change in what is sounding, rather than once per tick. The results are the same as if each tick
+ * were processed separately.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class VerticalIntervalStatistics
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The vertical interval histogram, before normalization. The bin index is the interval in semitones (0
+	 * to 127), and each bin holds the combined velocity of both notes of each pair of simultaneously
+	 * sounding pitches separated by that interval, summed over all ticks. Bin 0 holds the combined velocity
+	 * of all notes involved in vertical unisons.
+	 */
+	private final double[] vertical_interval_histogram;
+
+	/**
+	 * The chord type histogram, before normalization. The bin index is the code of a ChordTypeEnum, and each
+	 * bin holds the number of ticks on which a chord of that type sounds.
+	 */
+	private final double[] chord_type_histogram;
+
+	/**
+	 * The number of different MIDI pitches sounding on each tick on which at least one note sounds (i.e. the
+	 * number of values in each row of pitches_present_by_tick_excluding_rests in
+	 * MIDIIntermediateRepresentations).
+	 */
+	private final short[] number_of_pitches_by_tick;
+
+	/**
+	 * The number of different pitch classes sounding on each tick on which at least one note sounds (i.e.
+	 * the number of values in each row of pitch_classes_present_by_tick_excluding_rests in
+	 * MIDIIntermediateRepresentations).
+	 */
+	private final short[] number_of_pitch_classes_by_tick;
+
+	/**
+	 * The number of ticks on which at least one pair of simultaneously sounding pitches is separated by each
+	 * wrapped interval. The index is the wrapped interval in semitones (0 to 11), where 0 means octaves
+	 * (unisons are not counted).
+	 */
+	private final int[] ticks_with_wrapped_vertical_interval;
+
+	/**
+	 * The duration in ticks of each chord, as found by ChordDurationFeature. A chord lasts for as long as
+	 * the same pitch classes sound, ignoring ticks on which no notes sound.
+	 */
+	private final int[] chord_durations_in_ticks;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Calculate the statistics on the given pitches sounding by tick.
+	 *
+	 * @param pitch_strength_by_tick_chart		The combined velocity of all notes sounding with each MIDI pitch
+	 *											(the column) on each MIDI tick (the row), as found in
+	 *											MIDIIntermediateRepresentations.
+	 * @param total_vertical_unison_velocity	The combined velocity of all notes involved in vertical
+	 *											unisons, as found in MIDIIntermediateRepresentations.
+	 */
+	public VerticalIntervalStatistics( TickChart pitch_strength_by_tick_chart,
+	                                   int total_vertical_unison_velocity )
+	{
+		long[] combined_velocity_by_interval = new long[128];
+		long[] ticks_with_chord_type = new long[ChordTypeEnum.values().length];
+		ticks_with_wrapped_vertical_interval = new int[12];
+		int number_of_ticks = pitch_strength_by_tick_chart.getNumberOfTicks();
+		short[] pitches_by_tick = new short[number_of_ticks];
+		short[] pitch_classes_by_tick = new short[number_of_ticks];
+		int number_of_sounding_ticks = 0;
+		int[] chord_durations = new int[16];
+		int number_of_chords = 0;
+
+		// The pitch classes sounding on the last tick on which a note sounded (in order of first occurrence
+		// from lowest to highest pitch), and the duration so far of the chord that they belong to
+		short[] previous_pitch_classes = null;
+		int duration_this_chord_in_ticks = 0;
+
+		int[] pitch_class_strengths = new int[12];
+		int[] sounding_pitches = new int[128];
+		short[] pitch_strengths = null;
+		short[] next_pitch_strengths = null;
+		int tick = 0;
+		while (tick < number_of_ticks)
+		{
+			// Find the run of ticks on which the same pitches sound with the same strengths as this one
+			pitch_strengths = pitch_strength_by_tick_chart.getRow(tick, pitch_strengths);
+			int run_length = 1;
+			while (tick + run_length < number_of_ticks)
+			{
+				next_pitch_strengths = pitch_strength_by_tick_chart.getRow(tick + run_length, next_pitch_strengths);
+				if (!Arrays.equals(next_pitch_strengths, pitch_strengths))
+					break;
+				run_length++;
+			}
+			tick += run_length;
+
+			// Find the chord type of the run. As has always been the case for the Chord Type Histogram
+			// feature, the highest MIDI pitch is not included.
+			Arrays.fill(pitch_class_strengths, 0);
+			for (int pitch = 0; pitch < pitch_strengths.length - 1; pitch++)
+				pitch_class_strengths[pitch % 12] += pitch_strengths[pitch];
+			ChordTypeEnum chord_type = ChordTypeEnum.getChordTypeOfPitchClassMask(ChordTypeEnum.getPitchClassMask(pitch_class_strengths));
+			if (chord_type != null)
+				ticks_with_chord_type[chord_type.getChordTypeCode()] += run_length;
+
+			// Find the pitches sounding during the run, and skip it if it is a rest
+			int number_of_pitches = 0;
+			for (int pitch = 0; pitch < pitch_strengths.length; pitch++)
+				if (pitch_strengths[pitch] != 0)
+					sounding_pitches[number_of_pitches++] = pitch;
+			if (number_of_pitches == 0)
+				continue;
+
+			// Add each pair of sounding pitches to the vertical interval histogram, and note the wrapped
+			// intervals that occur
+			boolean[] wrapped_intervals_present = new boolean[12];
+			for (int i = 0; i < number_of_pitches - 1; i++)
+			{
+				int pitch = sounding_pitches[i];
+				for (int j = i + 1; j < number_of_pitches; j++)
+				{
+					int other_pitch = sounding_pitches[j];
+					combined_velocity_by_interval[other_pitch - pitch] += (long) (pitch_strengths[pitch] + pitch_strengths[other_pitch]) * run_length;
+					wrapped_intervals_present[(other_pitch - pitch) % 12] = true;
+				}
+			}
+			for (int interval = 0; interval < wrapped_intervals_present.length; interval++)
+				if (wrapped_intervals_present[interval])
+					ticks_with_wrapped_vertical_interval[interval] += run_length;
+
+			// Find the pitch classes sounding during the run, in order of first occurrence
+			boolean[] pitch_class_found = new boolean[12];
+			short[] pitch_classes = new short[12];
+			int number_of_pitch_classes = 0;
+			for (int i = 0; i < number_of_pitches; i++)
+			{
+				int pitch_class = sounding_pitches[i] % 12;
+				if (!pitch_class_found[pitch_class])
+				{
+					pitch_class_found[pitch_class] = true;
+					pitch_classes[number_of_pitch_classes++] = (short) pitch_class;
+				}
+			}
+			pitch_classes = Arrays.copyOf(pitch_classes, number_of_pitch_classes);
+
+			// Record the number of pitches and pitch classes for each tick of the run
+			Arrays.fill(pitches_by_tick, number_of_sounding_ticks, number_of_sounding_ticks + run_length, (short) number_of_pitches);
+			Arrays.fill(pitch_classes_by_tick, number_of_sounding_ticks, number_of_sounding_ticks + run_length, (short) number_of_pitch_classes);
+			number_of_sounding_ticks += run_length;
+
+			// Extend the current chord, or end it and start a new one. As has always been the case for the
+			// Chord Duration feature, a new chord is counted from its second tick.
+			if (previous_pitch_classes == null)
+				duration_this_chord_in_ticks = run_length;
+			else if (Arrays.equals(previous_pitch_classes, pitch_classes))
+				duration_this_chord_in_ticks += run_length;
+			else
+			{
+				if (number_of_chords == chord_durations.length)
+					chord_durations = Arrays.copyOf(chord_durations, number_of_chords * 2);
+				chord_durations[number_of_chords++] = duration_this_chord_in_ticks;
+				duration_this_chord_in_ticks = run_length - 1;
+			}
+			previous_pitch_classes = pitch_classes;
+		}
+		if (number_of_chords == chord_durations.length)
+			chord_durations = Arrays.copyOf(chord_durations, number_of_chords + 1);
+		chord_durations[number_of_chords++] = duration_this_chord_in_ticks;
+
+		// Store the results
+		vertical_interval_histogram = new double[combined_velocity_by_interval.length];
+		vertical_interval_histogram[0] = total_vertical_unison_velocity;
+		for (int interval = 1; interval < vertical_interval_histogram.length; interval++)
+			vertical_interval_histogram[interval] = combined_velocity_by_interval[interval];
+		chord_type_histogram = new double[ticks_with_chord_type.length];
+		for (int code = 0; code < chord_type_histogram.length; code++)
+			chord_type_histogram[code] = ticks_with_chord_type[code];
+		number_of_pitches_by_tick = Arrays.copyOf(pitches_by_tick, number_of_sounding_ticks);
+		number_of_pitch_classes_by_tick = Arrays.copyOf(pitch_classes_by_tick, number_of_sounding_ticks);
+		chord_durations_in_ticks = Arrays.copyOf(chord_durations, number_of_chords);
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	A copy of the vertical interval histogram, before normalization. The bin index is the interval
+	 *			in semitones (0 to 127), and each bin holds the combined velocity of both notes of each pair
+	 *			of simultaneously sounding pitches separated by that interval, summed over all ticks. Bin 0
+	 *			holds the combined velocity of all notes involved in vertical unisons.
+	 */
+	public double[] getVerticalIntervalHistogram()
+	{
+		return vertical_interval_histogram.clone();
+	}
+
+
+	/**
+	 * @return	A copy of the chord type histogram, before normalization. The bin index is the code of a
+	 *			ChordTypeEnum, and each bin holds the number of ticks on which a chord of that type sounds.
+	 */
+	public double[] getChordTypeHistogram()
+	{
+		return chord_type_histogram.clone();
+	}
+
+
+	/**
+	 * @return	The number of different MIDI pitches sounding on each tick on which at least one note sounds.
+	 *			This array must not be altered.
+	 */
+	public short[] getNumberOfPitchesByTick()
+	{
+		return number_of_pitches_by_tick;
+	}
+
+
+	/**
+	 * @return	The number of different pitch classes sounding on each tick on which at least one note
+	 *			sounds. This array must not be altered.
+	 */
+	public short[] getNumberOfPitchClassesByTick()
+	{
+		return number_of_pitch_classes_by_tick;
+	}
+
+
+	/**
+	 * @return	The number of ticks on which at least one note sounds.
+	 */
+	public int getNumberOfSoundingTicks()
+	{
+		return number_of_pitches_by_tick.length;
+	}
+
+
+	/**
+	 * @param wrapped_interval	A wrapped interval in semitones (0 to 11), where 0 means octaves.
+	 * @return					The number of ticks on which at least one pair of simultaneously sounding
+	 *							pitches is separated by wrapped_interval (unisons are not counted).
+	 */
+	public int getNumberOfTicksWithWrappedVerticalInterval(int wrapped_interval)
+	{
+		return ticks_with_wrapped_vertical_interval[wrapped_interval];
+	}
+
+
+	/**
+	 * @return	The duration in ticks of each chord. A chord lasts for as long as the same pitch classes
+	 *			sound, ignoring ticks on which no notes sound. This array must not be altered.
+	 */
+	public int[] getChordDurationsInTicks()
+	{
+		return chord_durations_in_ticks;
+	}
+}
\ No newline at end of file
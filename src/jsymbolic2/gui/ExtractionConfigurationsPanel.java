@@ -12,12 +12,15 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import jsymbolic2.configurationfile.txtimplementation.ValidatorConfigFileTxtImpl;
 import jsymbolic2.configurationfile.txtimplementation.WriterConfigFileTxtImpl;
 import jsymbolic2.featureutils.FeatureExtractorAccess;
+import jsymbolic2.processing.ExtractedFileFeatures;
 import jsymbolic2.processing.FeatureExtractionJobProcessor;
+import jsymbolic2.processing.FeatureExtractionListener;
 import jsymbolic2.processing.SymbolicMusicFileUtilities;
 import mckay.utilities.staticlibraries.FileMethods;
 import mckay.utilities.staticlibraries.StringMethods;
@@ -77,8 +80,13 @@ import mckay.utilities.staticlibraries.StringMethods;
  * <p>The EXTRACT AND SAVE FEATURES button will cause feature extraction to be carried out (and features 
  * saved) based on the settings specified on all components of the GUI. The PROCESSING INFORMATION and ERROR
  * REPORTS text areas will be updated to indicate progress. A beep will sound and a confirmation dialog box
- * will appear when feature extraction is complete (the GUI settings may not be changed while feature 
- * extraction is occurring).</p>
+ * will appear when feature extraction is complete. Extraction is carried out in the background, so the GUI
+ * remains responsive while it occurs. Changes made to the GUI settings during extraction apply only to later
+ * extractions. The progress bar indicates how many files have been processed so far, along with the rate at
+ * which they are being processed and an estimate of the time remaining.</p>
+ * 
+ * <p>The Cancel Extraction button stops feature extraction once the file currently being processed is
+ * finished. The features extracted from the files processed before this are still saved.</p>
  * 
  * <p>This class also includes an internal enum (DefaultSettingsEnum) that specifies the default settings for
  * all the above GUI components. These are used if the GUI is instantiated without a configuration file.</p>
@@ -162,6 +170,28 @@ public class ExtractionConfigurationsPanel
 	 */
 	private JButton extract_features_button;
 
+	/**
+	 * A button requesting that feature extraction in progress be stopped once the file currently being
+	 * processed is finished.
+	 */
+	private JButton cancel_extraction_button;
+
+	/**
+	 * Indicates how many files have been processed during feature extraction in progress.
+	 */
+	private JProgressBar extraction_progress_bar;
+
+	/**
+	 * Indicates the rate at which files are being processed during feature extraction in progress, and the
+	 * estimated time remaining.
+	 */
+	private JLabel extraction_rate_label;
+
+	/**
+	 * The feature extraction currently in progress. Null if there is none.
+	 */
+	private FeatureExtractionWorker extraction_worker;
+
 	/**
 	 * A dialog box allowing the user to choose paths for loading configuration files.
 	 */
@@ -240,6 +270,8 @@ public class ExtractionConfigurationsPanel
 			browseFeatureValuesSavePath();
 		else if (event.getSource().equals(extract_features_button))
 			extractAndSaveFeatures();
+		else if (event.getSource().equals(cancel_extraction_button))
+			cancelFeatureExtraction();
 	}
 	
 	
@@ -327,6 +359,17 @@ public class ExtractionConfigurationsPanel
 		extract_features_button = new JButton("EXTRACT AND SAVE FEATURES");
 		extract_features_button.setForeground(Color.RED);
 		extract_features_button.addActionListener(this);
+
+		// Set up the components indicating the progress of feature extraction, and allowing it to be
+		// cancelled
+		cancel_extraction_button = new JButton("Cancel Extraction");
+		cancel_extraction_button.setEnabled(false);
+		cancel_extraction_button.addActionListener(this);
+		extraction_progress_bar = new JProgressBar();
+		extraction_progress_bar.setStringPainted(true);
+		extraction_progress_bar.setString("");
+		extraction_rate_label = new JLabel("");
+		extraction_worker = null;
 	}
 	
 	
@@ -372,8 +415,10 @@ public class ExtractionConfigurationsPanel
 		save_settings_and_extraction_panel.add(feature_values_save_path_text_area);
 		save_settings_and_extraction_panel.add(save_as_weka_arff_check_box);
 		save_settings_and_extraction_panel.add(save_as_csv_check_box);
-		save_settings_and_extraction_panel.add(new JLabel(""));
+		save_settings_and_extraction_panel.add(cancel_extraction_button);
 		save_settings_and_extraction_panel.add(extract_features_button);
+		save_settings_and_extraction_panel.add(extraction_progress_bar);
+		save_settings_and_extraction_panel.add(extraction_rate_label);
 		save_settings_and_extraction_super_panel.add(save_settings_and_extraction_panel, BorderLayout.CENTER);
 		add(save_settings_and_extraction_super_panel);
 	}
@@ -650,9 +695,10 @@ public class ExtractionConfigurationsPanel
 	 * Extract and save the features selected on the FeatureSelectorPanel from all the symbolic music files
 	 * selected on the MusicFileSelectorPanel. Use the extraction settings entered on this
 	 * ExtractionConfigurationsPanel, and save the extracted features to the paths specified on this
-	 * ExtractionConfigurationsPanel. The GUI text areas are updated as progress continues. Beeps when
-	 * processing is finished and shows a dialog box indicating whether or not any problems occurred during
-	 * processing.
+	 * ExtractionConfigurationsPanel. Extraction is carried out in the background by a
+	 * FeatureExtractionWorker, which updates the GUI text areas and the progress bar as progress continues,
+	 * and which beeps when processing is finished and shows a dialog box indicating whether or not any
+	 * problems occurred during processing.
 	 */
 	private void extractAndSaveFeatures()
 	{
@@ -669,41 +715,25 @@ public class ExtractionConfigurationsPanel
 				files_to_extract_features_from.add(new File(rec.file_path));
 
 			// Note the features to extract and save
-			boolean[] features_to_save = outer_frame.feature_selector_panel.getFeaturesToSave();
+			boolean[] features_to_save = outer_frame.feature_selector_panel.getFeaturesToSave().clone();
 
 			// Clear the GUI display text areas
 			outer_frame.clearTextAreas();
 
-			// Extract and save features. Update the text areas as progress continues.
-			List<String> error_log = FeatureExtractionJobProcessor.extractAndSaveSpecificFeatures( files_to_extract_features_from,
-			                                                                                       StringMethods.correctExtension(feature_values_save_path_text_area.getText(), "xml"),
-			                                                                                       FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(feature_values_save_path_text_area.getText()),
-			                                                                                       features_to_save,
-			                                                                                       save_windowed_features_only_radio_button.isSelected(),
-			                                                                                       save_overall_features_only_radio_button.isSelected(),
-			                                                                                       Double.parseDouble(window_length_text_area.getText()),
-			                                                                                       Double.parseDouble(window_overlap_fraction_text_area.getText()),
-			                                                                                       save_as_weka_arff_check_box.isSelected(),
-			                                                                                       save_as_csv_check_box.isSelected(),
-			                                                                                       outer_frame.status_print_stream,
-			                                                                                       outer_frame.error_print_stream,
-			                                                                                       true );
-
-			// Beep when processing is finished and show a dialog box indicating whether any problems
-			// occurred during processing.
-			java.awt.Toolkit.getDefaultToolkit().beep();
-			if (error_log.isEmpty())
-				JOptionPane.showMessageDialog( outer_frame,
-				                               "Feature extraction complete.\nNo errors encountered.",
-				                               "Finished Extracting Features",
-				                               JOptionPane.INFORMATION_MESSAGE);
-			else
-				JOptionPane.showMessageDialog( outer_frame,
-				                               "Feature processing complete with " + error_log.size() + " errors.\n" +
-				                               "Features were still saved for any files that could be succesfully processed.\n" +
-				                               "Features were not saved for files for which errors were reported.\n",
-				                               "Finished Extracting Features",
-				                               JOptionPane.WARNING_MESSAGE);
+			// Extract and save features in the background. The text areas and progress bar are updated as
+			// progress continues.
+			extraction_worker = new FeatureExtractionWorker( files_to_extract_features_from,
+			                                                 StringMethods.correctExtension(feature_values_save_path_text_area.getText(), "xml"),
+			                                                 FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(feature_values_save_path_text_area.getText()),
+			                                                 features_to_save,
+			                                                 save_windowed_features_only_radio_button.isSelected(),
+			                                                 save_overall_features_only_radio_button.isSelected(),
+			                                                 Double.parseDouble(window_length_text_area.getText()),
+			                                                 Double.parseDouble(window_overlap_fraction_text_area.getText()),
+			                                                 save_as_weka_arff_check_box.isSelected(),
+			                                                 save_as_csv_check_box.isSelected() );
+			setExtractionInProgress(true);
+			extraction_worker.execute();
 		}
 
 		// Display an error dialog box if a problem is found with the GUI settings before processing occurs.
@@ -719,7 +749,42 @@ public class ExtractionConfigurationsPanel
 			                               JOptionPane.ERROR_MESSAGE );
 		}
 	}
-	
+
+
+	/**
+	 * Request that the feature extraction in progress, if any, be stopped once the file currently being
+	 * processed is finished. The features already extracted are still saved.
+	 */
+	private void cancelFeatureExtraction()
+	{
+		if (extraction_worker != null)
+		{
+			extraction_worker.cancel_requested = true;
+			cancel_extraction_button.setEnabled(false);
+			cancel_extraction_button.setText("Cancelling...");
+		}
+	}
+
+
+	/**
+	 * Update the GUI components of this panel to reflect whether or not feature extraction is in progress.
+	 * Extraction may only be cancelled while it is in progress, and a new extraction may not be started (nor
+	 * a configuration file loaded, which would replace this GUI) until it is finished.
+	 *
+	 * @param in_progress	Whether feature extraction is in progress.
+	 */
+	private void setExtractionInProgress(boolean in_progress)
+	{
+		extract_features_button.setEnabled(!in_progress);
+		load_configuration_file_button.setEnabled(!in_progress);
+		cancel_extraction_button.setEnabled(in_progress);
+		cancel_extraction_button.setText("Cancel Extraction");
+		extraction_progress_bar.setIndeterminate(in_progress);
+		extraction_progress_bar.setValue(0);
+		extraction_progress_bar.setString(in_progress ? "Finding files" : "");
+		extraction_rate_label.setText("");
+	}
+
 	
 	/**
 	 * Validates the settings entered on the GUI to make sure that they are legitimate. Throws an informative
@@ -775,6 +840,8 @@ public class ExtractionConfigurationsPanel
 		// Test input files from which features are to be extracted
 		if (test_input_files)
 		{
+			if (outer_frame.music_file_selector_panel.isLoadingFiles())
+				throw new Exception("Symbolic music files are still being added to the list of files to extract features from. Wait for this to finish, or cancel it.");
 			SymbolicMusicFile[] music_files_to_extract_features_from = outer_frame.music_file_selector_panel.getSymbolicMusicFilesToExtractFeaturesFrom();
 			if (music_files_to_extract_features_from == null)
 				throw new Exception("No symbolic music files have been selected to extract features from.");
@@ -948,6 +1015,225 @@ public class ExtractionConfigurationsPanel
 	}
 
 	
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * A SwingWorker that extracts and saves features on a background thread, so that the GUI remains
+	 * responsive during extraction. It is informed of each file's progress as a FeatureExtractionListener,
+	 * and publishes updates of the number of files processed, the rate at which they are being processed and
+	 * the estimated time remaining, which are displayed by the progress bar on the event dispatch thread. It
+	 * also indicates to the extraction job when the user has asked for it to be cancelled. When extraction is
+	 * finished, it beeps and shows a dialog box summarizing the results.
+	 */
+	private class FeatureExtractionWorker
+		extends SwingWorker<List<String>, String>
+		implements FeatureExtractionListener
+	{
+		/**
+		 * Whether the user has asked for extraction to be cancelled. Set on the event dispatch thread and
+		 * read on the extraction thread.
+		 */
+		volatile boolean cancel_requested;
+
+		/**
+		 * The settings to extract and save features with, as described for
+		 * FeatureExtractionJobProcessor.extractAndSaveSpecificFeatures.
+		 */
+		private final List<File> files_to_extract_features_from;
+		private final String feature_values_save_path;
+		private final String feature_definitions_save_path;
+		private final boolean[] features_to_save;
+		private final boolean save_features_for_each_window;
+		private final boolean save_overall_recording_features;
+		private final double window_size;
+		private final double window_overlap;
+		private final boolean save_arff_file;
+		private final boolean save_csv_file;
+
+		/**
+		 * The value of System.nanoTime() when extraction began.
+		 */
+		private long start_time;
+
+		/**
+		 * The number of files whose features have been extracted so far, and the number that could not be
+		 * processed. Only accessed on the extraction thread.
+		 */
+		private int number_completed;
+		private int number_failed;
+
+		/**
+		 * Set up the worker. Extraction does not begin until execute is called.
+		 */
+		FeatureExtractionWorker( List<File> files_to_extract_features_from,
+		                         String feature_values_save_path,
+		                         String feature_definitions_save_path,
+		                         boolean[] features_to_save,
+		                         boolean save_features_for_each_window,
+		                         boolean save_overall_recording_features,
+		                         double window_size,
+		                         double window_overlap,
+		                         boolean save_arff_file,
+		                         boolean save_csv_file )
+		{
+			this.files_to_extract_features_from = files_to_extract_features_from;
+			this.feature_values_save_path = feature_values_save_path;
+			this.feature_definitions_save_path = feature_definitions_save_path;
+			this.features_to_save = features_to_save;
+			this.save_features_for_each_window = save_features_for_each_window;
+			this.save_overall_recording_features = save_overall_recording_features;
+			this.window_size = window_size;
+			this.window_overlap = window_overlap;
+			this.save_arff_file = save_arff_file;
+			this.save_csv_file = save_csv_file;
+			cancel_requested = false;
+			number_completed = 0;
+			number_failed = 0;
+		}
+
+		@Override
+		protected List<String> doInBackground()
+		{
+			start_time = System.nanoTime();
+			return FeatureExtractionJobProcessor.extractAndSaveSpecificFeatures( files_to_extract_features_from,
+			                                                                     feature_values_save_path,
+			                                                                     feature_definitions_save_path,
+			                                                                     features_to_save,
+			                                                                     save_features_for_each_window,
+			                                                                     save_overall_recording_features,
+			                                                                     window_size,
+			                                                                     window_overlap,
+			                                                                     true,
+			                                                                     save_arff_file,
+			                                                                     save_csv_file,
+			                                                                     null,
+			                                                                     outer_frame.status_print_stream,
+			                                                                     outer_frame.error_print_stream,
+			                                                                     true,
+			                                                                     this );
+		}
+
+		@Override
+		public void fileExtractionStarted(File source_file, int current_extraction_index, int total_files_to_process)
+		{
+			publishProgress(total_files_to_process);
+		}
+
+		@Override
+		public void fileExtractionCompleted(ExtractedFileFeatures extracted_features, int current_extraction_index, int total_files_to_process)
+		{
+			number_completed++;
+			publishProgress(total_files_to_process);
+		}
+
+		@Override
+		public void fileExtractionFailed(File source_file, String error_message, int current_extraction_index, int total_files_to_process)
+		{
+			number_failed++;
+			publishProgress(total_files_to_process);
+		}
+
+		@Override
+		public boolean isExtractionCancelled()
+		{
+			return cancel_requested;
+		}
+
+		/**
+		 * Publish the number of files processed so far, and the rate and estimated time remaining, as a
+		 * percentage and as text to display on the progress bar (separated by a tab). Called on the
+		 * extraction thread.
+		 *
+		 * @param total_files	The number of files to process (or found so far).
+		 */
+		private void publishProgress(int total_files)
+		{
+			int number_processed = number_completed + number_failed;
+			String text = number_processed + " of " + total_files + " files processed";
+			if (number_failed > 0)
+				text += " (" + number_failed + " failed)";
+			String rate = "";
+			double elapsed_seconds = (System.nanoTime() - start_time) / 1.0E9;
+			if (number_processed > 0 && elapsed_seconds > 0.0)
+			{
+				double files_per_second = number_processed / elapsed_seconds;
+				long seconds_remaining = Math.round((total_files - number_processed) / files_per_second);
+				rate = String.format("%.2f files/second, about %d:%02d:%02d remaining", files_per_second, seconds_remaining / 3600, (seconds_remaining / 60) % 60, seconds_remaining % 60);
+			}
+			int percent = (total_files == 0) ? 0 : (100 * number_processed) / total_files;
+			publish(percent + "\t" + text + "\t" + rate);
+		}
+
+		/**
+		 * Display the most recently published progress. Called on the event dispatch thread, with all the
+		 * updates published since it was last called.
+		 *
+		 * @param updates	The published updates, of which only the last is displayed.
+		 */
+		@Override
+		protected void process(List<String> updates)
+		{
+			String[] latest = updates.get(updates.size() - 1).split("\t", -1);
+			extraction_progress_bar.setIndeterminate(false);
+			extraction_progress_bar.setValue(Integer.parseInt(latest[0]));
+			extraction_progress_bar.setString(latest[1]);
+			extraction_rate_label.setText(latest[2]);
+		}
+
+		/**
+		 * Beep when processing is finished and show a dialog box indicating whether any problems occurred
+		 * during processing, or whether it was cancelled. If the Java Runtime ran out of memory during
+		 * extraction, then this is reported and execution is ended. Called on the event dispatch thread.
+		 */
+		@Override
+		protected void done()
+		{
+			extraction_worker = null;
+			setExtractionInProgress(false);
+			java.awt.Toolkit.getDefaultToolkit().beep();
+
+			List<String> error_log;
+			try { error_log = get(); }
+			catch (InterruptedException | ExecutionException e)
+			{
+				Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+
+				// Execution is ended if the Java Runtime ran out of memory, once the user has been told
+				if (cause instanceof OutOfMemoryError)
+				{
+					JOptionPane.showMessageDialog( outer_frame,
+					                               StringMethods.wrapString("Feature extraction ran out of memory, and jSymbolic will now close.\nDetails: " + cause.getMessage(), OuterFrame.DIALOG_BOX_MAX_CHARS_PER_LINE, 0),
+					                               "Error",
+					                               JOptionPane.ERROR_MESSAGE );
+					System.exit(-1);
+				}
+
+				JOptionPane.showMessageDialog( outer_frame,
+				                               StringMethods.wrapString("Feature extraction failed.\nDetails: " + cause, OuterFrame.DIALOG_BOX_MAX_CHARS_PER_LINE, 0),
+				                               "Error",
+				                               JOptionPane.ERROR_MESSAGE );
+				return;
+			}
+
+			String result = cancel_requested ? "Feature extraction cancelled after " + (number_completed + number_failed) + " files.\n" : "";
+			if (error_log.isEmpty())
+				JOptionPane.showMessageDialog( outer_frame,
+				                               result + (cancel_requested ? "Features were saved for the files processed before cancellation.\n" : "Feature extraction complete.\n") +
+				                               "No errors encountered.",
+				                               "Finished Extracting Features",
+				                               JOptionPane.INFORMATION_MESSAGE);
+			else
+				JOptionPane.showMessageDialog( outer_frame,
+				                               result + "Feature processing complete with " + error_log.size() + " errors.\n" +
+				                               "Features were still saved for any files that could be succesfully processed.\n" +
+				                               "Features were not saved for files for which errors were reported.\n",
+				                               "Finished Extracting Features",
+				                               JOptionPane.WARNING_MESSAGE);
+		}
+	}
+
+	
 	/* PRIVATE ENUMS ****************************************************************************************/
 
 
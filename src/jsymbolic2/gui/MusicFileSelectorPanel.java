@@ -4,19 +4,23 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.sound.midi.*;
 import javax.swing.*;
 import jsymbolic2.configurationfile.ConfigFileCompleteData;
 import jsymbolic2.configurationfile.ConfigFileInputFilePaths;
 import jsymbolic2.processing.MIDIReporter;
+import jsymbolic2.processing.MusicFileDiscoverer;
 import jsymbolic2.processing.MusicFilter;
+import jsymbolic2.processing.ProbedMusicFile;
 import jsymbolic2.processing.SymbolicMusicFileUtilities;
 import mckay.utilities.general.FileFilterImplementation;
 import mckay.utilities.gui.templates.InformationDialogFlexible;
 import mckay.utilities.sound.midi.MIDIMethods;
-import mckay.utilities.staticlibraries.ArrayMethods;
 import mckay.utilities.staticlibraries.StringMethods;
 import org.ddmal.jmei2midi.MeiSequence;
 
@@ -26,7 +30,11 @@ import org.ddmal.jmei2midi.MeiSequence;
  * provides additional metadata about its associated file. Buttons are included for adding or removing files
  * from the table, for sonifying them and for generating reports on them. The table may be sorted by clicking
  * on either of the column headings.
-* 
+ *
+ * <p>Files are found and validated in parallel by a background FileLoadingWorker, which adds them to the
+ * table in batches as they are validated, so that the GUI remains responsive (and the loading can be
+ * cancelled) while large directories are being added.</p>
+ * 
  * @author Cory McKay and Tristano Tenaglia
  */
 public class MusicFileSelectorPanel
@@ -40,6 +48,12 @@ public class MusicFileSelectorPanel
 	 * File extensions of symbolic music files recognized by jSymbolic.
 	 */
 	private static final String[] ALLOWED_EXTENSIONS = { "mid", "midi", "mei" };
+
+	/**
+	 * The maximum number of file paths listed in each report printed to the status_print_stream when files
+	 * are added to or removed from the table.
+	 */
+	private static final int MAX_FILES_LISTED_IN_REPORTS = 100;
 	
 	
 	/* FIELDS ***********************************************************************************************/
@@ -118,6 +132,22 @@ public class MusicFileSelectorPanel
 	 */
 	private JButton stop_sonification_button;
 
+	/**
+	 * Cancels the adding of files to the table that is in progress, if any. Files already added remain on
+	 * the table.
+	 */
+	private JButton cancel_loading_button;
+
+	/**
+	 * Indicates how many files have been found and added to the table so far, while files are being added.
+	 */
+	private JProgressBar loading_progress_bar;
+
+	/**
+	 * The worker that is adding files to the table in the background. Null when no files are being added.
+	 */
+	private FileLoadingWorker file_loading_worker;
+
 	/**
 	 * Allows the user to choose one or more symbolic music files to load.
 	 */
@@ -201,6 +231,10 @@ public class MusicFileSelectorPanel
 		// React to the stop_sonification_button
 		else if (event.getSource().equals(stop_sonification_button))
 			stopMidiPlayback();
+
+		// React to the cancel_loading_button
+		else if (event.getSource().equals(cancel_loading_button))
+			cancelLoadingFiles();
 	}
 	
 	
@@ -218,7 +252,7 @@ public class MusicFileSelectorPanel
 		{
 			ConfigFileInputFilePaths input_files = configuration_file_data.getInputFilePaths();
 			if (input_files != null)
-				addSymbolicMusicFilesToTable(input_files.getValidFiles().toArray(new File[0]));
+				addSymbolicMusicFilesToTable(input_files.getValidFiles());
 		}
 	}
 
@@ -239,42 +273,20 @@ public class MusicFileSelectorPanel
 		for (int i = 0; i < files_to_extract_features_from.length; i++)
 		{
 			int table_model_index =  symbolic_music_files_table.convertRowIndexToModel(i);
-			File this_file = new File((String) symbolic_music_files_table_model.getValueAt(table_model_index, 1));
-			files_to_extract_features_from[i] = new SymbolicMusicFile(this_file, null);
+			files_to_extract_features_from[i] = symbolic_music_files_table_model.getSymbolicMusicFile(table_model_index);
 		}
 		
 		return files_to_extract_features_from;
 	}
-	
-	
-	/* STATIC METHODS ***************************************************************************************/
 
-	
+
 	/**
-	 * Find the total number of MIDI files and MEI files in the given music_files.
-	 * 
-	 * @param midi_mei_counts	An array of size 2, where the 0th entry corresponds to the number of MIDI
-	 *							files and the 1st entry corresponds to the number of MEI files. Both are
-	 *							typically initially 0, but do not have to be. This method adds the respective
-	 *							totals from music_files to these two entries. Sets both values to 0 if 
-	 *							music_files is null.
-	 * @param music_files		The symbolic music files to count.
-	 */
-	private static void findNumberMeiAndMidiFile(int[] midi_mei_counts, SymbolicMusicFile[] music_files)
+	 * @return	Whether files are currently being added to the symbolic_music_files_table in the background,
+	 *			in which case the table does not yet hold all of the files that it will.
+	 */
+	public boolean isLoadingFiles()
 	{
-		if (music_files == null)
-		{
-			midi_mei_counts[0] = 0;
-			midi_mei_counts[1] = 0;
-		}
-		
-		else for (SymbolicMusicFile this_music_file : music_files)
-		{
-			if (SymbolicMusicFileUtilities.isValidMidiFile(new File(this_music_file.file_path)))
-				midi_mei_counts[0]++;
-			else if (SymbolicMusicFileUtilities.isValidMeiFile(new File(this_music_file.file_path)))
-				midi_mei_counts[1]++;
-		}
+		return file_loading_worker != null;
 	}
 	
 	
@@ -287,10 +299,10 @@ public class MusicFileSelectorPanel
 	private void setUpSymbolicMusicFilesTable()
 	{
 		// Set the column headings and ordering
-		Object[] column_names = { "File Name", "File Path" };
+		String[] column_names = { "File Name", "File Path" };
 
 		// Prepare the symbolic_music_files_table_model and symbolic_music_files_table fields.
-		symbolic_music_files_table_model = new SymbolicMusicFilesTableModel(column_names, 0);
+		symbolic_music_files_table_model = new SymbolicMusicFilesTableModel(column_names);
 		symbolic_music_files_table = new JTable(symbolic_music_files_table_model);
 		
 		// Make table sortable (DISABLED
@@ -331,6 +343,19 @@ public class MusicFileSelectorPanel
 		button_panel.add(sonify_file_directly_button);
 		button_panel.add(stop_sonification_button);
 
+		// Set up the progress indicator for adding files, along with the button for cancelling it
+		cancel_loading_button = new JButton("Cancel Adding Files");
+		cancel_loading_button.setEnabled(false);
+		loading_progress_bar = new JProgressBar();
+		loading_progress_bar.setStringPainted(true);
+		loading_progress_bar.setString("");
+		JPanel loading_panel = new JPanel(new BorderLayout(horizontal_gap, vertical_gap));
+		loading_panel.add(loading_progress_bar, BorderLayout.CENTER);
+		loading_panel.add(cancel_loading_button, BorderLayout.EAST);
+		JPanel controls_panel = new JPanel(new BorderLayout(horizontal_gap, vertical_gap));
+		controls_panel.add(button_panel, BorderLayout.CENTER);
+		controls_panel.add(loading_panel, BorderLayout.SOUTH);
+
 		// Add action listeners to buttons
 		add_files_button.addActionListener(this);
 		add_directory_button.addActionListener(this);
@@ -339,6 +364,7 @@ public class MusicFileSelectorPanel
 		see_midi_messages_button.addActionListener(this);
 		sonify_file_directly_button.addActionListener(this);
 		stop_sonification_button.addActionListener(this);
+		cancel_loading_button.addActionListener(this);
 
 		// Make the symbolic_music_files_table scrollable and place it on its own JPanel
 		JScrollPane symbolic_music_files_scroll_pane = new JScrollPane(symbolic_music_files_table);
@@ -348,7 +374,7 @@ public class MusicFileSelectorPanel
 		// Add all GUI elements to this JPanel	
 		add(panel_label, BorderLayout.NORTH);
 		add(symbolic_music_files_panel, BorderLayout.CENTER);
-		add(button_panel, BorderLayout.SOUTH);
+		add(controls_panel, BorderLayout.SOUTH);
 		symbolic_music_files_table_model.fireTableDataChanged();
 		repaint();
 		outer_frame.repaint();
@@ -447,7 +473,7 @@ public class MusicFileSelectorPanel
 
 			// Add the files to the table
 			File[] load_files = load_symbolic_music_file_chooser.getSelectedFiles();
-			addSymbolicMusicFilesToTable(load_files);
+			addSymbolicMusicFilesToTable(Arrays.asList(load_files));
 		}
 	}
 	
@@ -484,129 +510,79 @@ public class MusicFileSelectorPanel
 			// Store the directory that was accessed for use by future JFileChooser objects
 			outer_frame.current_file_chooser_directory = load_symbolic_music_in_a_directory_chooser.getCurrentDirectory().getAbsolutePath();
 
-			// Note the directory chosen
-			ArrayList<File> directory_chosen = new ArrayList<>();
-			directory_chosen.add(load_symbolic_music_in_a_directory_chooser.getSelectedFile());
-			
-			// Traverse the files and subdirectories (recursively) in directory_chosen to find files with qualifying extensions
-			ArrayList<File> files_in_directory = SymbolicMusicFileUtilities.getFilteredFilesRecursiveTraversal( directory_chosen,
-			                                                                                                    false,
-			                                                                                                    new MusicFilter(),
-			                                                                                                    null,
-			                                                                                                    new ArrayList<>() );
-			
-			// Add the files to the table
-			File[] load_files = files_in_directory.toArray(new File[files_in_directory.size()]);
-			addSymbolicMusicFilesToTable(load_files);
+			// Add the qualifying files in the directory chosen and its subdirectories (recursively) to the
+			// table. The traversal is performed in the background.
+			File directory_chosen = load_symbolic_music_in_a_directory_chooser.getSelectedFile();
+			if (!directory_chosen.isDirectory())
+			{
+				String error_message = "Could not add files from the specified directory.\n" +
+				                       "DETAILS: The directory " + directory_chosen.getPath() + " does not exist.";
+				JOptionPane.showMessageDialog( outer_frame,
+				                               StringMethods.wrapString(error_message, OuterFrame.DIALOG_BOX_MAX_CHARS_PER_LINE, 0),
+				                               "Error",
+				                               JOptionPane.ERROR_MESSAGE );
+			}
+			else addSymbolicMusicFilesToTable(Collections.singletonList(directory_chosen));
 		}
 	}
 	
 	
 	/**
-	 * Adds the given files to the symbolic_music_files_table, after first verifying that they exist and that
-	 * they are files that can be parsed. Displays an error dialog box for each file that cannot be added.
-	 * Ignores files that have already been added to the table. Prints a report to the status_print_stream.
+	 * Adds the given files, and the files in the given directories, to the symbolic_music_files_table. This
+	 * is done in the background by a FileLoadingWorker, which traverses directories recursively (only
+	 * considering files with qualifying extensions), verifies in parallel that each file found exists and is
+	 * a MIDI or MEI file, and adds the valid files to the table in batches as they are verified. Files that
+	 * have already been added to the table are ignored. Once done, displays an error dialog box listing any
+	 * files that could not be added, and prints a report to the status_print_stream. Displays an error
+	 * dialog box instead if files are already being added.
 	 *
-	 * @param	files_to_add	The files to add to the table. These files should all exist, and should all
-	 *							be symbolic music files of types accepted by jSymbolic.
+	 * @param	files_to_add	The files and/or directories to add to the table. These files should all
+	 *							exist, and should all be symbolic music files of types accepted by jSymbolic.
 	 */
-	private void addSymbolicMusicFilesToTable(File[] files_to_add)
+	private void addSymbolicMusicFilesToTable(List<File> files_to_add)
 	{
-		// The symbolic music files to add to the table
-		SymbolicMusicFile[] music_files_to_add = new SymbolicMusicFile[files_to_add.length];
-
-		// Go through the new symbolic music files one by one. Add them to music_files_to_add. Display an
-		// error dialog box if a problem is encountered.
-		for (int i = 0; i < music_files_to_add.length; i++)
+		if (file_loading_worker != null)
 		{
-			// Assume file is invalid as first guess
-			music_files_to_add[i] = null;
-
-			// Verify that the new file exists and is of a type that can be parsed and display an error dialog
-			// box if a problem is detected.
-			if (files_to_add[i].exists())
-			{
-				List<String> error_log = new ArrayList<>();
-				try
-				{
-					SymbolicMusicFileUtilities.getMidiSequenceFromMidiOrMeiFile(files_to_add[i], error_log);
-					music_files_to_add[i] = new SymbolicMusicFile(files_to_add[i], null);
-				} 
-				catch (Exception e)
-				{
-					if (!error_log.isEmpty())
-					{
-						String text = "Could not parse a specified input file.\nDETAILS: " + error_log.get(0);
-						JOptionPane.showMessageDialog( outer_frame,
-						                               StringMethods.wrapString(text, OuterFrame.DIALOG_BOX_MAX_CHARS_PER_LINE, 0),
-						                               "Error",
-						                               JOptionPane.ERROR_MESSAGE );
-					}
-				}
-			}
-			else
-			{
-				String error_message = "Could not parse a specified input file.\n" +
-				                       "DETAILS: The file " + files_to_add[i].getPath() + " does not exist.";
-				JOptionPane.showMessageDialog( outer_frame,
-				                               StringMethods.wrapString(error_message, OuterFrame.DIALOG_BOX_MAX_CHARS_PER_LINE, 0),
-				                               "Error",
-				                               JOptionPane.ERROR_MESSAGE );
-			}
+			JOptionPane.showMessageDialog( outer_frame,
+			                               "Could not add the specified files.\nDETAILS: Files are already being added to the list.",
+			                               "Error",
+			                               JOptionPane.ERROR_MESSAGE );
+			return;
 		}
+		file_loading_worker = new FileLoadingWorker(files_to_add);
+		setLoadingInProgress(true);
+		file_loading_worker.execute();
+	}
 
-		// Combine the new symbolic music files with those already on the table
-		SymbolicMusicFile[] music_files_already_on_table = getSymbolicMusicFilesToExtractFeaturesFrom();
-		int number_music_files_already_on_table = 0;
-		if (music_files_already_on_table != null)
-			number_music_files_already_on_table = music_files_already_on_table.length;
-		int number_music_files_to_add = music_files_to_add.length;
-		SymbolicMusicFile[] new_and_old_music_files = new SymbolicMusicFile[number_music_files_already_on_table + number_music_files_to_add];
-		for (int i = 0; i < number_music_files_already_on_table; i++)
-			new_and_old_music_files[i] = music_files_already_on_table[i];
-		for (int i = 0; i < number_music_files_to_add; i++)
-			new_and_old_music_files[i + number_music_files_already_on_table] = music_files_to_add[i];
-
-		// Remove duplicate symbolic music files with the same file path
-		for (int i = 0; i < new_and_old_music_files.length - 1; i++)
-		{
-			if (new_and_old_music_files[i] != null)
-			{
-				String current_path = new_and_old_music_files[i].file_path;
-				for (int j = i + 1; j < new_and_old_music_files.length; j++)
-					if (new_and_old_music_files[j] != null)
-						if (current_path.equals(new_and_old_music_files[j].file_path))
-							new_and_old_music_files[j] = null;
-			}
-		}
 
-		// Remove null entries
-		Object[] final_combined_and_cleaned_music_files = ArrayMethods.removeNullEntriesFromArray(new_and_old_music_files);
-		if (final_combined_and_cleaned_music_files != null)
+	/**
+	 * Request that the adding of files to the table that is in progress, if any, be stopped. Files that have
+	 * already been added remain on the table.
+	 */
+	private void cancelLoadingFiles()
+	{
+		if (file_loading_worker != null)
 		{
-			music_files_already_on_table = new SymbolicMusicFile[final_combined_and_cleaned_music_files.length];
-			for (int i = 0; i < final_combined_and_cleaned_music_files.length; i++)
-				music_files_already_on_table[i] = (SymbolicMusicFile) final_combined_and_cleaned_music_files[i];
+			file_loading_worker.cancelLoading();
+			cancel_loading_button.setEnabled(false);
 		}
+	}
 
-		// Update the table to display the new symbolic music files
-		symbolic_music_files_table_model.resetAndFillTable(music_files_already_on_table);
-		
-		// Add a report to the status_print_stream
-		int[] midi_mei_counts = new int[2];
-		int count_of_final_combined_and_cleaned_music_files = 0;
-		if (final_combined_and_cleaned_music_files != null)
-			count_of_final_combined_and_cleaned_music_files = final_combined_and_cleaned_music_files.length;
-		findNumberMeiAndMidiFile(midi_mei_counts, getSymbolicMusicFilesToExtractFeaturesFrom());
-		String report = ">>> Adding to the list of symbolic music files from which features are to be extracted . . . \n";
-		for (int i = 0; i < number_music_files_to_add; i++)
-			if (music_files_to_add[i] != null)
-				report += "\t\t>>> " + music_files_to_add[i].file_path + "\n";
-		report += "\t>>> " + number_music_files_to_add + " files were selected to be added to the existing list of " + number_music_files_already_on_table + " files.\n";
-		report += "\t>>> Of these, " + (count_of_final_combined_and_cleaned_music_files - number_music_files_already_on_table) + " files were valid non-duplicate files, and were added to the list.\n";
-		report += "\t>>> There are now a total of " + count_of_final_combined_and_cleaned_music_files + " files ready to have features extracted from them.\n";
-		report += "\t>>> This total includes " + midi_mei_counts[0] + " MIDI files and " + midi_mei_counts[1] + " MEI files.\n";
-		outer_frame.status_print_stream.println(report);
+
+	/**
+	 * Update the GUI components of this panel to reflect whether or not files are being added to the table.
+	 * Adding may only be cancelled while it is in progress, and no other files may be added until it is
+	 * finished.
+	 *
+	 * @param in_progress	Whether files are being added to the table.
+	 */
+	private void setLoadingInProgress(boolean in_progress)
+	{
+		add_files_button.setEnabled(!in_progress);
+		add_directory_button.setEnabled(!in_progress);
+		cancel_loading_button.setEnabled(in_progress);
+		loading_progress_bar.setIndeterminate(in_progress);
+		loading_progress_bar.setString(in_progress ? "Finding files" : "");
 	}
 
 	
@@ -624,36 +600,14 @@ public class MusicFileSelectorPanel
 				selected_rows[i] = symbolic_music_files_table.convertRowIndexToModel(selected_rows[i]);
 			if (selected_rows.length == 0)
 				throw new Exception("Could not delete rows from the table.\nDetails: No files selcected on the table.");
-			SymbolicMusicFile[] symbolic_music_files = getSymbolicMusicFilesToExtractFeaturesFrom();
-			int count_of_files_before_removal = symbolic_music_files.length;
-			String[] paths_of_removed_files = new String[selected_rows.length];
-			for (int i = 0; i < selected_rows.length; i++)
-			{
-				paths_of_removed_files[i] = symbolic_music_files[selected_rows[i]].file_path;
-				symbolic_music_files[selected_rows[i]] = null;
-			}
-			Object[] results = ArrayMethods.removeNullEntriesFromArray(symbolic_music_files);
-			if (results != null)
-			{
-				symbolic_music_files = new SymbolicMusicFile[results.length];
-				for (int i = 0; i < results.length; i++)
-					symbolic_music_files[i] = (SymbolicMusicFile) results[i];
-				symbolic_music_files_table_model.resetAndFillTable(symbolic_music_files);
-			} 
-			else symbolic_music_files_table_model.clearTable();
+			int count_of_files_before_removal = symbolic_music_files_table_model.getRowCount();
+			List<SymbolicMusicFile> removed_files = symbolic_music_files_table_model.removeRows(selected_rows);
 
 			// Add a report to the status_print_stream
-			int[] midi_mei_counts = new int[2];
-			int count_of_files_after_removal = 0;
-			if (results != null)
-				count_of_files_after_removal = results.length;
-			findNumberMeiAndMidiFile(midi_mei_counts, getSymbolicMusicFilesToExtractFeaturesFrom());
-			String report = ">>> Removing entries from the list of symbolic music files from which features are to be extracted . . . \n";
-			for (int i = 0; i < paths_of_removed_files.length; i++)
-				report += "\t\t>>> " + paths_of_removed_files[i] + "\n";
-			report += "\t>>> " + paths_of_removed_files.length + " files were selected to be removed from the previous list of " + count_of_files_before_removal + " files.\n";
-			report += "\t>>> There are now a total of " + count_of_files_after_removal + " files ready to have features extracted from them.\n";
-			report += "\t>>> This total includes " + midi_mei_counts[0] + " MIDI files and " + midi_mei_counts[1] + " MEI files.\n";
+			StringBuilder report = new StringBuilder(">>> Removing entries from the list of symbolic music files from which features are to be extracted . . . \n");
+			appendFilePathsToReport(report, removed_files);
+			report.append("\t>>> " + removed_files.size() + " files were selected to be removed from the previous list of " + count_of_files_before_removal + " files.\n");
+			appendTableTotalsToReport(report);
 			outer_frame.status_print_stream.println(report);
 		}
 		catch (Exception e)
@@ -664,6 +618,37 @@ public class MusicFileSelectorPanel
 			                               JOptionPane.ERROR_MESSAGE );
 		}
 	}
+
+
+	/**
+	 * Append a line to the given report for each of the given files, indicating its path. Only the first
+	 * MAX_FILES_LISTED_IN_REPORTS files are listed, followed by a count of the rest.
+	 *
+	 * @param report	The report to append to.
+	 * @param files		The files to list.
+	 */
+	private static void appendFilePathsToReport(StringBuilder report, List<SymbolicMusicFile> files)
+	{
+		for (int i = 0; i < files.size() && i < MAX_FILES_LISTED_IN_REPORTS; i++)
+			report.append("\t\t>>> ").append(files.get(i).file_path).append("\n");
+		if (files.size() > MAX_FILES_LISTED_IN_REPORTS)
+			report.append("\t\t>>> . . . and " + (files.size() - MAX_FILES_LISTED_IN_REPORTS) + " more files\n");
+	}
+
+
+	/**
+	 * Append lines to the given report indicating how many files are now on the symbolic_music_files_table,
+	 * and how many of them are MIDI and MEI files.
+	 *
+	 * @param report	The report to append to.
+	 */
+	private void appendTableTotalsToReport(StringBuilder report)
+	{
+		int number_of_files = symbolic_music_files_table_model.getRowCount();
+		int number_of_mei_files = symbolic_music_files_table_model.getNumberOfMeiFiles();
+		report.append("\t>>> There are now a total of " + number_of_files + " files ready to have features extracted from them.\n");
+		report.append("\t>>> This total includes " + (number_of_files - number_of_mei_files) + " MIDI files and " + number_of_mei_files + " MEI files.\n");
+	}
 	
 	
 	/**
@@ -716,7 +701,7 @@ public class MusicFileSelectorPanel
 			File[] selected_files = getSelectedFiles();
 			
 			// The report to display
-			StringBuilder report = new StringBuilder();
+			StringWriter report = new StringWriter();
 			
 			// Report on each file
 			for (int i = 0; i < selected_files.length; i++)
@@ -725,12 +710,8 @@ public class MusicFileSelectorPanel
 				MIDIReporter midi_debugger = new MIDIReporter(selected_files[i]);
 
 				// Generate the report
-				report.append("\n============ MIDI MESSAGES REPORT FOR FILE " + (i+1) + " / " + selected_files.length + " ============\n");
-				report.append(midi_debugger.prepareHeaderReport());
-				report.append(midi_debugger.prepareMetaMessageReport(true, true, true, true, true, true));
-				report.append(midi_debugger.prepareProgramChangeAndUnpitchedInstrumentsReport());
-				report.append(midi_debugger.prepareControllerMessageReport());
-				report.append(midi_debugger.prepareNoteReport(false, true));
+				report.write("\n============ MIDI MESSAGES REPORT FOR FILE " + (i+1) + " / " + selected_files.length + " ============\n");
+				midi_debugger.writeMidiMessagesReport(report);
 			}
 
 			// Display the report in a new window
@@ -838,4 +819,242 @@ public class MusicFileSelectorPanel
 		// Return the results
 		return selected_files;
 	}
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * A SwingWorker that finds and validates symbolic music files in the background with a
+	 * MusicFileDiscoverer (which probes files in parallel), and adds them to the symbolic_music_files_table
+	 * in batches as they are validated. Batches are coalesced in the same way as text written to the text
+	 * areas of the OuterFrame: files validated while an addition to the table is waiting to be carried out on
+	 * the event dispatch thread are added along with it, so the table receives one event per batch rather
+	 * than one per file.
+	 */
+	private class FileLoadingWorker
+		extends SwingWorker<Void, Void>
+	{
+		/**
+		 * The files and directories to add to the table.
+		 */
+		private final List<File> files_and_directories;
+
+		/**
+		 * The number of files that were on the table when this worker was created.
+		 */
+		private final int number_of_files_already_on_table;
+
+		/**
+		 * Files that have been validated but not yet added to the table. Access is synchronized on this list.
+		 */
+		private final List<ProbedMusicFile> pending_files;
+
+		/**
+		 * Whether an addition of pending_files to the table has been scheduled on the event dispatch thread,
+		 * but has not yet been carried out. Access is synchronized on pending_files.
+		 */
+		private boolean update_scheduled;
+
+		/**
+		 * The files found that were not valid MIDI or MEI files. Only set once processing is finished.
+		 */
+		private volatile List<File> invalid_files;
+
+		/**
+		 * The number of files found so far that were not valid MIDI or MEI files. Set on the loading thread.
+		 */
+		private volatile int number_of_invalid_files_so_far;
+
+		/**
+		 * Problems encountered while traversing directories.
+		 */
+		private final List<String> error_log;
+
+		/**
+		 * The files added to the table so far, and the number of valid files that were not added because
+		 * they were already on it. Only accessed on the event dispatch thread.
+		 */
+		private final List<SymbolicMusicFile> added_files;
+		private int number_of_duplicate_files;
+
+		/**
+		 * Whether the user has asked for loading to be cancelled.
+		 */
+		private volatile boolean cancel_requested;
+
+		/**
+		 * The thread running doInBackground, which is interrupted on cancellation in case it is waiting for
+		 * the next file to be found. Null when doInBackground is not running. Access is synchronized on this
+		 * object.
+		 */
+		private Thread loading_thread;
+
+		/**
+		 * Set up the worker. Loading does not begin until execute is called.
+		 *
+		 * @param files_and_directories	The files and directories to add to the table.
+		 */
+		FileLoadingWorker(List<File> files_and_directories)
+		{
+			this.files_and_directories = new ArrayList<>(files_and_directories);
+			number_of_files_already_on_table = symbolic_music_files_table_model.getRowCount();
+			pending_files = new ArrayList<>();
+			update_scheduled = false;
+			invalid_files = new ArrayList<>();
+			number_of_invalid_files_so_far = 0;
+			error_log = Collections.synchronizedList(new ArrayList<>());
+			added_files = new ArrayList<>();
+			number_of_duplicate_files = 0;
+			cancel_requested = false;
+			loading_thread = null;
+		}
+
+		@Override
+		protected Void doInBackground()
+		{
+			synchronized (this)
+			{
+				loading_thread = Thread.currentThread();
+			}
+			MusicFileDiscoverer discoverer = new MusicFileDiscoverer( files_and_directories,
+			                                                          new MusicFilter(),
+			                                                          0,
+			                                                          outer_frame.error_print_stream,
+			                                                          error_log );
+			List<File> files_not_on_disk = new ArrayList<>();
+			try
+			{
+				ProbedMusicFile probed_file;
+				while (!cancel_requested && (probed_file = discoverer.next()) != null)
+				{
+					// Files read from within archives cannot be referred to by the table
+					if (probed_file.isHeldInMemory())
+						files_not_on_disk.add(probed_file.getFile());
+					else addPendingFile(probed_file);
+					number_of_invalid_files_so_far = discoverer.getInvalidFilesSoFar().size() + files_not_on_disk.size();
+				}
+			}
+			catch (InterruptedException e) {}
+			finally
+			{
+				List<File> all_invalid_files = new ArrayList<>(discoverer.getInvalidFilesSoFar());
+				all_invalid_files.addAll(files_not_on_disk);
+				invalid_files = all_invalid_files;
+				discoverer.close();
+				synchronized (this)
+				{
+					loading_thread = null;
+					Thread.interrupted();
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Request that loading stop as soon as possible. Files already added remain on the table. Called on
+		 * the event dispatch thread.
+		 */
+		void cancelLoading()
+		{
+			cancel_requested = true;
+			synchronized (this)
+			{
+				if (loading_thread != null)
+					loading_thread.interrupt();
+			}
+		}
+
+		/**
+		 * Queue the given validated file to be added to the table, and schedule its addition on the event
+		 * dispatch thread unless this has already been done. Called on the loading thread.
+		 *
+		 * @param probed_file	The file to add.
+		 */
+		private void addPendingFile(ProbedMusicFile probed_file)
+		{
+			synchronized (pending_files)
+			{
+				pending_files.add(probed_file);
+				if (!update_scheduled)
+				{
+					update_scheduled = true;
+					SwingUtilities.invokeLater(this::addPendingFilesToTable);
+				}
+			}
+		}
+
+		/**
+		 * Add all pending files to the table as a single batch, and update the progress bar. Called on the
+		 * event dispatch thread.
+		 */
+		private void addPendingFilesToTable()
+		{
+			List<ProbedMusicFile> batch;
+			synchronized (pending_files)
+			{
+				batch = new ArrayList<>(pending_files);
+				pending_files.clear();
+				update_scheduled = false;
+			}
+			if (batch.isEmpty())
+				return;
+			List<SymbolicMusicFile> added_batch = symbolic_music_files_table_model.addFiles(batch);
+			added_files.addAll(added_batch);
+			number_of_duplicate_files += batch.size() - added_batch.size();
+			String progress = added_files.size() + " files added";
+			if (number_of_invalid_files_so_far > 0)
+				progress += " (" + number_of_invalid_files_so_far + " invalid files skipped)";
+			loading_progress_bar.setString(progress);
+		}
+
+		/**
+		 * Add any remaining pending files to the table, print a report on the files added to the
+		 * status_print_stream and display an error dialog box listing any files that could not be added.
+		 * Called on the event dispatch thread.
+		 */
+		@Override
+		protected void done()
+		{
+			addPendingFilesToTable();
+			file_loading_worker = null;
+			setLoadingInProgress(false);
+
+			// Add a report to the status_print_stream
+			int number_of_files_found = added_files.size() + number_of_duplicate_files + invalid_files.size();
+			StringBuilder report = new StringBuilder(">>> Adding to the list of symbolic music files from which features are to be extracted . . . \n");
+			appendFilePathsToReport(report, added_files);
+			if (cancel_requested)
+				report.append("\t>>> Adding files was cancelled before all of the selected files were found.\n");
+			report.append("\t>>> " + number_of_files_found + " files were found to be added to the existing list of " + number_of_files_already_on_table + " files.\n");
+			report.append("\t>>> Of these, " + added_files.size() + " files were valid non-duplicate files, and were added to the list.\n");
+			appendTableTotalsToReport(report);
+			outer_frame.status_print_stream.println(report);
+
+			// Report problems with the loading itself, and then any files that could not be added
+			try { get(); }
+			catch (InterruptedException | ExecutionException e)
+			{
+				Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+				error_log.add("Could not add all of the specified files. Details: " + cause);
+			}
+			if (!invalid_files.isEmpty() || !error_log.isEmpty())
+			{
+				StringBuilder error_message = new StringBuilder();
+				for (String error : error_log)
+					error_message.append(error).append("\n");
+				if (!invalid_files.isEmpty())
+				{
+					error_message.append(invalid_files.size() + " files could not be parsed, as they do not exist or are not valid MIDI or MEI files:\n");
+					for (int i = 0; i < invalid_files.size() && i < MAX_FILES_LISTED_IN_REPORTS; i++)
+						error_message.append("     ").append(invalid_files.get(i).getPath()).append("\n");
+					if (invalid_files.size() > MAX_FILES_LISTED_IN_REPORTS)
+						error_message.append("     . . . and " + (invalid_files.size() - MAX_FILES_LISTED_IN_REPORTS) + " more files\n");
+				}
+				JOptionPane.showMessageDialog( outer_frame,
+				                               StringMethods.wrapString("Could not add some of the specified input files.\nDETAILS: " + error_message, OuterFrame.DIALOG_BOX_MAX_CHARS_PER_LINE, 0),
+				                               "Error",
+				                               JOptionPane.ERROR_MESSAGE );
+			}
+		}
+	}
 }
\ No newline at end of file
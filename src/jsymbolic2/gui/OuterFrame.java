@@ -3,8 +3,8 @@ package jsymbolic2.gui;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import javax.swing.*;
@@ -128,6 +128,13 @@ public class OuterFrame
 	 */
 	private JTextArea error_text_area;
 
+	/**
+	 * The streams underlying status_print_stream and error_print_stream, which append text to the
+	 * status_text_area and error_text_area, respectively.
+	 */
+	private TextAreaOutputStream status_text_area_stream;
+	private TextAreaOutputStream error_text_area_stream;
+
 	/**
 	 * Displays ownership and version information.
 	 */
@@ -249,7 +256,8 @@ public class OuterFrame
 		JScrollPane status_text_area_scrollpane = new JScrollPane(status_text_area);
 		JScrollBar status_text_area_scrollbar = status_text_area_scrollpane.getVerticalScrollBar();
 		status_text_panel.add(status_text_area_scrollpane, BorderLayout.CENTER);
-		status_print_stream = getPrintStream(status_text_area, status_text_area_scrollbar);
+		status_text_area_stream = new TextAreaOutputStream(status_text_area, status_text_area_scrollbar);
+		status_print_stream = new PrintStream(status_text_area_stream, true);
 		
 		// Set up the error_print_stream and its associated error_text_area
 		JPanel error_text_panel = new JPanel(new BorderLayout(HORIZONTAL_GAP, VERTICAL_GAP));
@@ -269,7 +277,8 @@ public class OuterFrame
 		JScrollPane error_text_area_scrollpane = new JScrollPane(error_text_area);
 		JScrollBar error_text_area_scrollbar = error_text_area_scrollpane.getVerticalScrollBar();
 		error_text_panel.add(error_text_area_scrollpane, BorderLayout.CENTER);
-		error_print_stream = getPrintStream(error_text_area, error_text_area_scrollbar);
+		error_text_area_stream = new TextAreaOutputStream(error_text_area, error_text_area_scrollbar);
+		error_print_stream = new PrintStream(error_text_area_stream, true);
 		
 		// Print out a warning if no default configuration file was found at startup
 		if (config_file_data == null)
@@ -366,10 +375,15 @@ public class OuterFrame
 	
 	
 	/**
-	 * Delete all contents in the status_text_area and error_text_area.
+	 * Delete all contents in the status_text_area and error_text_area, including any text written to the
+	 * status_print_stream and error_print_stream that has not yet been displayed. Must be called on the Swing
+	 * event dispatch thread.
 	 */
 	public void clearTextAreas()
 	{
+		status_text_area_stream.discardPendingText();
+		error_text_area_stream.discardPendingText();
+
 		status_text_area.setText("");
 		status_text_area.setCaretPosition(0);
 		status_text_area.update(status_text_area.getGraphics());
@@ -417,53 +431,105 @@ public class OuterFrame
 	}
 	
 
-	/* PRIVATE STATIC METHODS *******************************************************************************/
+	/* PRIVATE STATIC CLASSES *******************************************************************************/
+
 
-	
 	/**
-	 * Return a PrintStream that, when written to, will append the supplied text to the specified JTextArea
-	 * and cause scrolling to follow text as it is written.
-	 * 
-	 * @param text_area				The JTextArea to append text to when the returned PrintStream is written
-	 *								to.
-	 * @param vertical_scroll_bar	The vertical scroll bar associated with the JTextArea that will be written
-	 *								to. Needed to ensure scrolling updates properly.
-	 * @return						The PrintStream that can be used to write to the text_area.
+	 * An OutputStream that appends the text written to it to a JTextArea, scrolling to follow it. Text may be
+	 * written from any thread. It is held in a buffer, and everything written since the JTextArea was last
+	 * updated is appended to it at once on the Swing event dispatch thread. This keeps the GUI responsive
+	 * while background processing writes many status messages, rather than updating and repainting the
+	 * JTextArea once per character written.
 	 */
-	private static PrintStream getPrintStream(final JTextArea text_area, final JScrollBar vertical_scroll_bar)
+	private static class TextAreaOutputStream
+		extends OutputStream
 	{
-		OutputStream new_stream = new OutputStream() 
+		/**
+		 * The JTextArea to append text to.
+		 */
+		private final JTextArea text_area;
+
+		/**
+		 * The vertical scroll bar associated with text_area.
+		 */
+		private final JScrollBar vertical_scroll_bar;
+
+		/**
+		 * Text written that has not yet been appended to text_area. Access is synchronized on this object.
+		 */
+		private final ByteArrayOutputStream pending_text;
+
+		/**
+		 * Whether an update of text_area has been scheduled on the event dispatch thread, but has not yet
+		 * been carried out. Access is synchronized on this object.
+		 */
+		private boolean update_scheduled;
+
+		/**
+		 * @param text_area				The JTextArea to append text to.
+		 * @param vertical_scroll_bar	The vertical scroll bar associated with text_area.
+		 */
+		TextAreaOutputStream(JTextArea text_area, JScrollBar vertical_scroll_bar)
 		{
-			@Override
-			public void write(int b) throws IOException 
+			this.text_area = text_area;
+			this.vertical_scroll_bar = vertical_scroll_bar;
+			pending_text = new ByteArrayOutputStream();
+			update_scheduled = false;
+		}
+
+		@Override
+		public synchronized void write(int b)
+		{
+			pending_text.write(b);
+			scheduleUpdate();
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len)
+		{
+			pending_text.write(b, off, len);
+			scheduleUpdate();
+		}
+
+		/**
+		 * Discard any text that has been written but not yet appended to text_area.
+		 */
+		synchronized void discardPendingText()
+		{
+			pending_text.reset();
+		}
+
+		/**
+		 * Schedule the appending of pending text on the event dispatch thread, unless this has already been
+		 * done. Must be called while synchronized on this object.
+		 */
+		private void scheduleUpdate()
+		{
+			if (!update_scheduled)
 			{
-				text_area.append(String.valueOf((char) b));
-				// text_area.update(text_area.getGraphics());
-				vertical_scroll_bar.setValue(vertical_scroll_bar.getMaximum());
-				// vertical_scroll_bar.paint(vertical_scroll_bar.getGraphics());
-				text_area.scrollRectToVisible(text_area.getVisibleRect());
-				text_area.paint(text_area.getGraphics());
+				update_scheduled = true;
+				SwingUtilities.invokeLater(this::appendPendingText);
 			}
+		}
 
-			@Override
-			public void write(byte[] b, int off, int len) throws IOException 
+		/**
+		 * Append all pending text to text_area and scroll to the end of it. Called on the event dispatch
+		 * thread.
+		 */
+		private void appendPendingText()
+		{
+			String text;
+			synchronized (this)
 			{
-				text_area.append(new String(b, off, len));
-				// text_area.update(text_area.getGraphics());
-				vertical_scroll_bar.setValue(vertical_scroll_bar.getMaximum());
-				// vertical_scroll_bar.paint(vertical_scroll_bar.getGraphics());
-				text_area.scrollRectToVisible(text_area.getVisibleRect());
-				text_area.paint(text_area.getGraphics());
+				text = pending_text.toString();
+				pending_text.reset();
+				update_scheduled = false;
 			}
-
-			@Override
-			public void write(byte[] b)
-				throws IOException
+			if (!text.isEmpty())
 			{
-				write(b, 0, b.length);
+				text_area.append(text);
+				vertical_scroll_bar.setValue(vertical_scroll_bar.getMaximum());
 			}
-		};
-		
-		return new PrintStream(new_stream);
+		}
 	}
 }
\ No newline at end of file
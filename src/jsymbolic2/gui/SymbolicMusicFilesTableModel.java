@@ -1,68 +1,205 @@
 package jsymbolic2.gui;
 
-import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+import jsymbolic2.processing.ProbedMusicFile;
 
 /**
  * The table model used by the symbolic_music_files_table JTable in MusicFileSelectorPanel to list all
  * symbolic music files from which features are to be extracted. The file path for each such file is listed in
- * its own row, with one column for the file name and one for the file path. Provides methods to fill the
- * table row by row and to delete everything in it. Makes all cells non-editable.
+ * its own row, with one column for the file name and one for the file path. Provides methods to add batches
+ * of rows, to remove rows and to delete everything in it. Makes all cells non-editable.
+ *
+ * <p>Rows are held in an ArrayList, and the paths of the files on the table in a HashSet, so that a batch of
+ * files can be appended (with duplicates ignored) in time proportional to the size of the batch, and with a
+ * single table event, no matter how many rows the table already holds. This keeps the table responsive when
+ * it holds hundreds of thousands of files.</p>
  *
  * @author Cory McKay
  */
 public class SymbolicMusicFilesTableModel
-	extends DefaultTableModel
+	extends AbstractTableModel
 {
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The column headings.
+	 */
+	private final String[] column_names;
+
+	/**
+	 * The files on the table, in the order of the rows of the table.
+	 */
+	private final ArrayList<SymbolicMusicFile> symbolic_music_files;
+
+	/**
+	 * The file paths of the files in symbolic_music_files.
+	 */
+	private final HashSet<String> file_paths;
+
+	/**
+	 * The file paths of the files in symbolic_music_files that are MEI files (all others are MIDI files).
+	 */
+	private final HashSet<String> mei_file_paths;
+
+
 	/* CONSTRUCTOR ******************************************************************************************/
 
-	
+
 	/**
-	 * Simply calls the DefaultTableModel constructor.
+	 * Set up an empty table.
+	 *
+	 * @param	column_names	The column headings.
 	 */
-	SymbolicMusicFilesTableModel(Object[] column_names, int rows)
+	SymbolicMusicFilesTableModel(String[] column_names)
 	{
-		super(column_names, rows);
+		this.column_names = column_names;
+		symbolic_music_files = new ArrayList<>();
+		file_paths = new HashSet<>();
+		mei_file_paths = new HashSet<>();
 	}
 
-	
+
 	/* PUBLIC METHODS ***************************************************************************************/
-	
-	
+
+
 	/**
-	 * Deletes everything in the table and then fills it up one row at a time based on the given
-	 * symbolic_music_files.
+	 * Append a row to the table for each of the given files that is not already on it, and notify listeners
+	 * of all the rows added at once.
 	 *
-	 * @param	symbolic_music_files	Files to include on the table, in the order that they are to be added
-	 *									to it. If this is null, then the table is simply cleared of any 
-	 *									existing rows.
+	 * @param	probed_files	The files to add, in the order that they are to be added.
+	 * @return					The files actually added (i.e. those that were not already on the table).
 	 */
-	public void resetAndFillTable(SymbolicMusicFile[] symbolic_music_files)
+	public List<SymbolicMusicFile> addFiles(List<ProbedMusicFile> probed_files)
 	{
-		// Clear the contents of the table
-		clearTable();
+		int first_new_row = symbolic_music_files.size();
+		List<SymbolicMusicFile> added_files = new ArrayList<>();
+		for (ProbedMusicFile probed_file : probed_files)
+		{
+			SymbolicMusicFile this_music_file = new SymbolicMusicFile(probed_file.getFile(), null);
+			if (file_paths.add(this_music_file.file_path))
+			{
+				symbolic_music_files.add(this_music_file);
+				added_files.add(this_music_file);
+				if (probed_file.isMei())
+					mei_file_paths.add(this_music_file.file_path);
+			}
+		}
+		if (!added_files.isEmpty())
+			fireTableRowsInserted(first_new_row, symbolic_music_files.size() - 1);
+		return added_files;
+	}
+
 
-		// Populate each row one by one
-		if (symbolic_music_files != null)
+	/**
+	 * Remove the given rows from the table.
+	 *
+	 * @param	rows	The indices of the rows to remove, in any order.
+	 * @return			The files that were removed, in the order that they appeared on the table.
+	 */
+	public List<SymbolicMusicFile> removeRows(int[] rows)
+	{
+		int[] sorted_rows = rows.clone();
+		Arrays.sort(sorted_rows);
+		boolean[] remove = new boolean[symbolic_music_files.size()];
+		for (int row : sorted_rows)
+			remove[row] = true;
+
+		List<SymbolicMusicFile> removed_files = new ArrayList<>();
+		ArrayList<SymbolicMusicFile> remaining_files = new ArrayList<>(symbolic_music_files.size() - sorted_rows.length);
+		for (int i = 0; i < remove.length; i++)
 		{
-			for (SymbolicMusicFile this_music_file : symbolic_music_files)
+			SymbolicMusicFile this_music_file = symbolic_music_files.get(i);
+			if (remove[i])
 			{
-				Object[] row_contents = { this_music_file.file_name, this_music_file.file_path };
-				addRow(row_contents);
+				removed_files.add(this_music_file);
+				file_paths.remove(this_music_file.file_path);
+				mei_file_paths.remove(this_music_file.file_path);
 			}
+			else remaining_files.add(this_music_file);
 		}
+		symbolic_music_files.clear();
+		symbolic_music_files.addAll(remaining_files);
+
+		// Removing a single contiguous run of rows is reported as such, so that the selection and scroll
+		// position of the table are kept, but anything else is reported as a change to all rows
+		if (sorted_rows.length > 0 && sorted_rows[sorted_rows.length - 1] - sorted_rows[0] == removed_files.size() - 1)
+			fireTableRowsDeleted(sorted_rows[0], sorted_rows[sorted_rows.length - 1]);
+		else if (!removed_files.isEmpty())
+			fireTableDataChanged();
+		return removed_files;
 	}
 
-	
+
 	/**
 	 * Removes all rows in the table.
 	 */
 	public void clearTable()
 	{
-		while (getRowCount() != 0)
-			removeRow(0);
+		symbolic_music_files.clear();
+		file_paths.clear();
+		mei_file_paths.clear();
+		fireTableDataChanged();
+	}
+
+
+	/**
+	 * @param	row	The index of a row on the table.
+	 * @return		The file listed on the given row.
+	 */
+	public SymbolicMusicFile getSymbolicMusicFile(int row)
+	{
+		return symbolic_music_files.get(row);
+	}
+
+
+	/**
+	 * @return	The number of files on the table that are MEI files. All others are MIDI files.
+	 */
+	public int getNumberOfMeiFiles()
+	{
+		return mei_file_paths.size();
 	}
 
-	
+
+	@Override
+	public int getRowCount()
+	{
+		return symbolic_music_files.size();
+	}
+
+
+	@Override
+	public int getColumnCount()
+	{
+		return column_names.length;
+	}
+
+
+	@Override
+	public String getColumnName(int column)
+	{
+		return column_names[column];
+	}
+
+
+	/**
+	 * @param	row		The table row to check.
+	 * @param	column	The table column to check. 0 is the file name, and 1 is the file path.
+	 * @return			The file name or path on the given row.
+	 */
+	@Override
+	public Object getValueAt(int row, int column)
+	{
+		SymbolicMusicFile this_music_file = symbolic_music_files.get(row);
+		return (column == 0) ? this_music_file.file_name : this_music_file.file_path;
+	}
+
+
 	/**
 	 * Returns false for all cells on the table, with the effect that no cells are editable.
 	 *
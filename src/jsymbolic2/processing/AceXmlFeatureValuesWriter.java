@@ -0,0 +1,613 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.zip.GZIPOutputStream;
+import mckay.utilities.staticlibraries.StringMethods;
+
+/**
+ * Writes the body of an ACE XML Feature Values file (data sets, sections and features) with as little
+ * per-value overhead as possible. Output is byte-identical to that produced by writing each element as a
+ * concatenated String, with each value formatted by StringMethods.getDoubleInScientificNotation, through an
+ * OutputStreamWriter (as MIDIFeatureProcessor did previously).
+ *
+ * <p>Rather than building temporary Strings for every element, this class writes directly into a single
+ * reusable byte buffer. Tags are encoded once as static byte arrays, and the complete name element of each
+ * feature (including its indentation) is encoded the first time the feature is written and reused
+ * thereafter. Values are formatted by a fast scientific notation formatter that works with primitive
+ * arithmetic only, and falls back to StringMethods.getDoubleInScientificNotation for the rare values
+ * (NaN, infinities, negative zero, extreme magnitudes and near rounding ties) where its result could
+ * otherwise differ. The fast formatter is also checked against StringMethods.getDoubleInScientificNotation
+ * on a set of sample values when this class is loaded, and is disabled entirely if any result differs (e.g.
+ * because the default locale uses a different decimal separator).</p>
+ *
+ * <p>The buffer is written to the file through a FileChannel. If the file path ends in .gz, then output is
+ * instead gzip-compressed on the fly.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class AceXmlFeatureValuesWriter
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	private static final byte[] data_set_open = ascii("\t<data_set>\n\t\t<data_set_id>");
+	private static final byte[] data_set_id_close = ascii("</data_set_id>\n");
+	private static final byte[] data_set_close = ascii("\t</data_set>\n\n");
+	private static final byte[] section_open = ascii("\t\t<section start=\"");
+	private static final byte[] section_stop = ascii("\" stop=\"");
+	private static final byte[] section_open_end = ascii("\">\n");
+	private static final byte[] section_close = ascii("\t\t</section>\n");
+	private static final byte[] window_feature_open = ascii("\t\t\t<feature>\n");
+	private static final byte[] window_feature_close = ascii("\t\t\t</feature>\n");
+	private static final byte[] window_value_open = ascii("\t\t\t\t<v>");
+	private static final byte[] overall_feature_open = ascii("\t\t<feature>\n");
+	private static final byte[] overall_feature_close = ascii("\t\t</feature>\n");
+	private static final byte[] overall_value_open = ascii("\t\t\t<v>");
+	private static final byte[] value_close = ascii("</v>\n");
+
+	/**
+	 * Powers of ten that can be represented exactly as doubles.
+	 */
+	private static final double[] exact_powers_of_ten = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+	                                                      1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+	                                                      1e20, 1e21, 1e22 };
+
+	/**
+	 * How close (in units of the last significant digit) a value may come to a rounding tie before the fast
+	 * formatter defers to StringMethods.getDoubleInScientificNotation. This is several orders of magnitude
+	 * larger than the possible error of the fast formatter's scaling arithmetic.
+	 */
+	private static final double tie_margin = 1e-6;
+
+	/**
+	 * The size of the output buffer, in bytes.
+	 */
+	private static final int buffer_size = 64 * 1024;
+
+	/**
+	 * Whether the fast formatter produces the same results as StringMethods.getDoubleInScientificNotation
+	 * under the current default locale. Set when this class is loaded.
+	 */
+	private static final boolean fast_formatting_verified = verifyFastFormatting();
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The number of significant digits that values are written with.
+	 */
+	private final int significant_digits;
+
+	/**
+	 * The channel written to if output is not compressed. Null otherwise.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The stream written to if output is gzip-compressed. Null otherwise.
+	 */
+	private final OutputStream gzip_stream;
+
+	/**
+	 * The output buffer. Bytes up to buffer_position have not yet been written to the file.
+	 */
+	private final byte[] buffer;
+
+	/**
+	 * A ByteBuffer view of buffer, used to write to channel.
+	 */
+	private final ByteBuffer wrapped_buffer;
+
+	/**
+	 * The number of bytes currently held in buffer.
+	 */
+	private int buffer_position;
+
+	/**
+	 * The encoded name elements of features written within sections, keyed by feature name.
+	 */
+	private final HashMap<String, byte[]> window_name_elements;
+
+	/**
+	 * The encoded name elements of features written at the data set level, keyed by feature name.
+	 */
+	private final HashMap<String, byte[]> overall_name_elements;
+
+	/**
+	 * Reused to format section start and stop times.
+	 */
+	private final StringBuilder number_builder;
+
+	/**
+	 * Whether close has been called.
+	 */
+	private boolean closed;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Open the given file for writing, replacing any existing contents.
+	 *
+	 * @param file					The file to write to. Output is gzip-compressed if its name ends in .gz.
+	 * @param significant_digits	The maximum number of significant digits that values are written with.
+	 * @throws Exception			Throws an exception if the file cannot be opened.
+	 */
+	public AceXmlFeatureValuesWriter(File file, int significant_digits)
+		throws Exception
+	{
+		this.significant_digits = significant_digits;
+		buffer = new byte[buffer_size];
+		wrapped_buffer = ByteBuffer.wrap(buffer);
+		buffer_position = 0;
+		window_name_elements = new HashMap<>();
+		overall_name_elements = new HashMap<>();
+		number_builder = new StringBuilder(32);
+		closed = false;
+
+		FileChannel file_channel = new FileOutputStream(file).getChannel();
+		if (isGzipPath(file.getPath()))
+		{
+			channel = null;
+			gzip_stream = new GZIPOutputStream(Channels.newOutputStream(file_channel), buffer_size);
+		}
+		else
+		{
+			channel = file_channel;
+			gzip_stream = null;
+		}
+	}
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * @param path	A file path.
+	 * @return		Whether a file at the given path is to be (or was) gzip-compressed.
+	 */
+	public static boolean isGzipPath(String path)
+	{
+		return path.toLowerCase().endsWith(".gz");
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Write the given text, encoded as UTF-8. This is intended for infrequently written text such as the
+	 * file's header and closing tag.
+	 *
+	 * @param text			The text to write.
+	 * @throws IOException	Throws an exception if the text cannot be written.
+	 */
+	public void write(String text)
+		throws IOException
+	{
+		put(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Write the opening tag and identifier of a data set.
+	 *
+	 * @param identifier	The data set's identifier.
+	 * @throws IOException	Throws an exception if the data cannot be written.
+	 */
+	public void startDataSet(String identifier)
+		throws IOException
+	{
+		put(data_set_open);
+		write(identifier);
+		put(data_set_id_close);
+	}
+
+
+	/**
+	 * Write the closing tag of a data set.
+	 *
+	 * @throws IOException	Throws an exception if the data cannot be written.
+	 */
+	public void endDataSet()
+		throws IOException
+	{
+		put(data_set_close);
+	}
+
+
+	/**
+	 * Write the opening tag of a section. Times are formatted as by Double.toString.
+	 *
+	 * @param start_time	The section's start time, in seconds.
+	 * @param stop_time		The section's stop time, in seconds.
+	 * @throws IOException	Throws an exception if the data cannot be written.
+	 */
+	public void startSection(double start_time, double stop_time)
+		throws IOException
+	{
+		put(section_open);
+		putAsciiNumber(start_time);
+		put(section_stop);
+		putAsciiNumber(stop_time);
+		put(section_open_end);
+	}
+
+
+	/**
+	 * Write the closing tag of a section.
+	 *
+	 * @throws IOException	Throws an exception if the data cannot be written.
+	 */
+	public void endSection()
+		throws IOException
+	{
+		put(section_close);
+	}
+
+
+	/**
+	 * Write a complete feature element.
+	 *
+	 * @param name			The feature's name.
+	 * @param values		The feature's values.
+	 * @param in_section	Whether the feature is within a section (true) or directly within a data set
+	 *						(false). This determines the indentation.
+	 * @throws IOException	Throws an exception if the data cannot be written.
+	 */
+	public void writeFeature(String name, double[] values, boolean in_section)
+		throws IOException
+	{
+		HashMap<String, byte[]> name_elements = in_section ? window_name_elements : overall_name_elements;
+		byte[] name_element = name_elements.get(name);
+		if (name_element == null)
+		{
+			String indentation = in_section ? "\t\t\t\t" : "\t\t\t";
+			name_element = (indentation + "<name>" + name + "</name>\n").getBytes(StandardCharsets.UTF_8);
+			name_elements.put(name, name_element);
+		}
+
+		put(in_section ? window_feature_open : overall_feature_open);
+		put(name_element);
+		byte[] value_open = in_section ? window_value_open : overall_value_open;
+		for (double value : values)
+		{
+			put(value_open);
+			putScientific(value);
+			put(value_close);
+		}
+		put(in_section ? window_feature_close : overall_feature_close);
+	}
+
+
+	/**
+	 * Write any buffered output and close the file. Calling this method more than once has no effect.
+	 *
+	 * @throws IOException	Throws an exception if the file cannot be written or closed.
+	 */
+	public void close()
+		throws IOException
+	{
+		if (closed)
+			return;
+		try
+		{
+			flush();
+			if (gzip_stream != null)
+				gzip_stream.close();
+		}
+		finally
+		{
+			closed = true;
+			if (channel != null)
+				channel.close();
+		}
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Add the given bytes to the output buffer, flushing it first if there is not enough room.
+	 *
+	 * @param bytes			The bytes to write.
+	 * @throws IOException	Throws an exception if the buffer cannot be flushed.
+	 */
+	private void put(byte[] bytes)
+		throws IOException
+	{
+		if (buffer_position + bytes.length > buffer.length)
+		{
+			flush();
+			if (bytes.length > buffer.length)
+			{
+				writeToFile(bytes, bytes.length);
+				return;
+			}
+		}
+		System.arraycopy(bytes, 0, buffer, buffer_position, bytes.length);
+		buffer_position += bytes.length;
+	}
+
+
+	/**
+	 * Make sure the output buffer has room for the given number of bytes.
+	 *
+	 * @param bytes			The number of bytes about to be added.
+	 * @throws IOException	Throws an exception if the buffer cannot be flushed.
+	 */
+	private void reserve(int bytes)
+		throws IOException
+	{
+		if (buffer_position + bytes > buffer.length)
+			flush();
+	}
+
+
+	/**
+	 * Write the contents of the output buffer to the file.
+	 *
+	 * @throws IOException	Throws an exception if the buffer cannot be written.
+	 */
+	private void flush()
+		throws IOException
+	{
+		writeToFile(buffer, buffer_position);
+		buffer_position = 0;
+	}
+
+
+	/**
+	 * Write the first length bytes of the given array to the file (compressing them if appropriate).
+	 *
+	 * @param bytes			The bytes to write.
+	 * @param length		The number of bytes to write.
+	 * @throws IOException	Throws an exception if the file has been closed or cannot be written.
+	 */
+	private void writeToFile(byte[] bytes, int length)
+		throws IOException
+	{
+		if (closed)
+			throw new IOException("Stream Closed");
+		if (gzip_stream != null)
+			gzip_stream.write(bytes, 0, length);
+		else
+		{
+			ByteBuffer to_write = (bytes == buffer) ? wrapped_buffer : ByteBuffer.wrap(bytes);
+			to_write.clear();
+			to_write.limit(length);
+			while (to_write.hasRemaining())
+				channel.write(to_write);
+		}
+	}
+
+
+	/**
+	 * Write the given value as formatted by Double.toString (which only produces ASCII characters).
+	 *
+	 * @param value			The value to write.
+	 * @throws IOException	Throws an exception if the buffer cannot be flushed.
+	 */
+	private void putAsciiNumber(double value)
+		throws IOException
+	{
+		number_builder.setLength(0);
+		number_builder.append(value);
+		int length = number_builder.length();
+		reserve(length);
+		for (int i = 0; i < length; i++)
+			buffer[buffer_position++] = (byte) number_builder.charAt(i);
+	}
+
+
+	/**
+	 * Write the given value in scientific notation, exactly as formatted by
+	 * StringMethods.getDoubleInScientificNotation(value, significant_digits).
+	 *
+	 * @param value			The value to write.
+	 * @throws IOException	Throws an exception if the buffer cannot be flushed.
+	 */
+	private void putScientific(double value)
+		throws IOException
+	{
+		reserve(32);
+		int end = fast_formatting_verified ? formatScientific(value, significant_digits, buffer, buffer_position) : -1;
+		if (end >= 0)
+			buffer_position = end;
+		else
+			write(StringMethods.getDoubleInScientificNotation(value, significant_digits));
+	}
+
+
+	/* STATIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Return the given value formatted exactly as it is written to ACE XML Feature Values files, i.e. as
+	 * formatted by StringMethods.getDoubleInScientificNotation(value, significant_digits). The fast formatter
+	 * is used where it is reliable, as for the values written by this class.
+	 *
+	 * @param value					The value to format.
+	 * @param significant_digits	The maximum number of significant digits.
+	 * @return						The formatted value.
+	 */
+	static String formatValue(double value, int significant_digits)
+	{
+		if (fast_formatting_verified)
+		{
+			byte[] scratch = new byte[32];
+			int end = formatScientific(value, significant_digits, scratch, 0);
+			if (end >= 0)
+				return new String(scratch, 0, end, StandardCharsets.US_ASCII);
+		}
+		return StringMethods.getDoubleInScientificNotation(value, significant_digits);
+	}
+
+
+	/**
+	 * Format the given value in scientific notation with at most the given number of significant digits,
+	 * using only primitive arithmetic. Trailing zeros of the mantissa are omitted, as is the decimal point
+	 * if there is only one significant digit (e.g. 1.467E2, 3.48E-1, 5E0 and 0E0). Values are rounded half
+	 * to even. This matches the DecimalFormat pattern 0.#######E0 (for 8 significant digits) under locales
+	 * using ASCII digits and a period as the decimal separator.
+	 *
+	 * @param value					The value to format.
+	 * @param significant_digits	The maximum number of significant digits, from 1 to 9.
+	 * @param destination			The array to write the ASCII characters to. Must have at least 32 bytes
+	 *								available from offset.
+	 * @param offset				The position in destination to start writing at.
+	 * @return						The position in destination after the last character written, or -1 if
+	 *								the value could not be formatted reliably (in which case the caller
+	 *								should use StringMethods.getDoubleInScientificNotation instead).
+	 */
+	static int formatScientific(double value, int significant_digits, byte[] destination, int offset)
+	{
+		if (significant_digits < 1 || significant_digits > 9)
+			return -1;
+		if (value == 0.0)
+		{
+			// Negative zero is left to the fallback
+			if (1.0 / value < 0.0)
+				return -1;
+			destination[offset++] = '0';
+			destination[offset++] = 'E';
+			destination[offset++] = '0';
+			return offset;
+		}
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return -1;
+
+		boolean negative = value < 0.0;
+		double magnitude = Math.abs(value);
+
+		// Scale the magnitude so that its integer part has significant_digits digits
+		int exponent = (int) Math.floor(Math.log10(magnitude));
+		double lower_bound = exact_powers_of_ten[significant_digits - 1];
+		double upper_bound = exact_powers_of_ten[significant_digits];
+		double scaled = Double.NaN;
+		for (int attempt = 0; attempt < 2; attempt++)
+		{
+			int shift = significant_digits - 1 - exponent;
+			if (shift > 22 || shift < -22)
+				return -1;
+			scaled = (shift >= 0) ? magnitude * exact_powers_of_ten[shift] : magnitude / exact_powers_of_ten[-shift];
+			if (scaled < lower_bound)
+				exponent--;
+			else if (scaled >= upper_bound)
+				exponent++;
+			else break;
+		}
+		if (!(scaled >= lower_bound && scaled < upper_bound))
+			return -1;
+
+		// Round half to even, deferring to the fallback if the value is too close to a tie to be sure
+		double integer_part = Math.floor(scaled);
+		double fraction = scaled - integer_part;
+		if (Math.abs(fraction - 0.5) < tie_margin)
+			return -1;
+		long mantissa = (long) integer_part + ((fraction > 0.5) ? 1 : 0);
+		if (mantissa == (long) upper_bound)
+		{
+			mantissa = (long) lower_bound;
+			exponent++;
+		}
+
+		// Drop trailing zeros
+		int digits = significant_digits;
+		while (digits > 1 && mantissa % 10 == 0)
+		{
+			mantissa /= 10;
+			digits--;
+		}
+
+		// Write the mantissa
+		if (negative)
+			destination[offset++] = '-';
+		int first_digit_position = offset;
+		offset += (digits > 1) ? digits + 1 : 1;
+		int position = offset;
+		for (int i = digits - 1; i >= 0; i--)
+		{
+			position--;
+			if (i == 0 && digits > 1)
+			{
+				destination[position] = '.';
+				position--;
+			}
+			destination[position] = (byte) ('0' + (mantissa % 10));
+			mantissa /= 10;
+		}
+		if (position != first_digit_position)
+			return -1;
+
+		// Write the exponent
+		destination[offset++] = 'E';
+		if (exponent < 0)
+		{
+			destination[offset++] = '-';
+			exponent = -exponent;
+		}
+		if (exponent >= 100)
+			destination[offset++] = (byte) ('0' + exponent / 100);
+		if (exponent >= 10)
+			destination[offset++] = (byte) ('0' + (exponent / 10) % 10);
+		destination[offset++] = (byte) ('0' + exponent % 10);
+		return offset;
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Check that formatScientific produces the same results as StringMethods.getDoubleInScientificNotation
+	 * for a range of sample values under the current default locale.
+	 *
+	 * @return	Whether all results were identical.
+	 */
+	private static boolean verifyFastFormatting()
+	{
+		double[] samples = { 0.0, 1.0, -1.0, 5.0, 10.0, 146.7, 0.348, 2.735, 9.588E-4, 0.1, 1.0 / 3.0, 2.0 / 3.0,
+		                     -0.0123456789, 123456789.0, 987654321987.0, 1.23456785E-7, 99999999.7, 1.0E-15,
+		                     Math.PI, Math.E, -Math.sqrt(2.0), 6.02214076E23 };
+		byte[] scratch = new byte[32];
+		try
+		{
+			for (double sample : samples)
+			{
+				int end = formatScientific(sample, 8, scratch, 0);
+				if (end < 0)
+					continue;
+				String fast = new String(scratch, 0, end, StandardCharsets.US_ASCII);
+				if (!fast.equals(StringMethods.getDoubleInScientificNotation(sample, 8)))
+					return false;
+			}
+			return true;
+		}
+		catch (Exception e)
+		{
+			return false;
+		}
+	}
+
+
+	/**
+	 * @param text	Text consisting only of ASCII characters.
+	 * @return		The text, encoded.
+	 */
+	private static byte[] ascii(String text)
+	{
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+}
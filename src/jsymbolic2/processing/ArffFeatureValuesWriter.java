@@ -0,0 +1,225 @@
+package jsymbolic2.processing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeSet;
+import ace.datatypes.FeatureDefinition;
+
+/**
+ * A StreamingFeatureValuesWriter that saves feature values to a Weka ARFF file as they are extracted. The
+ * format matches that of the ARFF files converted from ACE XML Feature Values files by AceXmlConverter: a
+ * relation named Converted_from_ACE_XML, one numeric attribute per feature dimension and one data row per
+ * instance, with values separated by a comma and a space. Missing values are written as ?.
+ *
+ * <p>If class labels are to be saved, then a nominal Class attribute is added at the end. Since the set of
+ * class labels is only known once all files have been processed, data rows are in this case first streamed
+ * to a temporary file in the same directory, and are appended to the header when finish is called. No
+ * feature values are held in memory in either case.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class ArffFeatureValuesWriter
+	extends StreamingFeatureValuesWriter
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The relation name written to the ARFF file. This matches the name used by AceXmlConverter, so that
+	 * downstream processing sees no difference between directly written and converted files.
+	 */
+	private static final String relation_name = "Converted_from_ACE_XML";
+
+	/**
+	 * Used to write data rows. This writes to the final file if no class labels are being saved, and to
+	 * temporary_data_file otherwise.
+	 */
+	private final Writer data_writer;
+
+	/**
+	 * The file that data rows are temporarily written to if class labels are being saved. Null otherwise.
+	 */
+	private final File temporary_data_file;
+
+	/**
+	 * The class labels encountered so far, sorted alphabetically. Empty if class labels are not being saved.
+	 */
+	private final TreeSet<String> class_labels;
+
+	/**
+	 * A buffer reused to build each row.
+	 */
+	private final StringBuilder row_builder;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Prepare the ARFF file for writing. The header is written immediately unless class labels are to be
+	 * saved.
+	 *
+	 * @param save_path				The path of the ARFF file to write.
+	 * @param column_definitions	The feature definitions of the values to save, in the order in which they
+	 *								should appear.
+	 * @param rows_are_windows		Whether each row corresponds to an analysis window (true) or to a music
+	 *								file as a whole (false).
+	 * @param save_class_labels		Whether or not each row should be given a class label consisting of the
+	 *								name of the directory holding the music file that it was extracted from.
+	 * @throws Exception			Throws an informative exception if the file cannot be written to.
+	 */
+	public ArffFeatureValuesWriter( String save_path,
+	                                FeatureDefinition[] column_definitions,
+	                                boolean rows_are_windows,
+	                                boolean save_class_labels )
+		throws Exception
+	{
+		super(save_path, column_definitions, rows_are_windows, save_class_labels);
+		class_labels = new TreeSet<>();
+		row_builder = new StringBuilder(column_names.length * 8);
+
+		File save_file = new File(save_path);
+		if (save_file.exists() && !save_file.canWrite())
+			throw new Exception("Cannot write to " + save_path + ".");
+
+		if (save_class_labels)
+		{
+			File directory = save_file.getAbsoluteFile().getParentFile();
+			temporary_data_file = File.createTempFile("jsymbolic_arff_", ".tmp", directory);
+			temporary_data_file.deleteOnExit();
+			data_writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary_data_file), StandardCharsets.UTF_8));
+		}
+		else
+		{
+			temporary_data_file = null;
+			data_writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(save_file), StandardCharsets.UTF_8));
+			writeHeader(data_writer);
+		}
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Complete and close the ARFF file. If class labels are being saved, then the header (including the now
+	 * known class labels) is written and the temporarily saved data rows are appended to it.
+	 *
+	 * @throws Exception	Throws an exception if the file cannot be completed.
+	 */
+	@Override
+	public void finish()
+		throws Exception
+	{
+		data_writer.close();
+		if (temporary_data_file == null)
+			return;
+
+		try (FileOutputStream final_stream = new FileOutputStream(save_path))
+		{
+			Writer header_writer = new BufferedWriter(new OutputStreamWriter(final_stream, StandardCharsets.UTF_8));
+			writeHeader(header_writer);
+			header_writer.flush();
+			try ( FileChannel from = new FileInputStream(temporary_data_file).getChannel();
+			      FileChannel to = final_stream.getChannel() )
+			{
+				long position = 0;
+				long size = from.size();
+				while (position < size)
+					position += from.transferTo(position, size - position, to);
+			}
+		}
+		finally
+		{
+			temporary_data_file.delete();
+		}
+	}
+
+
+	/* PROTECTED METHODS ************************************************************************************/
+
+
+	@Override
+	protected void writeRow( String identifier,
+	                         double start_time,
+	                         double stop_time,
+	                         double[] values,
+	                         String class_label )
+		throws Exception
+	{
+		row_builder.setLength(0);
+		for (int i = 0; i < values.length; i++)
+		{
+			if (i > 0)
+				row_builder.append(", ");
+			if (Double.isNaN(values[i]))
+				row_builder.append('?');
+			else
+				row_builder.append(roundToSavedPrecision(values[i]));
+		}
+		if (class_label != null)
+		{
+			class_labels.add(class_label);
+			row_builder.append(", ").append(quote(class_label));
+		}
+		row_builder.append('\n');
+		data_writer.write(row_builder.toString());
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Write the ARFF header, up to and including the @data line.
+	 *
+	 * @param writer		The writer to write the header to.
+	 * @throws Exception	Throws an exception if the header cannot be written.
+	 */
+	private void writeHeader(Writer writer)
+		throws Exception
+	{
+		writer.write("@relation " + relation_name + "\n\n");
+		for (String column_name : column_names)
+			writer.write("@attribute " + quote(column_name) + " numeric\n");
+		if (save_class_labels)
+		{
+			StringBuilder classes = new StringBuilder();
+			for (String class_label : class_labels)
+			{
+				if (classes.length() > 0)
+					classes.append(',');
+				classes.append(quote(class_label));
+			}
+			writer.write("@attribute Class {" + classes + "}\n");
+		}
+		writer.write("\n@data\n");
+	}
+
+
+	/**
+	 * Return the given ARFF name or nominal value, quoted if it contains characters that ARFF would
+	 * otherwise misinterpret.
+	 *
+	 * @param text	The text to quote.
+	 * @return		The text, quoted and escaped if necessary.
+	 */
+	private static String quote(String text)
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if (c == ' ' || c == ',' || c == '\'' || c == '"' || c == '{' || c == '}' || c == '%' || c == '\t')
+				return "'" + text.replace("\\", "\\\\").replace("'", "\\'") + "'";
+		}
+		if (text.isEmpty())
+			return "''";
+		return text;
+	}
+}
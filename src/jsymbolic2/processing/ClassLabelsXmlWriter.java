@@ -0,0 +1,122 @@
+package jsymbolic2.processing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import ace.datatypes.FeatureDefinition;
+
+/**
+ * A StreamingFeatureValuesWriter that saves an ACE XML Classifications file holding the class label of each
+ * music file as its features are extracted, rather than by converting a complete ACE XML Feature Values file
+ * after extraction has finished. The file matches the one saved by AceXmlConverter alongside converted Weka
+ * ARFF and CSV files (see FeatureExtractionJobProcessor.getMatchingClassLabelsXmlSavePath): there is one
+ * data set per music file, identified by its path, and its class label is the name of the directory holding
+ * it. Only the class label of each file is saved, no matter how many analysis windows it is divided into.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class ClassLabelsXmlWriter
+	extends StreamingFeatureValuesWriter
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * Used to write to the classifications file.
+	 */
+	private final Writer writer;
+
+	/**
+	 * The identifier of the music file whose class label was written last. Used to write only one data set
+	 * for the several rows of a file divided into windows.
+	 */
+	private String last_identifier;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Prepare the classifications file for writing and write its header.
+	 *
+	 * @param save_path				The path of the classifications file to write.
+	 * @param column_definitions	The feature definitions of the values being saved (see
+	 *								StreamingFeatureValuesWriter).
+	 * @param rows_are_windows		Whether the values being saved correspond to analysis windows (true) or
+	 *								to music files as a whole (false).
+	 * @throws Exception			Throws an informative exception if the file cannot be written to.
+	 */
+	public ClassLabelsXmlWriter( String save_path,
+	                             FeatureDefinition[] column_definitions,
+	                             boolean rows_are_windows )
+		throws Exception
+	{
+		super(save_path, column_definitions, rows_are_windows, true);
+
+		File save_file = new File(save_path);
+		if (save_file.exists() && !save_file.canWrite())
+			throw new Exception("Cannot write to " + save_path + ".");
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(save_file), StandardCharsets.UTF_8));
+
+		writer.write( "<?xml version=\"1.0\"?>\n" +
+		              "<!DOCTYPE classifications_file [\n" +
+		              "   <!ELEMENT classifications_file (comments, data_set+)>\n" +
+		              "   <!ELEMENT comments (#PCDATA)>\n" +
+		              "   <!ELEMENT data_set (data_set_id, misc_info*, role?, classification)>\n" +
+		              "   <!ELEMENT data_set_id (#PCDATA)>\n" +
+		              "   <!ELEMENT misc_info (#PCDATA)>\n" +
+		              "   <!ATTLIST misc_info info_type CDATA \"\">\n" +
+		              "   <!ELEMENT role (#PCDATA)>\n" +
+		              "   <!ELEMENT classification (section*, class*)>\n" +
+		              "   <!ELEMENT section (start, stop, class+)>\n" +
+		              "   <!ELEMENT class (#PCDATA)>\n" +
+		              "   <!ELEMENT start (#PCDATA)>\n" +
+		              "   <!ELEMENT stop (#PCDATA)>\n" +
+		              "]>\n\n" +
+		              "<classifications_file>\n\n" +
+		              "   <comments></comments>\n\n" );
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Write the end of the classifications file and close it.
+	 *
+	 * @throws Exception	Throws an exception if the file cannot be closed.
+	 */
+	@Override
+	public void finish()
+		throws Exception
+	{
+		writer.write("</classifications_file>");
+		writer.close();
+	}
+
+
+	/* PROTECTED METHODS ************************************************************************************/
+
+
+	@Override
+	protected void writeRow( String identifier,
+	                         double start_time,
+	                         double stop_time,
+	                         double[] values,
+	                         String class_label )
+		throws Exception
+	{
+		if (identifier.equals(last_identifier))
+			return;
+		last_identifier = identifier;
+		writer.write( "   <data_set>\n" +
+		              "      <data_set_id>" + identifier + "</data_set_id>\n" +
+		              "      <classification>\n" +
+		              "         <class>" + class_label + "</class>\n" +
+		              "      </classification>\n" +
+		              "   </data_set>\n\n" );
+	}
+}
\ No newline at end of file
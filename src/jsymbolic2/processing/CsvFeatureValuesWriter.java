@@ -0,0 +1,140 @@
+package jsymbolic2.processing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import ace.datatypes.FeatureDefinition;
+
+/**
+ * A StreamingFeatureValuesWriter that saves feature values to a CSV file as they are extracted. The format
+ * matches that of the CSV files converted from ACE XML Feature Values files by AceXmlConverter: the first row
+ * lists the feature names (with an empty first cell), and each other row consists of the quoted instance
+ * identifier followed by the value of each feature. Missing values are written as NaN.
+ *
+ * <p>If each row corresponds to an analysis window, then two additional columns, Window_Start and
+ * Window_Stop, follow the identifier and hold the window boundaries in seconds. If class labels are to be
+ * saved, then a final Class column holds the name of the directory holding each music file.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class CsvFeatureValuesWriter
+	extends StreamingFeatureValuesWriter
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * Used to write to the CSV file.
+	 */
+	private final Writer writer;
+
+	/**
+	 * A buffer reused to build each row.
+	 */
+	private final StringBuilder row_builder;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Prepare the CSV file for writing and write its header row.
+	 *
+	 * @param save_path				The path of the CSV file to write.
+	 * @param column_definitions	The feature definitions of the values to save, in the order in which they
+	 *								should appear.
+	 * @param rows_are_windows		Whether each row corresponds to an analysis window (true) or to a music
+	 *								file as a whole (false).
+	 * @param save_class_labels		Whether or not each row should be given a class label consisting of the
+	 *								name of the directory holding the music file that it was extracted from.
+	 * @throws Exception			Throws an informative exception if the file cannot be written to.
+	 */
+	public CsvFeatureValuesWriter( String save_path,
+	                               FeatureDefinition[] column_definitions,
+	                               boolean rows_are_windows,
+	                               boolean save_class_labels )
+		throws Exception
+	{
+		super(save_path, column_definitions, rows_are_windows, save_class_labels);
+		row_builder = new StringBuilder(column_names.length * 8);
+
+		File save_file = new File(save_path);
+		if (save_file.exists() && !save_file.canWrite())
+			throw new Exception("Cannot write to " + save_path + ".");
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(save_file), StandardCharsets.UTF_8));
+
+		// Write the header row
+		StringBuilder header = new StringBuilder();
+		if (rows_are_windows)
+			header.append(",Window_Start,Window_Stop");
+		for (String column_name : column_names)
+			header.append(',').append(escape(column_name));
+		if (save_class_labels)
+			header.append(",Class");
+		header.append('\n');
+		writer.write(header.toString());
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Flush and close the CSV file.
+	 *
+	 * @throws Exception	Throws an exception if the file cannot be closed.
+	 */
+	@Override
+	public void finish()
+		throws Exception
+	{
+		writer.close();
+	}
+
+
+	/* PROTECTED METHODS ************************************************************************************/
+
+
+	@Override
+	protected void writeRow( String identifier,
+	                         double start_time,
+	                         double stop_time,
+	                         double[] values,
+	                         String class_label )
+		throws Exception
+	{
+		row_builder.setLength(0);
+		row_builder.append('"').append(identifier.replace("\"", "\"\"")).append('"');
+		if (rows_are_windows)
+			row_builder.append(',').append(start_time).append(',').append(stop_time);
+		for (int i = 0; i < values.length; i++)
+		{
+			row_builder.append(i == 0 ? "," : ", ");
+			row_builder.append(roundToSavedPrecision(values[i]));
+		}
+		if (class_label != null)
+			row_builder.append(',').append(escape(class_label));
+		row_builder.append('\n');
+		writer.write(row_builder.toString());
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Return the given text as a CSV cell, quoted if it contains a comma, quote or line break.
+	 *
+	 * @param text	The text to escape.
+	 * @return		The escaped text.
+	 */
+	private static String escape(String text)
+	{
+		if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0)
+			return text;
+		return "\"" + text.replace("\"", "\"\"") + "\"";
+	}
+}
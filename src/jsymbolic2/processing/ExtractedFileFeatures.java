@@ -0,0 +1,224 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import ace.datatypes.FeatureDefinition;
+
+/**
+ * An object of this class holds all the feature values that were extracted from a single music file (MIDI or
+ * MEI), along with the feature definitions and analysis window boundaries needed to interpret them. It is
+ * generated by MIDIFeatureProcessor as soon as a file has been processed, and is handed to any
+ * FeatureExtractionListener that has been registered for the extraction job. It holds exactly the values that
+ * are written to the ACE XML feature values file for the file (i.e. only those features that are marked to be
+ * saved), so that callers do not need to re-parse the saved files in order to access them.
+ *
+ * <p>Note that the arrays returned by the getters of this class are not copied, for efficiency reasons, and
+ * should therefore not be modified by callers.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class ExtractedFileFeatures
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The music file that the features were extracted from.
+	 */
+	private final File source_file;
+
+	/**
+	 * The identifier used for the file in the saved ACE XML feature values file (i.e. its data_set_id).
+	 */
+	private final String identifier;
+
+	/**
+	 * The start time of each analysis window, in seconds. Null if features were not saved for each window.
+	 */
+	private final double[] window_start_times;
+
+	/**
+	 * The stop time of each analysis window, in seconds. Null if features were not saved for each window.
+	 */
+	private final double[] window_stop_times;
+
+	/**
+	 * The definitions of the window-based features. Entries correspond to the second index of
+	 * window_feature_values. Null if features were not saved for each window.
+	 */
+	private final FeatureDefinition[] window_feature_definitions;
+
+	/**
+	 * The window-based feature values. The first index identifies the window, the second the feature (as
+	 * ordered in window_feature_definitions) and the third the feature value. The third dimension will be
+	 * null if the given feature could not be extracted for the given window. Null if features were not saved
+	 * for each window.
+	 */
+	private final double[][][] window_feature_values;
+
+	/**
+	 * The definitions of the features extracted for the file as a whole. Entries correspond to the first
+	 * index of overall_feature_values. Null if overall features were not saved.
+	 */
+	private final FeatureDefinition[] overall_feature_definitions;
+
+	/**
+	 * The feature values extracted for the file as a whole. The first index identifies the feature (as
+	 * ordered in overall_feature_definitions) and the second the feature value. Null if overall features were
+	 * not saved.
+	 */
+	private final double[][] overall_feature_values;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Store the given extracted feature information.
+	 *
+	 * @param source_file					The music file that the features were extracted from.
+	 * @param identifier					The identifier used for the file in the saved ACE XML feature
+	 *										values file.
+	 * @param window_start_times			The start time of each analysis window, in seconds. Null if
+	 *										features were not saved for each window.
+	 * @param window_stop_times				The stop time of each analysis window, in seconds. Null if
+	 *										features were not saved for each window.
+	 * @param window_feature_definitions	The definitions of the window-based features. Null if features
+	 *										were not saved for each window.
+	 * @param window_feature_values			The window-based feature values, indexed by window, feature and
+	 *										value. Null if features were not saved for each window.
+	 * @param overall_feature_definitions	The definitions of the overall features. Null if overall features
+	 *										were not saved.
+	 * @param overall_feature_values		The overall feature values, indexed by feature and value. Null if
+	 *										overall features were not saved.
+	 */
+	public ExtractedFileFeatures( File source_file,
+	                              String identifier,
+	                              double[] window_start_times,
+	                              double[] window_stop_times,
+	                              FeatureDefinition[] window_feature_definitions,
+	                              double[][][] window_feature_values,
+	                              FeatureDefinition[] overall_feature_definitions,
+	                              double[][] overall_feature_values )
+	{
+		this.source_file = source_file;
+		this.identifier = identifier;
+		this.window_start_times = window_start_times;
+		this.window_stop_times = window_stop_times;
+		this.window_feature_definitions = window_feature_definitions;
+		this.window_feature_values = window_feature_values;
+		this.overall_feature_definitions = overall_feature_definitions;
+		this.overall_feature_values = overall_feature_values;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	The music file that the features were extracted from.
+	 */
+	public File getSourceFile()
+	{
+		return source_file;
+	}
+
+
+	/**
+	 * @return	The identifier used for the file in the saved ACE XML feature values file.
+	 */
+	public String getIdentifier()
+	{
+		return identifier;
+	}
+
+
+	/**
+	 * @return	Whether window-based feature values are held by this object.
+	 */
+	public boolean hasWindowFeatures()
+	{
+		return window_feature_values != null;
+	}
+
+
+	/**
+	 * @return	Whether overall (whole file) feature values are held by this object.
+	 */
+	public boolean hasOverallFeatures()
+	{
+		return overall_feature_values != null;
+	}
+
+
+	/**
+	 * @return	The number of analysis windows, or 0 if window-based features are not held by this object.
+	 */
+	public int getNumberOfWindows()
+	{
+		if (window_feature_values == null)
+			return 0;
+		return window_feature_values.length;
+	}
+
+
+	/**
+	 * @return	The start time of each analysis window, in seconds. Null if features were not saved for each
+	 *			window.
+	 */
+	public double[] getWindowStartTimes()
+	{
+		return window_start_times;
+	}
+
+
+	/**
+	 * @return	The stop time of each analysis window, in seconds. Null if features were not saved for each
+	 *			window.
+	 */
+	public double[] getWindowStopTimes()
+	{
+		return window_stop_times;
+	}
+
+
+	/**
+	 * @return	The definitions of the window-based features. Null if features were not saved for each window.
+	 */
+	public FeatureDefinition[] getWindowFeatureDefinitions()
+	{
+		return window_feature_definitions;
+	}
+
+
+	/**
+	 * @return	The window-based feature values. The first index identifies the window, the second the
+	 *			feature (as ordered in getWindowFeatureDefinitions()) and the third the feature value. The
+	 *			third dimension will be null if the given feature could not be extracted for the given window.
+	 *			Null if features were not saved for each window.
+	 */
+	public double[][][] getWindowFeatureValues()
+	{
+		return window_feature_values;
+	}
+
+
+	/**
+	 * @return	The definitions of the features extracted for the file as a whole. Null if overall features
+	 *			were not saved.
+	 */
+	public FeatureDefinition[] getOverallFeatureDefinitions()
+	{
+		return overall_feature_definitions;
+	}
+
+
+	/**
+	 * @return	The feature values extracted for the file as a whole. The first index identifies the feature
+	 *			(as ordered in getOverallFeatureDefinitions()) and the second the feature value. Null if
+	 *			overall features were not saved.
+	 */
+	public double[][] getOverallFeatureValues()
+	{
+		return overall_feature_values;
+	}
+}
@@ -0,0 +1,230 @@
+package jsymbolic2.processing;
+
+import java.io.PrintStream;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+
+/**
+ * An object that is informed of the beginning and end of each phase of feature extraction, so that the time
+ * spent in each phase can be recorded. The phases are the parsing of each file, each generate* pass of the
+ * MIDIIntermediateRepresentations constructor, the extraction of each feature and the writing of each
+ * file's feature values. At most one monitor is installed at a time, using the install method. When none is
+ * installed (the default), the cost of the phase hooks placed throughout extraction is a single volatile
+ * read each.
+ *
+ * <p>FlightRecorderPhaseMonitor reports phases as JDK Flight Recorder events, and PhaseTimingSummaryMonitor
+ * accumulates a per-phase summary of times. Either can be installed at the command line by running java
+ * with the system property named by phase_monitor_property.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public abstract class ExtractionPhaseMonitor
+{
+	/* PUBLIC STATIC FINAL FIELDS ***************************************************************************/
+
+
+	/**
+	 * The name of a system property that, if set to jfr, causes runCommandLine to install a
+	 * FlightRecorderPhaseMonitor or, if set to summary, a PhaseTimingSummaryMonitor that prints its summary
+	 * to standard error when jSymbolic exits.
+	 */
+	public static final String phase_monitor_property = "jsymbolic.phasemonitor";
+
+
+	/* PUBLIC NESTED ENUMS AND INTERFACES *******************************************************************/
+
+
+	/**
+	 * The phases of feature extraction that are reported to monitors.
+	 */
+	public enum Phase
+	{
+		/**
+		 * Parsing a MIDI or MEI file into a MIDI sequence. The name is null.
+		 */
+		PARSE("Parse"),
+
+		/**
+		 * One generate* pass of the MIDIIntermediateRepresentations constructor. The name is that of the
+		 * method.
+		 */
+		INTERMEDIATE_REPRESENTATION("Intermediate Representation"),
+
+		/**
+		 * The extraction of one feature from one window. The name is that of the feature.
+		 */
+		FEATURE("Feature"),
+
+		/**
+		 * Writing the feature values extracted from a file to the output files. The name is null.
+		 */
+		OUTPUT("Output");
+
+		/**
+		 * A human-readable label for this phase.
+		 */
+		public final String label;
+
+		Phase(String label)
+		{
+			this.label = label;
+		}
+	}
+
+
+	/**
+	 * A phase of extraction that has begun, returned by a monitor's begin method.
+	 */
+	public interface Span
+	{
+		/**
+		 * Note that this phase has ended.
+		 *
+		 * @param tick_length	The length in MIDI ticks of the sequence the phase operated on, or 0 if
+		 *						unknown.
+		 * @param event_count	The number of MIDI events in the sequence the phase operated on, or 0 if
+		 *						unknown.
+		 */
+		public void end(long tick_length, int event_count);
+	}
+
+
+	/* PRIVATE STATIC FIELDS ********************************************************************************/
+
+
+	/**
+	 * The installed monitor. Null if none is installed.
+	 */
+	private static volatile ExtractionPhaseMonitor installed_monitor = null;
+
+	/**
+	 * An identifier of the file that the current thread is extracting features from (its path). Null if the
+	 * thread is not currently extracting features from a file.
+	 */
+	private static final ThreadLocal<String> current_file_id = new ThreadLocal<>();
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * Install the given monitor, replacing any that is already installed. Phases that have already begun are
+	 * still reported to the monitor that they were begun with.
+	 *
+	 * @param monitor	The monitor to install. May be null, in which case phases are no longer monitored.
+	 */
+	public static void install(ExtractionPhaseMonitor monitor)
+	{
+		installed_monitor = monitor;
+	}
+
+
+	/**
+	 * @return	The installed monitor, or null if none is installed.
+	 */
+	public static ExtractionPhaseMonitor getInstalledMonitor()
+	{
+		return installed_monitor;
+	}
+
+
+	/**
+	 * Install a monitor as specified by the system property named by phase_monitor_property, if it is set.
+	 * Nothing is done if it is not.
+	 *
+	 * @param error_print_stream	A stream to print a warning to if the property is invalid or the monitor
+	 *								could not be created.
+	 */
+	public static void installFromSystemProperty(PrintStream error_print_stream)
+	{
+		String setting = System.getProperty(phase_monitor_property);
+		if (setting == null)
+			return;
+		if (setting.equalsIgnoreCase("jfr"))
+		{
+			try { install(new FlightRecorderPhaseMonitor()); }
+			catch (Exception e)
+			{
+				UserFeedbackGenerator.printWarningMessage(error_print_stream, "Could not set up JDK Flight Recorder events for extraction phases, so they will not be recorded: " + e.getMessage());
+			}
+		}
+		else if (setting.equalsIgnoreCase("summary"))
+		{
+			PhaseTimingSummaryMonitor monitor = new PhaseTimingSummaryMonitor();
+			install(monitor);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> error_print_stream.print(monitor.getSummary())));
+		}
+		else UserFeedbackGenerator.printWarningMessage(error_print_stream, "Unknown value " + setting + " for the " + phase_monitor_property + " property (use jfr or summary), so extraction phases will not be monitored.");
+	}
+
+
+	/**
+	 * Specify the file that the current thread is extracting features from, so that it can be reported to
+	 * monitors along with each phase.
+	 *
+	 * @param file_id	An identifier of the file (its path). Null if the current thread has finished with
+	 *					the file.
+	 */
+	public static void setCurrentFile(String file_id)
+	{
+		if (file_id == null)
+			current_file_id.remove();
+		else current_file_id.set(file_id);
+	}
+
+
+	/**
+	 * Note that a phase of extraction is beginning on the current thread, if a monitor is installed.
+	 *
+	 * @param phase	The phase that is beginning.
+	 * @param name	The name of the intermediate representation pass or feature, or null for other phases.
+	 * @return		The phase to pass to endPhase when it ends, or null if no monitor is installed.
+	 */
+	public static Span beginPhase(Phase phase, String name)
+	{
+		ExtractionPhaseMonitor monitor = installed_monitor;
+		if (monitor == null)
+			return null;
+		return monitor.begin(phase, current_file_id.get(), name);
+	}
+
+
+	/**
+	 * Note that a phase of extraction has ended.
+	 *
+	 * @param span		The phase, as returned by beginPhase. Nothing is done if this is null.
+	 * @param sequence	The MIDI sequence that the phase operated on, used to report its tick length and
+	 *					number of events. May be null if unknown.
+	 */
+	public static void endPhase(Span span, Sequence sequence)
+	{
+		if (span == null)
+			return;
+		if (sequence == null)
+			span.end(0, 0);
+		else
+		{
+			int event_count = 0;
+			for (Track track : sequence.getTracks())
+				event_count += track.size();
+			span.end(sequence.getTickLength(), event_count);
+		}
+	}
+
+
+	/* PROTECTED METHODS ************************************************************************************/
+
+
+	/**
+	 * Note that a phase of extraction is beginning. Called on the thread performing the phase. Must be
+	 * thread safe, and should be quick.
+	 *
+	 * @param phase		The phase that is beginning.
+	 * @param file_id	An identifier of the file that the phase is operating on (its path), or null if
+	 *					unknown.
+	 * @param name		The name of the intermediate representation pass or feature, or null for other
+	 *					phases.
+	 * @return			An object that is informed when the phase ends. Must not be null.
+	 */
+	protected abstract Span begin(Phase phase, String file_id, String name);
+}
@@ -0,0 +1,357 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A FeatureExtractionListener that periodically writes machine-readable snapshots of the progress of a
+ * feature extraction job to a stream, as JSON lines (one JSON object per line). This allows external tools
+ * to monitor throughput, estimate completion times and detect stalled jobs. A final snapshot, with "final"
+ * set to true, is written when the reporter is stopped.
+ *
+ * <p>Each snapshot has the following fields: timestamp_ms (milliseconds since the epoch), elapsed_seconds,
+ * completed, failed and in_flight (numbers of files), total (the number of files to process, or found so far
+ * if files are processed as they are found), files_per_second, moving_average_latency_ms (an exponentially
+ * weighted moving average of the time taken to process each file), p50_latency_ms and p99_latency_ms (over
+ * all files so far, accurate to within 5%), heap_used_bytes, heap_max_bytes, eta_seconds (null until a file
+ * has been processed) and seconds_since_last_file (the time since a file was last completed or failed, which
+ * grows if a job stalls). Latencies are null until a file has been processed.</p>
+ *
+ * <p>All methods are thread safe, so files may be processed in parallel.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class ExtractionProgressReporter
+	implements FeatureExtractionListener
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The weight given to the latest file's latency when updating the moving average latency.
+	 */
+	private static final double moving_average_weight = 0.1;
+
+	/**
+	 * The ratio between the upper bounds of consecutive latency histogram buckets.
+	 */
+	private static final double bucket_ratio = 1.05;
+
+	/**
+	 * The number of latency histogram buckets. With bucket_ratio, the last bucket starts at over 5 hours.
+	 */
+	private static final int number_of_buckets = 500;
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The stream that snapshots are written to.
+	 */
+	private final PrintStream output;
+
+	/**
+	 * The number of milliseconds between snapshots.
+	 */
+	private final long interval_milliseconds;
+
+	/**
+	 * The value of System.nanoTime() when this reporter was created.
+	 */
+	private final long start_time;
+
+	/**
+	 * The value of System.nanoTime() when a file was last completed or failed (or start_time if none has).
+	 */
+	private long last_file_time;
+
+	/**
+	 * The value of System.nanoTime() when processing of each file in flight began, keyed by the file's
+	 * extraction index.
+	 */
+	private final Map<Integer, Long> start_times_in_flight;
+
+	/**
+	 * The number of files whose features have been extracted.
+	 */
+	private int completed;
+
+	/**
+	 * The number of files whose features could not be extracted.
+	 */
+	private int failed;
+
+	/**
+	 * The largest total number of files to process that has been reported.
+	 */
+	private int total;
+
+	/**
+	 * The exponentially weighted moving average of file latencies, in milliseconds. Negative if no latency
+	 * has been recorded.
+	 */
+	private double moving_average_latency;
+
+	/**
+	 * A histogram of file latencies. Bucket i holds latencies of up to bucket_ratio^(i+1) microseconds.
+	 */
+	private final long[] latency_histogram;
+
+	/**
+	 * The number of latencies recorded in latency_histogram.
+	 */
+	private long number_of_latencies;
+
+	/**
+	 * Writes snapshots periodically. Null if not started.
+	 */
+	private ScheduledExecutorService scheduler;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Create a reporter. Snapshots are not written until start is called.
+	 *
+	 * @param output				The stream to write snapshots to. It is not closed by this reporter.
+	 * @param interval_milliseconds	The number of milliseconds between snapshots.
+	 */
+	public ExtractionProgressReporter(PrintStream output, long interval_milliseconds)
+	{
+		this.output = output;
+		this.interval_milliseconds = interval_milliseconds;
+		start_time = System.nanoTime();
+		last_file_time = start_time;
+		start_times_in_flight = new HashMap<>();
+		completed = 0;
+		failed = 0;
+		total = 0;
+		moving_average_latency = -1.0;
+		latency_histogram = new long[number_of_buckets];
+		number_of_latencies = 0;
+		scheduler = null;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Begin writing snapshots periodically, on a background daemon thread.
+	 */
+	public synchronized void start()
+	{
+		if (scheduler != null)
+			return;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "jSymbolic progress reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(() -> writeSnapshot(false), interval_milliseconds, interval_milliseconds, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Stop writing snapshots periodically, and write a final snapshot.
+	 */
+	public void stop()
+	{
+		ScheduledExecutorService scheduler_to_stop;
+		synchronized (this)
+		{
+			scheduler_to_stop = scheduler;
+			scheduler = null;
+		}
+		if (scheduler_to_stop != null)
+		{
+			scheduler_to_stop.shutdown();
+			try { scheduler_to_stop.awaitTermination(interval_milliseconds + 1000, TimeUnit.MILLISECONDS); }
+			catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		}
+		writeSnapshot(true);
+	}
+
+
+	/**
+	 * Write a snapshot of the current progress to the output stream.
+	 *
+	 * @param is_final	Whether this is the final snapshot of the job.
+	 */
+	public void writeSnapshot(boolean is_final)
+	{
+		String snapshot = getSnapshot(is_final);
+		synchronized (output)
+		{
+			output.println(snapshot);
+			output.flush();
+		}
+	}
+
+
+	/**
+	 * @param is_final	The value of the snapshot's final field.
+	 * @return			A snapshot of the current progress, as a single-line JSON object.
+	 */
+	public synchronized String getSnapshot(boolean is_final)
+	{
+		long now = System.nanoTime();
+		double elapsed_seconds = (now - start_time) / 1.0E9;
+		int finished = completed + failed;
+		double files_per_second = (elapsed_seconds > 0.0) ? finished / elapsed_seconds : 0.0;
+		Runtime runtime = Runtime.getRuntime();
+
+		StringBuilder json = new StringBuilder("{");
+		json.append("\"timestamp_ms\": ").append(System.currentTimeMillis());
+		json.append(", \"elapsed_seconds\": ").append(format(elapsed_seconds));
+		json.append(", \"completed\": ").append(completed);
+		json.append(", \"failed\": ").append(failed);
+		json.append(", \"in_flight\": ").append(start_times_in_flight.size());
+		json.append(", \"total\": ").append(Math.max(total, finished + start_times_in_flight.size()));
+		json.append(", \"files_per_second\": ").append(format(files_per_second));
+		json.append(", \"moving_average_latency_ms\": ").append(moving_average_latency < 0.0 ? "null" : format(moving_average_latency));
+		json.append(", \"p50_latency_ms\": ").append(formatPercentile(0.50));
+		json.append(", \"p99_latency_ms\": ").append(formatPercentile(0.99));
+		json.append(", \"heap_used_bytes\": ").append(runtime.totalMemory() - runtime.freeMemory());
+		json.append(", \"heap_max_bytes\": ").append(runtime.maxMemory());
+		json.append(", \"eta_seconds\": ");
+		if (finished == 0 || files_per_second == 0.0)
+			json.append("null");
+		else json.append(format(Math.max(0, total - finished) / files_per_second));
+		json.append(", \"seconds_since_last_file\": ").append(format((now - last_file_time) / 1.0E9));
+		json.append(", \"final\": ").append(is_final);
+		json.append('}');
+		return json.toString();
+	}
+
+
+	/**
+	 * Note that processing of a file has begun.
+	 *
+	 * @param source_file				The file whose processing is beginning.
+	 * @param current_extraction_index	The number of this file in the overall extraction order.
+	 * @param total_files_to_process	The total number of files that are being processed.
+	 */
+	@Override
+	public synchronized void fileExtractionStarted( File source_file,
+	                                                int current_extraction_index,
+	                                                int total_files_to_process )
+	{
+		start_times_in_flight.put(current_extraction_index, System.nanoTime());
+		total = Math.max(total, total_files_to_process);
+	}
+
+
+	/**
+	 * Note that a file's features have been extracted.
+	 *
+	 * @param extracted_features		The feature values extracted from the file.
+	 * @param current_extraction_index	The number of this file in the overall extraction order.
+	 * @param total_files_to_process	The total number of files that are being processed.
+	 */
+	@Override
+	public synchronized void fileExtractionCompleted( ExtractedFileFeatures extracted_features,
+	                                                  int current_extraction_index,
+	                                                  int total_files_to_process )
+	{
+		completed++;
+		fileFinished(current_extraction_index, total_files_to_process);
+	}
+
+
+	/**
+	 * Note that a file's features could not be extracted.
+	 *
+	 * @param source_file				The file that features could not be extracted from.
+	 * @param error_message				A description of the problem.
+	 * @param current_extraction_index	The number of this file in the overall extraction order.
+	 * @param total_files_to_process	The total number of files that are being processed.
+	 */
+	@Override
+	public synchronized void fileExtractionFailed( File source_file,
+	                                               String error_message,
+	                                               int current_extraction_index,
+	                                               int total_files_to_process )
+	{
+		failed++;
+		fileFinished(current_extraction_index, total_files_to_process);
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Record the latency of a file that has been completed or has failed. Must be called while synchronized
+	 * on this object.
+	 *
+	 * @param current_extraction_index	The number of the file in the overall extraction order.
+	 * @param total_files_to_process	The total number of files that are being processed.
+	 */
+	private void fileFinished(int current_extraction_index, int total_files_to_process)
+	{
+		long now = System.nanoTime();
+		last_file_time = now;
+		total = Math.max(total, total_files_to_process);
+		Long file_start_time = start_times_in_flight.remove(current_extraction_index);
+		if (file_start_time == null)
+			return;
+
+		long latency_nanoseconds = now - file_start_time;
+		double latency_milliseconds = latency_nanoseconds / 1.0E6;
+		if (moving_average_latency < 0.0)
+			moving_average_latency = latency_milliseconds;
+		else moving_average_latency += moving_average_weight * (latency_milliseconds - moving_average_latency);
+
+		double latency_microseconds = Math.max(1.0, latency_nanoseconds / 1000.0);
+		int bucket = (int) Math.ceil(Math.log(latency_microseconds) / Math.log(bucket_ratio)) - 1;
+		latency_histogram[Math.max(0, Math.min(number_of_buckets - 1, bucket))]++;
+		number_of_latencies++;
+	}
+
+
+	/**
+	 * Must be called while synchronized on this object.
+	 *
+	 * @param fraction	The percentile to find, as a fraction between 0 and 1.
+	 * @return			The upper bound in milliseconds of the histogram bucket holding the given percentile
+	 *					of the recorded latencies, formatted for JSON, or null if none have been recorded.
+	 */
+	private String formatPercentile(double fraction)
+	{
+		if (number_of_latencies == 0)
+			return "null";
+		long rank = Math.max(1, (long) Math.ceil(fraction * number_of_latencies));
+		long count = 0;
+		int bucket = 0;
+		for (; bucket < number_of_buckets - 1; bucket++)
+		{
+			count += latency_histogram[bucket];
+			if (count >= rank)
+				break;
+		}
+		return format(Math.pow(bucket_ratio, bucket + 1) / 1000.0);
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * @param value	A number.
+	 * @return		The number formatted for JSON, with three decimal places.
+	 */
+	private static String format(double value)
+	{
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -5,8 +5,6 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import javax.swing.JOptionPane;
-import ace.datatypes.DataBoard;
 import jsymbolic2.configurationfile.ConfigFileCompleteData;
 import jsymbolic2.featureutils.MIDIFeatureExtractor;
 import jsymbolic2.featureutils.FeatureExtractorAccess;
@@ -57,6 +55,113 @@ public final class FeatureExtractionJobProcessor
 	}
 		
 	
+	/**
+	 * Returns the save path for a Weka ARFF file to match the given ACE XML feature values file save path.
+	 * If feature_values_save_path ends with .xml then this extension is replaced by .arff. Otherwise .arff is
+	 * appended to the end.
+	 *
+	 * @param feature_values_save_path	The ACE XML feature values file path to base the returned path on.
+	 * @return							The path of the Weka ARFF file.
+	 */
+	public static String getMatchingArffSavePath(String feature_values_save_path)
+	{
+		if (feature_values_save_path.endsWith(".xml"))
+			return feature_values_save_path.substring(0, feature_values_save_path.length() - 4) + ".arff";
+		return feature_values_save_path + ".arff";
+	}
+		
+	
+	/**
+	 * Returns the save path for a CSV file to match the given ACE XML feature values file save path. If
+	 * feature_values_save_path ends with .xml then this extension is replaced by .csv. Otherwise .csv is
+	 * appended to the end.
+	 *
+	 * @param feature_values_save_path	The ACE XML feature values file path to base the returned path on.
+	 * @return							The path of the CSV file.
+	 */
+	public static String getMatchingCsvSavePath(String feature_values_save_path)
+	{
+		if (feature_values_save_path.endsWith(".xml"))
+			return feature_values_save_path.substring(0, feature_values_save_path.length() - 4) + ".csv";
+		return feature_values_save_path + ".csv";
+	}
+		
+	
+	/**
+	 * Returns the save path for a binary feature values file (see BinaryFeatureValuesWriter) to match the
+	 * given ACE XML feature values file save path. If feature_values_save_path ends with .xml then this
+	 * extension is replaced by .fvbin. Otherwise .fvbin is appended to the end.
+	 *
+	 * @param feature_values_save_path	The ACE XML feature values file save path.
+	 * @return							The matching binary feature values file save path.
+	 */
+	public static String getMatchingBinarySavePath(String feature_values_save_path)
+	{
+		if (feature_values_save_path.endsWith(".xml"))
+			return feature_values_save_path.substring(0, feature_values_save_path.length() - 4) + ".fvbin";
+		return feature_values_save_path + ".fvbin";
+	}
+
+
+	/**
+	 * Register streaming writers with the given processor for each of the Weka ARFF, CSV and binary feature
+	 * values files that are to be saved, so that they are written row by row as features are saved. The
+	 * ARFF and CSV paths are based on feature_values_save_path (see getMatchingArffSavePath and
+	 * getMatchingCsvSavePath). If an ARFF or CSV file is saved, then an ACE XML class labels file is saved
+	 * along with it (see getMatchingClassLabelsXmlSavePath), as it is when these files are converted from ACE
+	 * XML.
+	 *
+	 * @param processor					The processor that will save the feature values.
+	 * @param feature_values_save_path	The path of the ACE XML feature values file that the ARFF and CSV
+	 *									paths are based on (whether or not it is actually saved).
+	 * @param save_arff_file			Whether or not to save the feature values as a Weka ARFF file.
+	 * @param save_csv_file				Whether or not to save the feature values as a CSV file.
+	 * @param binary_save_path			The path to save the feature values to as a binary feature values
+	 *									file. May be null, in which case no binary file is saved.
+	 * @param status_print_stream		A stream to print the paths of the files being generated to.
+	 * @throws Exception				Thrown if any of the files cannot be created.
+	 */
+	public static void addStreamingFeatureValuesWriters( MIDIFeatureProcessor processor,
+	                                                     String feature_values_save_path,
+	                                                     boolean save_arff_file,
+	                                                     boolean save_csv_file,
+	                                                     String binary_save_path,
+	                                                     PrintStream status_print_stream )
+		throws Exception
+	{
+		if (save_arff_file)
+		{
+			String arff_save_path = getMatchingArffSavePath(feature_values_save_path);
+			UserFeedbackGenerator.printGeneratingArffFile(status_print_stream, arff_save_path);
+			processor.addStreamingFeatureValuesWriter(new ArffFeatureValuesWriter( arff_save_path,
+			                                                                       processor.getFeatureDefinitionsOfSavedValues(),
+			                                                                       processor.getSavedRowsAreWindows(),
+			                                                                       true ));
+		}
+		if (save_csv_file)
+		{
+			String csv_save_path = getMatchingCsvSavePath(feature_values_save_path);
+			UserFeedbackGenerator.printGeneratingCsvFile(status_print_stream, csv_save_path);
+			processor.addStreamingFeatureValuesWriter(new CsvFeatureValuesWriter( csv_save_path,
+			                                                                      processor.getFeatureDefinitionsOfSavedValues(),
+			                                                                      processor.getSavedRowsAreWindows(),
+			                                                                      true ));
+		}
+		if (save_arff_file || save_csv_file)
+			processor.addStreamingFeatureValuesWriter(new ClassLabelsXmlWriter( getMatchingClassLabelsXmlSavePath(feature_values_save_path),
+			                                                                    processor.getFeatureDefinitionsOfSavedValues(),
+			                                                                    processor.getSavedRowsAreWindows() ));
+		if (binary_save_path != null)
+		{
+			UserFeedbackGenerator.printGeneratingBinaryFile(status_print_stream, binary_save_path);
+			processor.addStreamingFeatureValuesWriter(new BinaryFeatureValuesWriter( binary_save_path,
+			                                                                         processor.getFeatureDefinitionsOfSavedValues(),
+			                                                                         processor.getSavedRowsAreWindows(),
+			                                                                         true ));
+		}
+	}
+		
+	
 	/**
 	 * Extracts features from all the files in the specified files_and_folders_to_parse list and saves them in
 	 * an ACE XML feature values file and (if specified in the passed arguments) as Weka ARFF and/or CSV
@@ -92,9 +197,9 @@ public final class FeatureExtractionJobProcessor
 	 *												at the end of processing.
 	 * @param gui_processing						True if this method is being called by a GUI, false 
 	 *												otherwise. If it is true, then error summaries will only
-	 *												be partially printed, and out of memory errors will result
-	 *												in an error window being displayed and a direct printing
-	 *												of the associated error message to standard error.
+	 *												be partially printed, and out of memory errors will be
+	 *												printed directly to standard error and then rethrown, so
+	 *												that the GUI can report them on its event dispatch thread.
 	 * @return										A list of errors that may have occurred during processing.
 	 *												Will be empty if no errors occurred. Note that this often 
 	 *												simply duplicates what is written to error_print_stream.
@@ -113,18 +218,109 @@ public final class FeatureExtractionJobProcessor
 	                                                           PrintStream error_print_stream,
 	                                                           boolean gui_processing )
 	{
-		// Prepare the feature extractor
+		return extractAndSaveSpecificFeatures( paths_of_files_or_folders_to_parse,
+		                                       feature_values_save_path,
+		                                       feature_definitions_save_path,
+		                                       features_to_extract,
+		                                       save_features_for_each_window,
+		                                       save_overall_recording_features,
+		                                       window_size,
+		                                       window_overlap,
+		                                       true,
+		                                       save_arff_file,
+		                                       save_csv_file,
+		                                       null,
+		                                       status_print_stream,
+		                                       error_print_stream,
+		                                       gui_processing,
+		                                       null );
+	}
+	
+	
+	/**
+	 * Extracts features from all the files in the specified files_and_folders_to_parse list and saves them in
+	 * the same way as the overload of this method without a listener parameter, but also passes each file's
+	 * extracted feature values (or the error that prevented their extraction) to the given listener as soon
+	 * as that file has been processed. This allows callers to process results while the rest of the batch is
+	 * still being extracted, rather than waiting for (and re-parsing) the saved output files. Saving of the
+	 * ACE XML files is also optional here.
+	 *
+	 * <p>Any Weka ARFF, CSV and binary files are written row by row as each file is processed, with headers
+	 * based on the definitions of the features selected for saving, rather than being converted from the ACE
+	 * XML Feature Values file after extraction. The ARFF and CSV paths are based on feature_values_save_path
+	 * (see getMatchingArffSavePath and getMatchingCsvSavePath).</p>
+	 *
+	 * @param paths_of_files_or_folders_to_parse	A list of files and folders from which features should be 
+	 *												extracted.
+	 * @param feature_values_save_path				The path to save the extracted features to in the form of
+	 *												an ACE XML feature values file.
+	 * @param feature_definitions_save_path			The path to save the feature definitions of all features 
+	 *												to be extracted, as an ACE XML feature definitions file.
+	 * @param features_to_extract					An array indicating which features are to be saved. This
+	 *												array is ordered to match the array returned by the 
+	 *												FeatureExtractorAccess.findSpecifiedFeatures.
+	 * @param save_features_for_each_window			Whether or not features should be saved for individual
+	 *												windows arrived at by dividing up input files.
+	 * @param save_overall_recording_features		Whether or not features should be saved for overall 
+	 *												recordings as a whole (as opposed to windows).
+	 * @param window_size							The duration of each window, in seconds.
+	 * @param window_overlap						The fractional overlap between consecutive windows.
+	 * @param save_ace_xml_files					Whether or not to save the feature values and definitions
+	 *												as ACE XML files.
+	 * @param save_arff_file						Whether or not to save the feature values as a Weka ARFF 
+	 *												file.
+	 * @param save_csv_file							Whether or not to save the feature values as a CSV file.
+	 * @param binary_save_path						The path to save the feature values to as a binary feature
+	 *												values file (see BinaryFeatureValuesWriter). May be null,
+	 *												in which case no binary file is saved.
+	 * @param status_print_stream					A stream to print processing progress to.
+	 * @param error_print_stream					A stream to print processing errors to as they happen, and
+	 *												at the end of processing.
+	 * @param gui_processing						True if this method is being called by a GUI, false 
+	 *												otherwise.
+	 * @param listener								An object to notify as each file is processed. May be null,
+	 *												in which case no notifications are sent.
+	 * @return										A list of errors that may have occurred during processing.
+	 *												Will be empty if no errors occurred. Note that this often 
+	 *												simply duplicates what is written to error_print_stream.
+	 */
+	public static List<String> extractAndSaveSpecificFeatures( List<File> paths_of_files_or_folders_to_parse,
+	                                                           String feature_values_save_path,
+	                                                           String feature_definitions_save_path,
+	                                                           boolean[] features_to_extract,
+	                                                           boolean save_features_for_each_window,
+	                                                           boolean save_overall_recording_features,
+	                                                           double window_size,
+	                                                           double window_overlap,
+	                                                           boolean save_ace_xml_files,
+	                                                           boolean save_arff_file,
+	                                                           boolean save_csv_file,
+	                                                           String binary_save_path,
+	                                                           PrintStream status_print_stream,
+	                                                           PrintStream error_print_stream,
+	                                                           boolean gui_processing,
+	                                                           FeatureExtractionListener listener )
+	{
+		// Prepare the feature extractor and any streaming ARFF and CSV writers
 		MIDIFeatureProcessor processor = null;
 		try
 		{
+			if (!save_ace_xml_files && !save_arff_file && !save_csv_file && binary_save_path == null)
+				throw new Exception("At least one of ACE XML, Weka ARFF, CSV or binary files must be chosen to be saved.");
 			processor = new MIDIFeatureProcessor( window_size,
 			                                      window_overlap,
-					                              FeatureExtractorAccess.getAllImplementedFeatureExtractors(),
-					                              features_to_extract,
+					                              FeatureExtractorAccess.getFeatureExtractorsForSelection(features_to_extract),
+					                              FeatureExtractorAccess.getExtractionPlan(features_to_extract),
 					                              save_features_for_each_window,
 					                              save_overall_recording_features,
-					                              feature_values_save_path,
-					                              feature_definitions_save_path );
+					                              save_ace_xml_files ? feature_values_save_path : null,
+					                              save_ace_xml_files ? feature_definitions_save_path : null );
+			addStreamingFeatureValuesWriters( processor,
+			                                  feature_values_save_path,
+			                                  save_arff_file,
+			                                  save_csv_file,
+			                                  binary_save_path,
+			                                  status_print_stream );
 		}
 		catch (Exception e)
 		{
@@ -136,24 +332,17 @@ public final class FeatureExtractionJobProcessor
 		// error_print_stream.
 		List<String> error_log = new ArrayList<>();
 
-		// Extract features and save the feature values and definitions as ACE XML files
+		// Extract features and save the feature values (and definitions, if ACE XML files are being saved)
 		extractFeatures( paths_of_files_or_folders_to_parse,
 		                 processor,
-						 feature_values_save_path,
-						 feature_definitions_save_path,
+						 save_ace_xml_files ? feature_values_save_path : null,
+						 save_ace_xml_files ? feature_definitions_save_path : null,
 		                 status_print_stream,
 		                 error_print_stream,
 		                 error_log,
-		                 gui_processing );
+		                 gui_processing,
+		                 listener );
 
-		// Convert the ACE XML feature values file to a Weka ARFF and/or a CSV file, if appropriate
-		saveWekaArffAndCsvFiles( feature_values_save_path,
-	                             feature_definitions_save_path,
-	                             save_arff_file,
-	                             save_csv_file,
-	                             status_print_stream,
-	                             error_print_stream );
-		
 		// Indicate that processing is done
 		UserFeedbackGenerator.printExecutionFinished(status_print_stream);
 		
@@ -196,9 +385,9 @@ public final class FeatureExtractionJobProcessor
 	 *											the end of processing.
 	 * @param gui_processing					True if this method is being called by a GUI, false 
 	 *											otherwise. If it is true, then error summaries will only
-	 *											be partially printed, and out of memory errors will result
-	 *											in an error window being displayed and a direct printing
-	 *											of the associated error message to standard error.
+	 *											be partially printed, and out of memory errors will be
+	 *											printed directly to standard error and then rethrown, so
+	 *											that the GUI can report them on its event dispatch thread.
 	 * @return									A list of errors that may have occurred during processing.
 	 *											Will be empty if no errors occurred. Note that this often 
 	 *											simply duplicates what is written to error_print_stream.
@@ -265,9 +454,9 @@ public final class FeatureExtractionJobProcessor
 	 *												at the end of processing.
 	 * @param gui_processing						True if this method is being called by a GUI, false 
 	 *												otherwise. If it is true, then error summaries will only
-	 *												be partially printed, and out of memory errors will result
-	 *												in an error window being displayed and a direct printing
-	 *												of the associated error message to standard error.
+	 *												be partially printed, and out of memory errors will be
+	 *												printed directly to standard error and then rethrown, so
+	 *												that the GUI can report them on its event dispatch thread.
 	 * @return										A list of errors that may have occurred during processing.
 	 *												Will be empty if no errors occurred. Note that this often 
 	 *												simply duplicates what is written to error_print_stream.
@@ -333,9 +522,9 @@ public final class FeatureExtractionJobProcessor
 	 *											the end of processing.
 	 * @param gui_processing					True if this method is being called by a GUI, false 
 	 *											otherwise. If it is true, then error summaries will only
-	 *											be partially printed, and out of memory errors will result
-	 *											in an error window being displayed and a direct printing
-	 *											of the associated error message to standard error.
+	 *											be partially printed, and out of memory errors will be
+	 *											printed directly to standard error and then rethrown, so
+	 *											that the GUI can report them on its event dispatch thread.
 	 * @return									A list of errors that may have occurred during processing.
 	 *											Will be empty if no errors occurred. Note that this often 
 	 *											simply duplicates what is written to error_print_stream.
@@ -386,7 +575,9 @@ public final class FeatureExtractionJobProcessor
 	 * @param paths_of_files_or_folders_to_parse	A list of files and folders from which features should be 
 	 *												extracted.
 	 * @param config_file_data						Extraction settings parsed from a jSymbolic configuration
-	 *												settings file.
+	 *												settings file. If its output files section specifies a
+	 *												binary_feature_values_save_path, then a binary feature
+	 *												values file is also saved there.
 	 * @param feature_values_save_path				The path to save the extracted features to (in the form of 
 	 *												an ACE XML feature values file).
 	 * @param feature_definitions_save_path			The path to save the feature definitions of all features 
@@ -397,9 +588,9 @@ public final class FeatureExtractionJobProcessor
 	 *												at the	end of processing.
 	 * @param gui_processing						True if this method is being called by a GUI, false 
 	 *												otherwise. If it is true, then error summaries will only
-	 *												be partially printed, and out of memory errors will result
-	 *												in an error window being displayed and a direct printing
-	 *												of the associated error message to standard error.
+	 *												be partially printed, and out of memory errors will be
+	 *												printed directly to standard error and then rethrown, so
+	 *												that the GUI can report them on its event dispatch thread.
 	 * @return										A list of errors that may have occurred during processing. 
 	 *												Will be empty if no errors occurred. Note that this often 
 	 *												simply duplicates what is written to error_print_stream.
@@ -412,6 +603,9 @@ public final class FeatureExtractionJobProcessor
 	                                                                     PrintStream error_print_stream,
 	                                                                     boolean gui_processing )
 	{
+		String binary_save_path = null;
+		if (config_file_data.getOutputFilePaths() != null)
+			binary_save_path = config_file_data.getOutputFilePaths().getBinaryFeatureValuesSavePath();
 		return extractAndSaveSpecificFeatures( paths_of_files_or_folders_to_parse,
 	                                           feature_values_save_path,
 	                                           feature_definitions_save_path,
@@ -420,11 +614,14 @@ public final class FeatureExtractionJobProcessor
 	                                           config_file_data.getSaveOverallRecordingFeatures(),
 	                                           config_file_data.getWindowSize(),
 	                                           config_file_data.getWindowOverlap(),
+	                                           true,
 										       config_file_data.getConvertToArff(),
 										       config_file_data.getConvertToCsv(),
+	                                           binary_save_path,
 	                                           status_print_stream,
 	                                           error_print_stream,
-											   gui_processing );
+											   gui_processing,
+	                                           null );
 	}
 	
 	
@@ -442,12 +639,16 @@ public final class FeatureExtractionJobProcessor
 	 * selected for extraction in an ACE XML feature definitions file.
 	 *
 	 * @param files_and_folders_to_parse	A list of files and folders from which features should be 
-	 *										extracted.
+	 *										extracted. Zip, tar and gzipped tar archives (whether listed
+	 *										directly or found in folders) are read directly, and the MIDI and
+	 *										MEI files in them are identified by archive-qualified paths (e.g.
+	 *										corpus.zip!/a/b.mid).
 	 * @param processor						The MIDIFeatureProcessor holding feature extraction settings.
 	 * @param feature_values_save_path		The path to save the extracted features to in the form of an ACE 
-	 *										XML feature values file.
+	 *										XML feature values file. Null if ACE XML files are not being saved.
 	 * @param feature_definitions_save_path	The path to save the feature definitions of all features to be
-	 *										extracted, as an ACE XML feature definitions file.
+	 *										extracted, as an ACE XML feature definitions file. Null if ACE XML
+	 *										files are not being saved.
 	 * @param status_print_stream			A stream to print processing progress to.
 	 * @param error_print_stream			A stream to print processing errors to as they happen, and at the
 	 *										end of processing.
@@ -456,9 +657,10 @@ public final class FeatureExtractionJobProcessor
 	 *										of processing.
 	 * @param gui_processing				True if this method is being called by a GUI, false otherwise. If
 	 *										it is true, then error summaries will only be partially printed, 
-	 *										and out of memory errors will result in an error window being 
-	 *										displayed and a direct printing	of the associated error message to
-	 *										standard error.
+	 *										and out of memory errors will be printed directly to standard
+	 *										error and then rethrown, so that the GUI can report them on its
+	 *										event dispatch thread.
+	 * @param listener						An object to notify as each file is processed. May be null.
 	 */
 	private static void extractFeatures( List<File> files_and_folders_to_parse,
 	                                     MIDIFeatureProcessor processor,
@@ -467,41 +669,94 @@ public final class FeatureExtractionJobProcessor
 	                                     PrintStream status_print_stream,
 	                                     PrintStream error_print_stream,
 	                                     List<String> error_log,
-	                                     boolean gui_processing )
+	                                     boolean gui_processing,
+	                                     FeatureExtractionListener listener )
 	{
-		// Traverse any subdirectories in files_and_folders_to_parse to find qualifying files there
-		ArrayList<File> files_to_parse = SymbolicMusicFileUtilities.getFilteredFilesRecursiveTraversal( files_and_folders_to_parse,
-		                                                                                                false,
-		                                                                                                new MusicFilter(),
-		                                                                                                error_print_stream,
-		                                                                                                error_log );
-		
-		// Remove all files from files_to_parse that are not valid MIDI or MEI files. Print error messages
-		// indicating any that are not. End execution if no valid files remain.
-		files_to_parse = SymbolicMusicFileUtilities.validateAndGetMidiAndMeiFiles( files_to_parse,
-		                                                                           status_print_stream,
-		                                                                           error_print_stream,
-		                                                                           error_log );
-		
-		// Verify that, if MEI-specific features have been chosen to be extracted, then none of the files
-		// chosen to be parsed are non-MEI files. End execution if some are.
-		verifyNoMeiFeaturesAndNonMeiFiles(files_to_parse, processor, error_print_stream);
+		// Find the MIDI and MEI files in files_and_folders_to_parse (including in any subdirectories and
+		// archives), and validate them in parallel. Files are only probed here, and are each parsed once, when
+		// features are extracted from them.
+		MusicFileDiscoverer discoverer = new MusicFileDiscoverer( files_and_folders_to_parse,
+		                                                          new MusicFilter(true),
+		                                                          0,
+		                                                          error_print_stream,
+		                                                          error_log );
+		discoverer.start();
+
+		// If MEI-specific features have been chosen to be extracted, then all files must be validated before
+		// extraction begins, so that execution can be ended if any of them are non-MEI files. Otherwise,
+		// features are extracted from each file as soon as it has been found and validated.
+		List<ProbedMusicFile> prevalidated_files = null;
+		if (!getChosenMeiSpecificFeatures(processor).isEmpty())
+		{
+			prevalidated_files = new ArrayList<>();
+			ProbedMusicFile probed_file;
+			while ((probed_file = getNextDiscoveredFile(discoverer, error_print_stream, error_log)) != null)
+				prevalidated_files.add(probed_file);
+			SymbolicMusicFileUtilities.reportInvalidMidiAndMeiFiles( discoverer.getInvalidFilesSoFar(),
+			                                                         error_print_stream,
+			                                                         error_log );
+			verifyNoMeiFeaturesAndNonMeiFiles(prevalidated_files, processor, error_print_stream);
+		}
 
 		// Extract features from each file
-		UserFeedbackGenerator.printGeneratingAceXmlFeatureDefinitionsFile(status_print_stream, feature_definitions_save_path);
-		UserFeedbackGenerator.printFeatureExtractionStartingMessage(status_print_stream, files_to_parse.size());
-		for (int i = 0; i < files_to_parse.size(); i++)
-			extractFeatures( files_to_parse.get(i).getAbsolutePath(),
+		if (feature_definitions_save_path != null)
+			UserFeedbackGenerator.printGeneratingAceXmlFeatureDefinitionsFile(status_print_stream, feature_definitions_save_path);
+		if (prevalidated_files != null)
+			UserFeedbackGenerator.printFeatureExtractionStartingMessage(status_print_stream, prevalidated_files.size());
+		else UserFeedbackGenerator.printStreamedFeatureExtractionStartingMessage(status_print_stream);
+		int number_of_files_attempted = 0;
+		boolean cancelled = false;
+		while (true)
+		{
+			// Stop if the listener has cancelled the job
+			if (listener != null && listener.isExtractionCancelled())
+			{
+				UserFeedbackGenerator.printFeatureExtractionCancelledMessage(status_print_stream);
+				cancelled = true;
+				break;
+			}
+
+			ProbedMusicFile probed_file;
+			int total_files;
+			if (prevalidated_files != null)
+			{
+				probed_file = (number_of_files_attempted < prevalidated_files.size()) ? prevalidated_files.get(number_of_files_attempted) : null;
+				total_files = prevalidated_files.size();
+			}
+			else
+			{
+				probed_file = getNextDiscoveredFile(discoverer, error_print_stream, error_log);
+				total_files = discoverer.getNumberOfValidFilesFoundSoFar();
+			}
+			if (probed_file == null)
+				break;
+			number_of_files_attempted++;
+			extractFeatures( probed_file,
 			                 processor,
-			                 i+1,
-			                 files_to_parse.size(),
+			                 number_of_files_attempted,
+			                 total_files,
+			                 prevalidated_files != null,
 			                 status_print_stream,
 			                 error_print_stream,
 			                 error_log,
-			                 gui_processing );
+			                 gui_processing,
+			                 listener );
+		}
+		discoverer.close();
+
+		// Report any files found not to be MIDI or MEI files. Execution is not ended if no valid files were
+		// found, as the output files have already been started, and are finalized below so that they are not
+		// left truncated.
+		if (prevalidated_files == null)
+			SymbolicMusicFileUtilities.reportInvalidMidiAndMeiFiles( discoverer.getInvalidFilesSoFar(),
+			                                                         error_print_stream,
+			                                                         error_log );
+		if (number_of_files_attempted == 0 && !cancelled)
+			UserFeedbackGenerator.printNoValidFilesFoundMessage(status_print_stream);
 
-		// Finalize the saving of the feature values ACE XML file
-		UserFeedbackGenerator.printGeneratingAceXmlFeatureValuesFile(status_print_stream, feature_values_save_path);
+		// Finalize the saving of the feature values ACE XML file and of any streamed files
+		if (feature_values_save_path != null)
+			UserFeedbackGenerator.printGeneratingAceXmlFeatureValuesFile(status_print_stream, feature_values_save_path);
 		try { processor.finalizeFeatureValuesFile(); } 
 		catch (Exception e)
 		{
@@ -511,8 +766,8 @@ public final class FeatureExtractionJobProcessor
 
 		// Indicate that feature extraction is done, and provide a summary of results
 		UserFeedbackGenerator.printFeatureExtractionCompleteMessage( status_print_stream,
-		                                                             feature_values_save_path,
-		                                                             files_to_parse.size() );
+		                                                             processor.getNumberOfRecordingsProcessed(),
+		                                                             number_of_files_attempted );
 		
 		// Print the error log summary 
 		UserFeedbackGenerator.printErrorSummary(error_print_stream, error_log, gui_processing );
@@ -524,40 +779,62 @@ public final class FeatureExtractionJobProcessor
 	 * error. Save the features as they are extracted to an ACE XML feature values file, and save the feature
 	 * definitions in an ACE XML feature definitions file.
 	 *
-	 * @param input_file_path			The path of the file to extract features from.
+	 * @param probed_file				A handle to the file to extract features from. The file is parsed
+	 *									here, if it has not been already.
 	 * @param processor					The MIDIFeatureProcessor to extract features with.
 	 * @param current_extraction_index	Indicates the number of this particular input file in the overall
 	 *									extraction order.
-	 * @param total_files_to_process	The total number of input files that are being processed.
+	 * @param total_files_to_process	The total number of input files that are being processed, or the
+	 *									number found so far if files are processed as they are found.
+	 * @param total_is_final			Whether total_files_to_process is the final number of files to
+	 *									process (true) or only the number found so far (false).
 	 * @param status_print_stream		A stream to print processing progress to.
 	 * @param error_print_stream		A stream to print processing errors to.
 	 * @param error_log					A list of errors encountered so far. Errors are added to it if 
 	 *									encountered.
 	 * @param gui_processing			True if this method is being called by a GUI, false otherwise. If
-	 *									it is true, then out of memory errors will result in an error window 
-	 *									being displayed and a direct printing of the associated error 
-	 *									message to standard error.
+	 *									it is true, then out of memory errors will be printed directly
+	 *									to standard error and then rethrown, so that the GUI can report
+	 *									them on its event dispatch thread (dialog boxes may not be shown
+	 *									from the thread performing extraction).
+	 * @param listener					An object to notify of the results of processing this file. May be
+	 *									null.
 	 */
-	private static void extractFeatures( String input_file_path,
+	private static void extractFeatures( ProbedMusicFile probed_file,
 	                                     MIDIFeatureProcessor processor,
 	                                     int current_extraction_index,
 	                                     int total_files_to_process,
+	                                     boolean total_is_final,
 	                                     PrintStream status_print_stream,
 	                                     PrintStream error_print_stream,
 	                                     List<String> error_log,
-	                                     boolean gui_processing )  
+	                                     boolean gui_processing,
+	                                     FeatureExtractionListener listener )  
 	{
+		String input_file_path = probed_file.getFile().getAbsolutePath();
+		ExtractedFileFeatures extracted_features = null;
+		if (listener != null)
+		{
+			try { listener.fileExtractionStarted(probed_file.getFile(), current_extraction_index, total_files_to_process); }
+			catch (Exception e)
+			{
+				String error_message = "Problem informing a listener that processing of " + input_file_path + " has begun." +
+				                       "\n\tDetailed error message: " + e + ": " + e.getMessage();
+				UserFeedbackGenerator.printErrorMessage(error_print_stream, error_message);
+				error_log.add(error_message);
+			}
+		}
 		try
 		{
 			// Validate the input file
-			UserFeedbackGenerator.printFeatureExtractionFileTestProgressMessage(status_print_stream, input_file_path, current_extraction_index, total_files_to_process);
-			File input_MIDI_file = new File(input_file_path);
-			FileMethods.validateFile(input_MIDI_file, true, false);
+			UserFeedbackGenerator.printFeatureExtractionFileTestProgressMessage(status_print_stream, input_file_path, current_extraction_index, total_files_to_process, total_is_final);
+			if (!probed_file.isHeldInMemory())
+				FileMethods.validateFile(probed_file.getFile(), true, false);
 
 			// Extract features from input_file_path and save them in an ACE XML feature values file
-			UserFeedbackGenerator.printFeatureExtractionProgressMessage(status_print_stream, input_file_path, current_extraction_index, total_files_to_process);
-			processor.extractFeatures(input_MIDI_file, error_log);
-			UserFeedbackGenerator.printFeatureExtractionDoneAFileProgressMessage(status_print_stream, input_file_path, current_extraction_index, total_files_to_process);
+			UserFeedbackGenerator.printFeatureExtractionProgressMessage(status_print_stream, input_file_path, current_extraction_index, total_files_to_process, total_is_final);
+			extracted_features = processor.extractFeatures(probed_file, error_log);
+			UserFeedbackGenerator.printFeatureExtractionDoneAFileProgressMessage(status_print_stream, input_file_path, current_extraction_index, total_files_to_process, total_is_final);
 		}
 		catch (OutOfMemoryError e) // Terminate execution if this happens
 		{
@@ -568,11 +845,7 @@ public final class FeatureExtractionJobProcessor
 			if (gui_processing)
 			{
 				System.err.println(error_message);
-				java.awt.Toolkit.getDefaultToolkit().beep();
-				JOptionPane.showMessageDialog( null,
-				                               error_message,
-				                               "Error",
-				                               JOptionPane.ERROR_MESSAGE );				
+				throw new OutOfMemoryError(error_message);
 			}
 			System.exit(-1);
 		}
@@ -583,47 +856,127 @@ public final class FeatureExtractionJobProcessor
 			UserFeedbackGenerator.printErrorMessage(error_print_stream, error_message);
 			error_log.add(error_message);
 			e.printStackTrace(error_print_stream);
+			notifyListenerOfFailure(listener, input_file_path, error_message, current_extraction_index, total_files_to_process, error_print_stream, error_log);
+			return;
+		}
+
+		// Pass the results on to the listener, if any
+		if (listener != null && extracted_features != null)
+		{
+			try { listener.fileExtractionCompleted(extracted_features, current_extraction_index, total_files_to_process); }
+			catch (Exception e)
+			{
+				String error_message = "Problem passing the features extracted from " + input_file_path + " on to a listener." +
+				                       "\n\tDetailed error message: " + e + ": " + e.getMessage();
+				UserFeedbackGenerator.printErrorMessage(error_print_stream, error_message);
+				error_log.add(error_message);
+			}
+		}
+	}
+
+
+	/**
+	 * Inform the given listener (if any) that features could not be extracted from a file. Any exception
+	 * thrown by the listener is reported and added to the error log, but does not interrupt processing.
+	 *
+	 * @param listener					The listener to notify. Nothing is done if this is null.
+	 * @param input_file_path			The path of the file that features could not be extracted from.
+	 * @param error_message				A description of the problem.
+	 * @param current_extraction_index	Indicates the number of this particular input file in the overall
+	 *									extraction order.
+	 * @param total_files_to_process	The total number of input files that are being processed.
+	 * @param error_print_stream		A stream to print processing errors to.
+	 * @param error_log					A list of errors encountered so far.
+	 */
+	private static void notifyListenerOfFailure( FeatureExtractionListener listener,
+	                                             String input_file_path,
+	                                             String error_message,
+	                                             int current_extraction_index,
+	                                             int total_files_to_process,
+	                                             PrintStream error_print_stream,
+	                                             List<String> error_log )
+	{
+		if (listener == null)
+			return;
+		try { listener.fileExtractionFailed(new File(input_file_path), error_message, current_extraction_index, total_files_to_process); }
+		catch (Exception e)
+		{
+			String listener_error = "Problem reporting the failure to process " + input_file_path + " to a listener." +
+			                        "\n\tDetailed error message: " + e + ": " + e.getMessage();
+			UserFeedbackGenerator.printErrorMessage(error_print_stream, listener_error);
+			error_log.add(listener_error);
 		}
 	}
 
 
+	/**
+	 * Return the next valid MIDI or MEI file found by the given discoverer. If the current thread is
+	 * interrupted while waiting for it, then report this and return null.
+	 *
+	 * @param discoverer			The discoverer to retrieve the file from.
+	 * @param error_print_stream	A stream to print processing errors to.
+	 * @param error_log				A list of errors encountered so far. Errors are added to it if 
+	 *								encountered.
+	 * @return						The next file, or null if there are no more files.
+	 */
+	private static ProbedMusicFile getNextDiscoveredFile( MusicFileDiscoverer discoverer,
+	                                                      PrintStream error_print_stream,
+	                                                      List<String> error_log )
+	{
+		try { return discoverer.next(); }
+		catch (InterruptedException e)
+		{
+			String error_message = "Interrupted while finding files to extract features from. Remaining files were not processed.";
+			UserFeedbackGenerator.printErrorMessage(error_print_stream, error_message);
+			error_log.add(error_message);
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+
+	/**
+	 * @param processor	The MIDIFeatureProcessor holding feature extraction settings.
+	 * @return			The names of the MEI-specific features that are scheduled to be extracted. Empty if
+	 *					there are none.
+	 */
+	private static List<String> getChosenMeiSpecificFeatures(MIDIFeatureProcessor processor)
+	{
+		List<String> all_mei_specific_features = FeatureExtractorAccess.getNamesOfMeiSpecificFeatures();
+		List<String> chosen_mei_specific_features = new ArrayList<>();
+		for (MIDIFeatureExtractor feature : processor.getFinalFeaturesToBeExtracted())
+			if (all_mei_specific_features.contains(feature.getFeatureDefinition().name))
+				chosen_mei_specific_features.add(feature.getFeatureDefinition().name);
+		return chosen_mei_specific_features;
+	}
+
+
 	/**
 	 * Verify that no MEI-specific features are scheduled to be extracted from non-MEI files. If one or more
 	 * MEI-specific features are scheduled to be extracted and if one or more non-MEI files is on th elist of
 	 * files to be processed, then print an error message and terminate execution.
 	 *
-	 * @param file_list	Files to check (and from which features will ultimately be extracted).
+	 * @param file_list	Probed files to check (and from which features will ultimately be extracted).
 	 * @param processor	The MIDIFeatureProcessor holding feature extraction settings.
 	 *
 	 */
-	private static void verifyNoMeiFeaturesAndNonMeiFiles( List<File> file_list, 
+	private static void verifyNoMeiFeaturesAndNonMeiFiles( List<ProbedMusicFile> file_list, 
 	                                                       MIDIFeatureProcessor processor,
 	                                                       PrintStream error_print_stream)
 	{
-		MIDIFeatureExtractor[] features_chosen_to_be_extracted = processor.getFinalFeaturesToBeExtracted();
-		List<String> all_mei_specific_features = FeatureExtractorAccess.getNamesOfMeiSpecificFeatures();
-		
 		// Check if any MEI-specific features are chosen to be selected
-		boolean contains_mei_specific_features = false;
-		List<String> list_of_mei_specific_features_chosen_to_be_extracted = new ArrayList<>();
-		for (MIDIFeatureExtractor feature : features_chosen_to_be_extracted)
-		{
-			if (all_mei_specific_features.contains(feature.getFeatureDefinition().name))
-			{
-				contains_mei_specific_features = true;
-				list_of_mei_specific_features_chosen_to_be_extracted.add(feature.getFeatureDefinition().name);
-			}
-		}
+		List<String> list_of_mei_specific_features_chosen_to_be_extracted = getChosenMeiSpecificFeatures(processor);
+		boolean contains_mei_specific_features = !list_of_mei_specific_features_chosen_to_be_extracted.isEmpty();
 
 		// Check if any non-MEI files are set to have features extracted from them
 		boolean non_mei_files_present = false;
 		List<File> list_of_non_mei_files_present = new ArrayList<>();
-		for (File file : file_list)
+		for (ProbedMusicFile probed_file : file_list)
 		{
-			if (SymbolicMusicFileUtilities.isValidMidiFile(file))
+			if (!probed_file.isMei())
 			{
 				non_mei_files_present = true;
-				list_of_non_mei_files_present.add(file);
+				list_of_non_mei_files_present.add(probed_file.getFile());
 			}
 		}
 		
@@ -652,71 +1005,4 @@ public final class FeatureExtractionJobProcessor
 			System.exit(-1);
 		}
 	}
-	
-	
-	/**
-	 * Convert the given ACE XML Feature Values file to a Weka ARFF and/or to a CSV file. Each file will have
-	 * the same file name as the ACE XML Feature Values file, but with an appropriately modified extension.
-	 * Does nothing if ace_xml_feature_values_file_path is null or empty, or if both save_ARFF and save_CSV
-	 * are false (null is returned in any of these cases).
-	 *
-	 * <p>The ARFF file will have a relation name of Converted_from_ACE_XML.</p
-	 *
-	 * <p> The first row of the CSV file will list the feature names (multi-dimensional features will have a
-	 * feature index number appended to the end of their feature name). Each other row will consist of, first,
-	 * the instance identifier, followed by the value of each feature.</p>
-	 *
-	 * @param feature_values_save_path			The path of the ACE XML feature values file to convert.
-	 * @param feature_definitions_save_path		The path to save the ACE XML feature definitions file
-	 *											matching the feature_values_save_path file.
-	 * @param save_arff_file					Whether or not to save the feature values as a Weka ARFF file.
-	 * @param save_csv_file						Whether or not to save the feature values as a CSV file.
-	 * @param status_print_stream				A stream to print processing progress to.
-	 * @param error_print_stream				A stream to print processing errors to as they happen, and at 
-	 *											the end of processing.
-	 */
-	private static void saveWekaArffAndCsvFiles( String feature_values_save_path,
-	                                             String feature_definitions_save_path,
-	                                             boolean save_arff_file,
-	                                             boolean save_csv_file,
-	                                             PrintStream status_print_stream,
-	                                             PrintStream error_print_stream )
-	{
-		if ( save_arff_file || save_csv_file )
-		{
-			try
-			{
-				// Check to see if a valid ACE XML feature files was saved and holds extracted features for at
-				// least one instance.
-				int number_succesfully_extracted_files = 0;
-				try
-				{
-					String[] input_files = { feature_values_save_path };
-					DataBoard instance_data = new DataBoard(null, null, input_files, null);
-					number_succesfully_extracted_files = instance_data.getNumOverall();
-				}
-				catch (Exception e)
-				{
-					String warning = "Saving of Weka ARFF and/or CSV files was aborted. " + e.getMessage();
-					UserFeedbackGenerator.printWarningMessage(error_print_stream, warning);
-				}			
-
-				// Onlly try the conversion if features for at least one instance are available
-				if (number_succesfully_extracted_files > 0)
-				{
-					AceXmlConverter.saveAsArffOrCsvFiles( feature_values_save_path,
-														  feature_definitions_save_path,
-														  save_arff_file,
-														  save_csv_file,
-														  true,
-														  false,
-														  status_print_stream );
-				}
-			} 
-			catch (Exception e)
-			{
-				UserFeedbackGenerator.printExceptionErrorMessage(error_print_stream, e);
-			}
-		}
-	}
-}
\ No newline at end of file
+}
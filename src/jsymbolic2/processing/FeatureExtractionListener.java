@@ -0,0 +1,82 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+
+/**
+ * Objects implementing this interface can be registered with a feature extraction job in order to be
+ * notified of each file's results as soon as that file has been processed, rather than only after the whole
+ * batch has finished and its output files have been written. This allows downstream processing (e.g. indexing
+ * or machine learning) to overlap with feature extraction.
+ *
+ * <p>Methods of this interface are called on the thread performing feature extraction, in the order in which
+ * files are processed. Implementations should therefore return quickly, and should hand off any lengthy
+ * processing to another thread. Any exception thrown by an implementation is reported as an error for the
+ * corresponding file, but does not stop the extraction job.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public interface FeatureExtractionListener
+{
+	/**
+	 * Called when processing of a file begins, before it is validated and parsed. Each call is followed by
+	 * exactly one call to fileExtractionCompleted or fileExtractionFailed with the same
+	 * current_extraction_index. If files are processed in parallel, then several files may have been started
+	 * but not yet completed or failed at any given time. Does nothing by default.
+	 *
+	 * @param source_file				The file whose processing is beginning.
+	 * @param current_extraction_index	The number of this file in the overall extraction order (starting at
+	 *									1).
+	 * @param total_files_to_process	The total number of files that are being processed (or that have
+	 *									been found so far, if files are processed as they are found).
+	 */
+	public default void fileExtractionStarted( File source_file,
+	                                           int current_extraction_index,
+	                                           int total_files_to_process )
+	{
+	}
+
+
+	/**
+	 * Called once features have been successfully extracted from a file (and written to the ACE XML feature
+	 * values file).
+	 *
+	 * @param extracted_features		The feature values extracted from the file, along with the associated
+	 *									feature definitions and window boundaries.
+	 * @param current_extraction_index	The number of this file in the overall extraction order (starting at
+	 *									1).
+	 * @param total_files_to_process	The total number of files that are being processed.
+	 */
+	public void fileExtractionCompleted( ExtractedFileFeatures extracted_features,
+	                                     int current_extraction_index,
+	                                     int total_files_to_process );
+
+
+	/**
+	 * Called when features could not be extracted from a file. Processing continues with the next file.
+	 *
+	 * @param source_file				The file that features could not be extracted from.
+	 * @param error_message				A description of the problem (the same text added to the job's error
+	 *									log).
+	 * @param current_extraction_index	The number of this file in the overall extraction order (starting at
+	 *									1).
+	 * @param total_files_to_process	The total number of files that are being processed.
+	 */
+	public void fileExtractionFailed( File source_file,
+	                                  String error_message,
+	                                  int current_extraction_index,
+	                                  int total_files_to_process );
+
+
+	/**
+	 * Called before each file is processed, to find out whether the job has been cancelled. If this returns
+	 * true, then no further files are processed, and the job finishes by finalizing its output files with the
+	 * features extracted so far. This allows a job to be stopped cooperatively, without interrupting the
+	 * writing of its output files. Returns false by default.
+	 *
+	 * @return	Whether the remaining files should be skipped.
+	 */
+	public default boolean isExtractionCancelled()
+	{
+		return false;
+	}
+}
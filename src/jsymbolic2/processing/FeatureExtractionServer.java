@@ -0,0 +1,808 @@
+package jsymbolic2.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ace.datatypes.FeatureDefinition;
+import jsymbolic2.featureutils.FeatureExtractorAccess;
+import jsymbolic2.featureutils.FeatureIndex;
+
+/**
+ * A long-running feature extraction server, which keeps the feature extractors loaded (and the JIT-compiled
+ * extraction code warm) between requests, so that the cost of starting a JVM and initializing jSymbolic is
+ * only paid once rather than for every batch. The server is only reachable from the local machine, as it
+ * accepts the paths of local files. It is started by the -serve command line switch.
+ *
+ * <p>Requests are made over HTTP, to the following addresses:</p>
+ * <ul>
+ * <li>POST /extract: Extract features from a MIDI or MEI file. The file is either specified with the path
+ * query parameter (the path of a local file), or is sent as the body of the request. The optional features
+ * query parameter is a comma-separated list of the names of the features to extract (the default features
+ * are extracted if it is omitted). The optional window and overlap query parameters specify a window
+ * duration in seconds and a fractional window overlap; features are extracted for each window as well as
+ * for the file as a whole if window is specified, and only for the file as a whole otherwise. The optional
+ * id query parameter specifies the identifier to report for files sent in the body of the request. The
+ * response holds the extracted feature values, as JSON by default, or in the binary format described below
+ * if the format query parameter is binary (or if the request's Accept header is
+ * application/octet-stream).</li>
+ * <li>GET /features: A JSON list of all features that can be extracted, with their dimensions and whether
+ * they are default features.</li>
+ * <li>GET /status: JSON counts of the requests that are being processed, that are waiting, that have been
+ * completed and that have been rejected.</li>
+ * </ul>
+ *
+ * <p>At most max_concurrent_requests extraction requests are processed at a time, and at most
+ * max_queued_requests more are held waiting. Further extraction requests are rejected immediately with
+ * HTTP status 503 (and a Retry-After header), so that clients slow down rather than the server running out
+ * of memory. Failed requests receive a JSON object with an error field, and status 400 (invalid request),
+ * 404 (unknown address), 405 (wrong method), 413 (file too large) or 500 (extraction failed).</p>
+ *
+ * <p>JSON responses are of the form {"identifier": ..., "windows": [{"start": ..., "stop": ...,
+ * "features": {name: [values], ...}}, ...], "overall": {name: [values], ...}}. The windows field is only
+ * present if windows were requested, and values that are not numbers (or features that could not be
+ * extracted) are given as null.</p>
+ *
+ * <p>Binary responses consist of little-endian values, as follows: the ASCII characters JSFR, the int32
+ * format version (currently 1), the identifier (as an int32 byte length followed by UTF-8 bytes), and the
+ * int32 number of sections, followed by each section. There is one section per window, followed by a final
+ * section holding the features of the file as a whole. Each section consists of its float64 start and stop
+ * times in seconds (both NaN for the file as a whole), its int32 number of features and then, for each
+ * feature, its name (as an int32 byte length followed by UTF-8 bytes), its int32 number of values (0 if it
+ * could not be extracted) and its float64 values.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class FeatureExtractionServer
+{
+	/* PUBLIC STATIC FINAL FIELDS ***************************************************************************/
+
+
+	/**
+	 * The four bytes that begin every binary response.
+	 */
+	public static final byte[] binary_response_magic_bytes = { 'J', 'S', 'F', 'R' };
+
+	/**
+	 * The version of the binary response format.
+	 */
+	public static final int binary_response_format_version = 1;
+
+
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The largest music file that can be sent in the body of a request, in bytes.
+	 */
+	private static final int maximum_request_body_size = 64 * 1024 * 1024;
+
+	/**
+	 * The maximum number of differently configured MIDIFeatureProcessors that are kept for reuse.
+	 */
+	private static final int maximum_cached_processors = 32;
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The port that the server listens on. 0 until start is called if the port was to be chosen
+	 * automatically.
+	 */
+	private int port;
+
+	/**
+	 * The maximum number of extraction requests processed at a time.
+	 */
+	private final int max_concurrent_requests;
+
+	/**
+	 * The maximum number of extraction requests that can wait to be processed.
+	 */
+	private final int max_queued_requests;
+
+	/**
+	 * A permit is held by each extraction request that is being processed or is waiting to be processed.
+	 */
+	private final Semaphore admitted_requests;
+
+	/**
+	 * The HTTP server. Null until start is called.
+	 */
+	private HttpServer http_server;
+
+	/**
+	 * The threads that process extraction requests. Null until start is called.
+	 */
+	private ExecutorService extraction_threads;
+
+	/**
+	 * Feature processors for each combination of features and windowing settings requested so far. Each
+	 * processor is shared by all extraction threads, as extracting features does not modify its state and
+	 * its saving of feature values is synchronized (see MIDIFeatureProcessor).
+	 */
+	private final ConcurrentHashMap<String, MIDIFeatureProcessor> processors;
+
+	/**
+	 * The number of extraction requests currently being processed.
+	 */
+	private final AtomicInteger active_requests;
+
+	/**
+	 * The number of extraction requests that have been completed (successfully or not).
+	 */
+	private final AtomicLong completed_requests;
+
+	/**
+	 * The number of extraction requests that have been rejected because too many were already waiting.
+	 */
+	private final AtomicLong rejected_requests;
+
+	/**
+	 * A stream to print status messages to.
+	 */
+	private final PrintStream status_print_stream;
+
+	/**
+	 * A stream to print errors to.
+	 */
+	private final PrintStream error_print_stream;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Prepare a server. It does not accept requests until start is called.
+	 *
+	 * @param port						The local port to listen on, or 0 to choose a free port automatically.
+	 * @param max_concurrent_requests	The maximum number of extraction requests to process at a time. If
+	 *									this is less than 1, then the number of available processors is used.
+	 * @param max_queued_requests		The maximum number of extraction requests that can wait to be
+	 *									processed. If this is less than 0, then four times
+	 *									max_concurrent_requests is used.
+	 * @param status_print_stream		A stream to print status messages to.
+	 * @param error_print_stream		A stream to print errors to.
+	 */
+	public FeatureExtractionServer( int port,
+	                                int max_concurrent_requests,
+	                                int max_queued_requests,
+	                                PrintStream status_print_stream,
+	                                PrintStream error_print_stream )
+	{
+		if (max_concurrent_requests < 1)
+			max_concurrent_requests = Runtime.getRuntime().availableProcessors();
+		if (max_queued_requests < 0)
+			max_queued_requests = 4 * max_concurrent_requests;
+
+		this.port = port;
+		this.max_concurrent_requests = max_concurrent_requests;
+		this.max_queued_requests = max_queued_requests;
+		this.status_print_stream = status_print_stream;
+		this.error_print_stream = error_print_stream;
+		admitted_requests = new Semaphore(max_concurrent_requests + max_queued_requests);
+		http_server = null;
+		extraction_threads = null;
+		processors = new ConcurrentHashMap<>();
+		active_requests = new AtomicInteger(0);
+		completed_requests = new AtomicLong(0);
+		rejected_requests = new AtomicLong(0);
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Load the feature extractors and start accepting requests in background threads.
+	 *
+	 * @throws IOException	Thrown if the server cannot listen on the specified port.
+	 */
+	public synchronized void start()
+		throws IOException
+	{
+		if (http_server != null)
+			return;
+
+		// Initialize the feature extractors before the first request arrives
+		FeatureExtractorAccess.getAllImplementedFeatureExtractors();
+
+		http_server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		extraction_threads = new ThreadPoolExecutor( max_concurrent_requests,
+		                                             max_concurrent_requests,
+		                                             0L,
+		                                             TimeUnit.MILLISECONDS,
+		                                             new LinkedBlockingQueue<>(),
+		                                             runnable -> new Thread(runnable, "jSymbolic extraction request") );
+		http_server.createContext("/extract", this::admitExtractionRequest);
+		http_server.createContext("/features", this::handleFeaturesRequest);
+		http_server.createContext("/status", this::handleStatusRequest);
+		http_server.createContext("/", exchange -> sendError(exchange, 404, "Unknown address: " + exchange.getRequestURI().getPath()));
+		http_server.start();
+		port = http_server.getAddress().getPort();
+		UserFeedbackGenerator.printServerStartedMessage(status_print_stream, port, max_concurrent_requests, max_queued_requests);
+	}
+
+
+	/**
+	 * Stop accepting requests, and wait up to the given time for requests being processed to finish.
+	 *
+	 * @param delay_seconds	The maximum number of seconds to wait.
+	 */
+	public synchronized void stop(int delay_seconds)
+	{
+		if (http_server == null)
+			return;
+		http_server.stop(delay_seconds);
+		extraction_threads.shutdown();
+		try { extraction_threads.awaitTermination(delay_seconds, TimeUnit.SECONDS); }
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		extraction_threads.shutdownNow();
+		http_server = null;
+	}
+
+
+	/**
+	 * @return	The port that the server listens on.
+	 */
+	public int getPort()
+	{
+		return port;
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Queue an extraction request to be processed, or reject it immediately if too many requests are already
+	 * waiting. Called on the HTTP server's dispatching thread, so no I/O is done here.
+	 *
+	 * @param exchange		The request.
+	 * @throws IOException	Thrown if the response cannot be sent.
+	 */
+	private void admitExtractionRequest(HttpExchange exchange)
+		throws IOException
+	{
+		if (!exchange.getRequestMethod().equals("POST"))
+		{
+			sendError(exchange, 405, "Extraction requests must use POST.");
+			return;
+		}
+		if (!admitted_requests.tryAcquire())
+		{
+			rejected_requests.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			sendError(exchange, 503, "The server is busy. Please retry later.");
+			return;
+		}
+		extraction_threads.execute(() ->
+		{
+			active_requests.incrementAndGet();
+			try { handleExtractionRequest(exchange); }
+			finally
+			{
+				active_requests.decrementAndGet();
+				completed_requests.incrementAndGet();
+				admitted_requests.release();
+			}
+		});
+	}
+
+
+	/**
+	 * Extract features from the file specified in the given request and send the results.
+	 *
+	 * @param exchange	The request.
+	 */
+	private void handleExtractionRequest(HttpExchange exchange)
+	{
+		try
+		{
+			// Parse the request
+			Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+			MIDIFeatureProcessor processor;
+			try { processor = getProcessor(parameters); }
+			catch (IllegalArgumentException e)
+			{
+				sendError(exchange, 400, e.getMessage());
+				return;
+			}
+			List<String> error_log = new ArrayList<>();
+			ProbedMusicFile probed_file;
+			if (parameters.containsKey("path"))
+			{
+				try { probed_file = SymbolicMusicFileUtilities.probeMidiOrMeiFile(new File(parameters.get("path")), error_log); }
+				catch (Exception e)
+				{
+					sendError(exchange, 400, e.getMessage());
+					return;
+				}
+			}
+			else
+			{
+				byte[] contents = readRequestBody(exchange);
+				if (contents == null)
+					return;
+				String identifier = parameters.containsKey("id") ? parameters.get("id") : "request";
+				probed_file = SymbolicMusicFileUtilities.probeMusicFile(new File(identifier), contents);
+				if (probed_file == null)
+				{
+					sendError(exchange, 400, "The request body is not a valid MIDI or MEI file.");
+					return;
+				}
+			}
+
+			// Extract and send the features
+			ExtractedFileFeatures extracted_features;
+			try { extracted_features = processor.extractFeatures(probed_file, error_log); }
+			catch (Exception e)
+			{
+				String error_message = error_log.isEmpty() ? e.toString() : error_log.get(0);
+				sendError(exchange, 400, "Problem extracting features from " + probed_file.getFile() + ": " + error_message);
+				return;
+			}
+			String format = parameters.get("format");
+			String accept = exchange.getRequestHeaders().getFirst("Accept");
+			if ("binary".equals(format) || (format == null && "application/octet-stream".equals(accept)))
+				send(exchange, 200, "application/octet-stream", encodeBinary(extracted_features));
+			else send(exchange, 200, "application/json", encodeJson(extracted_features).getBytes(StandardCharsets.UTF_8));
+		}
+		catch (Throwable t)
+		{
+			UserFeedbackGenerator.printErrorMessage(error_print_stream, "Problem processing a feature extraction request: " + t);
+			try { sendError(exchange, 500, t.toString()); }
+			catch (IOException e) { exchange.close(); }
+		}
+	}
+
+
+	/**
+	 * Send the list of all features that can be extracted.
+	 *
+	 * @param exchange		The request.
+	 * @throws IOException	Thrown if the response cannot be sent.
+	 */
+	private void handleFeaturesRequest(HttpExchange exchange)
+		throws IOException
+	{
+		FeatureIndex index = FeatureExtractorAccess.getFeatureIndex();
+		StringBuilder json = new StringBuilder("[");
+		for (int feat = 0; feat < index.getNumberOfFeatures(); feat++)
+		{
+			if (feat > 0)
+				json.append(", ");
+			json.append("{\"name\": ");
+			appendJsonString(json, index.getName(feat));
+			json.append(", \"dimensions\": ").append(index.getDimensions(feat));
+			json.append(", \"default\": ").append(index.isDefault(feat)).append('}');
+		}
+		json.append(']');
+		send(exchange, 200, "application/json", json.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Send the current request counts.
+	 *
+	 * @param exchange		The request.
+	 * @throws IOException	Thrown if the response cannot be sent.
+	 */
+	private void handleStatusRequest(HttpExchange exchange)
+		throws IOException
+	{
+		int active = active_requests.get();
+		int admitted = max_concurrent_requests + max_queued_requests - admitted_requests.availablePermits();
+		String json = "{\"active\": " + active +
+		              ", \"queued\": " + Math.max(0, admitted - active) +
+		              ", \"completed\": " + completed_requests.get() +
+		              ", \"rejected\": " + rejected_requests.get() +
+		              ", \"max_concurrent_requests\": " + max_concurrent_requests +
+		              ", \"max_queued_requests\": " + max_queued_requests + "}";
+		send(exchange, 200, "application/json", json.getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Return a processor configured as specified by the given request parameters, creating it if no
+	 * request has specified this configuration yet.
+	 *
+	 * @param parameters					The request's query parameters.
+	 * @return								The processor.
+	 * @throws IllegalArgumentException		Thrown if the parameters are invalid.
+	 * @throws Exception					Thrown if the processor cannot be created.
+	 */
+	private MIDIFeatureProcessor getProcessor(Map<String, String> parameters)
+		throws Exception
+	{
+		// Find the features to extract
+		boolean[] features_to_save;
+		if (parameters.containsKey("features"))
+		{
+			List<String> feature_names = new ArrayList<>();
+			for (String name : parameters.get("features").split(","))
+				if (!name.trim().isEmpty())
+					feature_names.add(name.trim());
+			List<String> all_feature_names = FeatureExtractorAccess.getNamesOfAllImplementedFeatures();
+			for (String name : feature_names)
+				if (!all_feature_names.contains(name))
+					throw new IllegalArgumentException("Unknown feature: " + name);
+			if (feature_names.isEmpty())
+				throw new IllegalArgumentException("No features were specified.");
+			features_to_save = FeatureExtractorAccess.findSpecifiedFeatures(feature_names);
+		}
+		else features_to_save = FeatureExtractorAccess.getDefaultFeaturesToSave();
+
+		// Find the windowing settings
+		boolean save_features_for_each_window = parameters.containsKey("window");
+		double window_size = 0.0;
+		double window_overlap = 0.0;
+		try
+		{
+			if (save_features_for_each_window)
+				window_size = Double.parseDouble(parameters.get("window"));
+			if (parameters.containsKey("overlap"))
+				window_overlap = Double.parseDouble(parameters.get("overlap"));
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Invalid window or overlap: " + e.getMessage());
+		}
+		if (save_features_for_each_window && window_size <= 0.0)
+			throw new IllegalArgumentException("The window duration must be greater than 0.");
+		if (window_overlap < 0.0 || window_overlap >= 1.0)
+			throw new IllegalArgumentException("The window overlap must be 0.0 or above and less than 1.0.");
+
+		// Find or create the processor
+		String key = Arrays.toString(features_to_save) + " " + save_features_for_each_window + " " + window_size + " " + window_overlap;
+		MIDIFeatureProcessor processor = processors.get(key);
+		if (processor == null)
+		{
+			processor = new MIDIFeatureProcessor( window_size,
+			                                      window_overlap,
+			                                      FeatureExtractorAccess.getFeatureExtractorsForSelection(features_to_save),
+			                                      FeatureExtractorAccess.getExtractionPlan(features_to_save),
+			                                      save_features_for_each_window,
+			                                      true,
+			                                      null,
+			                                      null );
+			if (processors.size() >= maximum_cached_processors)
+				processors.clear();
+			MIDIFeatureProcessor existing_processor = processors.putIfAbsent(key, processor);
+			if (existing_processor != null)
+				processor = existing_processor;
+		}
+		return processor;
+	}
+
+
+	/**
+	 * Read the body of the given request, sending an error response if it is too large or empty.
+	 *
+	 * @param exchange		The request.
+	 * @return				The body of the request, or null if an error response was sent.
+	 * @throws IOException	Thrown if the request cannot be read or the response cannot be sent.
+	 */
+	private static byte[] readRequestBody(HttpExchange exchange)
+		throws IOException
+	{
+		String content_length = exchange.getRequestHeaders().getFirst("Content-Length");
+		if (content_length != null && Long.parseLong(content_length.trim()) > maximum_request_body_size)
+		{
+			sendError(exchange, 413, "Files sent to the server may not be larger than " + maximum_request_body_size + " bytes.");
+			return null;
+		}
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream stream = exchange.getRequestBody())
+		{
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+			{
+				body.write(buffer, 0, read);
+				if (body.size() > maximum_request_body_size)
+				{
+					sendError(exchange, 413, "Files sent to the server may not be larger than " + maximum_request_body_size + " bytes.");
+					return null;
+				}
+			}
+		}
+		if (body.size() == 0)
+		{
+			sendError(exchange, 400, "Either a path parameter or a MIDI or MEI file in the request body is required.");
+			return null;
+		}
+		return body.toByteArray();
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Parse the query string of a request.
+	 *
+	 * @param raw_query		The undecoded query string. May be null.
+	 * @return				The decoded parameters, mapped from names to values.
+	 * @throws UnsupportedEncodingException	Never thrown, as UTF-8 is always supported.
+	 */
+	private static Map<String, String> parseQuery(String raw_query)
+		throws UnsupportedEncodingException
+	{
+		Map<String, String> parameters = new HashMap<>();
+		if (raw_query == null)
+			return parameters;
+		for (String pair : raw_query.split("&"))
+		{
+			if (pair.isEmpty())
+				continue;
+			int equals = pair.indexOf('=');
+			String name = (equals == -1) ? pair : pair.substring(0, equals);
+			String value = (equals == -1) ? "" : pair.substring(equals + 1);
+			parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+		}
+		return parameters;
+	}
+
+
+	/**
+	 * @param extracted_features	The features extracted from a file.
+	 * @return						The features as a JSON object, as described in the class description.
+	 */
+	private static String encodeJson(ExtractedFileFeatures extracted_features)
+	{
+		StringBuilder json = new StringBuilder(4096);
+		json.append("{\"identifier\": ");
+		appendJsonString(json, extracted_features.getIdentifier());
+		if (extracted_features.hasWindowFeatures())
+		{
+			json.append(", \"windows\": [");
+			for (int win = 0; win < extracted_features.getNumberOfWindows(); win++)
+			{
+				if (win > 0)
+					json.append(", ");
+				json.append("{\"start\": ");
+				appendJsonNumber(json, extracted_features.getWindowStartTimes()[win]);
+				json.append(", \"stop\": ");
+				appendJsonNumber(json, extracted_features.getWindowStopTimes()[win]);
+				json.append(", \"features\": ");
+				appendJsonFeatures(json, extracted_features.getWindowFeatureDefinitions(), extracted_features.getWindowFeatureValues()[win]);
+				json.append('}');
+			}
+			json.append(']');
+		}
+		if (extracted_features.hasOverallFeatures())
+		{
+			json.append(", \"overall\": ");
+			appendJsonFeatures(json, extracted_features.getOverallFeatureDefinitions(), extracted_features.getOverallFeatureValues());
+		}
+		json.append('}');
+		return json.toString();
+	}
+
+
+	/**
+	 * Append a JSON object mapping the names of the given features to lists of their values.
+	 *
+	 * @param json			The JSON being built.
+	 * @param definitions	The definitions of the features.
+	 * @param values		The values of each feature. Entries may be null.
+	 */
+	private static void appendJsonFeatures(StringBuilder json, FeatureDefinition[] definitions, double[][] values)
+	{
+		json.append('{');
+		for (int feat = 0; feat < definitions.length; feat++)
+		{
+			if (feat > 0)
+				json.append(", ");
+			appendJsonString(json, definitions[feat].name);
+			json.append(": ");
+			if (values[feat] == null)
+			{
+				json.append("null");
+				continue;
+			}
+			json.append('[');
+			for (int val = 0; val < values[feat].length; val++)
+			{
+				if (val > 0)
+					json.append(", ");
+				appendJsonNumber(json, values[feat][val]);
+			}
+			json.append(']');
+		}
+		json.append('}');
+	}
+
+
+	/**
+	 * Append the given value as a JSON number, or as null if it is NaN or infinite.
+	 *
+	 * @param json	The JSON being built.
+	 * @param value	The value to append.
+	 */
+	private static void appendJsonNumber(StringBuilder json, double value)
+	{
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			json.append("null");
+		else json.append(value);
+	}
+
+
+	/**
+	 * Append the given text as a quoted and escaped JSON string.
+	 *
+	 * @param json	The JSON being built.
+	 * @param text	The text to append.
+	 */
+	private static void appendJsonString(StringBuilder json, String text)
+	{
+		json.append('"');
+		for (int i = 0; i < text.length(); i++)
+		{
+			char character = text.charAt(i);
+			if (character == '"' || character == '\\')
+				json.append('\\').append(character);
+			else if (character < 0x20)
+				json.append(String.format("\\u%04x", (int) character));
+			else json.append(character);
+		}
+		json.append('"');
+	}
+
+
+	/**
+	 * @param extracted_features	The features extracted from a file.
+	 * @return						The features in the binary format described in the class description.
+	 * @throws IOException			Never thrown, as the features are written to memory.
+	 */
+	private static byte[] encodeBinary(ExtractedFileFeatures extracted_features)
+		throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		LittleEndianWriter out = new LittleEndianWriter(bytes);
+		out.write(binary_response_magic_bytes);
+		out.writeLittleEndianInt(binary_response_format_version);
+		out.writeString(extracted_features.getIdentifier());
+		int number_of_windows = extracted_features.hasWindowFeatures() ? extracted_features.getNumberOfWindows() : 0;
+		out.writeLittleEndianInt(number_of_windows + (extracted_features.hasOverallFeatures() ? 1 : 0));
+		for (int win = 0; win < number_of_windows; win++)
+			out.writeSection( extracted_features.getWindowStartTimes()[win],
+			                  extracted_features.getWindowStopTimes()[win],
+			                  extracted_features.getWindowFeatureDefinitions(),
+			                  extracted_features.getWindowFeatureValues()[win] );
+		if (extracted_features.hasOverallFeatures())
+			out.writeSection( Double.NaN,
+			                  Double.NaN,
+			                  extracted_features.getOverallFeatureDefinitions(),
+			                  extracted_features.getOverallFeatureValues() );
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+
+	/**
+	 * Send an error response, consisting of a JSON object with an error field.
+	 *
+	 * @param exchange		The request.
+	 * @param status		The HTTP status code.
+	 * @param message		A description of the error.
+	 * @throws IOException	Thrown if the response cannot be sent.
+	 */
+	private static void sendError(HttpExchange exchange, int status, String message)
+		throws IOException
+	{
+		StringBuilder json = new StringBuilder("{\"error\": ");
+		appendJsonString(json, message == null ? "Unknown error." : message);
+		json.append('}');
+		send(exchange, status, "application/json", json.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Send a response and end the exchange.
+	 *
+	 * @param exchange		The request.
+	 * @param status		The HTTP status code.
+	 * @param content_type	The MIME type of the response.
+	 * @param body			The body of the response.
+	 * @throws IOException	Thrown if the response cannot be sent.
+	 */
+	private static void send(HttpExchange exchange, int status, String content_type, byte[] body)
+		throws IOException
+	{
+		try
+		{
+			exchange.getResponseHeaders().set("Content-Type", content_type);
+			exchange.sendResponseHeaders(status, body.length);
+			try (OutputStream stream = exchange.getResponseBody())
+			{
+				stream.write(body);
+			}
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * Writes the little-endian values of binary responses.
+	 */
+	private static final class LittleEndianWriter
+		extends DataOutputStream
+	{
+		private LittleEndianWriter(OutputStream stream)
+		{
+			super(stream);
+		}
+
+
+		private void writeLittleEndianInt(int value)
+			throws IOException
+		{
+			writeInt(Integer.reverseBytes(value));
+		}
+
+
+		private void writeLittleEndianDouble(double value)
+			throws IOException
+		{
+			writeLong(Long.reverseBytes(Double.doubleToLongBits(value)));
+		}
+
+
+		private void writeString(String value)
+			throws IOException
+		{
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			writeLittleEndianInt(encoded.length);
+			write(encoded);
+		}
+
+
+		private void writeSection(double start, double stop, FeatureDefinition[] definitions, double[][] values)
+			throws IOException
+		{
+			writeLittleEndianDouble(start);
+			writeLittleEndianDouble(stop);
+			writeLittleEndianInt(definitions.length);
+			for (int feat = 0; feat < definitions.length; feat++)
+			{
+				writeString(definitions[feat].name);
+				double[] feature_values = (values[feat] == null) ? new double[0] : values[feat];
+				writeLittleEndianInt(feature_values.length);
+				for (double value : feature_values)
+					writeLittleEndianDouble(value);
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package jsymbolic2.processing;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ExtractionPhaseMonitor that reports each phase of feature extraction as a JDK Flight Recorder event, so
+ * that a recording shows how the time taken to process each file breaks down by phase. There is one event
+ * type per ExtractionPhaseMonitor.Phase (jsymbolic.Parse, jsymbolic.IntermediateRepresentation,
+ * jsymbolic.Feature and jsymbolic.Output, in the jSymbolic category), each with fileId, name, tickLength and
+ * eventCount fields.
+ *
+ * <p>jSymbolic is compiled for Java 8, which does not include the jdk.jfr API, so the event types are
+ * defined at run time with jdk.jfr.EventFactory, accessed by reflection. This requires Java 11 or later (or
+ * a Java 8 runtime that includes the jdk.jfr API). Events are only created while a recording that enables
+ * them is in progress.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class FlightRecorderPhaseMonitor
+	extends ExtractionPhaseMonitor
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The indices of the fields of each event type, in the order in which they are defined.
+	 */
+	private static final int file_id_field = 0;
+	private static final int name_field = 1;
+	private static final int tick_length_field = 2;
+	private static final int event_count_field = 3;
+
+	/**
+	 * A span that does nothing, returned when events of the relevant type are not enabled.
+	 */
+	private static final Span disabled_span = (tick_length, event_count) -> {};
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * One jdk.jfr.EventFactory per ExtractionPhaseMonitor.Phase, indexed by ordinal. These must be kept
+	 * reachable, as event types are unregistered when their factories are garbage collected.
+	 */
+	private final Object[] event_factories;
+
+	/**
+	 * The jdk.jfr.EventFactory.newEvent method.
+	 */
+	private final Method new_event;
+
+	/**
+	 * The isEnabled, begin, end, shouldCommit, commit and set methods of jdk.jfr.Event.
+	 */
+	private final Method is_enabled;
+	private final Method begin;
+	private final Method end;
+	private final Method should_commit;
+	private final Method commit;
+	private final Method set;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Define and register the Flight Recorder event types.
+	 *
+	 * @throws Exception	Thrown if the jdk.jfr API is not available in this Java runtime, or if the event
+	 *						types could not be defined.
+	 */
+	public FlightRecorderPhaseMonitor()
+			throws Exception
+	{
+		Class<?> annotation_element_class;
+		Class<?> value_descriptor_class;
+		Class<?> event_factory_class;
+		Class<?> event_class;
+		try
+		{
+			annotation_element_class = Class.forName("jdk.jfr.AnnotationElement");
+			value_descriptor_class = Class.forName("jdk.jfr.ValueDescriptor");
+			event_factory_class = Class.forName("jdk.jfr.EventFactory");
+			event_class = Class.forName("jdk.jfr.Event");
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new Exception("This Java runtime does not include the JDK Flight Recorder API (jdk.jfr). Java 11 or later is needed.");
+		}
+
+		try
+		{
+			Constructor<?> annotation_element = annotation_element_class.getConstructor(Class.class, Object.class);
+			Constructor<?> value_descriptor = value_descriptor_class.getConstructor(Class.class, String.class, List.class);
+			Method create = event_factory_class.getMethod("create", List.class, List.class);
+			Class<?> name_annotation = Class.forName("jdk.jfr.Name");
+			Class<?> label_annotation = Class.forName("jdk.jfr.Label");
+			Class<?> category_annotation = Class.forName("jdk.jfr.Category");
+			Class<?> stack_trace_annotation = Class.forName("jdk.jfr.StackTrace");
+
+			// The fields shared by all event types, in the order given by the *_field indices
+			List<Object> fields = new ArrayList<>();
+			fields.add(value_descriptor.newInstance(String.class, "fileId", Collections.singletonList(annotation_element.newInstance(label_annotation, "File ID"))));
+			fields.add(value_descriptor.newInstance(String.class, "name", Collections.singletonList(annotation_element.newInstance(label_annotation, "Name"))));
+			fields.add(value_descriptor.newInstance(long.class, "tickLength", Collections.singletonList(annotation_element.newInstance(label_annotation, "Tick Length"))));
+			fields.add(value_descriptor.newInstance(int.class, "eventCount", Collections.singletonList(annotation_element.newInstance(label_annotation, "Event Count"))));
+
+			Phase[] phases = Phase.values();
+			event_factories = new Object[phases.length];
+			for (int i = 0; i < phases.length; i++)
+			{
+				List<Object> annotations = Arrays.asList( annotation_element.newInstance(name_annotation, "jsymbolic." + phases[i].label.replace(" ", "")),
+				                                          annotation_element.newInstance(label_annotation, phases[i].label),
+				                                          annotation_element.newInstance(category_annotation, new String[] {"jSymbolic"}),
+				                                          annotation_element.newInstance(stack_trace_annotation, Boolean.FALSE) );
+				event_factories[i] = create.invoke(null, annotations, fields);
+			}
+
+			new_event = event_factory_class.getMethod("newEvent");
+			is_enabled = event_class.getMethod("isEnabled");
+			begin = event_class.getMethod("begin");
+			end = event_class.getMethod("end");
+			should_commit = event_class.getMethod("shouldCommit");
+			commit = event_class.getMethod("commit");
+			set = event_class.getMethod("set", int.class, Object.class);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw new Exception("Could not define the JDK Flight Recorder event types: " + e.getCause());
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new Exception("Could not define the JDK Flight Recorder event types: " + e);
+		}
+	}
+
+
+	/* PROTECTED METHODS ************************************************************************************/
+
+
+	/**
+	 * Begin a Flight Recorder event for the given phase, if events of its type are enabled.
+	 *
+	 * @param phase		The phase that is beginning.
+	 * @param file_id	An identifier of the file that the phase is operating on, or null if unknown.
+	 * @param name		The name of the intermediate representation pass or feature, or null.
+	 * @return			A span that commits the event when it ends.
+	 */
+	@Override
+	protected Span begin(Phase phase, String file_id, String name)
+	{
+		try
+		{
+			Object event = new_event.invoke(event_factories[phase.ordinal()]);
+			if (!(Boolean) is_enabled.invoke(event))
+				return disabled_span;
+			set.invoke(event, file_id_field, file_id);
+			set.invoke(event, name_field, name);
+			begin.invoke(event);
+			return (tick_length, event_count) ->
+			{
+				try
+				{
+					end.invoke(event);
+					if ((Boolean) should_commit.invoke(event))
+					{
+						set.invoke(event, tick_length_field, tick_length);
+						set.invoke(event, event_count_field, event_count);
+						commit.invoke(event);
+					}
+				}
+				catch (ReflectiveOperationException e)
+				{
+					// Events are only diagnostic, so failing to record one does not interrupt extraction
+				}
+			};
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return disabled_span;
+		}
+	}
+}
@@ -2,10 +2,12 @@ package jsymbolic2.processing;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import javax.sound.midi.*;
 
 import jsymbolic2.api.deprecated.JsymbolicData;
+import jsymbolic2.featureutils.ExtractionPlan;
 import jsymbolic2.featureutils.MEIFeatureExtractor;
 import mckay.utilities.sound.midi.MIDIMethods;
 import ace.datatypes.FeatureDefinition;
@@ -30,16 +32,36 @@ import org.ddmal.jmei2midi.meielements.meispecific.MeiSpecificStorage;
  * <p>The finalize method should be called when all features have been
  * extracted. This will finish writing the feature values to the XML file.
  *
+ * <p>Streaming writers (e.g. for Weka ARFF or CSV files) may also be
+ * registered, in which case they are fed each recording's feature values as
+ * soon as they are extracted. Saving of the ACE XML files is optional if
+ * such writers are used.
+ *
  * <p>Features are extracted for each window and, when appropriate, the average
  * and standard deviation of each of these features is extracted for each
  * recording.
  *
+ * <p>Extracting features does not modify the state of the processor, so
+ * features may be extracted from several recordings in parallel with the same
+ * processor. The methods that save feature values, count the recordings
+ * saved and finalize the saved files are synchronized, so the values of each
+ * recording are saved in one piece, although recordings processed in
+ * parallel may be saved in any order.
+ *
  * @author Cory McKay and Tristano Tenaglia
  */
 public class MIDIFeatureProcessor
 {
      /* FIELDS ****************************************************************/
      
+     /**
+      * The name of a system property that, if set to a number of ticks per
+      * quarter note (e.g. 48 or 96), causes newly instantiated processors to
+      * analyze MIDI sequences encoded at a higher resolution than this at
+      * this resolution instead (see setAnalysisResolution).
+      */
+     public static final String analysis_resolution_property = "jsymbolic.analysisresolution";
+
      /**
       * The window size in seconds used for dividing up the recordings to
       * classify.
@@ -58,6 +80,12 @@ public class MIDIFeatureProcessor
       */
      private   MIDIFeatureExtractor[]   feature_extractors;
      
+     /**
+      * The plan specifying which features are extracted and saved, and in
+      * what order.
+      */
+     private   ExtractionPlan		extraction_plan;
+
      /**
       * The dependencies of the features in the feature_extractors field.
       * The first indice corresponds to the feature_extractors indice
@@ -95,7 +123,7 @@ public class MIDIFeatureProcessor
      /**
       * Used to write to the feature_vector_file file to save feature values to.
       */
-     private   OutputStreamWriter         values_writer;
+     private   AceXmlFeatureValuesWriter  values_writer;
      
      /**
       * Used to write to the feature_key_file file to save feature definitions
@@ -119,6 +147,27 @@ public class MIDIFeatureProcessor
 	  */	 
 	 private final int			maximum_significant_feature_digits = 8;
 	 
+     /**
+      * Writers that are fed the saved feature values of each recording as
+      * soon as it has been processed (e.g. to save ARFF or CSV files directly,
+      * without first saving and then converting an ACE XML file).
+      */
+     private   List<StreamingFeatureValuesWriter> streaming_writers;
+
+     /**
+      * The number of recordings whose features have been successfully
+      * extracted and saved so far.
+      */
+     private   int			number_of_recordings_processed;
+
+     /**
+      * The number of ticks per quarter note that MIDI sequences encoded at a
+      * higher resolution are rescaled to before features are extracted from
+      * them. A value of 0 means that sequences are always analyzed at their
+      * original resolution.
+      */
+     private   int			analysis_resolution;
+	 
 	 
      /* CONSTRUCTORS **********************************************************/
      
@@ -138,7 +187,12 @@ public class MIDIFeatureProcessor
       *                                           1.0, with a value of 0.0
       *                                           meaning no overlap.
       * @param	all_feature_extractors            All features that can be
-      *                                           extracted.
+      *                                           extracted. Entries may be
+      *                                           null for features that are
+      *                                           neither to be saved nor
+      *                                           needed to calculate features
+      *                                           that are to be saved (see
+      *                                           FeatureExtractorAccess.getFeatureExtractorsForSelection).
       * @param	features_to_save_among_all        Which features are to be
       *                                           saved. Entries correspond to
       *                                           the all_feature_extractors
@@ -153,6 +207,12 @@ public class MIDIFeatureProcessor
       * @param	feature_values_save_path          The path of the
       *                                           feature_vector_file XML file
       *                                           to save feature values to.
+      *                                           May be null (along with
+      *                                           feature_definitions_save_path)
+      *                                           if no ACE XML files are to
+      *                                           be saved, in which case
+      *                                           values are only passed to
+      *                                           any streaming writers.
       * @param	feature_definitions_save_path     The path of the
       *                                           feature_key_file file to save
       *                                           feature definitions to.
@@ -171,15 +231,85 @@ public class MIDIFeatureProcessor
           String feature_values_save_path,
           String feature_definitions_save_path )
           throws Exception
+     {
+          this( window_size,
+                window_overlap,
+                all_feature_extractors,
+                ExtractionPlan.create(all_feature_extractors, features_to_save_among_all),
+                save_features_for_each_window,
+                save_overall_recording_features,
+                feature_values_save_path,
+                feature_definitions_save_path );
+     }
+
+
+     /**
+      * Validates and stores the configuration to use for extracting features
+      * from MIDI recordings, using a previously built (and possibly cached or
+      * deserialized) plan of which features to extract and in what order.
+      * Prepares the feature_vector_file and feature_key_file XML files for
+      * saving.
+      *
+      * @param	window_size                       The size of the windows in
+      *                                           seconds that the MIDI
+      *                                           recordings are to be broken
+      *                                           into.
+      * @param	window_overlap                    The fraction of overlap
+      *                                           between adjacent windows. Must
+      *                                           be between 0.0 and less than
+      *                                           1.0, with a value of 0.0
+      *                                           meaning no overlap.
+      * @param	all_feature_extractors            All features that can be
+      *                                           extracted, in the order that
+      *                                           extraction_plan was built
+      *                                           for. Entries may be null for
+      *                                           features that the plan does
+      *                                           not extract.
+      * @param	extraction_plan                   Which features to extract
+      *                                           and save, and in what order.
+      * @param	save_features_for_each_window     Whether or not to save
+      *                                           features individually for each
+      *                                           window.
+      * @param	save_overall_recording_features   Whetehr or not to save the
+      *                                           average and standard deviation
+      *                                           of each feature accross all
+      *                                           windows.
+      * @param	feature_values_save_path          The path of the
+      *                                           feature_vector_file XML file
+      *                                           to save feature values to.
+      *                                           May be null (along with
+      *                                           feature_definitions_save_path)
+      *                                           if no ACE XML files are to
+      *                                           be saved.
+      * @param	feature_definitions_save_path     The path of the
+      *                                           feature_key_file file to save
+      *                                           feature definitions to.
+      * @throws	Exception                         Throws an informative
+      *                                           exception if the input
+      *                                           parameters are invalid,
+      *                                           including if
+      *                                           all_feature_extractors does
+      *                                           not match extraction_plan.
+      */
+     public MIDIFeatureProcessor( double window_size,
+          double window_overlap,
+          MIDIFeatureExtractor[] all_feature_extractors,
+          ExtractionPlan extraction_plan,
+          boolean save_features_for_each_window,
+          boolean save_overall_recording_features,
+          String feature_values_save_path,
+          String feature_definitions_save_path )
+          throws Exception
      {
 		  // Throw an exception if the control parameters are invalid
           if (!save_features_for_each_window && !save_overall_recording_features)
                throw new Exception( "You must save at least one of the windows-based\n" +
                     "features and the overall file-based features if\n" +
                     "windows are to be used." );
-          if (feature_values_save_path.equals(""))
+          boolean save_ace_xml = feature_values_save_path != null || feature_definitions_save_path != null;
+          if (save_ace_xml && (feature_values_save_path == null || feature_values_save_path.equals("")))
                throw new Exception("No save path specified for feature values.");
-          if (feature_definitions_save_path.equals(""))
+          if (save_ace_xml && (feature_definitions_save_path == null || feature_definitions_save_path.equals("")))
                throw new Exception("No save path specified for feature definitions.");
           if (window_overlap < 0.0 || window_overlap >= 1.0)
                throw new Exception( "Window overlap fraction is " + window_overlap + ".\n" +
@@ -187,83 +317,69 @@ public class MIDIFeatureProcessor
           if (window_size < 0.0)
                throw new Exception( "Window size is " + window_size + ".\n" +
                     "This value must be at or above 0.0 seconds." );
-          boolean one_selected = false;
-          for (int i = 0; i < features_to_save_among_all.length; i++)
-               if (features_to_save_among_all[i])
-                    one_selected = true;
-          if (!one_selected)
-               throw new Exception("No features have been set to be saved.");
-		  
-		  /* DEBUGGING: Print a list of all features and their dependencies to standard out
-		  for (int feat = 0; feat < all_feature_extractors.length; feat++)
-		  {
-			  String[] this_feature_dependencies = all_feature_extractors[feat].getDepenedencies();
-			  if (this_feature_dependencies != null)
-				for (int dep = 0; dep < this_feature_dependencies.length; dep++)
-					System.out.println("- " + (feat + 1) + " " + all_feature_extractors[feat].getFeatureCode() + " " + all_feature_extractors[feat].getFeatureDefinition().name + " -> " + this_feature_dependencies[dep]);
-		  }*/
-		  
-		  // Verify that feature names referred to by all dependencies actually exist.
-		  for (int feat = 0; feat < all_feature_extractors.length; feat++)
-		  {
-			  String[] this_feature_dependencies = all_feature_extractors[feat].getDepenedencies();
-			  if (this_feature_dependencies != null)
-			  {
-				boolean found_dependency = false;
-				for (int dep = 0; dep < this_feature_dependencies.length; dep++)
-				{
-					for (int i = 0; i < all_feature_extractors.length; i++)
-					{
-						if (this_feature_dependencies[dep].equals(all_feature_extractors[i].getFeatureDefinition().name))
-						{
-							found_dependency = true;
-							break;
-						}
-					}
-					if (!found_dependency)
-						throw new Exception("The " + all_feature_extractors[feat].getFeatureDefinition().name + " feature needs the " + this_feature_dependencies[dep] + " feature in order to be calculated, yet no feature with the latter name could be found.");
-				}
-			  }
-		  }
+          int analysis_resolution = 0;
+          String analysis_resolution_setting = System.getProperty(analysis_resolution_property);
+          if (analysis_resolution_setting != null)
+          {
+               try { analysis_resolution = Integer.parseInt(analysis_resolution_setting.trim()); }
+               catch (NumberFormatException e)
+               {
+                    UserFeedbackGenerator.printWarningMessage(System.err, "Invalid value " + analysis_resolution_setting + " for the " + analysis_resolution_property + " property (use a whole number of ticks per quarter note), so files will be analyzed at their original resolution.");
+               }
+          }
+          if (analysis_resolution < 0)
+               throw new Exception( "The " + analysis_resolution_property + " property is " + analysis_resolution + ".\n" +
+                    "This value must be 0 (to analyze files at their original resolution) or above." );
+
+          // Find the features to extract, in the order that the plan specifies,
+          // along with the indices of their dependencies, the maximum offsets
+          // for each feature and which features are to be saved.
+          this.extraction_plan = extraction_plan;
+          feature_extractors = extraction_plan.getFeatureExtractorsInExtractionOrder(all_feature_extractors);
+          feature_extractor_dependencies = extraction_plan.getDependencyPositions();
+          max_feature_offsets = extraction_plan.getMaximumOffsets();
+          features_to_save = extraction_plan.getFeaturesToSave();
 
           // Prepare the files for writing
-          feature_values_save_file = new File(feature_values_save_path);
-          feature_definitions_save_file = new File(feature_definitions_save_path);
+          streaming_writers = new ArrayList<>();
+          number_of_recordings_processed = 0;
+          definitions_written = false;
+          if (save_ace_xml)
+          {
+               feature_values_save_file = new File(feature_values_save_path);
+               feature_definitions_save_file = new File(feature_definitions_save_path);
           
-          // Throw an exception if the given file paths are not writable. Involves
-          // creating a blank file if one does not already exist.
-          if (feature_values_save_file.exists())
-               if (!feature_values_save_file.canWrite())
-                    throw new Exception("Cannot write to " + feature_values_save_path + ".");
-          if (feature_definitions_save_file.exists())
-               if (!feature_definitions_save_file.canWrite())
-                    throw new Exception("Cannot write to " + feature_definitions_save_path + ".");
-          if (!feature_values_save_file.exists())
-               feature_values_save_file.createNewFile();
-          if (!feature_definitions_save_file.exists())
-               feature_definitions_save_file.createNewFile();
+               // Throw an exception if the given file paths are not writable. Involves
+               // creating a blank file if one does not already exist.
+               if (feature_values_save_file.exists())
+                    if (!feature_values_save_file.canWrite())
+                         throw new Exception("Cannot write to " + feature_values_save_path + ".");
+               if (feature_definitions_save_file.exists())
+                    if (!feature_definitions_save_file.canWrite())
+                         throw new Exception("Cannot write to " + feature_definitions_save_path + ".");
+               if (!feature_values_save_file.exists())
+                    feature_values_save_file.createNewFile();
+               if (!feature_definitions_save_file.exists())
+                    feature_definitions_save_file.createNewFile();
           
-          // Prepare stream writers
-          FileOutputStream values_to = new FileOutputStream(feature_values_save_file);
-          FileOutputStream definitions_to = new FileOutputStream(feature_definitions_save_file);
-          values_writer = new OutputStreamWriter(values_to, StandardCharsets.UTF_8);
-          definitions_writer = new OutputStreamWriter(definitions_to, StandardCharsets.UTF_8);
-          definitions_written = false;
+               // Prepare stream writers
+               FileOutputStream definitions_to = new FileOutputStream(feature_definitions_save_file);
+               values_writer = new AceXmlFeatureValuesWriter(feature_values_save_file, maximum_significant_feature_digits);
+               definitions_writer = new OutputStreamWriter(definitions_to, StandardCharsets.UTF_8);
+          }
           
           // Save parameters as fields
           this.window_size = window_size;
           this.save_features_for_each_window = save_features_for_each_window;
           this.save_overall_recording_features = save_overall_recording_features;
+          this.analysis_resolution = analysis_resolution;
           
           // Calculate the window offset
           window_overlap_offset = window_overlap * window_size;
           
-          // Find which features need to be extracted and in what order. Also find
-          // the indices of dependencies and the maximum offsets for each feature.
-          findAndOrderFeaturesToExtract(all_feature_extractors, features_to_save_among_all);
-          
           // Write the headers of the feature_vector_file
-          writeValuesXMLHeader();
+          if (save_ace_xml)
+               writeValuesXMLHeader();
      }
      
      
@@ -278,6 +394,116 @@ public class MIDIFeatureProcessor
 		return feature_extractors;
 	}
 
+
+	/**
+	 * @return	The plan specifying which features are extracted and saved, and in what order. This can be
+	 *			reused (or serialized) to construct further processors for the same features without
+	 *			resolving their dependencies again.
+	 */
+	public ExtractionPlan getExtractionPlan()
+	{
+		return extraction_plan;
+	}
+
+
+	/**
+	 * Returns the feature definitions of the values that will be saved for each row of a tabular output
+	 * file, in the order they are saved. If overall recording features are being saved then each row
+	 * corresponds to a recording, and the definitions are those of the overall features (the averages and
+	 * standard deviations across windows if features are also being saved for each window). Otherwise each
+	 * row corresponds to a window, and the definitions are those of the features marked to be saved. This is
+	 * known as soon as this object is instantiated, so that file headers can be written before any features
+	 * are extracted.
+	 *
+	 * @return	The feature definitions of the saved values.
+	 */
+	public FeatureDefinition[] getFeatureDefinitionsOfSavedValues()
+	{
+		List<FeatureDefinition> definitions = new ArrayList<>();
+		for (int feat = 0; feat < feature_extractors.length; feat++)
+		{
+			if (!features_to_save[feat])
+				continue;
+			FeatureDefinition this_def = feature_extractors[feat].getFeatureDefinition();
+			if (save_overall_recording_features && save_features_for_each_window)
+			{
+				definitions.add(new FeatureDefinition( this_def.name + " Overall Average",
+				                                       this_def.description + "\nThis is the overall average over all windows.",
+				                                       this_def.is_sequential,
+				                                       this_def.dimensions ));
+				definitions.add(new FeatureDefinition( this_def.name + " Overall Standard Deviation",
+				                                       this_def.description + "\nThis is the overall standard deviation over all windows.",
+				                                       this_def.is_sequential,
+				                                       this_def.dimensions ));
+			}
+			else definitions.add(this_def);
+		}
+		return definitions.toArray(new FeatureDefinition[definitions.size()]);
+	}
+
+
+	/**
+	 * @return	Whether each row of a tabular output file corresponds to an analysis window (true) or to a
+	 *			recording as a whole (false). See getFeatureDefinitionsOfSavedValues().
+	 */
+	public boolean getSavedRowsAreWindows()
+	{
+		return !save_overall_recording_features;
+	}
+
+
+	/**
+	 * Register a writer that is to be fed the saved feature values of each recording as soon as they have
+	 * been extracted. The writer's finish method is called by finalizeFeatureValuesFile().
+	 *
+	 * @param writer	The writer to register.
+	 */
+	public synchronized void addStreamingFeatureValuesWriter(StreamingFeatureValuesWriter writer)
+	{
+		streaming_writers.add(writer);
+	}
+
+
+	/**
+	 * @return	The number of recordings whose features have been successfully extracted and saved so far.
+	 */
+	public synchronized int getNumberOfRecordingsProcessed()
+	{
+		return number_of_recordings_processed;
+	}
+
+
+	/**
+	 * Specify a coarser time resolution at which to analyze MIDI sequences that are encoded at a high
+	 * resolution. Sequences with more ticks per quarter note than this are rescaled to it (see
+	 * MIDIIntermediateRepresentations.rescaleToAnalysisResolution) before they are windowed and features
+	 * are extracted from them. This makes extraction from files encoded at 960 or 1920 PPQ much faster and
+	 * less memory-intensive, at the cost of losing expressive timing finer than the new resolution. This is
+	 * initially set from the system property named by analysis_resolution_property, or to 0 if it is not
+	 * set (a warning is printed if it is not a whole number).
+	 *
+	 * @param analysis_resolution	The number of ticks per quarter note to analyze sequences at (e.g. 48
+	 *								or 96), or 0 to always analyze them at their original resolution.
+	 * @throws Exception			If analysis_resolution is negative.
+	 */
+	public void setAnalysisResolution(int analysis_resolution)
+			throws Exception
+	{
+		if (analysis_resolution < 0)
+			throw new Exception("Analysis resolution is " + analysis_resolution + ".\nThis value must be 0 (to analyze files at their original resolution) or above.");
+		this.analysis_resolution = analysis_resolution;
+	}
+
+
+	/**
+	 * @return	The number of ticks per quarter note that MIDI sequences encoded at a higher resolution are
+	 *			analyzed at, or 0 if they are always analyzed at their original resolution.
+	 */
+	public int getAnalysisResolution()
+	{
+		return analysis_resolution;
+	}
+
      /**
       * Extract the features from the provided MIDI or MEI file. This may involve
       * windowing, depending on the instantiation parameters of this object. The
@@ -288,27 +514,81 @@ public class MIDIFeatureProcessor
       *
       * @param recording_file	The music file to extract features from.
       * @param errorLog  A List(String) that holds all the files with errors.
+      * @return The feature values that were saved for this recording, along
+      *         with their definitions and window boundaries, so that they can
+      *         be passed on to a FeatureExtractionListener without re-parsing
+      *         the saved file.
       * @throws InvalidMidiDataException Thrown if the MIDI data is invalid.
       * @throws IOException Thrown if there is a problem reading from the inputted file.
       * @throws MeiXmlReadException Thrown if there is a problem reading in the MEI XML from the inputted file.
       * @throws Exception When an unforeseen runtime exception occurs.
       */
-     public void extractFeatures(File recording_file, List<String> errorLog) 
+     public ExtractedFileFeatures extractFeatures(File recording_file, List<String> errorLog) 
              throws InvalidMidiDataException, MeiXmlReadException, IOException, Exception
+     {
+          return extractFeatures(SymbolicMusicFileUtilities.probeMidiOrMeiFile(recording_file, errorLog), errorLog);
+     }
+
+     /**
+      * Extract the features from the provided probed MIDI or MEI file, as
+      * described for extractFeatures(File, List). The file is parsed only if
+      * the given handle has not already parsed it, and the handle's parsed
+      * data is released once features have been extracted from it.
+      *
+      * @param probed_file	A handle to the music file to extract features from,
+      *                     as returned by SymbolicMusicFileUtilities.probeMusicFile.
+      * @param errorLog  A List(String) that holds all the files with errors.
+      * @return The feature values that were saved for this recording.
+      * @throws Exception Thrown if the file cannot be parsed or processed.
+      */
+     public ExtractedFileFeatures extractFeatures(ProbedMusicFile probed_file, List<String> errorLog) 
+             throws Exception
      {
          if(window_overlap_offset > window_size) 
              throw new Exception("Window overlap offset is greater than window size, this is not possible.");
          
+          // Note the file being processed, so that it can be reported to any ExtractionPhaseMonitor
+          File recording_file = probed_file.getFile();
+          ExtractionPhaseMonitor.setCurrentFile(recording_file.getPath());
+          try
+          {
+               return extractFeaturesFromCurrentFile(probed_file, errorLog);
+          }
+          finally
+          {
+               ExtractionPhaseMonitor.setCurrentFile(null);
+          }
+     }
+
+     /**
+      * Extract the features from the provided probed MIDI or MEI file, as
+      * described for extractFeatures(ProbedMusicFile, List), once it has been
+      * noted as the current thread's file for the ExtractionPhaseMonitor.
+      *
+      * @param probed_file	A handle to the music file to extract features from.
+      * @param errorLog  A List(String) that holds all the files with errors.
+      * @return The feature values that were saved for this recording.
+      * @throws Exception Thrown if the file cannot be parsed or processed.
+      */
+     private ExtractedFileFeatures extractFeaturesFromCurrentFile(ProbedMusicFile probed_file, List<String> errorLog)
+             throws Exception
+     {
           // Extract the data from the file and check for exceptions
+          File recording_file = probed_file.getFile();
           Sequence full_sequence = null;
-          MeiSequence mei_sequence = null;
-		  if(SymbolicMusicFileUtilities.isValidMidiFile(recording_file))
-             full_sequence = SymbolicMusicFileUtilities.getMidiSequenceFromMidiOrMeiFile(recording_file,errorLog);
-		  else if(SymbolicMusicFileUtilities.isValidMeiFile(recording_file))
-		  {
-               mei_sequence = SymbolicMusicFileUtilities.getMeiSequenceFromMeiFile(recording_file,errorLog);
-               full_sequence = mei_sequence.getSequence();
+          MeiSequence mei_sequence;
+          ExtractionPhaseMonitor.Span parse_span = ExtractionPhaseMonitor.beginPhase(ExtractionPhaseMonitor.Phase.PARSE, null);
+          try
+          {
+               full_sequence = probed_file.getSequence(errorLog);
+               mei_sequence = probed_file.getMeiSequence(errorLog);
+          }
+          finally
+          {
+               probed_file.releaseParsedData();
+               ExtractionPhaseMonitor.endPhase(parse_span, full_sequence);
           }
+          full_sequence = MIDIIntermediateRepresentations.rescaleToAnalysisResolution(full_sequence, analysis_resolution);
   
          /**
           * Mei Specific Storage added here
@@ -373,20 +653,50 @@ public class MIDIFeatureProcessor
                overall_feature_values = getOverallRecordingFeatures( window_feature_values,
                     overall_feature_definitions );
           
-          // Save the feature values for this recording
-          saveFeatureVectorsForARecording( window_feature_values,
-               recording_file.getPath(),
+          // Package the values to save, and save them
+          ExtractedFileFeatures extracted_features = packageExtractedFileFeatures( recording_file,
+               window_feature_values,
                overall_feature_values,
                overall_feature_definitions[0],
-               full_sequence,
-               windows,
                start_ticks,
                end_ticks,
-               seconds_per_tick);
-          
-          // Save the feature definitions
+               seconds_per_tick );
+          ExtractionPhaseMonitor.Span output_span = ExtractionPhaseMonitor.beginPhase(ExtractionPhaseMonitor.Phase.OUTPUT, null);
+          try
+          {
+               saveExtractedFeatures(extracted_features);
+          }
+          finally
+          {
+               ExtractionPhaseMonitor.endPhase(output_span, full_sequence);
+          }
+          return extracted_features;
+     }
+
+     /**
+      * Save feature values that have already been extracted from a
+      * recording, exactly as if they had just been extracted by this object.
+      * They are written to the feature_vector_file XML file (and the feature
+      * definitions to the feature_key_file XML file, if this is the first
+      * recording saved), and are passed to any streaming writers. This allows
+      * output files to be regenerated from stored feature values without
+      * re-extracting them (e.g. by WatchedFolderExtractor, when only some of
+      * the files in a corpus have changed).
+      *
+      * @param extracted_features  Feature values extracted by a
+      *                            MIDIFeatureProcessor configured in the same
+      *                            way as this one.
+      * @throws Exception          Thrown if the values cannot be written.
+      */
+     public synchronized void saveExtractedFeatures(ExtractedFileFeatures extracted_features)
+             throws Exception
+     {
+          saveFeatureVectorsForARecording(extracted_features);
           if (!definitions_written)
-               saveFeatureDefinitions(window_feature_values, overall_feature_definitions[0]);
+               saveFeatureDefinitions(extracted_features);
+          for (StreamingFeatureValuesWriter writer : streaming_writers)
+               writer.writeFileFeatures(extracted_features);
+          number_of_recordings_processed++;
      }
 
     /**
@@ -403,108 +713,27 @@ public class MIDIFeatureProcessor
      public JsymbolicData extractAndReturnFeatures(File recording_file, List<String> errorLog, PrintStream error_print_stream)
              throws InvalidMidiDataException, MeiXmlReadException, IOException, Exception
      {
-          if(window_overlap_offset > window_size)
-               throw new Exception("Window overlap offset is greater than window size, this is not possible.");
-
-          // Extract the data from the file and check for exceptions
-          Sequence full_sequence = null;
-          MeiSequence mei_sequence = null;
-		  if(SymbolicMusicFileUtilities.isValidMidiFile(recording_file))
-			full_sequence = SymbolicMusicFileUtilities.getMidiSequenceFromMidiOrMeiFile(recording_file,errorLog);
-		  else if(SymbolicMusicFileUtilities.isValidMeiFile(recording_file))
-		  {
-               mei_sequence = SymbolicMusicFileUtilities.getMeiSequenceFromMeiFile(recording_file,errorLog);
-               full_sequence = mei_sequence.getSequence();
-          }
-
-          /**
-           * Mei Specific Storage added here
-           * null is set if the file is not an mei file
-           **/
+          // Parse the file before extracting features from it, so that its
+          // MEI-specific data (null if it is not an MEI file) can be returned
+          ProbedMusicFile probed_file = SymbolicMusicFileUtilities.probeMidiOrMeiFile(recording_file, errorLog);
+          MeiSequence mei_sequence = probed_file.getMeiSequence(errorLog);
           MeiSpecificStorage meiSpecificStorage = null;
-          if(mei_sequence != null) {
+          if (mei_sequence != null)
                meiSpecificStorage = mei_sequence.getNonMidiStorage();
-          }
-          /**
-           *
-           */
-
-          // Prepare the windows for feature extraction with correct times
-          // Tick arrays have been added to account for multiple windows
-          Sequence[] windows;
-          double[] seconds_per_tick = MIDIMethods.getSecondsPerTick(full_sequence);
-          List<int[]> startEndTickArrays;
-          int[] start_ticks;
-          int[] end_ticks;
-          try
-          {
-               if (!save_features_for_each_window)
-               {
-                    startEndTickArrays = MIDIMethods.getStartEndTickArrays(full_sequence,
-                            full_sequence.getMicrosecondLength() / 1000000.0,
-                            0.0,
-                            seconds_per_tick);
-                    start_ticks = startEndTickArrays.get(0);
-                    end_ticks = startEndTickArrays.get(1);
-                    windows = new Sequence[1];
-                    windows[0] = full_sequence;
-               }
-               else
-               {
-                    startEndTickArrays = MIDIMethods.getStartEndTickArrays(full_sequence,
-                            window_size,
-                            window_overlap_offset,
-                            seconds_per_tick);
-                    start_ticks = startEndTickArrays.get(0);
-                    end_ticks = startEndTickArrays.get(1);
-                    windows = MIDIMethods.breakSequenceIntoWindows( full_sequence,
-                            window_size,
-                            window_overlap_offset,
-                            start_ticks,
-                            end_ticks);
-               }
-          }
-          catch (RuntimeException e)
-          {
-               throw new Exception("An error occured while processing the following file: " + recording_file + ".\n");
-          }
-
-          // Extract the feature values from the samples
-          double[][][] window_feature_values = getFeatures(windows, meiSpecificStorage);
-
-          // Find the feature averages and standard deviations if appropriate
-          FeatureDefinition[][] overall_feature_definitions = new FeatureDefinition[1][];
-          overall_feature_definitions[0] = null;
-          double[][] overall_feature_values = null;
-          if (save_overall_recording_features)
-               overall_feature_values = getOverallRecordingFeatures( window_feature_values,
-                       overall_feature_definitions );
-
-          // Save the feature values for this recording
-          saveFeatureVectorsForARecording( window_feature_values,
-                  recording_file.getPath(),
-                  overall_feature_values,
-                  overall_feature_definitions[0],
-                  full_sequence,
-                  windows,
-                  start_ticks,
-                  end_ticks,
-                  seconds_per_tick);
 
-          // Write ending tags for
+          // Extract and save the features, then write the ending tags of the
+          // feature values file so that it can be parsed
+          extractFeatures(probed_file, errorLog);
           finalizeFeatureValuesFile();
 
-          // Save the feature definitions
-          if (!definitions_written)
-               saveFeatureDefinitions(window_feature_values, overall_feature_definitions[0]);
-
           return new JsymbolicData(meiSpecificStorage, feature_values_save_file, feature_definitions_save_file, null, null, error_print_stream);
      }
      
      
      /**
       * Write the ending tags to the feature_vector_file XML file.
-      * Close the DataOutputStreams that were used to write it.
+      * Close the DataOutputStreams that were used to write it. Also finish
+      * any streaming writers that have been registered.
       *
       * <p>This method should be called when all features have been extracted.
       *
@@ -512,9 +741,14 @@ public class MIDIFeatureProcessor
       *						output streams properly. Not thrown if stream is
       *					    already closed.
       */
-     public void finalizeFeatureValuesFile()
+     public synchronized void finalizeFeatureValuesFile()
      throws Exception
      {
+          for (StreamingFeatureValuesWriter writer : streaming_writers)
+               writer.finish();
+          streaming_writers.clear();
+          if (values_writer == null)
+               return;
           try {
               values_writer.write("</feature_vector_file>");
               values_writer.close();
@@ -532,198 +766,6 @@ public class MIDIFeatureProcessor
      /* PRIVATE METHODS *******************************************************/
      
      
-     /**
-      * Fills the feature_extractors, feature_extractor_dependencies,
-      * max_feature_offsets and features_to_save fields. This involves finding
-      * which features need to be extracted and in what order and finding
-      * the indices of dependencies and the maximum offsets for each feature.
-      *
-      * @param	all_feature_extractors       All features that can be extracted.
-      * @param	features_to_save_among_all   Which features are to be saved.
-      *                                      Entries correspond to the
-      *                                      all_feature_extractors parameter.
-      */
-     private void findAndOrderFeaturesToExtract( MIDIFeatureExtractor[] all_feature_extractors,
-          boolean[] features_to_save_among_all )
-     {
-          // Find the names of all features
-          String[] all_feature_names = new String[all_feature_extractors.length];
-          for (int feat = 0; feat < all_feature_extractors.length; feat++)
-               all_feature_names[feat] = all_feature_extractors[feat].getFeatureDefinition().name;
-
-          // Find the dependencies of each feature marked to be extracted.
-          // Mark an entry as null if that entry's matching feature is not set to be extracted.
-		  // Note that an entry will also be null if the corresponding feature has no dependencies.
-          String[][] dependencies = new String[all_feature_extractors.length][];
-          for (int feat = 0; feat < all_feature_extractors.length; feat++)
-          {
-               if (features_to_save_among_all[feat])
-                    dependencies[feat] = all_feature_extractors[feat].getDepenedencies();
-               else
-                    dependencies[feat] = null;
-          }
-          
-		  // Start off the array of which features to extract by making sure to extract all those features
-		  // whose values are marked to be saved.
-          boolean[] features_to_extract_including_dependencies = new boolean[all_feature_extractors.length];
-          for (int feat = 0; feat < all_feature_extractors.length; feat++)
-			  features_to_extract_including_dependencies[feat] = features_to_save_among_all[feat];
-
-		  // Update features_to_extract_including_dependencies to ALSO include those features that are not
-		  // marked to be saved, but are needed as dependencies in order to calculate features that are 
-		  // marked to be saved. Also update dependencies to include any new dependencies that are introduced
-		  // by scheduling new features to be extracted because they themselves are dependencies of other 
-		  // features.
-          boolean done = false;
-          while (!done)
-          {
-               done = true;
-               for (int feat = 0; feat < all_feature_extractors.length; feat++)
-			   {
-                    if (dependencies[feat] != null)
-					{
-						for (int dep = 0; dep < dependencies[feat].length; dep++)
-                        {
-							 String this_depency_name = dependencies[feat][dep];
-							for (int j = 0; j < all_feature_extractors.length; j++)
-							{
-								 if (this_depency_name.equals(all_feature_names[j]))
-								 {
-									  if (!features_to_extract_including_dependencies[j])
-									  {
-										   features_to_extract_including_dependencies[j] = true;
-										   dependencies[j] = all_feature_extractors[j].getDepenedencies();
-										   if (dependencies[j] != null)
-												done = false;
-									  }
-									  j = all_feature_extractors.length;
-								 }
-							}
-                        }
-					}
-			   }	
-           } 
-         
-		 // Begin the process of finding the correct order to extract features in by filling the
-		 // feature_extractors field with all features that are to be extracted (i.e. the combination of
-		 // those features whose values are marked to be saved and those features that are needed in order
-		 // to calculate those features marked to be saved). The ordering consists of the originally
-		 // specified feature order, with dependent features added in before they are needed.
-		 // Also note which of these have values that are actually to be saved by filling in
-		 // features_to_save.
-		 int number_features_to_extract = 0;
-		 for (int i = 0; i < features_to_extract_including_dependencies.length; i++)
-			 if (features_to_extract_including_dependencies[i])
-				 number_features_to_extract++;
-		 feature_extractors = new MIDIFeatureExtractor[number_features_to_extract];
-		 features_to_save = new boolean[number_features_to_extract];
-		 for (int i = 0; i < features_to_save.length; i++)
-			 features_to_save[i] = false;
-		 boolean[] feature_added = new boolean[all_feature_extractors.length];
-		 for (int i = 0; i < feature_added.length; i++)
-			 feature_added[i] = false;
-		 int current_position = 0;
-		 done = false;
-		 while (!done)
-		 {
-			 done = true;
-
-			 // Add all features that have no remaining dependencies and remove
-			 // their dependencies from all unadded features
-			 for (int feat = 0; feat < all_feature_extractors.length; feat++)
-			 {
-				 if (features_to_extract_including_dependencies[feat] && !feature_added[feat])
-				 {
-					 if (dependencies[feat] == null) // add feature if it has no dependencies
-					 {
-						 feature_added[feat] = true;
-						 feature_extractors[current_position] = all_feature_extractors[feat];
-						 features_to_save[current_position] = features_to_save_among_all[feat];
-						 current_position++;
-						 done = false;
-
-						 // Remove this dependency from all features that have
-						 // it as a dependency and are marked to be extracted
-						 for (int i = 0; i < all_feature_extractors.length; i++)
-						 {
-							 if (features_to_extract_including_dependencies[i] && dependencies[i] != null)
-							 {
-								 int num_defs = dependencies[i].length;
-								 for (int j = 0; j < num_defs; j++)
-								 {
-									 if (dependencies[i][j].equals(all_feature_names[feat]))
-									 {
-										 if (dependencies[i].length == 1)
-										 {
-											 dependencies[i] = null;
-											 j = num_defs;
-										 }
-										 else
-										 {
-											 String[] temp = new String[dependencies[i].length - 1];
-											 int m = 0;
-											 for (int k = 0; k < dependencies[i].length; k++)
-											 {
-												 if (k != j)
-												 {
-													 temp[m] = dependencies[i][k];
-													 m++;
-												 }
-											 }
-											 dependencies[i] = temp;
-											 j--;
-											 num_defs--;
-										 }
-									 }
-								 }
-							 }
-						 }
-					 }
-				 }
-			 }
-		 }
-
-          // Find the indices of the feature extractor dependencies for each feature
-          // extractor
-          feature_extractor_dependencies = new int[feature_extractors.length][];
-		  String[] feature_names = new String[feature_extractors.length];
-          for (int feat = 0; feat < feature_names.length; feat++)
-               feature_names[feat] = feature_extractors[feat].getFeatureDefinition().name;
-          String[][] feature_dependencies_str = new String[feature_extractors.length][];
-          for (int feat = 0; feat < feature_dependencies_str.length; feat++)
-               feature_dependencies_str[feat] = feature_extractors[feat].getDepenedencies();
-          for (int i = 0; i < feature_dependencies_str.length; i++)
-               if (feature_dependencies_str[i] != null)
-               {
-               feature_extractor_dependencies[i] = new int[feature_dependencies_str[i].length];
-               for (int j = 0; j < feature_dependencies_str[i].length; j++)
-                    for (int k = 0; k < feature_names.length; k++)
-                         if (feature_dependencies_str[i][j].equals(feature_names[k]))
-                              feature_extractor_dependencies[i][j] = k;
-               }
-          
-          // Find the maximum offset for each feature
-          max_feature_offsets = new int[feature_extractors.length];
-          for (int i = 0; i < max_feature_offsets.length; i++)
-          {
-               if (feature_extractors[i].getDepenedencyOffsets() == null)
-                    max_feature_offsets[i] = 0;
-               else
-               {
-                    int[] these_offsets = feature_extractors[i].getDepenedencyOffsets();
-                    max_feature_offsets[i] = Math.abs(these_offsets[0]);
-                    for (int k = 0; k < these_offsets.length; k++)
-                         if (Math.abs(these_offsets[k]) > max_feature_offsets[i])
-                              max_feature_offsets[i] = Math.abs(these_offsets[k]);
-               }
-          }
-		  
-		  // DEBUGGING: Print all features set to be extracted in the order they are set to be extracted
-		  //for (int i = 0; i < feature_extractors.length; i++)
-		  //	System.out.println(feature_extractors[i].getFeatureCode() + " " + feature_extractors[i].getFeatureDefinition().name);
-     }
-     
-     
      /**
       * Extracts features from each window of the given MIDI sequences. If the
       * passed windows parameter consists of only one window, then this could
@@ -759,57 +801,70 @@ public class MIDIFeatureProcessor
                // Extract information from sequence that is needed to extract features
               MIDIIntermediateRepresentations intermediate = new MIDIIntermediateRepresentations(windows[win]);
                
-               // Extract the features one by one
-               for (int feat = 0; feat < feature_extractors.length; feat++)
+               // Extract the features one by one, releasing any intermediate
+               // representations stored in memory-mapped files afterwards even
+               // if a feature cannot be extracted
+               try
                {
-                    // Only extract this feature if enough previous information
-                    // is available to extract this feature
-                    if (win >= max_feature_offsets[feat])
+                    for (int feat = 0; feat < feature_extractors.length; feat++)
                     {
-                         // Find the correct feature
-                         MIDIFeatureExtractor feature = feature_extractors[feat];
-                         
-                         // Find previously extracted feature values that this feature
-                         // needs
-                         double[][] other_feature_values = null;
-                        if (feature_extractor_dependencies[feat] != null)
+                         // Only extract this feature if enough previous information
+                         // is available to extract this feature
+                         if (win >= max_feature_offsets[feat])
                          {
-                              other_feature_values = new double[feature_extractor_dependencies[feat].length][];
-                              for (int i = 0; i < feature_extractor_dependencies[feat].length; i++)
+                              // Find the correct feature
+                              MIDIFeatureExtractor feature = feature_extractors[feat];
+                         
+                              // Find previously extracted feature values that this feature
+                              // needs
+                              double[][] other_feature_values = null;
+                             if (feature_extractor_dependencies[feat] != null)
                               {
-                                   int feature_indice = feature_extractor_dependencies[feat][i];
-                                   //TODO Check if this is a correct bug fix
-                                   if(feature.getDepenedencyOffsets() == null) {
-                                        other_feature_values[i] = results[win][feature_indice];
-                                   } else {
-                                        int offset = feature.getDepenedencyOffsets()[i];
-                                        other_feature_values[i] = results[win + offset][feature_indice];
+                                   other_feature_values = new double[feature_extractor_dependencies[feat].length][];
+                                   for (int i = 0; i < feature_extractor_dependencies[feat].length; i++)
+                                   {
+                                        int feature_indice = feature_extractor_dependencies[feat][i];
+                                        //TODO Check if this is a correct bug fix
+                                        if(feature.getDepenedencyOffsets() == null) {
+                                             other_feature_values[i] = results[win][feature_indice];
+                                        } else {
+                                             int offset = feature.getDepenedencyOffsets()[i];
+                                             other_feature_values[i] = results[win + offset][feature_indice];
+                                        }
                                    }
                               }
-                         }
 
-                         //Check here if the file is an MEI file and if the feature is an MEI feature
-                         //Otherwise just extract the midi feature data
-                         if(meiSpecificStorage != null &&
-                                 feature instanceof MEIFeatureExtractor) {
-                              results[win][feat] = ((MEIFeatureExtractor) feature).extractMEIFeature(
-                                      meiSpecificStorage,
-                                      windows[win],
-                                      intermediate,
-                                      other_feature_values);
-                         } else if(meiSpecificStorage == null &&
-                                   feature instanceof MEIFeatureExtractor) {
-                              //Skip if this is a non-mei file as mei features are not valid
-                              continue;
-                         } else {
-                              // Store the extracted feature values
-                              results[win][feat] = feature.extractFeature(windows[win],
-                                      intermediate,
-                                      other_feature_values);
+                              //Check here if the file is an MEI file and if the feature is an MEI feature
+                              //Otherwise just extract the midi feature data
+                              if(meiSpecificStorage != null &&
+                                      feature instanceof MEIFeatureExtractor) {
+                                   ExtractionPhaseMonitor.Span feature_span = ExtractionPhaseMonitor.beginPhase(ExtractionPhaseMonitor.Phase.FEATURE, feature.getFeatureDefinition().name);
+                                   results[win][feat] = ((MEIFeatureExtractor) feature).extractMEIFeature(
+                                           meiSpecificStorage,
+                                           windows[win],
+                                           intermediate,
+                                           other_feature_values);
+                                   ExtractionPhaseMonitor.endPhase(feature_span, windows[win]);
+                              } else if(meiSpecificStorage == null &&
+                                        feature instanceof MEIFeatureExtractor) {
+                                   //Skip if this is a non-mei file as mei features are not valid
+                                   continue;
+                              } else {
+                                   // Store the extracted feature values
+                                   ExtractionPhaseMonitor.Span feature_span = ExtractionPhaseMonitor.beginPhase(ExtractionPhaseMonitor.Phase.FEATURE, feature.getFeatureDefinition().name);
+                                   results[win][feat] = feature.extractFeature(windows[win],
+                                           intermediate,
+                                           other_feature_values);
+                                   ExtractionPhaseMonitor.endPhase(feature_span, windows[win]);
+                              }
                          }
+                         else
+                              results[win][feat] = null;
                     }
-                    else
-                         results[win][feat] = null;
+               }
+               finally
+               {
+                    intermediate.releaseTickCharts();
                }
           }
           
@@ -959,107 +1014,130 @@ public class MIDIFeatureProcessor
       * Writes the given feature values extracted from a recording to the
       * feature_vector_file XML file referred to by the values_writer field.
       * Writes both the individual window features and the overall recording
-      * features to disk.
+      * features to disk. Window features that could not be extracted for a
+      * given window are omitted.
       *
-      * @param	feature_values               The extracted feature values for
-      *                                      this recording. The first indice
-      *                                      identifies the window, the second
-      *                                      identifies the feature and the
-      *                                      third identifies the feature value.
-      *                                      The third dimension will be null if
-      *                                      the given feature could not be
-      *                                      extracted for the given window.
-      * @param	identifier                   A string to use for identifying
-      *                                      this recording. Often a file path.
-      * @param	overall_feature_values       The extracted overall average and
-      *                                      standard deviations of the window
-      *                                      feature values. The first indice
-      *                                      identifies the feature and the
-      *                                      second identifies the feature
-      *                                      value. The order of the features
-      *                                      correspond to the
-      *                                      overall_feature_definitions
-      *                                      parameter. This value is null if
-      *                                      overall feature values were not
-      *                                      extracted.
-      * @param	overall_feature_definitions  The feature definitions of the
-      *                                      features that are in the
-      *                                      overall_feature_values parameter.
-      *                                      Will be null if no overall features
-      *                                      were extracted.
-      * @param original_Sequence             The original sequence that contains the MIDI data.
-      * @param windows                       The original sequence split up into timed MIDI windows.
-      * @param start_ticks                   The start ticks that correspond to each MIDI window.
-      * @param end_ticks                     The end ticks that correspond to each MIDI window.
-      * @param seconds_per_tick              The number of seconds in a MIDI tick given by the sequence.
+      * @param	extracted_features           The feature values to save for
+      *                                      this recording, along with their
+      *                                      definitions and window
+      *                                      boundaries. Its identifier is
+      *                                      used to identify the recording.
       * @throws	Exception                    Throws an exception if cannot
       *                                      write.
       */
-     private void saveFeatureVectorsForARecording( double[][][] feature_values,
-          String identifier,
-          double[][] overall_feature_values,
-          FeatureDefinition[] overall_feature_definitions,
-          Sequence original_Sequence,
-          Sequence[] windows,
-          int[] start_ticks,
-          int[] end_ticks,
-          double[] seconds_per_tick)
+     private void saveFeatureVectorsForARecording(ExtractedFileFeatures extracted_features)
           throws Exception
      {
+          if (values_writer == null)
+               return;
+          
           // Start the entry for the recording
-          values_writer.write("\t<data_set>\n");
-          values_writer.write("\t\t<data_set_id>" + identifier + "</data_set_id>\n");
+          values_writer.startDataSet(extracted_features.getIdentifier());
           
           // Write the features for individual windows
-          if (save_features_for_each_window) {
-              //could change to win < windows.length
-               for (int win = 0; win < feature_values.length; win++)
-               {
-               //Compute start and end times
-               int start_tick = start_ticks[win];
-               int end_tick = end_ticks[win];
-               double start_time = MIDIMethods.getSecondsAtTick(start_tick, seconds_per_tick);
-               start_time = (start_time > 0) ? start_time : 0; //check for non negative
-               double end_time = MIDIMethods.getSecondsAtTick(end_tick, seconds_per_tick);
-               
-               values_writer.write( "\t\t<section start=\"" + start_time +
-                    "\" stop=\"" + end_time + "\">\n");
-               for (int feat = 0; feat < feature_values[win].length; feat++)
+          if (extracted_features.hasWindowFeatures())
+          {
+               FeatureDefinition[] window_feature_definitions = extracted_features.getWindowFeatureDefinitions();
+               double[][][] window_feature_values = extracted_features.getWindowFeatureValues();
+               for (int win = 0; win < window_feature_values.length; win++)
                {
-                    if (features_to_save[feat])
-                         if (feature_values[win][feat] != null)
-                         {
-                         String feature_name = feature_extractors[feat].getFeatureDefinition().name;
-                         values_writer.write("\t\t\t<feature>\n");
-                         values_writer.write("\t\t\t\t<name>" + feature_name + "</name>\n");
-                         for (int val = 0; val < feature_values[win][feat].length; val++)
-                         {
-                              String value = mckay.utilities.staticlibraries.StringMethods.getDoubleInScientificNotation(feature_values[win][feat][val], maximum_significant_feature_digits);
-                              values_writer.write("\t\t\t\t<v>" + value + "</v>\n");
-                         }
-                         values_writer.write("\t\t\t</feature>\n");
-                         }
-               }
-               values_writer.write("\t\t</section>\n");
+                    values_writer.startSection( extracted_features.getWindowStartTimes()[win],
+                         extracted_features.getWindowStopTimes()[win] );
+                    for (int feat = 0; feat < window_feature_definitions.length; feat++)
+                         if (window_feature_values[win][feat] != null)
+                              values_writer.writeFeature(window_feature_definitions[feat].name, window_feature_values[win][feat], true);
+                    values_writer.endSection();
                }
           }
           
           // Write the features for the file
-          if (overall_feature_values != null)
+          if (extracted_features.hasOverallFeatures())
+          {
+               FeatureDefinition[] overall_feature_definitions = extracted_features.getOverallFeatureDefinitions();
+               double[][] overall_feature_values = extracted_features.getOverallFeatureValues();
                for (int feat = 0; feat < overall_feature_values.length; feat++)
+                    values_writer.writeFeature(overall_feature_definitions[feat].name, overall_feature_values[feat], false);
+          }
+          
+          // End the entry for the recording
+          values_writer.endDataSet();
+     }
+     
+     
+     /**
+      * Collects the feature values extracted from a recording into an
+      * ExtractedFileFeatures object. Only the values that are saved to the
+      * feature_vector_file are included, in the same order and with the same
+      * window boundaries.
+      *
+      * @param	recording_file               The file the features were
+      *                                      extracted from.
+      * @param	feature_values               The extracted window feature
+      *                                      values for this recording, as
+      *                                      returned by getFeatures.
+      * @param	overall_feature_values       The extracted overall feature
+      *                                      values. Null if overall feature
+      *                                      values were not extracted.
+      * @param	overall_feature_definitions  The feature definitions of the
+      *                                      features that are in the
+      *                                      overall_feature_values parameter.
+      * @param start_ticks                   The start ticks that correspond to each MIDI window.
+      * @param end_ticks                     The end ticks that correspond to each MIDI window.
+      * @param seconds_per_tick              The number of seconds in a MIDI tick given by the sequence.
+      * @return                              The packaged feature values.
+      */
+     private ExtractedFileFeatures packageExtractedFileFeatures( File recording_file,
+          double[][][] feature_values,
+          double[][] overall_feature_values,
+          FeatureDefinition[] overall_feature_definitions,
+          int[] start_ticks,
+          int[] end_ticks,
+          double[] seconds_per_tick )
+     {
+          double[] window_start_times = null;
+          double[] window_stop_times = null;
+          FeatureDefinition[] window_feature_definitions = null;
+          double[][][] window_feature_values = null;
+          if (save_features_for_each_window)
+          {
+               // Find the indices of the features to save
+               int number_saved = 0;
+               for (int feat = 0; feat < features_to_save.length; feat++)
+                    if (features_to_save[feat])
+                         number_saved++;
+               int[] saved_indices = new int[number_saved];
+               window_feature_definitions = new FeatureDefinition[number_saved];
+               int current = 0;
+               for (int feat = 0; feat < features_to_save.length; feat++)
+                    if (features_to_save[feat])
+                    {
+                         saved_indices[current] = feat;
+                         window_feature_definitions[current] = feature_extractors[feat].getFeatureDefinition();
+                         current++;
+                    }
+               
+               // Copy the window boundaries and the references to the saved values
+               window_start_times = new double[feature_values.length];
+               window_stop_times = new double[feature_values.length];
+               window_feature_values = new double[feature_values.length][number_saved][];
+               for (int win = 0; win < feature_values.length; win++)
                {
-               values_writer.write("\t\t<feature>\n");
-               values_writer.write("\t\t\t<name>" + overall_feature_definitions[feat].name + "</name>\n");
-               for (int val = 0; val < overall_feature_values[feat].length; val++)
-               {
-                    String value = mckay.utilities.staticlibraries.StringMethods.getDoubleInScientificNotation(overall_feature_values[feat][val], maximum_significant_feature_digits);
-                    values_writer.write("\t\t\t<v>" + value + "</v>\n");
-               }
-               values_writer.write("\t\t</feature>\n");
+                    double start_time = MIDIMethods.getSecondsAtTick(start_ticks[win], seconds_per_tick);
+                    window_start_times[win] = (start_time > 0) ? start_time : 0;
+                    window_stop_times[win] = MIDIMethods.getSecondsAtTick(end_ticks[win], seconds_per_tick);
+                    for (int i = 0; i < number_saved; i++)
+                         window_feature_values[win][i] = feature_values[win][saved_indices[i]];
                }
+          }
           
-          // End the entry for the recording
-          values_writer.write("\t</data_set>\n\n");
+          return new ExtractedFileFeatures( recording_file,
+               recording_file.getPath(),
+               window_start_times,
+               window_stop_times,
+               window_feature_definitions,
+               window_feature_values,
+               overall_feature_definitions,
+               overall_feature_values );
      }
      
      
@@ -1068,22 +1146,25 @@ public class MIDIFeatureProcessor
       * definitions_writer field. Writes both overall and individual feature
       * definitions.
       *
-      * @param	feature_values               The extracted feature values for a
-      *                                      recording. The first indice
-      *                                      identifies the window, the second
-      *                                      identifies the feature and the
-      *                                      third identifies the feature value.
-      * @param	overall_feature_definitions  The feature definitions of the
-      *                                      features that are in the features
-      *                                      for the recording. Will be null if
-      *                                      no overall features were extracted.
+      * @param	extracted_features           The feature values saved for a
+      *                                      recording. The dimensions of
+      *                                      window features are taken from
+      *                                      its last window, and window
+      *                                      features that could not be
+      *                                      extracted for that window are
+      *                                      omitted.
       * @throws	Exception                    Throws an exception if cannot
       *                                      write.
       */
-     private void saveFeatureDefinitions( double[][][] feature_values,
-          FeatureDefinition[] overall_feature_definitions )
+     private void saveFeatureDefinitions(ExtractedFileFeatures extracted_features)
           throws Exception
      {
+          if (definitions_writer == null)
+          {
+               definitions_written = true;
+               return;
+          }
+          
           String feature_key_header = new String
                (
                "<?xml version=\"1.0\"?>\n" +
@@ -1103,15 +1184,15 @@ public class MIDIFeatureProcessor
                );
           definitions_writer.write(feature_key_header);
 		  
-          double[][] last_window_features = feature_values[feature_values.length - 1];
-          
           // Write the window functions
-          if (save_features_for_each_window)
-               for (int feat = 0; feat < feature_extractors.length; feat++)
-                    if (features_to_save[feat])
+          if (extracted_features.hasWindowFeatures() && extracted_features.getNumberOfWindows() > 0)
+          {
+               FeatureDefinition[] window_feature_definitions = extracted_features.getWindowFeatureDefinitions();
+               double[][] last_window_features = extracted_features.getWindowFeatureValues()[extracted_features.getNumberOfWindows() - 1];
+               for (int feat = 0; feat < window_feature_definitions.length; feat++)
                          if (last_window_features[feat] != null)
                          {
-							FeatureDefinition def = feature_extractors[feat].getFeatureDefinition();
+							FeatureDefinition def = window_feature_definitions[feat];
 							definitions_writer.write("   <feature>\n");
 							definitions_writer.write("      <name>" + def.name + "</name>\n");
 							definitions_writer.write("      <code>" + def.code + "</code>\n");
@@ -1121,8 +1202,10 @@ public class MIDIFeatureProcessor
 							definitions_writer.write("      <extractor>" + def.extractor + "</extractor>\n");
 							definitions_writer.write("   </feature>\n\n");
                          }
+          }
           
           // Write the overall file functions
+          FeatureDefinition[] overall_feature_definitions = extracted_features.getOverallFeatureDefinitions();
           if (overall_feature_definitions != null)
                for (int feat = 0; feat < overall_feature_definitions.length; feat++)
                {
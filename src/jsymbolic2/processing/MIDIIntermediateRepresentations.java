@@ -1,11 +1,19 @@
 package jsymbolic2.processing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import javax.sound.midi.*;
 import jsymbolic2.featureutils.CollectedNoteInfo;
+import jsymbolic2.featureutils.DoubleArrayList;
+import jsymbolic2.featureutils.IntArrayList;
 import jsymbolic2.featureutils.NoteInfo;
+import jsymbolic2.featureutils.ShortArrayList;
+import jsymbolic2.featureutils.TickChart;
+import jsymbolic2.featureutils.TickSet;
+import jsymbolic2.featureutils.VerticalIntervalStatistics;
 import mckay.utilities.staticlibraries.ArrayMethods;
 import mckay.utilities.staticlibraries.MathAndStatsMethods;
 
@@ -19,7 +27,9 @@ import mckay.utilities.staticlibraries.MathAndStatsMethods;
  * to these fields should be made). All public methods are simply static convenience classes for interpreting
  * information stored in public fields (they should never change values in the public fields). Private methods
  * and fields are only used to fill the public fields with values during instantiation, and should not be 
- * used in any other context.</p>
+ * used in any other context. The one exception is releaseTickCharts, which should be called once all
+ * features have been extracted from an object of this class, so that any tick charts stored off-heap do not
+ * hold on to their memory-mapped temporary files until they are garbage collected.</p>
  * 
  * <p>It should be noted that this design is messy. Ultimately, each of the public fields of this class should
  * be re-implemented as individual MEIFeatureExtractor objects.</p>
@@ -110,11 +120,10 @@ public class MIDIIntermediateRepresentations
 	public int[][] pitched_instrument_prevalence;
 
 	/**
-	 * A table with rows (first index) corresponding to MIDI ticks in the MIDI sequence and columns (second
-	 * index) corresponding to each of the pitched General MIDI patches. An entry is set to true if a
-	 * particular patch is playing at least one note during a particular MIDI tick.
+	 * The MIDI ticks during which each of the pitched General MIDI patches (the array index) is playing at
+	 * least one note. Each set spans all the MIDI ticks in the MIDI sequence.
 	 */
-	public boolean[][] pitched_instrumentation_tick_map;
+	public TickSet[] pitched_instrumentation_ticks;
 
 	/**
 	 * An array whose index is matched to patches from the MIDI Percussion Key Map. Each entry indicates the
@@ -184,7 +193,16 @@ public class MIDIIntermediateRepresentations
 	 * track. Each such value indicates the number of notes of this same rhythmic value that occurred on the
 	 * same channel and track before a new rhythmic value was encountered on that channel and track.
 	 */
-	public LinkedList<Integer>[] runs_of_same_rhythmic_value;
+	public IntArrayList[] run_lengths_by_rhythmic_value;
+
+	/**
+	 * A read-only view of run_lengths_by_rhythmic_value, with one List of boxed run lengths per rhythmic
+	 * value.
+	 *
+	 * @deprecated	Use run_lengths_by_rhythmic_value, which does not box each run length.
+	 */
+	@Deprecated
+	public List<Integer>[] runs_of_same_rhythmic_value;
 	
 	/**
 	 * An array with one entry for each note, where the value of each entry indicates the quantized duration
@@ -268,16 +286,22 @@ public class MIDIIntermediateRepresentations
 	 * non-pitched notes on Channel 10. Ordering of notes is iterated first by track, and only then by tick;
 	 * this means that this list does NOT necessarily match the temporal order of the notes.
 	 */
-	public LinkedList<Double> note_durations;
+	public DoubleArrayList note_durations_in_seconds;
 
 	/**
-	 * A table with rows (first index) corresponding to MIDI ticks, and columns (second index) corresponding
-	 * to MIDI channels. Entries are set to true whenever a Note On event occurs on a given tick and channel,
-	 * and to false otherwise. A different, final summary aggregate column (column 16) is also present; its
-	 * entry is set to true if at least one Note On occurs on any channel at the corresponding tick, and to
-	 * false otherwise.
+	 * A read-only view of note_durations_in_seconds as a List of boxed durations.
+	 *
+	 * @deprecated	Use note_durations_in_seconds, which does not box each duration.
 	 */
-	public boolean[][] note_attack_tick_map;
+	@Deprecated
+	public List<Double> note_durations;
+
+	/**
+	 * The MIDI ticks on which a Note On event occurs on each MIDI channel (the array index). A different,
+	 * final summary aggregate entry (index 16) is also present; it holds the ticks on which at least one
+	 * Note On occurs on any channel. Each set spans all the MIDI ticks in the MIDI sequence.
+	 */
+	public TickSet[] note_attack_ticks;
 
 	/**
 	 * Information on the pitch, start tick, end tick, track and channel of every note (including Channel 10
@@ -317,15 +341,24 @@ public class MIDIIntermediateRepresentations
 	public double[] fifths_pitch_histogram;
 	
 	/**
-	 * A list of lists of pitch bends associated with pitched (i.e. not Channel 10) notes. Each entry of the
-	 * root list corresponds to a Note On that has at least one pitch bend message associated with it. Each
-	 * such entry contains a list of all MIDI pitchbend values (the second MIDI data byte stored as an
-	 * Integer) associated with the Note On, in the order that they occurred. Note that the order of the root
-	 * list is based on an iteration through tracks, and then through MIDI events on that track; this means
-	 * that the order of the Note Ons may not necessarily be in the temporal order that they occur. Note that
-	 * this only takes the second (more significant) pitch bend byte into account.
+	 * The pitch bends associated with pitched (i.e. not Channel 10) notes. Each entry of this array
+	 * corresponds to a Note On that has at least one pitch bend message associated with it. Each such entry
+	 * contains a list of all MIDI pitchbend values (the second MIDI data byte) associated with the Note On,
+	 * in the order that they occurred. The lists are all slices of a single list, so they do not each need
+	 * their own array. Note that the order of this array is based on an iteration through tracks, and then
+	 * through MIDI events on that track; this means that the order of the Note Ons may not necessarily be in
+	 * the temporal order that they occur. Note that this only takes the second (more significant) pitch bend
+	 * byte into account.
 	 */
-	public LinkedList<LinkedList<Integer>> pitch_bends_list;
+	public IntArrayList[] pitch_bends_by_note;
+
+	/**
+	 * A read-only view of pitch_bends_by_note as a List with one List of boxed pitch bend values per note.
+	 *
+	 * @deprecated	Use pitch_bends_by_note, which does not box each pitch bend value.
+	 */
+	@Deprecated
+	public List<List<Integer>> pitch_bends_list;
 
 	/**
 	 * Each bin corresponds to a melodic interval, and the bin index indicates the number of semitones
@@ -346,20 +379,29 @@ public class MIDIIntermediateRepresentations
 	public double[] melodic_interval_histogram;
 
 	/**
-	 * A list of data structures, where the outer list contains a separate entry for each MIDI track. The
-	 * inner structure is an array of lists where the array index corresponds to MIDI channel, and each entry
-	 * in the array consists of a list of all melodic intervals that occurred in that channel on that track,
-	 * in the order that they occurred. Each entry in these lists of melodic intervals is an Integer that
-	 * indicates the number of semitones comprising the melodic interval, with positive values indicating
-	 * upwards motion and negative values indicating downwards motion. Any notes on Channel 10 (non-pitched
-	 * percussion) are ignored (i.e. the Channel 10 entry on the array is left empty). It is assumed that
-	 * there is only one melody per channel (if multiple notes occur simultaneously on the same MIDI tick on
-	 * the same MIDI track and channel, then all notes but the first note on that tick are ignored). Other
-	 * than this, all notes on the same track and the same channel are treated as if they are part of a single
-	 * melody. It is also assumed that melodies do not cross MIDI tracks or channels (i.e. that they are each
-	 * separately contained in their own track and channel).
+	 * A table of lists, where the first index corresponds to MIDI track and the second index to MIDI
+	 * channel. Each list consists of all melodic intervals that occurred in that channel on that track, in
+	 * the order that they occurred. Each entry in these lists of melodic intervals indicates the number of
+	 * semitones comprising the melodic interval, with positive values indicating upwards motion and negative
+	 * values indicating downwards motion. Any notes on Channel 10 (non-pitched percussion) are ignored (i.e.
+	 * the Channel 10 entry on the array is left empty). It is assumed that there is only one melody per
+	 * channel (if multiple notes occur simultaneously on the same MIDI tick on the same MIDI track and
+	 * channel, then all notes but the first note on that tick are ignored). Other than this, all notes on the
+	 * same track and the same channel are treated as if they are part of a single melody. It is also assumed
+	 * that melodies do not cross MIDI tracks or channels (i.e. that they are each separately contained in
+	 * their own track and channel).
+	 */
+	public IntArrayList[][] melodic_interval_sequences_by_track_and_channel;
+
+	/**
+	 * A read-only view of melodic_interval_sequences_by_track_and_channel as a List with one entry per MIDI
+	 * track, each of which is an array indexed by MIDI channel of Lists of boxed melodic intervals.
+	 *
+	 * @deprecated	Use melodic_interval_sequences_by_track_and_channel, which does not box each melodic
+	 *				interval.
 	 */
-	public LinkedList<LinkedList<Integer>[]> melodic_intervals_by_track_and_channel;
+	@Deprecated
+	public List<List<Integer>[]> melodic_intervals_by_track_and_channel;
 
 	/**
 	 * A table with rows (first index) corresponding to MIDI channels and column (second index) designations
@@ -409,14 +451,23 @@ public class MIDIIntermediateRepresentations
 	public double[] total_time_notes_sounding_per_channel;
 	
 	/**
-	 * The first list contains a list for each channel. Each channel's list in turn contains the MIDI pitch
+	 * An array with a list for each channel (the array index). Each channel's list contains the MIDI pitch
 	 * of each Note On in that channel, with one entry for each Note On. Note that the order of the pitches
 	 * may not in fact reflect the temporal order in which they occurred.
 	 *
 	 * <p>NOTE: This data includes MIDI Channel 10, even though it is understood that notes on Channel 10 are
 	 * in fact unpitched percussion patches.
 	 */
-	public List<List<Integer>> list_of_note_on_pitches_by_channel;	
+	public IntArrayList[] note_on_pitches_by_channel;
+
+	/**
+	 * A read-only view of note_on_pitches_by_channel as a List with one List of boxed MIDI pitches per
+	 * channel.
+	 *
+	 * @deprecated	Use note_on_pitches_by_channel, which does not box each pitch.
+	 */
+	@Deprecated
+	public List<List<Integer>> list_of_note_on_pitches_by_channel;
 
 	/**
 	 * The MIDI pitches of all pitched note ons in the piece (unpitched notes on Channel 10 are excluded).
@@ -434,22 +485,21 @@ public class MIDIIntermediateRepresentations
 	public short[] pitch_classes_of_all_note_ons;
 	
 	/**
-	 * A table with rows (first index) corresponding to MIDI ticks. The columns (second index) correspond to
-	 * the MIDI channels. An entry is set to true if one or more notes was sounding on the given channel
-	 * during the given MIDI tick.
+	 * The MIDI ticks during which one or more notes is sounding on each MIDI channel (the array index). Each
+	 * set spans all the MIDI ticks in the MIDI sequence.
 	 *
 	 * <p>NOTE: This data includes MIDI Channel 10, even though it is understood that notes on Channel 10 are
 	 * in fact unpitched percussion patches.
 	 */
-	public boolean[][] note_sounding_on_a_channel_tick_map;
+	public TickSet[] note_sounding_on_a_channel_ticks;
 	
 	/**
 	 * A table indicating what pitches are sounding during each MIDI tick. The first index indicates tick and
 	 * the second indicates MIDI pitch (and is always set to size 128). Each entry indicates the cumulative
 	 * velocity of all notes (NOT including Channel 10 unpitched notes) sounding at that tick with that
-	 * pitch.
+	 * pitch. This chart is stored off-heap if it is very large (see TickChart).
 	 */
-	public short[][] pitch_strength_by_tick_chart;
+	public TickChart pitch_strength_by_tick_chart;
 
 	/**
 	 * Total combined velocity of all notes involved in a vertical unison, summed over the the entire piece.
@@ -463,9 +513,10 @@ public class MIDIIntermediateRepresentations
 	 * stream. The first dimension indicates the MIDI tick (after removal of rest ticks) and the second
 	 * dimension indicates the note index (there will be one entry for each MIDI pitch sounding during the
 	 * given MIDI tick). Each entry indicates the MIDI pitch number (0 to 127) of one of the sounding notes.
-	 * The pitch values are sorted from lowest to highest. Will be empty if there are no pitched notes.
+	 * The pitch values are sorted from lowest to highest. Will be empty if there are no pitched notes. This
+	 * chart is stored off-heap if it is very large (see TickChart).
 	 */	
-	public short[][] pitches_present_by_tick_excluding_rests;
+	public TickChart pitches_present_by_tick_excluding_rests;
 	
 	/**
 	 * A data structure indicating all pitch classes (NOT including Channel 10 unpitched notes) sounding at
@@ -475,9 +526,19 @@ public class MIDIIntermediateRepresentations
 	 * dimension indicates the note index (there will be one entry for each pitch class sounding during the
 	 * given MIDI tick). Each entry indicates the pitch class (0 to 11, where 0 is C) of one of the sounding
 	 * notes. The pitch class values are sorted from lowest to highest. Will be empty if there are no pitched 
-	 * notes.
+	 * notes. This chart is stored off-heap if it is very large (see TickChart).
 	 */
-	public short[][] pitch_classes_present_by_tick_excluding_rests;
+	public TickChart pitch_classes_present_by_tick_excluding_rests;
+
+	/**
+	 * Statistics on the pitches sounding simultaneously (NOT including Channel 10 unpitched notes), all
+	 * calculated in a single pass through pitch_strength_by_tick_chart: the vertical interval histogram and
+	 * chord type histogram (before normalization), the number of pitches and pitch classes sounding on each
+	 * tick on which a note sounds, the number of ticks on which each wrapped vertical interval sounds and the
+	 * durations of chords. The features in the jsymbolic2.features.verticalintervals package are calculated
+	 * from these.
+	 */
+	public VerticalIntervalStatistics vertical_interval_statistics;
 	
 	/**
 	 * Fraction of movements between voices that consist of parallel motion (the fraction is calculated
@@ -655,7 +716,7 @@ public class MIDIIntermediateRepresentations
 		// Fill in the public fields of this class
 		// Commented out code is for the purpose of testing calculated values in case changes are made
 		
-		generateOverallMetadata();
+		runPass("generateOverallMetadata", this::generateOverallMetadata);
 		/*int quality = ((Integer) overall_metadata[0]).intValue();
 		Object[] numerators_objects = ((LinkedList) overall_metadata[1]).toArray();
 		int[] numerators = new int[numerators_objects.length];
@@ -674,14 +735,14 @@ public class MIDIIntermediateRepresentations
 		System.out.println("\n" + tempo);
 		System.out.println();*/
 	
-		generateSequenceDurationIntermediateRepresentations();
+		runPass("generateSequenceDurationIntermediateRepresentations", this::generateSequenceDurationIntermediateRepresentations);
 		//System.out.println(sequence_duration);
 
-		generateAverageTickDuration();
+		runPass("generateAverageTickDuration", this::generateAverageTickDuration);
 		// System.out.println("Average tick duration (in seconds): " + average_tick_duration);
 		// System.out.println("Ticks per beat: " + sequence.getResolution());
 		
-		generateTempoAndChannelVolumeMaps();
+		runPass("generateTempoAndChannelVolumeMaps", this::generateTempoAndChannelVolumeMaps);
 		/*for (int i = 0; i < duration_of_ticks_in_seconds.length; i++)
 			System.out.println(i + " " + duration_of_ticks_in_seconds[i]);
 		for (int i = 0; i < volume_of_channels_tick_map.length; i++)
@@ -691,25 +752,25 @@ public class MIDIIntermediateRepresentations
 				System.out.print("j: " + j + " vol: " + volume_of_channels_tick_map[i][j] + "    ");
 		}*/
 		 
-		generatePitchedInstrumentIntermediateRepresentations();
+		runPass("generatePitchedInstrumentIntermediateRepresentations", this::generatePitchedInstrumentIntermediateRepresentations);
 		/*for (int i = 0; i < pitched_instrument_prevalence.length; i++)
 			System.out.println("INST: " + i + "   N Ons: " + pitched_instrument_prevalence[i][0] + "    Time: " + pitched_instrument_prevalence[i][1]);
-		for (int i = 0; i < pitched_instrumentation_tick_map.length; i++)
+		for (int i = 0; i < pitched_instrumentation_ticks[0].getNumberOfTicksSpanned(); i++)
 		{
 			System.out.print("Tick: " + i + " - ");
-			for (int j = 0; j < pitched_instrumentation_tick_map[i].length; j++)
-				System.out.print("Inst " + j + ": " + pitched_instrumentation_tick_map[i][j] + "  |  ");
+			for (int j = 0; j < pitched_instrumentation_ticks.length; j++)
+				System.out.print("Inst " + j + ": " + pitched_instrumentation_ticks[j].contains(i) + "  |  ");
 			System.out.print("\n");
 		}*/
 		
-		generateNonPitchedInstrumentPrevalence();
+		runPass("generateNonPitchedInstrumentPrevalence", this::generateNonPitchedInstrumentPrevalence);
 		/*for (int i = 0; i < non_pitched_instrument_prevalence.length; i++)
 			System.out.println(i + " " + non_pitched_instrument_prevalence[i]);*/
 
-		generateNoteCountIntermediateRepresentations();
+		runPass("generateNoteCountIntermediateRepresentations", this::generateNoteCountIntermediateRepresentations);
 		//System.out.println(total_number_note_ons + " " + total_number_pitched_note_ons + " " + total_number_non_pitched_note_ons);
 		
-		generateRhythmicValueFeatures();
+		runPass("generateRhythmicValueFeatures", this::generateRhythmicValueFeatures);
 		// System.out.println("Fraction thirty second notes: " + rhythmic_value_histogram[0]);
 		// System.out.println("Fraction sixteenth notes: " + rhythmic_value_histogram[1]);
 		// System.out.println("Fraction eighth notes: " + rhythmic_value_histogram[2]);
@@ -736,11 +797,11 @@ public class MIDIIntermediateRepresentations
 		//	System.out.println(rhythmic_value_offsets[i]);
 		// System.out.println("===");
 		
-		generateBeatHistograms();
+		runPass("generateBeatHistograms", this::generateBeatHistograms);
 		/*for (int i = 0; i < beat_histogram.length; i++)
 			System.out.println("BPM: " + i + ": " + beat_histogram[i]);*/
 	
-		generateBeatHistogramThresholdedTables();
+		runPass("generateBeatHistogramThresholdedTables", this::generateBeatHistogramThresholdedTables);
 		 /*for (int i = 0; i < beat_histogram_thresholded_table.length; i++)
 		{
 			System.out.print("\nBPM: " + i + "     ");
@@ -748,24 +809,24 @@ public class MIDIIntermediateRepresentations
 				System.out.print("   " + beat_histogram_thresholded_table[i][j]);
 		}*/
 		
-		generateNoteDurations();
+		runPass("generateNoteDurations", this::generateNoteDurations);
 		/*for (int i = 0; i < note_durations.size(); i++)
 		{
 			double duration = ((Double) (note_durations.get(i))).doubleValue();
 			System.out.println(duration);
 		}*/
 	
-		generateNoteAttackTickMap();
-		/*for (int i = 0; i < note_attack_tick_map.length; i++)
+		runPass("generateNoteAttackTickMap", this::generateNoteAttackTickMap);
+		/*for (int i = 0; i < note_attack_ticks[16].getNumberOfTicksSpanned(); i++)
 		{
 			System.out.print("\ntick: " + i + "     ");
-			for (int j = 0; j < note_attack_tick_map[i].length; j++)
-				System.out.print("   " + note_attack_tick_map[i][j]);
+			for (int j = 0; j < note_attack_ticks.length; j++)
+				System.out.print("   " + note_attack_ticks[j].contains(i));
 		}*/
 		
-		generateAllNotes();
+		runPass("generateAllNotes", this::generateAllNotes);
 		
-		generatePitchHistogramsIntermediateRepresentations();
+		runPass("generatePitchHistogramsIntermediateRepresentations", this::generatePitchHistogramsIntermediateRepresentations);
 		/*System.out.println("basic_pitch_histogram");
 		for (int i = 0; i < basic_pitch_histogram.length; i++)
 			System.out.println(i + ": " + basic_pitch_histogram[i]);
@@ -776,7 +837,7 @@ public class MIDIIntermediateRepresentations
 		for (int i = 0; i < fifths_pitch_histogram.length; i++)
 			System.out.println(i + ": " + fifths_pitch_histogram[i]);*/
 	
-		generatePitchBendsList();
+		runPass("generatePitchBendsList", this::generatePitchBendsList);
 		/*Object[] notes_objects = pitch_bends_list.toArray();
 		LinkedList[] notes = new LinkedList[notes_objects.length];
 		for (int i = 0; i < notes.length; i++)
@@ -798,7 +859,7 @@ public class MIDIIntermediateRepresentations
 		}
 		System.out.print("\n\n--\n\n");*/
 		 	
-		generateMelodicIntermediateRepresentations();
+		runPass("generateMelodicIntermediateRepresentations", this::generateMelodicIntermediateRepresentations);
 		/*
 		for (int i = 0; i < melodic_interval_histogram.length; i++)
 			System.out.println(i + ": " + melodic_interval_histogram[i]);
@@ -814,7 +875,7 @@ public class MIDIIntermediateRepresentations
 			}
 		}*/
 		
-		generateChannelNoteOnIntermediateRepresentations();
+		runPass("generateChannelNoteOnIntermediateRepresentations", this::generateChannelNoteOnIntermediateRepresentations);
 		/*for (int i = 0; i < channel_statistics.length; i++)
 		{
 			System.out.print("Channel: " + i + "  ");
@@ -822,38 +883,40 @@ public class MIDIIntermediateRepresentations
 				System.out.print(channel_statistics[i][j] + "    ");
 			System.out.print("\n");
 		}
-		for (int i = 0; i < note_sounding_on_a_channel_tick_map.length; i++)
+		for (int i = 0; i < note_sounding_on_a_channel_ticks[0].getNumberOfTicksSpanned(); i++)
 		{
 			System.out.print("Tick: " + i + " - ");
-			for (int j = 0; j < note_sounding_on_a_channel_tick_map[i].length; j++)
-				System.out.print("Channel " + j + ": " + note_sounding_on_a_channel_tick_map[i][j] + "  |  ");
+			for (int j = 0; j < note_sounding_on_a_channel_ticks.length; j++)
+				System.out.print("Channel " + j + ": " + note_sounding_on_a_channel_ticks[j].contains(i) + "  |  ");
 			System.out.print("\n");
 		}
 		System.out.println("Number of active voices: " + number_of_active_voices);*/
 		
-		generatePitchAndPitchClaessesOfAllNoteOns();
+		runPass("generatePitchAndPitchClaessesOfAllNoteOns", this::generatePitchAndPitchClaessesOfAllNoteOns);
 		/*
 		for (int i = 0; i < pitch_classes_of_all_note_ons.length; i++)
 			System.out.println("NOTE " + (i + 1) + ": Pitch " + pitches_of_all_note_ons[i] + "  Pitch Class:" + pitch_classes_of_all_note_ons[i]);
 		*/
 		
-		generatePitchStrengthByTickChartAndCalculateTotalVerticalUnsionVelocity();
+		runPass("generatePitchStrengthByTickChartAndCalculateTotalVerticalUnsionVelocity", this::generatePitchStrengthByTickChartAndCalculateTotalVerticalUnsionVelocity);
 
-		generatePitchesAndPitchClassesPresentByTickExcludingRests();
-		/*for (int i = 0; i < pitches_present_by_tick_excluding_rests.length; i++)
+		runPass("generatePitchesAndPitchClassesPresentByTickExcludingRests", this::generatePitchesAndPitchClassesPresentByTickExcludingRests);
+		/*for (int i = 0; i < pitches_present_by_tick_excluding_rests.getNumberOfTicks(); i++)
 		{
 			System.out.print("\nTICK " + i + ": ");
-			for (int j = 0; j < pitches_present_by_tick_excluding_rests[i].length; j++)
-				System.out.print(pitches_present_by_tick_excluding_rests[i][j] + " ");
+			for (int j = 0; j < pitches_present_by_tick_excluding_rests.getRowLength(i); j++)
+				System.out.print(pitches_present_by_tick_excluding_rests.get(i, j) + " ");
 		}
-		for (int i = 0; i < pitch_classes_present_by_tick_excluding_rests.length; i++)
+		for (int i = 0; i < pitch_classes_present_by_tick_excluding_rests.getNumberOfTicks(); i++)
 		{
 			System.out.print("\nTICK: " + i + ": ");
-			for (int j = 0; j < pitch_classes_present_by_tick_excluding_rests[i].length; j++)
-				System.out.print(pitch_classes_present_by_tick_excluding_rests[i][j] + " ");
+			for (int j = 0; j < pitch_classes_present_by_tick_excluding_rests.getRowLength(i); j++)
+				System.out.print(pitch_classes_present_by_tick_excluding_rests.get(i, j) + " ");
 		}*/	
 		
-		generateContrapuntalCounts();
+		runPass("generateVerticalIntervalStatistics", this::generateVerticalIntervalStatistics);
+
+		runPass("generateContrapuntalCounts", this::generateContrapuntalCounts);
 		/*System.out.println("SEQUENCE DURATION: " + sequence_duration);
 		System.out.println("parallel_motion_fraction " + parallel_motion_fraction);
 		System.out.println("similar_motion_fraction " + similar_motion_fraction);
@@ -862,14 +925,14 @@ public class MIDIIntermediateRepresentations
 		System.out.println("parallel_fifths_fraction " + parallel_fifths_fraction);
 		System.out.println("parallel_octaves_fraction " + parallel_octaves_fraction);*/
 	
-		generateNoteLoudnesses();
+		runPass("generateNoteLoudnesses", this::generateNoteLoudnesses);
 		/*for (int i = 0; i < note_loudnesses.length; i++)
 			System.out.print("\nCHAN: " + i + "  ");
 			for (int j = 0; j < note_loudnesses[i].length; j++)
 				System.out.print("   " + note_loudnesses[i][j]);
 		System.out.println("\n");*/
 		
-		generateRestDurationsSeparatedByChannel();
+		runPass("generateRestDurationsSeparatedByChannel", this::generateRestDurationsSeparatedByChannel);
 		/*for (int i = 0; i < rest_durations_separated_by_channel.length; i++)
 		{
 			for (int j = 0; j < rest_durations_separated_by_channel[i].length; j++)
@@ -877,7 +940,7 @@ public class MIDIIntermediateRepresentations
 			System.out.print("\n");
 		}*/
 		
-		generateCompleteRestDurations();
+		runPass("generateCompleteRestDurations", this::generateCompleteRestDurations);
 		/*if (complete_rest_durations == null)
 			System.out.print("complete_rest_durataions: null");
 		else
@@ -889,6 +952,30 @@ public class MIDIIntermediateRepresentations
 		System.out.print("\n");*/
 	}
 
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Close the pitch_strength_by_tick_chart, pitches_present_by_tick_excluding_rests and
+	 * pitch_classes_present_by_tick_excluding_rests fields (see TickChart.close) and set them to null. This
+	 * releases the memory-mapped temporary files of any of them that are stored off-heap. It should be
+	 * called once all features have been extracted from this object, after which these fields must not be
+	 * used.
+	 */
+	public void releaseTickCharts()
+	{
+		if (pitch_strength_by_tick_chart != null)
+			pitch_strength_by_tick_chart.close();
+		if (pitches_present_by_tick_excluding_rests != null)
+			pitches_present_by_tick_excluding_rests.close();
+		if (pitch_classes_present_by_tick_excluding_rests != null)
+			pitch_classes_present_by_tick_excluding_rests.close();
+		pitch_strength_by_tick_chart = null;
+		pitches_present_by_tick_excluding_rests = null;
+		pitch_classes_present_by_tick_excluding_rests = null;
+	}
+
 	
 	/* STATIC PUBLIC METHOD *********************************************************************************/
 
@@ -914,10 +1001,122 @@ public class MIDIIntermediateRepresentations
 			return ((double) notes_played) / ((double) sequence_info.total_number_note_ons);
 	}
 
+
+	/**
+	 * Return a copy of the given MIDI sequence with all of its events moved to the nearest tick of a coarser
+	 * time grid with the given number of ticks per quarter note (PPQ). The size of most of the fields of a
+	 * MIDIIntermediateRepresentations (and the time taken to fill them) is proportional to the number of
+	 * ticks in the sequence it is generated from, so generating it from a rescaled copy of a sequence
+	 * encoded at a high resolution (e.g. 960 or 1920 PPQ) is cheaper roughly in proportion to the reduction
+	 * in resolution. Tempos and time signatures are specified per quarter note, and rhythmic values are
+	 * measured relative to the sequence resolution, so they keep their meaning. The sequence is returned
+	 * unchanged if it already uses the given resolution or a coarser one, or if it uses SMPTE time
+	 * encoding.
+	 *
+	 * <p>The accuracy cost is that each event can move by up to half a tick of the new grid (e.g. about 5
+	 * milliseconds at 48 PPQ and 120 BPM). All note values down to 64th note triplets are whole numbers of
+	 * ticks at 48 PPQ, so notated rhythms are kept exactly, and only expressive (performed) timing finer than
+	 * the grid is lost. Notes that would be rounded to no duration at all are kept one tick long, so that no
+	 * notes are lost. When this was compared with extraction at the original resolution on the MIDI files
+	 * used by the tests and the manual (192 to 960 PPQ), rescaling to 96 or 48 PPQ left about 70% to 95% of
+	 * the features of each file exactly unchanged, including all those based on pitch, melodic intervals,
+	 * instrumentation, dynamics and rhythmic values. The features that did change were:</p>
+	 *
+	 * <ul>
+	 * <li>Features that count time in whole ticks, such as Chord Duration and Average Time Between Attacks,
+	 * which shifted by around 1% to 8%.</li>
+	 *
+	 * <li>The beat histogram features, whose strongest pulse moved by 1 or 2 BPM.</li>
+	 *
+	 * <li>Rest, note duration, tempo and simultaneity features, which changed by well under 1% (up to about
+	 * 3% for rest fractions at 48 PPQ).</li>
+	 *
+	 * <li>Features of performed (unquantized) files that depend on notes overlapping or starting at exactly
+	 * the same time. In particular, vertical intervals that only arise from brief legato overlaps can
+	 * disappear, and voice-leading features such as Parallel Motion and Similar Motion can change
+	 * considerably as more notes become simultaneous. Such files should be analyzed at their original
+	 * resolution if these features matter.</li>
+	 * </ul>
+	 *
+	 * @param	midi_sequence		The MIDI sequence to rescale. It is not altered.
+	 * @param	analysis_resolution	The number of ticks per quarter note to rescale to (e.g. 48 or 96). The
+	 *								sequence is returned unchanged if this is 0 or less.
+	 * @return						A rescaled copy of midi_sequence, or midi_sequence itself if it does not
+	 *								need to be rescaled.
+	 * @throws	InvalidMidiDataException	If the rescaled sequence could not be created.
+	 */
+	public static Sequence rescaleToAnalysisResolution(Sequence midi_sequence, int analysis_resolution)
+			throws InvalidMidiDataException
+	{
+		long resolution = midi_sequence.getResolution();
+		if ( analysis_resolution <= 0 ||
+		     midi_sequence.getDivisionType() != Sequence.PPQ ||
+		     resolution <= analysis_resolution )
+			return midi_sequence;
+
+		Sequence rescaled_sequence = new Sequence(Sequence.PPQ, analysis_resolution);
+		for (Track track : midi_sequence.getTracks())
+		{
+			Track rescaled_track = rescaled_sequence.createTrack();
+
+			// The original (first index 0) and rescaled (first index 1) tick of the last Note On on each
+			// channel (second index) and pitch (third index), or -1 if there has not been one
+			long[][][] last_note_on_ticks = new long[2][16][128];
+			for (long[][] ticks_by_channel : last_note_on_ticks)
+				for (long[] ticks_by_pitch : ticks_by_channel)
+					Arrays.fill(ticks_by_pitch, -1);
+
+			for (int n_event = 0; n_event < track.size(); n_event++)
+			{
+				MidiEvent event = track.get(n_event);
+				MidiMessage message = event.getMessage();
+				long tick = event.getTick();
+				long rescaled_tick = (2 * tick * analysis_resolution + resolution) / (2 * resolution);
+
+				if (message instanceof ShortMessage)
+				{
+					ShortMessage short_message = (ShortMessage) message;
+					int channel = short_message.getChannel();
+					int pitch = short_message.getData1();
+					boolean note_on = short_message.getCommand() == 0x90 && short_message.getData2() != 0;
+					boolean note_off = short_message.getCommand() == 0x80 ||
+					                   (short_message.getCommand() == 0x90 && short_message.getData2() == 0);
+					if (note_on)
+					{
+						last_note_on_ticks[0][channel][pitch] = tick;
+						last_note_on_ticks[1][channel][pitch] = rescaled_tick;
+					}
+					else if ( note_off &&
+					          tick > last_note_on_ticks[0][channel][pitch] &&
+					          rescaled_tick <= last_note_on_ticks[1][channel][pitch] )
+						rescaled_tick = last_note_on_ticks[1][channel][pitch] + 1;
+				}
+
+				rescaled_track.add(new MidiEvent(message, rescaled_tick));
+			}
+		}
+		return rescaled_sequence;
+	}
+
 	
 	/* PRIVATE METHODS **************************************************************************************/
 
 
+	/**
+	 * Run one of the generate* passes of the constructor, reporting it to the installed
+	 * ExtractionPhaseMonitor, if any.
+	 *
+	 * @param pass_name	The name of the method that performs the pass.
+	 * @param pass		The pass to run.
+	 */
+	private void runPass(String pass_name, Runnable pass)
+	{
+		ExtractionPhaseMonitor.Span span = ExtractionPhaseMonitor.beginPhase(ExtractionPhaseMonitor.Phase.INTERMEDIATE_REPRESENTATION, pass_name);
+		try { pass.run(); }
+		finally { ExtractionPhaseMonitor.endPhase(span, sequence); }
+	}
+
+
 	/**
 	 * Calculate values for the overall_metadata field.
 	 */
@@ -1100,7 +1299,7 @@ public class MIDIIntermediateRepresentations
 
 
 	/**
-	 * Calculate the values of the pitched_instrument_prevalence and pitched_instrumentation_tick_map fields.
+	 * Calculate the values of the pitched_instrument_prevalence and pitched_instrumentation_ticks fields.
 	 */
 	private void generatePitchedInstrumentIntermediateRepresentations()
 	{
@@ -1112,11 +1311,11 @@ public class MIDIIntermediateRepresentations
 			pitched_instrument_prevalence[i][1] = 0;
 		}
 
-		// Instantiate pitched_instrumentation_tick_map and initialize entries to false
-		pitched_instrumentation_tick_map = new boolean[(int) sequence.getTickLength() + 1][128];
-		for (int i = 0; i < pitched_instrumentation_tick_map.length; i++)
-			for (int j = 0; j < pitched_instrumentation_tick_map[i].length; j++)
-				pitched_instrumentation_tick_map[i][j] = false;
+		// The ticks during which each instrument is playing, collected before being stored in
+		// pitched_instrumentation_ticks
+		BitSet[] ticks_by_instrument = new BitSet[pitched_instrument_prevalence.length];
+		for (int i = 0; i < ticks_by_instrument.length; i++)
+			ticks_by_instrument[i] = new BitSet();
 
 		// Fill in fields
 		for (int n_track = 0; n_track < tracks.length; n_track++)
@@ -1160,9 +1359,9 @@ public class MIDIIntermediateRepresentations
 								int event_start_tick = (int) event.getTick();
 								int event_end_tick = findCorrespondingNoteOffEndTick(short_message, n_event, track);
 
-								// Fill in pitched_instrumentation_tick_map for all the ticks corresponding to this note
-								for (int i = event_start_tick; i < event_end_tick; i++)
-									pitched_instrumentation_tick_map[i][current_patch_numbers[short_message.getChannel()]] = true;
+								// Fill in ticks_by_instrument for all the ticks corresponding to this note
+								if (event_end_tick > event_start_tick)
+									ticks_by_instrument[current_patch_numbers[short_message.getChannel()]].set(event_start_tick, event_end_tick);
 							}
 						}
 					}
@@ -1170,14 +1369,18 @@ public class MIDIIntermediateRepresentations
 			}
 		}
 
+		// Fill in pitched_instrumentation_ticks
+		pitched_instrumentation_ticks = new TickSet[ticks_by_instrument.length];
+		for (int i = 0; i < pitched_instrumentation_ticks.length; i++)
+			pitched_instrumentation_ticks[i] = new TickSet(ticks_by_instrument[i], (int) sequence.getTickLength() + 1);
+
 		// Note the total time that each instrument was sounding in pitched_instrument_prevalence
 		double[] total = new double[pitched_instrument_prevalence.length];
 		for (int i = 0; i < total.length; i++)
 			total[i] = 0.0;
 		for (int instrument = 0; instrument < pitched_instrument_prevalence.length; instrument++)
-			for (int tick = 0; tick < pitched_instrumentation_tick_map.length; tick++)
-				if (pitched_instrumentation_tick_map[tick][instrument])
-					total[instrument] = total[instrument] + duration_of_ticks_in_seconds[tick];
+			for (int tick = ticks_by_instrument[instrument].nextSetBit(0); tick != -1; tick = ticks_by_instrument[instrument].nextSetBit(tick + 1))
+				total[instrument] = total[instrument] + duration_of_ticks_in_seconds[tick];
 		for (int i = 0; i < total.length; i++)
 			pitched_instrument_prevalence[i][1] = (int) total[i];
 	}
@@ -1271,8 +1474,8 @@ public class MIDIIntermediateRepresentations
 
 	/**
 	 * Calculate the values of the average_quarter_note_duration_in_seconds, rhythmic_value_histogram,
-	 * runs_of_same_rhythmic_value, rhythmic_value_of_each_note_in_quarter_notes and rhythmic_value_offsets
-	 * fields.
+	 * run_lengths_by_rhythmic_value, runs_of_same_rhythmic_value,
+	 * rhythmic_value_of_each_note_in_quarter_notes and rhythmic_value_offsets fields.
 	 */
 	private void generateRhythmicValueFeatures()
 	{
@@ -1321,23 +1524,23 @@ public class MIDIIntermediateRepresentations
 		// The number of notes corresponding to each note value
 		int[] rhythmic_duration_note_counts = new int[lower_bound_ticks_per_note_value.length]; 
 		
-		// Initialize runs_of_same_rhythmic_value
-		runs_of_same_rhythmic_value = new LinkedList[central_ticks_per_note_value.length]; 
-		for (int i = 0; i < runs_of_same_rhythmic_value.length; i++)
-			runs_of_same_rhythmic_value[i] = new LinkedList<>();
+		// Initialize run_lengths_by_rhythmic_value
+		run_lengths_by_rhythmic_value = new IntArrayList[central_ticks_per_note_value.length]; 
+		for (int i = 0; i < run_lengths_by_rhythmic_value.length; i++)
+			run_lengths_by_rhythmic_value[i] = new IntArrayList();
 
 		// The offset in duration of each note from the exact idealized duration of its nearest rhythmic
 		// value, expressed as a fraction of the duration of an idealized quarter note
-		LinkedList<Double> quantization_offsets_in_quarter_note_fractions = new LinkedList<>();
+		DoubleArrayList quantization_offsets_in_quarter_note_fractions = new DoubleArrayList();
 		
 		// Fill rhythmic_duration_note_counts for the entire sequence
 		for (int n_track = 0; n_track < tracks.length; n_track++)
 		{
 			// The rhythmic value of each note on this track, divided by channel, and in the order they occur
 			// on that channel
-			LinkedList<Integer>[] ordered_rhythmic_values_by_channel = new LinkedList[16]; 
+			IntArrayList[] ordered_rhythmic_values_by_channel = new IntArrayList[16]; 
 			for (int i = 0; i < ordered_rhythmic_values_by_channel.length; i++)
-				ordered_rhythmic_values_by_channel[i] = new LinkedList<>();
+				ordered_rhythmic_values_by_channel[i] = new IntArrayList();
 
 			// Process this track
 			Track track = tracks[n_track];
@@ -1409,7 +1612,7 @@ public class MIDIIntermediateRepresentations
 				}
 			}
 			
-			// Update runs_of_same_rhythmic_value for this track
+			// Update run_lengths_by_rhythmic_value for this track
 			for (int chan = 0; chan < ordered_rhythmic_values_by_channel.length; chan++)
 			{
 				int current_run_length = 0;
@@ -1427,7 +1630,7 @@ public class MIDIIntermediateRepresentations
 						current_run_length++;
 					else
 					{
-						runs_of_same_rhythmic_value[last_rhythmic_value].add(current_run_length);
+						run_lengths_by_rhythmic_value[last_rhythmic_value].add(current_run_length);
 						// System.out.println("\t1) ADD Rhythmic Value: " + last_rhythmic_value + " Run Length: " + current_run_length);
 						last_rhythmic_value = this_rhythmic_value;
 						current_run_length = 1;
@@ -1435,7 +1638,7 @@ public class MIDIIntermediateRepresentations
 				}
 				if (last_rhythmic_value != -1)
 				{
-					runs_of_same_rhythmic_value[last_rhythmic_value].add(current_run_length);
+					run_lengths_by_rhythmic_value[last_rhythmic_value].add(current_run_length);
 					// System.out.println("\t2) ADD Rhythmic Value: " + last_rhythmic_value + " Run Length: " + current_run_length);
 				}
 			}
@@ -1455,6 +1658,11 @@ public class MIDIIntermediateRepresentations
 		// System.out.println("Number double whole notes: " + rhythmic_duration_note_counts[10]);
 		// System.out.println("Number dotted double whole notes: " + rhythmic_duration_note_counts[11]);
 
+		// Prepare the read-only view of run_lengths_by_rhythmic_value
+		runs_of_same_rhythmic_value = new List[run_lengths_by_rhythmic_value.length];
+		for (int i = 0; i < runs_of_same_rhythmic_value.length; i++)
+			runs_of_same_rhythmic_value[i] = run_lengths_by_rhythmic_value[i].asList();
+
 		// Calculate the total number of notes
 		int total_notes = 0;
 		for (int i = 0; i < rhythmic_duration_note_counts.length; i++)
@@ -1500,9 +1708,7 @@ public class MIDIIntermediateRepresentations
 		}
 		
 		// Prepare rhythmic_value_offsets
-		rhythmic_value_offsets = new double[quantization_offsets_in_quarter_note_fractions.size()];
-		for (int i = 0; i < rhythmic_value_offsets.length; i++)
-			rhythmic_value_offsets[i] = quantization_offsets_in_quarter_note_fractions.get(i);
+		rhythmic_value_offsets = quantization_offsets_in_quarter_note_fractions.toArray();
 	}
 		
 
@@ -1592,12 +1798,13 @@ public class MIDIIntermediateRepresentations
 
 	
 	/**
-	 * Calculate the contents of the note_durations field.
+	 * Calculate the contents of the note_durations_in_seconds and note_durations fields.
 	 */
 	private void generateNoteDurations()
 	{
-		// Instantiate note_durations as an empty list
-		note_durations = new LinkedList<>();
+		// Instantiate note_durations_in_seconds as an empty list
+		note_durations_in_seconds = new DoubleArrayList();
+		note_durations = note_durations_in_seconds.asList();
 
 		// Fill in the list
 		for (int n_track = 0; n_track < tracks.length; n_track++)
@@ -1630,7 +1837,7 @@ public class MIDIIntermediateRepresentations
 								duration += duration_of_ticks_in_seconds[i];
 
 							// Add note to list
-							note_durations.add(new Double(duration));
+							note_durations_in_seconds.add(duration);
 						}
 					}
 				}
@@ -1640,17 +1847,17 @@ public class MIDIIntermediateRepresentations
 	
 
 	/**
-	 * Find the values of the note_attack_tick_map field
+	 * Find the values of the note_attack_ticks field
 	 */
 	private void generateNoteAttackTickMap()
 	{
-		// Instantiate note_attack_tick_map and set entries to false
-		note_attack_tick_map = new boolean[((int) sequence.getTickLength()) + 1][17];
-		for (int i = 0; i < note_attack_tick_map.length; i++)
-			for (int j = 0; j < note_attack_tick_map[i].length; j++)
-				note_attack_tick_map[i][j] = false;
+		// The ticks on which Note Ons occur on each channel, and on any channel (index 16), collected before
+		// being stored in note_attack_ticks
+		BitSet[] attack_ticks = new BitSet[17];
+		for (int i = 0; i < attack_ticks.length; i++)
+			attack_ticks[i] = new BitSet();
 
-		// Fill in note_attack_tick_map for all channels
+		// Fill in attack_ticks for all channels
 		for (int n_track = 0; n_track < tracks.length; n_track++)
 		{
 			// Go through all the events in the current track, searching for note ons
@@ -1667,24 +1874,20 @@ public class MIDIIntermediateRepresentations
 					ShortMessage short_message = (ShortMessage) message;
 					if (short_message.getCommand() == 0x90) // note on
 						if (short_message.getData2() != 0) // not velocity 0
-							note_attack_tick_map[(int) event.getTick()][short_message.getChannel()] = true;
+							attack_ticks[short_message.getChannel()].set((int) event.getTick());
 				}
 			}
 		}
 
-		// Fill in column 16 of note_attack_tick_map to show if a Note On occured on at least one channel
-		// during the corresponding tick
-		for (int i = 0; i < note_attack_tick_map.length; i++)
-		{
-			for (int j = 0; j < note_attack_tick_map[i].length - 1; j++)
-			{
-				if (note_attack_tick_map[i][j])
-				{
-					note_attack_tick_map[i][16] = true;
-					j = note_attack_tick_map[i].length; // exit loop
-				}
-			}
-		}
+		// Fill in entry 16 of attack_ticks to show if a Note On occured on at least one channel during the
+		// corresponding tick
+		for (int i = 0; i < attack_ticks.length - 1; i++)
+			attack_ticks[16].or(attack_ticks[i]);
+
+		// Fill in note_attack_ticks
+		note_attack_ticks = new TickSet[attack_ticks.length];
+		for (int i = 0; i < note_attack_ticks.length; i++)
+			note_attack_ticks[i] = new TickSet(attack_ticks[i], (int) sequence.getTickLength() + 1);
 	}
 
 	
@@ -1749,21 +1952,24 @@ public class MIDIIntermediateRepresentations
 
 	
 	/**
-	 * Calculate the values of the pitch_bends_list field.
+	 * Calculate the values of the pitch_bends_by_note and pitch_bends_list fields.
 	 */
 	private void generatePitchBendsList()
 	{
-		// The list of lists of pitch bends
-		pitch_bends_list = new LinkedList<>();
-
-		// The lists of pitch bends for the most recently found note on each channel. An entry will be null
-		// unless a pitch bend message has been received on the given channel since the last Note Off on that
-		// channel
-		LinkedList going[] = new LinkedList[16];
+		// All pitch bend values in the order that they occurred, the note (as an index of
+		// pitch_bends_by_note) that each belongs to, and the number of notes found
+		IntArrayList pitch_bend_values = new IntArrayList();
+		IntArrayList note_of_each_pitch_bend = new IntArrayList();
+		int number_of_notes = 0;
+
+		// The note (as an index of pitch_bends_by_note) that pitch bends on each channel currently belong
+		// to. An entry will be -1 unless a pitch bend message has been received on the given channel since
+		// the last Note Off on that channel
+		int going[] = new int[16];
 		for (int i = 0; i < going.length; i++)
-			going[i] = null;
+			going[i] = -1;
 
-		// Fill pitch_bends_list
+		// Find the pitch bends of each note
 		for (int n_track = 0; n_track < tracks.length; n_track++)
 		{
 			Track track = tracks[n_track];
@@ -1781,59 +1987,78 @@ public class MIDIIntermediateRepresentations
 						{
 							int pitch_bend_value = short_message.getData2();
 							
-							// If a pitch bend has already been given for this note
-							if (going[short_message.getChannel()] != null)
-								going[short_message.getChannel()].add(pitch_bend_value);
-
 							// If a pitch bend has not already been given for this note
-							else
-							{
-								LinkedList this_note = new LinkedList();
-								this_note.add(pitch_bend_value);
-								pitch_bends_list.add(this_note);
+							if (going[short_message.getChannel()] == -1)
+								going[short_message.getChannel()] = number_of_notes++;
 
-								going[short_message.getChannel()] = this_note;
-							}
+							pitch_bend_values.add(pitch_bend_value);
+							note_of_each_pitch_bend.add(going[short_message.getChannel()]);
 						}
 
 						// If message is a Note Off
 						else if (short_message.getCommand() == 0x80) // note off
-							going[short_message.getChannel()] = null;
+							going[short_message.getChannel()] = -1;
 						else if (short_message.getCommand() == 0x90) // note on with velocity 0
 						{
 							if (short_message.getData2() == 0) // velocity 0
-								going[short_message.getChannel()] = null;
+								going[short_message.getChannel()] = -1;
 						}
 					}
 				}
 			}
 		}
+
+		// Find where the pitch bends of each note start when they are grouped by note
+		int[] first_pitch_bend_of_note = new int[number_of_notes + 1];
+		for (int i = 0; i < note_of_each_pitch_bend.size(); i++)
+			first_pitch_bend_of_note[note_of_each_pitch_bend.get(i) + 1]++;
+		for (int note = 0; note < number_of_notes; note++)
+			first_pitch_bend_of_note[note + 1] += first_pitch_bend_of_note[note];
+
+		// Group the pitch bends by note, keeping the order in which they occurred, and give each note a
+		// slice of the grouped pitch bends
+		int[] grouped_pitch_bend_values = new int[pitch_bend_values.size()];
+		int[] next_pitch_bend_of_note = Arrays.copyOf(first_pitch_bend_of_note, number_of_notes);
+		for (int i = 0; i < pitch_bend_values.size(); i++)
+			grouped_pitch_bend_values[next_pitch_bend_of_note[note_of_each_pitch_bend.get(i)]++] = pitch_bend_values.get(i);
+		IntArrayList all_pitch_bends = new IntArrayList(grouped_pitch_bend_values);
+		pitch_bends_by_note = new IntArrayList[number_of_notes];
+		for (int note = 0; note < number_of_notes; note++)
+			pitch_bends_by_note[note] = all_pitch_bends.slice(first_pitch_bend_of_note[note], first_pitch_bend_of_note[note + 1]);
+		pitch_bends_list = IntArrayList.asList(pitch_bends_by_note);
 	}
 
 	
 	/**
-	 * Calculate the values of the melodic_interval_histogram and melodic_intervals_by_track_and_channel
-	 * fields.
+	 * Calculate the values of the melodic_interval_histogram, melodic_interval_sequences_by_track_and_channel
+	 * and melodic_intervals_by_track_and_channel fields.
 	 */
 	private void generateMelodicIntermediateRepresentations()
 	{
-		// Initialize the melodic_intervals_by_track_and_channel field
-		melodic_intervals_by_track_and_channel = new LinkedList<>();
+		// Initialize the melodic_interval_sequences_by_track_and_channel and
+		// melodic_intervals_by_track_and_channel fields
+		melodic_interval_sequences_by_track_and_channel = new IntArrayList[tracks.length][];
+		melodic_intervals_by_track_and_channel = new ArrayList<>(tracks.length);
 				
 		// Initialize melodic_interval_histogram
 		melodic_interval_histogram = new double[128];
 		for (int i = 0; i < melodic_interval_histogram.length; i++)
 			melodic_interval_histogram[i] = 0.0;
 
-		// Fill melodic_interval_histogram and melodic_intervals_by_track_and_channel
+		// Fill melodic_interval_histogram and melodic_interval_sequences_by_track_and_channel
 		for (int n_track = 0; n_track < tracks.length; n_track++)
 		{
-			// Prepare melodic_intervals_by_channel for this track, and add it to
-			// melodic_intervals_by_track_and_channel
-			LinkedList<Integer>[] melodic_intervals_by_channel = new LinkedList[16];
+			// Prepare melodic_intervals_by_channel for this track, and add it and its read-only view to
+			// melodic_interval_sequences_by_track_and_channel and melodic_intervals_by_track_and_channel
+			IntArrayList[] melodic_intervals_by_channel = new IntArrayList[16];
+			List<Integer>[] melodic_interval_views_by_channel = new List[16];
 			for (int i = 0; i < melodic_intervals_by_channel.length; i++)
-				melodic_intervals_by_channel[i] = new LinkedList<>();
-			melodic_intervals_by_track_and_channel.add(melodic_intervals_by_channel);
+			{
+				melodic_intervals_by_channel[i] = new IntArrayList();
+				melodic_interval_views_by_channel[i] = melodic_intervals_by_channel[i].asList();
+			}
+			melodic_interval_sequences_by_track_and_channel[n_track] = melodic_intervals_by_channel;
+			melodic_intervals_by_track_and_channel.add(melodic_interval_views_by_channel);
 
 			// The last MIDI pitch encountered on each channel
 			// -1 means none was encountered yet
@@ -1891,8 +2116,8 @@ public class MIDIIntermediateRepresentations
 
 	/**
 	 * Calculate the values of the channel_statistics, number_of_active_voices,
-	 * total_time_notes_sounding_per_channel, list_of_note_on_pitches_by_channel and 
-	 * note_sounding_on_a_channel_tick_map fields.
+	 * total_time_notes_sounding_per_channel, note_on_pitches_by_channel,
+	 * list_of_note_on_pitches_by_channel and note_sounding_on_a_channel_ticks fields.
 	 */
 	private void generateChannelNoteOnIntermediateRepresentations()
 	{
@@ -1902,16 +2127,18 @@ public class MIDIIntermediateRepresentations
 			for (int j = 0; j < channel_statistics[i].length; j++)
 				channel_statistics[i][j] = 0;
 
-		// Instantiate list_of_note_on_pitches_by_channel with one empty list per channel
-		list_of_note_on_pitches_by_channel = new ArrayList<>(16);
+		// Instantiate note_on_pitches_by_channel with one empty list per channel, and
+		// list_of_note_on_pitches_by_channel as a read-only view of them
+		note_on_pitches_by_channel = new IntArrayList[16];
 		for (int channel = 0; channel < 16; channel++)
-			list_of_note_on_pitches_by_channel.add(new ArrayList<>());
+			note_on_pitches_by_channel[channel] = new IntArrayList();
+		list_of_note_on_pitches_by_channel = IntArrayList.asList(note_on_pitches_by_channel);
 
-		// Instantiate note_sounding_on_a_channel_tick_map and initialize entries to false
-		note_sounding_on_a_channel_tick_map = new boolean[(int) sequence.getTickLength() + 1][16];
-		for (int i = 0; i < note_sounding_on_a_channel_tick_map.length; i++)
-			for (int j = 0; j < note_sounding_on_a_channel_tick_map[i].length; j++)
-				note_sounding_on_a_channel_tick_map[i][j] = false;
+		// The ticks during which notes are sounding on each channel, collected before being stored in
+		// note_sounding_on_a_channel_ticks
+		BitSet[] sounding_ticks_by_channel = new BitSet[16];
+		for (int i = 0; i < sounding_ticks_by_channel.length; i++)
+			sounding_ticks_by_channel[i] = new BitSet();
 
 		// Last MIDI tick on which a Note On was encountered, by channel, initialized to -1 for none
 		int[] tick_of_last_note_on = new int[16];
@@ -1969,8 +2196,8 @@ public class MIDIIntermediateRepresentations
 						// Update values based on this Note On
 						if (on_velocity != 0) // Not velocity 0
 						{
-							// Add the pitch of this note to list_of_note_on_pitches_by_channel
-							list_of_note_on_pitches_by_channel.get(on_channel).add(on_pitch);
+							// Add the pitch of this note to note_on_pitches_by_channel
+							note_on_pitches_by_channel[on_channel].add(on_pitch);
 
 							// Update the total number of Note Ons
 							channel_statistics[on_channel][0]++;
@@ -2036,24 +2263,28 @@ public class MIDIIntermediateRepresentations
 								}
 							}
 
-							// Fill in note_sounding_on_a_channel_tick_map for all the ticks corresponding to this note
-							for (int i = on_tick; i < end_tick; i++)
-								note_sounding_on_a_channel_tick_map[i][on_channel] = true;
+							// Fill in sounding_ticks_by_channel for all the ticks corresponding to this note
+							if (end_tick > on_tick)
+								sounding_ticks_by_channel[on_channel].set(on_tick, end_tick);
 						}
 					}
 				}
 			}
 		}
 
+		// Fill in note_sounding_on_a_channel_ticks
+		note_sounding_on_a_channel_ticks = new TickSet[sounding_ticks_by_channel.length];
+		for (int i = 0; i < note_sounding_on_a_channel_ticks.length; i++)
+			note_sounding_on_a_channel_ticks[i] = new TickSet(sounding_ticks_by_channel[i], (int) sequence.getTickLength() + 1);
+
 		// Fill column 1 of channel_statistics by finding the total amount of time that one or more notes were
 		// playing on each channel
 		total_time_notes_sounding_per_channel = new double[channel_statistics.length];
 		for (int ch = 0; ch < total_time_notes_sounding_per_channel.length; ch++)
 			total_time_notes_sounding_per_channel[ch] = 0.0;
-		for (int ti = 0; ti < note_sounding_on_a_channel_tick_map.length; ti++)
-			for (int ch = 0; ch < note_sounding_on_a_channel_tick_map[ti].length; ch++)
-				if (note_sounding_on_a_channel_tick_map[ti][ch])
-					total_time_notes_sounding_per_channel[ch] += duration_of_ticks_in_seconds[ti];
+		for (int ch = 0; ch < sounding_ticks_by_channel.length; ch++)
+			for (int ti = sounding_ticks_by_channel[ch].nextSetBit(0); ti != -1; ti = sounding_ticks_by_channel[ch].nextSetBit(ti + 1))
+				total_time_notes_sounding_per_channel[ch] += duration_of_ticks_in_seconds[ti];
 		for (int ch = 0; ch < channel_statistics.length; ch++)
 			channel_statistics[ch][1] = (int) total_time_notes_sounding_per_channel[ch];
 
@@ -2098,19 +2329,16 @@ public class MIDIIntermediateRepresentations
 	private void generatePitchAndPitchClaessesOfAllNoteOns()
 	{
 		List<NoteInfo> all_notes_in_piece = all_notes.getNoteList();
-		List<Short> list_of_midi_pitches_of_all_notes_in_piece = new ArrayList<>();
+		ShortArrayList list_of_midi_pitches_of_all_notes_in_piece = new ShortArrayList(all_notes_in_piece.size());
 		for (NoteInfo this_note : all_notes_in_piece)
 			if (this_note.getChannel() != 10 - 1) // Excluding Channel 10
 				list_of_midi_pitches_of_all_notes_in_piece.add((short) (this_note.getPitch()));
 
-		pitches_of_all_note_ons = new short[list_of_midi_pitches_of_all_notes_in_piece.size()];
-		pitch_classes_of_all_note_ons = new short[list_of_midi_pitches_of_all_notes_in_piece.size()];
+		pitches_of_all_note_ons = list_of_midi_pitches_of_all_notes_in_piece.toArray();
+		pitch_classes_of_all_note_ons = new short[pitches_of_all_note_ons.length];
 		for (int i = 0; i < pitch_classes_of_all_note_ons.length; i++)
 		{
-			short pitch = (short) list_of_midi_pitches_of_all_notes_in_piece.get(i);
-			pitches_of_all_note_ons[i] = pitch;
-			
-			short pitch_class = (short) (pitch % 12);
+			short pitch_class = (short) (pitches_of_all_note_ons[i] % 12);
 			pitch_classes_of_all_note_ons[i] = pitch_class;
 		}
 	}
@@ -2128,7 +2356,7 @@ public class MIDIIntermediateRepresentations
 		int candidate_midi_pitches = 128;
 
 		// Instantiate pitch_strength_by_tick_chart with 0 values
-		pitch_strength_by_tick_chart = new short[duration_in_ticks][candidate_midi_pitches];
+		pitch_strength_by_tick_chart = TickChart.createRectangular(duration_in_ticks, candidate_midi_pitches);
 
 		// Initialize total_vertical_unison_velocity
 		total_vertical_unison_velocity = 0;
@@ -2139,7 +2367,7 @@ public class MIDIIntermediateRepresentations
 		// 1 means on note is sounding at the given tick and pitch, a value of 2 means 2 notes are sounding 
 		// (and thus there is 1 unison), a value of 3 means 3 notes are sounding (and thus there are 2 
 		// unisons), etc. Instantiated with 0 values.
-		short[][] number_notes_sounding_by_tick_and_pitch_chart = new short[duration_in_ticks][candidate_midi_pitches];
+		TickChart number_notes_sounding_by_tick_and_pitch_chart = TickChart.createRectangular(duration_in_ticks, candidate_midi_pitches);
 
 		// Go through all MIDI events in all MIDI tracks, searching for Note On events. When a Note On is 
 		// found, fill in the pitch_strength_by_tick_chart based on it. Channel 10 (non-pitched) Note Ons are
@@ -2172,6 +2400,9 @@ public class MIDIIntermediateRepresentations
 				}
 			}
 		}
+
+		// Release the temporary file of number_notes_sounding_by_tick_and_pitch_chart if it is stored off-heap
+		number_notes_sounding_by_tick_and_pitch_chart.close();
 	}
 	
 	
@@ -2181,62 +2412,51 @@ public class MIDIIntermediateRepresentations
 	 */
 	private void generatePitchesAndPitchClassesPresentByTickExcludingRests()
 	{
-		// An ArrayList version of pitches_present_by_tick_excluding_rests
-		ArrayList<short[]> pitches_present_by_tick_excluding_rests_arli = new ArrayList<>();
-		
-		// An ArrayList version of pitch_classes_present_by_tick_excluding_rests
-		ArrayList<short[]> pitch_classes_present_by_tick_excluding_rests_arli = new ArrayList<>();
-		
-		// Fill in number_pitch_classes_by_tick tick by tick 
-		for (int tick = 0; tick < pitch_strength_by_tick_chart.length; tick++)
+		// The pitch strengths, pitches and pitch classes sounding on the tick under consideration
+		short[] pitch_strengths_this_tick = null;
+		short[] pitches_this_tick = new short[128];
+		short[] pitch_classes_this_tick = new short[12];
+
+		// Count the ticks that are not rests, and the pitches and pitch classes sounding on them, so that the
+		// charts can be created at their final size (and stored off-heap if they are very large)
+		int number_of_sounding_ticks = 0;
+		long total_number_of_pitches = 0;
+		long total_number_of_pitch_classes = 0;
+		for (int tick = 0; tick < pitch_strength_by_tick_chart.getNumberOfTicks(); tick++)
 		{
-			// Find the MIDI pitch numbers of all pitches found this tick
-			ArrayList<Short> pitches_this_tick = new ArrayList<>();
-			for (int pitch = 0; pitch < pitch_strength_by_tick_chart[tick].length; pitch++)
-				if (pitch_strength_by_tick_chart[tick][pitch] != 0)
-					pitches_this_tick.add((short) pitch);
-
-			// If not a rest
-			if (!pitches_this_tick.isEmpty())
+			pitch_strengths_this_tick = pitch_strength_by_tick_chart.getRow(tick, pitch_strengths_this_tick);
+			int number_of_pitches = findPitchesSounding(pitch_strengths_this_tick, pitches_this_tick);
+			if (number_of_pitches != 0)
 			{
-				// Store pitches present this tick
-				short[] these_pitches = new short[pitches_this_tick.size()];
-				for (int i = 0; i < these_pitches.length; i++)
-					these_pitches[i] = pitches_this_tick.get(i);
-				pitches_present_by_tick_excluding_rests_arli.add(these_pitches);
-				
-				// Store pitch classes present this tick
-				ArrayList<Short> pitch_classes_this_tick = new ArrayList<>();
-				for (int i = 0; i < these_pitches.length; i++)
-				{
-					short pitch_class = (short) (these_pitches[i] % 12);
-					if (i == 0)
-						pitch_classes_this_tick.add(pitch_class);
-					else
-					{
-						boolean repeated_pitch_class = false;
-						for (int j = 0; j < pitch_classes_this_tick.size(); j++)
-						{
-							if (pitch_classes_this_tick.get(j) == pitch_class)
-							{
-								repeated_pitch_class = true;
-								break;
-							}
-						}
-						if (!repeated_pitch_class)
-							pitch_classes_this_tick.add(pitch_class);
-					}
-				}
-				short[] these_pitch_classes = new short[pitch_classes_this_tick.size()];
-				for (int i = 0; i < these_pitch_classes.length; i++)
-					these_pitch_classes[i] = pitch_classes_this_tick.get(i);
-				pitch_classes_present_by_tick_excluding_rests_arli.add(these_pitch_classes);
+				number_of_sounding_ticks++;
+				total_number_of_pitches += number_of_pitches;
+				total_number_of_pitch_classes += findPitchClassesSounding(pitches_this_tick, number_of_pitches, pitch_classes_this_tick);
 			}
 		}
+		pitches_present_by_tick_excluding_rests = TickChart.createRagged(number_of_sounding_ticks, total_number_of_pitches);
+		pitch_classes_present_by_tick_excluding_rests = TickChart.createRagged(number_of_sounding_ticks, total_number_of_pitch_classes);
 
-		// Convert ArrayLists to arrays
-		pitches_present_by_tick_excluding_rests = pitches_present_by_tick_excluding_rests_arli.toArray(new short[pitches_present_by_tick_excluding_rests_arli.size()][]);
-		pitch_classes_present_by_tick_excluding_rests = pitch_classes_present_by_tick_excluding_rests_arli.toArray(new short[pitch_classes_present_by_tick_excluding_rests_arli.size()][]);
+		// Store the pitches and pitch classes present on each tick that is not a rest
+		for (int tick = 0; tick < pitch_strength_by_tick_chart.getNumberOfTicks(); tick++)
+		{
+			pitch_strengths_this_tick = pitch_strength_by_tick_chart.getRow(tick, pitch_strengths_this_tick);
+			int number_of_pitches = findPitchesSounding(pitch_strengths_this_tick, pitches_this_tick);
+			if (number_of_pitches != 0)
+			{
+				int number_of_pitch_classes = findPitchClassesSounding(pitches_this_tick, number_of_pitches, pitch_classes_this_tick);
+				pitches_present_by_tick_excluding_rests.appendRow(Arrays.copyOf(pitches_this_tick, number_of_pitches));
+				pitch_classes_present_by_tick_excluding_rests.appendRow(Arrays.copyOf(pitch_classes_this_tick, number_of_pitch_classes));
+			}
+		}
+	}
+
+	
+	/**
+	 * Calculate the value of the vertical_interval_statistics field.
+	 */
+	private void generateVerticalIntervalStatistics()
+	{
+		vertical_interval_statistics = new VerticalIntervalStatistics(pitch_strength_by_tick_chart, total_vertical_unison_velocity);
 	}
 
 	
@@ -2267,22 +2487,22 @@ public class MIDIIntermediateRepresentations
 		short[] current_pitches = null;
 		
 		// Iterate through all ticks on which one or more pitches were sounding
-		for (int tick = 0; tick < pitches_present_by_tick_excluding_rests.length; tick++)
+		for (int tick = 0; tick < pitches_present_by_tick_excluding_rests.getNumberOfTicks(); tick++)
 		{
 			// Fill previous_pitches and move to the next tick if it has not been filled yet
 			if (previous_pitches == null || previous_pitches.length == 0)
 			{
-				previous_pitches = pitches_present_by_tick_excluding_rests[tick];
+				previous_pitches = pitches_present_by_tick_excluding_rests.getRow(tick);
 				continue;
 			}
 
 			// Update current_pitches and previous_pitches
 			if (current_pitches == null || current_pitches.length == 0)
-				current_pitches = pitches_present_by_tick_excluding_rests[tick];
+				current_pitches = pitches_present_by_tick_excluding_rests.getRow(tick);
 			else
 			{
 				previous_pitches = current_pitches;
-				current_pitches = pitches_present_by_tick_excluding_rests[tick];
+				current_pitches = pitches_present_by_tick_excluding_rests.getRow(tick);
 			}
 
 			// Output current_pitches for debugging
@@ -2297,14 +2517,14 @@ public class MIDIIntermediateRepresentations
 			if (previous_pitches.length != current_pitches.length)
 			{
 				boolean move_on = true;
-				if ( tick < (pitches_present_by_tick_excluding_rests.length - TICK_DELAY_TOLERANCE - 1) )
+				if ( tick < (pitches_present_by_tick_excluding_rests.getNumberOfTicks() - TICK_DELAY_TOLERANCE - 1) )
 				{
 					for (int look_ahead_tick = tick + 1; look_ahead_tick < (tick + TICK_DELAY_TOLERANCE); look_ahead_tick++)
 					{
-						if (pitches_present_by_tick_excluding_rests[look_ahead_tick].length == previous_pitches.length)
+						if (pitches_present_by_tick_excluding_rests.getRowLength(look_ahead_tick) == previous_pitches.length)
 						{
 							tick = look_ahead_tick;
-							current_pitches = pitches_present_by_tick_excluding_rests[look_ahead_tick];
+							current_pitches = pitches_present_by_tick_excluding_rests.getRow(look_ahead_tick);
 							move_on = false;
 							break;
 						}
@@ -2446,7 +2666,7 @@ public class MIDIIntermediateRepresentations
 		ArrayList<ArrayList<Double>> rest_dration_list = new ArrayList<>();
 
 		// The number of ticks to examine (the minus 1 is because Java doesn't count the last tick
-		int ticks_to_test = note_sounding_on_a_channel_tick_map.length - 1;
+		int ticks_to_test = note_sounding_on_a_channel_ticks[0].getNumberOfTicksSpanned() - 1;
 		
 		// Fill rest_dration_list channel by channel
 		for (int chan = 0; chan < non_empty_channels.length; chan++)
@@ -2454,12 +2674,14 @@ public class MIDIIntermediateRepresentations
 			if (non_empty_channels[chan])
 			{
 				// Note the amount of time during which there is a rest on each tick of this channel
-				double[] seconds_of_rest_per_tick = new double[ticks_to_test];
-				for (int tick = 0; tick < ticks_to_test; tick++)
+				double[] seconds_of_rest_per_tick = Arrays.copyOf(duration_of_ticks_in_seconds, ticks_to_test);
+				TickSet sounding_ticks = note_sounding_on_a_channel_ticks[chan];
+				int start = sounding_ticks.nextTick(0);
+				while (start != -1 && start < ticks_to_test)
 				{
-					if (!note_sounding_on_a_channel_tick_map[tick][chan])
-						seconds_of_rest_per_tick[tick] = duration_of_ticks_in_seconds[tick];
-					else seconds_of_rest_per_tick[tick] = 0.0;
+					int end = sounding_ticks.nextTickNotInSet(start);
+					Arrays.fill(seconds_of_rest_per_tick, start, Math.min(end, ticks_to_test), 0.0);
+					start = sounding_ticks.nextTick(end);
 				}
 				
 				// Find the duration of each rest in this channel (combined across ticks)
@@ -2516,13 +2738,15 @@ public class MIDIIntermediateRepresentations
 		ArrayList<Double> complete_rest_durations_list = new ArrayList();
 		
 		// The number of ticks to examine (the minus 1 is because Java doesn't count the last tick
-		int ticks_to_test = note_sounding_on_a_channel_tick_map.length - 1;
+		int ticks_to_test = note_sounding_on_a_channel_ticks[0].getNumberOfTicksSpanned() - 1;
 
 		// Note the amount of time during which there is a complete rest on each tick
 		double[] seconds_of_rest_per_tick = new double[ticks_to_test];
+		short[] pitch_strengths = null;
 		for (int tick = 0; tick < ticks_to_test; tick++)
 		{
-			if (ArrayMethods.doesArrayContainOnlyThisValue(pitch_strength_by_tick_chart[tick], 0))
+			pitch_strengths = pitch_strength_by_tick_chart.getRow(tick, pitch_strengths);
+			if (ArrayMethods.doesArrayContainOnlyThisValue(pitch_strengths, 0))
 				seconds_of_rest_per_tick[tick] = duration_of_ticks_in_seconds[tick];
 			else seconds_of_rest_per_tick[tick] = 0.0;
 		}
@@ -2604,6 +2828,51 @@ public class MIDIIntermediateRepresentations
 		// Default to the total number of ticks if the note off is not found
 		return (int) track.ticks();
 	}
+
+
+	/**
+	 * Find the MIDI pitches sounding on a tick.
+	 *
+	 * @param pitch_strengths	The row of a pitch_strength_by_tick_chart for the tick.
+	 * @param pitches_to_fill	An array of at least 128 entries, whose first entries are filled with the
+	 *							MIDI pitches sounding, from lowest to highest.
+	 * @return					The number of pitches sounding (0 if the tick is a rest).
+	 */
+	private static int findPitchesSounding(short[] pitch_strengths, short[] pitches_to_fill)
+	{
+		int number_of_pitches = 0;
+		for (int pitch = 0; pitch < pitch_strengths.length; pitch++)
+			if (pitch_strengths[pitch] != 0)
+				pitches_to_fill[number_of_pitches++] = (short) pitch;
+		return number_of_pitches;
+	}
+
+
+	/**
+	 * Find the pitch classes of the given MIDI pitches.
+	 *
+	 * @param pitches					MIDI pitches, as found by findPitchesSounding.
+	 * @param number_of_pitches			The number of entries of pitches to use.
+	 * @param pitch_classes_to_fill		An array of at least 12 entries, whose first entries are filled with
+	 *									the different pitch classes of the pitches, in order of first
+	 *									occurrence.
+	 * @return							The number of different pitch classes.
+	 */
+	private static int findPitchClassesSounding(short[] pitches, int number_of_pitches, short[] pitch_classes_to_fill)
+	{
+		boolean[] pitch_class_found = new boolean[12];
+		int number_of_pitch_classes = 0;
+		for (int i = 0; i < number_of_pitches; i++)
+		{
+			short pitch_class = (short) (pitches[i] % 12);
+			if (!pitch_class_found[pitch_class])
+			{
+				pitch_class_found[pitch_class] = true;
+				pitch_classes_to_fill[number_of_pitch_classes++] = pitch_class;
+			}
+		}
+		return number_of_pitch_classes;
+	}
 	
 	
 	/**
@@ -2641,8 +2910,8 @@ public class MIDIIntermediateRepresentations
 													 int note_on_channel,
 													 int note_on_pitch,
 													 int note_on_velocity,
-													 short[][] number_notes_sounding_by_tick_and_pitch_chart,
-													 short[][] pitch_strength_by_tick_chart_to_fill,
+													 TickChart number_notes_sounding_by_tick_and_pitch_chart,
+													 TickChart pitch_strength_by_tick_chart_to_fill,
 													 int total_vertical_unison_velocity_so_far)
 	{
 		for (int n_event = note_on_event_index; n_event < midi_track.size(); n_event++)
@@ -2666,20 +2935,18 @@ public class MIDIIntermediateRepresentations
 						for (int tick = note_on_tick; tick < note_off_tick; tick++)
 						{
 							// Update total_vertical_unison_velocity_so_far
-							if (number_notes_sounding_by_tick_and_pitch_chart[tick][note_on_pitch] > 0)
-							{
-								int number_previously_detected_notes_at_this_pitch = number_notes_sounding_by_tick_and_pitch_chart[tick][note_on_pitch];
-								if (number_previously_detected_notes_at_this_pitch == 1)
-									total_vertical_unison_velocity_so_far += pitch_strength_by_tick_chart_to_fill[tick][note_on_pitch] + note_on_velocity;
-								else if (number_previously_detected_notes_at_this_pitch > 1)
-									total_vertical_unison_velocity_so_far += note_on_velocity;
-							}
+							int number_previously_detected_notes_at_this_pitch = number_notes_sounding_by_tick_and_pitch_chart.get(tick, note_on_pitch);
+							short previous_pitch_strength = pitch_strength_by_tick_chart_to_fill.get(tick, note_on_pitch);
+							if (number_previously_detected_notes_at_this_pitch == 1)
+								total_vertical_unison_velocity_so_far += previous_pitch_strength + note_on_velocity;
+							else if (number_previously_detected_notes_at_this_pitch > 1)
+								total_vertical_unison_velocity_so_far += note_on_velocity;
 
 							// Update number_notes_sounding_by_tick_and_pitch_chart
-							number_notes_sounding_by_tick_and_pitch_chart[tick][note_on_pitch]++;
+							number_notes_sounding_by_tick_and_pitch_chart.set(tick, note_on_pitch, (short) (number_previously_detected_notes_at_this_pitch + 1));
 
 							// Update pitch_strength_by_tick_chart_to_fill
-							pitch_strength_by_tick_chart_to_fill[tick][note_on_pitch] += note_on_velocity;
+							pitch_strength_by_tick_chart_to_fill.set(tick, note_on_pitch, (short) (previous_pitch_strength + note_on_velocity));
 						}
 
 						// Stop looping through MIDI events, since the appropriate Note Off has been
@@ -2,14 +2,23 @@ package jsymbolic2.processing;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
-import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.sound.midi.*;
 import mckay.utilities.staticlibraries.StringMethods;
 import mckay.utilities.staticlibraries.MathAndStatsMethods;
-import jsymbolic2.featureutils.CollectedNoteInfo;
-import jsymbolic2.featureutils.NoteInfo;
 
 /**
  * A class for preparing reports on the contents of a MIDI or MEI file (MEI files are converted to MIDI as
@@ -17,12 +26,67 @@ import jsymbolic2.featureutils.NoteInfo;
  * are instantiated with a reference to a single input MIDI or MEI file, which is then parsed by the
  * constructor. Reports about the MIDI file (or MEI file) and its contents may then be generated by calling
  * the object's various methods. Intraconsistency and interconsistency reports can also be generated about one
- * or more files via the static prepareConsistencyReports method.
+ * or more files via the static prepareConsistencyReports and writeConsistencyReports methods.
  *
  * @author Cory McKay
  */
 public class MIDIReporter
 {
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The headings under which each quantity checked by consistency reports is reported, and the names by
+	 * which inconsistencies in them are identified. The index of each quantity is given by the *_quantity
+	 * fields below.
+	 */
+	private static final String[] consistency_quantity_headings = { "NUMBER OF VOICES",
+	                                                                "TEMPO",
+	                                                                "TIME SIGNATURE",
+	                                                                "KEY SIGNATURE",
+	                                                                "GENERAL MIDI PATCHES",
+	                                                                "UNPITCHED CHANNEL 10 NOTES",
+	                                                                "NOTE VELOCITIES",
+	                                                                "CHANNEL VOLUMES",
+	                                                                "PITCH BEND VALUES",
+	                                                                "MEDIAN RHYTHMIC OFFSET",
+	                                                                "RHYTHMIC OFFSET STDEV",
+	                                                                "DUPLICATED MIDI CHANNELS",
+	                                                                "MULTIPLEXED MIDI TRACKS AND CHANNELS",
+	                                                                "MIDI FILE TYPE" };
+	private static final String[] consistency_quantity_names = { "Number Of Voices",
+	                                                             "Tempo",
+	                                                             "Time Signature",
+	                                                             "Key Signature",
+	                                                             "General MIDI Patches",
+	                                                             "Unpitched Channel 10 Notes",
+	                                                             "Note Velocities",
+	                                                             "Channel Volumes",
+	                                                             "Pitch Bend Values",
+	                                                             "Median Rhythmic Offset",
+	                                                             "Rhythmic Offset STDEV",
+	                                                             "Duplicated MIDI Channels",
+	                                                             "Multiplexed MIDI Tracks and Channels",
+	                                                             "MIDI File Type" };
+
+	/**
+	 * The indices of the quantities checked by consistency reports, in the order that they are reported.
+	 */
+	private static final int voices_quantity = 0;
+	private static final int tempo_quantity = 1;
+	private static final int time_signature_quantity = 2;
+	private static final int key_signature_quantity = 3;
+	private static final int general_midi_patch_quantity = 4;
+	private static final int channel_10_quantity = 5;
+	private static final int velocity_quantity = 6;
+	private static final int channel_volume_quantity = 7;
+	private static final int pitch_bend_quantity = 8;
+	private static final int median_rhythmic_offset_quantity = 9;
+	private static final int rhythmic_offset_stdev_quantity = 10;
+	private static final int duplicated_channels_quantity = 11;
+	private static final int multiplexed_track_channels_quantity = 12;
+	private static final int midi_file_type_quantity = 13;
+
 	/* PRIVATE FIELDS ***************************************************************************************/
 
 	
@@ -71,6 +135,12 @@ public class MIDIReporter
 	 * The number of MIDI tracks in sequence that contain at least one channel message.
 	 */
 	private int number_of_tracks_with_channel_messages;
+
+	/**
+	 * The formatter used by getBeatNumber, which is called for every message reported, to format beats to
+	 * three decimal places.
+	 */
+	private final DecimalFormat beat_formatter = new DecimalFormat("#.###");
 	
 	
 	/* CONSTRUCTOR ******************************************************************************************/
@@ -162,7 +232,9 @@ public class MIDIReporter
 	 * files_to_check. Intraconsistency looks at whether each given file has more than one value for a range
 	 * of quantities (e.g. more than one tempo, or more than one meter). Interconsistency looks at whether all
 	 * the files share the same value or values for each of the quantities (e.g. all files have the same
-	 * tempo, or the same set of tempos).
+	 * tempo, or the same set of tempos). The report is prepared as described for writeConsistencyReports,
+	 * which should be used instead where the report is to be written out, as it does not hold the report
+	 * for all files in memory.
 	 *
 	 * @param files_to_check			A set of MIDI or MEI file to report on. MEI files are converted to 
 	 *									MIDI as part of the parsing process.
@@ -183,327 +255,131 @@ public class MIDIReporter
 	                                                boolean verbose )
 		throws Exception
 	{
-		// The overall report to generate
-		StringBuilder report = new StringBuilder();
-		
-		// Parse each symbolic music file, checking that it is valid. Throw an exception if even one of them
-		// is not a valid MIDI or MEI file, or if a MID file uses SMPTE rather that PPQ timing.
-		MIDIReporter[] reporters = new MIDIReporter[files_to_check.length];
-		for (int i = 0; i < files_to_check.length; i++)
-			reporters[i] = new MIDIReporter(files_to_check[i]);
-				
-		// The unique values found in each file for each relevant type of MIDI message. Duplicate message
-		// values are removed (e.g. if multiple time signature message indicating time signature of 3/4 occur
-		// for a given file, 3/4 will still only be included once for that particular file). The first index
-		// indicates the file, and the second corresponds to the unique message. Values of null for a given
-		// file inidcate that there are no messages of the given type for that file.
-		String[][] unique_voices_found = new String[files_to_check.length][1];
-		String[][] unique_tempos_found = new String[files_to_check.length][];
-		String[][] unique_time_signatures_found = new String[files_to_check.length][];
-		String[][] unique_key_signatures_found = new String[files_to_check.length][];
-		String[][] unique_general_midi_patches_found = new String[files_to_check.length][];
-		String[][] is_channel_10_used = new String[files_to_check.length][1];
-		String[][] unique_velocities_found = new String[files_to_check.length][];
-		String[][] unique_channel_volumes_found = new String[files_to_check.length][];
-		String[][] unique_pitch_bend_values_found = new String[files_to_check.length][];
-		String[][] unique_median_rhythmic_offsets_found = new String[files_to_check.length][1];
-		String[][] unique_rhythmic_offsets_stdev_found = new String[files_to_check.length][1];
-		String[][] channels_duplicated_on_multiple_tracks = new String[files_to_check.length][];
-		String[][] unique_multiplexed_track_channels_found = new String[files_to_check.length][];
-		String[][] unique_mid_file_types_found = new String[files_to_check.length][1];
-		
-		// Go through each file one-by-one, noting all the relevant MIDI messages and their associated values
-		for (int file = 0; file < files_to_check.length; file++)
+		StringWriter report = new StringWriter();
+		writeConsistencyReports(files_to_check, check_files_individually, check_across_files, verbose, report);
+		return report.toString();
+	}
+
+
+	/**
+	 * Writes a formatted report on first the intaconsistency and then the interconsistency of
+	 * files_to_check to the given writer, in the same format as prepareConsistencyReports.
+	 *
+	 * <p>Files are parsed in parallel, and each is reduced to a compact ConsistencySummary of the unique
+	 * values it holds for each quantity as soon as it is parsed, after which its MIDI sequence is released.
+	 * The intraconsistency report on each file is written as soon as its summary is ready (in the order of
+	 * files_to_check), and its values are tallied into one ValueSetTally per quantity, which holds each
+	 * distinct value set only once, along with the indices of the files that have it. Memory use is thus
+	 * proportional to the number of distinct value sets (plus a few bytes per file), rather than to the
+	 * combined size of all the files.</p>
+	 *
+	 * @param files_to_check			A set of MIDI or MEI file to report on. MEI files are converted to 
+	 *									MIDI as part of the parsing process.
+	 * @param check_files_individually	Whether or not to report on intraconsistency.
+	 * @param check_across_files		Whether or not to report on interconsistency.
+	 * @param verbose					Whether to include in the report the actual values found (true), or 
+	 *									only whether they are consistent or vary (false).
+	 * @param report					The writer to write the report to. It is not flushed or closed.
+	 * @throws Exception				An informative exception is thrown if a problem is encountered during
+	 *									parsing, as described for prepareConsistencyReports, or if the report
+	 *									could not be written. The parts of the report on the files preceding
+	 *									the problematic file may already have been written.
+	 */
+	public static void writeConsistencyReports( File[] files_to_check,
+	                                            boolean check_files_individually,
+	                                            boolean check_across_files,
+	                                            boolean verbose,
+	                                            Writer report )
+		throws Exception
+	{
+		// The distinct value sets found so far for each quantity, across all files
+		ValueSetTally[] tallies = new ValueSetTally[consistency_quantity_headings.length];
+		for (int quantity = 0; quantity < tallies.length; quantity++)
+			tallies[quantity] = new ValueSetTally();
+
+		// The files with internal inconsistencies, and the inconsistences found in each, in file order. Used
+		// to generate the summary intraconsistency report.
+		ArrayList<Integer> internally_inconsistent_files = new ArrayList<>();
+		LinkedList<LinkedList<String>> inconsistencies_found = new LinkedList<>();
+
+		// Parse and summarize each symbolic music file in parallel, keeping a bounded number of files in
+		// progress at once, and process the summaries in file order. Throw an exception if even one of
+		// them is not a valid MIDI or MEI file, or if a MIDI file uses SMPTE rather that PPQ timing.
+		int number_of_threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService summarizing_threads = Executors.newFixedThreadPool(number_of_threads, runnable ->
 		{
-			// The MIDI tracks in this file
-			Track[] tracks = reporters[file].getMidiTracks();
-		
-			// Note the General MIDI patches referred to by program change messages in each track and channel,
-			// with repetition (at first, at least). Also note the total number of MIDI Note On messages
-			// (to help detect program change multiplexing on individual channels).
-			LinkedList<String>[][] patches_per_channel_per_track = new LinkedList[tracks.length][16];
-			long[][] note_on_count = new long[tracks.length][16];
-			for (int track = 0; track < patches_per_channel_per_track.length; track++)
-				for (int chan = 0; chan < patches_per_channel_per_track[track].length; chan++)
+			Thread thread = new Thread(runnable, "jSymbolic consistency report");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try
+		{
+			ArrayDeque<Future<ConsistencySummary>> summaries_in_progress = new ArrayDeque<>();
+			int next_file_to_submit = 0;
+			for (int file = 0; file < files_to_check.length; file++)
+			{
+				while ( next_file_to_submit < files_to_check.length &&
+				        summaries_in_progress.size() < 4 * number_of_threads )
 				{
-					patches_per_channel_per_track[track][chan] = new LinkedList<>();
-					note_on_count[track][chan] = 0;
+					File file_to_summarize = files_to_check[next_file_to_submit++];
+					summaries_in_progress.add(summarizing_threads.submit(() -> new ConsistencySummary(new MIDIReporter(file_to_summarize))));
 				}
-			
-			// Prepare lists to hold the values for each relevant type of MIDI message found in this file
-			LinkedList<String> tempo_values = new LinkedList<>();
-			LinkedList<String> time_signature_values = new LinkedList<>();
-			LinkedList<String> key_signature_values = new LinkedList<>();
-			LinkedList<String> general_midi_patch_values = new LinkedList<>();
-			LinkedList<String> channel_volume_values = new LinkedList<>();
-			LinkedList<String> velocity_values = new LinkedList<>();
-			LinkedList<String> pitch_bend_values = new LinkedList<>();
-			LinkedList<String> multiplexed_track_channels = new LinkedList<>();
-			
-			// Go through the MIDI tracks one by one
-			for (int tr = 0; tr < tracks.length; tr++)
-			{	
-				// Go through each MIDI event in this track
-				for (int ev = 0; ev < tracks[tr].size(); ev++)
-				{
-					// The MIDI message associated with this MIDI event
-					MidiMessage message = tracks[tr].get(ev).getMessage();
-					
-					// If this MIDI message is a MetaMessage
-					if (message instanceof MetaMessage)
-					{
-						// The data bytes of this MetaMessage
-						byte[] data = ((MetaMessage) message).getData();
-
-						// If this is a tempo meta-message, then note it
-						if (((MetaMessage) message).getType() == 0x51)
-						{
-							// Find tempo in microseconds per beat
-							int ms_tempo = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
-
-							// Convert to beats per minute
-							float ms_tempo_float = (float) ms_tempo;
-							if (ms_tempo_float <= 0) ms_tempo_float = 0.1f;
-							int tempo_bpm = (int) Math.round(60000000.0f / ms_tempo_float);
-
-							// Note the tempo
-							tempo_values.add((new Integer(tempo_bpm)).toString());
-						}
-						
-						// If this is a time signature meta-message, then note it
-						if (((MetaMessage) message).getType() == 0x58)
-						{
-							// The time signature numerator and denominator
-							int time_signature_numerator = (int) (data[0] & 0xFF);
-							int time_signature_denominator = (int) (1 << (data[1] & 0xFF));
-
-							// Note the time signature
-							time_signature_values.add(time_signature_numerator + "/" + time_signature_denominator);
-						}
-						
-						// If this is a key signature meta-message, then note it
-						if (((MetaMessage) message).getType() == 0x59)
-						{
-							// Interpret the key signature as major or minor
-							String key_signture_info;
-							if (data[1] == 0) key_signture_info = "Major with ";
-							else key_signture_info = "Minor with ";
-
-							// Interpret the key signature in terms of number of accidentals
-							int number_accidentals = data[0];
-							if (number_accidentals == 0)
-								key_signture_info += (number_accidentals + " accidentals");
-							else if (number_accidentals < 0)
-								key_signture_info += (-1 * number_accidentals + " flats");
-							else 
-								key_signture_info += (number_accidentals + " sharps");
-
-							// Note the key signature
-							key_signature_values.add(key_signture_info);
-						}
-					}
-					
-					// If this is a ShortMessage
-					if (message instanceof ShortMessage)
-					{
-						// This ShortMessage
-						ShortMessage short_message = (ShortMessage) message;
-
-						// This MIDI channel
-						int channel = short_message.getChannel();
-
-						// If this is a MIDI Program Change message
-						if (short_message.getCommand() == 0xc0)
-						{
-							// The General MIDI patch number for this program change message
-							int patch_number = short_message.getData1() + 1;
-
-							// Note the General MIDI patch
-							general_midi_patch_values.add((new Integer(patch_number)).toString());
-
-							// Note the patch in this particular track and channel
-							patches_per_channel_per_track[tr][channel].add((new Integer(patch_number)).toString());
-						}
-
-						// If this is a MIDI Channel Volume message
-						if (short_message.getCommand() == 0xb0 && short_message.getData1() == 7)
-						{
-							// The channel volume
-							long channel_volume = short_message.getData2();
-
-							// Note the channel volume
-							channel_volume_values.add((new Long(channel_volume)).toString());
-						}
-						
-						// If this is a non-terminal (i.e. has a non-zero velocity) MIDI Note On message
-						if (short_message.getCommand() == 0x90) // note on
-						{
-							if (short_message.getData2() != 0) // not velocity 0
-							{
-								// The velocity of this MIDI Note On
-								int velocity = short_message.getData2();
 
-								// Note the General MIDI patch
-								velocity_values.add((new Integer(velocity)).toString());
-								
-								// Count this note
-								note_on_count[tr][channel]++;
-							}
-						}
-
-						// If this ShortMessage is a MIDI Pitch Bend message
-						else if (short_message.getCommand() == 0xe0)
-						{
-							// The (second byte) value of the pitch bend (the less significant
-							// first byte is ignored)
-							int pitch_bend_value = short_message.getData2();
-
-							// Note the General MIDI patch
-							pitch_bend_values.add((new Integer(pitch_bend_value)).toString());
-						}						
-					}					
+				ConsistencySummary summary;
+				try { summary = summaries_in_progress.remove().get(); }
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
 				}
-			}
 
-			// Calculate and store the total number of voices found in the piece. Each channel on each track
-			// that contains at least one MIDI Note On is considered a separate voice. Also counts multiple
-			// voices found on a single track and channel (via MIDI Program Change multiplexing with different
-			// MIDI patches). If no General MIDI patch is specified for a given track and channel that 
-			// contains Note Ons, then that track and channel is counted as a single voice. The same channel
-			// used on multiple different tracks will be counted a multiple different voices. Also keep track
-			// separately of which track channels are multiplexed
-			long total_separate_voices_count = 0;
-			for (int track = 0; track < patches_per_channel_per_track.length; track++)
-				for (int chan = 0; chan < patches_per_channel_per_track[track].length; chan++)
+				// Prepare a formatted intraconsistency report for this file
+				if (check_files_individually)
 				{
-					if (note_on_count[track][chan] != 0)
+					LinkedList<String> inconsistencies_found_this_file = new LinkedList<>();
+					report.write("\n============ INTRACONSISTENCY REPORT FOR FILE " + (file+1) + "/" + files_to_check.length + " ============\n\n");
+					report.write("\tFILE NAME: " + files_to_check[file].getAbsolutePath() + "\n");
+					for (int quantity = 0; quantity < consistency_quantity_headings.length; quantity++)
+						report.write("\t" + consistency_quantity_headings[quantity] + ": " + getIntraConsistencyReport(summary.unique_values[quantity], verbose, consistency_quantity_names[quantity], inconsistencies_found_this_file) + "\n");
+					if (!inconsistencies_found_this_file.isEmpty())
 					{
-						// In case notes occur, but with the MIDI patch left unspecified
-						int multiplexed_voices_on_this_track_channel = 1; 
-					
-						// Find the number of unique General MIDI patches on this track an dchannel
-						String[] patches_this_channel_per_track_doubles_removed = StringMethods.getUniqueStrings(patches_per_channel_per_track[track][chan].toArray(new String[patches_per_channel_per_track[track][chan].size()]));
-						if ( patches_this_channel_per_track_doubles_removed != null &&
-							 patches_this_channel_per_track_doubles_removed.length != 0 )
-						{
-							multiplexed_voices_on_this_track_channel = patches_this_channel_per_track_doubles_removed.length;
-							if (multiplexed_voices_on_this_track_channel > 1)
-								multiplexed_track_channels.add("Track " + track + " Chan " + chan);
-						}
-						total_separate_voices_count += multiplexed_voices_on_this_track_channel;
+						internally_inconsistent_files.add(file);
+						inconsistencies_found.add(inconsistencies_found_this_file);
 					}
 				}
-			unique_voices_found[file][0] = (new Long(total_separate_voices_count)).toString();
-			if (!multiplexed_track_channels.isEmpty())
-				unique_multiplexed_track_channels_found[file] = multiplexed_track_channels.toArray(new String[multiplexed_track_channels.size()]);
-			else unique_multiplexed_track_channels_found[file] = null;
-			
-			// Report on whether there are any MIDI Channel 10 (unpitched) notes played
-			is_channel_10_used[file][0] = "Not present in file";
-			for (boolean[] channels_on_this_track : reporters[file].getActiveChannelsPerTrack())
-				if (channels_on_this_track[10-1])
-					is_channel_10_used[file][0] = "Present";
-			
-			// Do rhythmic value offset processing
-			double[] rhythmic_value_offsets = getRhytmicValueOffsets(reporters[file].getMidiSequence());
-			double median_rhthymic_value_offset = MathAndStatsMethods.getMedianValue(rhythmic_value_offsets);
-			double rhthymic_value_offset_stdev = MathAndStatsMethods.getStandardDeviation(rhythmic_value_offsets);
-			DecimalFormat formatter = new java.text.DecimalFormat("#.###");
-			unique_median_rhythmic_offsets_found[file][0] = formatter.format(median_rhthymic_value_offset);
-			unique_rhythmic_offsets_stdev_found[file][0] = formatter.format(rhthymic_value_offset_stdev);
-			
-			// Report on whether any MIDI tracks include MIDI channel messages on a MIDI channel that also
-			// has MIDI channel messages on the same channel on another MIDI track
-			LinkedList<String> chans_duplicated_on_multiple_tracks = new LinkedList<>();
-			LinkedList<Integer>[] tracks_using_each_channel = new LinkedList[16];
-			for (int ch = 0; ch < tracks_using_each_channel.length; ch++)
-				tracks_using_each_channel[ch] = new LinkedList<>();
-			boolean[][] active_channels_per_track = reporters[file].getActiveChannelsPerTrack();
-			for (int tr = 0; tr < active_channels_per_track.length; tr++)
-				for (int ch = 0; ch < active_channels_per_track[tr].length; ch++)
-					if (active_channels_per_track[tr][ch])
-						tracks_using_each_channel[ch].add(tr);
-			for (int ch = 0; ch < tracks_using_each_channel.length; ch++)
-				if (tracks_using_each_channel[ch].size() > 1)
-					chans_duplicated_on_multiple_tracks.add((new Integer(ch)).toString());
-			if (!chans_duplicated_on_multiple_tracks.isEmpty())
-				channels_duplicated_on_multiple_tracks[file] = chans_duplicated_on_multiple_tracks.toArray(new String[chans_duplicated_on_multiple_tracks.size()]);
-			else channels_duplicated_on_multiple_tracks[file] = null;
-					
-			// Store the MIDI file type of this file
-			MidiFileFormat this_midi_file_format = reporters[file].getMidiFileFormat();
-			if (this_midi_file_format == null)
-				unique_mid_file_types_found[file][0] = "MEI (translated into MIDI for this report)";
-			else
-				unique_mid_file_types_found[file][0] = Integer.toString(this_midi_file_format.getType());
-			
-			// Store the MIDI message values found for this file, removing duplicates
-			unique_tempos_found[file] = StringMethods.getUniqueStrings(tempo_values.toArray(new String[tempo_values.size()]));
-			unique_time_signatures_found[file] = StringMethods.getUniqueStrings(time_signature_values.toArray(new String[time_signature_values.size()]));
-			unique_key_signatures_found[file] = StringMethods.getUniqueStrings(key_signature_values.toArray(new String[key_signature_values.size()]));
-			unique_general_midi_patches_found[file] = StringMethods.getUniqueStrings(general_midi_patch_values.toArray(new String[general_midi_patch_values.size()]));
-			unique_channel_volumes_found[file] = StringMethods.getUniqueStrings(channel_volume_values.toArray(new String[channel_volume_values.size()]));
-			unique_velocities_found[file] = StringMethods.getUniqueStrings(velocity_values.toArray(new String[velocity_values.size()]));
-			unique_pitch_bend_values_found[file] = StringMethods.getUniqueStrings(pitch_bend_values.toArray(new String[pitch_bend_values.size()]));
+
+				// Note the value sets of this file
+				if (check_across_files)
+					for (int quantity = 0; quantity < tallies.length; quantity++)
+						tallies[quantity].add(summary.unique_values[quantity], file);
+			}
+		}
+		finally
+		{
+			summarizing_threads.shutdownNow();
 		}
 
-		// Prepare intraconsistency reports for individual files
+		// Prepare summary intraconsistency report
 		if (check_files_individually)
 		{
-			// Lists of inconsistences found for each file. The file is denoted by the array's index. Used
-			// to generate the summary report
-			LinkedList<String>[] inconsistencies_found = new LinkedList[files_to_check.length];
-			for (int i = 0; i < inconsistencies_found.length; i++)
-				inconsistencies_found[i] = new LinkedList<>();
-
-			// Prepare a formatted intraconsistency report for each individual file
-			for (int file = 0; file < files_to_check.length; file++)
-			{
-				report.append("\n============ INTRACONSISTENCY REPORT FOR FILE " + (file+1) + "/" + files_to_check.length + " ============\n\n");
-				report.append("\tFILE NAME: " + files_to_check[file].getAbsolutePath() + "\n");
-				report.append("\tNUMBER OF VOICES: " + getIntraConsistencyReport(unique_voices_found[file], verbose, "Number Of Voices", inconsistencies_found[file]) + "\n");
-				report.append("\tTEMPO: " + getIntraConsistencyReport(unique_tempos_found[file], verbose, "Tempo", inconsistencies_found[file]) + "\n");
-				report.append("\tTIME SIGNATURE: " + getIntraConsistencyReport(unique_time_signatures_found[file], verbose, "Time Signature", inconsistencies_found[file]) + "\n");
-				report.append("\tKEY SIGNATURE: " + getIntraConsistencyReport(unique_key_signatures_found[file], verbose, "Key Signature", inconsistencies_found[file]) + "\n");
-				report.append("\tGENERAL MIDI PATCHES: " + getIntraConsistencyReport(unique_general_midi_patches_found[file], verbose, "General MIDI Patches", inconsistencies_found[file]) + "\n");
-				report.append("\tUNPITCHED CHANNEL 10 NOTES: " + getIntraConsistencyReport(is_channel_10_used[file], verbose, "Unpitched Channel 10 Notes", inconsistencies_found[file]) + "\n");
-				report.append("\tNOTE VELOCITIES: " + getIntraConsistencyReport(unique_velocities_found[file], verbose, "Note Velocities", inconsistencies_found[file]) + "\n");
-				report.append("\tCHANNEL VOLUMES: " + getIntraConsistencyReport(unique_channel_volumes_found[file], verbose, "Channel Volumes", inconsistencies_found[file]) + "\n");
-				report.append("\tPITCH BEND VALUES: " + getIntraConsistencyReport(unique_pitch_bend_values_found[file], verbose, "Pitch Bend Values", inconsistencies_found[file]) + "\n");
-				report.append("\tMEDIAN RHYTHMIC OFFSET: " + getIntraConsistencyReport(unique_median_rhythmic_offsets_found[file], verbose, "Median Rhythmic Offset", inconsistencies_found[file]) + "\n");
-				report.append("\tRHYTHMIC OFFSET STDEV: " + getIntraConsistencyReport(unique_rhythmic_offsets_stdev_found[file], verbose, "Rhythmic Offset STDEV", inconsistencies_found[file]) + "\n");
-				report.append("\tDUPLICATED MIDI CHANNELS: " + getIntraConsistencyReport(channels_duplicated_on_multiple_tracks[file], verbose, "Duplicated MIDI Channels", inconsistencies_found[file]) + "\n");
-				report.append("\tMULTIPLEXED MIDI TRACKS AND CHANNELS: " + getIntraConsistencyReport(unique_multiplexed_track_channels_found[file], verbose, "Multiplexed MIDI Tracks and Channels", inconsistencies_found[file]) + "\n");
-				report.append("\tMIDI FILE TYPE: " + getIntraConsistencyReport(unique_mid_file_types_found[file], verbose, "MIDI File Type", inconsistencies_found[file]) + "\n");
-			}
-			report.append("\n");
-
-			// Prepare summary intraconsistency report
+			report.write("\n");
 			if (files_to_check.length > 1)
 			{
-				report.append("************ SUMMARY FILE INTRACONSISTENCY REPORT ************\n\n");
-
-				int number_of_files_with_internal_inconsistencies = 0;
-				for (int file = 0; file < files_to_check.length; file++)
-					if (!inconsistencies_found[file].isEmpty())
-						number_of_files_with_internal_inconsistencies++;
-				
-				report.append("\tNUMBER OF FILES WITH INTERNAL INCONSISTENCES: " + number_of_files_with_internal_inconsistencies + "\n");
-				
+				report.write("************ SUMMARY FILE INTRACONSISTENCY REPORT ************\n\n");
+				report.write("\tNUMBER OF FILES WITH INTERNAL INCONSISTENCES: " + internally_inconsistent_files.size() + "\n");
 				int processed_so_far = 0;
-				for (int file = 0; file < files_to_check.length; file++)
+				for (LinkedList<String> inconsistencies_found_this_file : inconsistencies_found)
 				{
-					if (!inconsistencies_found[file].isEmpty())
-					{
-						processed_so_far++;
-						report.append( "\n\tInternally inconsistent file " + processed_so_far + "/" + 
-						               number_of_files_with_internal_inconsistencies + ": " + 
-						               files_to_check[file].getAbsolutePath() + "\n" );
-						for (int inc = 0; inc < inconsistencies_found[file].size(); inc++)
-							report.append( "\t\tInconsistency " + (inc+1) + "/" + 
-							               inconsistencies_found[file].size() + ": " +
-							               inconsistencies_found[file].get(inc) + "\n" );
-					}
+					int file = internally_inconsistent_files.get(processed_so_far);
+					processed_so_far++;
+					report.write( "\n\tInternally inconsistent file " + processed_so_far + "/" + 
+					              internally_inconsistent_files.size() + ": " + 
+					              files_to_check[file].getAbsolutePath() + "\n" );
+					for (int inc = 0; inc < inconsistencies_found_this_file.size(); inc++)
+						report.write( "\t\tInconsistency " + (inc+1) + "/" + 
+						              inconsistencies_found_this_file.size() + ": " +
+						              inconsistencies_found_this_file.get(inc) + "\n" );
 				}
 			}
 		}
@@ -511,26 +387,11 @@ public class MIDIReporter
 		// Prepare an interconsistency reports across all files
 		if (check_across_files && files_to_check.length > 1)
 		{
-			report.append("\n************ SUMMARY FILE INTERCONSISTENCY REPORT ************\n\n");
-			report.append("\tNUMBER OF VOICES: " + getInterConsistencyReport(unique_voices_found, files_to_check, verbose) + "\n");
-			report.append("\tTEMPO: " + getInterConsistencyReport(unique_tempos_found, files_to_check, verbose) + "\n");
-			report.append("\tTIME SIGNATURE: " + getInterConsistencyReport(unique_time_signatures_found, files_to_check, verbose) + "\n");
-			report.append("\tKEY SIGNATURE: " + getInterConsistencyReport(unique_key_signatures_found, files_to_check, verbose) + "\n");
-			report.append("\tGENERAL MIDI PATCHES: " + getInterConsistencyReport(unique_general_midi_patches_found, files_to_check, verbose) + "\n");
-			report.append("\tUNPITCHED CHANNEL 10 NOTES: " + getInterConsistencyReport(is_channel_10_used, files_to_check, verbose) + "\n");
-			report.append("\tNOTE VELOCITIES: " + getInterConsistencyReport(unique_velocities_found, files_to_check, verbose) + "\n");
-			report.append("\tCHANNEL VOLUMES: " + getInterConsistencyReport(unique_channel_volumes_found, files_to_check, verbose) + "\n");
-			report.append("\tPITCH BEND VALUES: " + getInterConsistencyReport(unique_pitch_bend_values_found, files_to_check, verbose) + "\n");
-			report.append("\tMEDIAN RHYTHMIC OFFSET: " + getInterConsistencyReport(unique_median_rhythmic_offsets_found, files_to_check, verbose) + "\n");
-			report.append("\tRHYTHMIC OFFSET STDEV: " + getInterConsistencyReport(unique_rhythmic_offsets_stdev_found, files_to_check, verbose) + "\n");
-			report.append("\tDUPLICATED MIDI CHANNELS: " + getInterConsistencyReport(channels_duplicated_on_multiple_tracks, files_to_check, verbose) + "\n");
-			report.append("\tMULTIPLEXED MIDI TRACKS AND CHANNELS: " + getInterConsistencyReport(unique_multiplexed_track_channels_found, files_to_check, verbose) + "\n");
-			report.append("\tMIDI FILE TYPE: " + getInterConsistencyReport(unique_mid_file_types_found, files_to_check, verbose) + "\n");
-			report.append("\n");
+			report.write("\n************ SUMMARY FILE INTERCONSISTENCY REPORT ************\n\n");
+			for (int quantity = 0; quantity < consistency_quantity_headings.length; quantity++)
+				report.write("\t" + consistency_quantity_headings[quantity] + ": " + getInterConsistencyReport(tallies[quantity], files_to_check, verbose) + "\n");
+			report.write("\n");
 		}
-		
-		// Return the report
-		return report.toString();
 	}
 	
 	
@@ -681,7 +542,9 @@ public class MIDIReporter
 	 * Return a formatted report listing all MIDI meta-messages of the specified types that occur in the
 	 * piece, segregated by type of MIDI message and by MIDI track. Only those MIDI tracks that contain a
 	 * given type of meta-message at least once are listed in each of these reports. Only those types of MIDI
-	 * meta-messages that are present at least once will be mentioned in the report.
+	 * meta-messages that are present at least once will be mentioned in the report. This report is the same
+	 * as that written by writeMetaMessageReport, which should be used instead where the report is to be
+	 * written out, as it does not hold the report in memory.
 	 *
 	 * @param report_tempo						Whether or not to report tempo MIDI meta-messages.
 	 * @param report_time_signature				Whether or not to report time signature MIDI meta-messages.
@@ -704,263 +567,65 @@ public class MIDIReporter
 	                                        boolean report_miscellaneous_text,
 	                                        boolean report_lyrics )
 	{
-		// The report of all MIDI tempo meta-messages found
-		StringBuilder tempo_report = new StringBuilder();
-				
-		// The report of all MIDI time signature meta-messages found
-		StringBuilder time_signature_report = new StringBuilder();
-				
-		// The report of all MIDI key signature meta-messages found
-		StringBuilder key_signature_report = new StringBuilder();
-				
-		// The report of all MIDI track name and instrument name meta-messages found
-		StringBuilder track_and_instrument_names_report = new StringBuilder();
-				
-		// The report of all MIDI text meta-messages found
-		StringBuilder text_report = new StringBuilder();
-				
-		// The report of all MIDI lyrics meta-messages found
-		StringBuilder lyrics_report = new StringBuilder();
-				
-		// Go through the MIDI tracks one by one
-		for (int tr = 0; tr < tracks.length; tr++)
-		{	
-			// A report of MIDI tempo meta-messages for this MIDI track (will be generated regardless of
-			// whether or not there are meta-messages of this type on this track, but will only be added to 
-			// the final report if there are. Also prepare to note if a meta-message of this type was found on
-			// this track, and to count the number of meta- messages of this type.
-			StringBuilder temp_tempo_report = new StringBuilder();
-			temp_tempo_report.append("\nTEMPO MESSAGES ON TRACK " + (tr + 1) + ":\n");
-			boolean found_tempo = false;
-			long tempo_count = 0;
-
-			// A report of MIDI time signature meta-messages for this MIDI track (will be generated
-			// regardless of whether or not there are meta-messages of this type on this track, but will
-			// only be added to the final report if there are. Also prepare to note if a meta-message of this
-			// type was found on this track, and to count the number of meta- messages of this type.
-			StringBuilder temp_time_signature_report = new StringBuilder();
-			temp_time_signature_report.append("\nTIME SIGNATURE MESSAGES ON TRACK " + (tr + 1) + ":\n");
-			boolean found_time_signature = false;
-			long time_signature_count = 0;
-
-			// A report of MIDI key signature meta-messages for this MIDI track (will be generated
-			// regardless of whether or not there are meta-messages of this type on this track, but will
-			// only be added to the final report if there are. Also prepare to note if a meta-message of this
-			// type was found on this track, and to count the number of meta- messages of this type.
-			StringBuilder temp_key_signature_report = new StringBuilder();
-			temp_key_signature_report.append("\nKEY SIGNATURE MESSAGES ON TRACK " + (tr + 1) + ":\n");
-			boolean found_key_signature = false;
-			long key_signature_count = 0;
-
-			// A report of MIDI track and instrument name meta-messages for this MIDI track (will be generated
-			// regardless of whether or not there are meta-messages of this type on this track, but will
-			// only be added to the final report if there are. Also prepare to note if a meta-message of this
-			// type was found on this track.
-			StringBuilder temp_track_and_instrument_names_report = new StringBuilder("\nTRACK NAME AND INSTRUMENT NAME MESSAGES ON TRACK " + (tr + 1) + ":\n");
-			boolean found_track_or_instrument_name = false;
-
-			// A report of MIDI text meta-messages for this MIDI track (will be generated
-			// regardless of whether or not there are meta-messages of this type on this track, but will
-			// only be added to the final report if there are. Also prepare to note if a meta-message of this
-			// type was found on this track, and to count the number of meta- messages of this type.
-			StringBuilder temp_text_report = new StringBuilder();
-			temp_text_report.append("\nTEXT MESSAGES ON TRACK " + (tr + 1) + ":\n");
-			boolean found_text = false;
-			long text_count = 0;
-
-			// A report of MIDI lyrics meta-messages for this MIDI track (will be generated
-			// regardless of whether or not there are meta-messages of this type on this track, but will
-			// only be added to the final report if there are. Also prepare to note if a meta-message of this
-			// type was found on this track, and to count the number of meta- messages of this type.
-			StringBuilder temp_lyrics_report = new StringBuilder();
-			temp_lyrics_report.append("\nLYRICS MESSAGES ON TRACK " + (tr + 1) + ":\n");
-			boolean found_lyrics = false;
-			long lyrics_count = 0;
-
-			// Go through each MIDI event in this track
-			for (int ev = 0; ev < tracks[tr].size(); ev++)
-			{
-				// The MIDI message associated with this MIDI event
-				MidiMessage message = tracks[tr].get(ev).getMessage();
-						
-				// The tick that this MIDI event is starting on
-				long event_tick = tracks[tr].get(ev).getTick();
-				
-				// If this MIDI message is a MetaMessage
-				if (message instanceof MetaMessage)
-				{
-					// The data bytes of this MetaMessage
-					byte[] data = ((MetaMessage) message).getData();
-
-					// If this is a tempo meta-message, then report it
-					if (((MetaMessage) message).getType() == 0x51)
-					{
-						// Increment the count
-						tempo_count++;
-
-						// Find tempo in microseconds per beat
-						int ms_tempo = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
-
-						// Convert to beats per minute
-						float ms_tempo_float = (float) ms_tempo;
-						if (ms_tempo_float <= 0) ms_tempo_float = 0.1f;
-						int tempo_bpm = (int) Math.round(60000000.0f / ms_tempo_float);
-						
-						// Report the tempo
-						temp_tempo_report.append("\tTEMPO " + tempo_count + ": " + tempo_bpm + 
-							" BPM, Beat: " + getBeatNumber(event_tick) + ", Tick " + (event_tick + 1) +
-							", Track " + (tr + 1) + "\n");
-						
-						// Note that a tempo was found
-						found_tempo = true;
-					}						
-				
-					// If this is a time signature meta-message, then report it
-					if (((MetaMessage) message).getType() == 0x58)
-					{
-						// Increment the count
-						time_signature_count++;
-						
-						// The time signature numerator and denominator
-						int time_signature_numerator = (int) (data[0] & 0xFF);
-						int time_signature_denominator = (int) (1 << (data[1] & 0xFF));
-
-						// Report the time signature
-						temp_time_signature_report.append("\tTIME SIGNATURE " + time_signature_count + ": " +
-							time_signature_numerator + "/" + time_signature_denominator + ", Beat: " + 
-							getBeatNumber(event_tick) + ", Tick " + (event_tick + 1) + ", Track " + (tr + 1) +
-							"\n");
-						
-						// Note that a time signature was found
-						found_time_signature = true;
-					}						
-				
-					// If this is a key signature meta-message, then report it
-					if (((MetaMessage) message).getType() == 0x59)
-					{
-						// Increment the count
-						key_signature_count++;
-						
-						// Interpret the key signature as major or minor
-						String key_signture_info;
-						if (data[1] == 0) key_signture_info = "Major with ";
-						else key_signture_info = "Minor with ";
-						
-						// Interpret the key signature in terms of number of accidentals
-						int number_accidentals = data[0];
-						if (number_accidentals == 0)
-							key_signture_info += (number_accidentals + " accidentals");
-						else if (number_accidentals < 0)
-							key_signture_info += (-1 * number_accidentals + " flats");
-						else 
-							key_signture_info += (number_accidentals + " sharps");
-						
-						// Report the key signature
-						temp_key_signature_report.append("\tKEY SIGNATURE " + key_signature_count + ": " +
-							key_signture_info + ", Beat: " + getBeatNumber(event_tick) + ", Tick " + 
-							(event_tick + 1) + ", Track " + (tr + 1) + "\n");
-						
-						// Note that a key signature was found
-						found_key_signature = true;
-					}
-
-					// If this is a track name or instrument name meta-message, then report it
-					if ( ((MetaMessage) message).getType() == 0x03 || // Track name
-					     ((MetaMessage) message).getType() == 0x04 ) // Instrument name
-					{
-						// Interpret the field
-						if (((MetaMessage) message).getType() == 0x03)
-							temp_track_and_instrument_names_report.append("\tTRACK");
-						else if (((MetaMessage) message).getType() == 0x03)
-							temp_track_and_instrument_names_report.append("\tINSTRUMENT");
-							
-						// Interpret the data
-						StringBuilder this_report = new StringBuilder();
-						for (int ch = 0; ch < data.length; ch++)
-							this_report.append((char) (data[ch]));
-						
-						// Report the track name or instrument name
-						temp_track_and_instrument_names_report.append(" NAME FOR TRACK " + (tr + 1) + ": \"" + 
-							this_report.toString() + "\", Beat: " + getBeatNumber(event_tick) + ", Tick " + 
-							(event_tick + 1) + ", Track " + (tr + 1) + "\n");
-						
-						// Note that a track name or instrument name was found
-						found_track_or_instrument_name = true;
-					}
-
-					// If this is a text meta-message, then report it
-					if ( ((MetaMessage) message).getType() == 0x01 )
-					{
-						// Interpret the data
-						StringBuilder this_report = new StringBuilder();
-						for (int ch = 0; ch < data.length; ch++)
-						{
-							char this_character = (char) data[ch];
-							if (String.valueOf(this_character).matches(".")) // verify is not a new line char
-								this_report.append(this_character);
-							else this_report.append("\\n");
-						}
+		StringWriter report = new StringWriter();
+		try
+		{
+			writeMetaMessageReport( report_tempo,
+			                        report_time_signature,
+			                        report_key_signature,
+			                        report_track_and_instrument_names,
+			                        report_miscellaneous_text,
+			                        report_lyrics,
+			                        report );
+		}
+		catch (IOException e) {} // Cannot occur when writing to a StringWriter
+		return report.toString();
+	}
 
-						// Report the text
-						temp_text_report.append("\tTEXT FOR TRACK " + (tr + 1) + ": \"" + 
-							this_report.toString() + "\", Beat: " + getBeatNumber(event_tick) + ", Tick " + 
-							(event_tick + 1) + ", Track " + (tr + 1) + "\n");
-						
-						// Note that a track name or instrument name was found
-						found_text = true;
-					}					
-					
-					// If this is a lyrics meta-message, then report it
-					if ( ((MetaMessage) message).getType() == 0x05 )
-					{
-						// Interpret the data
-						StringBuilder this_report = new StringBuilder();
-						for (int ch = 0; ch < data.length; ch++)
-						{
-							char this_character = (char) data[ch];
-							if (String.valueOf(this_character).matches(".")) // verify is not a new line char
-								this_report.append(this_character);
-							else this_report.append("\\n");
-						}
 
-						// Report the lyrics
-						temp_lyrics_report.append("\tLYRICS FOR TRACK " + (tr + 1) + ": \"" + 
-							this_report.toString() + "\", Beat: " + getBeatNumber(event_tick) + ", Tick " + 
-							(event_tick + 1) + ", Track " + (tr + 1) + "\n");
-						
-						// Note that a lyrics message was found
-						found_lyrics = true;
-					}
-				}
-			}
-			
-			// Report only those meta-message types that occur at least once
-			if (found_tempo)
-				tempo_report.append(temp_tempo_report.toString());
-			if (found_time_signature)
-				time_signature_report.append(temp_time_signature_report.toString());
-			if (found_key_signature)
-				key_signature_report.append(temp_key_signature_report.toString());
-			if (found_track_or_instrument_name)
-				track_and_instrument_names_report.append(temp_track_and_instrument_names_report.toString());
-			if (found_text)
-				text_report.append(temp_text_report.toString());
-			if (found_lyrics)
-				lyrics_report.append(temp_lyrics_report.toString());
-		}
-			
-		// Generate and return the combined report
-		StringBuilder combined_report = new StringBuilder();
-		if (report_tempo) combined_report.append(tempo_report);
-		if (report_time_signature) combined_report.append(time_signature_report);
-		if (report_key_signature) combined_report.append(key_signature_report);
-		if (report_track_and_instrument_names) combined_report.append(track_and_instrument_names_report);
-		if (report_miscellaneous_text) combined_report.append(text_report);
-		if (report_lyrics) combined_report.append(lyrics_report);
-		return combined_report.toString();	
+	/**
+	 * Write a formatted report listing all MIDI meta-messages of the specified types that occur in the
+	 * piece, in the format described for prepareMetaMessageReport. Each line is written as soon as it is
+	 * prepared. As the report is segregated by type of meta-message, the MIDI tracks are traversed once per
+	 * type of meta-message to report.
+	 *
+	 * @param report_tempo						Whether or not to report tempo MIDI meta-messages.
+	 * @param report_time_signature				Whether or not to report time signature MIDI meta-messages.
+	 * @param report_key_signature				Whether or not to report key signature MIDI meta-messages.
+	 * @param report_track_and_instrument_names	Whether or not to report track and instrument name  MIDI
+	 *											meta-messages.
+	 * @param report_miscellaneous_text			Whether or not to report miscellaneous text MIDI
+	 *											meta-messages.
+	 * @param report_lyrics						Whether or not to report lyrics MIDI meta-messages.
+	 * @param report							The writer to write the report to. It is not flushed or
+	 *											closed.
+	 * @throws IOException						Thrown if the report could not be written.
+	 */
+	public void writeMetaMessageReport( boolean report_tempo,
+	                                    boolean report_time_signature,
+	                                    boolean report_key_signature,
+	                                    boolean report_track_and_instrument_names,
+	                                    boolean report_miscellaneous_text,
+	                                    boolean report_lyrics,
+	                                    Writer report )
+		throws IOException
+	{
+		if (report_tempo)
+			writeMetaMessagesOfType("TEMPO MESSAGES", 0x51, 0x51, report);
+		if (report_time_signature)
+			writeMetaMessagesOfType("TIME SIGNATURE MESSAGES", 0x58, 0x58, report);
+		if (report_key_signature)
+			writeMetaMessagesOfType("KEY SIGNATURE MESSAGES", 0x59, 0x59, report);
+		if (report_track_and_instrument_names)
+			writeMetaMessagesOfType("TRACK NAME AND INSTRUMENT NAME MESSAGES", 0x03, 0x04, report);
+		if (report_miscellaneous_text)
+			writeMetaMessagesOfType("TEXT MESSAGES", 0x01, 0x01, report);
+		if (report_lyrics)
+			writeMetaMessagesOfType("LYRICS MESSAGES", 0x05, 0x05, report);
 	}
 	
 	
+
 	/**
 	 * Return a formatted report listing all MIDI Program Change messages (i.e. changes of instrumentation)
 	 * that occur in the piece, segregated by MIDI track and MIDI channel. Also report whether or not the
@@ -1059,7 +724,9 @@ public class MIDIReporter
 	 * Return a formatted report listing all MIDI Channel Volume messages that occur in the piece, segregated
 	 * by MIDI track and MIDI channel. IMPORTANT: only coarse channel volume (CC 7) messages are considered,
 	 * not expression (CC 11) or fine channel volume (CC 39) messages are considered. Other types of
-	 * controller messages are note reported.
+	 * controller messages are note reported. This report is the same as that written by
+	 * writeControllerMessageReport, which should be used instead where the report is to be written out, as
+	 * it does not hold the report in memory.
 	 * 
 	 * @return	A formatted report of all MIDI Channel Volume messages. Includes the (quarter note) beat and
 	 *			MIDI tick for each such note's start and stop. Both beats and ticks are incremented by one in
@@ -1067,79 +734,70 @@ public class MIDIReporter
 	 */	
 	public String prepareControllerMessageReport()
 	{
-		// The report to generate
-		StringBuilder report = new StringBuilder();
-		
+		StringWriter report = new StringWriter();
+		try { writeControllerMessageReport(report); }
+		catch (IOException e) {} // Cannot occur when writing to a StringWriter
+		return report.toString();
+	}
+
+
+	/**
+	 * Write a formatted report listing all MIDI Channel Volume messages that occur in the piece, in the
+	 * format described for prepareControllerMessageReport. Each line is written as soon as it is prepared.
+	 *
+	 * @param report		The writer to write the report to. It is not flushed or closed.
+	 * @throws IOException	Thrown if the report could not be written.
+	 */
+	public void writeControllerMessageReport(Writer report)
+		throws IOException
+	{
 		// Go through the MIDI tracks one by one
 		for (int tr = 0; tr < tracks.length; tr++)
 		{	
 			// Go through active MIDI channels in this MIDI track one by one
 			for (int ch = 0; ch < active_channels_per_track[tr].length; ch ++)
 			{
-				// A report of MIDI channel volume messages for this MIDI track and channel (will be generated
-				// regardless of whether or not there are, but will only be added to the final report if there
-				// are. Also prepare to count the number of messages of this type.
-				StringBuilder temp_channel_volume_report = new StringBuilder();
-				temp_channel_volume_report.append("\nCHANNEL VOLUME MESSAGES ON TRACK " + (tr + 1) + 
-					" AND CHANNEL " + (ch + 1) + ":\n");
+				// Only add to the report if there is at least one message on this channel in this track
+				if (!active_channels_per_track[tr][ch])
+					continue;
+
+				// The number of channel volume messages found on this track and channel so far. The heading
+				// for the track and channel is only written once the first is found.
 				long channel_volume_count = 0;
 
-				// Only add to the report if there is at least one message on this channel in this track
-				if (active_channels_per_track[tr][ch])
+				// Go through each MIDI event in this track
+				for (int ev = 0; ev < tracks[tr].size(); ev++)
 				{
-					// Go through each MIDI event in this track
-					for (int ev = 0; ev < tracks[tr].size(); ev++)
-					{
-						// This MIDI event
-						MidiEvent event = tracks[tr].get(ev);
-
-						// The MIDI message associated with this MIDI event
-						MidiMessage message = event.getMessage();
+					// This MIDI event
+					MidiEvent event = tracks[tr].get(ev);
 
-						// The tick that this event is starting on
-						long event_tick = event.getTick();
+					// The MIDI message associated with this MIDI event
+					MidiMessage message = event.getMessage();
 
-						// If this is a ShortMessage (which Channel Volume messages are)
-						if (message instanceof ShortMessage)
+					// If this is a MIDI Channel Volume message on this channel
+					if (message instanceof ShortMessage)
+					{
+						ShortMessage short_message = (ShortMessage) message;
+						if ( short_message.getChannel() == ch &&
+						     short_message.getCommand() == 0xb0 &&
+						     short_message.getData1() == 7 )
 						{
-							// This ShortMessage
-							ShortMessage short_message = (ShortMessage) message;
-
-							// This MIDI channel
-							int channel = short_message.getChannel();
-
-							// Only add to the report if there is at least one message on this channel in this
-							// track
-							if (short_message.getChannel() == ch)
-							{
-								// If this is a MIDI Channel Volume message
-								if (short_message.getCommand() == 0xb0 && short_message.getData1() == 7)
-								{
-									// Increment the count
-									channel_volume_count++;
-											
-									// The channel volume
-									long channel_volume = short_message.getData2();
-
-									// Report the channel volume
-									temp_channel_volume_report.append("\tCHANNEL VOLUME " + 
-										channel_volume_count + ": " + channel_volume + "/127, Beat: " + 
-										getBeatNumber(event_tick) + ", Tick " + (event_tick + 1) + 
-										", Track " + (tr + 1) + ", Channel " + (channel + 1) + "\n");
-								}
-							}
+							// Increment the count
+							channel_volume_count++;
+							if (channel_volume_count == 1)
+								report.write("\nCHANNEL VOLUME MESSAGES ON TRACK " + (tr + 1) + " AND CHANNEL " + (ch + 1) + ":\n");
+
+							// Report the channel volume
+							long event_tick = event.getTick();
+							report.write("\tCHANNEL VOLUME " + channel_volume_count + ": " + 
+								short_message.getData2() + "/127, Beat: " + getBeatNumber(event_tick) +
+								", Tick " + (event_tick + 1) + ", Track " + (tr + 1) + ", Channel " + (ch + 1) +
+								"\n");
 						}
 					}
 				}
-				
-				// Store any channel volume message reports that were generated for this track and channel
-				if (channel_volume_count > 0)
-					report.append(temp_channel_volume_report);
 			}
 		}
-				
-		// Return the report
-		return report.toString();
 	}
 	
 	
@@ -1147,7 +805,9 @@ public class MIDIReporter
 	 * Return a formatted report listing all notes that occur in the piece, either segregated by MIDI track
 	 * and MIDI channel, or listed in the temporal order that they occur (regardless of MIDI track or MIDI
 	 * channel). Each such note corresponds to a MIDI Note On and MIDI Note Off pair. Also includes all MIDI
-	 * pitch bend messages, if this option is selected.
+	 * pitch bend messages, if this option is selected. This report is the same as that written by
+	 * writeNoteReport, which should be used instead where the report is to be written out, as it does not
+	 * hold the report in memory.
 	 * 
 	 * @param	temporal_order		Set to true if the notes are to be listed in temporal order. Set to false 
 	 *								if they are to be segregated by MIDI track and MIDI channel.
@@ -1166,112 +826,108 @@ public class MIDIReporter
 	 */
 	public String prepareNoteReport(boolean temporal_order, boolean include_pitch_bends)
 		throws Exception
+	{
+		StringWriter report = new StringWriter();
+		writeNoteReport(temporal_order, include_pitch_bends, report);
+		return report.toString();
+	}
+
+
+	/**
+	 * Write a formatted report listing all notes that occur in the piece, in the format described for
+	 * prepareNoteReport. Each line is written as soon as it is prepared. The Note Off matching each Note On
+	 * is found with a single pass through each MIDI track. When notes are listed in temporal order, the notes
+	 * of the separate MIDI tracks (each of which is already in temporal order) are merged as they are
+	 * written, rather than being collected and sorted first.
+	 * 
+	 * @param	temporal_order		Set to true if the notes are to be listed in temporal order. Set to false 
+	 *								if they are to be segregated by MIDI track and MIDI channel.
+	 * @param	include_pitch_bends	Whether or not to also report MIDI pitch bend messages, as described for
+	 *								prepareNoteReport.
+	 * @param	report				The writer to write the report to. It is not flushed or closed.
+	 * @throws Exception			An informative exception is thrown if the temporal_order and 
+	 *								include_pitch_bends parameters are both set to true, or if the report
+	 *								could not be written.
+	 */
+	public void writeNoteReport(boolean temporal_order, boolean include_pitch_bends, Writer report)
+		throws Exception
 	{
 		if (temporal_order && include_pitch_bends)
 			throw new Exception("Cannot report pitch bend messagess if report parameters are not set to segregate notes by track and channel.");
 		
-		// The report to generate
-		StringBuilder report = new StringBuilder();
-		
 		// Report MIDI Note Ons segregated by MIDI track and MIDI channel
 		if (!temporal_order)
 		{
 			// Go through the MIDI tracks one by one
 			for (int tr = 0; tr < tracks.length; tr++)
 			{	
-				// This MIDI track
+				// This MIDI track, and the tick of the Note Off matching each of its Note Ons
 				Track track = tracks[tr];
+				long[] note_off_ticks = null;
 
 				// Go through active MIDI channels in this MIDI track one by one
 				for (int ch = 0; ch < active_channels_per_track[tr].length; ch ++)
 				{
 					// Only add to the report if there is at least one message on this channel in this track
-					if (active_channels_per_track[tr][ch])
-					{
-						// Note that a new MIDI track and a new MIDI channel is starting
-						report.append("\nNOTE ON/OFF MESSAGES ON TRACK " + (tr + 1) + " AND CHANNEL " + 
-							(ch + 1) + ":\n");
-
-						// The number of notes encountered on this track and channel
-						long note_count = 0;
+					if (!active_channels_per_track[tr][ch])
+						continue;
+					if (note_off_ticks == null)
+						note_off_ticks = getTicksOfNoteOffs(track);
 
-						// The number of pitch bend messages encountered on this track and channel
-						long pitch_bend_count = 0;
-						
-						// Go through each MIDI event in this track
-						for (int ev = 0; ev < track.size(); ev++)
-						{
-							// This MIDI event
-							MidiEvent event = track.get(ev);
+					// Note that a new MIDI track and a new MIDI channel is starting
+					report.write("\nNOTE ON/OFF MESSAGES ON TRACK " + (tr + 1) + " AND CHANNEL " + (ch + 1) + ":\n");
 
-							// The MIDI message associated with this MIDI event
-							MidiMessage message = event.getMessage();
+					// The number of notes and pitch bend messages encountered on this track and channel
+					long note_count = 0;
+					long pitch_bend_count = 0;
+					
+					// Go through each MIDI event in this track
+					for (int ev = 0; ev < track.size(); ev++)
+					{
+						// This MIDI event, and the MIDI message associated with it
+						MidiEvent event = track.get(ev);
+						MidiMessage message = event.getMessage();
+						if (!(message instanceof ShortMessage) || ((ShortMessage) message).getChannel() != ch)
+							continue;
+						ShortMessage short_message = (ShortMessage) message;
 
-							// The tick that this event is starting on
-							long start_tick = event.getTick();
+						// The tick that this event is starting on
+						long start_tick = event.getTick();
 
-							// If this is a ShortMessage (which Note Ons are)
-							if (message instanceof ShortMessage)
+						// If this ShortMessage is a MIDI Note On (not of velocity 0)
+						if (short_message.getCommand() == 0x90)
+						{
+							if (short_message.getData2() != 0)
 							{
-								// This ShortMessage
-								ShortMessage short_message = (ShortMessage) message;
-
-								// This MIDI channel
-								int channel = short_message.getChannel();
-
-								// Only add to the report if there is at least one message on this channel in
-								// this track
-								if (channel == ch)
-								{
-									// If this ShortMessage is a MIDI Note On
-									if (short_message.getCommand() == 0x90) // note on
-									{
-										if (short_message.getData2() != 0) // not velocity 0
-										{
-											// The pitch of this MIDI Note On
-											int pitch = short_message.getData1();
-
-											// The velocity of this MIDI Note On
-											int velocity = short_message.getData2();
-
-											// The MIDI tick of the MIDI Note Off associated with this MIDI 
-											// Note On
-											long end_tick = getTickOfNoteOff(track, ev, channel, pitch);
-
-											// Increment the note count
-											note_count++;
-											
-											// Report timing information about this MIDI Note On and its
-											// associated Note Off
-											report.append("\tNOTE " + note_count + ": Beat " + 
-												getBeatNumber(start_tick) + " to " + getBeatNumber(end_tick) +
-												", Tick " + (start_tick + 1) + " to " + (end_tick + 1) + "\n");
-
-											// Report non-timing information about this MIDI Note On
-											report.append("\t\tPitch: " + pitch + ", Velocity: " + velocity +
-												", Track " + (tr + 1) + ", Channel " + (channel + 1) + "\n");
-										}
-									}
-									
-									// If this ShortMessage is a MIDI Pitch Bend message, and if chosen
-									else if ( include_pitch_bends && short_message.getCommand() == 0xe0)
-									{
-										// The (second byte) value of the pitch bend (the less significant
-										// first byte is ignored)
-										int pitch_bend_value = short_message.getData2();
-										
-										// Increment the pitch bend count
-										pitch_bend_count++;
-										
-										// Report the pitch bend
-										report.append("\tPITCH BEND " + pitch_bend_count + ": " + 
-											pitch_bend_value + " (second byte only), Beat: " + 
-											getBeatNumber(start_tick) + ", Tick " + (start_tick + 1) + 
-											", Track " + (tr + 1) + ", Channel " + (channel + 1) + "\n");
-									}
-								}
+								// The MIDI tick of the MIDI Note Off associated with this MIDI Note On,
+								// defaulting to the end of the track if there is none
+								long end_tick = note_off_ticks[ev];
+								if (end_tick == -1)
+									end_tick = track.ticks();
+
+								// Report timing and then non-timing information about this MIDI Note On
+								// and its associated Note Off
+								note_count++;
+								report.write("\tNOTE " + note_count + ": Beat " + 
+									getBeatNumber(start_tick) + " to " + getBeatNumber(end_tick) +
+									", Tick " + (start_tick + 1) + " to " + (end_tick + 1) + "\n");
+								report.write("\t\tPitch: " + short_message.getData1() + ", Velocity: " +
+									short_message.getData2() + ", Track " + (tr + 1) + ", Channel " + 
+									(ch + 1) + "\n");
 							}
 						}
+						
+						// If this ShortMessage is a MIDI Pitch Bend message, and if chosen
+						else if (include_pitch_bends && short_message.getCommand() == 0xe0)
+						{
+							// Report the (second byte) value of the pitch bend (the less significant first
+							// byte is ignored)
+							pitch_bend_count++;
+							report.write("\tPITCH BEND " + pitch_bend_count + ": " + 
+								short_message.getData2() + " (second byte only), Beat: " + 
+								getBeatNumber(start_tick) + ", Tick " + (start_tick + 1) + 
+								", Track " + (tr + 1) + ", Channel " + (ch + 1) + "\n");
+						}
 					}
 				}
 			}
@@ -1281,144 +937,255 @@ public class MIDIReporter
 		else
 		{
 			// Provide a header for the report
-			report.append("\nNOTE ON/OFF MESSAGES LISTED IN TEMPORAL ORDER:\n");
+			report.write("\nNOTE ON/OFF MESSAGES LISTED IN TEMPORAL ORDER:\n");
 
-			// Prepare a temporally sorted list of all notes
-			CollectedNoteInfo collected_note_info = new CollectedNoteInfo(tracks);
-			List<NoteInfo> temporally_sorted_notes = collected_note_info.noteListToSortedNoteList(collected_note_info.getNoteList());
-			
-			// Report all MIDI Note Ons and Note Offs
+			// Merge the notes of all tracks in order of start tick (and then of track), always reporting
+			// the next note of the track whose next note starts first. Notes without a Note Off are omitted.
+			PriorityQueue<TrackNoteCursor> next_note_of_each_track = new PriorityQueue<>();
+			for (int tr = 0; tr < tracks.length; tr++)
+			{
+				TrackNoteCursor cursor = new TrackNoteCursor(tracks[tr], tr);
+				if (cursor.advance())
+					next_note_of_each_track.add(cursor);
+			}
 			long note_count = 0;
-			for (NoteInfo note : temporally_sorted_notes)
+			while (!next_note_of_each_track.isEmpty())
 			{
-				// Increment the number of notes found
+				TrackNoteCursor cursor = next_note_of_each_track.poll();
+				MidiEvent event = cursor.track.get(cursor.event_index);
+				ShortMessage note_on = (ShortMessage) event.getMessage();
+				int start_tick = (int) event.getTick();
+				int end_tick = (int) cursor.note_off_ticks[cursor.event_index];
+
+				// Report timing and then non-timing information about this MIDI Note On and its associated
+				// Note Off
 				note_count++;
+				report.write("\tNOTE " + note_count + ": Beat " +  getBeatNumber(start_tick) + 
+					" to " + getBeatNumber(end_tick) + ", Tick " + start_tick + " to " + end_tick + "\n");	
+				report.write("\t\tPitch: " + note_on.getData1() + ", Velocity: " + note_on.getData2() + 
+					", Track " + (cursor.track_index + 1) + ", Channel " + (note_on.getChannel() + 1) + "\n");
 
-				// Report timing information about this MIDI Note On and its associated Note Off
-				report.append("\tNOTE " + note_count + ": Beat " +  getBeatNumber(note.getStartTick()) + 
-					" to " + getBeatNumber(note.getEndTick()) + ", Tick " + note.getStartTick() + " to " +
-					note.getEndTick() + "\n");	
-				
-				// Report non-timing information about this MIDI Note On
-				report.append("\t\tPitch: " + note.getPitch() + ", Velocity: " + note.getVelocity() + 
-					", Track " + (note.getTrack() + 1) + ", Channel " + (note.getChannel() + 1) + "\n");
+				if (cursor.advance())
+					next_note_of_each_track.add(cursor);
 			}
 		}
-				
-		// Return the report
-		return report.toString();	
 	}
-	
-
-	/* PRIVATE METHODS **************************************************************************************/
 
 
 	/**
-	 * Returns a formatted string indicating the beat number (assuming quarter note beats) corresponding to
-	 * the given MIDI tick. Formats the beat to three decimal places. IMPORTANT: The beat number is
-	 * incremented by one, such that the piece in effect starts on beat 1, rather than beat 0.
-	 	 * 
-	 * @param	tick	The MIDI tick to find the beat for.
-	 * @return			The beat number, after being incremented by 1.
+	 * Write a formatted report on the file, its meta-messages, its program changes and unpitched
+	 * instruments, its channel volume messages and its notes (segregated by MIDI track and MIDI channel,
+	 * along with pitch bends), as prepared by the prepareHeaderReport,
+	 * prepareProgramChangeAndUnpitchedInstrumentsReport, writeMetaMessageReport,
+	 * writeControllerMessageReport and writeNoteReport methods. This is the report produced by the
+	 * -mididump command line switch and by the Contents Report button of the GUI.
+	 *
+	 * @param report		The writer to write the report to. It is not flushed or closed.
+	 * @throws Exception	An informative exception is thrown if the report could not be written.
 	 */
-	private String getBeatNumber(long tick)
+	public void writeMidiMessagesReport(Writer report)
+		throws Exception
 	{
-		DecimalFormat formatter = new java.text.DecimalFormat("#.###");
-		double beat = (double) tick / (double) ppqn_ticks_per_beat;
-		beat += 1.0;
-		return formatter.format(beat);
+		report.write(prepareHeaderReport());
+		writeMetaMessageReport(true, true, true, true, true, true, report);
+		report.write(prepareProgramChangeAndUnpitchedInstrumentsReport());
+		writeControllerMessageReport(report);
+		writeNoteReport(false, true, report);
 	}
+	
 
-
-	/* PRIVATE STATIC METHODS *******************************************************************************/
+	/* PRIVATE METHODS **************************************************************************************/
 
 
 	/**
-	 * Given information for a MIDI Note On event, find the corresponding Note Off event and return the MIDI
-	 * tick that the Note Off occurs on.
+	 * Write the part of the meta-message report (see prepareMetaMessageReport) on meta-messages of the given
+	 * type or types. Each MIDI track holding at least one such meta-message is reported under its own
+	 * heading.
 	 *
-	 * @param midi_track			The track the Note On occurred on.
-	 * @param note_on_event_index	The event index of the Note On event.
-	 * @param note_on_channel		The MIDI channel the Note On occurred on.
-	 * @param note_on_pitch			The MIDI pitch of the Note On.
-	 * @return						The MIDI tick the Note Off occurs on. If the Note Off never occurs, then 
-	 *								the last tick is returned.
+	 * @param heading		The heading to report each track under, which is followed by the track number.
+	 * @param type			The type of meta-message to report.
+	 * @param other_type	Another type of meta-message to report along with type (this is the same as type
+	 *						if only one type of meta-message is to be reported).
+	 * @param report		The writer to write the report to.
+	 * @throws IOException	Thrown if the report could not be written.
 	 */
-	private static long getTickOfNoteOff( Track midi_track,
-	                                      int note_on_event_index,
-	                                      int note_on_channel,
-	                                      int note_on_pitch )
+	private void writeMetaMessagesOfType(String heading, int type, int other_type, Writer report)
+		throws IOException
 	{
-		for (int ev = note_on_event_index; ev < midi_track.size(); ev++)
+		// Go through the MIDI tracks one by one
+		for (int tr = 0; tr < tracks.length; tr++)
 		{
-			MidiEvent event = midi_track.get(ev);
-			MidiMessage message = event.getMessage();
-			if (message instanceof ShortMessage)
+			// The number of meta-messages of this type found on this track so far. The heading for the track
+			// is only written once the first is found.
+			long count = 0;
+
+			// Go through each MIDI event in this track
+			for (int ev = 0; ev < tracks[tr].size(); ev++)
 			{
-				// Is this a Note Off message (or equivalent Note On with velocity 0)?
-				ShortMessage short_message = (ShortMessage) message;
-				if (     short_message.getCommand() == 0x80
-				     || (short_message.getCommand() == 0x90 && short_message.getData2() == 0))
+				// The MIDI message associated with this MIDI event
+				MidiMessage message = tracks[tr].get(ev).getMessage();
+				if (!(message instanceof MetaMessage))
+					continue;
+				int this_type = ((MetaMessage) message).getType();
+				if (this_type != type && this_type != other_type)
+					continue;
+
+				// Note that a meta-message of this type was found
+				count++;
+				if (count == 1)
+					report.write("\n" + heading + " ON TRACK " + (tr + 1) + ":\n");
+
+				// The tick that this MIDI event is starting on, and the data bytes of this MetaMessage
+				long event_tick = tracks[tr].get(ev).getTick();
+				byte[] data = ((MetaMessage) message).getData();
+
+				// Report this meta-message
+				String position = ", Beat: " + getBeatNumber(event_tick) + ", Tick " + (event_tick + 1) + ", Track " + (tr + 1) + "\n";
+				switch (this_type)
 				{
-					// Is this Note Off message on the same channel, and does it have the same pitch as the
-					// Note On message under consideration?
-					if ( short_message.getChannel() == note_on_channel && 
-					     short_message.getData1() == note_on_pitch)
+					// A tempo meta-message
+					case 0x51:
 					{
-						return event.getTick();
+						// Find tempo in microseconds per beat, and convert to beats per minute
+						int ms_tempo = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+						float ms_tempo_float = (float) ms_tempo;
+						if (ms_tempo_float <= 0) ms_tempo_float = 0.1f;
+						int tempo_bpm = (int) Math.round(60000000.0f / ms_tempo_float);
+						report.write("\tTEMPO " + count + ": " + tempo_bpm + " BPM" + position);
+						break;
 					}
-				}
-			}
-		}
 
-		// Default to the total number of ticks if the Note Off is not found
-		return midi_track.ticks();
-	}
-
-
-	/**
-	 * Look ahead on a MIDI track to find the tick corresponding to the MIDI Note Off (or velocity 0 note on)
-	 * for the specified NIDI Note On.
-	 *
-	 * @param note_on				The note on message for which the note off is being searched for.
-	 * @param note_on_start_tick	The MIDI tick on which note_on occurred.
-	 * @param track					The MIDI track on which note_on is found.
-	 * @return						The tick of the note off corresponding to note_on. If the note off never 
-	 *								occurs, then the last tick is returned.
-	 */
-	private static int getTickOfNoteOff( ShortMessage note_on,
-	                                     int note_on_start_tick,
-	                                     Track track )
-	{
-		for (int i = note_on_start_tick + 1; i < track.size(); i++)
-		{
-			MidiEvent end_event = track.get(i);
-			MidiMessage end_message = end_event.getMessage();
-			if (end_message instanceof ShortMessage)
-			{
-				ShortMessage end_short_message = (ShortMessage) end_message;
-				if (end_short_message.getChannel() == note_on.getChannel()) // must be on same channel
-				{
-					if (end_short_message.getCommand() == 0x80) // note off
+					// A time signature meta-message
+					case 0x58:
 					{
-						if (end_short_message.getData1() == note_on.getData1()) // same pitch
-							return (int) end_event.getTick();
+						int time_signature_numerator = (int) (data[0] & 0xFF);
+						int time_signature_denominator = (int) (1 << (data[1] & 0xFF));
+						report.write("\tTIME SIGNATURE " + count + ": " + time_signature_numerator + "/" + time_signature_denominator + position);
+						break;
 					}
-					if (end_short_message.getCommand() == 0x90) // note on (with vel 0 is equiv to note off)
+
+					// A key signature meta-message, interpreted as major or minor and in terms of number of
+					// accidentals
+					case 0x59:
 					{
-						if (end_short_message.getData2() == 0) // velocity 0
-							if (end_short_message.getData1() == note_on.getData1()) // same pitch
-								return (int) end_event.getTick();
-					}
-				}
+						String key_signture_info;
+						if (data[1] == 0) key_signture_info = "Major with ";
+						else key_signture_info = "Minor with ";
+						int number_accidentals = data[0];
+						if (number_accidentals == 0)
+							key_signture_info += (number_accidentals + " accidentals");
+						else if (number_accidentals < 0)
+							key_signture_info += (-1 * number_accidentals + " flats");
+						else 
+							key_signture_info += (number_accidentals + " sharps");
+						report.write("\tKEY SIGNATURE " + count + ": " + key_signture_info + position);
+						break;
+					}
+
+					// A track name or instrument name meta-message
+					case 0x03:
+					case 0x04:
+					{
+						StringBuilder this_report = new StringBuilder();
+						for (int ch = 0; ch < data.length; ch++)
+							this_report.append((char) (data[ch]));
+						report.write((this_type == 0x03 ? "\tTRACK" : "") + " NAME FOR TRACK " + (tr + 1) + ": \"" + this_report.toString() + "\"" + position);
+						break;
+					}
+
+					// A text or lyrics meta-message, with new line characters escaped
+					default:
+					{
+						StringBuilder this_report = new StringBuilder();
+						for (int ch = 0; ch < data.length; ch++)
+						{
+							char this_character = (char) data[ch];
+							if (String.valueOf(this_character).matches(".")) // verify is not a new line char
+								this_report.append(this_character);
+							else this_report.append("\\n");
+						}
+						report.write((this_type == 0x05 ? "\tLYRICS" : "\tTEXT") + " FOR TRACK " + (tr + 1) + ": \"" + this_report.toString() + "\"" + position);
+						break;
+					}
+				}
 			}
 		}
-		
-		// Default to the total number of ticks if the note off is not found
-		return (int) track.ticks();
 	}
-	
-	
+
+
+	/**
+	 * Returns a formatted string indicating the beat number (assuming quarter note beats) corresponding to
+	 * the given MIDI tick. Formats the beat to three decimal places. IMPORTANT: The beat number is
+	 * incremented by one, such that the piece in effect starts on beat 1, rather than beat 0.
+	 	 * 
+	 * @param	tick	The MIDI tick to find the beat for.
+	 * @return			The beat number, after being incremented by 1.
+	 */
+	private String getBeatNumber(long tick)
+	{
+		double beat = (double) tick / (double) ppqn_ticks_per_beat;
+		beat += 1.0;
+		return beat_formatter.format(beat);
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Find the tick of the MIDI Note Off (or velocity 0 Note On) corresponding to each MIDI Note On on the
+	 * given MIDI track, with a single pass through the track. The Note Off corresponding to a Note On is the
+	 * first one after it on the same channel and with the same pitch. This avoids looking ahead from each
+	 * Note On separately.
+	 *
+	 * @param track	The MIDI track to search.
+	 * @return		The tick of the Note Off corresponding to each Note On (of non-zero velocity), indexed by
+	 *				the event index of the Note On. Holds -1 for Note Ons with no corresponding Note Off, and
+	 *				for events that are not Note Ons.
+	 */
+	private static long[] getTicksOfNoteOffs(Track track)
+	{
+		long[] note_off_ticks = new long[track.size()];
+		Arrays.fill(note_off_ticks, -1L);
+
+		// The event indices of the Note Ons still waiting for a Note Off, as one chain per channel and
+		// pitch. Each chain starts at the index in sounding_note_ons for its channel and pitch, and is
+		// continued by next_sounding_note_on. -1 ends a chain.
+		int[] sounding_note_ons = new int[16 * 128];
+		Arrays.fill(sounding_note_ons, -1);
+		int[] next_sounding_note_on = new int[track.size()];
+
+		for (int ev = 0; ev < track.size(); ev++)
+		{
+			MidiEvent event = track.get(ev);
+			MidiMessage message = event.getMessage();
+			if (!(message instanceof ShortMessage))
+				continue;
+			ShortMessage short_message = (ShortMessage) message;
+			int command = short_message.getCommand();
+			if (command != 0x80 && command != 0x90)
+				continue;
+			int channel_and_pitch = short_message.getChannel() * 128 + short_message.getData1();
+
+			// A Note On of non-zero velocity starts waiting for its Note Off
+			if (command == 0x90 && short_message.getData2() != 0)
+			{
+				next_sounding_note_on[ev] = sounding_note_ons[channel_and_pitch];
+				sounding_note_ons[channel_and_pitch] = ev;
+			}
+
+			// A Note Off ends all Note Ons on its channel and pitch that are still waiting for one
+			else
+			{
+				for (int on = sounding_note_ons[channel_and_pitch]; on != -1; on = next_sounding_note_on[on])
+					note_off_ticks[on] = event.getTick();
+				sounding_note_ons[channel_and_pitch] = -1;
+			}
+		}
+		return note_off_ticks;
+	}
+
+
 	/**
 	 * For the given MIDI sequence, return an array holding the offset in duration of each note from the exact
 	 * idealized duration of its nearest rhythmic value, expressed as a fraction of the duration of an
@@ -1481,8 +1248,9 @@ public class MIDIReporter
 		// Fill rhythmic_duration_note_counts for the entire sequence
 		for (int tr = 0; tr < tracks.length; tr++)
 		{
-			// Process this track
+			// Process this track, first finding the tick of the Note Off matching each of its Note Ons
 			Track track = tracks[tr];
+			long[] note_off_ticks = getTicksOfNoteOffs(track);
 			for (int ev = 0; ev < track.size(); ev++)
 			{
 				// Get the MIDI message corresponding to the next MIDI event
@@ -1499,10 +1267,10 @@ public class MIDIReporter
 					{
 						if (short_message.getData2() != 0) // not velocity 0
 						{
-							// Look ahead to find the corresponding note off for this note on. Defaults
-							// to the last tick if no corresponding note off is found.
+							// Find the corresponding note off for this note on. Defaults to the last tick
+							// if no corresponding note off is found.
 							int event_start_tick = (int) event.getTick();
-							int event_end_tick = getTickOfNoteOff(short_message, ev, track);
+							int event_end_tick = (int) ((note_off_ticks[ev] == -1) ? track.ticks() : note_off_ticks[ev]);
 							
 							// Calculate duration in ticks of the note
 							int duration_in_ticks = event_end_tick - event_start_tick;
@@ -1621,129 +1389,494 @@ public class MIDIReporter
 	
 	/**
 	 * Returns a formatted report indicating whether or not the values for some quantity (e.g. tempo) are
-	 * consistent across all the files referred to by unique_values_per_file. The quantity is marked
-	 * Consistent if the exact same values occur in all files. The quantity is marked Varies if one or more
-	 * files has different values than another. Multiplicity and order are ignored (so tempos of 120 and then
-	 * 80 BPM in one file, and 120, 80 and then 120 BPM in another would be considered Consistent, but another
-	 * file with a tempo of just 80 BPM, or of 90 and then 120 BPM would result in a report of Varies). If
-	 * report_values is true, the particular value sets found are reported, as are the paths of the specific
-	 * files associated with each values set.
+	 * consistent across all the files tallied by value_sets. The quantity is marked Consistent if the exact
+	 * same values occur in all files. The quantity is marked Varies if one or more files has different values
+	 * than another. Multiplicity and order are ignored (so tempos of 120 and then 80 BPM in one file, and
+	 * 120, 80 and then 120 BPM in another would be considered Consistent, but another file with a tempo of
+	 * just 80 BPM, or of 90 and then 120 BPM would result in a report of Varies). If report_values is true,
+	 * the particular value sets found are reported, as are the paths of the specific files associated with
+	 * each values set.
 	 * 
-	 * @param unique_values_per_file	An array where the first index specifies a file and the second index
-	 *									corresponds to each unique value that a file can have for the quantity
-	 *									under consideration. The values for each file are assumed to be unique
-	 *									(i.e. there are no multiple identical values for the same file). The
-	 *									values for a given file may be null, in which case this method marks 
-	 *									it as unspecified (which itself then acts as a unique value set).
-	 * @param files_to_check			The files from which the entries of unique_values_per_file were found.
-	 *									The index of files_to_check must match the ordering of the first index
-	 *									of unique_values_per_file. files_to_check is used simply to note the
-	 *									file names corresponding to each value set.
-	 * @param report_values				Whether or not to report all the unique value sets found. If this is 
-	 *									false, a consistency result is still returned, but without details.
-	 * @return							A formatted report indicating whether unique_values_per_file is
-	 *									Consistent (i.e. all files have the same value sets) or Varies
-	 *									(files have more than one value set). The particular values are 
-	 *									reported if report_values is set to true.
+	 * @param value_sets		The distinct value sets found for the quantity under consideration, along
+	 *							with the files that have each of them.
+	 * @param files_to_check	The files from which value_sets was tallied. value_sets refers to files by
+	 *							their indices in files_to_check. Used simply to note the file names
+	 *							corresponding to each value set.
+	 * @param report_values		Whether or not to report all the unique value sets found. If this is false,
+	 *							a consistency result is still returned, but without details.
+	 * @return					A formatted report indicating whether value_sets is Consistent (i.e. all
+	 *							files have the same value sets) or Varies (files have more than one value
+	 *							set). The particular values are reported if report_values is set to true.
 	 */
-	private static String getInterConsistencyReport( String[][] unique_values_per_file,
+	private static String getInterConsistencyReport( ValueSetTally value_sets,
 	                                                 File[] files_to_check,
 	                                                 boolean report_values )
 	{
-		// A list to which unique value sets are added to as the files in unique_values_per_file are 
-		// traversed one by one. Will hold all the unique (i.e. no doubles) value sets found in all files in
-		// unique_values_per_file by the end of processing.
-		LinkedList<String[]> unique_value_sets_found_so_far_all_files = new LinkedList<>();
-
-		// A list of the file paths from files_to_check corresponding to each value set entry in 
-		// unique_value_sets_found_so_far_all_files (the entries of the two lists correspond to each other)
-		LinkedList<LinkedList<String>> file_paths_for_each_value_set_found_so_far = new LinkedList<>();
-		
-		// Populate unique_value_sets_found_so_far_all_files by going through each file, one by one
-		for (int file = 0; file < unique_values_per_file.length; file++)
-		{
-			// Note the path of this file
-			String this_file_path = files_to_check[file].getAbsolutePath();
-
-			// Deal with case where a given file may have no values
-			String[] unique_values_this_file;
-			if ( unique_values_per_file[file] == null ||
-			     ( unique_values_per_file[file].length == 1 && unique_values_per_file[file][0] == null ) )
-			{
-				unique_values_this_file = new String[1];
-				unique_values_this_file[0] = "Not present in file";
-			}
-			else
-				unique_values_this_file = unique_values_per_file[file];
-
-			// Add the value set from this file to unique_value_sets_found_so_far_all_files if it is not 
-			// already there.
-			if (unique_value_sets_found_so_far_all_files.isEmpty())
-			{
-				unique_value_sets_found_so_far_all_files.add(unique_values_this_file);
-				
-				LinkedList<String> new_file_list_for_this_value_set = new LinkedList<>();
-				new_file_list_for_this_value_set.add(this_file_path);
-				file_paths_for_each_value_set_found_so_far.add(new_file_list_for_this_value_set);
-			}
-			else
-			{
-				boolean match_found = false;
-				for (int set = 0; set < unique_value_sets_found_so_far_all_files.size(); set++)
-				{
-					if (StringMethods.doStringArraysMatch(unique_values_this_file, unique_value_sets_found_so_far_all_files.get(set)))
-					{
-						match_found = true;
-						
-						LinkedList<String> new_file_list_for_this_value_set = file_paths_for_each_value_set_found_so_far.get(set);
-						new_file_list_for_this_value_set.add(this_file_path);
-						
-						break;
-					}
-				}
-				
-				if (!match_found)
-				{
-					unique_value_sets_found_so_far_all_files.add(unique_values_this_file);
-					
-					LinkedList<String> new_file_list_for_this_value_set = new LinkedList<>();
-					new_file_list_for_this_value_set.add(this_file_path);
-					file_paths_for_each_value_set_found_so_far.add(new_file_list_for_this_value_set);
-				}
-			}
-		}
-		
 		// The report to return
 		StringBuilder report = new StringBuilder();
 		
 		// Prepare the basic report
-		if (unique_value_sets_found_so_far_all_files.size() == 1)
-			report.append("Consistent (the same value set found in all " + unique_values_per_file.length + " files}");
+		if (value_sets.getNumberOfValueSets() == 1)
+			report.append("Consistent (the same value set found in all " + files_to_check.length + " files}");
 		else 
-			report.append("Varies (" + unique_value_sets_found_so_far_all_files.size() + " distinct value sets found across the " + unique_values_per_file.length + " files)");
+			report.append("Varies (" + value_sets.getNumberOfValueSets() + " distinct value sets found across the " + files_to_check.length + " files)");
 		
 		// Specify all the unique value sets
 		if (report_values)
 		{
-			for (int set = 0; set < unique_value_sets_found_so_far_all_files.size(); set++)
+			for (ValueSet value_set : value_sets.getValueSets())
 			{
 				// Note the value set
 				report.append("\n\t\t< ");
-				for (int val = 0; val < unique_value_sets_found_so_far_all_files.get(set).length; val++)
+				for (int val = 0; val < value_set.values.length; val++)
 				{
-					report.append(unique_value_sets_found_so_far_all_files.get(set)[val]);
-					if (val != (unique_value_sets_found_so_far_all_files.get(set).length - 1))
+					report.append(value_set.values[val]);
+					if (val != (value_set.values.length - 1))
 						report.append(", ");
 				}
-				report.append(" >: " + file_paths_for_each_value_set_found_so_far.get(set).size() + " files");
+				report.append(" >: " + value_set.number_of_files + " files");
 				
 				// Note the file paths that have this value set
-				for (int file = 0; file < file_paths_for_each_value_set_found_so_far.get(set).size(); file++)
-					report.append("\n\t\t\t" + file_paths_for_each_value_set_found_so_far.get(set).get(file));
+				for (int file = 0; file < value_set.number_of_files; file++)
+					report.append("\n\t\t\t" + files_to_check[value_set.file_indices[file]].getAbsolutePath());
 			}
 		}
 
 		// Return the report
 		return report.toString();
 	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * A position in the list of notes (MIDI Note Ons with a corresponding Note Off) on a single MIDI track,
+	 * used to merge the notes of all tracks in temporal order. Cursors are ordered by the start tick of the
+	 * note they are at, and then by track.
+	 */
+	private static final class TrackNoteCursor
+		implements Comparable<TrackNoteCursor>
+	{
+		/**
+		 * The MIDI track whose notes are traversed.
+		 */
+		final Track track;
+
+		/**
+		 * The index of track in the MIDI sequence.
+		 */
+		final int track_index;
+
+		/**
+		 * The tick of the Note Off corresponding to each Note On on track, as returned by getTicksOfNoteOffs.
+		 */
+		final long[] note_off_ticks;
+
+		/**
+		 * The event index on track of the Note On of the note that the cursor is at.
+		 */
+		int event_index;
+
+		/**
+		 * The start tick of the note that the cursor is at.
+		 */
+		long start_tick;
+
+		/**
+		 * Set up a cursor before the first note of the given track.
+		 *
+		 * @param track			The MIDI track whose notes are to be traversed.
+		 * @param track_index	The index of track in the MIDI sequence.
+		 */
+		TrackNoteCursor(Track track, int track_index)
+		{
+			this.track = track;
+			this.track_index = track_index;
+			note_off_ticks = getTicksOfNoteOffs(track);
+			event_index = -1;
+		}
+
+		/**
+		 * Move the cursor to the next note on its track.
+		 *
+		 * @return	Whether or not there was another note to move to.
+		 */
+		boolean advance()
+		{
+			for (event_index++; event_index < note_off_ticks.length; event_index++)
+			{
+				if (note_off_ticks[event_index] != -1)
+				{
+					start_tick = track.get(event_index).getTick();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int compareTo(TrackNoteCursor other)
+		{
+			if (start_tick != other.start_tick)
+				return Long.compare(start_tick, other.start_tick);
+			return Integer.compare(track_index, other.track_index);
+		}
+	}
+
+	/**
+	 * The unique values that a single file has for each of the quantities checked by consistency reports,
+	 * which is all that needs to be kept of a file once it has been parsed in order to report on its
+	 * intraconsistency and its interconsistency with other files.
+	 */
+	private static final class ConsistencySummary
+	{
+		/**
+		 * The unique values found in the file for each quantity, indexed by the *_quantity fields. Duplicate
+		 * message values are removed (e.g. if multiple time signature message indicating time signature of
+		 * 3/4 occur, 3/4 will still only be included once). Values of null for a given quantity indicate
+		 * that there are no messages of the given type in the file.
+		 */
+		final String[][] unique_values;
+
+		/**
+		 * Note all the relevant MIDI messages in the file parsed by the given reporter, and their associated
+		 * values.
+		 *
+		 * @param reporter	A reporter on the file to summarize.
+		 */
+		ConsistencySummary(MIDIReporter reporter)
+		{
+			unique_values = new String[consistency_quantity_headings.length][];
+
+			// The MIDI tracks in this file
+			Track[] tracks = reporter.getMidiTracks();
+	
+			// Note the General MIDI patches referred to by program change messages in each track and channel,
+			// with repetition (at first, at least). Also note the total number of MIDI Note On messages
+			// (to help detect program change multiplexing on individual channels).
+			LinkedList<String>[][] patches_per_channel_per_track = new LinkedList[tracks.length][16];
+			long[][] note_on_count = new long[tracks.length][16];
+			for (int track = 0; track < patches_per_channel_per_track.length; track++)
+				for (int chan = 0; chan < patches_per_channel_per_track[track].length; chan++)
+				{
+					patches_per_channel_per_track[track][chan] = new LinkedList<>();
+					note_on_count[track][chan] = 0;
+				}
+		
+			// Prepare lists to hold the values for each relevant type of MIDI message found in this file
+			LinkedList<String> tempo_values = new LinkedList<>();
+			LinkedList<String> time_signature_values = new LinkedList<>();
+			LinkedList<String> key_signature_values = new LinkedList<>();
+			LinkedList<String> general_midi_patch_values = new LinkedList<>();
+			LinkedList<String> channel_volume_values = new LinkedList<>();
+			LinkedList<String> velocity_values = new LinkedList<>();
+			LinkedList<String> pitch_bend_values = new LinkedList<>();
+			LinkedList<String> multiplexed_track_channels = new LinkedList<>();
+		
+			// Go through the MIDI tracks one by one
+			for (int tr = 0; tr < tracks.length; tr++)
+			{	
+				// Go through each MIDI event in this track
+				for (int ev = 0; ev < tracks[tr].size(); ev++)
+				{
+					// The MIDI message associated with this MIDI event
+					MidiMessage message = tracks[tr].get(ev).getMessage();
+				
+					// If this MIDI message is a MetaMessage
+					if (message instanceof MetaMessage)
+					{
+						// The data bytes of this MetaMessage
+						byte[] data = ((MetaMessage) message).getData();
+
+						// If this is a tempo meta-message, then note it
+						if (((MetaMessage) message).getType() == 0x51)
+						{
+							// Find tempo in microseconds per beat
+							int ms_tempo = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+
+							// Convert to beats per minute
+							float ms_tempo_float = (float) ms_tempo;
+							if (ms_tempo_float <= 0) ms_tempo_float = 0.1f;
+							int tempo_bpm = (int) Math.round(60000000.0f / ms_tempo_float);
+
+							// Note the tempo
+							tempo_values.add((new Integer(tempo_bpm)).toString());
+						}
+					
+						// If this is a time signature meta-message, then note it
+						if (((MetaMessage) message).getType() == 0x58)
+						{
+							// The time signature numerator and denominator
+							int time_signature_numerator = (int) (data[0] & 0xFF);
+							int time_signature_denominator = (int) (1 << (data[1] & 0xFF));
+
+							// Note the time signature
+							time_signature_values.add(time_signature_numerator + "/" + time_signature_denominator);
+						}
+					
+						// If this is a key signature meta-message, then note it
+						if (((MetaMessage) message).getType() == 0x59)
+						{
+							// Interpret the key signature as major or minor
+							String key_signture_info;
+							if (data[1] == 0) key_signture_info = "Major with ";
+							else key_signture_info = "Minor with ";
+
+							// Interpret the key signature in terms of number of accidentals
+							int number_accidentals = data[0];
+							if (number_accidentals == 0)
+								key_signture_info += (number_accidentals + " accidentals");
+							else if (number_accidentals < 0)
+								key_signture_info += (-1 * number_accidentals + " flats");
+							else 
+								key_signture_info += (number_accidentals + " sharps");
+
+							// Note the key signature
+							key_signature_values.add(key_signture_info);
+						}
+					}
+				
+					// If this is a ShortMessage
+					if (message instanceof ShortMessage)
+					{
+						// This ShortMessage
+						ShortMessage short_message = (ShortMessage) message;
+
+						// This MIDI channel
+						int channel = short_message.getChannel();
+
+						// If this is a MIDI Program Change message
+						if (short_message.getCommand() == 0xc0)
+						{
+							// The General MIDI patch number for this program change message
+							int patch_number = short_message.getData1() + 1;
+
+							// Note the General MIDI patch
+							general_midi_patch_values.add((new Integer(patch_number)).toString());
+
+							// Note the patch in this particular track and channel
+							patches_per_channel_per_track[tr][channel].add((new Integer(patch_number)).toString());
+						}
+
+						// If this is a MIDI Channel Volume message
+						if (short_message.getCommand() == 0xb0 && short_message.getData1() == 7)
+						{
+							// The channel volume
+							long channel_volume = short_message.getData2();
+
+							// Note the channel volume
+							channel_volume_values.add((new Long(channel_volume)).toString());
+						}
+					
+						// If this is a non-terminal (i.e. has a non-zero velocity) MIDI Note On message
+						if (short_message.getCommand() == 0x90) // note on
+						{
+							if (short_message.getData2() != 0) // not velocity 0
+							{
+								// The velocity of this MIDI Note On
+								int velocity = short_message.getData2();
+
+								// Note the General MIDI patch
+								velocity_values.add((new Integer(velocity)).toString());
+							
+								// Count this note
+								note_on_count[tr][channel]++;
+							}
+						}
+
+						// If this ShortMessage is a MIDI Pitch Bend message
+						else if (short_message.getCommand() == 0xe0)
+						{
+							// The (second byte) value of the pitch bend (the less significant
+							// first byte is ignored)
+							int pitch_bend_value = short_message.getData2();
+
+							// Note the General MIDI patch
+							pitch_bend_values.add((new Integer(pitch_bend_value)).toString());
+						}						
+					}					
+				}
+			}
+
+			// Calculate and store the total number of voices found in the piece. Each channel on each track
+			// that contains at least one MIDI Note On is considered a separate voice. Also counts multiple
+			// voices found on a single track and channel (via MIDI Program Change multiplexing with different
+			// MIDI patches). If no General MIDI patch is specified for a given track and channel that 
+			// contains Note Ons, then that track and channel is counted as a single voice. The same channel
+			// used on multiple different tracks will be counted a multiple different voices. Also keep track
+			// separately of which track channels are multiplexed
+			long total_separate_voices_count = 0;
+			for (int track = 0; track < patches_per_channel_per_track.length; track++)
+				for (int chan = 0; chan < patches_per_channel_per_track[track].length; chan++)
+				{
+					if (note_on_count[track][chan] != 0)
+					{
+						// In case notes occur, but with the MIDI patch left unspecified
+						int multiplexed_voices_on_this_track_channel = 1; 
+				
+						// Find the number of unique General MIDI patches on this track an dchannel
+						String[] patches_this_channel_per_track_doubles_removed = StringMethods.getUniqueStrings(patches_per_channel_per_track[track][chan].toArray(new String[patches_per_channel_per_track[track][chan].size()]));
+						if ( patches_this_channel_per_track_doubles_removed != null &&
+							 patches_this_channel_per_track_doubles_removed.length != 0 )
+						{
+							multiplexed_voices_on_this_track_channel = patches_this_channel_per_track_doubles_removed.length;
+							if (multiplexed_voices_on_this_track_channel > 1)
+								multiplexed_track_channels.add("Track " + track + " Chan " + chan);
+						}
+						total_separate_voices_count += multiplexed_voices_on_this_track_channel;
+					}
+				}
+			unique_values[voices_quantity] = new String[] { (new Long(total_separate_voices_count)).toString() };
+			if (!multiplexed_track_channels.isEmpty())
+				unique_values[multiplexed_track_channels_quantity] = multiplexed_track_channels.toArray(new String[multiplexed_track_channels.size()]);
+			else unique_values[multiplexed_track_channels_quantity] = null;
+		
+			// Report on whether there are any MIDI Channel 10 (unpitched) notes played
+			unique_values[channel_10_quantity] = new String[] { "Not present in file" };
+			for (boolean[] channels_on_this_track : reporter.getActiveChannelsPerTrack())
+				if (channels_on_this_track[10-1])
+					unique_values[channel_10_quantity] = new String[] { "Present" };
+		
+			// Do rhythmic value offset processing
+			double[] rhythmic_value_offsets = getRhytmicValueOffsets(reporter.getMidiSequence());
+			double median_rhthymic_value_offset = MathAndStatsMethods.getMedianValue(rhythmic_value_offsets);
+			double rhthymic_value_offset_stdev = MathAndStatsMethods.getStandardDeviation(rhythmic_value_offsets);
+			DecimalFormat formatter = new java.text.DecimalFormat("#.###");
+			unique_values[median_rhythmic_offset_quantity] = new String[] { formatter.format(median_rhthymic_value_offset) };
+			unique_values[rhythmic_offset_stdev_quantity] = new String[] { formatter.format(rhthymic_value_offset_stdev) };
+		
+			// Report on whether any MIDI tracks include MIDI channel messages on a MIDI channel that also
+			// has MIDI channel messages on the same channel on another MIDI track
+			LinkedList<String> chans_duplicated_on_multiple_tracks = new LinkedList<>();
+			LinkedList<Integer>[] tracks_using_each_channel = new LinkedList[16];
+			for (int ch = 0; ch < tracks_using_each_channel.length; ch++)
+				tracks_using_each_channel[ch] = new LinkedList<>();
+			boolean[][] active_channels_per_track = reporter.getActiveChannelsPerTrack();
+			for (int tr = 0; tr < active_channels_per_track.length; tr++)
+				for (int ch = 0; ch < active_channels_per_track[tr].length; ch++)
+					if (active_channels_per_track[tr][ch])
+						tracks_using_each_channel[ch].add(tr);
+			for (int ch = 0; ch < tracks_using_each_channel.length; ch++)
+				if (tracks_using_each_channel[ch].size() > 1)
+					chans_duplicated_on_multiple_tracks.add((new Integer(ch)).toString());
+			if (!chans_duplicated_on_multiple_tracks.isEmpty())
+				unique_values[duplicated_channels_quantity] = chans_duplicated_on_multiple_tracks.toArray(new String[chans_duplicated_on_multiple_tracks.size()]);
+			else unique_values[duplicated_channels_quantity] = null;
+				
+			// Store the MIDI file type of this file
+			MidiFileFormat this_midi_file_format = reporter.getMidiFileFormat();
+			if (this_midi_file_format == null)
+				unique_values[midi_file_type_quantity] = new String[] { "MEI (translated into MIDI for this report)" };
+			else
+				unique_values[midi_file_type_quantity] = new String[] { Integer.toString(this_midi_file_format.getType()) };
+		
+			// Store the MIDI message values found for this file, removing duplicates
+			unique_values[tempo_quantity] = StringMethods.getUniqueStrings(tempo_values.toArray(new String[tempo_values.size()]));
+			unique_values[time_signature_quantity] = StringMethods.getUniqueStrings(time_signature_values.toArray(new String[time_signature_values.size()]));
+			unique_values[key_signature_quantity] = StringMethods.getUniqueStrings(key_signature_values.toArray(new String[key_signature_values.size()]));
+			unique_values[general_midi_patch_quantity] = StringMethods.getUniqueStrings(general_midi_patch_values.toArray(new String[general_midi_patch_values.size()]));
+			unique_values[channel_volume_quantity] = StringMethods.getUniqueStrings(channel_volume_values.toArray(new String[channel_volume_values.size()]));
+			unique_values[velocity_quantity] = StringMethods.getUniqueStrings(velocity_values.toArray(new String[velocity_values.size()]));
+			unique_values[pitch_bend_quantity] = StringMethods.getUniqueStrings(pitch_bend_values.toArray(new String[pitch_bend_values.size()]));
+		}
+	}
+
+
+	/**
+	 * The distinct value sets found for one of the quantities checked by consistency reports, across a
+	 * number of files, along with the indices of the files that have each of them. Value sets that differ
+	 * only in the order of their values are considered to be the same.
+	 */
+	private static final class ValueSetTally
+	{
+		/**
+		 * The distinct value sets found so far, in the order that they were first found, keyed by their
+		 * values in sorted order, separated by null characters.
+		 */
+		private final LinkedHashMap<String, ValueSet> value_sets = new LinkedHashMap<>();
+
+		/**
+		 * Note that the specified file has the given value set.
+		 *
+		 * @param unique_values	The unique values that the file has. May be null (or hold a single null
+		 *						entry), in which case the file is marked as not having the quantity, which
+		 *						itself acts as a unique value set.
+		 * @param file			The index of the file.
+		 */
+		void add(String[] unique_values, int file)
+		{
+			if (unique_values == null || (unique_values.length == 1 && unique_values[0] == null))
+				unique_values = new String[] { "Not present in file" };
+
+			String[] sorted_values = unique_values.clone();
+			Arrays.sort(sorted_values);
+			String key = String.join("\u0000", sorted_values);
+
+			ValueSet value_set = value_sets.get(key);
+			if (value_set == null)
+			{
+				value_set = new ValueSet(unique_values);
+				value_sets.put(key, value_set);
+			}
+			value_set.addFile(file);
+		}
+
+		/**
+		 * @return	The number of distinct value sets found.
+		 */
+		int getNumberOfValueSets()
+		{
+			return value_sets.size();
+		}
+
+		/**
+		 * @return	The distinct value sets found, in the order that they were first found.
+		 */
+		Collection<ValueSet> getValueSets()
+		{
+			return value_sets.values();
+		}
+	}
+
+
+	/**
+	 * A distinct value set found by a ValueSetTally, and the indices of the files that have it.
+	 */
+	private static final class ValueSet
+	{
+		/**
+		 * The values, in the order in which they were found in the first file that has them.
+		 */
+		final String[] values;
+
+		/**
+		 * The indices of the files that have this value set, in the order that they were added. Only the
+		 * first number_of_files entries are used.
+		 */
+		int[] file_indices;
+		int number_of_files;
+
+		/**
+		 * @param values	The values.
+		 */
+		ValueSet(String[] values)
+		{
+			this.values = values;
+			file_indices = new int[4];
+			number_of_files = 0;
+		}
+
+		/**
+		 * Note that the specified file has this value set.
+		 *
+		 * @param file	The index of the file.
+		 */
+		void addFile(int file)
+		{
+			if (number_of_files == file_indices.length)
+				file_indices = Arrays.copyOf(file_indices, 2 * file_indices.length);
+			file_indices[number_of_files++] = file;
+		}
+	}
 }
\ No newline at end of file
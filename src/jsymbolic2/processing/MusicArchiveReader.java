@@ -0,0 +1,558 @@
+package jsymbolic2.processing;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the files held in a zip, tar or gzipped tar archive directly into memory, without extracting them to
+ * disk. Entries are visited one at a time with nextEntry, and the contents of the current entry are read
+ * with readEntry.
+ *
+ * <p>Tar archives (gzipped or not) can only be read sequentially, so readEntry must be called on the thread
+ * iterating over the entries, before moving on to the next one. Zip archives are random access, so each of
+ * their entries can also be read by name with readEntry(String), concurrently from any number of threads
+ * (entries are decompressed in the calling thread). isRandomAccess indicates which is the case.</p>
+ *
+ * <p>Each entry is identified by an archive-qualified File (see getEntryFile), whose path consists of the
+ * archive's path followed by ! and the entry's path within the archive (e.g. corpus.zip!/a/b.mid). Such
+ * Files do not refer to files on disk, and are only used to identify entries (e.g. as data_set_id values in
+ * ACE XML feature values files).</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class MusicArchiveReader
+	implements Closeable
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The size of tar headers and data blocks.
+	 */
+	private static final int tar_block_size = 512;
+
+	/**
+	 * The maximum size of an archive entry that can be read into memory.
+	 */
+	private static final long maximum_entry_size = Integer.MAX_VALUE - 8;
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The archive being read.
+	 */
+	private final File archive;
+
+	/**
+	 * The archive, if it is a zip archive. Null otherwise.
+	 */
+	private final ZipFile zip_file;
+
+	/**
+	 * The zip archive's entries that have not yet been visited. Null if this is not a zip archive.
+	 */
+	private final Enumeration<? extends ZipEntry> zip_entries;
+
+	/**
+	 * The stream that the archive is read from, if it is a tar archive. Null otherwise.
+	 */
+	private final InputStream tar_stream;
+
+	/**
+	 * A buffer holding the current tar header.
+	 */
+	private final byte[] tar_header;
+
+	/**
+	 * The path of the current entry within the archive. Null before the first call to nextEntry, and after
+	 * the last entry.
+	 */
+	private String entry_name;
+
+	/**
+	 * The size of the current entry in bytes, or -1 if it is unknown.
+	 */
+	private long entry_size;
+
+	/**
+	 * The number of bytes of the current tar entry's data (including padding) that have not yet been read.
+	 */
+	private long tar_bytes_remaining;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Open the given archive. Archives whose names end with .zip are read as zip archives, and all others as
+	 * tar archives (which are decompressed first if they are gzipped).
+	 *
+	 * @param archive		The archive to read.
+	 * @throws IOException	Thrown if the archive cannot be opened.
+	 */
+	public MusicArchiveReader(File archive)
+		throws IOException
+	{
+		this.archive = archive;
+		tar_header = new byte[tar_block_size];
+		entry_name = null;
+		entry_size = -1;
+		tar_bytes_remaining = 0;
+		if (archive.getName().toLowerCase().endsWith(".zip"))
+		{
+			zip_file = new ZipFile(archive);
+			zip_entries = zip_file.entries();
+			tar_stream = null;
+		}
+		else
+		{
+			zip_file = null;
+			zip_entries = null;
+			InputStream stream = new BufferedInputStream(new FileInputStream(archive), 64 * 1024);
+			try
+			{
+				stream.mark(2);
+				boolean gzipped = stream.read() == 0x1F && stream.read() == 0x8B;
+				stream.reset();
+				tar_stream = gzipped ? new BufferedInputStream(new GZIPInputStream(stream, 64 * 1024), 64 * 1024) : stream;
+			}
+			catch (IOException e)
+			{
+				stream.close();
+				throw e;
+			}
+		}
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	The archive being read.
+	 */
+	public File getArchive()
+	{
+		return archive;
+	}
+
+
+	/**
+	 * @return	True if entries can be read by name with readEntry(String) from any thread (i.e. this is a zip
+	 *			archive), false if they can only be read sequentially with readEntry().
+	 */
+	public boolean isRandomAccess()
+	{
+		return zip_file != null;
+	}
+
+
+	/**
+	 * Move on to the next file in the archive. Directories and other special entries are skipped.
+	 *
+	 * @return				The path of the next file within the archive, or null if there are no more files.
+	 * @throws IOException	Thrown if the archive cannot be read or is not a valid archive.
+	 */
+	public String nextEntry()
+		throws IOException
+	{
+		entry_name = null;
+		entry_size = -1;
+		if (zip_file != null)
+		{
+			while (zip_entries.hasMoreElements())
+			{
+				ZipEntry entry = zip_entries.nextElement();
+				if (!entry.isDirectory())
+				{
+					entry_name = entry.getName();
+					entry_size = entry.getSize();
+					return entry_name;
+				}
+			}
+			return null;
+		}
+		return nextTarEntry();
+	}
+
+
+	/**
+	 * @return	The size in bytes of the current entry, or -1 if it is unknown.
+	 */
+	public long getEntrySize()
+	{
+		return entry_size;
+	}
+
+
+	/**
+	 * Read the contents of the current entry.
+	 *
+	 * @return				The contents of the current entry.
+	 * @throws IOException	Thrown if there is no current entry, if it has already been read, if it is too
+	 *						large to be held in memory, or if it cannot be read.
+	 */
+	public byte[] readEntry()
+		throws IOException
+	{
+		if (entry_name == null)
+			throw new IOException("There is no current entry to read in " + archive + ".");
+		if (zip_file != null)
+			return readEntry(entry_name);
+
+		if (tar_bytes_remaining != paddedTarSize(entry_size))
+			throw new IOException("The entry " + getEntryFile(entry_name) + " has already been read.");
+		if (entry_size > maximum_entry_size)
+			throw new IOException("The entry " + getEntryFile(entry_name) + " is too large to be read.");
+		byte[] contents = new byte[(int) entry_size];
+		readFully(tar_stream, contents, contents.length);
+		tar_bytes_remaining -= contents.length;
+		return contents;
+	}
+
+
+	/**
+	 * Read the contents of the named entry of a zip archive. May be called concurrently from multiple
+	 * threads.
+	 *
+	 * @param name			The path of the entry within the archive.
+	 * @return				The contents of the entry.
+	 * @throws IOException	Thrown if this is not a zip archive, if the entry does not exist or is too large
+	 *						to be held in memory, or if it cannot be read.
+	 */
+	public byte[] readEntry(String name)
+		throws IOException
+	{
+		if (zip_file == null)
+			throw new IOException("Entries of " + archive + " can only be read sequentially.");
+		ZipEntry entry = zip_file.getEntry(name);
+		if (entry == null)
+			throw new IOException("The entry " + getEntryFile(name) + " does not exist.");
+		if (entry.getSize() > maximum_entry_size)
+			throw new IOException("The entry " + getEntryFile(name) + " is too large to be read.");
+
+		try (InputStream stream = zip_file.getInputStream(entry))
+		{
+			if (entry.getSize() >= 0)
+			{
+				byte[] contents = new byte[(int) entry.getSize()];
+				readFully(stream, contents, contents.length);
+				return contents;
+			}
+			byte[] contents = new byte[8192];
+			int length = 0;
+			int read;
+			while ((read = stream.read(contents, length, contents.length - length)) != -1)
+			{
+				length += read;
+				if (length == contents.length)
+				{
+					if (contents.length >= maximum_entry_size)
+						throw new IOException("The entry " + getEntryFile(name) + " is too large to be read.");
+					contents = Arrays.copyOf(contents, (int) Math.min(maximum_entry_size, 2L * contents.length));
+				}
+			}
+			return Arrays.copyOf(contents, length);
+		}
+	}
+
+
+	/**
+	 * @param name	The path of an entry within the archive.
+	 * @return		An archive-qualified File identifying the entry, as described in the class description.
+	 */
+	public File getEntryFile(String name)
+	{
+		return getEntryFile(archive, name);
+	}
+
+
+	/**
+	 * Close the archive. Entries of zip archives cannot be read after this.
+	 *
+	 * @throws IOException	Thrown if the archive cannot be closed.
+	 */
+	@Override
+	public void close()
+		throws IOException
+	{
+		if (zip_file != null)
+			zip_file.close();
+		else tar_stream.close();
+	}
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * @param archive	An archive.
+	 * @param name		The path of an entry within the archive.
+	 * @return			An archive-qualified File identifying the entry, as described in the class
+	 *					description.
+	 */
+	public static File getEntryFile(File archive, String name)
+	{
+		while (name.startsWith("./"))
+			name = name.substring(2);
+		while (name.startsWith("/"))
+			name = name.substring(1);
+		return new File(archive.getAbsolutePath() + "!" + File.separator + name);
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Skip any unread data of the current tar entry and read the headers of the next regular file in the
+	 * archive. GNU long names and POSIX extended (pax) path headers are supported.
+	 *
+	 * @return				The path of the next file within the archive, or null if there are no more files.
+	 * @throws IOException	Thrown if the archive cannot be read or is not a valid tar archive.
+	 */
+	private String nextTarEntry()
+		throws IOException
+	{
+		String long_name = null;
+		while (true)
+		{
+			skipFully(tar_stream, tar_bytes_remaining);
+			tar_bytes_remaining = 0;
+
+			// Read the header, and stop at the end-of-archive marker (or at the end of an unterminated archive)
+			int read = readAsMuchAsPossible(tar_stream, tar_header, tar_block_size);
+			if (read == 0 || isZeroBlock(tar_header))
+				return null;
+			if (read < tar_block_size)
+				throw new EOFException(archive + " is not a valid tar archive: it ends unexpectedly.");
+			if (!hasValidTarChecksum(tar_header))
+				throw new IOException(archive + " is not a valid tar archive.");
+
+			long size = parseTarNumber(tar_header, 124, 12);
+			char type = (char) tar_header[156];
+			tar_bytes_remaining = paddedTarSize(size);
+
+			if (type == 'L' || type == 'x')
+			{
+				// Read the long name of the next entry
+				if (size > 1024 * 1024)
+					throw new IOException(archive + " is not a valid tar archive: a header is too large.");
+				byte[] data = new byte[(int) size];
+				readFully(tar_stream, data, data.length);
+				tar_bytes_remaining -= data.length;
+				String name = (type == 'L') ? parseTarString(data, 0, data.length) : parsePaxPath(data);
+				if (name != null)
+					long_name = name;
+			}
+			else if (type == '0' || type == '\0' || type == '7')
+			{
+				String name = long_name;
+				if (name == null)
+				{
+					name = parseTarString(tar_header, 0, 100);
+					String prefix = parseTarString(tar_header, 345, 155);
+					boolean is_ustar = tar_header[257] == 'u' && tar_header[258] == 's' && tar_header[259] == 't' && tar_header[260] == 'a' && tar_header[261] == 'r';
+					if (is_ustar && !prefix.isEmpty())
+						name = prefix + "/" + name;
+				}
+				entry_name = name;
+				entry_size = size;
+				return entry_name;
+			}
+			else long_name = null;
+		}
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * @param size	The size of a tar entry's data.
+	 * @return		The size of the entry's data when padded to a whole number of blocks.
+	 */
+	private static long paddedTarSize(long size)
+	{
+		return ((size + tar_block_size - 1) / tar_block_size) * tar_block_size;
+	}
+
+
+	/**
+	 * @param block	A tar block.
+	 * @return		Whether every byte of block is 0.
+	 */
+	private static boolean isZeroBlock(byte[] block)
+	{
+		for (byte value : block)
+			if (value != 0)
+				return false;
+		return true;
+	}
+
+
+	/**
+	 * @param header	A tar header.
+	 * @return			Whether the header's checksum (the sum of its bytes, with the checksum field itself
+	 *					counted as spaces) is correct. Both unsigned and signed sums are accepted, as some older
+	 *					archivers used the latter.
+	 */
+	private static boolean hasValidTarChecksum(byte[] header)
+	{
+		long stored_checksum = parseTarNumber(header, 148, 8);
+		long unsigned_sum = 0;
+		long signed_sum = 0;
+		for (int i = 0; i < tar_block_size; i++)
+		{
+			byte value = (i >= 148 && i < 156) ? (byte) ' ' : header[i];
+			unsigned_sum += value & 0xFF;
+			signed_sum += value;
+		}
+		return stored_checksum == unsigned_sum || stored_checksum == signed_sum;
+	}
+
+
+	/**
+	 * Parse a numeric tar header field. These are normally octal ASCII, but the GNU base-256 encoding (used
+	 * for sizes of 8 GB or more) is also supported.
+	 *
+	 * @param header	A tar header.
+	 * @param offset	The offset of the field.
+	 * @param length	The length of the field.
+	 * @return			The value of the field.
+	 */
+	private static long parseTarNumber(byte[] header, int offset, int length)
+	{
+		if ((header[offset] & 0x80) != 0)
+		{
+			long value = header[offset] & 0x3F;
+			for (int i = offset + 1; i < offset + length; i++)
+				value = (value << 8) | (header[i] & 0xFF);
+			return value;
+		}
+		int position = offset;
+		while (position < offset + length && header[position] == ' ')
+			position++;
+		long value = 0;
+		while (position < offset + length && header[position] >= '0' && header[position] <= '7')
+			value = (value << 3) + (header[position++] - '0');
+		return value;
+	}
+
+
+	/**
+	 * @param data		Bytes holding a tar string field.
+	 * @param offset	The offset of the field.
+	 * @param length	The maximum length of the field.
+	 * @return			The UTF-8 string held in the field, up to its first null byte.
+	 */
+	private static String parseTarString(byte[] data, int offset, int length)
+	{
+		int end = offset;
+		while (end < offset + length && data[end] != 0)
+			end++;
+		return new String(data, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Find the path record in the data of a POSIX extended (pax) header. This consists of records of the
+	 * form "length key=value\n", where length is the decimal length of the whole record.
+	 *
+	 * @param data	The data of the header.
+	 * @return		The value of the path record, or null if there is none.
+	 */
+	private static String parsePaxPath(byte[] data)
+	{
+		int position = 0;
+		while (position < data.length)
+		{
+			int space = position;
+			while (space < data.length && data[space] != ' ')
+				space++;
+			int record_length;
+			try { record_length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.UTF_8)); }
+			catch (NumberFormatException e) { return null; }
+			if (record_length <= 0 || position + record_length > data.length)
+				return null;
+			String record = new String(data, space + 1, position + record_length - space - 2, StandardCharsets.UTF_8);
+			if (record.startsWith("path="))
+				return record.substring(5);
+			position += record_length;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Read from stream until buffer holds length bytes or the stream ends.
+	 *
+	 * @param stream		The stream to read from.
+	 * @param buffer		The buffer to read into.
+	 * @param length		The number of bytes to read.
+	 * @return				The number of bytes read.
+	 * @throws IOException	Thrown if the stream cannot be read.
+	 */
+	private static int readAsMuchAsPossible(InputStream stream, byte[] buffer, int length)
+		throws IOException
+	{
+		int total = 0;
+		int read;
+		while (total < length && (read = stream.read(buffer, total, length - total)) != -1)
+			total += read;
+		return total;
+	}
+
+
+	/**
+	 * Read exactly length bytes from stream into buffer.
+	 *
+	 * @param stream		The stream to read from.
+	 * @param buffer		The buffer to read into.
+	 * @param length		The number of bytes to read.
+	 * @throws IOException	Thrown if the stream cannot be read, or ends before length bytes are read.
+	 */
+	private static void readFully(InputStream stream, byte[] buffer, int length)
+		throws IOException
+	{
+		if (readAsMuchAsPossible(stream, buffer, length) < length)
+			throw new EOFException("The archive ends unexpectedly.");
+	}
+
+
+	/**
+	 * Skip exactly length bytes of stream.
+	 *
+	 * @param stream		The stream to skip bytes of.
+	 * @param length		The number of bytes to skip.
+	 * @throws IOException	Thrown if the stream cannot be read, or ends before length bytes are skipped.
+	 */
+	private static void skipFully(InputStream stream, long length)
+		throws IOException
+	{
+		while (length > 0)
+		{
+			long skipped = stream.skip(length);
+			if (skipped <= 0)
+			{
+				if (stream.read() == -1)
+					throw new EOFException("The archive ends unexpectedly.");
+				skipped = 1;
+			}
+			length -= skipped;
+		}
+	}
+}
@@ -0,0 +1,537 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds and validates MIDI and MEI files in a set of files and directories, and hands them over one at a time
+ * as soon as each is validated, so that features can be extracted from the first files while later ones are
+ * still being found. This avoids a long delay before extraction starts when a large corpus (e.g. one on a
+ * network file system) is processed.
+ *
+ * <p>Once start is called, a background thread traverses each specified directory recursively with
+ * Files.walkFileTree, and each file found that passes the file filter (as well as each file specified
+ * directly, which is not subjected to the filter) is submitted to a pool of threads that probe it with
+ * SymbolicMusicFileUtilities.probeMusicFile. Files are handed over by next in the order in which they were
+ * found, regardless of the order in which their probes complete. At most queue_capacity files can be awaiting
+ * retrieval at a time, so traversal pauses if files are not retrieved as fast as they are found.</p>
+ *
+ * <p>Archives (as identified by MusicFilter.isArchive) are not probed themselves. Instead, each of their
+ * entries that has a MIDI or MEI extension is read into memory with MusicArchiveReader and probed, and is
+ * handed over as an archive-qualified ProbedMusicFile (so it is never extracted to disk). Entries of tar
+ * archives must be read sequentially by the traversal thread, but entries of zip archives are read and
+ * decompressed in parallel by the probing threads.</p>
+ *
+ * <p>The next method and the getters of this class are meant to be called from a single thread. Problems
+ * encountered during traversal are added to the error log (and printed) by that thread, from within next.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class MusicFileDiscoverer
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The maximum number of found files that can be waiting to be retrieved by next.
+	 */
+	private static final int queue_capacity = 1024;
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The files and directories to search.
+	 */
+	private final List<File> files_and_directories;
+
+	/**
+	 * The filter through which files found in directories must pass in order to be probed.
+	 */
+	private final FileFilter file_filter;
+
+	/**
+	 * The threads that probe files as they are found.
+	 */
+	private final ExecutorService probing_threads;
+
+	/**
+	 * Files that have been found, in the order that they were found, along with the results of their probes.
+	 * The traversal thread adds end_of_traversal once traversal is complete.
+	 */
+	private final BlockingQueue<FoundFile> found_files;
+
+	/**
+	 * Marks the end of found_files.
+	 */
+	private final FoundFile end_of_traversal;
+
+	/**
+	 * Problems encountered by the traversal thread that have not yet been reported by next. Accessed only
+	 * while synchronized on itself.
+	 */
+	private final List<String> unreported_errors;
+
+	/**
+	 * The number of files found so far that were submitted for probing.
+	 */
+	private final AtomicInteger number_of_files_found;
+
+	/**
+	 * Set to true by close in order to stop traversal.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * The thread that traverses files_and_directories. Null until start is called.
+	 */
+	private Thread traversal_thread;
+
+	/**
+	 * The files returned by next so far that were not MIDI or MEI files.
+	 */
+	private final ArrayList<File> invalid_files;
+
+	/**
+	 * The number of valid files returned by next so far.
+	 */
+	private int number_of_valid_files_returned;
+
+	/**
+	 * Whether next has already returned null.
+	 */
+	private boolean finished;
+
+	/**
+	 * A stream to print traversal problems to. May be null.
+	 */
+	private final PrintStream error_print_stream;
+
+	/**
+	 * The list that traversal problems are added to.
+	 */
+	private final List<String> error_log;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Prepare to search the given files and directories. The search does not begin until start is called.
+	 *
+	 * @param files_and_directories	The files and/or directories to search. Files are probed directly.
+	 *								Directories are traversed recursively, and the files in them that pass
+	 *								file_filter are probed.
+	 * @param file_filter			A filter through which files found in directories must pass in order to
+	 *								be probed. Archives that pass it have their entries probed.
+	 * @param number_of_threads		The number of threads to probe files with. If this is less than 1, then
+	 *								twice the number of available processors (and at least 4) is used, as
+	 *								probing is limited by file access rather than by computation.
+	 * @param error_print_stream	A stream to print traversal problems to. May be null, in which case they
+	 *								are still added to error_log.
+	 * @param error_log				A list of errors encountered so far. Traversal problems are added to it.
+	 *								May not be null.
+	 */
+	public MusicFileDiscoverer( List<File> files_and_directories,
+	                            FileFilter file_filter,
+	                            int number_of_threads,
+	                            PrintStream error_print_stream,
+	                            List<String> error_log )
+	{
+		if (number_of_threads < 1)
+			number_of_threads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+		this.files_and_directories = new ArrayList<>(files_and_directories);
+		this.file_filter = file_filter;
+		this.error_print_stream = error_print_stream;
+		this.error_log = error_log;
+		probing_threads = Executors.newFixedThreadPool(number_of_threads, runnable ->
+		{
+			Thread thread = new Thread(runnable, "jSymbolic file probing");
+			thread.setDaemon(true);
+			return thread;
+		});
+		found_files = new ArrayBlockingQueue<>(queue_capacity);
+		end_of_traversal = new FoundFile(null, null);
+		unreported_errors = new ArrayList<>();
+		number_of_files_found = new AtomicInteger(0);
+		closed = false;
+		traversal_thread = null;
+		invalid_files = new ArrayList<>();
+		number_of_valid_files_returned = 0;
+		finished = false;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Start searching for files in a background thread. Has no effect if the search has already started.
+	 */
+	public synchronized void start()
+	{
+		if (traversal_thread != null)
+			return;
+		traversal_thread = new Thread(this::traverse, "jSymbolic file discovery");
+		traversal_thread.setDaemon(true);
+		traversal_thread.start();
+	}
+
+
+	/**
+	 * Return the next valid MIDI or MEI file found, waiting for it to be found and probed if necessary. Files
+	 * that are not valid MIDI or MEI files are skipped, and can be retrieved with getInvalidFilesSoFar.
+	 * Starts the search if this has not already been done.
+	 *
+	 * @return						A handle to the next valid file, referring to its absolute path, or null
+	 *								if all files have been found and returned.
+	 * @throws InterruptedException	Thrown if the calling thread is interrupted while waiting.
+	 */
+	public ProbedMusicFile next()
+		throws InterruptedException
+	{
+		start();
+		while (!finished)
+		{
+			reportErrors();
+			FoundFile found_file = found_files.take();
+			if (found_file == end_of_traversal)
+			{
+				finished = true;
+				reportErrors();
+				break;
+			}
+
+			ProbedMusicFile probed_file;
+			try { probed_file = found_file.probe.get(); }
+			catch (ExecutionException e) { probed_file = null; }
+			if (probed_file != null)
+			{
+				number_of_valid_files_returned++;
+				return probed_file;
+			}
+			invalid_files.add(found_file.file);
+		}
+		return null;
+	}
+
+
+	/**
+	 * @return	Whether all files have been found and returned by next.
+	 */
+	public boolean isFinished()
+	{
+		return finished;
+	}
+
+
+	/**
+	 * @return	The files returned by next so far (or skipped by it) that were not valid MIDI or MEI files.
+	 */
+	public List<File> getInvalidFilesSoFar()
+	{
+		return invalid_files;
+	}
+
+
+	/**
+	 * @return	An estimate of the total number of valid files, based on the files found so far (not all of
+	 *			which have necessarily been probed yet). This is exact once isFinished returns true.
+	 */
+	public int getNumberOfValidFilesFoundSoFar()
+	{
+		if (finished)
+			return number_of_valid_files_returned;
+		return Math.max(number_of_valid_files_returned, number_of_files_found.get() - invalid_files.size());
+	}
+
+
+	/**
+	 * Stop searching for files and release the threads used to do so. Any files not yet returned by next are
+	 * discarded.
+	 */
+	public void close()
+	{
+		closed = true;
+		probing_threads.shutdownNow();
+		synchronized (this)
+		{
+			if (traversal_thread != null)
+				traversal_thread.interrupt();
+		}
+		found_files.clear();
+		finished = true;
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Traverse files_and_directories, submitting each qualifying file for probing and adding it to
+	 * found_files. Run by traversal_thread.
+	 */
+	private void traverse()
+	{
+		try
+		{
+			for (File file_or_directory : files_and_directories)
+			{
+				if (closed)
+					break;
+				File absolute_file = file_or_directory.getAbsoluteFile();
+				if (absolute_file.isDirectory())
+				{
+					try { Files.walkFileTree(absolute_file.toPath(), new DirectoryTraverser()); }
+					catch (IOException e)
+					{
+						addError("Could not traverse files from this folder: " + absolute_file.getPath());
+					}
+				}
+				else if (MusicFilter.isArchive(absolute_file))
+				{
+					if (!submitArchive(absolute_file))
+						break;
+				}
+				else if (!submit(absolute_file, () -> SymbolicMusicFileUtilities.probeMusicFile(absolute_file)))
+					break;
+			}
+		}
+		finally
+		{
+			probing_threads.shutdown();
+			try
+			{
+				while (!closed && !found_files.offer(end_of_traversal, 100, TimeUnit.MILLISECONDS)) {}
+			}
+			catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		}
+	}
+
+
+	/**
+	 * Submit the given file for probing, and add it to found_files, waiting for room if necessary.
+	 *
+	 * @param file	The file to submit.
+	 * @param probe	The task that probes the file.
+	 * @return		False if this object was closed or the traversal thread was interrupted, true otherwise.
+	 */
+	private boolean submit(File file, Callable<ProbedMusicFile> probe)
+	{
+		if (closed)
+			return false;
+		try
+		{
+			Future<ProbedMusicFile> probe_result = probing_threads.submit(probe);
+			found_files.put(new FoundFile(file, probe_result));
+			number_of_files_found.incrementAndGet();
+			return true;
+		}
+		catch (InterruptedException | RejectedExecutionException e)
+		{
+			return false;
+		}
+	}
+
+
+	/**
+	 * Submit each entry of the given archive that has a MIDI or MEI extension for probing, as described in
+	 * the class description. Problems reading the archive are reported, and end the processing of this
+	 * archive only.
+	 *
+	 * @param archive	The archive to submit the entries of.
+	 * @return			False if this object was closed or the traversal thread was interrupted, true otherwise.
+	 */
+	private boolean submitArchive(File archive)
+	{
+		MusicArchiveReader reader;
+		try { reader = new MusicArchiveReader(archive); }
+		catch (IOException e)
+		{
+			addError("Could not read files from this archive: " + archive.getPath() + ". " + e.getMessage());
+			return !closed;
+		}
+
+		// Zip entries are read by the probing threads, so the archive is only closed once the traversal
+		// thread and every submitted probe are done with it (probes discarded by close leave it to be closed
+		// when it is garbage collected)
+		AtomicInteger users = new AtomicInteger(1);
+		try
+		{
+			String entry_name;
+			while ((entry_name = reader.nextEntry()) != null)
+			{
+				if (!MusicFilter.passesFilter(entry_name))
+					continue;
+				File entry_file = reader.getEntryFile(entry_name);
+				Callable<ProbedMusicFile> probe;
+				if (reader.isRandomAccess())
+				{
+					String name = entry_name;
+					users.incrementAndGet();
+					probe = () ->
+					{
+						try { return SymbolicMusicFileUtilities.probeMusicFile(entry_file, reader.readEntry(name)); }
+						finally { releaseArchive(reader, users); }
+					};
+				}
+				else
+				{
+					byte[] contents = reader.readEntry();
+					probe = () -> SymbolicMusicFileUtilities.probeMusicFile(entry_file, contents);
+				}
+				if (!submit(entry_file, probe))
+					return false;
+			}
+			return true;
+		}
+		catch (IOException e)
+		{
+			addError("Could not read files from this archive: " + archive.getPath() + ". " + e.getMessage());
+			return !closed;
+		}
+		finally
+		{
+			releaseArchive(reader, users);
+		}
+	}
+
+
+	/**
+	 * Indicate that a user of the given archive is done with it, and close it if this was the last user.
+	 *
+	 * @param reader	The archive.
+	 * @param users		The number of users of the archive.
+	 */
+	private static void releaseArchive(MusicArchiveReader reader, AtomicInteger users)
+	{
+		if (users.decrementAndGet() == 0)
+		{
+			try { reader.close(); }
+			catch (IOException e) {}
+		}
+	}
+
+
+	/**
+	 * Record a problem encountered during traversal, to be reported by the next call to next.
+	 *
+	 * @param error_message	A description of the problem.
+	 */
+	private void addError(String error_message)
+	{
+		synchronized (unreported_errors)
+		{
+			unreported_errors.add(error_message);
+		}
+	}
+
+
+	/**
+	 * Print any unreported traversal problems and add them to error_log.
+	 */
+	private void reportErrors()
+	{
+		List<String> to_report;
+		synchronized (unreported_errors)
+		{
+			if (unreported_errors.isEmpty())
+				return;
+			to_report = new ArrayList<>(unreported_errors);
+			unreported_errors.clear();
+		}
+		for (String error_message : to_report)
+		{
+			if (error_print_stream != null)
+				UserFeedbackGenerator.printWarningMessage(error_print_stream, error_message);
+			error_log.add(error_message);
+		}
+	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * A file that has been found, along with the pending result of probing it.
+	 */
+	private static class FoundFile
+	{
+		/**
+		 * The file that was found.
+		 */
+		final File file;
+
+		/**
+		 * The result of probing file. Holds null if file is not a MIDI or MEI file.
+		 */
+		final Future<ProbedMusicFile> probe;
+
+		FoundFile(File file, Future<ProbedMusicFile> probe)
+		{
+			this.file = file;
+			this.probe = probe;
+		}
+	}
+
+
+	/**
+	 * Submits each file in a directory tree that passes file_filter. Directories that cannot be read are
+	 * reported and skipped, without ending the traversal.
+	 */
+	private class DirectoryTraverser
+		extends SimpleFileVisitor<Path>
+	{
+		@Override
+		public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+		{
+			return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path path, BasicFileAttributes attributes)
+		{
+			if (attributes.isDirectory())
+				return FileVisitResult.CONTINUE;
+			File file = path.toFile();
+			if (!file_filter.accept(file))
+				return FileVisitResult.CONTINUE;
+			boolean submitted;
+			if (MusicFilter.isArchive(file))
+				submitted = submitArchive(file);
+			else submitted = submit(file, () -> SymbolicMusicFileUtilities.probeMusicFile(file));
+			return submitted ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+		}
+
+		@Override
+		public FileVisitResult visitFileFailed(Path path, IOException exception)
+		{
+			// Called both for files that cannot be read and for folders that cannot be opened
+			if (Files.isDirectory(path))
+				addError("Could not traverse files from this folder: " + path);
+			else addError("Could not read this file: " + path + ". " + exception.getMessage());
+			return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+		}
+	}
+}
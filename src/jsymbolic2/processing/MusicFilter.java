@@ -5,6 +5,8 @@ import java.io.FileFilter;
 
 /**
  * A FileFilter that only accepts files with MIDI or MEI extensions (.mei, .midi or .mid). Case is ignored.
+ * Filters can optionally also accept archives (.zip, .tar, .tar.gz or .tgz) that may hold such files, for use
+ * where archives are read by MusicArchiveReader.
  *
  * @author Tristano Tenaglia and Cory McKay
  */
@@ -12,48 +14,113 @@ public class MusicFilter implements FileFilter
 {
 	/* PRIVATE STATIC FIELDSS *******************************************************************************/
 
-	
+
 	/**
 	 * File extensions that are accepted by this FileFilter.
 	 */
 	private static final String[] accepted_file_extensions = new String[] { ".mei", ".midi", ".mid" };
 
-	
+	/**
+	 * File extensions of archives that are accepted by this FileFilter if accept_archives is true.
+	 */
+	private static final String[] archive_file_extensions = new String[] { ".zip", ".tar", ".tar.gz", ".tgz" };
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * Whether archives are accepted in addition to MIDI and MEI files.
+	 */
+	private final boolean accept_archives;
+
+
+	/* CONSTRUCTORS *****************************************************************************************/
+
+
+	/**
+	 * Create a filter that only accepts MIDI and MEI files.
+	 */
+	public MusicFilter()
+	{
+		this(false);
+	}
+
+
+	/**
+	 * Create a filter that accepts MIDI and MEI files, and optionally archives as well.
+	 *
+	 * @param accept_archives	Whether archives (.zip, .tar, .tar.gz or .tgz) are also accepted.
+	 */
+	public MusicFilter(boolean accept_archives)
+	{
+		this.accept_archives = accept_archives;
+	}
+
+
 	/* PUBLIC METHODS ***************************************************************************************/
 
 
 	/**
 	 * Check to see if the specified file path ends with an accepted extension. These are .mei, .midi or .mid,
-	 * in any case.
-	 * 
+	 * in any case (as well as .zip, .tar, .tar.gz or .tgz if this filter accepts archives).
+	 *
 	 * @param file	The file to check.
 	 * @return		Whether or not the file path ends with an accepted extension.
 	 */
 	@Override
 	public boolean accept(File file)
 	{
-		for (String extension : accepted_file_extensions)
-			if (file.getName().toLowerCase().endsWith(extension))
-				return true;
-		return false;
+		return passesFilter(file) || (accept_archives && isArchive(file));
 	}
 
-	
+
 	/* PUBLIC STATIC METHODS **************(*****************************************************************/
-	
-	
+
+
 	/**
 	 * Check to see if the specified file path ends with an accepted extension. These are .mei, .midi or .mid,
 	 * in any case.
-	 * 
+	 *
 	 * @param file	The file to check.
 	 * @return		Whether or not the file path ends with an accepted extension.
 	 */
 	public static boolean passesFilter(File file)
 	{
+		return passesFilter(file.getName());
+	}
+
+
+	/**
+	 * Check to see if the specified file name (e.g. the name of an entry in an archive) ends with an
+	 * accepted extension. These are .mei, .midi or .mid, in any case.
+	 *
+	 * @param file_name	The file name to check.
+	 * @return			Whether or not the file name ends with an accepted extension.
+	 */
+	public static boolean passesFilter(String file_name)
+	{
+		String lower_case_name = file_name.toLowerCase();
 		for (String extension : accepted_file_extensions)
-			if (file.getName().toLowerCase().endsWith(extension))
+			if (lower_case_name.endsWith(extension))
+				return true;
+		return false;
+	}
+
+
+	/**
+	 * Check to see if the specified file path ends with an archive extension. These are .zip, .tar, .tar.gz
+	 * or .tgz, in any case.
+	 *
+	 * @param file	The file to check.
+	 * @return		Whether or not the file path ends with an archive extension.
+	 */
+	public static boolean isArchive(File file)
+	{
+		String lower_case_name = file.getName().toLowerCase();
+		for (String extension : archive_file_extensions)
+			if (lower_case_name.endsWith(extension))
 				return true;
 		return false;
-	}	
-}
\ No newline at end of file
+	}
+}
@@ -0,0 +1,96 @@
+package jsymbolic2.processing;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An ExtractionPhaseMonitor that accumulates the number of times each phase of feature extraction (each
+ * intermediate representation pass and each feature separately) has been performed, and the total and
+ * maximum time taken by it, across all files. This provides a per-phase breakdown of extraction time on
+ * Java runtimes that do not support FlightRecorderPhaseMonitor.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class PhaseTimingSummaryMonitor
+	extends ExtractionPhaseMonitor
+{
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The timings of each phase, keyed by the phase label followed by a tab and the pass or feature name (if
+	 * any). Each value holds the number of times the phase has been performed, the total nanoseconds taken
+	 * and the maximum nanoseconds taken. Access is synchronized on this map.
+	 */
+	private final Map<String, long[]> timings = new LinkedHashMap<>();
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	A table of the timings of each phase performed so far, ordered by decreasing total time, with
+	 *			one line per phase, each holding the phase, the pass or feature name, the number of times it
+	 *			was performed, and the total, mean and maximum time taken in milliseconds.
+	 */
+	public String getSummary()
+	{
+		List<Map.Entry<String, long[]>> entries;
+		synchronized (timings)
+		{
+			entries = new ArrayList<>();
+			for (Map.Entry<String, long[]> entry : timings.entrySet())
+				entries.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().clone()));
+		}
+		entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+
+		StringBuilder summary = new StringBuilder("\nTIME SPENT IN EACH PHASE OF EXTRACTION:\n");
+		summary.append("Phase\tName\tCount\tTotal (ms)\tMean (ms)\tMax (ms)\n");
+		for (Map.Entry<String, long[]> entry : entries)
+		{
+			long[] timing = entry.getValue();
+			summary.append(entry.getKey()).append('\t').append(timing[0]);
+			summary.append(String.format(Locale.ROOT, "\t%.3f\t%.3f\t%.3f\n", timing[1] / 1.0E6, timing[1] / 1.0E6 / timing[0], timing[2] / 1.0E6));
+		}
+		return summary.toString();
+	}
+
+
+	/* PROTECTED METHODS ************************************************************************************/
+
+
+	/**
+	 * Start timing the given phase.
+	 *
+	 * @param phase		The phase that is beginning.
+	 * @param file_id	An identifier of the file that the phase is operating on. Ignored.
+	 * @param name		The name of the intermediate representation pass or feature, or null.
+	 * @return			A span that adds the time taken to the summary when it ends.
+	 */
+	@Override
+	protected Span begin(Phase phase, String file_id, String name)
+	{
+		String key = phase.label + "\t" + (name == null ? "" : name);
+		long start_time = System.nanoTime();
+		return (tick_length, event_count) ->
+		{
+			long duration = System.nanoTime() - start_time;
+			synchronized (timings)
+			{
+				long[] timing = timings.get(key);
+				if (timing == null)
+				{
+					timing = new long[3];
+					timings.put(key, timing);
+				}
+				timing[0]++;
+				timing[1] += duration;
+				timing[2] = Math.max(timing[2], duration);
+			}
+		};
+	}
+}
@@ -0,0 +1,215 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.util.List;
+import javax.sound.midi.Sequence;
+import org.ddmal.jmei2midi.MeiSequence;
+
+/**
+ * A handle to a music file whose format (MIDI or MEI) has been identified by
+ * SymbolicMusicFileUtilities.probeMusicFile, which only reads the first few bytes of the file. The file is
+ * fully parsed the first time its contents are requested, and the parsed MIDI Sequence (and MeiSequence, for
+ * MEI files) is then kept and reused by all later requests, so that validating a file and then extracting
+ * features from it only requires the file to be read and parsed once.
+ *
+ * <p>A batch of files can thus be validated up front by probing alone, and each file's parsed contents only
+ * need to be held in memory while features are being extracted from it (after which releaseParsedData can be
+ * called).</p>
+ *
+ * <p>A handle can also refer to the contents of a file that has already been read into memory, such as an
+ * entry of an archive read by MusicArchiveReader. In this case the contents are parsed directly, and the
+ * handle's File only identifies them (it is an archive-qualified File for archive entries, and does not
+ * refer to a file on disk).</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class ProbedMusicFile
+{
+	/* PUBLIC ENUMS *****************************************************************************************/
+
+
+	/**
+	 * The formats that a probed file can have.
+	 */
+	public enum Format { MIDI, MEI }
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The probed file.
+	 */
+	private final File file;
+
+	/**
+	 * The format of file, as identified by probing.
+	 */
+	private final Format format;
+
+	/**
+	 * The contents of file, if they have already been read into memory. Null if file is to be read from disk.
+	 */
+	private final byte[] contents;
+
+	/**
+	 * The MIDI sequence parsed from file (directly for MIDI files, or converted from MEI for MEI files). Null
+	 * if file has not been parsed yet.
+	 */
+	private Sequence sequence;
+
+	/**
+	 * The MEI data parsed from file. Null if file has not been parsed yet, or if it is not an MEI file.
+	 */
+	private MeiSequence mei_sequence;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Create a handle to a file of known format. The file is not parsed until its contents are requested.
+	 *
+	 * @param file		The file.
+	 * @param format	The format of file.
+	 */
+	public ProbedMusicFile(File file, Format format)
+	{
+		this(file, format, null);
+	}
+
+
+	/**
+	 * Create a handle to the contents of a file of known format that have already been read into memory.
+	 * The contents are not parsed until they are requested.
+	 *
+	 * @param file		The file that the contents belong to. This is only used to identify them, and need not
+	 *					refer to a file on disk.
+	 * @param format	The format of the contents.
+	 * @param contents	The contents of the file, or null if they are to be read from file. These are not
+	 *					copied, and should not be modified.
+	 */
+	public ProbedMusicFile(File file, Format format, byte[] contents)
+	{
+		this.file = file;
+		this.format = format;
+		this.contents = contents;
+		sequence = null;
+		mei_sequence = null;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * @return	The probed file.
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+
+	/**
+	 * @return	The format of the probed file.
+	 */
+	public Format getFormat()
+	{
+		return format;
+	}
+
+
+	/**
+	 * @return	True if the contents of the file were read into memory in advance (e.g. from an archive), in
+	 *			which case getFile does not necessarily refer to a file on disk. False if the file is read from
+	 *			disk when it is parsed.
+	 */
+	public boolean isHeldInMemory()
+	{
+		return contents != null;
+	}
+
+
+	/**
+	 * @return	True if the probed file is an MEI file, false if it is a MIDI file.
+	 */
+	public boolean isMei()
+	{
+		return format == Format.MEI;
+	}
+
+
+	/**
+	 * Return the MIDI sequence held in the file (converted from MEI if it is an MEI file), parsing the file if
+	 * this has not already been done.
+	 *
+	 * @param error_log		Errors that occur during parsing are added to this list.
+	 * @return				The parsed MIDI sequence.
+	 * @throws Exception	An informative exception is thrown if the file cannot be parsed.
+	 */
+	public Sequence getSequence(List<String> error_log)
+		throws Exception
+	{
+		if (sequence == null)
+			parse(error_log);
+		return sequence;
+	}
+
+
+	/**
+	 * Return the MEI data held in the file, parsing the file if this has not already been done.
+	 *
+	 * @param error_log		Errors that occur during parsing are added to this list.
+	 * @return				The parsed MEI data, or null if this is not an MEI file.
+	 * @throws Exception	An informative exception is thrown if the file cannot be parsed.
+	 */
+	public MeiSequence getMeiSequence(List<String> error_log)
+		throws Exception
+	{
+		if (format != Format.MEI)
+			return null;
+		if (mei_sequence == null)
+			parse(error_log);
+		return mei_sequence;
+	}
+
+
+	/**
+	 * Release the parsed contents of the file, if any, so that they can be garbage collected. The file will be
+	 * parsed again if its contents are requested after this.
+	 */
+	public void releaseParsedData()
+	{
+		sequence = null;
+		mei_sequence = null;
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Parse the file according to its format and store the results.
+	 *
+	 * @param error_log		Errors that occur during parsing are added to this list.
+	 * @throws Exception	An informative exception is thrown if the file cannot be parsed.
+	 */
+	private void parse(List<String> error_log)
+		throws Exception
+	{
+		if (format == Format.MIDI)
+		{
+			if (contents == null)
+				sequence = SymbolicMusicFileUtilities.getMidiSequenceFromMidiFile(file, error_log);
+			else sequence = SymbolicMusicFileUtilities.getMidiSequenceFromMidiFileContents(file, contents, error_log);
+		}
+		else
+		{
+			if (contents == null)
+				mei_sequence = SymbolicMusicFileUtilities.getMeiSequenceFromMeiFile(file, error_log);
+			else mei_sequence = SymbolicMusicFileUtilities.getMeiSequenceFromMeiFileContents(file, contents, error_log);
+			sequence = mei_sequence.getSequence();
+		}
+	}
+}
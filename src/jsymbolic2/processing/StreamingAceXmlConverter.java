@@ -0,0 +1,569 @@
+package jsymbolic2.processing;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import ace.datatypes.FeatureDefinition;
+
+/**
+ * Converts existing ACE XML Feature Values files to Weka ARFF, CSV and/or binary feature values files
+ * without loading them into memory. Unlike AceXmlConverter, which parses an entire ACE XML file into a DataBoard before converting it,
+ * this class reads ACE XML files with a StAX pull parser and passes each instance (a data set or, for
+ * window-based files, a section) on to the same StreamingFeatureValuesWriter implementations that are used
+ * during feature extraction, as soon as it has been read. Memory use is therefore independent of the size of
+ * the files being converted. The resulting files have the same format as those written during extraction.
+ *
+ * <p>Each ACE XML Feature Values file is read twice. The first pass determines the columns to save (i.e.
+ * which features occur, and how many dimensions each has) and whether instances correspond to whole music
+ * files or to analysis windows. The second pass writes the rows. If an ACE XML Feature Definitions file is
+ * available for a feature values file, then it is used to order the columns; otherwise columns are ordered
+ * by first appearance in the feature values file.</p>
+ *
+ * <p>If overall (data set level) feature values are present in a file, then one row is written per data set.
+ * Otherwise, one row is written per section (analysis window), with window start and stop times recorded
+ * where the output format supports them.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public final class StreamingAceXmlConverter
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * Used to instantiate the StAX parsers. External entities and DTD processing are disabled, since ACE XML
+	 * files carry an internal DTD that is not needed for conversion.
+	 */
+	private static final XMLInputFactory xml_input_factory = prepareXmlInputFactory();
+
+
+	/* PUBLIC STATIC METHODS ********************************************************************************/
+
+
+	/**
+	 * Convert each of the given ACE XML Feature Values files to a Weka ARFF, CSV and/or binary feature values
+	 * file, processing up to number_of_threads files concurrently. Each output file is saved to the same path
+	 * as its ACE XML file, with the extension changed (see FeatureExtractionJobProcessor.getMatchingArffSavePath,
+	 * getMatchingCsvSavePath and getMatchingBinarySavePath). If an ACE XML Feature Definitions file exists at the path returned by
+	 * FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath for a given file, then it is
+	 * used to order the columns. A problem converting one file does not stop the conversion of the others.
+	 *
+	 * @param feature_values_file_paths	The paths of the ACE XML Feature Values files to convert.
+	 * @param save_arff					Whether or not to save Weka ARFF files.
+	 * @param save_csv					Whether or not to save CSV files.
+	 * @param save_binary				Whether or not to save binary feature values files.
+	 * @param save_class_labels			Whether or not to give each instance a class label consisting of the
+	 *									name of the directory holding the music file it was extracted from.
+	 * @param number_of_threads			The maximum number of files to convert concurrently. Values below 1
+	 *									are treated as the number of available processors.
+	 * @param status_print_stream		A stream to print progress messages to.
+	 * @param error_print_stream		A stream to print error messages to.
+	 * @param error_log					A list of errors encountered so far. Errors are added to it.
+	 * @return							The number of files successfully converted.
+	 * @throws Exception				Throws an informative exception if no output format is selected.
+	 */
+	public static int convertFiles( List<String> feature_values_file_paths,
+	                                boolean save_arff,
+	                                boolean save_csv,
+	                                boolean save_binary,
+	                                boolean save_class_labels,
+	                                int number_of_threads,
+	                                PrintStream status_print_stream,
+	                                PrintStream error_print_stream,
+	                                List<String> error_log )
+		throws Exception
+	{
+		if (!save_arff && !save_csv && !save_binary)
+			throw new Exception("No output file format has been selected for converting ACE XML Feature Values files.");
+		if (feature_values_file_paths.isEmpty())
+			return 0;
+
+		if (number_of_threads < 1)
+			number_of_threads = Runtime.getRuntime().availableProcessors();
+		number_of_threads = Math.min(number_of_threads, feature_values_file_paths.size());
+
+		ExecutorService executor = Executors.newFixedThreadPool(number_of_threads);
+		try
+		{
+			// Submit a conversion task for each file
+			List<Future<?>> tasks = new ArrayList<>();
+			for (String values_path : feature_values_file_paths)
+			{
+				tasks.add(executor.submit(() ->
+				{
+					String definitions_path = FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(values_path);
+					if (!new File(definitions_path).isFile())
+						definitions_path = null;
+					convertFile(values_path, definitions_path, save_arff, save_csv, save_binary, save_class_labels);
+					return null;
+				}));
+			}
+
+			// Wait for each task to finish, reporting results in submission order
+			int number_converted = 0;
+			for (int i = 0; i < tasks.size(); i++)
+			{
+				String values_path = feature_values_file_paths.get(i);
+				try
+				{
+					tasks.get(i).get();
+					number_converted++;
+					UserFeedbackGenerator.simplePrintln(status_print_stream, "Converted " + values_path + " (" + (i + 1) + " / " + tasks.size() + ")");
+				}
+				catch (Exception e)
+				{
+					Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+					String error_message = "Could not convert " + values_path + ": " + cause.getMessage();
+					UserFeedbackGenerator.printErrorMessage(error_print_stream, error_message);
+					error_log.add(error_message);
+				}
+			}
+			return number_converted;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Convert the given ACE XML Feature Values file to a Weka ARFF, CSV and/or binary feature values file.
+	 * Each output file is saved to the same path as the ACE XML file, with the extension changed.
+	 *
+	 * @param feature_values_file_path		The path of the ACE XML Feature Values file to convert.
+	 * @param feature_definitions_file_path	The path of the matching ACE XML Feature Definitions file. May be
+	 *										null, in which case columns are ordered by first appearance in the
+	 *										feature values file.
+	 * @param save_arff						Whether or not to save a Weka ARFF file.
+	 * @param save_csv						Whether or not to save a CSV file.
+	 * @param save_binary					Whether or not to save a binary feature values file.
+	 * @param save_class_labels				Whether or not to give each instance a class label consisting of
+	 *										the name of the directory holding the music file it was extracted
+	 *										from.
+	 * @throws Exception					Throws an informative exception if the file could not be parsed or
+	 *										the output could not be saved.
+	 */
+	public static void convertFile( String feature_values_file_path,
+	                                String feature_definitions_file_path,
+	                                boolean save_arff,
+	                                boolean save_csv,
+	                                boolean save_binary,
+	                                boolean save_class_labels )
+		throws Exception
+	{
+		// First pass: find the columns to save
+		LinkedHashMap<String, Integer> overall_dimensions = new LinkedHashMap<>();
+		LinkedHashMap<String, Integer> window_dimensions = new LinkedHashMap<>();
+		scanFeatureValuesFile(feature_values_file_path, overall_dimensions, window_dimensions);
+		boolean rows_are_windows = overall_dimensions.isEmpty();
+		LinkedHashMap<String, Integer> observed_dimensions = rows_are_windows ? window_dimensions : overall_dimensions;
+		if (observed_dimensions.isEmpty())
+			throw new Exception(feature_values_file_path + " does not contain any feature values.");
+
+		FeatureDefinition[] known_definitions = null;
+		if (feature_definitions_file_path != null)
+			known_definitions = parseFeatureDefinitionsFile(feature_definitions_file_path);
+		FeatureDefinition[] column_definitions = getColumnDefinitions(observed_dimensions, known_definitions);
+
+		// Second pass: write the rows
+		List<StreamingFeatureValuesWriter> writers = new ArrayList<>();
+		try
+		{
+			if (save_arff)
+				writers.add(new ArffFeatureValuesWriter(FeatureExtractionJobProcessor.getMatchingArffSavePath(feature_values_file_path), column_definitions, rows_are_windows, save_class_labels));
+			if (save_csv)
+				writers.add(new CsvFeatureValuesWriter(FeatureExtractionJobProcessor.getMatchingCsvSavePath(feature_values_file_path), column_definitions, rows_are_windows, save_class_labels));
+			if (save_binary)
+				writers.add(new BinaryFeatureValuesWriter(FeatureExtractionJobProcessor.getMatchingBinarySavePath(feature_values_file_path), column_definitions, rows_are_windows, save_class_labels));
+			writeInstances(feature_values_file_path, column_definitions, rows_are_windows, writers);
+		}
+		finally
+		{
+			for (StreamingFeatureValuesWriter writer : writers)
+				writer.finish();
+		}
+	}
+
+
+	/**
+	 * Check whether the given file appears to be an ACE XML Feature Values file, based on its name. It must
+	 * have a .xml extension (in any case), and must not be named like an ACE XML Feature Definitions or Class
+	 * Labels file saved by jSymbolic. This may be used as a FileFilter when parsing directories.
+	 *
+	 * @param file	The file to check.
+	 * @return		Whether or not the file should be treated as an ACE XML Feature Values file.
+	 */
+	public static boolean isFeatureValuesFileName(File file)
+	{
+		String name = file.getName().toLowerCase();
+		return name.endsWith(".xml") && !name.endsWith("_featdefs.xml") && !name.endsWith("_classlabels.xml");
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Read through the given ACE XML Feature Values file and note each feature that occurs in it, along
+	 * with the largest number of values it has.
+	 *
+	 * @param feature_values_file_path	The path of the ACE XML Feature Values file to read.
+	 * @param overall_dimensions		Filled with the features that occur at the data set level, in order of
+	 *									first appearance.
+	 * @param window_dimensions			Filled with the features that occur within sections, in order of first
+	 *									appearance.
+	 * @throws Exception				Throws an informative exception if the file could not be parsed.
+	 */
+	private static void scanFeatureValuesFile( String feature_values_file_path,
+	                                           LinkedHashMap<String, Integer> overall_dimensions,
+	                                           LinkedHashMap<String, Integer> window_dimensions )
+		throws Exception
+	{
+		FeatureReader feature = new FeatureReader();
+		try ( InputStream stream = new BufferedInputStream(new FileInputStream(feature_values_file_path)) )
+		{
+			XMLStreamReader reader = xml_input_factory.createXMLStreamReader(stream);
+			try
+			{
+				boolean in_section = false;
+				while (reader.hasNext())
+				{
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT)
+					{
+						String element = reader.getLocalName();
+						if (element.equals("section"))
+							in_section = true;
+						else if (element.equals("feature"))
+						{
+							feature.read(reader, false);
+							Map<String, Integer> dimensions = in_section ? window_dimensions : overall_dimensions;
+							Integer so_far = dimensions.get(feature.name);
+							if (so_far == null || so_far < feature.number_of_values)
+								dimensions.put(feature.name, feature.number_of_values);
+						}
+					}
+					else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("section"))
+						in_section = false;
+				}
+			}
+			finally { reader.close(); }
+		}
+		catch (Exception e)
+		{
+			throw new Exception("Could not parse " + feature_values_file_path + ": " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Read the feature definitions held in the given ACE XML Feature Definitions file.
+	 *
+	 * @param feature_definitions_file_path	The path of the ACE XML Feature Definitions file to read.
+	 * @return								The feature definitions, in the order they appear in the file.
+	 * @throws Exception					Throws an informative exception if the file could not be parsed.
+	 */
+	private static FeatureDefinition[] parseFeatureDefinitionsFile(String feature_definitions_file_path)
+		throws Exception
+	{
+		List<FeatureDefinition> definitions = new ArrayList<>();
+		try ( InputStream stream = new BufferedInputStream(new FileInputStream(feature_definitions_file_path)) )
+		{
+			XMLStreamReader reader = xml_input_factory.createXMLStreamReader(stream);
+			try
+			{
+				String name = null;
+				String description = "";
+				boolean is_sequential = false;
+				int dimensions = 1;
+				while (reader.hasNext())
+				{
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT)
+					{
+						String element = reader.getLocalName();
+						if (element.equals("feature"))
+						{
+							name = null;
+							description = "";
+							is_sequential = false;
+							dimensions = 1;
+						}
+						else if (element.equals("name"))
+							name = reader.getElementText().trim();
+						else if (element.equals("description"))
+							description = reader.getElementText().trim();
+						else if (element.equals("is_sequential"))
+							is_sequential = Boolean.parseBoolean(reader.getElementText().trim());
+						else if (element.equals("parallel_dimensions"))
+							dimensions = Integer.parseInt(reader.getElementText().trim());
+					}
+					else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("feature") && name != null)
+						definitions.add(new FeatureDefinition(name, description, is_sequential, dimensions));
+				}
+			}
+			finally { reader.close(); }
+		}
+		catch (Exception e)
+		{
+			throw new Exception("Could not parse " + feature_definitions_file_path + ": " + e.getMessage());
+		}
+		return definitions.toArray(new FeatureDefinition[definitions.size()]);
+	}
+
+
+	/**
+	 * Determine the columns to save. Features that occur in known_definitions are placed first, in the order
+	 * that they appear there, followed by any other observed features in order of first appearance. Only
+	 * features that were actually observed are included. Each is given the larger of its defined and observed
+	 * number of dimensions.
+	 *
+	 * @param observed_dimensions	The observed features and their maximum number of values.
+	 * @param known_definitions		Feature definitions parsed from an ACE XML Feature Definitions file. May be
+	 *								null.
+	 * @return						The definitions of the columns to save.
+	 */
+	private static FeatureDefinition[] getColumnDefinitions( LinkedHashMap<String, Integer> observed_dimensions,
+	                                                         FeatureDefinition[] known_definitions )
+	{
+		LinkedHashMap<String, Integer> remaining = new LinkedHashMap<>(observed_dimensions);
+		List<FeatureDefinition> columns = new ArrayList<>();
+		if (known_definitions != null)
+		{
+			for (FeatureDefinition definition : known_definitions)
+			{
+				Integer observed = remaining.remove(definition.name);
+				if (observed != null)
+					columns.add(new FeatureDefinition( definition.name,
+					                                   definition.description,
+					                                   definition.is_sequential,
+					                                   Math.max(observed, definition.dimensions) ));
+			}
+		}
+		for (Map.Entry<String, Integer> entry : remaining.entrySet())
+			columns.add(new FeatureDefinition(entry.getKey(), "", false, entry.getValue()));
+		return columns.toArray(new FeatureDefinition[columns.size()]);
+	}
+
+
+	/**
+	 * Read through the given ACE XML Feature Values file and pass each instance to each of the given writers
+	 * as soon as it has been read. Only a single instance is held in memory at any one time.
+	 *
+	 * @param feature_values_file_path	The path of the ACE XML Feature Values file to read.
+	 * @param column_definitions		The definitions of the columns being saved.
+	 * @param rows_are_windows			Whether each section (true) or each data set (false) is an instance.
+	 * @param writers					The writers to pass instances to.
+	 * @throws Exception				Throws an informative exception if the file could not be parsed or
+	 *									written.
+	 */
+	private static void writeInstances( String feature_values_file_path,
+	                                    FeatureDefinition[] column_definitions,
+	                                    boolean rows_are_windows,
+	                                    List<StreamingFeatureValuesWriter> writers )
+		throws Exception
+	{
+		HashMap<String, Integer> column_indices = new HashMap<>();
+		for (int i = 0; i < column_definitions.length; i++)
+			column_indices.put(column_definitions[i].name, i);
+
+		// Reused for each instance
+		FeatureReader feature = new FeatureReader();
+		double[][] instance_values = new double[column_definitions.length][];
+		double[] start_time = new double[1];
+		double[] stop_time = new double[1];
+
+		try ( InputStream stream = new BufferedInputStream(new FileInputStream(feature_values_file_path)) )
+		{
+			XMLStreamReader reader = xml_input_factory.createXMLStreamReader(stream);
+			try
+			{
+				String identifier = null;
+				boolean in_section = false;
+				while (reader.hasNext())
+				{
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT)
+					{
+						String element = reader.getLocalName();
+						if (element.equals("data_set"))
+						{
+							identifier = null;
+							Arrays.fill(instance_values, null);
+						}
+						else if (element.equals("data_set_id"))
+							identifier = reader.getElementText().trim();
+						else if (element.equals("section"))
+						{
+							in_section = true;
+							start_time[0] = parseTimeAttribute(reader, "start");
+							stop_time[0] = parseTimeAttribute(reader, "stop");
+							if (rows_are_windows)
+								Arrays.fill(instance_values, null);
+						}
+						else if (element.equals("feature"))
+						{
+							boolean keep = (in_section == rows_are_windows);
+							feature.read(reader, keep);
+							Integer column = column_indices.get(feature.name);
+							if (keep && column != null)
+								instance_values[column] = Arrays.copyOf(feature.values, feature.number_of_values);
+						}
+					}
+					else if (event == XMLStreamConstants.END_ELEMENT)
+					{
+						String element = reader.getLocalName();
+						if (element.equals("section"))
+						{
+							in_section = false;
+							if (rows_are_windows)
+							{
+								ExtractedFileFeatures window = new ExtractedFileFeatures( new File(identifier),
+								                                                          identifier,
+								                                                          start_time,
+								                                                          stop_time,
+								                                                          column_definitions,
+								                                                          new double[][][] { instance_values },
+								                                                          null,
+								                                                          null );
+								for (StreamingFeatureValuesWriter writer : writers)
+									writer.writeFileFeatures(window);
+							}
+						}
+						else if (element.equals("data_set") && !rows_are_windows)
+						{
+							ExtractedFileFeatures overall = new ExtractedFileFeatures( new File(identifier),
+							                                                           identifier,
+							                                                           null,
+							                                                           null,
+							                                                           null,
+							                                                           null,
+							                                                           column_definitions,
+							                                                           instance_values );
+							for (StreamingFeatureValuesWriter writer : writers)
+								writer.writeFileFeatures(overall);
+						}
+					}
+				}
+			}
+			finally { reader.close(); }
+		}
+		catch (Exception e)
+		{
+			throw new Exception("Could not parse " + feature_values_file_path + " or write its converted rows: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Parse the given time attribute of the section element that the reader is currently positioned at.
+	 *
+	 * @param reader			The reader, positioned at a section start element.
+	 * @param attribute_name	The name of the attribute to parse.
+	 * @return					The attribute's value, in seconds. NaN if it is absent or empty.
+	 */
+	private static double parseTimeAttribute(XMLStreamReader reader, String attribute_name)
+	{
+		String value = reader.getAttributeValue(null, attribute_name);
+		if (value == null || value.trim().isEmpty())
+			return Double.NaN;
+		return Double.parseDouble(value.trim());
+	}
+
+
+	/**
+	 * @return	A StAX input factory configured to ignore DTDs and external entities.
+	 */
+	private static XMLInputFactory prepareXmlInputFactory()
+	{
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * Reads a single ACE XML feature element. An object of this class is reused for every feature read, so
+	 * that its value buffer only needs to be allocated once per file.
+	 */
+	private static final class FeatureReader
+	{
+		/**
+		 * The name of the most recently read feature.
+		 */
+		private String name;
+
+		/**
+		 * The values of the most recently read feature, if they were kept. Only the first number_of_values
+		 * entries are meaningful.
+		 */
+		private double[] values = new double[16];
+
+		/**
+		 * The number of values the most recently read feature has.
+		 */
+		private int number_of_values;
+
+
+		/**
+		 * Read the feature element that the reader is positioned at, leaving the reader positioned at its end
+		 * element.
+		 *
+		 * @param reader		The reader, positioned at a feature start element.
+		 * @param keep_values	Whether to parse and store the feature's values (true) or only count them
+		 *						(false).
+		 * @throws Exception	Throws an exception if the feature element is malformed.
+		 */
+		private void read(XMLStreamReader reader, boolean keep_values)
+			throws Exception
+		{
+			name = null;
+			number_of_values = 0;
+			while (reader.hasNext())
+			{
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT)
+				{
+					String element = reader.getLocalName();
+					if (element.equals("name"))
+						name = reader.getElementText().trim();
+					else if (element.equals("v"))
+					{
+						String text = reader.getElementText();
+						if (keep_values)
+						{
+							if (number_of_values == values.length)
+								values = Arrays.copyOf(values, values.length * 2);
+							values[number_of_values] = Double.parseDouble(text.trim());
+						}
+						number_of_values++;
+					}
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("feature"))
+					break;
+			}
+			if (name == null)
+				throw new Exception("A feature element has no name.");
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import ace.datatypes.FeatureDefinition;
+
+/**
+ * An abstract class for writers that save extracted feature values to a tabular file (e.g. Weka ARFF or CSV)
+ * row by row, as each music file is processed, rather than by converting a complete ACE XML Feature Values
+ * file after extraction has finished. The column layout is fixed when the writer is instantiated, based on
+ * the feature definitions of the values that are to be saved (typically as returned by
+ * MIDIFeatureProcessor.getFeatureDefinitionsOfSavedValues()), so no feature values ever need to be buffered.
+ *
+ * <p>Each row corresponds either to an overall music file (if overall features are being saved) or to a
+ * single analysis window of a music file (if only window-based features are being saved). Multi-dimensional
+ * features are given one column per dimension, with the dimension index appended to the feature name. Any
+ * value that is not available (e.g. a feature that could not be extracted for a given window) is stored as
+ * a NaN in the row passed to writeRow, and should be saved as a missing value by implementing classes.</p>
+ *
+ * <p>Subclasses implement the format-specific writing of rows and the completion of the file. The finish
+ * method must be called once all music files have been processed.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public abstract class StreamingFeatureValuesWriter
+{
+	/* PROTECTED FIELDS *************************************************************************************/
+
+
+	/**
+	 * The path of the file being written.
+	 */
+	protected final String save_path;
+
+	/**
+	 * The name of each column holding feature values, in the order they are written. Spaces in feature names
+	 * are replaced by underscores, and multi-dimensional features have the dimension index appended.
+	 */
+	protected final String[] column_names;
+
+	/**
+	 * Whether each row corresponds to an analysis window (true) or to a music file as a whole (false).
+	 */
+	protected final boolean rows_are_windows;
+
+	/**
+	 * Whether or not each row should be given a class label consisting of the name of the directory holding
+	 * the music file that it was extracted from.
+	 */
+	protected final boolean save_class_labels;
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The number of significant digits that values are rounded to before being written, so that they match
+	 * the values saved to ACE XML Feature Values files (see MIDIFeatureProcessor).
+	 */
+	private static final int saved_significant_digits = 8;
+
+	/**
+	 * The index of the first column of each feature, keyed by feature name.
+	 */
+	private final HashMap<String, Integer> first_column_of_feature;
+
+	/**
+	 * The number of columns assigned to each feature, keyed by feature name.
+	 */
+	private final HashMap<String, Integer> columns_of_feature;
+
+	/**
+	 * A row buffer that is reused for every row written, in order to avoid allocating a new array each time.
+	 */
+	private final double[] row;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Set up the column layout of the file to be written.
+	 *
+	 * @param save_path				The path of the file to write.
+	 * @param column_definitions	The feature definitions of the values to save, in the order in which they
+	 *								should appear. The dimensions field of each is used to determine how many
+	 *								columns it is assigned.
+	 * @param rows_are_windows		Whether each row corresponds to an analysis window (true) or to a music
+	 *								file as a whole (false).
+	 * @param save_class_labels		Whether or not each row should be given a class label consisting of the
+	 *								name of the directory holding the music file that it was extracted from.
+	 * @throws Exception			Throws an informative exception if no feature definitions are provided.
+	 */
+	protected StreamingFeatureValuesWriter( String save_path,
+	                                        FeatureDefinition[] column_definitions,
+	                                        boolean rows_are_windows,
+	                                        boolean save_class_labels )
+		throws Exception
+	{
+		if (column_definitions == null || column_definitions.length == 0)
+			throw new Exception("No features have been set to be saved to " + save_path + ".");
+
+		this.save_path = save_path;
+		this.rows_are_windows = rows_are_windows;
+		this.save_class_labels = save_class_labels;
+
+		first_column_of_feature = new HashMap<>();
+		columns_of_feature = new HashMap<>();
+		int number_columns = 0;
+		for (FeatureDefinition definition : column_definitions)
+		{
+			int dimensions = Math.max(1, definition.dimensions);
+			first_column_of_feature.put(definition.name, number_columns);
+			columns_of_feature.put(definition.name, dimensions);
+			number_columns += dimensions;
+		}
+
+		column_names = new String[number_columns];
+		int column = 0;
+		for (FeatureDefinition definition : column_definitions)
+		{
+			String base_name = definition.name.replace(' ', '_');
+			int dimensions = columns_of_feature.get(definition.name);
+			for (int dim = 0; dim < dimensions; dim++)
+			{
+				if (dimensions == 1)
+					column_names[column] = base_name;
+				else
+					column_names[column] = base_name + "_" + dim;
+				column++;
+			}
+		}
+
+		row = new double[number_columns];
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Write the row or rows corresponding to the given feature values, extracted from a single music file.
+	 *
+	 * @param extracted_features	The feature values extracted from a music file.
+	 * @throws Exception			Throws an exception if the row(s) cannot be written.
+	 */
+	public void writeFileFeatures(ExtractedFileFeatures extracted_features)
+		throws Exception
+	{
+		String identifier = extracted_features.getIdentifier();
+		String class_label = null;
+		if (save_class_labels)
+		{
+			File parent = extracted_features.getSourceFile().getAbsoluteFile().getParentFile();
+			class_label = (parent == null) ? "" : parent.getName();
+		}
+
+		if (rows_are_windows)
+		{
+			if (!extracted_features.hasWindowFeatures())
+				return;
+			FeatureDefinition[] definitions = extracted_features.getWindowFeatureDefinitions();
+			double[][][] values = extracted_features.getWindowFeatureValues();
+			for (int win = 0; win < values.length; win++)
+			{
+				fillRow(definitions, values[win]);
+				writeRow( identifier,
+				          extracted_features.getWindowStartTimes()[win],
+				          extracted_features.getWindowStopTimes()[win],
+				          row,
+				          class_label );
+			}
+		}
+		else
+		{
+			if (!extracted_features.hasOverallFeatures())
+				return;
+			fillRow(extracted_features.getOverallFeatureDefinitions(), extracted_features.getOverallFeatureValues());
+			writeRow(identifier, Double.NaN, Double.NaN, row, class_label);
+		}
+	}
+
+
+	/**
+	 * @return	The path of the file being written.
+	 */
+	public String getSavePath()
+	{
+		return save_path;
+	}
+
+
+	/**
+	 * Complete and close the file being written. This must be called once all music files have been
+	 * processed.
+	 *
+	 * @throws Exception	Throws an exception if the file cannot be completed.
+	 */
+	public abstract void finish()
+		throws Exception;
+
+
+	/* PROTECTED METHODS ************************************************************************************/
+
+
+	/**
+	 * Write a single row.
+	 *
+	 * @param identifier	The identifier of the music file the row was extracted from.
+	 * @param start_time	The start time of the row's analysis window, in seconds. NaN if the row does not
+	 *						correspond to an analysis window.
+	 * @param stop_time		The stop time of the row's analysis window, in seconds. NaN if the row does not
+	 *						correspond to an analysis window.
+	 * @param values		The value of each column, ordered to match column_names. Missing values are NaN.
+	 *						This array is reused, and must not be retained.
+	 * @param class_label	The class label of the row. Null if class labels are not being saved.
+	 * @throws Exception	Throws an exception if the row cannot be written.
+	 */
+	protected abstract void writeRow( String identifier,
+	                                  double start_time,
+	                                  double stop_time,
+	                                  double[] values,
+	                                  String class_label )
+		throws Exception;
+
+
+	/**
+	 * Returns the given value rounded to the number of significant digits saved in ACE XML Feature Values
+	 * files, so that tabular files written directly during extraction hold the same values as those that
+	 * would be converted from an ACE XML Feature Values file. The value is formatted exactly as it is written
+	 * to ACE XML Feature Values files (see AceXmlFeatureValuesWriter.formatValue), including the rounding of
+	 * ties, and then parsed back.
+	 *
+	 * @param value	The value to round.
+	 * @return		The rounded value. NaN and infinite values, and values that the formatted text cannot be
+	 *				parsed back from (e.g. under a locale with a decimal comma), are returned unchanged.
+	 */
+	protected static double roundToSavedPrecision(double value)
+	{
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return value;
+		try { return Double.parseDouble(AceXmlFeatureValuesWriter.formatValue(value, saved_significant_digits)); }
+		catch (NumberFormatException e) { return value; }
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Fill the row field with the given feature values, matched to columns by feature name. Columns for
+	 * which no value is available are set to NaN. If a music file was short enough to produce only one
+	 * window while window-based features are also being saved, then its overall values will be under the
+	 * plain feature name rather than as an average and standard deviation; in this case the value is
+	 * treated as the average, and the standard deviation is set to 0.
+	 *
+	 * @param definitions	The definitions of the features in values.
+	 * @param values		The feature values. The first index identifies the feature (matching
+	 *						definitions) and the second the feature value. An entry may be null if the
+	 *						feature could not be extracted.
+	 */
+	private void fillRow(FeatureDefinition[] definitions, double[][] values)
+	{
+		Arrays.fill(row, Double.NaN);
+		for (int feat = 0; feat < definitions.length; feat++)
+		{
+			if (values[feat] == null)
+				continue;
+			String name = definitions[feat].name;
+			Integer first_column = first_column_of_feature.get(name);
+			if (first_column == null)
+			{
+				first_column = first_column_of_feature.get(name + " Overall Average");
+				Integer stdv_column = first_column_of_feature.get(name + " Overall Standard Deviation");
+				if (first_column == null)
+					continue;
+				if (stdv_column != null)
+				{
+					int stdv_count = Math.min(values[feat].length, columns_of_feature.get(name + " Overall Standard Deviation"));
+					for (int val = 0; val < stdv_count; val++)
+						row[stdv_column + val] = 0.0;
+				}
+				name = name + " Overall Average";
+			}
+			int count = Math.min(values[feat].length, columns_of_feature.get(name));
+			System.arraycopy(values[feat], 0, row, first_column, count);
+		}
+	}
+}
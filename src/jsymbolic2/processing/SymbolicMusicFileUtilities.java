@@ -1,9 +1,14 @@
 package jsymbolic2.processing;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.FileFilter;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -27,6 +32,16 @@ import org.ddmal.jmei2midi.MeiSequence;
  */
 public class SymbolicMusicFileUtilities
 {
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The maximum number of bytes read from the start of a file by probeMusicFile. This must be large enough
+	 * to hold any XML declaration, comments and DOCTYPE declaration preceding the root element of an MEI file.
+	 */
+	private static final int probe_size = 8192;
+
+
 	/* PUBLIC STATIC METHODS ********************************************************************************/
 
 	
@@ -46,31 +61,53 @@ public class SymbolicMusicFileUtilities
 	                                                             PrintStream error_print_stream,
 	                                                             List<String> error_log )
 	{
-		// The files listed in files_to_test that are valid MIDI or MEI files
+		ArrayList<ProbedMusicFile> probed_files = validateAndProbeMidiAndMeiFiles( files_to_test,
+		                                                                           status_print_stream,
+		                                                                           error_print_stream,
+		                                                                           error_log );
 		ArrayList<File> valid_files = new ArrayList<>();
+		for (ProbedMusicFile probed_file : probed_files)
+			valid_files.add(probed_file.getFile());
+		return valid_files;
+	}
 
-		// The files listed in files_to_test that are not valid MIDI or MEI files
+
+	/**
+	 * Probe all of the files specified in files_to_test (see probeMusicFile). Return handles to all of these
+	 * files that are MIDI or MEI files, which can then be used to parse each file exactly once when its
+	 * contents are needed. If one or more files are not MIDI or MEI files, then output an error message
+	 * identifying them. If no valid files are present, then print a message indicating this and end
+	 * execution.
+	 * 
+	 * @param files_to_test			The files to test to see if they are MIDI or MEI files.
+	 * @param status_print_stream	A stream to print general messages to.
+	 * @param error_print_stream	A stream to print error messages to.
+	 * @param error_log				Errors that occur during processing are added to this list.
+	 * @return						Handles to the MIDI and MEI files found in files_to_test, in the same
+	 *								order.
+	 */
+	public static ArrayList<ProbedMusicFile> validateAndProbeMidiAndMeiFiles( List<File> files_to_test,
+	                                                                          PrintStream status_print_stream,
+	                                                                          PrintStream error_print_stream,
+	                                                                          List<String> error_log )
+	{
+		// The files listed in files_to_test that are MIDI or MEI files
+		ArrayList<ProbedMusicFile> valid_files = new ArrayList<>();
+
+		// The files listed in files_to_test that are not MIDI or MEI files
 		ArrayList<File> invalid_files = new ArrayList<>();
 		
 		// Note which files are valid and which are not
 		for (File file : files_to_test)
 		{
-			
-			if ( isValidMidiFile(file) || isValidMeiFile(file) )
-				valid_files.add(file);
+			ProbedMusicFile probed_file = probeMusicFile(file);
+			if (probed_file != null)
+				valid_files.add(probed_file);
 			else invalid_files.add(file);
 		}
 		
-		// Output error messages if any of the files listed 
-		if (!invalid_files.isEmpty())
-		{
-			String invalid_file_paths = new String();
-			for (File file : invalid_files)	
-				invalid_file_paths += file.getAbsolutePath() + " ";
-			String error_string = "The following " + invalid_files.size() + " files cannot be processed because they are not valid MIDI or MEI files, and were thus removed from the list of files to process: " + invalid_file_paths;
-			error_log.add(error_string);
-			UserFeedbackGenerator.printErrorMessage(error_print_stream, error_string);
-		}
+		// Report invalid files
+		reportInvalidMidiAndMeiFiles(invalid_files, error_print_stream, error_log);
 
 		// End execution and output an explanatory message if there are no valid files to process
 		if (valid_files.isEmpty())
@@ -84,6 +121,94 @@ public class SymbolicMusicFileUtilities
 	}
 		
 	
+	/**
+	 * If one or more files have been found not to be valid MIDI or MEI files, then output an error message
+	 * identifying them. Execution is not ended here, even if no valid files have been found.
+	 *
+	 * @param invalid_files			The files that are not valid MIDI or MEI files.
+	 * @param error_print_stream	A stream to print error messages to.
+	 * @param error_log				Errors that occur during processing are added to this list.
+	 */
+	public static void reportInvalidMidiAndMeiFiles( List<File> invalid_files,
+	                                                 PrintStream error_print_stream,
+	                                                 List<String> error_log )
+	{
+		// Output error messages if any of the files listed 
+		if (!invalid_files.isEmpty())
+		{
+			StringBuilder invalid_file_paths = new StringBuilder();
+			for (File file : invalid_files)	
+				invalid_file_paths.append(file.getAbsolutePath()).append(" ");
+			String error_string = "The following " + invalid_files.size() + " files cannot be processed because they are not valid MIDI or MEI files, and were thus removed from the list of files to process: " + invalid_file_paths;
+			error_log.add(error_string);
+			UserFeedbackGenerator.printErrorMessage(error_print_stream, error_string);
+		}
+	}
+
+
+	/**
+	 * Identify whether the given file is a MIDI or MEI file by examining only its first few bytes. A file is
+	 * identified as MIDI if it begins with the MThd chunk identifier, and as MEI if it is XML text (UTF-8 or
+	 * UTF-16, with or without a byte order mark) whose root element is named mei (with or without a
+	 * namespace prefix). The file is not parsed; this is instead done (exactly once) when the returned
+	 * handle's contents are first requested.
+	 *
+	 * @param file	The file to probe.
+	 * @return		A handle to the file, or null if it is neither a MIDI nor an MEI file, or cannot be read.
+	 */
+	public static ProbedMusicFile probeMusicFile(File file)
+	{
+		try { return probeReadableMusicFile(file); }
+		catch (IOException e) { return null; }
+	}
+
+
+	/**
+	 * Identify whether the given contents of a file that has already been read into memory (e.g. an entry of
+	 * an archive read by MusicArchiveReader) are MIDI or MEI, as described for probeMusicFile(File). The
+	 * returned handle parses the given contents directly, rather than reading them from disk.
+	 *
+	 * @param file		The file that the contents belong to. This is used only to identify them, and need not
+	 *					refer to a file on disk (e.g. it can be an archive-qualified File).
+	 * @param contents	The contents of the file. These are not copied, and should not be modified.
+	 * @return			A handle to the contents, or null if they are neither MIDI nor MEI.
+	 */
+	public static ProbedMusicFile probeMusicFile(File file, byte[] contents)
+	{
+		ProbedMusicFile.Format format = identifyFormat(contents, Math.min(contents.length, probe_size));
+		return (format == null) ? null : new ProbedMusicFile(file, format, contents);
+	}
+
+
+	/**
+	 * Probe the given file (see probeMusicFile). If it is not a MIDI or MEI file, then an exception is thrown
+	 * and a report is added to error_log.
+	 *
+	 * @param file			The file to probe.
+	 * @param error_log		Errors that occur during processing are added to this list.
+	 * @return				A handle to the file.
+	 * @throws IOException	Thrown if there is a problem accessing the given file.
+	 * @throws Exception	An informative Exception is thrown if file is not a MIDI or MEI file.
+	 */
+	public static ProbedMusicFile probeMidiOrMeiFile(File file, List<String> error_log)
+		throws IOException, Exception
+	{
+		ProbedMusicFile probed_file;
+		try { probed_file = probeReadableMusicFile(file); }
+		catch (IOException e)
+		{
+			error_log.add("The specified path, " + file + ", does not refer to a valid file.");
+			throw e;
+		}
+		if (probed_file == null)
+		{
+			error_log.add("The specified file, " + file + ", is not a valid MIDI or MEI file.");
+			throw new Exception("The specified file, " + file + ", is not a valid MIDI or MEI file.");
+		}
+		return probed_file;
+	}
+
+
 	/**
 	 * Checks to see if the specified file is a valid MIDI file. This is done by attempting to parse it.
 	 *
@@ -124,17 +249,7 @@ public class SymbolicMusicFileUtilities
 	public static Sequence getMidiSequenceFromMidiOrMeiFile( File file, List<String> error_log )
 		throws Exception
 	{
-		Sequence sequence = null;
-		if (isValidMidiFile (file))
-			sequence = getMidiSequenceFromMidiFile(file, error_log);
-		else if (isValidMeiFile(file))
-			sequence = getMidiSequenceFromMeiFile(file, error_log);
-		else
-		{
-			error_log.add("The specified file, " + file + ", is not a valid MIDI or MEI file.");
-			throw new Exception("The specified file, " + file + ", is not a valid MIDI or MEI file.");
-		}
-		return sequence;
+		return probeMidiOrMeiFile(file, error_log).getSequence(error_log);
 	}
 
 
@@ -167,6 +282,67 @@ public class SymbolicMusicFileUtilities
 	}
 
 	
+	/**
+	 * Extracts a MIDI Sequence object from the given contents of a MIDI file that has already been read into
+	 * memory (e.g. an entry of an archive). If the contents are not valid MIDI, then an exception is thrown
+	 * and a report is added to error_log.
+	 *
+	 * @param file							The file that the contents belong to, used to identify it in
+	 *										error messages. Need not refer to a file on disk.
+	 * @param contents						The contents of the MIDI file.
+	 * @param error_log						Errors that occur during processing are added to this list.
+	 * @return								A MIDI Sequence parsed from the given contents.
+	 * @throws IOException					Thrown if the contents end unexpectedly.
+	 * @throws InvalidMidiDataException		Thrown if the contents are not valid MIDI.
+	 */
+	public static Sequence getMidiSequenceFromMidiFileContents(File file, byte[] contents, List<String> error_log)
+		throws IOException, InvalidMidiDataException
+	{
+		try { return MidiSystem.getSequence(new ByteArrayInputStream(contents)); }
+		catch (IOException | InvalidMidiDataException e)
+		{
+			error_log.add("The specified file, " + file + ", is not a valid MIDI or MEI file.");
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Extracts an MeiSequence object from the given contents of an MEI file that has already been read into
+	 * memory (e.g. an entry of an archive). As the MEI parser only reads files, the contents are written to a
+	 * temporary file (which is deleted afterwards) in order to be parsed. If the contents are not valid MEI,
+	 * then an exception is thrown and a report is added to error_log.
+	 *
+	 * @param file							The file that the contents belong to, used to identify it in
+	 *										error messages. Need not refer to a file on disk.
+	 * @param contents						The contents of the MEI file.
+	 * @param error_log						Errors that occur during processing are added to this list.
+	 * @return								An MeiSequence parsed from the given contents.
+	 * @throws IOException					Thrown if the temporary file cannot be written.
+	 * @throws MeiXmlReadException			Thrown if there is a problem parsing the MEI.
+	 * @throws InvalidMidiDataException		Thrown if MIDI data extracted from the MEI is invalid.
+	 */
+	public static MeiSequence getMeiSequenceFromMeiFileContents( File file, byte[] contents, List<String> error_log )
+		throws IOException, InvalidMidiDataException, MeiXmlReadException
+	{
+		File temporary_file = File.createTempFile("jsymbolic_", ".mei");
+		try
+		{
+			Files.write(temporary_file.toPath(), contents);
+			return new MeiSequence(temporary_file);
+		}
+		catch (InvalidMidiDataException | MeiXmlReadException e)
+		{
+			error_log.add("The specified file, " + file + ", is not a valid MEI file.");
+			throw e;
+		}
+		finally
+		{
+			temporary_file.delete();
+		}
+	}
+
+
 	/**
 	 * Extracts an MeiSequence object from the given MEI file. If the file is not a valid MEI file, then an
 	 * exception is thrown and a report is added to error_log.
@@ -332,4 +508,120 @@ public class SymbolicMusicFileUtilities
 		}
 		return complete_file_list;
 	}
-}
\ No newline at end of file
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Identify whether the given file is a MIDI or MEI file, as described for probeMusicFile.
+	 *
+	 * @param file			The file to probe.
+	 * @return				A handle to the file, or null if it is neither a MIDI nor an MEI file.
+	 * @throws IOException	Thrown if the file cannot be read.
+	 */
+	private static ProbedMusicFile probeReadableMusicFile(File file)
+		throws IOException
+	{
+		byte[] header = new byte[probe_size];
+		int length = 0;
+		try (InputStream stream = new FileInputStream(file))
+		{
+			int read;
+			while (length < header.length && (read = stream.read(header, length, header.length - length)) != -1)
+				length += read;
+		}
+
+		ProbedMusicFile.Format format = identifyFormat(header, length);
+		return (format == null) ? null : new ProbedMusicFile(file, format);
+	}
+
+
+	/**
+	 * Identify whether the given bytes from the start of a file are MIDI or MEI, as described for
+	 * probeMusicFile.
+	 *
+	 * @param header	The first bytes of the file.
+	 * @param length	The number of valid bytes in header.
+	 * @return			The format of the file, or null if it is neither MIDI nor MEI.
+	 */
+	private static ProbedMusicFile.Format identifyFormat(byte[] header, int length)
+	{
+		if (length >= 4 && header[0] == 'M' && header[1] == 'T' && header[2] == 'h' && header[3] == 'd')
+			return ProbedMusicFile.Format.MIDI;
+		if (hasMeiRootElement(header, length))
+			return ProbedMusicFile.Format.MEI;
+		return null;
+	}
+
+
+
+	/**
+	 * Determine whether the given bytes from the start of a file are XML text whose root element is named mei
+	 * (with or without a namespace prefix). Any XML declaration, processing instructions, comments and
+	 * DOCTYPE declaration preceding the root element are skipped.
+	 *
+	 * @param header	The first bytes of the file.
+	 * @param length	The number of valid bytes in header.
+	 * @return			True if the root element is mei, false if it is not or if it could not be found in
+	 *					the given bytes.
+	 */
+	private static boolean hasMeiRootElement(byte[] header, int length)
+	{
+		// Decode the text according to its byte order mark, if any
+		int start = 0;
+		Charset charset = StandardCharsets.UTF_8;
+		if (length >= 3 && (header[0] & 0xFF) == 0xEF && (header[1] & 0xFF) == 0xBB && (header[2] & 0xFF) == 0xBF)
+			start = 3;
+		else if (length >= 2 && (header[0] & 0xFF) == 0xFE && (header[1] & 0xFF) == 0xFF)
+		{
+			start = 2;
+			charset = StandardCharsets.UTF_16BE;
+		}
+		else if (length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xFE)
+		{
+			start = 2;
+			charset = StandardCharsets.UTF_16LE;
+		}
+		String text = new String(header, start, length - start, charset);
+
+		// Skip past everything preceding the root element
+		int position = 0;
+		while (true)
+		{
+			while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+				position++;
+			if (position >= text.length() || text.charAt(position) != '<')
+				return false;
+			if (text.startsWith("<?", position))
+				position = text.indexOf("?>", position);
+			else if (text.startsWith("<!--", position))
+				position = text.indexOf("-->", position);
+			else if (text.startsWith("<!", position))
+			{
+				int internal_subset = text.indexOf('[', position);
+				int end = text.indexOf('>', position);
+				if (internal_subset != -1 && end != -1 && internal_subset < end)
+					position = text.indexOf("]>", internal_subset);
+				else position = end;
+			}
+			else break;
+			if (position == -1)
+				return false;
+			position = text.indexOf('>', position) + 1;
+		}
+
+		// Read the name of the root element
+		int name_start = position + 1;
+		int name_end = name_start;
+		while ( name_end < text.length() &&
+		        !Character.isWhitespace(text.charAt(name_end)) &&
+		        text.charAt(name_end) != '>' &&
+		        text.charAt(name_end) != '/' )
+			name_end++;
+		if (name_end >= text.length())
+			return false;
+		String name = text.substring(name_start, name_end);
+		return name.equals("mei") || name.endsWith(":mei");
+	}
+}
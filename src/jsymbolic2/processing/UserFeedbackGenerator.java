@@ -1,8 +1,8 @@
 package jsymbolic2.processing;
 
+import java.io.File;
 import java.io.PrintStream;
 import java.util.List;
-import ace.datatypes.DataBoard;
 import jsymbolic2.commandline.CommandLineUtilities;
 
 /**
@@ -124,6 +124,18 @@ public class UserFeedbackGenerator
 		stream.println(">>> Extracting features from " + total + " input files, one file at at time:\n");
 	}
 
+
+	/**
+	 * Print a formatted message to stream indicating that feature extraction is starting, and that files
+	 * will be processed as they are found (so that the total number of files is not yet known).
+	 *
+	 * @param stream	The stream to print the message to.
+	 */
+	public static void printStreamedFeatureExtractionStartingMessage(PrintStream stream)
+	{
+		stream.println(">>> Extracting features from input files as they are found and validated, one file at a time:\n");
+	}
+
 	
 	/**
 	 * Print a formatted message to stream indicating that an input file is currently being pre-tested for
@@ -132,14 +144,18 @@ public class UserFeedbackGenerator
 	 * @param stream		The stream to print the message to.
 	 * @param identifier	The identifier of the input file being processed.
 	 * @param current		The count of this file amongst the total number of files being processed.
-	 * @param total			The total number of input files that are being processed.
+	 * @param total			The total number of input files that are being processed, or the number found
+	 *						so far if files are being processed as they are found.
+	 * @param total_is_final	Whether total is the final number of files to process (true) or only the
+	 *							number found so far (false).
 	 */
 	public static void printFeatureExtractionFileTestProgressMessage( PrintStream stream,
 	                                                                  String identifier,
 	                                                                  int current,
-	                                                                  int total )
+	                                                                  int total,
+	                                                                  boolean total_is_final )
 	{
-		stream.println("\t>>> " + current + "/" + total + " Testing: " + identifier + "  . . .");
+		stream.println("\t>>> " + formatProgress(current, total, total_is_final) + " Testing: " + identifier + "  . . .");
 	}
 	
 	
@@ -150,14 +166,18 @@ public class UserFeedbackGenerator
 	 * @param stream		The stream to print the message to.
 	 * @param identifier	The identifier of the input file being processed.
 	 * @param current		The count of this file amongst the total number of files being processed.
-	 * @param total			The total number of input files that are being processed.
+	 * @param total			The total number of input files that are being processed, or the number found
+	 *						so far if files are being processed as they are found.
+	 * @param total_is_final	Whether total is the final number of files to process (true) or only the
+	 *							number found so far (false).
 	 */
 	public static void printFeatureExtractionProgressMessage( PrintStream stream,
 	                                                          String identifier,
 	                                                          int current,
-	                                                          int total )
+	                                                          int total,
+	                                                          boolean total_is_final )
 	{
-		stream.println("\t>>> " + current + "/" + total + " Extracting features: " + identifier + "  . . .");
+		stream.println("\t>>> " + formatProgress(current, total, total_is_final) + " Extracting features: " + identifier + "  . . .");
 	}
 	
 	
@@ -168,51 +188,66 @@ public class UserFeedbackGenerator
 	 * @param stream		The stream to print the message to.
 	 * @param identifier	The identifier of the input file being processed.
 	 * @param current		The count of this file amongst the total number of files being processed.
-	 * @param total			The total number of input files that are being processed.
+	 * @param total			The total number of input files that are being processed, or the number found
+	 *						so far if files are being processed as they are found.
+	 * @param total_is_final	Whether total is the final number of files to process (true) or only the
+	 *							number found so far (false).
 	 */
 	public static void printFeatureExtractionDoneAFileProgressMessage( PrintStream stream,
 	                                                                   String identifier,
 	                                                                   int current,
-	                                                                   int total )
+	                                                                   int total,
+	                                                                   boolean total_is_final )
 	{
-		stream.println("\t>>> " + current + "/" + total + " Successfully extracted: " + identifier + ".");
+		stream.println("\t>>> " + formatProgress(current, total, total_is_final) + " Successfully extracted: " + identifier + ".");
 	}
 	
 	
 	/**
-	 * Print a Print a formatted message to stream indicating that feature extraction is complete. If
-	 * saved_features_file_path is not null or empty, then also print how many files were successfully
-	 * extracted out of the number attempted.
+	 * Print a formatted message to stream indicating that feature extraction is complete, and how many files
+	 * were successfully extracted out of the number attempted.
 	 * 
-	 * @param stream					The stream to write output to.	
-	 * @param saved_features_file_path	The path of the ACE XML Feature Values file holding the extracted
-	 *									features.
-	 * @param total_attempted_files		The total number of files that were processed, successfully or not,
-	 *									during feature extraction.
+	 * @param stream						The stream to write output to.	
+	 * @param number_successfully_extracted	The number of files whose features were successfully extracted
+	 *										and saved.
+	 * @param total_attempted_files			The total number of files that were processed, successfully or
+	 *										not, during feature extraction.
 	 */
 	public static void printFeatureExtractionCompleteMessage( PrintStream stream,
-	                                                          String saved_features_file_path,
+	                                                          int number_successfully_extracted,
 											                  int total_attempted_files )
 	{
 		stream.println(">>> Feature extraction complete.\n");
-		if (saved_features_file_path != null && !saved_features_file_path.isEmpty())
-		{
-			try
-			{
-				String[] input_files = { saved_features_file_path };
-				DataBoard instance_data = new DataBoard(null, null, input_files, null);
-				int number_succesfully_extracted_files = instance_data.getNumOverall();
-				stream.println("\t>>> Features succesfully extracted and saved from " + number_succesfully_extracted_files + " of " + total_attempted_files + " attempted files.\n");
-			}
-			catch (Exception e)
-			{
-				stream.println("\t>>> Features succesfully extracted and saved from 0 of " + total_attempted_files + " attempted files.");
-				stream.println("\t>>> The saved ACE XML Feature Values file is empty as a result.\n");
-			}
-		}
+		stream.println("\t>>> Features succesfully extracted and saved from " + number_successfully_extracted + " of " + total_attempted_files + " attempted files.\n");
+		if (number_successfully_extracted == 0)
+			stream.println("\t>>> The saved feature values files are empty as a result.\n");
 	}
 	
 	
+	/**
+	 * Print a formatted message to stream indicating that no features were extracted, because no valid MIDI
+	 * or MEI files were found.
+	 *
+	 * @param stream	The stream to print the message to.
+	 */
+	public static void printNoValidFilesFoundMessage(PrintStream stream)
+	{
+		stream.println(">>> No features were extracted, as no valid files have been specified for processing.\n");
+	}
+
+
+	/**
+	 * Print a formatted message to stream indicating that feature extraction has been cancelled, so that the
+	 * remaining files will not be processed.
+	 *
+	 * @param stream	The stream to print the message to.
+	 */
+	public static void printFeatureExtractionCancelledMessage(PrintStream stream)
+	{
+		stream.println(">>> Feature extraction cancelled. Features will not be extracted from the remaining files, but those already extracted will be saved.\n");
+	}
+
+
 	/**
 	 * Print a formatted message to stream indicating that an ACE XML feature definitions file is being saved.
 	 * 
@@ -262,6 +297,70 @@ public class UserFeedbackGenerator
 	}
 	
 	
+	/**
+	 * Print a formatted message to stream indicating that a binary feature values file is being saved.
+	 * 
+	 * @param stream	The stream to print the message to.
+	 * @param save_path The path of the file being saved.
+	 */
+	public static void printGeneratingBinaryFile(PrintStream stream, String save_path)
+	{
+		stream.println(">>> Saving extracted features as a binary feature values file: " + save_path + ".\n");
+	}
+
+
+	/**
+	 * Print a formatted message to stream indicating that folders are being watched for changed MIDI and MEI
+	 * files.
+	 *
+	 * @param stream						The stream to print the message to.
+	 * @param folders						The folders being watched.
+	 * @param poll_interval_milliseconds	The interval at which the folders are rescanned, or 0 if changes
+	 *										are reported by the file system.
+	 */
+	public static void printWatchingFoldersMessage(PrintStream stream, List<File> folders, long poll_interval_milliseconds)
+	{
+		String method = (poll_interval_milliseconds > 0) ? " (checking every " + (poll_interval_milliseconds / 1000.0) + " seconds)" : "";
+		stream.println(">>> Watching " + folders + " for new, modified and deleted MIDI and MEI files" + method + ". Press Ctrl-C to stop.\n");
+	}
+
+
+	/**
+	 * Print a formatted message to stream indicating that the feature extraction server is accepting
+	 * requests, and on which port.
+	 *
+	 * @param stream					The stream to print the message to.
+	 * @param port						The local port that the server is listening on.
+	 * @param max_concurrent_requests	The maximum number of requests processed at a time.
+	 * @param max_queued_requests		The maximum number of requests that can wait to be processed.
+	 */
+	public static void printServerStartedMessage( PrintStream stream,
+	                                              int port,
+	                                              int max_concurrent_requests,
+	                                              int max_queued_requests )
+	{
+		stream.println(">>> Feature extraction server listening on http://localhost:" + port + "/ (processing up to " + max_concurrent_requests + " requests at a time, with up to " + max_queued_requests + " more waiting).\n");
+	}
+
+	
+	/**
+	 * Print a formatted message to stream indicating how long jSymbolic took to start up and to run.
+	 *
+	 * @param stream					The stream to print the message to.
+	 * @param switch_string				The command line switch that jSymbolic was run with.
+	 * @param startup_milliseconds		The time from the launch of the JVM until command line processing
+	 *									started.
+	 * @param processing_milliseconds	The time taken by the processing specified by the command line.
+	 */
+	public static void printStartupTimeMessage( PrintStream stream,
+	                                            String switch_string,
+	                                            long startup_milliseconds,
+	                                            long processing_milliseconds )
+	{
+		stream.println(">>> Timing of " + switch_string + ": " + startup_milliseconds + " ms from JVM launch to the start of processing, then " + processing_milliseconds + " ms of processing (" + (startup_milliseconds + processing_milliseconds) + " ms in total).\n");
+	}
+
+
 	/**
 	 * Print a formatted message to stream indicating that all processing is complete.
 	 * 
@@ -298,4 +397,21 @@ public class UserFeedbackGenerator
 			stream.println();
 		}
 	}
+
+
+	/**
+	 * Format the progress of feature extraction through the input files, such as 3/12, or 3/12 (found so
+	 * far) if the total number of files is not yet known.
+	 *
+	 * @param current			The count of the current file amongst the files being processed.
+	 * @param total				The total number of input files, or the number found so far.
+	 * @param total_is_final	Whether total is the final number of files to process.
+	 * @return					The formatted progress.
+	 */
+	private static String formatProgress(int current, int total, boolean total_is_final)
+	{
+		if (total_is_final)
+			return current + "/" + total;
+		return current + "/" + total + " (found so far)";
+	}
 }
\ No newline at end of file
@@ -0,0 +1,770 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import jsymbolic2.featureutils.FeatureExtractorAccess;
+
+/**
+ * Watches one or more folders for MIDI and MEI files that are added, modified or deleted, and keeps a set of
+ * saved feature values files (ACE XML, Weka ARFF, CSV and/or binary) up to date with the files in them.
+ * Features are only extracted from files that are new or have changed since they were last processed; the
+ * values extracted from all other files are kept in memory, and the saved files are regenerated from them
+ * (and replaced) whenever anything has changed. Files are listed in the saved files in path order.
+ *
+ * <p>Changes are detected with a java.nio WatchService where the file system supports one. Otherwise (or if
+ * polling is requested), the folders are rescanned periodically, and files are compared with the last
+ * modification times and sizes they had when features were last extracted from them. Either way, changes
+ * are debounced: a file is only processed once its modification time and size have stayed the same for the
+ * debounce interval, so that files that are still being copied or written are not read partway through.</p>
+ *
+ * <p>The saved files are first written to a temporary folder beside them, and are then moved into place, so
+ * that other programs never see a partly written file. Archives in the watched folders are not read.</p>
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class WatchedFolderExtractor
+{
+	/* PRIVATE STATIC FINAL FIELDS **************************************************************************/
+
+
+	/**
+	 * The prefix of the names of temporary folders that saved files are written to before being moved into
+	 * place. Folders with such names are not watched.
+	 */
+	private static final String temporary_folder_prefix = ".jsymbolic_watch_";
+
+
+	/* PRIVATE FIELDS ***************************************************************************************/
+
+
+	/**
+	 * The folders being watched.
+	 */
+	private final List<File> folders;
+
+	/**
+	 * The path of the ACE XML feature values file. The paths of the other saved files are based on it.
+	 */
+	private final String feature_values_save_path;
+
+	/**
+	 * The path of the ACE XML feature definitions file.
+	 */
+	private final String feature_definitions_save_path;
+
+	/**
+	 * Which features are to be saved, ordered to match FeatureExtractorAccess.findSpecifiedFeatures.
+	 */
+	private final boolean[] features_to_extract;
+
+	/**
+	 * Whether features are saved for individual windows.
+	 */
+	private final boolean save_features_for_each_window;
+
+	/**
+	 * Whether features are saved for files as a whole.
+	 */
+	private final boolean save_overall_recording_features;
+
+	/**
+	 * The duration of each window, in seconds.
+	 */
+	private final double window_size;
+
+	/**
+	 * The fractional overlap between consecutive windows.
+	 */
+	private final double window_overlap;
+
+	/**
+	 * Whether ACE XML feature values and definitions files are saved.
+	 */
+	private final boolean save_ace_xml_files;
+
+	/**
+	 * Whether a Weka ARFF file is saved.
+	 */
+	private final boolean save_arff_file;
+
+	/**
+	 * Whether a CSV file is saved.
+	 */
+	private final boolean save_csv_file;
+
+	/**
+	 * Whether a binary feature values file is saved.
+	 */
+	private final boolean save_binary_file;
+
+	/**
+	 * The number of milliseconds that a file's modification time and size must stay the same before it is
+	 * processed.
+	 */
+	private final long debounce_milliseconds;
+
+	/**
+	 * The number of milliseconds between rescans of the folders. 0 if a WatchService is to be used wherever
+	 * possible.
+	 */
+	private final long poll_interval_milliseconds;
+
+	/**
+	 * A stream to print processing progress to.
+	 */
+	private final PrintStream status_print_stream;
+
+	/**
+	 * A stream to print errors to.
+	 */
+	private final PrintStream error_print_stream;
+
+	/**
+	 * Errors that have occurred so far.
+	 */
+	private final List<String> error_log;
+
+	/**
+	 * The processor used to extract features. It saves no files itself.
+	 */
+	private final MIDIFeatureProcessor extraction_processor;
+
+	/**
+	 * The features most recently extracted from each file, mapped from the files' paths.
+	 */
+	private final TreeMap<String, ExtractedFileFeatures> extracted_features;
+
+	/**
+	 * The modification time and size of each file when it was last processed (whether or not features
+	 * could be extracted from it).
+	 */
+	private final HashMap<File, FileState> processed_file_states;
+
+	/**
+	 * Files that have changed and are waiting to be processed.
+	 */
+	private final HashMap<File, PendingChange> pending_changes;
+
+	/**
+	 * The watch service, or null if the folders are being polled.
+	 */
+	private WatchService watch_service;
+
+	/**
+	 * The folders registered with watch_service, mapped from their watch keys.
+	 */
+	private final HashMap<WatchKey, Path> watched_folders;
+
+	/**
+	 * Set when stop is called.
+	 */
+	private volatile boolean stopped;
+
+
+	/* CONSTRUCTOR ******************************************************************************************/
+
+
+	/**
+	 * Prepare to watch the given folders. Nothing is extracted until run is called.
+	 *
+	 * @param folders							The folders to watch. Sub-folders are watched too.
+	 * @param feature_values_save_path			The path of the ACE XML feature values file to keep up to date.
+	 *											The ARFF, CSV and binary paths are based on it (see
+	 *											FeatureExtractionJobProcessor).
+	 * @param feature_definitions_save_path		The path of the ACE XML feature definitions file.
+	 * @param features_to_extract				An array indicating which features are to be saved. This array
+	 *											is ordered to match the array returned by the
+	 *											FeatureExtractorAccess.findSpecifiedFeatures.
+	 * @param save_features_for_each_window		Whether or not features should be saved for individual
+	 *											windows.
+	 * @param save_overall_recording_features	Whether or not features should be saved for files as a whole.
+	 * @param window_size						The duration of each window, in seconds.
+	 * @param window_overlap					The fractional overlap between consecutive windows.
+	 * @param save_ace_xml_files				Whether or not to save ACE XML feature values and definitions
+	 *											files.
+	 * @param save_arff_file					Whether or not to save a Weka ARFF file.
+	 * @param save_csv_file						Whether or not to save a CSV file.
+	 * @param save_binary_file					Whether or not to save a binary feature values file.
+	 * @param debounce_milliseconds				How long a changed file's modification time and size must
+	 *											stay the same before it is processed, in milliseconds.
+	 * @param poll_interval_milliseconds		If this is above 0, then the folders are rescanned at this
+	 *											interval (in milliseconds) rather than watched with a
+	 *											WatchService.
+	 * @param status_print_stream				A stream to print processing progress to.
+	 * @param error_print_stream				A stream to print errors to.
+	 * @throws Exception						An informative exception is thrown if the settings are
+	 *											invalid.
+	 */
+	public WatchedFolderExtractor( List<File> folders,
+	                               String feature_values_save_path,
+	                               String feature_definitions_save_path,
+	                               boolean[] features_to_extract,
+	                               boolean save_features_for_each_window,
+	                               boolean save_overall_recording_features,
+	                               double window_size,
+	                               double window_overlap,
+	                               boolean save_ace_xml_files,
+	                               boolean save_arff_file,
+	                               boolean save_csv_file,
+	                               boolean save_binary_file,
+	                               long debounce_milliseconds,
+	                               long poll_interval_milliseconds,
+	                               PrintStream status_print_stream,
+	                               PrintStream error_print_stream )
+		throws Exception
+	{
+		if (!save_ace_xml_files && !save_arff_file && !save_csv_file && !save_binary_file)
+			throw new Exception("At least one of ACE XML, Weka ARFF, CSV or binary files must be chosen to be saved.");
+		for (File folder : folders)
+			if (!folder.isDirectory())
+				throw new Exception(folder + " is not a folder that can be watched.");
+
+		this.folders = new ArrayList<>(folders);
+		this.feature_values_save_path = feature_values_save_path;
+		this.feature_definitions_save_path = feature_definitions_save_path;
+		this.features_to_extract = features_to_extract;
+		this.save_features_for_each_window = save_features_for_each_window;
+		this.save_overall_recording_features = save_overall_recording_features;
+		this.window_size = window_size;
+		this.window_overlap = window_overlap;
+		this.save_ace_xml_files = save_ace_xml_files;
+		this.save_arff_file = save_arff_file;
+		this.save_csv_file = save_csv_file;
+		this.save_binary_file = save_binary_file;
+		this.debounce_milliseconds = debounce_milliseconds;
+		this.poll_interval_milliseconds = poll_interval_milliseconds;
+		this.status_print_stream = status_print_stream;
+		this.error_print_stream = error_print_stream;
+		error_log = new ArrayList<>();
+		extraction_processor = createProcessor(null, null);
+		extracted_features = new TreeMap<>();
+		processed_file_states = new HashMap<>();
+		pending_changes = new HashMap<>();
+		watch_service = null;
+		watched_folders = new HashMap<>();
+		stopped = false;
+	}
+
+
+	/* PUBLIC METHODS ***************************************************************************************/
+
+
+	/**
+	 * Extract features from all MIDI and MEI files currently in the watched folders and save them, and then
+	 * keep the saved files up to date as files change, until stop is called or the calling thread is
+	 * interrupted.
+	 */
+	public void run()
+	{
+		// Start watching the folders, falling back to polling if the file system does not support it
+		if (poll_interval_milliseconds <= 0)
+		{
+			try { watch_service = FileSystems.getDefault().newWatchService(); }
+			catch (IOException | UnsupportedOperationException e)
+			{
+				UserFeedbackGenerator.printWarningMessage(error_print_stream, "Could not watch the folders for changes, so they will be checked every 5 seconds instead: " + e.getMessage());
+			}
+		}
+		long rescan_interval = (poll_interval_milliseconds > 0) ? poll_interval_milliseconds : 5000;
+
+		// Process the files that already exist
+		for (File folder : folders)
+			scanFolder(folder.toPath());
+		for (PendingChange change : pending_changes.values())
+			change.last_change_time = 0;
+		processReadyChanges();
+		UserFeedbackGenerator.printWatchingFoldersMessage(status_print_stream, folders, watch_service == null ? rescan_interval : 0);
+
+		// Process changes as they happen
+		try
+		{
+			while (!stopped && !Thread.currentThread().isInterrupted())
+			{
+				long wait = getMillisecondsUntilNextPendingChange();
+				if (watch_service != null)
+				{
+					WatchKey key = (wait == Long.MAX_VALUE) ? watch_service.take() : watch_service.poll(wait, TimeUnit.MILLISECONDS);
+					while (key != null)
+					{
+						processWatchEvents(key);
+						key = watch_service.poll();
+					}
+				}
+				else
+				{
+					Thread.sleep(Math.min(wait, rescan_interval));
+					for (File folder : folders)
+						scanFolder(folder.toPath());
+					findDeletedFiles();
+				}
+				processReadyChanges();
+			}
+		}
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		catch (ClosedWatchServiceException e) { }
+		finally { stop(); }
+	}
+
+
+	/**
+	 * Stop watching the folders. The saved files are left as they were after the last change.
+	 */
+	public void stop()
+	{
+		stopped = true;
+		WatchService service = watch_service;
+		if (service != null)
+		{
+			try { service.close(); }
+			catch (IOException e) { }
+		}
+	}
+
+
+	/**
+	 * @return	The errors that have occurred so far.
+	 */
+	public List<String> getErrorLog()
+	{
+		return error_log;
+	}
+
+
+	/* PRIVATE METHODS **************************************************************************************/
+
+
+	/**
+	 * Note each MIDI and MEI file in the given folder (and its sub-folders) that has changed since it was
+	 * last processed, and register the folders with the watch service if one is being used.
+	 *
+	 * @param folder	The folder to scan.
+	 */
+	private void scanFolder(Path folder)
+	{
+		try
+		{
+			Files.walkFileTree(folder, new SimpleFileVisitor<Path>()
+			{
+				@Override
+				public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+				{
+					if (directory.getFileName() != null && directory.getFileName().toString().startsWith(temporary_folder_prefix))
+						return FileVisitResult.SKIP_SUBTREE;
+					if (watch_service != null && !watched_folders.containsValue(directory))
+					{
+						try
+						{
+							WatchKey key = directory.register( watch_service,
+							                                   StandardWatchEventKinds.ENTRY_CREATE,
+							                                   StandardWatchEventKinds.ENTRY_MODIFY,
+							                                   StandardWatchEventKinds.ENTRY_DELETE );
+							watched_folders.put(key, directory);
+						}
+						catch (IOException e)
+						{
+							UserFeedbackGenerator.printWarningMessage(error_print_stream, "Could not watch " + directory + " for changes: " + e.getMessage());
+						}
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attributes)
+				{
+					File file = path.toFile();
+					if (attributes.isRegularFile() && MusicFilter.passesFilter(file))
+					{
+						FileState state = new FileState(attributes.lastModifiedTime().toMillis(), attributes.size());
+						PendingChange change = pending_changes.get(file);
+						if (change == null ? !state.equals(processed_file_states.get(file)) : !state.equals(change.state))
+							noteChange(file);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException exception)
+				{
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		catch (IOException e)
+		{
+			UserFeedbackGenerator.printErrorMessage(error_print_stream, "Could not scan " + folder + ": " + e.getMessage());
+			error_log.add("Could not scan " + folder + ": " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Note each previously processed file that no longer exists.
+	 */
+	private void findDeletedFiles()
+	{
+		for (File file : processed_file_states.keySet())
+			if (!pending_changes.containsKey(file) && !file.isFile())
+				noteChange(file);
+	}
+
+
+	/**
+	 * Note the changes reported by the given watch key, and reset it so that it reports further changes.
+	 *
+	 * @param key	A key returned by the watch service.
+	 */
+	private void processWatchEvents(WatchKey key)
+	{
+		Path folder = watched_folders.get(key);
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			// Rescan everything if events were lost
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || folder == null)
+			{
+				for (File watched_folder : folders)
+					scanFolder(watched_folder.toPath());
+				findDeletedFiles();
+				continue;
+			}
+
+			Path path = folder.resolve((Path) event.context());
+			File file = path.toFile();
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path))
+				scanFolder(path);
+			else if (MusicFilter.passesFilter(file))
+				noteChange(file);
+			else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE)
+			{
+				// A deleted folder: note the deletion of each file that was in it
+				String prefix = path.toString() + File.separator;
+				for (File processed_file : new ArrayList<>(processed_file_states.keySet()))
+					if (processed_file.getPath().startsWith(prefix))
+						noteChange(processed_file);
+			}
+		}
+		if (!key.reset())
+			watched_folders.remove(key);
+	}
+
+
+	/**
+	 * Note that the given file has changed (or been deleted), and restart its debounce interval.
+	 *
+	 * @param file	The file that changed.
+	 */
+	private void noteChange(File file)
+	{
+		pending_changes.put(file, new PendingChange(System.currentTimeMillis(), FileState.of(file)));
+	}
+
+
+	/**
+	 * @return	The number of milliseconds until the debounce interval of the next pending change ends, or
+	 *			Long.MAX_VALUE if there are no pending changes.
+	 */
+	private long getMillisecondsUntilNextPendingChange()
+	{
+		long now = System.currentTimeMillis();
+		long wait = Long.MAX_VALUE;
+		for (PendingChange change : pending_changes.values())
+			wait = Math.min(wait, Math.max(1, change.last_change_time + debounce_milliseconds - now));
+		return wait;
+	}
+
+
+	/**
+	 * Process each pending change whose file has not changed for the debounce interval, extracting features
+	 * from new and modified files and forgetting deleted files. Regenerate the saved files if anything
+	 * changed.
+	 */
+	private void processReadyChanges()
+	{
+		// Find the files that have stopped changing
+		long now = System.currentTimeMillis();
+		TreeMap<File, FileState> ready_files = new TreeMap<>();
+		Iterator<Map.Entry<File, PendingChange>> iterator = pending_changes.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<File, PendingChange> entry = iterator.next();
+			PendingChange change = entry.getValue();
+			if (now - change.last_change_time < debounce_milliseconds)
+				continue;
+			FileState current_state = FileState.of(entry.getKey());
+			if (!Objects.equals(current_state, change.state))
+			{
+				// Still being written
+				change.state = current_state;
+				change.last_change_time = now;
+				continue;
+			}
+			ready_files.put(entry.getKey(), current_state);
+			iterator.remove();
+		}
+
+		// Extract features from new and modified files, and forget deleted files
+		boolean saved_values_changed = false;
+		for (Map.Entry<File, FileState> ready_file : ready_files.entrySet())
+		{
+			File file = ready_file.getKey();
+			FileState state = ready_file.getValue();
+			if (state == null)
+			{
+				processed_file_states.remove(file);
+				if (extracted_features.remove(file.getPath()) != null)
+				{
+					UserFeedbackGenerator.simplePrintln(status_print_stream, "Removed the features of " + file.getPath() + ".");
+					saved_values_changed = true;
+				}
+				continue;
+			}
+			if (state.equals(processed_file_states.get(file)))
+				continue;
+			processed_file_states.put(file, state);
+			try
+			{
+				List<String> file_error_log = new ArrayList<>();
+				ProbedMusicFile probed_file = SymbolicMusicFileUtilities.probeMidiOrMeiFile(file, file_error_log);
+				extracted_features.put(file.getPath(), extraction_processor.extractFeatures(probed_file, file_error_log));
+				UserFeedbackGenerator.simplePrintln(status_print_stream, "Extracted features from " + file.getPath() + ".");
+				saved_values_changed = true;
+			}
+			catch (Exception e)
+			{
+				String message = "Could not extract features from " + file.getPath() + ": " + e.getMessage();
+				UserFeedbackGenerator.printErrorMessage(error_print_stream, message);
+				error_log.add(message);
+				if (extracted_features.remove(file.getPath()) != null)
+					saved_values_changed = true;
+			}
+		}
+
+		// Regenerate the saved files
+		if (saved_values_changed)
+			saveFeatureValues();
+	}
+
+
+	/**
+	 * Write the saved files from the features held in memory, replacing the previous versions.
+	 */
+	private void saveFeatureValues()
+	{
+		File save_folder = new File(feature_values_save_path).getAbsoluteFile().getParentFile();
+		File temporary_folder = null;
+		try
+		{
+			// Write the files to a temporary folder
+			temporary_folder = Files.createTempDirectory(save_folder.toPath(), temporary_folder_prefix).toFile();
+			String temporary_values_path = new File(temporary_folder, new File(feature_values_save_path).getName()).getPath();
+			String temporary_definitions_path = new File(temporary_folder, new File(feature_definitions_save_path).getName()).getPath();
+			String temporary_binary_path = FeatureExtractionJobProcessor.getMatchingBinarySavePath(temporary_values_path);
+			MIDIFeatureProcessor saving_processor = createProcessor( save_ace_xml_files ? temporary_values_path : null,
+			                                                         save_ace_xml_files ? temporary_definitions_path : null );
+			FeatureExtractionJobProcessor.addStreamingFeatureValuesWriters( saving_processor,
+			                                                                temporary_values_path,
+			                                                                save_arff_file,
+			                                                                save_csv_file,
+			                                                                save_binary_file ? temporary_binary_path : null,
+			                                                                new PrintStream(new DiscardingOutputStream()) );
+			for (ExtractedFileFeatures file_features : extracted_features.values())
+				saving_processor.saveExtractedFeatures(file_features);
+			saving_processor.finalizeFeatureValuesFile();
+
+			// Move them into place
+			List<String> saved_paths = new ArrayList<>();
+			if (save_ace_xml_files)
+			{
+				moveIntoPlace(temporary_values_path, feature_values_save_path, saved_paths);
+				moveIntoPlace(temporary_definitions_path, feature_definitions_save_path, saved_paths);
+			}
+			if (save_arff_file)
+				moveIntoPlace( FeatureExtractionJobProcessor.getMatchingArffSavePath(temporary_values_path),
+				               FeatureExtractionJobProcessor.getMatchingArffSavePath(feature_values_save_path),
+				               saved_paths );
+			if (save_csv_file)
+				moveIntoPlace( FeatureExtractionJobProcessor.getMatchingCsvSavePath(temporary_values_path),
+				               FeatureExtractionJobProcessor.getMatchingCsvSavePath(feature_values_save_path),
+				               saved_paths );
+			if (save_binary_file)
+				moveIntoPlace( temporary_binary_path,
+				               FeatureExtractionJobProcessor.getMatchingBinarySavePath(feature_values_save_path),
+				               saved_paths );
+			UserFeedbackGenerator.simplePrintln(status_print_stream, ">>> Saved the features of " + extracted_features.size() + " files to " + String.join(", ", saved_paths) + ".\n");
+		}
+		catch (Exception e)
+		{
+			String message = "Could not save the extracted features: " + e.getMessage();
+			UserFeedbackGenerator.printErrorMessage(error_print_stream, message);
+			error_log.add(message);
+		}
+		finally
+		{
+			if (temporary_folder != null)
+			{
+				File[] leftover_files = temporary_folder.listFiles();
+				if (leftover_files != null)
+					for (File leftover_file : leftover_files)
+						leftover_file.delete();
+				temporary_folder.delete();
+			}
+		}
+	}
+
+
+	/**
+	 * @param feature_values_save_path		The path of the ACE XML feature values file to save, or null.
+	 * @param feature_definitions_save_path	The path of the ACE XML feature definitions file to save, or null.
+	 * @return								A processor configured with this object's settings.
+	 * @throws Exception					Thrown if the settings are invalid or the files cannot be created.
+	 */
+	private MIDIFeatureProcessor createProcessor(String feature_values_save_path, String feature_definitions_save_path)
+		throws Exception
+	{
+		return new MIDIFeatureProcessor( window_size,
+		                                 window_overlap,
+		                                 FeatureExtractorAccess.getFeatureExtractorsForSelection(features_to_extract),
+		                                 FeatureExtractorAccess.getExtractionPlan(features_to_extract),
+		                                 save_features_for_each_window,
+		                                 save_overall_recording_features,
+		                                 feature_values_save_path,
+		                                 feature_definitions_save_path );
+	}
+
+
+	/* PRIVATE STATIC METHODS *******************************************************************************/
+
+
+	/**
+	 * Move a file written to a temporary folder to its final path, replacing any file already there. The
+	 * move is atomic where the file system allows it.
+	 *
+	 * @param temporary_path	The path of the written file.
+	 * @param save_path			The path to move it to.
+	 * @param saved_paths		save_path is added to this list.
+	 * @throws IOException		Thrown if the file cannot be moved.
+	 */
+	private static void moveIntoPlace(String temporary_path, String save_path, List<String> saved_paths)
+		throws IOException
+	{
+		Path source = new File(temporary_path).toPath();
+		Path target = new File(save_path).toPath();
+		try { Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+		catch (AtomicMoveNotSupportedException e) { Files.move(source, target, StandardCopyOption.REPLACE_EXISTING); }
+		saved_paths.add(save_path);
+	}
+
+
+	/* PRIVATE CLASSES **************************************************************************************/
+
+
+	/**
+	 * The modification time and size of a file, used to tell whether it has changed.
+	 */
+	private static final class FileState
+	{
+		private final long last_modified;
+		private final long length;
+
+
+		private FileState(long last_modified, long length)
+		{
+			this.last_modified = last_modified;
+			this.length = length;
+		}
+
+
+		/**
+		 * @param file	A file.
+		 * @return		The file's current state, or null if it does not exist.
+		 */
+		private static FileState of(File file)
+		{
+			try
+			{
+				BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+				return attributes.isRegularFile() ? new FileState(attributes.lastModifiedTime().toMillis(), attributes.size()) : null;
+			}
+			catch (IOException e) { return null; }
+		}
+
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (!(other instanceof FileState))
+				return false;
+			FileState other_state = (FileState) other;
+			return last_modified == other_state.last_modified && length == other_state.length;
+		}
+
+
+		@Override
+		public int hashCode()
+		{
+			return Long.hashCode(last_modified) * 31 + Long.hashCode(length);
+		}
+	}
+
+
+	/**
+	 * A change to a file that has not been processed yet.
+	 */
+	private static final class PendingChange
+	{
+		/**
+		 * When the file was last seen to change.
+		 */
+		private long last_change_time;
+
+		/**
+		 * The state of the file when it was last seen to change. Null if it had been deleted.
+		 */
+		private FileState state;
+
+
+		private PendingChange(long last_change_time, FileState state)
+		{
+			this.last_change_time = last_change_time;
+			this.state = state;
+		}
+	}
+
+
+	/**
+	 * Discards everything written to it. Used to silence the progress messages of writers that write to
+	 * the temporary folder.
+	 */
+	private static final class DiscardingOutputStream
+		extends OutputStream
+	{
+		@Override
+		public void write(int b) { }
+
+
+		@Override
+		public void write(byte[] b, int off, int len) { }
+	}
+}
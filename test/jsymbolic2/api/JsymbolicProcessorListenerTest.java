@@ -0,0 +1,138 @@
+package jsymbolic2.api;
+
+import ace.datatypes.FeatureDefinition;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jsymbolic2.processing.ExtractedFileFeatures;
+import jsymbolic2.processing.FeatureExtractionListener;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for passing the results of JsymbolicProcessor feature extraction to a
+ * FeatureExtractionListener.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class JsymbolicProcessorListenerTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final File midi_file = new File("./test/jsymbolic2/api/resources/Chopin_Mazurka.midi");
+
+    private static final List<String> feature_names = Arrays.asList("Duration in Seconds", "Note Density", "Pitch Class Histogram");
+
+    /**
+     * Test that a FeatureExtractionListener is told when each file starts and then completes or fails, in
+     * extraction order, that it is passed the extracted features, and that an exception thrown by it is
+     * logged without stopping the batch.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testExtractionListener()
+            throws Exception {
+        File corpus = tempFolder.newFolder("corpus");
+        byte[] midi = Files.readAllBytes(midi_file.toPath());
+        Files.write(new File(corpus, "first.mid").toPath(), midi);
+        Files.write(new File(corpus, "second.mid").toPath(), midi);
+        // Identified as MIDI when probed, but cannot be parsed
+        File broken = new File(corpus, "broken.mid");
+        Files.write(broken.toPath(), "MThd broken".getBytes(StandardCharsets.US_ASCII));
+
+        String values_path = new File(tempFolder.getRoot(), "values.xml").getPath();
+        JsymbolicProcessor processor = new JsymbolicProcessor(values_path, false, false, feature_names, true, true, 60.0, 0.0, System.out, System.err);
+        RecordingListener listener = new RecordingListener();
+        List<String> error_log = processor.extractAndSaveFeaturesFromFileOrDirectory(corpus.getPath(), listener);
+
+        // Each file is started and then either completed or failed before the next one is started
+        assertEquals(6, listener.events.size());
+        for (int index = 1; index <= 3; index++) {
+            String started = listener.events.get(2 * index - 2);
+            String finished = listener.events.get(2 * index - 1);
+            assertTrue(started, started.startsWith("started " + index + " "));
+            assertTrue(finished, finished.startsWith("completed " + index + " ") || finished.startsWith("failed " + index + " "));
+            assertEquals(started.split(" ")[2], finished.split(" ")[2]);
+        }
+        assertEquals(1, listener.failed_files.size());
+        assertEquals(broken.getAbsoluteFile(), listener.failed_files.get(0).getAbsoluteFile());
+        assertEquals(2, listener.completed_features.size());
+
+        // The features passed on hold the window and overall values of each file
+        for (ExtractedFileFeatures features : listener.completed_features) {
+            assertTrue(features.getSourceFile().getName().matches("(first|second)\\.mid"));
+            assertTrue(features.hasWindowFeatures());
+            assertTrue(features.hasOverallFeatures());
+            int windows = features.getNumberOfWindows();
+            assertTrue(windows > 1);
+            assertEquals(windows, features.getWindowStartTimes().length);
+            assertEquals(windows, features.getWindowStopTimes().length);
+            assertEquals(windows, features.getWindowFeatureValues().length);
+            assertEquals(0.0, features.getWindowStartTimes()[0], 0.0);
+            assertEquals(60.0, features.getWindowStartTimes()[1], 0.01);
+
+            List<String> window_feature_names = new ArrayList<>();
+            for (FeatureDefinition definition : features.getWindowFeatureDefinitions())
+                window_feature_names.add(definition.name);
+            assertTrue(window_feature_names.containsAll(feature_names));
+            int pitch_class_histogram = window_feature_names.indexOf("Pitch Class Histogram");
+            assertEquals(12, features.getWindowFeatureValues()[0][pitch_class_histogram].length);
+
+            List<String> overall_feature_names = new ArrayList<>();
+            for (FeatureDefinition definition : features.getOverallFeatureDefinitions())
+                overall_feature_names.add(definition.name);
+            assertTrue(overall_feature_names.contains("Duration in Seconds Overall Average"));
+            assertTrue(overall_feature_names.contains("Note Density Overall Standard Deviation"));
+            assertEquals(features.getOverallFeatureDefinitions().length, features.getOverallFeatureValues().length);
+        }
+
+        // The exception thrown by the listener for the first completed file was logged, along with the
+        // broken file, and the second valid file was still processed
+        int listener_errors = 0;
+        int extraction_errors = 0;
+        for (String error : error_log) {
+            if (error.startsWith("Problem passing the features extracted from"))
+                listener_errors++;
+            else if (error.startsWith("Problem extracting features from " + broken.getAbsolutePath()))
+                extraction_errors++;
+        }
+        assertEquals(1, listener_errors);
+        assertEquals(1, extraction_errors);
+    }
+
+    /**
+     * Records the calls made to it, and throws an exception the first time a file is completed.
+     */
+    private static class RecordingListener
+            implements FeatureExtractionListener {
+
+        final List<String> events = new ArrayList<>();
+        final List<ExtractedFileFeatures> completed_features = new ArrayList<>();
+        final List<File> failed_files = new ArrayList<>();
+
+        @Override
+        public void fileExtractionStarted(File source_file, int current_extraction_index, int total_files_to_process) {
+            events.add("started " + current_extraction_index + " " + source_file.getName());
+        }
+
+        @Override
+        public void fileExtractionCompleted(ExtractedFileFeatures extracted_features, int current_extraction_index, int total_files_to_process) {
+            events.add("completed " + current_extraction_index + " " + extracted_features.getSourceFile().getName());
+            completed_features.add(extracted_features);
+            if (completed_features.size() == 1)
+                throw new IllegalStateException("Listener failure");
+        }
+
+        @Override
+        public void fileExtractionFailed(File source_file, String error_message, int current_extraction_index, int total_files_to_process) {
+            events.add("failed " + current_extraction_index + " " + source_file.getName());
+            failed_files.add(source_file);
+        }
+    }
+}
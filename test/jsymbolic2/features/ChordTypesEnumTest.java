@@ -130,4 +130,25 @@ public class ChordTypesEnumTest {
         assertEquals(expected_complex_chord, actual_complex_chord);
     }
 
+    /**
+     * Test that the chord type table gives the same chord type as the interval templates for every one of
+     * the 4096 possible sets of pitch classes, whatever the strengths of the pitch classes.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void getChordTypeOfEveryPitchClassMask() throws Exception {
+        for (int pitch_class_mask = 0; pitch_class_mask < 4096; pitch_class_mask++) {
+            int[] pitch_class_strengths = new int[number_of_intervals];
+            for (int pitch_class = 0; pitch_class < number_of_intervals; pitch_class++) {
+                if ((pitch_class_mask & (1 << pitch_class)) != 0) {
+                    pitch_class_strengths[pitch_class] = 1 + (pitch_class_mask * 31 + pitch_class * 17) % 200;
+                }
+            }
+            ChordTypeEnum expected = ChordTypeEnum.getChordTypeByTemplateMatching(pitch_class_strengths);
+            assertEquals(pitch_class_mask, ChordTypeEnum.getPitchClassMask(pitch_class_strengths));
+            assertEquals(expected, ChordTypeEnum.getChordTypeOfPitchClassMask(pitch_class_mask));
+            assertEquals(expected, ChordTypeEnum.getChordType(pitch_class_strengths));
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package jsymbolic2.featureutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the ExtractionPlan class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class ExtractionPlanTest {
+
+    /**
+     * Test that every feature is extracted after the features it depends on, and that exactly the features
+     * to be saved are marked to be saved.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testDependenciesPrecedeDependents()
+            throws Exception {
+        boolean[] features_to_save = FeatureExtractorAccess.getDefaultFeaturesToSave();
+        ExtractionPlan plan = FeatureExtractorAccess.getExtractionPlan(features_to_save);
+        int[] order = plan.getExtractionOrder();
+        int[][] dependency_positions = plan.getDependencyPositions();
+        boolean[] saved = plan.getFeaturesToSave();
+        int number_saved = 0;
+        for (int position = 0; position < order.length; position++) {
+            if (dependency_positions[position] != null)
+                for (int dependency_position : dependency_positions[position])
+                    assertTrue(dependency_position < position);
+            assertEquals(features_to_save[order[position]], saved[position]);
+            if (saved[position])
+                number_saved++;
+        }
+        assertEquals(FeatureExtractorAccess.getNamesOfDefaultFeaturesToSave().size(), number_saved);
+    }
+
+    /**
+     * Test that a serialized plan can be read back and used with the feature extractors.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testSerialization()
+            throws Exception {
+        boolean[] features_to_save = FeatureExtractorAccess.getDefaultFeaturesToSave();
+        ExtractionPlan plan = FeatureExtractorAccess.getExtractionPlan(features_to_save);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(bytes)) {
+            stream.writeObject(plan);
+        }
+        ExtractionPlan copy;
+        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ExtractionPlan) stream.readObject();
+        }
+        assertArrayEquals(plan.getExtractionOrder(), copy.getExtractionOrder());
+        assertArrayEquals(plan.getMaximumOffsets(), copy.getMaximumOffsets());
+        MIDIFeatureExtractor[] all_extractors = FeatureExtractorAccess.getAllImplementedFeatureExtractors();
+        assertArrayEquals(plan.getFeatureExtractorsInExtractionOrder(all_extractors),
+                          copy.getFeatureExtractorsInExtractionOrder(all_extractors));
+    }
+
+    /**
+     * Test that a plan is refused if it does not match the feature extractors it is used with.
+     * @throws java.lang.Exception test
+     */
+    @Test(expected = Exception.class)
+    public void testMismatchedFeatureExtractors()
+            throws Exception {
+        MIDIFeatureExtractor[] all_extractors = FeatureExtractorAccess.getAllImplementedFeatureExtractors();
+        ExtractionPlan plan = FeatureExtractorAccess.getExtractionPlan(FeatureExtractorAccess.getDefaultFeaturesToSave());
+        MIDIFeatureExtractor[] reversed = new MIDIFeatureExtractor[all_extractors.length];
+        for (int feat = 0; feat < all_extractors.length; feat++)
+            reversed[feat] = all_extractors[all_extractors.length - 1 - feat];
+        plan.getFeatureExtractorsInExtractionOrder(reversed);
+    }
+}
@@ -0,0 +1,76 @@
+package jsymbolic2.featureutils;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the FeatureIndex class and the lazy instantiation of feature extractors by
+ * FeatureExtractorAccess.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class FeatureIndexTest {
+
+    /**
+     * Test that an index survives being written and read back.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testWriteAndRead()
+            throws Exception {
+        String written = write(FeatureIndex.fromFeatureExtractors(FeatureExtractorAccess.instantiateAllFeatureExtractors()));
+        assertEquals(written, write(FeatureIndex.read(new StringReader(written))));
+    }
+
+    /**
+     * Test that the index used by FeatureExtractorAccess matches the implemented feature extractors.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testIndexMatchesFeatureExtractors()
+            throws Exception {
+        MIDIFeatureExtractor[] all_extractors = FeatureExtractorAccess.instantiateAllFeatureExtractors();
+        assertEquals(write(FeatureIndex.fromFeatureExtractors(all_extractors)),
+                     write(FeatureExtractorAccess.getFeatureIndex()));
+        List<String> names = FeatureExtractorAccess.getNamesOfAllImplementedFeatures();
+        assertEquals(all_extractors.length, names.size());
+        for (int feat = 0; feat < all_extractors.length; feat++)
+            assertEquals(all_extractors[feat].getFeatureDefinition().name, names.get(feat));
+    }
+
+    /**
+     * Test that only selected features and their dependencies are instantiated for a selection.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testSelectionIncludesOnlyDependencies()
+            throws Exception {
+        FeatureIndex index = FeatureExtractorAccess.getFeatureIndex();
+        int selected = 0;
+        while (index.getDependencies(selected) == null)
+            selected++;
+        boolean[] features_to_save = new boolean[index.getNumberOfFeatures()];
+        features_to_save[selected] = true;
+
+        MIDIFeatureExtractor[] extractors = FeatureExtractorAccess.getFeatureExtractorsForSelection(features_to_save);
+        assertEquals(index.getNumberOfFeatures(), extractors.length);
+        assertNotNull(extractors[selected]);
+        List<String> names = FeatureExtractorAccess.getNamesOfAllImplementedFeatures();
+        for (String dependency : index.getDependencies(selected))
+            assertNotNull(extractors[names.indexOf(dependency)]);
+        int unrelated = names.indexOf("Number of Slurs");
+        assertNull(extractors[unrelated]);
+    }
+
+    private static String write(FeatureIndex index)
+            throws Exception {
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+        return writer.toString();
+    }
+}
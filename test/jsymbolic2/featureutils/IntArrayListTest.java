@@ -0,0 +1,67 @@
+package jsymbolic2.featureutils;
+
+import java.util.Arrays;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the IntArrayList class.
+ *
+ * @author Cory McKay
+ */
+public class IntArrayListTest {
+
+    /**
+     * Test that values added past the initial capacity are kept, and that slices share them.
+     */
+    @Test
+    public void testAddAndSlice() {
+        IntArrayList list = new IntArrayList();
+        for (int i = 0; i < 20; i++)
+            list.add(i * 3);
+        assertEquals(20, list.size());
+        assertEquals(57, list.get(19));
+
+        IntArrayList slice = list.slice(5, 9);
+        assertArrayEquals(new int[]{15, 18, 21, 24}, slice.toArray());
+        assertArrayEquals(new int[]{18, 21}, slice.slice(1, 3).toArray());
+        assertEquals(Arrays.asList(15, 18, 21, 24), slice.asList());
+
+        // A slice is unaffected by later growth of the list that it was taken from
+        for (int i = 0; i < 100; i++)
+            list.add(-1);
+        assertEquals(24, slice.get(3));
+        assertTrue(list.slice(20, 20).isEmpty());
+    }
+
+    /**
+     * Test that a view of an array of lists reflects each list.
+     */
+    @Test
+    public void testAsListOfLists() {
+        IntArrayList[] lists = {new IntArrayList(new int[]{1, 2}), new IntArrayList()};
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList()), IntArrayList.asList(lists));
+        lists[1].add(3);
+        assertEquals(Arrays.asList(3), IntArrayList.asList(lists).get(1));
+    }
+
+    /**
+     * Test that a slice cannot be appended to.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddToSlice() {
+        IntArrayList list = new IntArrayList(new int[]{1, 2, 3});
+        list.slice(0, 2).add(4);
+    }
+
+    /**
+     * Test that a slice cannot be read past its end, even though the list it was taken from continues.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetPastEndOfSlice() {
+        IntArrayList list = new IntArrayList(new int[]{1, 2, 3});
+        list.slice(0, 2).get(2);
+    }
+}
@@ -0,0 +1,41 @@
+package jsymbolic2.featureutils;
+
+import java.util.Arrays;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the ShortArrayList class.
+ *
+ * @author Cory McKay
+ */
+public class ShortArrayListTest {
+
+    /**
+     * Test that values added past the initial capacity are kept, and that slices and views share them.
+     */
+    @Test
+    public void testAddAndSlice() {
+        ShortArrayList list = new ShortArrayList(2);
+        for (short i = 0; i < 20; i++)
+            list.add((short) (i * 7));
+        assertEquals(20, list.size());
+        assertEquals(133, list.get(19));
+
+        ShortArrayList slice = list.slice(2, 5);
+        assertArrayEquals(new short[]{14, 21, 28}, slice.toArray());
+        assertEquals(Arrays.asList((short) 14, (short) 21, (short) 28), slice.asList());
+        list.add((short) -1);
+        assertEquals(21, list.asList().size());
+    }
+
+    /**
+     * Test that a slice cannot be appended to.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddToSlice() {
+        ShortArrayList list = new ShortArrayList(new short[]{1, 2, 3});
+        list.slice(0, 2).add((short) 4);
+    }
+}
@@ -0,0 +1,136 @@
+package jsymbolic2.featureutils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the TickChart class.
+ *
+ * @author Cory McKay
+ */
+public class TickChartTest {
+
+    private final long default_threshold = TickChart.getOffHeapThreshold();
+
+    @After
+    public void restoreThreshold() {
+        TickChart.setOffHeapThreshold(default_threshold);
+    }
+
+    /**
+     * Test that rectangular charts behave the same whether they are stored on the heap or off-heap.
+     */
+    @Test
+    public void testRectangular() {
+        short[][] expected = new short[300][128];
+        expected[0][60] = 64;
+        expected[150][0] = -3;
+        expected[299][127] = Short.MAX_VALUE;
+
+        for (long threshold : new long[]{Long.MAX_VALUE, 0}) {
+            TickChart.setOffHeapThreshold(threshold);
+            TickChart chart = TickChart.createRectangular(300, 128);
+            assertEquals(threshold == 0, chart.isStoredOffHeap());
+            chart.set(0, 60, (short) 64);
+            chart.set(150, 0, (short) -3);
+            chart.set(299, 127, Short.MAX_VALUE);
+
+            assertEquals(300, chart.getNumberOfTicks());
+            assertEquals(128, chart.getRowLength(299));
+            assertEquals(64, chart.get(0, 60));
+            assertEquals(0, chart.get(0, 61));
+            assertArrayEquals(expected[150], chart.getRow(150));
+            assertArrayEquals(expected, chart.toArray());
+        }
+    }
+
+    /**
+     * Test that ragged charts behave the same whether they are stored on the heap or off-heap.
+     */
+    @Test
+    public void testRagged() {
+        short[][] expected = {{60, 64, 67}, {}, {48}, {36, 40, 43, 48, 52}};
+
+        for (long threshold : new long[]{Long.MAX_VALUE, 0}) {
+            TickChart.setOffHeapThreshold(threshold);
+            TickChart chart = TickChart.createRagged(4, 9);
+            assertEquals(threshold == 0, chart.isStoredOffHeap());
+            for (short[] row : expected)
+                chart.appendRow(row.clone());
+
+            assertEquals(4, chart.getNumberOfTicks());
+            assertEquals(0, chart.getRowLength(1));
+            assertEquals(5, chart.getRowLength(3));
+            assertEquals(48, chart.get(2, 0));
+            assertEquals(52, chart.get(3, 4));
+            assertArrayEquals(expected, chart.toArray());
+        }
+
+        assertFalse(TickChart.wrap(expected).isStoredOffHeap());
+        assertTrue(TickChart.wrap(expected).getRow(3) == expected[3]);
+    }
+
+    /**
+     * Test that row buffers are reused only by charts stored off-heap, and only when they are the length of
+     * the row.
+     */
+    @Test
+    public void testRowBuffer() {
+        short[][] expected = {{60, 64, 67}, {62, 65, 69}, {48}};
+
+        TickChart.setOffHeapThreshold(0);
+        TickChart chart = TickChart.createRagged(3, 7);
+        for (short[] row : expected)
+            chart.appendRow(row.clone());
+        short[] buffer = chart.getRow(0, null);
+        assertArrayEquals(expected[0], buffer);
+        assertSame(buffer, chart.getRow(1, buffer));
+        assertArrayEquals(expected[1], buffer);
+        short[] short_row = chart.getRow(2, buffer);
+        assertNotSame(buffer, short_row);
+        assertArrayEquals(expected[2], short_row);
+        assertArrayEquals(expected[1], buffer);
+        chart.close();
+
+        TickChart heap_chart = TickChart.wrap(expected);
+        assertSame(expected[1], heap_chart.getRow(1, buffer));
+        assertArrayEquals(expected[1], buffer);
+    }
+
+    /**
+     * Test that closing a chart more than once has no effect, and that closing a chart stored on the heap
+     * leaves it usable.
+     */
+    @Test
+    public void testClose() {
+        TickChart.setOffHeapThreshold(0);
+        TickChart chart = TickChart.createRectangular(10, 128);
+        chart.set(9, 127, (short) 5);
+        assertEquals(5, chart.get(9, 127));
+        chart.close();
+        chart.close();
+
+        TickChart.setOffHeapThreshold(Long.MAX_VALUE);
+        TickChart heap_chart = TickChart.createRectangular(10, 128);
+        heap_chart.set(9, 127, (short) 5);
+        heap_chart.close();
+        assertEquals(5, heap_chart.get(9, 127));
+    }
+
+    /**
+     * Test that rows cannot be appended past the size that a ragged chart was created with.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAppendPastEnd() {
+        TickChart.setOffHeapThreshold(0);
+        TickChart chart = TickChart.createRagged(1, 2);
+        chart.appendRow(new short[]{1, 2});
+        chart.appendRow(new short[]{3});
+    }
+}
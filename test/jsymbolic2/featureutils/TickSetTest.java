@@ -0,0 +1,74 @@
+package jsymbolic2.featureutils;
+
+import java.util.BitSet;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the TickSet class.
+ *
+ * @author Cory McKay
+ */
+public class TickSetTest {
+
+    /**
+     * Test the queries on a set stored as runs, and on a fragmented set stored as a bitset.
+     */
+    @Test
+    public void testRunsAndBitset() {
+        BitSet runs = new BitSet();
+        runs.set(2, 5);
+        runs.set(100, 110);
+        BitSet fragmented = new BitSet();
+        for (int tick = 0; tick < 200; tick += 2)
+            fragmented.set(tick);
+
+        for (BitSet bits : new BitSet[]{runs, fragmented}) {
+            TickSet ticks = new TickSet(bits, 201);
+            assertEquals(201, ticks.getNumberOfTicksSpanned());
+            assertEquals(bits.cardinality(), ticks.getNumberOfTicks());
+            for (int tick = 0; tick <= 201; tick++) {
+                assertEquals(bits.get(tick), ticks.contains(tick));
+                assertEquals(bits.nextSetBit(tick), ticks.nextTick(tick));
+                assertEquals(bits.nextClearBit(tick), ticks.nextTickNotInSet(tick));
+                assertEquals(bits.get(0, tick).cardinality(), ticks.getNumberOfTicksInRange(0, tick));
+            }
+        }
+
+        TickSet run_ticks = new TickSet(runs, 201);
+        TickSet fragmented_ticks = new TickSet(fragmented, 201);
+        assertEquals(8, run_ticks.getNumberOfTicksInRange(3, 106));
+        assertEquals(7, run_ticks.getNumberOfTicksInCommon(fragmented_ticks));
+        assertEquals(7, fragmented_ticks.getNumberOfTicksInCommon(run_ticks));
+        assertFalse(new TickSet(new BitSet(), 201).contains(0));
+    }
+
+    /**
+     * Test that the number of sets containing each tick is counted correctly.
+     */
+    @Test
+    public void testNumberOfSetsContainingEachTick() {
+        BitSet first = new BitSet();
+        first.set(1, 4);
+        BitSet second = new BitSet();
+        second.set(2);
+        second.set(5);
+        TickSet[] sets = {new TickSet(first, 7), new TickSet(second, 7), new TickSet(new BitSet(), 7)};
+
+        assertArrayEquals(new int[]{0, 1, 2, 1, 0, 1, 0}, TickSet.findNumberOfSetsContainingEachTick(sets));
+        assertTrue(TickSet.findNumberOfSetsContainingEachTick(new TickSet[0]).length == 0);
+    }
+
+    /**
+     * Test that ticks outside the span of the set are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTickOutsideSpan() {
+        BitSet bits = new BitSet();
+        bits.set(10);
+        new TickSet(bits, 10);
+    }
+}
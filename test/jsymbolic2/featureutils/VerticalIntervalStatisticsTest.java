@@ -0,0 +1,49 @@
+package jsymbolic2.featureutils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for the VerticalIntervalStatistics class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class VerticalIntervalStatisticsTest {
+
+    /**
+     * Test that runs of identical ticks, separated by a rest, are counted once per tick.
+     */
+    @Test
+    public void testRunsOfTicks() {
+        short[] c_major = new short[128];
+        c_major[60] = 64;
+        c_major[64] = 64;
+        c_major[67] = 64;
+        short[] rest = new short[128];
+        short[] major_third = new short[128];
+        major_third[48] = 10;
+        major_third[64] = 20;
+        short[][] chart = {c_major, c_major, c_major, rest, major_third, major_third};
+
+        VerticalIntervalStatistics statistics = new VerticalIntervalStatistics(TickChart.wrap(chart), 5);
+
+        double[] vertical_interval_histogram = statistics.getVerticalIntervalHistogram();
+        assertEquals(5.0, vertical_interval_histogram[0], 0.0);
+        assertEquals(3 * 128.0, vertical_interval_histogram[3], 0.0);
+        assertEquals(3 * 128.0, vertical_interval_histogram[4], 0.0);
+        assertEquals(3 * 128.0, vertical_interval_histogram[7], 0.0);
+        assertEquals(2 * 30.0, vertical_interval_histogram[16], 0.0);
+
+        double[] chord_type_histogram = statistics.getChordTypeHistogram();
+        assertEquals(3.0, chord_type_histogram[ChordTypeEnum.MAJOR_TRIAD.getChordTypeCode()], 0.0);
+        assertEquals(2.0, chord_type_histogram[ChordTypeEnum.PARTIAL_CHORD.getChordTypeCode()], 0.0);
+
+        assertEquals(5, statistics.getNumberOfSoundingTicks());
+        assertArrayEquals(new short[]{3, 3, 3, 2, 2}, statistics.getNumberOfPitchesByTick());
+        assertArrayEquals(new short[]{3, 3, 3, 2, 2}, statistics.getNumberOfPitchClassesByTick());
+        assertEquals(5, statistics.getNumberOfTicksWithWrappedVerticalInterval(4));
+        assertEquals(3, statistics.getNumberOfTicksWithWrappedVerticalInterval(3));
+        assertArrayEquals(new int[]{3, 1}, statistics.getChordDurationsInTicks());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package jsymbolic2.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import mckay.utilities.staticlibraries.StringMethods;
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the AceXmlFeatureValuesWriter class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class AceXmlFeatureValuesWriterTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String expected_output =
+            "<feature_vector_file>\n" +
+            "\t<data_set>\n" +
+            "\t\t<data_set_id>test.mid</data_set_id>\n" +
+            "\t\t<section start=\"0.0\" stop=\"10.5\">\n" +
+            "\t\t\t<feature>\n" +
+            "\t\t\t\t<name>Duration</name>\n" +
+            "\t\t\t\t<v>1.467E2</v>\n" +
+            "\t\t\t\t<v>3.48E-1</v>\n" +
+            "\t\t\t</feature>\n" +
+            "\t\t</section>\n" +
+            "\t\t<feature>\n" +
+            "\t\t\t<name>Duration</name>\n" +
+            "\t\t\t<v>" + StringMethods.getDoubleInScientificNotation(Double.NaN, 8) + "</v>\n" +
+            "\t\t\t<v>0E0</v>\n" +
+            "\t\t</feature>\n" +
+            "\t</data_set>\n\n" +
+            "</feature_vector_file>";
+
+    /**
+     * Test that the fast formatter matches StringMethods.getDoubleInScientificNotation whenever it does not
+     * defer to it.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testFormatScientific()
+            throws Exception {
+        Random random = new Random(0);
+        byte[] formatted = new byte[32];
+        for (int i = 0; i < 200000; i++) {
+            double value;
+            if (i % 3 == 0)
+                value = random.nextDouble();
+            else if (i % 3 == 1)
+                value = (random.nextDouble() - 0.5) * Math.pow(10.0, random.nextInt(40) - 20);
+            else
+                value = random.nextInt(100000) / (double) (1 + random.nextInt(1000));
+            int end = AceXmlFeatureValuesWriter.formatScientific(value, 8, formatted, 0);
+            if (end >= 0)
+                assertEquals(StringMethods.getDoubleInScientificNotation(value, 8), new String(formatted, 0, end, StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Test that plain and gzip-compressed output both have the expected contents.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testWriteFile()
+            throws Exception {
+        File plain = new File(tempFolder.getRoot(), "values.xml");
+        File compressed = new File(tempFolder.getRoot(), "values.xml.gz");
+        writeSample(plain);
+        writeSample(compressed);
+
+        assertEquals(expected_output, new String(Files.readAllBytes(plain.toPath()), StandardCharsets.UTF_8));
+        try (InputStream in = new GZIPInputStream(new FileInputStream(compressed))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] block = new byte[4096];
+            int read;
+            while ((read = in.read(block)) != -1)
+                out.write(block, 0, read);
+            assertEquals(expected_output, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeSample(File file)
+            throws Exception {
+        AceXmlFeatureValuesWriter writer = new AceXmlFeatureValuesWriter(file, 8);
+        writer.write("<feature_vector_file>\n");
+        writer.startDataSet("test.mid");
+        writer.startSection(0.0, 10.5);
+        writer.writeFeature("Duration", new double[] {146.7, 0.348}, true);
+        writer.endSection();
+        writer.writeFeature("Duration", new double[] {Double.NaN, 0.0}, false);
+        writer.endDataSet();
+        writer.write("</feature_vector_file>");
+        writer.close();
+        writer.close();
+    }
+}
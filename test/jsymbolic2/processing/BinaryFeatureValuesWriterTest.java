@@ -0,0 +1,159 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import ace.datatypes.FeatureDefinition;
+import jsymbolic2.api.BinaryFeatureValuesFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the BinaryFeatureValuesWriter class, and for reading its files with
+ * BinaryFeatureValuesFile.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class BinaryFeatureValuesWriterTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final int NUMBER_OF_FILES = 200;
+    private static final int WINDOWS_PER_FILE = 3;
+    private static final int NUMBER_OF_ROWS = NUMBER_OF_FILES * WINDOWS_PER_FILE;
+    private static final int WIDE_DIMENSIONS = 1999;
+    private static final int NUMBER_OF_COLUMNS = WIDE_DIMENSIONS + 1;
+
+    private static final FeatureDefinition[] definitions = {
+        new FeatureDefinition("Wide Feature", "", true, WIDE_DIMENSIONS),
+        new FeatureDefinition("Narrow Feature", "", true, 1)
+    };
+
+    /**
+     * The value expected in the given row and column. Every 7th row is missing its Narrow Feature value.
+     */
+    private static double expectedValue(int row, int column) {
+        if (column == WIDE_DIMENSIONS && row % 7 == 0)
+            return Double.NaN;
+        return row * NUMBER_OF_COLUMNS + column;
+    }
+
+    /**
+     * Write per-window rows with class labels for several music files. The matrix is larger than one
+     * transpose block (4 MB), so it is transposed in several blocks, the last of them partial.
+     */
+    private File writeFile() throws Exception {
+        File saved = new File(tempFolder.getRoot(), "values.fvbin");
+        BinaryFeatureValuesWriter writer = new BinaryFeatureValuesWriter(saved.getPath(), definitions, true, true);
+        for (int file = 0; file < NUMBER_OF_FILES; file++) {
+            String path = new File(new File(tempFolder.getRoot(), "Class" + (file % 2)), "piece" + file + ".mid").getPath();
+            double[] starts = new double[WINDOWS_PER_FILE];
+            double[] stops = new double[WINDOWS_PER_FILE];
+            double[][][] values = new double[WINDOWS_PER_FILE][2][];
+            for (int win = 0; win < WINDOWS_PER_FILE; win++) {
+                int row = file * WINDOWS_PER_FILE + win;
+                starts[win] = win * 10.0;
+                stops[win] = (win + 1) * 10.0;
+                values[win][0] = new double[WIDE_DIMENSIONS];
+                for (int dim = 0; dim < WIDE_DIMENSIONS; dim++)
+                    values[win][0][dim] = expectedValue(row, dim);
+                if (row % 7 != 0)
+                    values[win][1] = new double[]{expectedValue(row, WIDE_DIMENSIONS)};
+            }
+            writer.writeFileFeatures(new ExtractedFileFeatures(new File(path), path, starts, stops, definitions, values, null, null));
+        }
+        writer.finish();
+        return saved;
+    }
+
+    /**
+     * Test that the columns, rows, window times, identifiers and class labels read back match those written.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testTransposeSeveralBlocks()
+            throws Exception {
+        File saved = writeFile();
+        try (BinaryFeatureValuesFile binary = new BinaryFeatureValuesFile(saved.getPath())) {
+            assertEquals(NUMBER_OF_ROWS, binary.getNumberOfRows());
+            assertEquals(NUMBER_OF_COLUMNS, binary.getNumberOfColumns());
+            assertArrayEquals(new String[]{"Wide Feature", "Narrow Feature"}, binary.getFeatureNames());
+            assertArrayEquals(new int[]{WIDE_DIMENSIONS, 1}, binary.getFeatureDimensions());
+            assertEquals("Wide_Feature_0", binary.getColumnNames()[0]);
+            assertEquals("Narrow_Feature", binary.getColumnNames()[WIDE_DIMENSIONS]);
+            assertTrue(binary.getRowsAreWindows());
+
+            for (int column : new int[]{0, 1, 1000, WIDE_DIMENSIONS - 1, WIDE_DIMENSIONS}) {
+                double[] values = binary.getColumnValues(column);
+                for (int row = 0; row < NUMBER_OF_ROWS; row++)
+                    assertEquals(expectedValue(row, column), values[row], 0.0);
+            }
+            for (int row : new int[]{0, 1, 261, 262, 263, NUMBER_OF_ROWS - 1}) {
+                double[] values = binary.getRow(row);
+                for (int column = 0; column < NUMBER_OF_COLUMNS; column++)
+                    assertEquals(expectedValue(row, column), values[column], 0.0);
+            }
+
+            String[] identifiers = binary.getRowIdentifiers();
+            String[] class_labels = binary.getClassLabels();
+            for (int row = 0; row < NUMBER_OF_ROWS; row++) {
+                int file = row / WINDOWS_PER_FILE;
+                assertTrue(identifiers[row].endsWith("piece" + file + ".mid"));
+                assertEquals("Class" + (file % 2), class_labels[row]);
+                assertEquals((row % WINDOWS_PER_FILE) * 10.0, binary.getWindowStartTimes()[row], 0.0);
+                assertEquals((row % WINDOWS_PER_FILE + 1) * 10.0, binary.getWindowStopTimes()[row], 0.0);
+            }
+        }
+    }
+
+    /**
+     * Test that an exported .npy file has a valid, 64-byte aligned header and holds the matrix in Fortran
+     * order.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testExportToNpy()
+            throws Exception {
+        File saved = writeFile();
+        File npy = new File(tempFolder.getRoot(), "values.npy");
+        try (BinaryFeatureValuesFile binary = new BinaryFeatureValuesFile(saved.getPath())) {
+            binary.exportToNpy(npy.getPath());
+        }
+
+        try (RandomAccessFile in = new RandomAccessFile(npy, "r")) {
+            byte[] preamble = new byte[10];
+            in.readFully(preamble);
+            ByteBuffer preamble_buffer = ByteBuffer.wrap(preamble).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals((byte) 0x93, preamble_buffer.get());
+            byte[] magic = new byte[5];
+            preamble_buffer.get(magic);
+            assertEquals("NUMPY", new String(magic, StandardCharsets.US_ASCII));
+            assertEquals(1, preamble_buffer.get());
+            assertEquals(0, preamble_buffer.get());
+            int header_length = preamble_buffer.getShort();
+            assertEquals(0, (10 + header_length) % 64);
+
+            byte[] header = new byte[header_length];
+            in.readFully(header);
+            String dictionary = new String(header, StandardCharsets.US_ASCII);
+            assertTrue(dictionary.startsWith("{'descr': '<f8', 'fortran_order': True, 'shape': (" + NUMBER_OF_ROWS + ", " + NUMBER_OF_COLUMNS + "), }"));
+            assertTrue(dictionary.endsWith("\n"));
+            assertEquals(10 + header_length + (long) NUMBER_OF_ROWS * NUMBER_OF_COLUMNS * 8, in.length());
+
+            for (int column : new int[]{0, 1000, WIDE_DIMENSIONS}) {
+                for (int row : new int[]{0, 7, 300, NUMBER_OF_ROWS - 1}) {
+                    in.seek(10 + header_length + ((long) column * NUMBER_OF_ROWS + row) * 8);
+                    byte[] value = new byte[8];
+                    in.readFully(value);
+                    assertEquals(expectedValue(row, column), ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN).getDouble(), 0.0);
+                }
+            }
+        }
+    }
+}
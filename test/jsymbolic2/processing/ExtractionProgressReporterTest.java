@@ -0,0 +1,52 @@
+package jsymbolic2.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the ExtractionProgressReporter class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class ExtractionProgressReporterTest {
+
+    /**
+     * Test that snapshots count files that are completed, failed and still in flight, even when files
+     * finish out of order, and that stopping the reporter writes a final snapshot.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testSnapshotCounts()
+            throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream output = new PrintStream(bytes, true, "UTF-8");
+        ExtractionProgressReporter reporter = new ExtractionProgressReporter(output, 60000);
+        assertTrue(reporter.getSnapshot(false).contains("\"p50_latency_ms\": null"));
+
+        File file = new File("test.mid");
+        reporter.fileExtractionStarted(file, 1, 4);
+        reporter.fileExtractionStarted(file, 2, 4);
+        reporter.fileExtractionStarted(file, 3, 4);
+        reporter.fileExtractionCompleted(null, 3, 4);
+        reporter.fileExtractionFailed(file, "Problem", 1, 4);
+
+        String snapshot = reporter.getSnapshot(false);
+        assertTrue(snapshot.startsWith("{") && snapshot.endsWith("}"));
+        assertTrue(snapshot.contains("\"completed\": 1,"));
+        assertTrue(snapshot.contains("\"failed\": 1,"));
+        assertTrue(snapshot.contains("\"in_flight\": 1,"));
+        assertTrue(snapshot.contains("\"total\": 4,"));
+        assertTrue(!snapshot.contains("\"p99_latency_ms\": null"));
+        assertTrue(!snapshot.contains("\"eta_seconds\": null"));
+
+        reporter.start();
+        reporter.stop();
+        String[] lines = new String(bytes.toByteArray(), "UTF-8").trim().split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].contains("\"final\": true"));
+    }
+}
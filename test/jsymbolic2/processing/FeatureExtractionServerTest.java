@@ -0,0 +1,133 @@
+package jsymbolic2.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the FeatureExtractionServer class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class FeatureExtractionServerTest {
+
+    private static final File midi_file = new File("./test/jsymbolic2/api/resources/Chopin_Mazurka.midi");
+
+    private FeatureExtractionServer server;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        PrintStream quiet = new PrintStream(new ByteArrayOutputStream());
+        server = new FeatureExtractionServer(0, 2, 2, quiet, quiet);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Test that features are extracted from a local file specified by path and returned as JSON.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testExtractFromPath()
+            throws Exception {
+        String query = "path=" + URLEncoder.encode(midi_file.getAbsolutePath(), "UTF-8")
+                + "&features=" + URLEncoder.encode("Pitch Class Histogram,Range", "UTF-8");
+        HttpURLConnection connection = post("/extract?" + query, null);
+        assertEquals(200, connection.getResponseCode());
+        String json = new String(read(connection.getInputStream()), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"identifier\": "));
+        assertTrue(json.contains("\"overall\": {\"Pitch Class Histogram\": ["));
+        assertTrue(json.contains("\"Range\": ["));
+        assertTrue(!json.contains("\"windows\""));
+    }
+
+    /**
+     * Test that features are extracted from a file sent in the request body and returned in binary form.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testExtractFromBodyAsBinary()
+            throws Exception {
+        HttpURLConnection connection = post("/extract?format=binary&id=mazurka&features=Range",
+                                            Files.readAllBytes(midi_file.toPath()));
+        assertEquals(200, connection.getResponseCode());
+        ByteBuffer response = ByteBuffer.wrap(read(connection.getInputStream())).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[4];
+        response.get(magic);
+        assertArrayEquals(FeatureExtractionServer.binary_response_magic_bytes, magic);
+        assertEquals(FeatureExtractionServer.binary_response_format_version, response.getInt());
+        assertEquals("mazurka", readString(response));
+        assertEquals(1, response.getInt());
+        assertTrue(Double.isNaN(response.getDouble()));
+        assertTrue(Double.isNaN(response.getDouble()));
+        assertEquals(1, response.getInt());
+        assertEquals("Range", readString(response));
+        assertEquals(1, response.getInt());
+        assertTrue(response.getDouble() > 0.0);
+        assertEquals(0, response.remaining());
+    }
+
+    /**
+     * Test that invalid requests are refused with an error.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testInvalidRequests()
+            throws Exception {
+        assertEquals(400, post("/extract?features=Not+A+Feature", new byte[] {1}).getResponseCode());
+        assertEquals(400, post("/extract", "Not a MIDI file".getBytes(StandardCharsets.UTF_8)).getResponseCode());
+        assertEquals(404, post("/unknown", null).getResponseCode());
+        HttpURLConnection status = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/status").openConnection();
+        String json = new String(read(status.getInputStream()), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"rejected\": 0"));
+    }
+
+    private HttpURLConnection post(String address, byte[] body)
+            throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + address).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream stream = connection.getOutputStream()) {
+            if (body != null)
+                stream.write(body);
+        }
+        return connection;
+    }
+
+    private static byte[] read(InputStream stream)
+            throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = stream.read(buffer)) != -1)
+            bytes.write(buffer, 0, read);
+        stream.close();
+        return bytes.toByteArray();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
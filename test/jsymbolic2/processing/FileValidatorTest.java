@@ -69,6 +69,21 @@ public class FileValidatorTest {
                         errorFile);
     }
 
+    /**
+     * Test that probing identifies MIDI and MEI files from their first bytes, and rejects other files.
+     */
+    @Test
+    public void testProbeMusicFile() {
+        ProbedMusicFile midi = SymbolicMusicFileUtilities.probeMusicFile(new File("./test/jsymbolic2/api/resources/Chopin_Mazurka.midi"));
+        assertEquals(ProbedMusicFile.Format.MIDI, midi.getFormat());
+
+        ProbedMusicFile mei = SymbolicMusicFileUtilities.probeMusicFile(new File("./test/jsymbolic2/api/resources/Saint-Saens_LeCarnevalDesAnimmaux.mei"));
+        assertEquals(ProbedMusicFile.Format.MEI, mei.getFormat());
+
+        assertNull(SymbolicMusicFileUtilities.probeMusicFile(new File("./test/jsymbolic2/processing/resources/feature_values.xml")));
+        assertNull(SymbolicMusicFileUtilities.probeMusicFile(new File("dne.midi")));
+    }
+
     /**
      * Test of correctFileExtension from the FileValidator class.
      */
@@ -1,11 +1,15 @@
 package jsymbolic2.processing;
 
+import java.io.File;
+import java.util.List;
+import jsymbolic2.featureutils.IntArrayList;
 import org.ddmal.midiUtilities.MidiBuildEvent;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
 import javax.sound.midi.Sequence;
 import javax.sound.midi.Track;
 
@@ -45,7 +49,7 @@ public class MIDIIntermediateRepresentationsTest {
         t1.add(e5);
 
         MIDIIntermediateRepresentations actual_representation = new MIDIIntermediateRepresentations(test_overlap);
-        short[][] actual_pitch_tick = actual_representation.pitch_strength_by_tick_chart;
+        short[][] actual_pitch_tick = actual_representation.pitch_strength_by_tick_chart.toArray();
 
         short[][] expected_pitch_tick = new short[5][128];
         for(int x = 0; x < expected_pitch_tick.length; x++) {
@@ -77,7 +81,7 @@ public class MIDIIntermediateRepresentationsTest {
         t1_more.add(e_more1);
 
         MIDIIntermediateRepresentations actual_representation_more = new MIDIIntermediateRepresentations(test_more_notes);
-        short[][] actual_pitch_more = actual_representation_more.pitch_strength_by_tick_chart;
+        short[][] actual_pitch_more = actual_representation_more.pitch_strength_by_tick_chart.toArray();
 
         short[][] expected_pitch_more = new short[6][128];
         for(int x = 0; x < expected_pitch_more.length; x++) {
@@ -108,7 +112,7 @@ public class MIDIIntermediateRepresentationsTest {
         t2_tracks.add(e_tracks1);
 
         MIDIIntermediateRepresentations actual_representation_tracks = new MIDIIntermediateRepresentations(test_tracks);
-        short[][] actual_pitch_tracks = actual_representation_tracks.pitch_strength_by_tick_chart;
+        short[][] actual_pitch_tracks = actual_representation_tracks.pitch_strength_by_tick_chart.toArray();
 
         short[][] expected_pitch_tracks = new short[6][128];
         for(int x = 0; x < expected_pitch_tracks.length; x++) {
@@ -125,4 +129,84 @@ public class MIDIIntermediateRepresentationsTest {
         assertArrayEquals(expected_pitch_tracks, actual_pitch_tracks);
     }
 
+    /**
+     * Test that rescaling a sequence to a lower analysis resolution rounds event ticks to the new resolution,
+     * keeps very short notes at least one tick long and preserves the length of the sequence in time.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void rescaleToAnalysisResolution() throws Exception {
+        Sequence high_resolution = new Sequence(Sequence.PPQ, 960);
+        Track track = high_resolution.createTrack();
+        //A quarter note, a note too short to last a tick at 48 PPQ, and a late quarter note
+        track.add(MidiBuildEvent.createNoteOnEvent(60, 0, 0));
+        track.add(MidiBuildEvent.createNoteOffEvent(60, 960, 0));
+        track.add(MidiBuildEvent.createNoteOnEvent(62, 960, 0));
+        track.add(MidiBuildEvent.createNoteOffEvent(62, 965, 0));
+        track.add(MidiBuildEvent.createNoteOnEvent(64, 1935, 0));
+        track.add(MidiBuildEvent.createNoteOffEvent(64, 2880, 0));
+
+        Sequence rescaled = MIDIIntermediateRepresentations.rescaleToAnalysisResolution(high_resolution, 48);
+        assertEquals(48, rescaled.getResolution());
+        assertEquals(144, rescaled.getTickLength());
+        assertEquals(high_resolution.getMicrosecondLength(), rescaled.getMicrosecondLength());
+        long[] expected_ticks = {0, 48, 48, 49, 97, 144};
+        Track rescaled_track = rescaled.getTracks()[0];
+        for (int i = 0; i < expected_ticks.length; i++) {
+            assertEquals(expected_ticks[i], rescaled_track.get(i).getTick());
+        }
+
+        //Sequences that are already at or below the analysis resolution are not copied
+        assertSame(high_resolution, MIDIIntermediateRepresentations.rescaleToAnalysisResolution(high_resolution, 0));
+        assertSame(rescaled, MIDIIntermediateRepresentations.rescaleToAnalysisResolution(rescaled, 96));
+    }
+
+    /**
+     * Test that the deprecated boxed List fields hold the same values as the primitive lists they view.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecatedListViews() throws Exception {
+        Sequence sequence = MidiSystem.getSequence(new File("./test/jsymbolic2/api/resources/Chopin_Mazurka.midi"));
+        MIDIIntermediateRepresentations representations = new MIDIIntermediateRepresentations(sequence);
+
+        assertEquals(representations.run_lengths_by_rhythmic_value.length, representations.runs_of_same_rhythmic_value.length);
+        for (int i = 0; i < representations.run_lengths_by_rhythmic_value.length; i++) {
+            assertListEquals(representations.run_lengths_by_rhythmic_value[i], representations.runs_of_same_rhythmic_value[i]);
+        }
+
+        assertEquals(representations.note_durations_in_seconds.size(), representations.note_durations.size());
+        for (int i = 0; i < representations.note_durations.size(); i++) {
+            assertEquals(representations.note_durations_in_seconds.get(i), representations.note_durations.get(i), 0.0);
+        }
+
+        assertEquals(representations.pitch_bends_by_note.length, representations.pitch_bends_list.size());
+        for (int note = 0; note < representations.pitch_bends_by_note.length; note++) {
+            assertListEquals(representations.pitch_bends_by_note[note], representations.pitch_bends_list.get(note));
+        }
+
+        assertEquals(representations.melodic_interval_sequences_by_track_and_channel.length, representations.melodic_intervals_by_track_and_channel.size());
+        for (int track = 0; track < representations.melodic_interval_sequences_by_track_and_channel.length; track++) {
+            for (int channel = 0; channel < 16; channel++) {
+                assertListEquals(representations.melodic_interval_sequences_by_track_and_channel[track][channel], representations.melodic_intervals_by_track_and_channel.get(track)[channel]);
+            }
+        }
+
+        assertEquals(16, representations.list_of_note_on_pitches_by_channel.size());
+        int note_ons = 0;
+        for (int channel = 0; channel < 16; channel++) {
+            assertListEquals(representations.note_on_pitches_by_channel[channel], representations.list_of_note_on_pitches_by_channel.get(channel));
+            note_ons += representations.note_on_pitches_by_channel[channel].size();
+        }
+        assertTrue(note_ons > 0);
+    }
+
+    private static void assertListEquals(IntArrayList expected, List<Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), (int) actual.get(i));
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the consistency and note reports prepared by the MIDIReporter class.
+ *
+ * @author Cory McKay
+ */
+public class MIDIReporterTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String[] headings = { "NUMBER OF VOICES", "TEMPO", "TIME SIGNATURE", "KEY SIGNATURE",
+        "GENERAL MIDI PATCHES", "UNPITCHED CHANNEL 10 NOTES", "NOTE VELOCITIES", "CHANNEL VOLUMES",
+        "PITCH BEND VALUES", "MEDIAN RHYTHMIC OFFSET", "RHYTHMIC OFFSET STDEV", "DUPLICATED MIDI CHANNELS",
+        "MULTIPLEXED MIDI TRACKS AND CHANNELS", "MIDI FILE TYPE" };
+
+    private static final String[] steady_values = { "1", "120", "4/4", "Major with 0 accidentals", "1",
+        "Not present in file", "100", "100", "64", "0", "0", "Not present in file", "Not present in file", "1" };
+
+    /**
+     * Write a type 1 MIDI file holding a single piano voice playing eight quarter notes, with the given
+     * tempos (in microseconds per quarter note) set at the start of each measure.
+     */
+    private File writeMidiFile(String name, int... microseconds_per_quarter_note) throws Exception {
+        Sequence sequence = new Sequence(Sequence.PPQ, 96);
+        Track track = sequence.createTrack();
+        for (int i = 0; i < microseconds_per_quarter_note.length; i++) {
+            int tempo = microseconds_per_quarter_note[i];
+            byte[] data = { (byte) (tempo >> 16), (byte) (tempo >> 8), (byte) tempo };
+            track.add(new MidiEvent(new MetaMessage(0x51, data, 3), i * 384));
+        }
+        track.add(new MidiEvent(new MetaMessage(0x58, new byte[] {4, 2, 24, 8}, 4), 0));
+        track.add(new MidiEvent(new MetaMessage(0x59, new byte[] {0, 0}, 2), 0));
+        track.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, 0, 0, 0), 0));
+        track.add(new MidiEvent(new ShortMessage(ShortMessage.CONTROL_CHANGE, 0, 7, 100), 0));
+        track.add(new MidiEvent(new ShortMessage(ShortMessage.PITCH_BEND, 0, 0, 64), 0));
+        for (int note = 0; note < 8; note++) {
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, 60 + note, 100), note * 96));
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 0, 60 + note, 0), (note + 1) * 96));
+        }
+        File file = tempFolder.newFile(name);
+        MidiSystem.write(sequence, 1, file);
+        return file;
+    }
+
+    /**
+     * The intraconsistency report expected for the given file, with the given reports on each quantity.
+     */
+    private static String intraconsistencyReport(File file, int number, int total, String[] quantity_reports) {
+        StringBuilder report = new StringBuilder();
+        report.append("\n============ INTRACONSISTENCY REPORT FOR FILE " + number + "/" + total + " ============\n\n");
+        report.append("\tFILE NAME: " + file.getAbsolutePath() + "\n");
+        for (int quantity = 0; quantity < headings.length; quantity++)
+            report.append("\t" + headings[quantity] + ": " + quantity_reports[quantity] + "\n");
+        return report.toString();
+    }
+
+    /**
+     * The reports on each quantity expected for a file with a single tempo.
+     */
+    private static String[] steadyReports(boolean verbose) {
+        String[] reports = new String[headings.length];
+        for (int quantity = 0; quantity < headings.length; quantity++)
+            reports[quantity] = verbose ? "Consistent (" + steady_values[quantity] + ")" : "Consistent";
+        return reports;
+    }
+
+    /**
+     * Test the non-verbose report on a single file, which has no summary sections.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testSingleFile()
+            throws Exception {
+        File file = writeMidiFile("steady.mid", 500000);
+        String report = MIDIReporter.prepareConsistencyReports(new File[] {file}, true, true, false);
+        assertEquals(intraconsistencyReport(file, 1, 1, steadyReports(false)) + "\n", report);
+    }
+
+    /**
+     * Test the verbose report on a single file, which lists the values found.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testSingleFileVerbose()
+            throws Exception {
+        File file = writeMidiFile("steady.mid", 500000);
+        String report = MIDIReporter.prepareConsistencyReports(new File[] {file}, true, true, true);
+        assertEquals(intraconsistencyReport(file, 1, 1, steadyReports(true)) + "\n", report);
+    }
+
+    /**
+     * Test the non-verbose report on several files, one of which changes tempo.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testMultipleFiles()
+            throws Exception {
+        File[] files = { writeMidiFile("first.mid", 500000),
+                         writeMidiFile("changing.mid", 500000, 666667),
+                         writeMidiFile("second.mid", 500000) };
+        String report = MIDIReporter.prepareConsistencyReports(files, true, true, false);
+
+        String[] changing_reports = steadyReports(false);
+        changing_reports[1] = "Varies";
+        StringBuilder expected = new StringBuilder();
+        expected.append(intraconsistencyReport(files[0], 1, 3, steadyReports(false)));
+        expected.append(intraconsistencyReport(files[1], 2, 3, changing_reports));
+        expected.append(intraconsistencyReport(files[2], 3, 3, steadyReports(false)));
+        expected.append("\n************ SUMMARY FILE INTRACONSISTENCY REPORT ************\n\n");
+        expected.append("\tNUMBER OF FILES WITH INTERNAL INCONSISTENCES: 1\n");
+        expected.append("\n\tInternally inconsistent file 1/1: " + files[1].getAbsolutePath() + "\n");
+        expected.append("\t\tInconsistency 1/1: Tempo\n");
+        expected.append("\n************ SUMMARY FILE INTERCONSISTENCY REPORT ************\n\n");
+        for (int quantity = 0; quantity < headings.length; quantity++) {
+            if (quantity == 1)
+                expected.append("\tTEMPO: Varies (2 distinct value sets found across the 3 files)\n");
+            else expected.append("\t" + headings[quantity] + ": Consistent (the same value set found in all 3 files}\n");
+        }
+        expected.append("\n");
+        assertEquals(expected.toString(), report);
+    }
+
+    /**
+     * Test the verbose report on several files, which lists the values found in each file and the files that
+     * have each set of values.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testMultipleFilesVerbose()
+            throws Exception {
+        File[] files = { writeMidiFile("first.mid", 500000),
+                         writeMidiFile("changing.mid", 500000, 666667),
+                         writeMidiFile("second.mid", 500000) };
+        String report = MIDIReporter.prepareConsistencyReports(files, true, true, true);
+
+        String[] changing_reports = steadyReports(true);
+        changing_reports[1] = "Varies (120 + 90)";
+        StringBuilder expected = new StringBuilder();
+        expected.append(intraconsistencyReport(files[0], 1, 3, steadyReports(true)));
+        expected.append(intraconsistencyReport(files[1], 2, 3, changing_reports));
+        expected.append(intraconsistencyReport(files[2], 3, 3, steadyReports(true)));
+        expected.append("\n************ SUMMARY FILE INTRACONSISTENCY REPORT ************\n\n");
+        expected.append("\tNUMBER OF FILES WITH INTERNAL INCONSISTENCES: 1\n");
+        expected.append("\n\tInternally inconsistent file 1/1: " + files[1].getAbsolutePath() + "\n");
+        expected.append("\t\tInconsistency 1/1: Tempo (120 + 90)\n");
+        expected.append("\n************ SUMMARY FILE INTERCONSISTENCY REPORT ************\n\n");
+        for (int quantity = 0; quantity < headings.length; quantity++) {
+            if (quantity == 1) {
+                expected.append("\tTEMPO: Varies (2 distinct value sets found across the 3 files)");
+                expected.append("\n\t\t< 120 >: 2 files");
+                expected.append("\n\t\t\t" + files[0].getAbsolutePath());
+                expected.append("\n\t\t\t" + files[2].getAbsolutePath());
+                expected.append("\n\t\t< 120, 90 >: 1 files");
+                expected.append("\n\t\t\t" + files[1].getAbsolutePath() + "\n");
+            } else {
+                expected.append("\t" + headings[quantity] + ": Consistent (the same value set found in all 3 files}");
+                expected.append("\n\t\t< " + steady_values[quantity] + " >: 3 files");
+                for (File file : files)
+                    expected.append("\n\t\t\t" + file.getAbsolutePath());
+                expected.append("\n");
+            }
+        }
+        expected.append("\n");
+        assertEquals(expected.toString(), report);
+    }
+
+    /**
+     * Test that when a file cannot be parsed, an exception is thrown after the intraconsistency reports on
+     * the files preceding it have been written, and before any summary report is written.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testInvalidFileAfterValidFile()
+            throws Exception {
+        File valid_file = writeMidiFile("steady.mid", 500000);
+        File invalid_file = tempFolder.newFile("not_midi.mid");
+        Files.write(invalid_file.toPath(), "Not a MIDI file".getBytes("UTF-8"));
+
+        StringWriter report = new StringWriter();
+        boolean thrown = false;
+        try { MIDIReporter.writeConsistencyReports(new File[] {valid_file, invalid_file}, true, true, false, report); }
+        catch (Exception e) { thrown = true; }
+        assertTrue(thrown);
+        String expected = intraconsistencyReport(valid_file, 1, 2, steadyReports(false));
+        assertEquals(expected, report.toString());
+        assertFalse(report.toString().contains("SUMMARY"));
+    }
+
+    /**
+     * Write a type 1 MIDI file with two tracks. The first has two overlapping notes of the same pitch, ended
+     * by the first Note Off that follows them, and a note with no Note Off. The second starts notes on the
+     * same ticks as notes on the first.
+     */
+    private File writeNoteFile() throws Exception {
+        Sequence sequence = new Sequence(Sequence.PPQ, 96);
+        Track first_track = sequence.createTrack();
+        first_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, 60, 100), 0));
+        first_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, 60, 90), 48));
+        first_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 0, 60, 0), 96));
+        first_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, 64, 80), 96));
+        first_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 0, 60, 0), 144));
+        Track second_track = sequence.createTrack();
+        second_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 1, 67, 70), 0));
+        second_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 1, 67, 0), 48));
+        second_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 1, 69, 70), 48));
+        second_track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 1, 69, 0), 144));
+        File file = tempFolder.newFile("notes.mid");
+        MidiSystem.write(sequence, 1, file);
+        return file;
+    }
+
+    /**
+     * Test the note report segregated by track and channel. Overlapping notes of the same pitch both end at
+     * the first Note Off that follows them, and a note with no Note Off ends at the end of its track.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testNoteReportByTrackAndChannel()
+            throws Exception {
+        MIDIReporter reporter = new MIDIReporter(writeNoteFile());
+        String expected =
+            "\nNOTE ON/OFF MESSAGES ON TRACK 1 AND CHANNEL 1:\n" +
+            "\tNOTE 1: Beat 1 to 2, Tick 1 to 97\n" +
+            "\t\tPitch: 60, Velocity: 100, Track 1, Channel 1\n" +
+            "\tNOTE 2: Beat 1.5 to 2, Tick 49 to 97\n" +
+            "\t\tPitch: 60, Velocity: 90, Track 1, Channel 1\n" +
+            "\tNOTE 3: Beat 2 to 2.5, Tick 97 to 145\n" +
+            "\t\tPitch: 64, Velocity: 80, Track 1, Channel 1\n" +
+            "\nNOTE ON/OFF MESSAGES ON TRACK 2 AND CHANNEL 2:\n" +
+            "\tNOTE 1: Beat 1 to 1.5, Tick 1 to 49\n" +
+            "\t\tPitch: 67, Velocity: 70, Track 2, Channel 2\n" +
+            "\tNOTE 2: Beat 1.5 to 2.5, Tick 49 to 145\n" +
+            "\t\tPitch: 69, Velocity: 70, Track 2, Channel 2\n";
+        assertEquals(expected, reporter.prepareNoteReport(false, true));
+
+        StringWriter written = new StringWriter();
+        reporter.writeNoteReport(false, true, written);
+        assertEquals(expected, written.toString());
+    }
+
+    /**
+     * Test the note report in temporal order. Notes starting on the same tick are listed in track order, and
+     * notes with no Note Off are omitted.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testNoteReportInTemporalOrder()
+            throws Exception {
+        MIDIReporter reporter = new MIDIReporter(writeNoteFile());
+        String expected =
+            "\nNOTE ON/OFF MESSAGES LISTED IN TEMPORAL ORDER:\n" +
+            "\tNOTE 1: Beat 1 to 2, Tick 0 to 96\n" +
+            "\t\tPitch: 60, Velocity: 100, Track 1, Channel 1\n" +
+            "\tNOTE 2: Beat 1 to 1.5, Tick 0 to 48\n" +
+            "\t\tPitch: 67, Velocity: 70, Track 2, Channel 2\n" +
+            "\tNOTE 3: Beat 1.5 to 2, Tick 48 to 96\n" +
+            "\t\tPitch: 60, Velocity: 90, Track 1, Channel 1\n" +
+            "\tNOTE 4: Beat 1.5 to 2.5, Tick 48 to 144\n" +
+            "\t\tPitch: 69, Velocity: 70, Track 2, Channel 2\n";
+        assertEquals(expected, reporter.prepareNoteReport(true, false));
+
+        StringWriter written = new StringWriter();
+        reporter.writeNoteReport(true, false, written);
+        assertEquals(expected, written.toString());
+    }
+}
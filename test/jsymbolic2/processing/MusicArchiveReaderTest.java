@@ -0,0 +1,123 @@
+package jsymbolic2.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the MusicArchiveReader class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class MusicArchiveReaderTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final File midi_file = new File("./test/jsymbolic2/api/resources/Chopin_Mazurka.midi");
+
+    /**
+     * Test that the entries of a zip archive can be listed and read by name.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testZipArchive()
+            throws Exception {
+        byte[] midi = Files.readAllBytes(midi_file.toPath());
+        File archive = tempFolder.newFile("corpus.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("pieces/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("pieces/mazurka.mid"));
+            zip.write(midi);
+            zip.closeEntry();
+        }
+
+        try (MusicArchiveReader reader = new MusicArchiveReader(archive)) {
+            assertTrue(reader.isRandomAccess());
+            assertEquals("pieces/mazurka.mid", reader.nextEntry());
+            assertArrayEquals(midi, reader.readEntry("pieces/mazurka.mid"));
+            assertNull(reader.nextEntry());
+            assertEquals(new File(archive.getAbsolutePath() + "!/pieces/mazurka.mid"),
+                         reader.getEntryFile("pieces/mazurka.mid"));
+        }
+    }
+
+    /**
+     * Test that the entries of a gzipped tar archive are read sequentially, including entries that are not
+     * read and entries with long names.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testGzippedTarArchive()
+            throws Exception {
+        byte[] midi = Files.readAllBytes(midi_file.toPath());
+        StringBuilder long_name = new StringBuilder("pieces/");
+        for (int i = 0; i < 150; i++)
+            long_name.append('x');
+        long_name.append(".mid");
+
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTarEntry(tar, "notes.txt", '0', "Not music".getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(tar, "././@LongLink", 'L', (long_name + "\0").getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(tar, "truncated_name", '0', midi);
+        tar.write(new byte[1024]);
+        File archive = tempFolder.newFile("corpus.tar.gz");
+        try (OutputStream stream = new GZIPOutputStream(new FileOutputStream(archive))) {
+            tar.writeTo(stream);
+        }
+
+        assertTrue(MusicFilter.isArchive(archive));
+        try (MusicArchiveReader reader = new MusicArchiveReader(archive)) {
+            assertFalse(reader.isRandomAccess());
+            assertEquals("notes.txt", reader.nextEntry());
+            assertEquals(long_name.toString(), reader.nextEntry());
+            assertEquals(midi.length, reader.getEntrySize());
+            assertArrayEquals(midi, reader.readEntry());
+            assertNull(reader.nextEntry());
+        }
+    }
+
+    /**
+     * Write a tar header and the padded data of an entry.
+     */
+    private static void writeTarEntry(ByteArrayOutputStream tar, String name, char type, byte[] data)
+            throws Exception {
+        byte[] header = new byte[512];
+        byte[] name_bytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(name_bytes, 0, header, 0, name_bytes.length);
+        writeOctal(header, 100, 8, 0644);
+        writeOctal(header, 124, 12, data.length);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+        for (int i = 148; i < 156; i++)
+            header[i] = ' ';
+        int checksum = 0;
+        for (byte value : header)
+            checksum += value & 0xFF;
+        writeOctal(header, 148, 8, checksum);
+        tar.write(header);
+        tar.write(data);
+        tar.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private static void writeOctal(byte[] header, int offset, int length, long value) {
+        String octal = String.format("%0" + (length - 1) + "o", value);
+        System.arraycopy(octal.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+    }
+}
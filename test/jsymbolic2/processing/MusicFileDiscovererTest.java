@@ -0,0 +1,152 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the MusicFileDiscoverer class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class MusicFileDiscovererTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final File midi_file = new File("./test/jsymbolic2/api/resources/Chopin_Mazurka.midi");
+
+    private static final byte[] not_music = "Not a MIDI file".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Test that valid files in a nested folder tree, in an archive and specified directly are handed over in
+     * the order in which they were found, and that invalid and missing files are skipped and listed.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testFilesAreReturnedInOrder()
+            throws Exception {
+        byte[] midi = Files.readAllBytes(midi_file.toPath());
+        File corpus = tempFolder.newFolder("corpus");
+        File nested = new File(new File(corpus, "nested"), "deeper");
+        nested.mkdirs();
+        for (int i = 0; i < 30; i++) {
+            write(new File(corpus, "piece_" + i + ".mid"), (i % 5 == 3) ? not_music : midi);
+            write(new File(nested, "nested_piece_" + i + ".midi"), (i % 7 == 2) ? not_music : midi);
+        }
+        write(new File(corpus, "notes.txt"), not_music);
+        File archive = new File(nested.getParentFile(), "archive.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (String name : new String[] {"a.mid", "readme.txt", "b/broken.mid", "b/c.mid"}) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(name.endsWith("broken.mid") || name.endsWith(".txt") ? not_music : midi);
+                zip.closeEntry();
+            }
+        }
+        File direct = tempFolder.newFile("direct.mid");
+        write(direct, midi);
+        File missing = new File(tempFolder.getRoot(), "missing.mid");
+
+        // Work out the expected order and validity of the files in the order that they are traversed
+        List<File> expected_valid = new ArrayList<>();
+        List<File> expected_invalid = new ArrayList<>();
+        Files.walkFileTree(corpus.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attributes)
+                    throws IOException {
+                File file = path.toFile();
+                if (file.getName().endsWith(".zip")) {
+                    File archive_path = file.getAbsoluteFile();
+                    expected_valid.add(new File(archive_path.getPath() + "!/a.mid"));
+                    expected_invalid.add(new File(archive_path.getPath() + "!/b/broken.mid"));
+                    expected_valid.add(new File(archive_path.getPath() + "!/b/c.mid"));
+                }
+                else if (!file.getName().endsWith(".txt")) {
+                    if (Arrays.equals(not_music, Files.readAllBytes(path)))
+                        expected_invalid.add(file.getAbsoluteFile());
+                    else expected_valid.add(file.getAbsoluteFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        expected_valid.add(direct.getAbsoluteFile());
+        expected_invalid.add(missing.getAbsoluteFile());
+
+        List<String> error_log = new ArrayList<>();
+        MusicFileDiscoverer discoverer = new MusicFileDiscoverer(Arrays.asList(corpus, direct, missing), new MusicFilter(true), 8, null, error_log);
+        List<File> returned = new ArrayList<>();
+        try {
+            ProbedMusicFile probed_file;
+            while ((probed_file = discoverer.next()) != null)
+                returned.add(probed_file.getFile());
+        }
+        finally {
+            discoverer.close();
+        }
+
+        assertEquals(expected_valid, returned);
+        assertEquals(expected_invalid, discoverer.getInvalidFilesSoFar());
+        assertEquals(expected_valid.size(), discoverer.getNumberOfValidFilesFoundSoFar());
+        assertTrue(discoverer.isFinished());
+        assertTrue(error_log.isEmpty());
+    }
+
+    /**
+     * Test that closing a discoverer whose traversal is blocked on a full queue ends the traversal thread.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testCloseEndsTraversal()
+            throws Exception {
+        // More files than can be waiting to be retrieved at once
+        File corpus = tempFolder.newFolder("corpus");
+        for (int i = 0; i < 1500; i++)
+            write(new File(corpus, "piece_" + i + ".mid"), not_music);
+
+        MusicFileDiscoverer discoverer = new MusicFileDiscoverer(Arrays.asList(corpus), new MusicFilter(), 2, null, new ArrayList<>());
+        discoverer.start();
+        Thread traversal_thread = null;
+        for (int attempt = 0; attempt < 100 && traversal_thread == null; attempt++) {
+            for (Thread thread : Thread.getAllStackTraces().keySet())
+                if (thread.getName().equals("jSymbolic file discovery") && thread.isAlive())
+                    traversal_thread = thread;
+            if (traversal_thread == null)
+                Thread.sleep(10);
+        }
+        assertNotNull(traversal_thread);
+
+        // Wait for the traversal to fill the queue and block
+        for (int attempt = 0; attempt < 500 && traversal_thread.getState() != Thread.State.WAITING; attempt++)
+            Thread.sleep(10);
+        assertTrue(traversal_thread.isAlive());
+
+        discoverer.close();
+        traversal_thread.join(5000);
+        assertFalse(traversal_thread.isAlive());
+        assertTrue(discoverer.isFinished());
+        assertNull(discoverer.next());
+    }
+
+    private static void write(File file, byte[] contents)
+            throws IOException {
+        Files.write(file.toPath(), contents);
+    }
+}
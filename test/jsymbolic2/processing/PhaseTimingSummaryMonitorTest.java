@@ -0,0 +1,45 @@
+package jsymbolic2.processing;
+
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+import org.ddmal.midiUtilities.MidiBuildEvent;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the PhaseTimingSummaryMonitor class and the phase hooks of MIDIIntermediateRepresentations.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class PhaseTimingSummaryMonitorTest {
+
+    /**
+     * Test that each generate* pass is reported to an installed monitor, and that nothing is reported once
+     * it has been removed.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testIntermediateRepresentationPassesAreReported()
+            throws Exception {
+        Sequence sequence = new Sequence(Sequence.PPQ, 256);
+        Track track = sequence.createTrack();
+        track.add(MidiBuildEvent.createNoteOnEvent(60, 0, 0));
+        track.add(MidiBuildEvent.createNoteOffEvent(60, 256, 0));
+
+        PhaseTimingSummaryMonitor monitor = new PhaseTimingSummaryMonitor();
+        ExtractionPhaseMonitor.install(monitor);
+        try {
+            new MIDIIntermediateRepresentations(sequence);
+        } finally {
+            ExtractionPhaseMonitor.install(null);
+        }
+        String summary = monitor.getSummary();
+        assertTrue(summary.contains("Intermediate Representation\tgenerateOverallMetadata\t1\t"));
+        assertTrue(summary.contains("Intermediate Representation\tgenerateCompleteRestDurations\t1\t"));
+
+        new MIDIIntermediateRepresentations(sequence);
+        assertTrue(monitor.getSummary().contains("\tgenerateOverallMetadata\t1\t"));
+        assertNull(ExtractionPhaseMonitor.beginPhase(ExtractionPhaseMonitor.Phase.PARSE, null));
+    }
+}
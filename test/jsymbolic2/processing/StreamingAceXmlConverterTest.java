@@ -0,0 +1,87 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jsymbolic2.api.BinaryFeatureValuesFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the StreamingAceXmlConverter class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class StreamingAceXmlConverterTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String resources = "./test/jsymbolic2/processing/resources/";
+
+    /**
+     * Test that streamed ARFF and CSV conversions match those produced by AceXmlConverter.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testConvertFiles()
+            throws Exception {
+        File values = tempFolder.newFile("feature_values.xml");
+        Files.copy(new File(resources + "feature_values.xml").toPath(), values.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        List<String> error_log = new ArrayList<>();
+        int converted = StreamingAceXmlConverter.convertFiles(Arrays.asList(values.getPath()), true, true, false, false, 2, System.out, System.err, error_log);
+        assertEquals(1, converted);
+        assertTrue(error_log.isEmpty());
+
+        File arff = new File(tempFolder.getRoot(), "feature_values.arff");
+        File csv = new File(tempFolder.getRoot(), "feature_values.csv");
+        assertEquals(Files.readAllLines(new File(resources + "feature_values_noxml.arff").toPath()), Files.readAllLines(arff.toPath()));
+        assertEquals(Files.readAllLines(new File(resources + "feature_values_noxml.csv").toPath()), Files.readAllLines(csv.toPath()));
+    }
+
+    /**
+     * Test that a binary conversion can be read back with the values, names and identifiers of the ACE XML file.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testConvertToBinary()
+            throws Exception {
+        File values = tempFolder.newFile("feature_values.xml");
+        Files.copy(new File(resources + "feature_values.xml").toPath(), values.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        List<String> error_log = new ArrayList<>();
+        StreamingAceXmlConverter.convertFiles(Arrays.asList(values.getPath()), false, false, true, false, 1, System.out, System.err, error_log);
+        assertTrue(error_log.isEmpty());
+
+        try (BinaryFeatureValuesFile binary = new BinaryFeatureValuesFile(new File(tempFolder.getRoot(), "feature_values.fvbin").getPath())) {
+            assertEquals(1, binary.getNumberOfRows());
+            assertEquals(101, binary.getNumberOfColumns());
+            assertEquals("Duration", binary.getColumnNames()[0]);
+            assertEquals("/Users/dinamix/NetBeansProjects/jSymbolic/./testinput/Altenburg_Ein_feste_Burg.mei", binary.getRowIdentifiers()[0]);
+            assertEquals(146.7, binary.getColumn(0).get(0), 0.0);
+            assertEquals(0.348, binary.getRow(0)[2], 0.0);
+        }
+    }
+
+    /**
+     * Test that a missing input file is reported without stopping the conversion of the others.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testMissingFileIsLogged()
+            throws Exception {
+        File values = tempFolder.newFile("feature_values.xml");
+        Files.copy(new File(resources + "feature_values.xml").toPath(), values.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        String missing = new File(tempFolder.getRoot(), "missing.xml").getPath();
+
+        List<String> error_log = new ArrayList<>();
+        int converted = StreamingAceXmlConverter.convertFiles(Arrays.asList(missing, values.getPath()), false, true, false, false, 0, System.out, System.err, error_log);
+        assertEquals(1, converted);
+        assertEquals(1, error_log.size());
+    }
+}
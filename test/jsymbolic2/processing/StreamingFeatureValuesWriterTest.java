@@ -0,0 +1,187 @@
+package jsymbolic2.processing;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import jsymbolic2.featureutils.FeatureExtractorAccess;
+import mckay.utilities.staticlibraries.StringMethods;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the StreamingFeatureValuesWriter class and the ArffFeatureValuesWriter and
+ * CsvFeatureValuesWriter classes that MIDIFeatureProcessor streams extracted feature values to.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class StreamingFeatureValuesWriterTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String test_midi_file = "./test/jsymbolic2/api/resources/Chopin_Mazurka.midi";
+
+    /**
+     * Test that values are rounded exactly as they are formatted in ACE XML Feature Values files, including
+     * the rounding of ties.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testRoundToSavedPrecision()
+            throws Exception {
+        assertEquals(12345678.0, StreamingFeatureValuesWriter.roundToSavedPrecision(12345678.5), 0.0);
+        assertEquals(12345680.0, StreamingFeatureValuesWriter.roundToSavedPrecision(12345679.5), 0.0);
+        assertEquals(0.0, StreamingFeatureValuesWriter.roundToSavedPrecision(0.0), 0.0);
+        assertTrue(Double.isNaN(StreamingFeatureValuesWriter.roundToSavedPrecision(Double.NaN)));
+
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10.0, random.nextInt(20) - 10);
+            assertEquals(Double.parseDouble(StringMethods.getDoubleInScientificNotation(value, 8)), StreamingFeatureValuesWriter.roundToSavedPrecision(value), 0.0);
+        }
+    }
+
+    /**
+     * Test that ARFF and CSV files written while extracting overall and window features hold the same
+     * contents, including the class labels spliced into the ARFF file, as those converted from the ACE XML
+     * Feature Values file saved during the same extraction.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testExtractedWindowsAndOverallMatchConversion()
+            throws Exception {
+        File directory = extract(getTestMidiFile(), "extracted", 10.0, 0.0, true, true, true);
+        List<String> arff = readLines(directory, ".arff");
+        assertEquals(convert(directory, ".arff"), arff);
+        assertEquals(convert(directory, ".csv"), readLines(directory, ".csv"));
+
+        assertTrue(arff.contains("@attribute Class {Mazurkas}"));
+        assertTrue(arff.get(arff.size() - 1).endsWith(", Mazurkas"));
+        assertTrue(arff.indexOf("@attribute Class {Mazurkas}") < arff.indexOf("@data"));
+    }
+
+    /**
+     * Test that ARFF and CSV files written while extracting window features only hold the same contents,
+     * including the Window_Start and Window_Stop columns, as those converted from the ACE XML Feature Values
+     * file saved during the same extraction.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testExtractedWindowsMatchConversion()
+            throws Exception {
+        File directory = extract(getTestMidiFile(), "extracted", 30.0, 0.5, true, false, true);
+        assertEquals(convert(directory, ".arff"), readLines(directory, ".arff"));
+        List<String> csv = readLines(directory, ".csv");
+        assertEquals(convert(directory, ".csv"), csv);
+        assertTrue(csv.get(0).startsWith(",Window_Start,Window_Stop,"));
+        assertTrue(csv.size() > 2);
+    }
+
+    /**
+     * Test that when a file fits in a single window, its values are written to the Overall Average columns
+     * (with a standard deviation of 0) rather than shifting the columns of the table.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testExtractedSingleWindow()
+            throws Exception {
+        File directory = extract(getTestMidiFile(), "extracted", 1000.0, 0.0, true, true, true);
+        List<String> csv = readLines(directory, ".csv");
+        List<String> converted = convert(directory, ".csv");
+        assertEquals(2, csv.size());
+        assertEquals(2, converted.size());
+
+        String[] names = csv.get(0).split(",");
+        String[] values = csv.get(1).split(",");
+        List<String> converted_names = Arrays.asList(converted.get(0).split(","));
+        String[] converted_values = converted.get(1).split(",");
+        assertEquals(names.length, values.length);
+        assertEquals(converted_values[0], values[0]);
+        int averages = 0;
+        for (int i = 1; i < names.length; i++) {
+            if (names[i].contains("_Overall_Standard_Deviation"))
+                assertEquals(0.0, Double.parseDouble(values[i].trim()), 0.0);
+            else {
+                int converted_index = converted_names.indexOf(names[i].replace("_Overall_Average", ""));
+                assertTrue(names[i], converted_index > 0);
+                assertEquals(converted_values[converted_index].trim(), values[i].trim());
+                averages++;
+            }
+        }
+        assertEquals(converted_names.size() - 1, averages);
+    }
+
+    /**
+     * Test that ARFF and CSV files are identical whether or not ACE XML files are saved alongside them.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testNoAceXml()
+            throws Exception {
+        File midi_file = getTestMidiFile();
+        File with_ace_xml = extract(midi_file, "with_ace_xml", 10.0, 0.0, true, true, true);
+        File without_ace_xml = extract(midi_file, "without_ace_xml", 10.0, 0.0, true, true, false);
+        assertTrue(!new File(without_ace_xml, "values.xml").exists());
+        assertEquals(readLines(with_ace_xml, ".arff"), readLines(without_ace_xml, ".arff"));
+        assertEquals(readLines(with_ace_xml, ".csv"), readLines(without_ace_xml, ".csv"));
+    }
+
+    private File getTestMidiFile()
+            throws Exception {
+        File midi_file = new File(tempFolder.newFolder("Mazurkas"), "Chopin_Mazurka.midi");
+        Files.copy(new File(test_midi_file).toPath(), midi_file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return midi_file;
+    }
+
+    private File extract(File midi_file,
+                         String directory_name,
+                         double window_size,
+                         double window_overlap,
+                         boolean save_windows,
+                         boolean save_overall,
+                         boolean save_ace_xml)
+            throws Exception {
+        File directory = tempFolder.newFolder(directory_name);
+        boolean[] features_to_save = FeatureExtractorAccess.getDefaultFeaturesToSave();
+        String values_path = new File(directory, "values.xml").getPath();
+        MIDIFeatureProcessor processor = new MIDIFeatureProcessor( window_size,
+                                                                   window_overlap,
+                                                                   FeatureExtractorAccess.getFeatureExtractorsForSelection(features_to_save),
+                                                                   FeatureExtractorAccess.getExtractionPlan(features_to_save),
+                                                                   save_windows,
+                                                                   save_overall,
+                                                                   save_ace_xml ? values_path : null,
+                                                                   save_ace_xml ? new File(directory, "definitions.xml").getPath() : null );
+        FeatureExtractionJobProcessor.addStreamingFeatureValuesWriters(processor, values_path, true, true, null, System.out);
+        List<String> error_log = new ArrayList<>();
+        processor.extractFeatures(midi_file, error_log);
+        processor.finalizeFeatureValuesFile();
+        assertTrue(error_log.isEmpty());
+        return directory;
+    }
+
+    private static List<String> convert(File directory, String extension)
+            throws Exception {
+        File conversion_directory = new File(directory, "converted");
+        if (!conversion_directory.exists()) {
+            conversion_directory.mkdir();
+            File values = new File(conversion_directory, "values.xml");
+            Files.copy(new File(directory, "values.xml").toPath(), values.toPath());
+            List<String> error_log = new ArrayList<>();
+            StreamingAceXmlConverter.convertFiles(Arrays.asList(values.getPath()), true, true, false, true, 1, System.out, System.err, error_log);
+            assertTrue(error_log.isEmpty());
+        }
+        return readLines(conversion_directory, extension);
+    }
+
+    private static List<String> readLines(File directory, String extension)
+            throws Exception {
+        return Files.readAllLines(new File(directory, "values" + extension).toPath());
+    }
+}
@@ -0,0 +1,101 @@
+package jsymbolic2.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import jsymbolic2.featureutils.FeatureExtractorAccess;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit Tests for the WatchedFolderExtractor class.
+ *
+ * @author Cory McKay and Tristano Tenaglia
+ */
+public class WatchedFolderExtractorTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final File midi_file = new File("./test/jsymbolic2/api/resources/Chopin_Mazurka.midi");
+
+    /**
+     * Test that files added to and deleted from a watched folder are added to and removed from the saved
+     * CSV file, both with a WatchService and when polling.
+     * @throws java.lang.Exception test
+     */
+    @Test
+    public void testAddAndDeleteFiles()
+            throws Exception {
+        checkAddAndDeleteFiles(0);
+        checkAddAndDeleteFiles(100);
+    }
+
+    private void checkAddAndDeleteFiles(long poll_interval_milliseconds)
+            throws Exception {
+        File folder = tempFolder.newFolder();
+        File output = tempFolder.newFolder();
+        Files.copy(midi_file.toPath(), new File(folder, "first.mid").toPath());
+        String values_path = new File(output, "values.xml").getPath();
+        File csv_file = new File(FeatureExtractionJobProcessor.getMatchingCsvSavePath(values_path));
+
+        PrintStream quiet = new PrintStream(new ByteArrayOutputStream());
+        WatchedFolderExtractor watcher = new WatchedFolderExtractor(Arrays.asList(folder),
+                                                                    values_path,
+                                                                    FeatureExtractionJobProcessor.getMatchingFeatureDefinitionsXmlSavePath(values_path),
+                                                                    FeatureExtractorAccess.getDefaultFeaturesToSave(),
+                                                                    false,
+                                                                    true,
+                                                                    0.0,
+                                                                    0.0,
+                                                                    false,
+                                                                    false,
+                                                                    true,
+                                                                    false,
+                                                                    100,
+                                                                    poll_interval_milliseconds,
+                                                                    quiet,
+                                                                    quiet);
+        Thread thread = new Thread(watcher::run);
+        thread.start();
+        try {
+            assertTrue(waitForCsv(csv_file, "first.mid", true));
+
+            File second = new File(folder, "second.mid");
+            Files.copy(midi_file.toPath(), second.toPath());
+            assertTrue(waitForCsv(csv_file, "second.mid", true));
+            assertTrue(readCsv(csv_file).contains("first.mid"));
+
+            Files.delete(second.toPath());
+            assertTrue(waitForCsv(csv_file, "second.mid", false));
+            assertTrue(readCsv(csv_file).contains("first.mid"));
+        } finally {
+            watcher.stop();
+            thread.join(10000);
+        }
+        assertTrue(watcher.getErrorLog().isEmpty());
+    }
+
+    /**
+     * Wait up to 30 seconds for the CSV file to contain (or no longer contain) the given text.
+     */
+    private static boolean waitForCsv(File csv_file, String text, boolean present)
+            throws Exception {
+        long end = System.currentTimeMillis() + 30000;
+        while (System.currentTimeMillis() < end) {
+            if (csv_file.exists() && readCsv(csv_file).contains(text) == present)
+                return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static String readCsv(File csv_file)
+            throws Exception {
+        return new String(Files.readAllBytes(csv_file.toPath()), StandardCharsets.UTF_8);
+    }
+}